@@ -0,0 +1,160 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.client;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.MediaType;
+import io.airlift.json.JsonCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Reader for the binary result format.  A response starts with the length of the
+ * JSON encoded {@link QueryResults} without data, followed by the JSON.  The rest
+ * of the response is the data in the pages format of the server, where every
+ * column is written with the columnar block encoding (nulls followed by values).
+ * All numbers are little endian.
+ */
+public final class BinaryQueryResults
+{
+    public static final String PRESTO_BINARY_RESULTS = "application/X-presto-binary-results";
+    public static final MediaType PRESTO_BINARY_RESULTS_TYPE = MediaType.create("application", "X-presto-binary-results");
+
+    // block encoding and tuple type ids used by the server
+    private static final int COLUMNAR_BLOCK_ENCODING = 4;
+    private static final int FIXED_INT_64 = 0;
+    private static final int VARIABLE_BINARY = 1;
+    private static final int DOUBLE = 2;
+    private static final int BOOLEAN = 3;
+
+    private BinaryQueryResults()
+    {
+    }
+
+    public static QueryResults readQueryResults(JsonCodec<QueryResults> queryResultsCodec, byte[] data)
+    {
+        checkNotNull(queryResultsCodec, "queryResultsCodec is null");
+        checkNotNull(data, "data is null");
+
+        ByteBuffer input = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+
+        int headerLength = input.getInt();
+        QueryResults header = queryResultsCodec.fromJson(new String(data, input.position(), headerLength, Charsets.UTF_8));
+        input.position(input.position() + headerLength);
+
+        // no pages means there is no data in these results
+        if (!input.hasRemaining()) {
+            return header;
+        }
+
+        List<List<Object>> rows = readRows(input);
+        return new QueryResults(
+                header.getId(),
+                header.getInfoUri(),
+                header.getPartialCancelUri(),
+                header.getNextUri(),
+                header.getColumns(),
+                rows,
+                header.getStats(),
+                header.getError());
+    }
+
+    private static List<List<Object>> readRows(ByteBuffer input)
+    {
+        int columnCount = input.getInt();
+        int[] types = new int[columnCount];
+        for (int column = 0; column < columnCount; column++) {
+            int encoding = input.get();
+            checkArgument(encoding == COLUMNAR_BLOCK_ENCODING, "Unsupported block encoding %s", encoding);
+            int fieldCount = input.get() & 0xFF;
+            checkArgument(fieldCount == 1, "Expected a single field per column, but was %s", fieldCount);
+            types[column] = input.get() & 0xFF;
+        }
+
+        ImmutableList.Builder<List<Object>> rows = ImmutableList.builder();
+        Object[][] columns = new Object[columnCount][];
+        while (input.hasRemaining()) {
+            int positionCount = input.getInt();
+            for (int column = 0; column < columnCount; column++) {
+                columns[column] = readColumn(input, types[column]);
+                checkArgument(columns[column].length == positionCount, "Page is unaligned");
+            }
+
+            for (int position = 0; position < positionCount; position++) {
+                List<Object> row = new ArrayList<>(columnCount);
+                for (int column = 0; column < columnCount; column++) {
+                    row.add(columns[column][position]);
+                }
+                rows.add(unmodifiableList(row)); // allow nulls in list
+            }
+        }
+        return rows.build();
+    }
+
+    private static Object[] readColumn(ByteBuffer input, int type)
+    {
+        int positionCount = input.getInt();
+
+        boolean[] nulls = new boolean[positionCount];
+        for (int position = 0; position < positionCount; position++) {
+            nulls[position] = input.get() != 0;
+        }
+
+        Object[] values = new Object[positionCount];
+        switch (type) {
+            case BOOLEAN:
+                for (int position = 0; position < positionCount; position++) {
+                    boolean value = input.get() != 0;
+                    values[position] = nulls[position] ? null : value;
+                }
+                return values;
+            case FIXED_INT_64:
+                for (int position = 0; position < positionCount; position++) {
+                    long value = input.getLong();
+                    values[position] = nulls[position] ? null : value;
+                }
+                return values;
+            case DOUBLE:
+                for (int position = 0; position < positionCount; position++) {
+                    double value = input.getDouble();
+                    values[position] = nulls[position] ? null : value;
+                }
+                return values;
+            case VARIABLE_BINARY:
+                int[] offsets = new int[positionCount + 1];
+                for (int position = 0; position <= positionCount; position++) {
+                    offsets[position] = input.getInt();
+                }
+                byte[] data = input.array();
+                int dataStart = input.arrayOffset() + input.position();
+                for (int position = 0; position < positionCount; position++) {
+                    if (!nulls[position]) {
+                        values[position] = new String(data, dataStart + offsets[position], offsets[position + 1] - offsets[position], Charsets.UTF_8);
+                    }
+                }
+                input.position(input.position() + offsets[positionCount]);
+                return values;
+            default:
+                throw new IllegalArgumentException("Unsupported type " + type);
+        }
+    }
+}
@@ -24,6 +24,7 @@ public final class PrestoHeaders
     public static final String PRESTO_MAX_WAIT = "X-Presto-Max-Wait";
     public static final String PRESTO_MAX_SIZE = "X-Presto-Max-Size";
     public static final String PRESTO_PAGE_SEQUENCE_ID = "X-Presto-Page-Sequence-Id";
+    public static final String PRESTO_PAGE_COMPRESSION = "X-Presto-Page-Compression";
 
     public PrestoHeaders()
     {
@@ -15,25 +15,32 @@ package com.facebook.presto.client;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Objects;
+import com.google.common.base.Throwables;
+import com.google.common.io.ByteStreams;
+import com.google.common.net.MediaType;
 import io.airlift.http.client.AsyncHttpClient;
-import io.airlift.http.client.FullJsonResponseHandler;
 import io.airlift.http.client.HttpStatus;
 import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.ResponseHandler;
 import io.airlift.json.JsonCodec;
 
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.io.Closeable;
+import java.io.IOException;
 import java.net.URI;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static com.facebook.presto.client.BinaryQueryResults.PRESTO_BINARY_RESULTS;
+import static com.facebook.presto.client.BinaryQueryResults.PRESTO_BINARY_RESULTS_TYPE;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.net.HttpHeaders.ACCEPT;
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
 import static com.google.common.net.HttpHeaders.USER_AGENT;
 import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
-import static io.airlift.http.client.FullJsonResponseHandler.JsonResponse;
-import static io.airlift.http.client.FullJsonResponseHandler.createFullJsonResponseHandler;
 import static io.airlift.http.client.HttpStatus.Family;
 import static io.airlift.http.client.HttpStatus.familyForStatusCode;
 import static io.airlift.http.client.HttpUriBuilder.uriBuilderFrom;
@@ -55,8 +62,11 @@ public class StatementClient
             "/" +
             Objects.firstNonNull(StatementClient.class.getPackage().getImplementationVersion(), "unknown");
 
+    // servers that do not know the binary format fall back to json
+    private static final String ACCEPT_VALUE = PRESTO_BINARY_RESULTS + ", application/json;q=0.5";
+
     private final AsyncHttpClient httpClient;
-    private final FullJsonResponseHandler<QueryResults> responseHandler;
+    private final QueryResultsResponseHandler responseHandler;
     private final boolean debug;
     private final String query;
     private final AtomicReference<QueryResults> currentResults = new AtomicReference<>();
@@ -72,7 +82,7 @@ public class StatementClient
         checkNotNull(query, "query is null");
 
         this.httpClient = httpClient;
-        this.responseHandler = createFullJsonResponseHandler(queryResultsCodec);
+        this.responseHandler = new QueryResultsResponseHandler(queryResultsCodec);
         this.debug = session.isDebug();
         this.query = query;
 
@@ -99,6 +109,7 @@ public class StatementClient
             builder.setHeader(PrestoHeaders.PRESTO_SCHEMA, session.getSchema());
         }
         builder.setHeader(USER_AGENT, USER_AGENT_VALUE);
+        builder.setHeader(ACCEPT, ACCEPT_VALUE);
 
         return builder.build();
     }
@@ -154,6 +165,7 @@ public class StatementClient
 
         Request request = prepareGet()
                 .setHeader(USER_AGENT, USER_AGENT_VALUE)
+                .setHeader(ACCEPT, ACCEPT_VALUE)
                 .setUri(current().getNextUri())
                 .build();
 
@@ -168,7 +180,7 @@ public class StatementClient
             }
             attempts++;
 
-            JsonResponse<QueryResults> response;
+            QueryResultsResponse response;
             try {
                 response = httpClient.execute(request, responseHandler);
             }
@@ -227,4 +239,91 @@ public class StatementClient
             }
         }
     }
+
+    private static class QueryResultsResponseHandler
+            implements ResponseHandler<QueryResultsResponse, RuntimeException>
+    {
+        private final JsonCodec<QueryResults> queryResultsCodec;
+
+        private QueryResultsResponseHandler(JsonCodec<QueryResults> queryResultsCodec)
+        {
+            this.queryResultsCodec = queryResultsCodec;
+        }
+
+        @Override
+        public QueryResultsResponse handleException(Request request, Exception exception)
+        {
+            throw Throwables.propagate(exception);
+        }
+
+        @Override
+        public QueryResultsResponse handle(Request request, Response response)
+        {
+            String contentType = response.getHeader(CONTENT_TYPE);
+            if (contentType == null) {
+                return new QueryResultsResponse(response.getStatusCode(), response.getStatusMessage(), null);
+            }
+
+            byte[] data;
+            try {
+                data = ByteStreams.toByteArray(response.getInputStream());
+            }
+            catch (IOException e) {
+                throw new RuntimeException("Error reading response from server", e);
+            }
+
+            QueryResults results = null;
+            MediaType mediaType = MediaType.parse(contentType);
+            try {
+                if (mediaType.is(PRESTO_BINARY_RESULTS_TYPE)) {
+                    results = BinaryQueryResults.readQueryResults(queryResultsCodec, data);
+                }
+                else if (mediaType.is(MediaType.JSON_UTF_8.withoutParameters())) {
+                    results = queryResultsCodec.fromJson(new String(data, Charsets.UTF_8));
+                }
+            }
+            catch (IllegalArgumentException e) {
+                // error responses are not query results
+                results = null;
+            }
+            return new QueryResultsResponse(response.getStatusCode(), response.getStatusMessage(), results);
+        }
+    }
+
+    private static class QueryResultsResponse
+    {
+        private final int statusCode;
+        private final String statusMessage;
+        private final QueryResults value;
+
+        private QueryResultsResponse(int statusCode, String statusMessage, QueryResults value)
+        {
+            this.statusCode = statusCode;
+            this.statusMessage = statusMessage;
+            this.value = value;
+        }
+
+        public int getStatusCode()
+        {
+            return statusCode;
+        }
+
+        public String getStatusMessage()
+        {
+            return statusMessage;
+        }
+
+        public boolean hasValue()
+        {
+            return value != null;
+        }
+
+        public QueryResults getValue()
+        {
+            if (value == null) {
+                throw new IllegalStateException(format("Response does not contain query results: %s %s", statusCode, statusMessage));
+            }
+            return value;
+        }
+    }
 }
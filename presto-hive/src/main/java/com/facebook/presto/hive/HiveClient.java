@@ -16,6 +16,7 @@ package com.facebook.presto.hive;
 import com.facebook.presto.hadoop.HadoopNative;
 import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ColumnMetadata;
+import com.facebook.presto.spi.ColumnStatistics;
 import com.facebook.presto.spi.ConnectorHandleResolver;
 import com.facebook.presto.spi.ConnectorMetadata;
 import com.facebook.presto.spi.ConnectorRecordSetProvider;
@@ -28,10 +29,13 @@ import com.facebook.presto.spi.SchemaTablePrefix;
 import com.facebook.presto.spi.Split;
 import com.facebook.presto.spi.TableHandle;
 import com.facebook.presto.spi.TableNotFoundException;
+import com.facebook.presto.spi.TableStatistics;
 import com.google.common.base.Function;
+import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
@@ -91,6 +95,13 @@ public class HiveClient
 
     private static final Logger log = Logger.get(HiveClient.class);
 
+    // table and partition parameters written by the Hive statistics collector
+    private static final String ROW_COUNT_PARAMETER = "numRows";
+    private static final String TOTAL_SIZE_PARAMETER = "totalSize";
+
+    // table and partition parameters that Hive updates whenever the data is rewritten or added to
+    private static final List<String> VERSION_PARAMETERS = ImmutableList.of("transient_lastDdlTime", "numFiles", TOTAL_SIZE_PARAMETER);
+
     private final String connectorId;
     private final int maxOutstandingSplits;
     private final int maxSplitIteratorThreads;
@@ -200,6 +211,74 @@ public class HiveClient
         }
     }
 
+    @Override
+    public TableStatistics getTableStatistics(TableHandle tableHandle)
+    {
+        checkNotNull(tableHandle, "tableHandle is null");
+        SchemaTableName tableName = getTableName(tableHandle);
+        try {
+            Table table = metastore.getTable(tableName.getSchemaName(), tableName.getTableName());
+            if (table.getPartitionKeys().isEmpty()) {
+                return toTableStatistics(ImmutableList.of(table.getParameters()));
+            }
+
+            List<String> partitionNames = metastore.getPartitionNames(tableName.getSchemaName(), tableName.getTableName());
+            Iterable<Map<String, String>> partitionParameters = transform(getPartitions(table, tableName, partitionNames), new Function<org.apache.hadoop.hive.metastore.api.Partition, Map<String, String>>()
+            {
+                @Override
+                public Map<String, String> apply(org.apache.hadoop.hive.metastore.api.Partition partition)
+                {
+                    return partition.getParameters();
+                }
+            });
+            return toTableStatistics(partitionParameters);
+        }
+        catch (NoSuchObjectException e) {
+            throw new TableNotFoundException(tableName);
+        }
+    }
+
+    /**
+     * Sums the statistics gathered by Hive (ANALYZE TABLE or hive.stats.autogather).  The statistics
+     * are only known if every table or partition has them, since a partial sum would underestimate.
+     */
+    private static TableStatistics toTableStatistics(Iterable<Map<String, String>> parametersList)
+    {
+        long rowCount = 0;
+        long dataSize = 0;
+        for (Map<String, String> parameters : parametersList) {
+            Long partitionRowCount = parseStatistic(parameters, ROW_COUNT_PARAMETER);
+            Long partitionDataSize = parseStatistic(parameters, TOTAL_SIZE_PARAMETER);
+            if (partitionRowCount == null) {
+                return TableStatistics.unknown();
+            }
+            rowCount += partitionRowCount;
+            if (dataSize != TableStatistics.UNKNOWN) {
+                dataSize = (partitionDataSize == null) ? TableStatistics.UNKNOWN : dataSize + partitionDataSize;
+            }
+        }
+        return new TableStatistics(rowCount, dataSize, ImmutableMap.<ColumnHandle, ColumnStatistics>of());
+    }
+
+    private static Long parseStatistic(Map<String, String> parameters, String name)
+    {
+        if (parameters == null) {
+            return null;
+        }
+        String value = parameters.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            long statistic = Long.parseLong(value);
+            // Hive writes -1 when the statistic could not be computed
+            return (statistic < 0) ? null : statistic;
+        }
+        catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     @Override
     public List<SchemaTableName> listTables(String schemaNameOrNull)
     {
@@ -433,6 +512,66 @@ public class HiveClient
                 maxPartitionBatchSize);
     }
 
+    @Override
+    public Map<String, String> getPartitionVersions(TableHandle tableHandle, List<Partition> partitions)
+    {
+        checkNotNull(tableHandle, "tableHandle is null");
+        checkNotNull(partitions, "partitions is null");
+        SchemaTableName tableName = getTableName(tableHandle);
+
+        if (partitions.isEmpty()) {
+            return ImmutableMap.of();
+        }
+
+        List<String> partitionNames = Lists.transform(partitions, HiveUtil.partitionIdGetter());
+
+        ImmutableMap.Builder<String, String> versions = ImmutableMap.builder();
+        try {
+            Table table = metastore.getTable(tableName.getSchemaName(), tableName.getTableName());
+            if (partitionNames.equals(ImmutableList.of(UNPARTITIONED_ID))) {
+                String version = getVersion(table.getParameters());
+                if (version != null) {
+                    versions.put(UNPARTITIONED_ID, version);
+                }
+                return versions.build();
+            }
+
+            for (org.apache.hadoop.hive.metastore.api.Partition partition : getPartitions(table, tableName, ImmutableList.copyOf(partitionNames))) {
+                String version = getVersion(partition.getParameters());
+                if (version != null) {
+                    versions.put(makePartName(table.getPartitionKeys(), partition.getValues()), version);
+                }
+            }
+        }
+        catch (NoSuchObjectException e) {
+            throw new TableNotFoundException(tableName);
+        }
+        catch (MetaException e) {
+            throw Throwables.propagate(e);
+        }
+        return versions.build();
+    }
+
+    /**
+     * Combines the parameters Hive updates when the data of a table or partition changes.  Data written
+     * to the directory without going through the metastore is not detected.
+     */
+    private static String getVersion(Map<String, String> parameters)
+    {
+        if (parameters == null) {
+            return null;
+        }
+
+        boolean known = false;
+        List<String> values = new ArrayList<>();
+        for (String name : VERSION_PARAMETERS) {
+            String value = parameters.get(name);
+            known |= (value != null);
+            values.add(Strings.nullToEmpty(value));
+        }
+        return known ? Joiner.on(':').join(values) : null;
+    }
+
     private Iterable<org.apache.hadoop.hive.metastore.api.Partition> getPartitions(final Table table, final SchemaTableName tableName, List<String> partitionNames)
             throws NoSuchObjectException
     {
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.block;
 
+import com.facebook.presto.block.uncompressed.UncompressedBlock;
 import com.facebook.presto.tuple.Tuple;
 import com.facebook.presto.tuple.TupleInfo;
 import com.google.common.base.Optional;
@@ -21,6 +22,7 @@ import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import io.airlift.slice.Slices;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
 
@@ -129,6 +131,28 @@ public class BlockUtils
         }
     }
 
+    /**
+     * Returns the block in the uncompressed (tuple per position) format, copying the
+     * tuples if the block uses another format.
+     */
+    public static UncompressedBlock toUncompressedBlock(Block block)
+    {
+        Preconditions.checkNotNull(block, "block is null");
+        if (block instanceof UncompressedBlock) {
+            return (UncompressedBlock) block;
+        }
+        if (block.getPositionCount() == 0) {
+            return new UncompressedBlock(0, block.getTupleInfo(), Slices.EMPTY_SLICE);
+        }
+
+        BlockBuilder blockBuilder = new BlockBuilder(block.getTupleInfo());
+        BlockCursor cursor = block.cursor();
+        while (cursor.advanceNextPosition()) {
+            cursor.appendTupleTo(blockBuilder);
+        }
+        return blockBuilder.build();
+    }
+
     public static Iterable<Tuple> toTupleIterable(Block block)
     {
         Preconditions.checkNotNull(block, "block is null");
@@ -0,0 +1,259 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.block.columnar;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockBuilder;
+import com.facebook.presto.block.BlockCursor;
+import com.facebook.presto.tuple.Tuple;
+import com.facebook.presto.tuple.TupleInfo;
+import com.google.common.base.Preconditions;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+
+import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
+
+/**
+ * Base cursor for the single field columnar blocks.  The values of the block are stored
+ * in an array starting at {@code arrayOffset}, and the nulls in a parallel boolean array.
+ * <p/>
+ * Columnar blocks do not store tuples, so the first raw access builds the tuples of all
+ * positions of the cursor into one slice, which is then shared by all positions.
+ */
+public abstract class AbstractArrayBlockCursor
+        implements BlockCursor
+{
+    private final TupleInfo tupleInfo;
+    private final int positionCount;
+    private final boolean[] nulls;
+    protected final int arrayOffset;
+
+    protected int position;
+
+    // tuples of all positions, built on the first raw access
+    private Slice rawSlice;
+    private int[] rawOffsets;
+
+    protected AbstractArrayBlockCursor(TupleInfo tupleInfo, int positionCount, boolean[] nulls, int arrayOffset)
+    {
+        Preconditions.checkNotNull(tupleInfo, "tupleInfo is null");
+        Preconditions.checkArgument(positionCount >= 0, "positionCount is negative");
+        Preconditions.checkNotNull(nulls, "nulls is null");
+        Preconditions.checkPositionIndexes(arrayOffset, arrayOffset + positionCount, nulls.length);
+
+        this.tupleInfo = tupleInfo;
+        this.positionCount = positionCount;
+        this.nulls = nulls;
+        this.arrayOffset = arrayOffset;
+
+        // start one position before the start
+        position = -1;
+    }
+
+    /**
+     * Creates a block for the specified positions of this cursor.
+     */
+    protected abstract Block createRegion(int startPosition, int length);
+
+    /**
+     * Appends the non-null value at the current position.
+     */
+    protected abstract void appendValueTo(TupleInfo.Builder tupleBuilder);
+
+    /**
+     * Appends the non-null value at the current position.
+     */
+    protected abstract void appendValueTo(BlockBuilder blockBuilder);
+
+    @Override
+    public TupleInfo getTupleInfo()
+    {
+        return tupleInfo;
+    }
+
+    @Override
+    public int getRemainingPositions()
+    {
+        return positionCount - (position + 1);
+    }
+
+    @Override
+    public boolean isValid()
+    {
+        return 0 <= position && position < positionCount;
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return position >= positionCount;
+    }
+
+    protected void checkReadablePosition()
+    {
+        Preconditions.checkState(isValid(), "cursor is not valid");
+    }
+
+    @Override
+    public boolean advanceNextPosition()
+    {
+        if (position >= positionCount - 1) {
+            position = positionCount;
+            return false;
+        }
+
+        position++;
+        return true;
+    }
+
+    @Override
+    public boolean advanceToPosition(int newPosition)
+    {
+        // if new position is out of range, return false
+        if (newPosition >= positionCount) {
+            position = positionCount;
+            return false;
+        }
+
+        Preconditions.checkArgument(newPosition >= this.position, "Can't advance backwards");
+
+        position = newPosition;
+        return true;
+    }
+
+    @Override
+    public Block getRegionAndAdvance(int length)
+    {
+        // view port starts at next position
+        int startPosition = position + 1;
+        length = Math.min(length, getRemainingPositions());
+
+        // advance to end of view port
+        position += length;
+
+        return createRegion(startPosition, length);
+    }
+
+    @Override
+    public int getPosition()
+    {
+        checkReadablePosition();
+        return position;
+    }
+
+    @Override
+    public Tuple getTuple()
+    {
+        checkReadablePosition();
+
+        TupleInfo.Builder tupleBuilder = tupleInfo.builder();
+        if (nulls[arrayOffset + position]) {
+            tupleBuilder.appendNull();
+        }
+        else {
+            appendValueTo(tupleBuilder);
+        }
+        return tupleBuilder.build();
+    }
+
+    @Override
+    public boolean getBoolean(int field)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long getLong(int field)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public double getDouble(int field)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Slice getSlice(int field)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isNull(int field)
+    {
+        checkReadablePosition();
+        Preconditions.checkElementIndex(field, 1, "field");
+        return nulls[arrayOffset + position];
+    }
+
+    @Override
+    public boolean currentTupleEquals(Tuple value)
+    {
+        return getTuple().equals(value);
+    }
+
+    @Override
+    public int getRawOffset()
+    {
+        checkReadablePosition();
+        buildRawTuples();
+        return rawOffsets[position];
+    }
+
+    @Override
+    public Slice getRawSlice()
+    {
+        checkReadablePosition();
+        buildRawTuples();
+        return rawSlice;
+    }
+
+    private void buildRawTuples()
+    {
+        if (rawSlice != null) {
+            return;
+        }
+
+        int currentPosition = position;
+        DynamicSliceOutput sliceOutput = new DynamicSliceOutput(positionCount * Math.max(tupleInfo.getFixedSize(), SIZE_OF_LONG));
+        TupleInfo.Builder tupleBuilder = tupleInfo.builder(sliceOutput);
+        rawOffsets = new int[positionCount];
+        for (position = 0; position < positionCount; position++) {
+            rawOffsets[position] = sliceOutput.size();
+            if (nulls[arrayOffset + position]) {
+                tupleBuilder.appendNull();
+            }
+            else {
+                appendValueTo(tupleBuilder);
+            }
+            tupleBuilder.finish();
+        }
+        position = currentPosition;
+        rawSlice = sliceOutput.slice();
+    }
+
+    @Override
+    public void appendTupleTo(BlockBuilder blockBuilder)
+    {
+        checkReadablePosition();
+        if (nulls[arrayOffset + position]) {
+            blockBuilder.appendNull();
+        }
+        else {
+            appendValueTo(blockBuilder);
+        }
+    }
+}
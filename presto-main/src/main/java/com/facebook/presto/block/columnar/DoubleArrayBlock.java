@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.block.columnar;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockCursor;
+import com.facebook.presto.serde.ColumnarBlockEncoding;
+import com.facebook.presto.tuple.TupleInfo;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import io.airlift.units.DataSize;
+import io.airlift.units.DataSize.Unit;
+
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_DOUBLE;
+
+/**
+ * A single double column stored in a primitive array.
+ */
+public class DoubleArrayBlock
+        implements Block
+{
+    private final int positionCount;
+    private final double[] values;
+    private final boolean[] nulls;
+    private final int arrayOffset;
+
+    public DoubleArrayBlock(double[] values, boolean[] nulls)
+    {
+        this(values.length, values, nulls, 0);
+    }
+
+    public DoubleArrayBlock(int positionCount, double[] values, boolean[] nulls, int arrayOffset)
+    {
+        Preconditions.checkArgument(positionCount >= 0, "positionCount is negative");
+        Preconditions.checkNotNull(values, "values is null");
+        Preconditions.checkNotNull(nulls, "nulls is null");
+        Preconditions.checkArgument(values.length == nulls.length, "values and nulls must be the same length");
+        Preconditions.checkPositionIndexes(arrayOffset, arrayOffset + positionCount, values.length);
+
+        this.positionCount = positionCount;
+        this.values = values;
+        this.nulls = nulls;
+        this.arrayOffset = arrayOffset;
+    }
+
+    @Override
+    public TupleInfo getTupleInfo()
+    {
+        return SINGLE_DOUBLE;
+    }
+
+    @Override
+    public int getPositionCount()
+    {
+        return positionCount;
+    }
+
+    @Override
+    public DataSize getDataSize()
+    {
+        return new DataSize(positionCount * (8 + 1), Unit.BYTE);
+    }
+
+    public boolean isNull(int position)
+    {
+        assert position >= 0 && position < positionCount : "position is not valid";
+        return nulls[arrayOffset + position];
+    }
+
+    /**
+     * Gets the value at the specified position.  The value of a null position is undefined.
+     */
+    public double getDouble(int position)
+    {
+        assert position >= 0 && position < positionCount : "position is not valid";
+        return values[arrayOffset + position];
+    }
+
+    @Override
+    public BlockCursor cursor()
+    {
+        return new DoubleArrayBlockCursor(positionCount, values, nulls, arrayOffset);
+    }
+
+    @Override
+    public ColumnarBlockEncoding getEncoding()
+    {
+        return new ColumnarBlockEncoding(SINGLE_DOUBLE);
+    }
+
+    @Override
+    public Block getRegion(int positionOffset, int length)
+    {
+        Preconditions.checkPositionIndexes(positionOffset, positionOffset + length, positionCount);
+        return new DoubleArrayBlock(length, values, nulls, arrayOffset + positionOffset);
+    }
+
+    @Override
+    public String toString()
+    {
+        return Objects.toStringHelper(this)
+                .add("positionCount", positionCount)
+                .toString();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.block.columnar;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockBuilder;
+import com.facebook.presto.tuple.TupleInfo;
+import com.google.common.base.Preconditions;
+
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_DOUBLE;
+
+public class DoubleArrayBlockCursor
+        extends AbstractArrayBlockCursor
+{
+    private final double[] values;
+    private final boolean[] nulls;
+
+    public DoubleArrayBlockCursor(int positionCount, double[] values, boolean[] nulls, int arrayOffset)
+    {
+        super(SINGLE_DOUBLE, positionCount, nulls, arrayOffset);
+        this.values = Preconditions.checkNotNull(values, "values is null");
+        this.nulls = nulls;
+    }
+
+    @Override
+    protected Block createRegion(int startPosition, int length)
+    {
+        return new DoubleArrayBlock(length, values, nulls, arrayOffset + startPosition);
+    }
+
+    @Override
+    public double getDouble(int field)
+    {
+        checkReadablePosition();
+        Preconditions.checkElementIndex(field, 1, "field");
+        return values[arrayOffset + position];
+    }
+
+    @Override
+    protected void appendValueTo(TupleInfo.Builder tupleBuilder)
+    {
+        tupleBuilder.append(values[arrayOffset + position]);
+    }
+
+    @Override
+    protected void appendValueTo(BlockBuilder blockBuilder)
+    {
+        blockBuilder.append(values[arrayOffset + position]);
+    }
+}
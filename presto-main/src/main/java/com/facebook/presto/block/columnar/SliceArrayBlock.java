@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.block.columnar;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockCursor;
+import com.facebook.presto.serde.ColumnarBlockEncoding;
+import com.facebook.presto.tuple.TupleInfo;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import io.airlift.slice.Slice;
+import io.airlift.units.DataSize;
+import io.airlift.units.DataSize.Unit;
+
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_VARBINARY;
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
+
+/**
+ * A single variable binary column.  The values are stored back to back in a slice, and the
+ * value at position {@code i} spans from {@code offsets[i]} to {@code offsets[i + 1]}.
+ */
+public class SliceArrayBlock
+        implements Block
+{
+    private final int positionCount;
+    private final Slice data;
+    private final int[] offsets;
+    private final boolean[] nulls;
+    private final int arrayOffset;
+
+    public SliceArrayBlock(Slice data, int[] offsets, boolean[] nulls)
+    {
+        this(nulls.length, data, offsets, nulls, 0);
+    }
+
+    public SliceArrayBlock(int positionCount, Slice data, int[] offsets, boolean[] nulls, int arrayOffset)
+    {
+        Preconditions.checkArgument(positionCount >= 0, "positionCount is negative");
+        Preconditions.checkNotNull(data, "data is null");
+        Preconditions.checkNotNull(offsets, "offsets is null");
+        Preconditions.checkNotNull(nulls, "nulls is null");
+        Preconditions.checkArgument(offsets.length == nulls.length + 1, "offsets must contain one more entry than nulls");
+        Preconditions.checkPositionIndexes(arrayOffset, arrayOffset + positionCount, nulls.length);
+
+        this.positionCount = positionCount;
+        this.data = data;
+        this.offsets = offsets;
+        this.nulls = nulls;
+        this.arrayOffset = arrayOffset;
+    }
+
+    @Override
+    public TupleInfo getTupleInfo()
+    {
+        return SINGLE_VARBINARY;
+    }
+
+    @Override
+    public int getPositionCount()
+    {
+        return positionCount;
+    }
+
+    @Override
+    public DataSize getDataSize()
+    {
+        int dataLength = offsets[arrayOffset + positionCount] - offsets[arrayOffset];
+        return new DataSize(dataLength + positionCount * (SIZE_OF_INT + 1), Unit.BYTE);
+    }
+
+    public boolean isNull(int position)
+    {
+        assert position >= 0 && position < positionCount : "position is not valid";
+        return nulls[arrayOffset + position];
+    }
+
+    /**
+     * Gets the value at the specified position.  The value of a null position is empty.
+     */
+    public Slice getSlice(int position)
+    {
+        assert position >= 0 && position < positionCount : "position is not valid";
+        int start = offsets[arrayOffset + position];
+        return data.slice(start, offsets[arrayOffset + position + 1] - start);
+    }
+
+    @Override
+    public BlockCursor cursor()
+    {
+        return new SliceArrayBlockCursor(positionCount, data, offsets, nulls, arrayOffset);
+    }
+
+    @Override
+    public ColumnarBlockEncoding getEncoding()
+    {
+        return new ColumnarBlockEncoding(SINGLE_VARBINARY);
+    }
+
+    @Override
+    public Block getRegion(int positionOffset, int length)
+    {
+        Preconditions.checkPositionIndexes(positionOffset, positionOffset + length, positionCount);
+        return new SliceArrayBlock(length, data, offsets, nulls, arrayOffset + positionOffset);
+    }
+
+    @Override
+    public String toString()
+    {
+        return Objects.toStringHelper(this)
+                .add("positionCount", positionCount)
+                .toString();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.block.columnar;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockBuilder;
+import com.facebook.presto.tuple.TupleInfo;
+import com.google.common.base.Preconditions;
+import io.airlift.slice.Slice;
+
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_VARBINARY;
+
+public class SliceArrayBlockCursor
+        extends AbstractArrayBlockCursor
+{
+    private final Slice data;
+    private final int[] offsets;
+    private final boolean[] nulls;
+
+    public SliceArrayBlockCursor(int positionCount, Slice data, int[] offsets, boolean[] nulls, int arrayOffset)
+    {
+        super(SINGLE_VARBINARY, positionCount, nulls, arrayOffset);
+        this.data = Preconditions.checkNotNull(data, "data is null");
+        this.offsets = Preconditions.checkNotNull(offsets, "offsets is null");
+        this.nulls = nulls;
+    }
+
+    @Override
+    protected Block createRegion(int startPosition, int length)
+    {
+        return new SliceArrayBlock(length, data, offsets, nulls, arrayOffset + startPosition);
+    }
+
+    @Override
+    public Slice getSlice(int field)
+    {
+        checkReadablePosition();
+        Preconditions.checkElementIndex(field, 1, "field");
+        return currentValue();
+    }
+
+    @Override
+    protected void appendValueTo(TupleInfo.Builder tupleBuilder)
+    {
+        tupleBuilder.append(currentValue());
+    }
+
+    @Override
+    protected void appendValueTo(BlockBuilder blockBuilder)
+    {
+        blockBuilder.append(currentValue());
+    }
+
+    private Slice currentValue()
+    {
+        int start = offsets[arrayOffset + position];
+        return data.slice(start, offsets[arrayOffset + position + 1] - start);
+    }
+}
@@ -16,11 +16,13 @@ package com.facebook.presto.connector.dual;
 import com.facebook.presto.metadata.MetadataManager;
 import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ColumnMetadata;
+import com.facebook.presto.spi.ColumnStatistics;
 import com.facebook.presto.spi.ConnectorMetadata;
 import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.SchemaTablePrefix;
 import com.facebook.presto.spi.TableHandle;
+import com.facebook.presto.spi.TableStatistics;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -81,6 +83,16 @@ public class DualMetadata
         return new ConnectorTableMetadata(tableName, ImmutableList.of(COLUMN_METADATA));
     }
 
+    @Override
+    public TableStatistics getTableStatistics(TableHandle tableHandle)
+    {
+        checkNotNull(tableHandle, "tableHandle is null");
+        checkArgument(tableHandle instanceof DualTableHandle, "tableHandle is not a dual table handle");
+
+        // dual always contains exactly one row
+        return new TableStatistics(1, TableStatistics.UNKNOWN, ImmutableMap.<ColumnHandle, ColumnStatistics>of());
+    }
+
     @Override
     public List<SchemaTableName> listTables(String schemaNameOrNull)
     {
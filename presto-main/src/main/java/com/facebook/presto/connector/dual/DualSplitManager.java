@@ -83,6 +83,12 @@ public class DualSplitManager
         return ImmutableList.of(split);
     }
 
+    @Override
+    public Map<String, String> getPartitionVersions(TableHandle table, List<Partition> partitions)
+    {
+        return ImmutableMap.of();
+    }
+
     public static class DualPartition
             implements Partition
     {
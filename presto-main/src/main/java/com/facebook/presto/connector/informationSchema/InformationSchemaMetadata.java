@@ -20,6 +20,7 @@ import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.SchemaTablePrefix;
 import com.facebook.presto.spi.TableHandle;
+import com.facebook.presto.spi.TableStatistics;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
@@ -141,6 +142,13 @@ public class InformationSchemaMetadata
         return TABLES.get(informationSchemaTableHandle.getSchemaTableName());
     }
 
+    @Override
+    public TableStatistics getTableStatistics(TableHandle tableHandle)
+    {
+        checkTableHandle(tableHandle);
+        return TableStatistics.unknown();
+    }
+
     @Override
     public List<SchemaTableName> listTables(final String schemaNameOrNull)
     {
@@ -95,6 +95,12 @@ public class InformationSchemaSplitManager
         return ImmutableList.of(split);
     }
 
+    @Override
+    public Map<String, String> getPartitionVersions(TableHandle table, List<Partition> partitions)
+    {
+        return ImmutableMap.of();
+    }
+
     public static class InformationSchemaPartition
             implements Partition
     {
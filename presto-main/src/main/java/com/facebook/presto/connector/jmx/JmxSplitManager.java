@@ -89,6 +89,12 @@ public class JmxSplitManager
         return splits.build();
     }
 
+    @Override
+    public Map<String, String> getPartitionVersions(TableHandle table, List<Partition> partitions)
+    {
+        return ImmutableMap.of();
+    }
+
     public static class JmxPartition
             implements Partition
     {
@@ -0,0 +1,93 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.connector.system;
+
+import com.facebook.presto.memory.ClusterMemoryManager;
+import com.facebook.presto.memory.MemoryPoolInfo;
+import com.facebook.presto.spi.ColumnType;
+import com.facebook.presto.spi.ConnectorTableMetadata;
+import com.facebook.presto.spi.InMemoryRecordSet;
+import com.facebook.presto.spi.InMemoryRecordSet.Builder;
+import com.facebook.presto.spi.RecordCursor;
+import com.facebook.presto.spi.SchemaTableName;
+import com.facebook.presto.spi.SystemTable;
+import com.google.common.collect.ImmutableList;
+
+import javax.inject.Inject;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.facebook.presto.metadata.MetadataUtil.TableMetadataBuilder.tableMetadataBuilder;
+import static com.facebook.presto.metadata.MetadataUtil.columnTypeGetter;
+import static com.facebook.presto.spi.ColumnType.LONG;
+import static com.facebook.presto.spi.ColumnType.STRING;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterables.transform;
+
+public class NodeMemorySystemTable
+        implements SystemTable
+{
+    public static final SchemaTableName NODE_MEMORY_TABLE_NAME = new SchemaTableName("sys", "node_memory");
+
+    public static final ConnectorTableMetadata NODE_MEMORY_TABLE = tableMetadataBuilder(NODE_MEMORY_TABLE_NAME)
+            .column("node_id", STRING)
+            .column("max_bytes", LONG)
+            .column("reserved_bytes", LONG)
+            .column("free_bytes", LONG)
+            .column("queries", LONG)
+            .build();
+
+    private final ClusterMemoryManager memoryManager;
+
+    @Inject
+    public NodeMemorySystemTable(ClusterMemoryManager memoryManager)
+    {
+        this.memoryManager = checkNotNull(memoryManager, "memoryManager is null");
+    }
+
+    @Override
+    public boolean isDistributed()
+    {
+        return false;
+    }
+
+    @Override
+    public ConnectorTableMetadata getTableMetadata()
+    {
+        return NODE_MEMORY_TABLE;
+    }
+
+    @Override
+    public List<ColumnType> getColumnTypes()
+    {
+        return ImmutableList.copyOf(transform(NODE_MEMORY_TABLE.getColumns(), columnTypeGetter()));
+    }
+
+    @Override
+    public RecordCursor cursor()
+    {
+        Builder table = InMemoryRecordSet.builder(NODE_MEMORY_TABLE);
+        for (Map.Entry<String, MemoryPoolInfo> entry : memoryManager.getNodeMemoryPools().entrySet()) {
+            MemoryPoolInfo pool = entry.getValue();
+            table.addRow(
+                    entry.getKey(),
+                    pool.getMaxBytes(),
+                    pool.getReservedBytes(),
+                    pool.getFreeBytes(),
+                    (long) pool.getQueryReservations().size());
+        }
+        return table.build().cursor();
+    }
+}
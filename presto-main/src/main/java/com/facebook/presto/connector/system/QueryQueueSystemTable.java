@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.connector.system;
+
+import com.facebook.presto.execution.QueryQueue;
+import com.facebook.presto.execution.QueryQueueManager;
+import com.facebook.presto.spi.ColumnType;
+import com.facebook.presto.spi.ConnectorTableMetadata;
+import com.facebook.presto.spi.InMemoryRecordSet;
+import com.facebook.presto.spi.InMemoryRecordSet.Builder;
+import com.facebook.presto.spi.RecordCursor;
+import com.facebook.presto.spi.SchemaTableName;
+import com.facebook.presto.spi.SystemTable;
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.DataSize;
+
+import javax.inject.Inject;
+
+import java.util.List;
+
+import static com.facebook.presto.metadata.MetadataUtil.TableMetadataBuilder.tableMetadataBuilder;
+import static com.facebook.presto.metadata.MetadataUtil.columnTypeGetter;
+import static com.facebook.presto.spi.ColumnType.LONG;
+import static com.facebook.presto.spi.ColumnType.STRING;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterables.transform;
+
+public class QueryQueueSystemTable
+        implements SystemTable
+{
+    public static final SchemaTableName QUERY_QUEUE_TABLE_NAME = new SchemaTableName("sys", "query_queue");
+
+    public static final ConnectorTableMetadata QUERY_QUEUE_TABLE = tableMetadataBuilder(QUERY_QUEUE_TABLE_NAME)
+            .column("queue", STRING)
+
+            .column("running_queries", LONG)
+            .column("queued_queries", LONG)
+            .column("max_concurrent_queries", LONG)
+            .column("max_queued_queries", LONG)
+
+            .column("memory_reservation_bytes", LONG)
+            .column("max_memory_bytes", LONG)
+
+            .column("started_queries", LONG)
+            .column("rejected_queries", LONG)
+            .build();
+
+    private final QueryQueueManager queueManager;
+
+    @Inject
+    public QueryQueueSystemTable(QueryQueueManager queueManager)
+    {
+        this.queueManager = checkNotNull(queueManager, "queueManager is null");
+    }
+
+    @Override
+    public boolean isDistributed()
+    {
+        return false;
+    }
+
+    @Override
+    public ConnectorTableMetadata getTableMetadata()
+    {
+        return QUERY_QUEUE_TABLE;
+    }
+
+    @Override
+    public List<ColumnType> getColumnTypes()
+    {
+        return ImmutableList.copyOf(transform(QUERY_QUEUE_TABLE.getColumns(), columnTypeGetter()));
+    }
+
+    @Override
+    public RecordCursor cursor()
+    {
+        Builder table = InMemoryRecordSet.builder(QUERY_QUEUE_TABLE);
+        for (QueryQueue queue : queueManager.getQueues()) {
+            DataSize maxMemory = queue.getMaxMemory();
+            table.addRow(
+                    queue.getName(),
+
+                    (long) queue.getRunningQueries(),
+                    (long) queue.getQueuedQueries(),
+                    (long) queue.getMaxConcurrentQueries(),
+                    (long) queue.getMaxQueuedQueries(),
+
+                    queue.getMemoryReservationInBytes(),
+                    maxMemory == null ? null : maxMemory.toBytes(),
+
+                    queue.getStartedQueries().getTotalCount(),
+                    queue.getRejectedQueries().getTotalCount());
+        }
+        return table.build().cursor();
+    }
+}
@@ -55,6 +55,8 @@ public class QuerySystemTable
             .column("analysis_time_ms", LONG)
             .column("distributed_planning_time_ms", LONG)
 
+            .column("memory_reservation_bytes", LONG)
+
             .column("created", LONG)
             .column("started", LONG)
             .column("last_heartbeat", LONG)
@@ -106,6 +108,8 @@ public class QuerySystemTable
                     toMillis(queryStats.getAnalysisTime()),
                     toMillis(queryStats.getDistributedPlanningTime()),
 
+                    queryStats.getTotalMemoryReservation().toBytes(),
+
                     toTimeStamp(queryStats.getCreateTime()),
                     toTimeStamp(queryStats.getExecutionStartTime()),
                     toTimeStamp(queryStats.getLastHeartbeat()),
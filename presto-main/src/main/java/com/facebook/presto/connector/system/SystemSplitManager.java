@@ -117,6 +117,12 @@ public class SystemSplitManager
         return ImmutableList.of(split);
     }
 
+    @Override
+    public Map<String, String> getPartitionVersions(TableHandle table, List<Partition> partitions)
+    {
+        return ImmutableMap.of();
+    }
+
     public static class SystemPartition
             implements Partition
     {
@@ -20,6 +20,7 @@ import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.SchemaTablePrefix;
 import com.facebook.presto.spi.TableHandle;
+import com.facebook.presto.spi.TableStatistics;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -89,6 +90,13 @@ public class SystemTablesMetadata
         return tables.get(systemTableHandle.getSchemaTableName());
     }
 
+    @Override
+    public TableStatistics getTableStatistics(TableHandle tableHandle)
+    {
+        checkTableHandle(tableHandle);
+        return TableStatistics.unknown();
+    }
+
     @Override
     public List<SchemaTableName> listTables(final String schemaNameOrNull)
     {
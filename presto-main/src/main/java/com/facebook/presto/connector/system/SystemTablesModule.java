@@ -36,6 +36,8 @@ public class SystemTablesModule
         Multibinder<SystemTable> globalTableBinder = Multibinder.newSetBinder(binder, SystemTable.class);
         globalTableBinder.addBinding().to(NodesSystemTable.class).in(Scopes.SINGLETON);
         globalTableBinder.addBinding().to(QuerySystemTable.class).in(Scopes.SINGLETON);
+        globalTableBinder.addBinding().to(QueryQueueSystemTable.class).in(Scopes.SINGLETON);
+        globalTableBinder.addBinding().to(NodeMemorySystemTable.class).in(Scopes.SINGLETON);
         globalTableBinder.addBinding().to(TaskSystemTable.class).in(Scopes.SINGLETON);
         globalTableBinder.addBinding().to(AliasSystemTable.class).in(Scopes.SINGLETON);
     }
@@ -158,6 +158,17 @@ public class NodeScheduler
             return nodes.get(0);
         }
 
+        public List<Node> selectRandomNodes(int limit)
+        {
+            Preconditions.checkArgument(limit > 0, "limit must be at least 1");
+
+            // create partitions on up to limit distinct random nodes for this fragment
+            ArrayList<Node> nodes = new ArrayList<>(nodeMap.get().get().getNodesByHostAndPort().values());
+            Preconditions.checkState(!nodes.isEmpty(), "Cluster does not have any active nodes");
+            Collections.shuffle(nodes, ThreadLocalRandom.current());
+            return ImmutableList.copyOf(nodes.subList(0, Math.min(limit, nodes.size())));
+        }
+
         public Node selectNode(Split split)
         {
             // select acceptable nodes
@@ -14,6 +14,7 @@
 package com.facebook.presto.execution;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
 import io.airlift.units.Duration;
 import io.airlift.units.MinDuration;
 
@@ -31,6 +32,16 @@ public class QueryManagerConfig
 
     private int queryManagerExecutorPoolSize = 5;
 
+    private int maxConcurrentQueries = 1000;
+    private int maxQueuedQueries = 5000;
+    private String queueConfigFile;
+
+    private boolean distributedJoinsEnabled;
+    private int initialHashPartitions = 8;
+
+    private boolean dynamicPartitionPruningEnabled;
+    private Duration dynamicPartitionPruningMaxWait = new Duration(5, TimeUnit.SECONDS);
+
     private int remoteTaskMaxConsecutiveErrorCount = 10;
     private Duration remoteTaskMinErrorDuration = new Duration(2, TimeUnit.MINUTES);
 
@@ -87,6 +98,56 @@ public class QueryManagerConfig
         return this;
     }
 
+    public boolean isDistributedJoinsEnabled()
+    {
+        return distributedJoinsEnabled;
+    }
+
+    @Config("query.distributed-joins-enabled")
+    public QueryManagerConfig setDistributedJoinsEnabled(boolean distributedJoinsEnabled)
+    {
+        this.distributedJoinsEnabled = distributedJoinsEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getInitialHashPartitions()
+    {
+        return initialHashPartitions;
+    }
+
+    @Config("query.initial-hash-partitions")
+    public QueryManagerConfig setInitialHashPartitions(int initialHashPartitions)
+    {
+        this.initialHashPartitions = initialHashPartitions;
+        return this;
+    }
+
+    public boolean isDynamicPartitionPruningEnabled()
+    {
+        return dynamicPartitionPruningEnabled;
+    }
+
+    @Config("query.dynamic-partition-pruning-enabled")
+    public QueryManagerConfig setDynamicPartitionPruningEnabled(boolean dynamicPartitionPruningEnabled)
+    {
+        this.dynamicPartitionPruningEnabled = dynamicPartitionPruningEnabled;
+        return this;
+    }
+
+    @NotNull
+    public Duration getDynamicPartitionPruningMaxWait()
+    {
+        return dynamicPartitionPruningMaxWait;
+    }
+
+    @Config("query.dynamic-partition-pruning-max-wait")
+    public QueryManagerConfig setDynamicPartitionPruningMaxWait(Duration dynamicPartitionPruningMaxWait)
+    {
+        this.dynamicPartitionPruningMaxWait = dynamicPartitionPruningMaxWait;
+        return this;
+    }
+
     @Min(1)
     public int getQueryManagerExecutorPoolSize()
     {
@@ -100,6 +161,47 @@ public class QueryManagerConfig
         return this;
     }
 
+    @Min(1)
+    public int getMaxConcurrentQueries()
+    {
+        return maxConcurrentQueries;
+    }
+
+    @Config("query.max-concurrent-queries")
+    @ConfigDescription("Maximum number of running queries in the default queue")
+    public QueryManagerConfig setMaxConcurrentQueries(int maxConcurrentQueries)
+    {
+        this.maxConcurrentQueries = maxConcurrentQueries;
+        return this;
+    }
+
+    @Min(0)
+    public int getMaxQueuedQueries()
+    {
+        return maxQueuedQueries;
+    }
+
+    @Config("query.max-queued-queries")
+    @ConfigDescription("Maximum number of queries waiting to run in the default queue")
+    public QueryManagerConfig setMaxQueuedQueries(int maxQueuedQueries)
+    {
+        this.maxQueuedQueries = maxQueuedQueries;
+        return this;
+    }
+
+    public String getQueueConfigFile()
+    {
+        return queueConfigFile;
+    }
+
+    @Config("query.queue-config-file")
+    @ConfigDescription("JSON file with the query queues and the rules assigning queries to them")
+    public QueryManagerConfig setQueueConfigFile(String queueConfigFile)
+    {
+        this.queueConfigFile = queueConfigFile;
+        return this;
+    }
+
     @Min(0)
     public int getRemoteTaskMaxConsecutiveErrorCount()
     {
@@ -0,0 +1,260 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.execution.StateMachine.StateChangeListener;
+import com.google.common.collect.ImmutableList;
+import io.airlift.stats.CounterStat;
+import io.airlift.units.DataSize;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Limits the number of queries running at the same time.  Queries beyond the limit
+ * wait in the queue, in the {@link QueryState#QUEUED} state, until a running query
+ * finishes, and are rejected when the queue is full.  When the queue has a memory
+ * limit, no new query is started while the running queries reserve more memory
+ * than the limit, but a query is always allowed to run when the queue is idle.
+ */
+@ThreadSafe
+public class QueryQueue
+{
+    private final String name;
+    private final int maxConcurrentQueries;
+    private final int maxQueuedQueries;
+    @Nullable
+    private final DataSize maxMemory;
+
+    @GuardedBy("this")
+    private final Set<QueryExecution> runningQueries = new LinkedHashSet<>();
+    @GuardedBy("this")
+    private final Deque<QueuedQuery> queuedQueries = new ArrayDeque<>();
+    @GuardedBy("this")
+    private long memoryReservation;
+
+    private final CounterStat startedQueries = new CounterStat();
+    private final CounterStat rejectedQueries = new CounterStat();
+
+    public QueryQueue(String name, int maxConcurrentQueries, int maxQueuedQueries, @Nullable DataSize maxMemory)
+    {
+        checkArgument(maxConcurrentQueries > 0, "maxConcurrentQueries must be positive");
+        checkArgument(maxQueuedQueries >= 0, "maxQueuedQueries is negative");
+
+        this.name = checkNotNull(name, "name is null");
+        this.maxConcurrentQueries = maxConcurrentQueries;
+        this.maxQueuedQueries = maxQueuedQueries;
+        this.maxMemory = maxMemory;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Adds the query to the queue.  The query is started with the query starter on the
+     * executor once the queue allows it to run.
+     *
+     * @return false if the query was rejected because the queue is full
+     */
+    public boolean submit(final QueryExecution queryExecution, Runnable queryStarter, Executor executor)
+    {
+        checkNotNull(queryExecution, "queryExecution is null");
+        checkNotNull(queryStarter, "queryStarter is null");
+        checkNotNull(executor, "executor is null");
+
+        synchronized (this) {
+            if (queuedQueries.size() >= maxQueuedQueries && runningQueries.size() >= maxConcurrentQueries) {
+                rejectedQueries.update(1);
+                return false;
+            }
+            queuedQueries.add(new QueuedQuery(queryExecution, queryStarter, executor));
+        }
+
+        queryExecution.addStateChangeListener(new StateChangeListener<QueryState>()
+        {
+            @Override
+            public void stateChanged(QueryState newValue)
+            {
+                if (newValue.isDone()) {
+                    queryFinished(queryExecution);
+                }
+            }
+        });
+
+        // the query may have been canceled before the listener was added
+        if (queryExecution.getQueryInfo().getState().isDone()) {
+            queryFinished(queryExecution);
+        }
+        else {
+            processQueue();
+        }
+        return true;
+    }
+
+    /**
+     * Starts as many queued queries as the limits of the queue allow.
+     */
+    public void processQueue()
+    {
+        long reservation = 0;
+        if (maxMemory != null) {
+            // query info must not be fetched while holding the queue lock
+            for (QueryExecution queryExecution : getRunningQueryExecutions()) {
+                reservation += queryExecution.getQueryInfo().getQueryStats().getTotalMemoryReservation().toBytes();
+            }
+        }
+
+        List<QueuedQuery> queriesToStart = new ArrayList<>();
+        synchronized (this) {
+            memoryReservation = reservation;
+            while (!queuedQueries.isEmpty() && runningQueries.size() < maxConcurrentQueries && (runningQueries.isEmpty() || !isMemoryExhausted())) {
+                QueuedQuery queuedQuery = queuedQueries.poll();
+                runningQueries.add(queuedQuery.getQueryExecution());
+                queriesToStart.add(queuedQuery);
+            }
+        }
+
+        for (QueuedQuery queuedQuery : queriesToStart) {
+            startedQueries.update(1);
+            queuedQuery.start();
+        }
+    }
+
+    private void queryFinished(QueryExecution queryExecution)
+    {
+        synchronized (this) {
+            if (!runningQueries.remove(queryExecution)) {
+                for (Iterator<QueuedQuery> iterator = queuedQueries.iterator(); iterator.hasNext(); ) {
+                    if (iterator.next().getQueryExecution() == queryExecution) {
+                        iterator.remove();
+                        break;
+                    }
+                }
+            }
+        }
+        processQueue();
+    }
+
+    @GuardedBy("this")
+    private boolean isMemoryExhausted()
+    {
+        return maxMemory != null && memoryReservation >= maxMemory.toBytes();
+    }
+
+    private synchronized List<QueryExecution> getRunningQueryExecutions()
+    {
+        return ImmutableList.copyOf(runningQueries);
+    }
+
+    @Managed
+    public synchronized int getRunningQueries()
+    {
+        return runningQueries.size();
+    }
+
+    @Managed
+    public synchronized int getQueuedQueries()
+    {
+        return queuedQueries.size();
+    }
+
+    @Managed
+    public int getMaxConcurrentQueries()
+    {
+        return maxConcurrentQueries;
+    }
+
+    @Managed
+    public int getMaxQueuedQueries()
+    {
+        return maxQueuedQueries;
+    }
+
+    /**
+     * Memory reserved by the running queries when the queue was last processed.  This
+     * is only tracked for queues with a memory limit.
+     */
+    @Managed
+    public synchronized long getMemoryReservationInBytes()
+    {
+        return memoryReservation;
+    }
+
+    @Nullable
+    public DataSize getMaxMemory()
+    {
+        return maxMemory;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getStartedQueries()
+    {
+        return startedQueries;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRejectedQueries()
+    {
+        return rejectedQueries;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+
+    private static class QueuedQuery
+    {
+        private final QueryExecution queryExecution;
+        private final Runnable queryStarter;
+        private final Executor executor;
+
+        private QueuedQuery(QueryExecution queryExecution, Runnable queryStarter, Executor executor)
+        {
+            this.queryExecution = queryExecution;
+            this.queryStarter = queryStarter;
+            this.executor = executor;
+        }
+
+        public QueryExecution getQueryExecution()
+        {
+            return queryExecution;
+        }
+
+        public void start()
+        {
+            executor.execute(queryStarter);
+        }
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.sql.analyzer.Session;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import io.airlift.json.JsonCodec;
+import io.airlift.log.Logger;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.weakref.jmx.MBeanExporter;
+
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import javax.management.ObjectName;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.airlift.json.JsonCodec.jsonCodec;
+
+/**
+ * Assigns queries to {@link QueryQueue}s.  The queues and the rules selecting a queue
+ * from the user and source of a query are read from the queue config file:
+ * <pre>
+ * {
+ *   "queues": {
+ *     "user.${USER}": {"maxConcurrent": 5, "maxQueued": 20, "maxMemory": "10GB"},
+ *     "dashboard": {"maxConcurrent": 10, "maxQueued": 100}
+ *   },
+ *   "rules": [
+ *     {"source": "dashboard.*", "queue": "dashboard"},
+ *     {"user": ".*", "queue": "user.${USER}"}
+ *   ]
+ * }
+ * </pre>
+ * The first matching rule wins.  Queries not matching any rule go to the global
+ * queue, which is limited by {@code query.max-concurrent-queries} and
+ * {@code query.max-queued-queries} unless the file defines it.  Every queue is
+ * exported to JMX when it is first used.  Queues named after the user or source
+ * of a query are removed again once they have been idle for a while.
+ */
+@ThreadSafe
+public class QueryQueueManager
+{
+    private static final Logger log = Logger.get(QueryQueueManager.class);
+
+    public static final String GLOBAL_QUEUE_NAME = "global";
+
+    private static final JsonCodec<ManagerSpec> MANAGER_SPEC_CODEC = jsonCodec(ManagerSpec.class);
+
+    private static final Duration MAX_EXPANDED_QUEUE_IDLE_TIME = new Duration(5, TimeUnit.MINUTES);
+
+    private final Map<String, QueueSpec> queueSpecs;
+    private final List<QueryQueueRule> rules;
+    private final MBeanExporter mbeanExporter;
+
+    private final ConcurrentMap<String, QueryQueue> queues = new ConcurrentHashMap<>();
+    // last use of the queues expanded from a ${USER} or ${SOURCE} name
+    private final ConcurrentMap<String, Long> expandedQueueLastUse = new ConcurrentHashMap<>();
+
+    @Inject
+    public QueryQueueManager(QueryManagerConfig config, MBeanExporter mbeanExporter)
+    {
+        this(loadManagerSpec(checkNotNull(config, "config is null")), mbeanExporter);
+    }
+
+    public QueryQueueManager(ManagerSpec managerSpec, MBeanExporter mbeanExporter)
+    {
+        checkNotNull(managerSpec, "managerSpec is null");
+        this.mbeanExporter = checkNotNull(mbeanExporter, "mbeanExporter is null");
+
+        this.queueSpecs = managerSpec.getQueues();
+        checkArgument(queueSpecs.containsKey(GLOBAL_QUEUE_NAME), "The %s queue is not defined", GLOBAL_QUEUE_NAME);
+
+        ImmutableList.Builder<QueryQueueRule> rules = ImmutableList.builder();
+        for (RuleSpec ruleSpec : managerSpec.getRules()) {
+            checkArgument(queueSpecs.containsKey(ruleSpec.getQueue()), "Rule %s references undefined queue %s", ruleSpec, ruleSpec.getQueue());
+            rules.add(ruleSpec.toRule());
+        }
+        this.rules = rules.build();
+    }
+
+    /**
+     * Returns the queue for queries with the user and source of the session.
+     */
+    public QueryQueue getQueue(Session session)
+    {
+        checkNotNull(session, "session is null");
+
+        for (QueryQueueRule rule : rules) {
+            String name = rule.match(session);
+            if (name != null) {
+                if (!name.equals(rule.getQueue())) {
+                    // mark the queue as used before getting it, so it is not removed in between
+                    expandedQueueLastUse.put(name, System.nanoTime());
+                }
+                return getOrCreateQueue(name, queueSpecs.get(rule.getQueue()));
+            }
+        }
+        return getOrCreateQueue(GLOBAL_QUEUE_NAME, queueSpecs.get(GLOBAL_QUEUE_NAME));
+    }
+
+    public List<QueryQueue> getQueues()
+    {
+        return ImmutableList.copyOf(queues.values());
+    }
+
+    /**
+     * Starts the queued queries that fit in their queue, e.g., after the memory
+     * reservation of the running queries dropped.
+     */
+    public void processQueues()
+    {
+        for (QueryQueue queue : queues.values()) {
+            queue.processQueue();
+        }
+        removeIdleQueues(MAX_EXPANDED_QUEUE_IDLE_TIME);
+    }
+
+    /**
+     * Removes and unexports the expanded queues without running or queued queries that
+     * have not been returned by {@link #getQueue} for the given time.  Otherwise every
+     * user or source ever seen would keep a queue.
+     */
+    @VisibleForTesting
+    synchronized void removeIdleQueues(Duration maxIdleTime)
+    {
+        for (Map.Entry<String, Long> entry : expandedQueueLastUse.entrySet()) {
+            String name = entry.getKey();
+            QueryQueue queue = queues.get(name);
+            if (queue == null || queue.getRunningQueries() > 0 || queue.getQueuedQueries() > 0) {
+                continue;
+            }
+            if (Duration.nanosSince(entry.getValue()).compareTo(maxIdleTime) < 0) {
+                continue;
+            }
+            // a concurrent getQueue updates the last use, and keeps the queue
+            if (expandedQueueLastUse.remove(name, entry.getValue())) {
+                queues.remove(name, queue);
+                unexport(name);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        for (String name : queues.keySet()) {
+            unexport(name);
+        }
+    }
+
+    private QueryQueue getOrCreateQueue(String name, QueueSpec queueSpec)
+    {
+        QueryQueue queue = queues.get(name);
+        if (queue != null) {
+            return queue;
+        }
+        return createQueue(name, queueSpec);
+    }
+
+    // creating a queue is synchronized with removing idle queues, so the export of a new queue is never undone by the removal of an old one
+    private synchronized QueryQueue createQueue(String name, QueueSpec queueSpec)
+    {
+        QueryQueue queue = queues.get(name);
+        if (queue != null) {
+            return queue;
+        }
+
+        queue = new QueryQueue(name, queueSpec.getMaxConcurrent(), queueSpec.getMaxQueued(), queueSpec.getMaxMemory());
+        queues.put(name, queue);
+
+        try {
+            mbeanExporter.export(getObjectName(name), queue);
+        }
+        catch (RuntimeException e) {
+            log.warn(e, "Error exporting query queue %s", name);
+        }
+        return queue;
+    }
+
+    private void unexport(String name)
+    {
+        try {
+            mbeanExporter.unexport(getObjectName(name));
+        }
+        catch (RuntimeException e) {
+            log.warn(e, "Error unexporting query queue %s", name);
+        }
+    }
+
+    private static String getObjectName(String queueName)
+    {
+        return "com.facebook.presto.execution:type=QueryQueue,name=" + ObjectName.quote(queueName);
+    }
+
+    private static ManagerSpec loadManagerSpec(QueryManagerConfig config)
+    {
+        QueueSpec globalQueue = new QueueSpec(config.getMaxConcurrentQueries(), config.getMaxQueuedQueries(), (DataSize) null);
+        if (config.getQueueConfigFile() == null) {
+            return new ManagerSpec(ImmutableMap.of(GLOBAL_QUEUE_NAME, globalQueue), ImmutableList.<RuleSpec>of());
+        }
+
+        ManagerSpec managerSpec;
+        try {
+            managerSpec = MANAGER_SPEC_CODEC.fromJson(Files.toString(new File(config.getQueueConfigFile()), Charsets.UTF_8));
+        }
+        catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid query queue config file: " + config.getQueueConfigFile(), e);
+        }
+
+        if (managerSpec.getQueues().containsKey(GLOBAL_QUEUE_NAME)) {
+            return managerSpec;
+        }
+        return new ManagerSpec(
+                ImmutableMap.<String, QueueSpec>builder()
+                        .putAll(managerSpec.getQueues())
+                        .put(GLOBAL_QUEUE_NAME, globalQueue)
+                        .build(),
+                managerSpec.getRules());
+    }
+
+    public static class ManagerSpec
+    {
+        private final Map<String, QueueSpec> queues;
+        private final List<RuleSpec> rules;
+
+        @JsonCreator
+        public ManagerSpec(
+                @JsonProperty("queues") Map<String, QueueSpec> queues,
+                @JsonProperty("rules") List<RuleSpec> rules)
+        {
+            this.queues = ImmutableMap.copyOf(checkNotNull(queues, "queues is null"));
+            this.rules = ImmutableList.copyOf(checkNotNull(rules, "rules is null"));
+        }
+
+        @JsonProperty
+        public Map<String, QueueSpec> getQueues()
+        {
+            return queues;
+        }
+
+        @JsonProperty
+        public List<RuleSpec> getRules()
+        {
+            return rules;
+        }
+    }
+
+    public static class QueueSpec
+    {
+        private final int maxConcurrent;
+        private final int maxQueued;
+        private final DataSize maxMemory;
+
+        public QueueSpec(int maxConcurrent, int maxQueued, @Nullable DataSize maxMemory)
+        {
+            checkArgument(maxConcurrent > 0, "maxConcurrent must be positive");
+            checkArgument(maxQueued >= 0, "maxQueued is negative");
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+            this.maxMemory = maxMemory;
+        }
+
+        @JsonCreator
+        public QueueSpec(
+                @JsonProperty("maxConcurrent") int maxConcurrent,
+                @JsonProperty("maxQueued") int maxQueued,
+                @JsonProperty("maxMemory") @Nullable String maxMemory)
+        {
+            this(maxConcurrent, maxQueued, maxMemory == null ? null : DataSize.valueOf(maxMemory));
+        }
+
+        @JsonProperty
+        public int getMaxConcurrent()
+        {
+            return maxConcurrent;
+        }
+
+        @JsonProperty
+        public int getMaxQueued()
+        {
+            return maxQueued;
+        }
+
+        @Nullable
+        public DataSize getMaxMemory()
+        {
+            return maxMemory;
+        }
+    }
+
+    public static class RuleSpec
+    {
+        private final String user;
+        private final String source;
+        private final String queue;
+
+        @JsonCreator
+        public RuleSpec(
+                @JsonProperty("user") @Nullable String user,
+                @JsonProperty("source") @Nullable String source,
+                @JsonProperty("queue") String queue)
+        {
+            this.user = user;
+            this.source = source;
+            this.queue = checkNotNull(queue, "queue is null");
+        }
+
+        @Nullable
+        @JsonProperty
+        public String getUser()
+        {
+            return user;
+        }
+
+        @Nullable
+        @JsonProperty
+        public String getSource()
+        {
+            return source;
+        }
+
+        @JsonProperty
+        public String getQueue()
+        {
+            return queue;
+        }
+
+        public QueryQueueRule toRule()
+        {
+            return new QueryQueueRule(
+                    user == null ? null : Pattern.compile(user),
+                    source == null ? null : Pattern.compile(source),
+                    queue);
+        }
+
+        @Override
+        public String toString()
+        {
+            return toRule().toString();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.sql.analyzer.Session;
+import com.google.common.base.Objects;
+
+import javax.annotation.Nullable;
+
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Assigns the queries with a matching user and source to a queue.  The queue name may
+ * reference the user and the source of the query as {@code ${USER}} and {@code ${SOURCE}},
+ * which gives every user or source a queue of its own.
+ */
+public class QueryQueueRule
+{
+    public static final String USER_VARIABLE = "${USER}";
+    public static final String SOURCE_VARIABLE = "${SOURCE}";
+
+    @Nullable
+    private final Pattern userRegex;
+    @Nullable
+    private final Pattern sourceRegex;
+    private final String queue;
+
+    public QueryQueueRule(@Nullable Pattern userRegex, @Nullable Pattern sourceRegex, String queue)
+    {
+        this.userRegex = userRegex;
+        this.sourceRegex = sourceRegex;
+        this.queue = checkNotNull(queue, "queue is null");
+    }
+
+    /**
+     * Queue name as written in the configuration, i.e., before expanding the variables.
+     */
+    public String getQueue()
+    {
+        return queue;
+    }
+
+    /**
+     * @return the name of the queue for the query or null if the rule does not match
+     */
+    @Nullable
+    public String match(Session session)
+    {
+        String user = Objects.firstNonNull(session.getUser(), "");
+        String source = Objects.firstNonNull(session.getSource(), "");
+
+        if (userRegex != null && !userRegex.matcher(user).matches()) {
+            return null;
+        }
+        if (sourceRegex != null && !sourceRegex.matcher(source).matches()) {
+            return null;
+        }
+        return queue.replace(USER_VARIABLE, user).replace(SOURCE_VARIABLE, source);
+    }
+
+    @Override
+    public String toString()
+    {
+        return Objects.toStringHelper(this)
+                .add("userRegex", userRegex)
+                .add("sourceRegex", sourceRegex)
+                .add("queue", queue)
+                .toString();
+    }
+}
@@ -20,6 +20,7 @@ import com.google.common.collect.Multimap;
 import io.airlift.units.Duration;
 
 import java.net.URI;
+import java.util.List;
 import java.util.Set;
 
 public interface RemoteTask
@@ -28,7 +29,7 @@ public interface RemoteTask
 
     void start();
 
-    void addSplit(Split split);
+    void addSplits(List<Split> splits);
 
     void noMoreSplits();
 
@@ -17,6 +17,7 @@ import com.facebook.presto.operator.Page;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -31,20 +32,34 @@ import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.NotThreadSafe;
 import javax.annotation.concurrent.ThreadSafe;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.facebook.presto.execution.BufferResult.emptyResults;
+import static com.google.common.base.Preconditions.checkElementIndex;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
+/**
+ * Output buffer of a task.  By default every page is delivered to every queue.  A partitioned
+ * buffer instead delivers each page to a single queue: once no more queues can be added, the
+ * queues are numbered by sorted queue id and pages are enqueued for a specific partition.
+ * <p/>
+ * The lock on the buffer is only held while pages are added or removed.  A reader waiting for
+ * pages blocks on a future outside of the lock, which is completed when pages are added for
+ * its queue, so adding a page only wakes the readers that can use it.
+ */
 @ThreadSafe
 public class SharedBuffer
 {
@@ -65,22 +80,29 @@ public class SharedBuffer
     }
 
     private final long maxBufferedBytes;
+    private final boolean partitioned;
 
     @GuardedBy("this")
     private long bufferedBytes;
 
     @GuardedBy("this")
-    private final LinkedList<Page> masterQueue = new LinkedList<>();
-    @GuardedBy("this")
-    private final LinkedList<QueuedPage> queuedPages = new LinkedList<>();
+    private final PageQueue masterQueue = new PageQueue();
     @GuardedBy("this")
-    private long masterSequenceId;
+    private final ArrayDeque<QueuedPage> queuedPages = new ArrayDeque<>();
     @GuardedBy("this")
     private Map<String, NamedQueue> namedQueues = new HashMap<>();
     @GuardedBy("this")
     private final SortedSet<NamedQueue> openQueuesBySequenceId = new TreeSet<>();
+    // state is only changed while holding the lock, but can be read without it
+    private volatile QueueState state = QueueState.OPEN;
+    @GuardedBy("this")
+    private List<NamedQueue> partitions;
+
+    // readers of an unpartitioned buffer all wait for pages to be added to the master queue
     @GuardedBy("this")
-    private QueueState state = QueueState.OPEN;
+    private SettableFuture<?> masterReaderFuture;
+
+    private final SettableFuture<?> noMoreQueuesFuture = SettableFuture.create();
 
     private final AtomicLong pagesAdded = new AtomicLong();
 
@@ -90,12 +112,23 @@ public class SharedBuffer
     private final AtomicBoolean closed = new AtomicBoolean();
 
     public SharedBuffer(DataSize maxBufferSize)
+    {
+        this(maxBufferSize, false);
+    }
+
+    public SharedBuffer(DataSize maxBufferSize, boolean partitioned)
     {
         Preconditions.checkArgument(maxBufferSize.toBytes() > 0, "maxBufferSize must be at least 1");
         this.maxBufferedBytes = maxBufferSize.toBytes();
+        this.partitioned = partitioned;
+    }
+
+    public boolean isPartitioned()
+    {
+        return partitioned;
     }
 
-    public synchronized boolean isFinished()
+    public boolean isFinished()
     {
         return state == QueueState.FINISHED;
     }
@@ -106,7 +139,7 @@ public class SharedBuffer
         for (NamedQueue namedQueue : namedQueues.values()) {
             infos.add(new BufferInfo(namedQueue.getQueueId(), namedQueue.isFinished(), namedQueue.size(), namedQueue.pagesRemoved()));
         }
-        return new SharedBufferInfo(state, masterSequenceId, pagesAdded.get(), infos.build());
+        return new SharedBufferInfo(state, masterQueue.getFirstSequenceId(), pagesAdded.get(), infos.build());
     }
 
     public synchronized void addQueue(String queueId)
@@ -131,39 +164,104 @@ public class SharedBuffer
         }
 
         state = QueueState.NO_MORE_QUEUES;
+        partitions = createPartitions();
+        noMoreQueuesFuture.set(null);
 
         updateState();
     }
 
+    private synchronized List<NamedQueue> createPartitions()
+    {
+        List<NamedQueue> queues = new ArrayList<>(namedQueues.values());
+        Collections.sort(queues, new Comparator<NamedQueue>()
+        {
+            @Override
+            public int compare(NamedQueue left, NamedQueue right)
+            {
+                return left.getQueueId().compareTo(right.getQueueId());
+            }
+        });
+        return ImmutableList.copyOf(queues);
+    }
+
+    /**
+     * Returns a future that completes when no more queues can be added to this buffer.
+     */
+    public ListenableFuture<?> getNoMoreQueuesFuture()
+    {
+        return noMoreQueuesFuture;
+    }
+
+    /**
+     * Gets the number of partitions of a partitioned buffer.  This is only available after no more queues can be added.
+     */
+    public synchronized int getPartitionCount()
+    {
+        Preconditions.checkState(partitioned, "%s is not partitioned", SharedBuffer.class.getSimpleName());
+        Preconditions.checkState(partitions != null, "Partitions are not known until no more queues can be added");
+        return partitions.size();
+    }
+
     public synchronized ListenableFuture<?> enqueue(Page page)
     {
         Preconditions.checkNotNull(page, "page is null");
+        Preconditions.checkState(!partitioned, "%s is partitioned", SharedBuffer.class.getSimpleName());
+
+        return enqueueInternal(new QueuedPage(page));
+    }
+
+    public synchronized ListenableFuture<?> enqueue(int partition, Page page)
+    {
+        Preconditions.checkNotNull(page, "page is null");
+        Preconditions.checkState(partitioned, "%s is not partitioned", SharedBuffer.class.getSimpleName());
 
         // is the output done
         if (closed.get()) {
             return Futures.immediateFuture(true);
         }
 
+        Preconditions.checkState(partitions != null, "Partitions are not known until no more queues can be added");
+        checkElementIndex(partition, partitions.size(), "partition");
+        return enqueueInternal(new QueuedPage(partition, page));
+    }
+
+    private synchronized ListenableFuture<?> enqueueInternal(QueuedPage queuedPage)
+    {
+        // is the output done
+        if (closed.get()) {
+            return Futures.immediateFuture(true);
+        }
+
         // is there room in the buffer
         if (bufferedBytes < maxBufferedBytes) {
-            addInternal(page);
+            addInternal(queuedPage);
             return Futures.immediateFuture(true);
         }
 
-        QueuedPage queuedPage = new QueuedPage(page);
         queuedPages.addLast(queuedPage);
         return queuedPage.getFuture();
     }
 
-    private synchronized void addInternal(Page page)
+    private synchronized void addInternal(QueuedPage queuedPage)
     {
+        Page page = queuedPage.getPage();
+
         // add page
-        masterQueue.add(page);
+        if (partitioned) {
+            NamedQueue namedQueue = partitions.get(queuedPage.getPartition());
+            if (namedQueue.isFinished()) {
+                // the consumer of this partition is gone
+                return;
+            }
+            namedQueue.addPage(page);
+            namedQueue.wakeReader();
+        }
+        else {
+            masterQueue.add(page);
+            wakeMasterReaders();
+        }
         pagesAdded.incrementAndGet();
         bufferedBytes += page.getDataSize().toBytes();
-
-        // notify consumers an page has arrived
-        this.notifyAll();
     }
 
     @VisibleForTesting
@@ -199,33 +297,49 @@ public class SharedBuffer
         updateState();
     }
 
-    public synchronized BufferResult get(String outputId, long startingSequenceId, DataSize maxSize, Duration maxWait)
+    public BufferResult get(String outputId, long startingSequenceId, DataSize maxSize, Duration maxWait)
             throws InterruptedException
     {
         Preconditions.checkNotNull(outputId, "outputId is null");
         Preconditions.checkArgument(maxSize.toBytes() > 0, "maxSize must be at least 1 byte");
         Preconditions.checkNotNull(maxWait, "maxWait is null");
 
-        NamedQueue namedQueue = namedQueues.get(outputId);
-        if (namedQueue == null) {
-            throw new NoSuchBufferException(outputId, namedQueues.keySet());
-        }
+        long end = System.nanoTime() + maxWait.roundTo(NANOSECONDS);
+        while (true) {
+            ListenableFuture<?> readerFuture;
+            synchronized (this) {
+                NamedQueue namedQueue = namedQueues.get(outputId);
+                if (namedQueue == null) {
+                    throw new NoSuchBufferException(outputId, namedQueues.keySet());
+                }
 
-        if (state == QueueState.FINISHED) {
-            return emptyResults(namedQueue.getSequenceId(), true);
-        }
+                if (state == QueueState.FINISHED) {
+                    return emptyResults(namedQueue.getSequenceId(), true);
+                }
 
-        // wait for pages to arrive
-        if (namedQueue.isEmpty()) {
-            long remainingNanos = maxWait.roundTo(NANOSECONDS);
-            long end = System.nanoTime() + remainingNanos;
-            while (remainingNanos > 0 && namedQueue.isEmpty() && !namedQueue.isFinished()) {
-                // wait for timeout or notification
-                NANOSECONDS.timedWait(this, remainingNanos);
-                remainingNanos = end - System.nanoTime();
+                if (!namedQueue.isEmpty() || namedQueue.isFinished() || System.nanoTime() >= end) {
+                    return getPages(namedQueue, startingSequenceId, maxSize);
+                }
+
+                readerFuture = getReaderFuture(namedQueue);
+            }
+
+            // wait for pages to arrive without holding the lock
+            try {
+                readerFuture.get(end - System.nanoTime(), NANOSECONDS);
+            }
+            catch (TimeoutException ignored) {
+                // get whatever is in the queue
+            }
+            catch (ExecutionException e) {
+                // reader futures are never failed
+                throw Throwables.propagate(e.getCause());
             }
         }
+    }
 
+    private synchronized BufferResult getPages(NamedQueue namedQueue, long startingSequenceId, DataSize maxSize)
+    {
         // remove queue from set before calling getPages because getPages changes
         // the sequence number of the queue which is used for identity comparison in the
         // sorted set
@@ -257,9 +371,47 @@ public class SharedBuffer
         namedQueue.setFinished();
         openQueuesBySequenceId.remove(namedQueue);
 
+        // release the reader of the queue
+        if (partitioned) {
+            namedQueue.wakeReader();
+        }
+        else {
+            wakeMasterReaders();
+        }
+
         updateState();
     }
 
+    /**
+     * Returns a future that completes when pages are added for the queue or the queue may have finished.
+     */
+    private synchronized ListenableFuture<?> getReaderFuture(NamedQueue namedQueue)
+    {
+        if (partitioned) {
+            return namedQueue.getReaderFuture();
+        }
+        if (masterReaderFuture == null) {
+            masterReaderFuture = SettableFuture.create();
+        }
+        return masterReaderFuture;
+    }
+
+    private synchronized void wakeMasterReaders()
+    {
+        if (masterReaderFuture != null) {
+            masterReaderFuture.set(null);
+            masterReaderFuture = null;
+        }
+    }
+
+    private synchronized void wakeAllReaders()
+    {
+        wakeMasterReaders();
+        for (NamedQueue namedQueue : namedQueues.values()) {
+            namedQueue.wakeReader();
+        }
+    }
+
     private synchronized void updateState()
     {
         if (closed.get()) {
@@ -276,38 +428,49 @@ public class SharedBuffer
                 queuedPage.getFuture().set(null);
             }
             queuedPages.clear();
-        }
 
-        if (state == QueueState.NO_MORE_QUEUES && !openQueuesBySequenceId.isEmpty()) {
-            // advance master sequence id
-            long oldMasterSequenceId = masterSequenceId;
-            masterSequenceId = openQueuesBySequenceId.iterator().next().getSequenceId();
+            // release readers of the queues that were closed
+            wakeAllReaders();
+        }
 
+        if (state == QueueState.NO_MORE_QUEUES && partitioned) {
             // drop consumed pages
-            int pagesToRemove = Ints.checkedCast(masterSequenceId - oldMasterSequenceId);
-            Preconditions.checkState(pagesToRemove >= 0,
+            for (NamedQueue namedQueue : partitions) {
+                bufferedBytes -= namedQueue.dropConsumedPages();
+            }
+
+            // refill buffer from queued pages
+            refill();
+        }
+
+        if (state == QueueState.NO_MORE_QUEUES && !partitioned && !openQueuesBySequenceId.isEmpty()) {
+            // advance master sequence id
+            long oldMasterSequenceId = masterQueue.getFirstSequenceId();
+            long newMasterSequenceId = openQueuesBySequenceId.iterator().next().getSequenceId();
+            Preconditions.checkState(newMasterSequenceId >= oldMasterSequenceId,
                     "Master sequence id moved backwards: oldMasterSequenceId=%s, newMasterSequenceId=%s",
                     oldMasterSequenceId,
-                    masterSequenceId);
+                    newMasterSequenceId);
 
-            for (int i = 0; i < pagesToRemove; i++) {
-                Page page = masterQueue.removeFirst();
-                bufferedBytes -= page.getDataSize().toBytes();
-            }
+            // drop consumed pages
+            bufferedBytes -= masterQueue.removeTo(newMasterSequenceId);
 
             // refill buffer from queued pages
-            while (!queuedPages.isEmpty() && bufferedBytes < maxBufferedBytes) {
-                QueuedPage queuedPage = queuedPages.removeFirst();
-                addInternal(queuedPage.getPage());
-                queuedPage.getFuture().set(null);
-            }
+            refill();
         }
 
         if (state == QueueState.NO_MORE_QUEUES && closed.get() && openQueuesBySequenceId.isEmpty()) {
             destroy();
         }
+    }
 
-        this.notifyAll();
+    private synchronized void refill()
+    {
+        while (!queuedPages.isEmpty() && bufferedBytes < maxBufferedBytes) {
+            QueuedPage queuedPage = queuedPages.removeFirst();
+            addInternal(queuedPage);
+            queuedPage.getFuture().set(null);
+        }
     }
 
     /**
@@ -334,9 +497,15 @@ public class SharedBuffer
             namedQueue.setFinished();
         }
         openQueuesBySequenceId.clear();
+        for (NamedQueue namedQueue : namedQueues.values()) {
+            namedQueue.dropConsumedPages();
+        }
+        if (partitions == null) {
+            partitions = ImmutableList.of();
+        }
 
         // clear the buffer
-        masterQueue.clear();
+        masterQueue.removeTo(masterQueue.getNextSequenceId());
         bufferedBytes = 0;
 
         // free queued page waiters
@@ -345,8 +514,11 @@ public class SharedBuffer
         }
         queuedPages.clear();
 
+        // release writers waiting for the partitions
+        noMoreQueuesFuture.set(null);
+
         // notify readers that the buffer has been destroyed
-        this.notifyAll();
+        wakeAllReaders();
     }
 
     @NotThreadSafe
@@ -358,6 +530,12 @@ public class SharedBuffer
         private long sequenceId;
         private boolean finished;
 
+        // pages of a partitioned buffer are held in the queue of the partition
+        private final PageQueue partitionQueue = new PageQueue();
+
+        // completed when pages are added to the queue of the partition
+        private SettableFuture<?> readerFuture;
+
         private NamedQueue(String queueId)
         {
             this.queueId = queueId;
@@ -407,12 +585,57 @@ public class SharedBuffer
                 return 0;
             }
 
-            int listOffset = Ints.checkedCast(sequenceId - masterSequenceId);
-            if (listOffset >= masterQueue.size()) {
+            PageQueue queue = getQueue();
+            if (sequenceId >= queue.getNextSequenceId()) {
                 return 0;
             }
             // todo include queued pages?
-            return masterQueue.size() - listOffset;
+            return Ints.checkedCast(queue.getNextSequenceId() - Math.max(sequenceId, queue.getFirstSequenceId()));
+        }
+
+        private PageQueue getQueue()
+        {
+            return partitioned ? partitionQueue : masterQueue;
+        }
+
+        public void addPage(Page page)
+        {
+            Preconditions.checkState(partitioned, "%s is not partitioned", SharedBuffer.class.getSimpleName());
+            partitionQueue.add(page);
+        }
+
+        public ListenableFuture<?> getReaderFuture()
+        {
+            Preconditions.checkState(Thread.holdsLock(SharedBuffer.this), "Thread must hold a lock on the %s", SharedBuffer.class.getSimpleName());
+
+            if (readerFuture == null) {
+                readerFuture = SettableFuture.create();
+            }
+            return readerFuture;
+        }
+
+        public void wakeReader()
+        {
+            Preconditions.checkState(Thread.holdsLock(SharedBuffer.this), "Thread must hold a lock on the %s", SharedBuffer.class.getSimpleName());
+
+            if (readerFuture != null) {
+                readerFuture.set(null);
+                readerFuture = null;
+            }
+        }
+
+        /**
+         * Removes the pages of a partitioned queue that have been acknowledged, or all pages if the queue is finished.
+         * Returns the number of bytes removed.
+         */
+        public long dropConsumedPages()
+        {
+            Preconditions.checkState(Thread.holdsLock(SharedBuffer.this), "Thread must hold a lock on the %s", SharedBuffer.class.getSimpleName());
+
+            if (finished) {
+                return partitionQueue.removeTo(partitionQueue.getNextSequenceId());
+            }
+            return partitionQueue.removeTo(Math.min(sequenceId, partitionQueue.getNextSequenceId()));
         }
 
         public void acknowledge(long sequenceId)
@@ -433,8 +656,9 @@ public class SharedBuffer
                 return emptyResults(sequenceId, true);
             }
 
-            int listOffset = Ints.checkedCast(sequenceId - masterSequenceId);
-            if (listOffset >= masterQueue.size()) {
+            PageQueue queue = getQueue();
+            long nextSequenceId = Math.max(sequenceId, queue.getFirstSequenceId());
+            if (nextSequenceId >= queue.getNextSequenceId()) {
                 return emptyResults(sequenceId, false);
             }
 
@@ -442,8 +666,8 @@ public class SharedBuffer
 
             List<Page> pages = new ArrayList<>();
             long bytes = 0;
-            while (listOffset < masterQueue.size()) {
-                Page page = masterQueue.get(listOffset++);
+            while (nextSequenceId < queue.getNextSequenceId()) {
+                Page page = queue.get(nextSequenceId++);
                 bytes += page.getDataSize().toBytes();
                 // break (and don't add) if this page would exceed the limit
                 if (!pages.isEmpty() && bytes > maxBytes) {
@@ -479,14 +703,26 @@ public class SharedBuffer
 
     private static class QueuedPage
     {
+        private final int partition;
         private final Page page;
         private final SettableFuture<?> future = SettableFuture.create();
 
         private QueuedPage(Page page)
         {
+            this(-1, page);
+        }
+
+        private QueuedPage(int partition, Page page)
+        {
+            this.partition = partition;
             this.page = page;
         }
 
+        private int getPartition()
+        {
+            return partition;
+        }
+
         private Page getPage()
         {
             return page;
@@ -497,4 +733,78 @@ public class SharedBuffer
             return future;
         }
     }
+
+    /**
+     * Pages addressed by sequence id, held in a circular array so a page can be
+     * looked up and the oldest pages can be removed in constant time.
+     */
+    @NotThreadSafe
+    private static class PageQueue
+    {
+        private Page[] pages = new Page[16];
+        private int head;
+        private int size;
+        private long firstSequenceId;
+
+        public long getFirstSequenceId()
+        {
+            return firstSequenceId;
+        }
+
+        public long getNextSequenceId()
+        {
+            return firstSequenceId + size;
+        }
+
+        public boolean isEmpty()
+        {
+            return size == 0;
+        }
+
+        public void add(Page page)
+        {
+            if (size == pages.length) {
+                Page[] newPages = new Page[pages.length * 2];
+                for (int i = 0; i < size; i++) {
+                    newPages[i] = pages[(head + i) & (pages.length - 1)];
+                }
+                pages = newPages;
+                head = 0;
+            }
+            pages[(head + size) & (pages.length - 1)] = page;
+            size++;
+        }
+
+        public Page get(long sequenceId)
+        {
+            Preconditions.checkArgument(sequenceId >= firstSequenceId && sequenceId < getNextSequenceId(),
+                    "Page %s is not in the queue [%s, %s)",
+                    sequenceId,
+                    firstSequenceId,
+                    getNextSequenceId());
+            return pages[(head + Ints.checkedCast(sequenceId - firstSequenceId)) & (pages.length - 1)];
+        }
+
+        /**
+         * Removes the pages before the specified sequence id and returns the number of bytes removed.
+         */
+        public long removeTo(long sequenceId)
+        {
+            Preconditions.checkArgument(sequenceId <= getNextSequenceId(),
+                    "Can not remove pages up to %s from the queue [%s, %s)",
+                    sequenceId,
+                    firstSequenceId,
+                    getNextSequenceId());
+
+            long bytesRemoved = 0;
+            while (firstSequenceId < sequenceId) {
+                bytesRemoved += pages[head].getDataSize().toBytes();
+                pages[head] = null;
+                head = (head + 1) & (pages.length - 1);
+                size--;
+                firstSequenceId++;
+            }
+            return bytesRemoved;
+        }
+    }
 }
@@ -75,6 +75,10 @@ public class SqlQueryExecution
     private final RemoteTaskFactory remoteTaskFactory;
     private final LocationFactory locationFactory;
     private final int maxPendingSplitsPerNode;
+    private final boolean distributedJoinsEnabled;
+    private final int initialHashPartitions;
+    private final boolean dynamicPartitionPruningEnabled;
+    private final Duration dynamicPartitionPruningMaxWait;
     private final ExecutorService queryExecutor;
     private final ShardManager shardManager;
     private final StorageManager storageManager;
@@ -96,6 +100,10 @@ public class SqlQueryExecution
             RemoteTaskFactory remoteTaskFactory,
             LocationFactory locationFactory,
             int maxPendingSplitsPerNode,
+            boolean distributedJoinsEnabled,
+            int initialHashPartitions,
+            boolean dynamicPartitionPruningEnabled,
+            Duration dynamicPartitionPruningMaxWait,
             ExecutorService queryExecutor,
             ShardManager shardManager,
             StorageManager storageManager,
@@ -109,6 +117,7 @@ public class SqlQueryExecution
             this.planOptimizers = checkNotNull(planOptimizers, "planOptimizers is null");
             this.remoteTaskFactory = checkNotNull(remoteTaskFactory, "remoteTaskFactory is null");
             this.locationFactory = checkNotNull(locationFactory, "locationFactory is null");
+            this.dynamicPartitionPruningMaxWait = checkNotNull(dynamicPartitionPruningMaxWait, "dynamicPartitionPruningMaxWait is null");
             this.queryExecutor = checkNotNull(queryExecutor, "queryExecutor is null");
             this.shardManager = checkNotNull(shardManager, "shardManager is null");
             this.storageManager = checkNotNull(storageManager, "storageManager is null");
@@ -117,6 +126,11 @@ public class SqlQueryExecution
             checkArgument(maxPendingSplitsPerNode > 0, "maxPendingSplitsPerNode must be greater than 0");
             this.maxPendingSplitsPerNode = maxPendingSplitsPerNode;
 
+            checkArgument(initialHashPartitions > 0, "initialHashPartitions must be greater than 0");
+            this.distributedJoinsEnabled = distributedJoinsEnabled;
+            this.initialHashPartitions = initialHashPartitions;
+            this.dynamicPartitionPruningEnabled = dynamicPartitionPruningEnabled;
+
             checkNotNull(queryId, "queryId is null");
             checkNotNull(query, "query is null");
             checkNotNull(session, "session is null");
@@ -205,7 +219,7 @@ public class SqlQueryExecution
         stateMachine.setInputs(inputs);
 
         // fragment the plan
-        SubPlan subplan = new DistributedLogicalPlanner(metadata, idAllocator).createSubplans(plan, false);
+        SubPlan subplan = new DistributedLogicalPlanner(metadata, idAllocator, distributedJoinsEnabled, dynamicPartitionPruningEnabled).createSubplans(plan, false);
 
         stateMachine.recordAnalysisTime(analysisStart);
         return subplan;
@@ -235,6 +249,8 @@ public class SqlQueryExecution
                 remoteTaskFactory,
                 stateMachine.getSession(),
                 maxPendingSplitsPerNode,
+                initialHashPartitions,
+                dynamicPartitionPruningMaxWait,
                 queryExecutor);
         this.outputStage.set(outputStage);
         outputStage.addStateChangeListener(new StateChangeListener<StageInfo>()
@@ -378,6 +394,10 @@ public class SqlQueryExecution
             implements QueryExecutionFactory<SqlQueryExecution>
     {
         private final int maxPendingSplitsPerNode;
+        private final boolean distributedJoinsEnabled;
+        private final int initialHashPartitions;
+        private final boolean dynamicPartitionPruningEnabled;
+        private final Duration dynamicPartitionPruningMaxWait;
         private final Metadata metadata;
         private final SplitManager splitManager;
         private final NodeScheduler nodeScheduler;
@@ -405,6 +425,10 @@ public class SqlQueryExecution
         {
             Preconditions.checkNotNull(config, "config is null");
             this.maxPendingSplitsPerNode = config.getMaxPendingSplitsPerNode();
+            this.distributedJoinsEnabled = config.isDistributedJoinsEnabled();
+            this.initialHashPartitions = config.getInitialHashPartitions();
+            this.dynamicPartitionPruningEnabled = config.isDynamicPartitionPruningEnabled();
+            this.dynamicPartitionPruningMaxWait = config.getDynamicPartitionPruningMaxWait();
             this.metadata = checkNotNull(metadata, "metadata is null");
             this.locationFactory = checkNotNull(locationFactory, "locationFactory is null");
             this.splitManager = checkNotNull(splitManager, "splitManager is null");
@@ -441,6 +465,10 @@ public class SqlQueryExecution
                     remoteTaskFactory,
                     locationFactory,
                     maxPendingSplitsPerNode,
+                    distributedJoinsEnabled,
+                    initialHashPartitions,
+                    dynamicPartitionPruningEnabled,
+                    dynamicPartitionPruningMaxWait,
                     executor,
                     shardManager,
                     storageManager,
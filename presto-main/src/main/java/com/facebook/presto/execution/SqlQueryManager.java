@@ -16,6 +16,8 @@ package com.facebook.presto.execution;
 import com.facebook.presto.event.query.QueryMonitor;
 import com.facebook.presto.execution.QueryExecution.QueryExecutionFactory;
 import com.facebook.presto.execution.StateMachine.StateChangeListener;
+import com.facebook.presto.memory.ClusterMemoryManager;
+import com.facebook.presto.memory.ExceededMemoryLimitException;
 import com.facebook.presto.sql.analyzer.Session;
 import com.facebook.presto.sql.parser.ParsingException;
 import com.facebook.presto.sql.parser.SqlParser;
@@ -40,6 +42,7 @@ import javax.annotation.PreDestroy;
 import javax.annotation.concurrent.ThreadSafe;
 import javax.inject.Inject;
 import java.net.URI;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -81,6 +84,8 @@ public class SqlQueryManager
     private final QueryMonitor queryMonitor;
     private final LocationFactory locationFactory;
     private final QueryIdGenerator queryIdGenerator;
+    private final QueryQueueManager queueManager;
+    private final ClusterMemoryManager memoryManager;
 
     private final Map<Class<? extends Statement>, QueryExecutionFactory<?>> executionFactories;
 
@@ -90,6 +95,8 @@ public class SqlQueryManager
     public SqlQueryManager(QueryManagerConfig config,
             QueryMonitor queryMonitor,
             QueryIdGenerator queryIdGenerator,
+            QueryQueueManager queueManager,
+            ClusterMemoryManager memoryManager,
             LocationFactory locationFactory,
             Map<Class<? extends Statement>, QueryExecutionFactory<?>> executionFactories)
     {
@@ -103,6 +110,8 @@ public class SqlQueryManager
         this.queryMonitor = checkNotNull(queryMonitor, "queryMonitor is null");
         this.locationFactory = checkNotNull(locationFactory, "locationFactory is null");
         this.queryIdGenerator = checkNotNull(queryIdGenerator, "queryIdGenerator is null");
+        this.queueManager = checkNotNull(queueManager, "queueManager is null");
+        this.memoryManager = checkNotNull(memoryManager, "memoryManager is null");
 
         this.maxQueryAge = config.getMaxQueryAge();
         this.maxQueryHistory = config.getMaxQueryHistory();
@@ -127,6 +136,18 @@ public class SqlQueryManager
                 catch (Throwable e) {
                     log.warn(e, "Error removing old queries");
                 }
+                try {
+                    queueManager.processQueues();
+                }
+                catch (Throwable e) {
+                    log.warn(e, "Error processing query queues");
+                }
+                try {
+                    enforceMemoryLimits();
+                }
+                catch (Throwable e) {
+                    log.warn(e, "Error enforcing memory limits");
+                }
             }
         }, 200, 200, TimeUnit.MILLISECONDS);
     }
@@ -223,8 +244,11 @@ public class SqlQueryManager
 
         queries.put(queryId, queryExecution);
 
-        // start the query in the background
-        queryExecutor.submit(new QueryStarter(queryExecution, stats));
+        // start the query in the background once its queue allows it to run
+        QueryQueue queue = queueManager.getQueue(session);
+        if (!queue.submit(queryExecution, new QueryStarter(queryExecution, stats), queryExecutor)) {
+            queryExecution.fail(new QueryQueueFullException(queue));
+        }
 
         return queryExecution.getQueryInfo();
     }
@@ -335,6 +359,25 @@ public class SqlQueryManager
         }
     }
 
+    /**
+     * Kill the queries reserving too much memory in the cluster or on a single node
+     */
+    public void enforceMemoryLimits()
+    {
+        Map<QueryId, QueryExecution> runningQueries = new HashMap<>();
+        for (QueryExecution queryExecution : queries.values()) {
+            QueryInfo queryInfo = queryExecution.getQueryInfo();
+            if (!queryInfo.getState().isDone()) {
+                runningQueries.put(queryInfo.getQueryId(), queryExecution);
+            }
+        }
+
+        for (Map.Entry<QueryId, ExceededMemoryLimitException> entry : memoryManager.getQueriesToKill(runningQueries.keySet()).entrySet()) {
+            log.info("Failing query %s: %s", entry.getKey(), entry.getValue().getMessage());
+            runningQueries.get(entry.getKey()).fail(entry.getValue());
+        }
+    }
+
     private boolean isAbandoned(QueryExecution query)
     {
         DateTime oldestAllowedHeartbeat = DateTime.now().minus(clientTimeout.toMillis());
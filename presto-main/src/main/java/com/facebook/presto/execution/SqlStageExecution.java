@@ -19,8 +19,10 @@ import com.facebook.presto.metadata.Node;
 import com.facebook.presto.operator.TaskStats;
 import com.facebook.presto.spi.Split;
 import com.facebook.presto.sql.analyzer.Session;
+import com.facebook.presto.sql.planner.DynamicPartitionFilter;
 import com.facebook.presto.sql.planner.OutputReceiver;
 import com.facebook.presto.sql.planner.PlanFragment;
+import com.facebook.presto.sql.planner.PlanFragment.PlanDistribution;
 import com.facebook.presto.sql.planner.StageExecutionPlan;
 import com.facebook.presto.sql.planner.plan.ExchangeNode;
 import com.facebook.presto.sql.planner.plan.PlanFragmentId;
@@ -52,18 +54,26 @@ import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.facebook.presto.execution.StageInfo.stageStateGetter;
 import static com.facebook.presto.execution.TaskInfo.taskStateGetter;
@@ -82,6 +92,9 @@ public class SqlStageExecution
 {
     private static final Logger log = Logger.get(SqlStageExecution.class);
 
+    // bounds the splits enumerated ahead of the scheduler
+    private static final int MAX_ENUMERATED_SPLITS = 10000;
+
     // NOTE: DO NOT call methods on the parent while holding a lock on the child.  Locks
     // are always acquired top down in the tree, so calling a method on the parent while
     // holding a lock on the 'this' could cause a deadlock.
@@ -101,11 +114,24 @@ public class SqlStageExecution
     private final RemoteTaskFactory remoteTaskFactory;
     private final Session session; // only used for remote task factory
     private final int maxPendingSplitsPerNode;
+    private final int initialHashPartitions;
+    private final List<DynamicPartitionFilter> dynamicPartitionFilters;
+    private final Duration dynamicPartitionPruningMaxWait;
 
     private final StateMachine<StageState> stageState;
 
     private final LinkedBlockingQueue<Throwable> failureCauses = new LinkedBlockingQueue<>();
 
+    // incremented on every task, sub stage or split enumeration event, so the scheduler never misses a wake up
+    @GuardedBy("this")
+    private long stateChangeVersion;
+
+    // splits chosen for a node, but not yet sent to the task; only used by the scheduling thread
+    private final Map<Node, Queue<PendingSplit>> pendingSplitsByNode = new HashMap<>();
+    private int pendingSplitCount;
+
+    private final List<StateChangeListener<TaskInfo>> taskStateChangeListeners = new CopyOnWriteArrayList<>();
+
     @GuardedBy("this")
     private final Set<String> outputBuffers = new TreeSet<>();
     @GuardedBy("this")
@@ -126,9 +152,11 @@ public class SqlStageExecution
             RemoteTaskFactory remoteTaskFactory,
             Session session,
             int maxPendingSplitsPerNode,
+            int initialHashPartitions,
+            Duration dynamicPartitionPruningMaxWait,
             ExecutorService executor)
     {
-        this(null, queryId, new AtomicInteger(), locationFactory, plan, nodeScheduler, remoteTaskFactory, session, maxPendingSplitsPerNode, executor);
+        this(null, queryId, new AtomicInteger(), locationFactory, plan, nodeScheduler, remoteTaskFactory, session, maxPendingSplitsPerNode, initialHashPartitions, dynamicPartitionPruningMaxWait, executor);
     }
 
     private SqlStageExecution(@Nullable StageExecutionNode parent,
@@ -140,6 +168,8 @@ public class SqlStageExecution
             RemoteTaskFactory remoteTaskFactory,
             Session session,
             int maxPendingSplitsPerNode,
+            int initialHashPartitions,
+            Duration dynamicPartitionPruningMaxWait,
             ExecutorService executor)
     {
         Preconditions.checkNotNull(queryId, "queryId is null");
@@ -150,6 +180,8 @@ public class SqlStageExecution
         Preconditions.checkNotNull(remoteTaskFactory, "remoteTaskFactory is null");
         Preconditions.checkNotNull(session, "session is null");
         Preconditions.checkArgument(maxPendingSplitsPerNode > 0, "maxPendingSplitsPerNode must be greater than 0");
+        Preconditions.checkArgument(initialHashPartitions > 0, "initialHashPartitions must be greater than 0");
+        Preconditions.checkNotNull(dynamicPartitionPruningMaxWait, "dynamicPartitionPruningMaxWait is null");
         Preconditions.checkNotNull(executor, "executor is null");
 
         this.stageId = new StageId(queryId, String.valueOf(nextStageId.getAndIncrement()));
@@ -162,6 +194,9 @@ public class SqlStageExecution
             this.remoteTaskFactory = remoteTaskFactory;
             this.session = session;
             this.maxPendingSplitsPerNode = maxPendingSplitsPerNode;
+            this.initialHashPartitions = initialHashPartitions;
+            this.dynamicPartitionFilters = plan.getDynamicPartitionFilters();
+            this.dynamicPartitionPruningMaxWait = dynamicPartitionPruningMaxWait;
             this.executor = executor;
 
             tupleInfos = fragment.getTupleInfos();
@@ -177,7 +212,10 @@ public class SqlStageExecution
                         nodeScheduler,
                         remoteTaskFactory,
                         session,
-                        maxPendingSplitsPerNode, executor);
+                        maxPendingSplitsPerNode,
+                        initialHashPartitions,
+                        dynamicPartitionPruningMaxWait,
+                        executor);
 
                 subStage.addStateChangeListener(new StateChangeListener<StageInfo>()
                 {
@@ -188,6 +226,17 @@ public class SqlStageExecution
                     }
                 });
 
+                // the tasks of this stage read from the tasks of the sub stage, and the sub stage
+                // reports its output through the info of its tasks
+                subStage.addTaskStateChangeListener(new StateChangeListener<TaskInfo>()
+                {
+                    @Override
+                    public void stateChanged(TaskInfo taskInfo)
+                    {
+                        signalStateChange();
+                    }
+                });
+
                 subStages.put(subStageFragmentId, subStage);
             }
             this.subStages = subStages.build();
@@ -199,7 +248,8 @@ public class SqlStageExecution
                 public Integer apply(Node input)
                 {
                     RemoteTask task = tasks.get(input);
-                    return task == null ? 0 : task.getQueuedSplits();
+                    Queue<PendingSplit> pendingSplits = pendingSplitsByNode.get(input);
+                    return (task == null ? 0 : task.getQueuedSplits()) + (pendingSplits == null ? 0 : pendingSplits.size());
                 }
             }));
             stageState = new StateMachine<>("stage " + stageId, this.executor, StageState.PLANNED);
@@ -209,6 +259,9 @@ public class SqlStageExecution
                 public void stateChanged(StageState newValue)
                 {
                     log.debug("Stage %s is %s", stageId, newValue);
+
+                    // wake up worker thread waiting for state changes
+                    signalStateChange();
                 }
             });
         }
@@ -382,6 +435,15 @@ public class SqlStageExecution
         }
     }
 
+    @Override
+    public void addTaskStateChangeListener(StateChangeListener<TaskInfo> stateChangeListener)
+    {
+        taskStateChangeListeners.add(stateChangeListener);
+        for (RemoteTask task : tasks.values()) {
+            task.addStateChangeListener(stateChangeListener);
+        }
+    }
+
     private Multimap<PlanNodeId, URI> getExchangeLocations()
     {
         ImmutableMultimap.Builder<PlanNodeId, URI> exchangeLocations = ImmutableMultimap.builder();
@@ -454,36 +516,23 @@ public class SqlStageExecution
 
                 // determine partitions
                 AtomicInteger nextTaskId = new AtomicInteger(0);
-                if (!dataSource.isPresent()) {
+                if (fragment.getDistribution() == PlanDistribution.FIXED) {
+                    // create a fixed number of partitions on distinct random nodes for this fragment
+                    for (Node node : nodeSelector.selectRandomNodes(initialHashPartitions)) {
+                        scheduleTask(nextTaskId, node, null);
+                    }
+                }
+                else if (!dataSource.isPresent()) {
                     // create a single partition on a random node for this fragment
                     scheduleTask(nextTaskId, nodeSelector.selectRandomNode(), null);
                 }
                 else {
-                    long getSplitStart = System.nanoTime();
-                    for (Split split : dataSource.get().getSplits()) {
-                        getSplitDistribution.add(System.nanoTime() - getSplitStart);
-
-                        long scheduleSplitStart = System.nanoTime();
-                        Node chosen = chooseNode(nodeSelector, split, nextTaskId);
-
-                        // if query has been canceled, exit cleanly; query will never run regardless
-                        if (getState().isDone()) {
-                            break;
-                        }
-
-                        RemoteTask task = tasks.get(chosen);
-                        if (task == null) {
-                            scheduleTask(nextTaskId, chosen, split);
-                            scheduleTaskDistribution.add(System.nanoTime() - scheduleSplitStart);
-                        }
-                        else {
-                            task.addSplit(split);
-                            addSplitDistribution.add(System.nanoTime() - scheduleSplitStart);
-                        }
-
-                        getSplitStart = System.nanoTime();
+                    if (!dynamicPartitionFilters.isEmpty()) {
+                        waitForDynamicPartitionFilters(nextTaskId);
                     }
 
+                    scheduleSplits(nextTaskId);
+
                     for (RemoteTask task : tasks.values()) {
                         task.noMoreSplits();
                     }
@@ -519,51 +568,225 @@ public class SqlStageExecution
         }
     }
 
-    private Node chooseNode(NodeSelector nodeSelector, Split split, AtomicInteger nextTaskId)
+    /**
+     * Waits until the sub stages have reported the values used to prune the partitions of the data source,
+     * or until the maximum wait has passed.  Tasks are first created on all nodes, so the sub stages can
+     * send their output while the splits of this stage are on hold.
+     */
+    private void waitForDynamicPartitionFilters(AtomicInteger nextTaskId)
     {
-        while (true) {
-            // if query has been canceled, exit
-            if (getState().isDone()) {
-                return null;
-            }
+        nodeSelector.lockDownNodes();
+        for (Node node : nodeSelector.allNodes()) {
+            scheduleTask(nextTaskId, node, null);
+        }
+
+        // tell sub stages there will be no more output buffers
+        for (StageExecutionNode subStage : subStages.values()) {
+            subStage.noMoreOutputBuffers();
+        }
+
+        long deadline = System.nanoTime() + dynamicPartitionPruningMaxWait.roundTo(NANOSECONDS);
+        for (DynamicPartitionFilter filter : dynamicPartitionFilters) {
+            StageExecutionNode subStage = subStages.get(filter.getSourceFragmentId());
+            Preconditions.checkState(subStage != null, "Unknown sub stage %s, known stages %s", filter.getSourceFragmentId(), subStages.keySet());
+
+            while (true) {
+                // the sub stage signals every change of its tasks, so read the version before its info
+                long version = getStateChangeVersion();
+                if (getState().isDone() || filter.update(subStage.getStageInfo())) {
+                    break;
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    log.debug("Stage %s timed out waiting for values of %s", stageId, filter);
+                    return;
+                }
 
-            // for each split, pick the node with the smallest number of assignments
-            Node chosen = nodeSelector.selectNode(split);
+                // send the locations of new sub stage tasks to the tasks of this stage
+                addNewExchangesAndBuffers(false);
 
-            // if the chosen node doesn't have too many tasks already, return
-            RemoteTask task = tasks.get(chosen);
-            if (task == null || task.getQueuedSplits() < maxPendingSplitsPerNode) {
-                return chosen;
+                waitForStateChange(version, deadline);
             }
+        }
+    }
+
+    /**
+     * Assigns the splits of the data source to tasks as they are enumerated on another thread.  Each
+     * split is queued for a node when it is taken from the enumerator, and the splits queued for a node
+     * are sent to its task in a batch.  Splits are only taken from the enumerator while nodes have room
+     * for them, and when all nodes have {@code maxPendingSplitsPerNode} queued splits, the scheduler
+     * sleeps until a task reports progress.
+     */
+    private void scheduleSplits(AtomicInteger nextTaskId)
+    {
+        SplitEnumerator enumerator = new SplitEnumerator(dataSource.get());
+        Future<?> enumeration = executor.submit(enumerator);
+        try {
+            while (!getState().isDone()) {
+                long version = getStateChangeVersion();
+
+                // check for the end before taking splits, so splits added before the end are not missed
+                boolean enumerationFinished = enumerator.isFinished();
+                for (PendingSplit pendingSplit : enumerator.take(getFreeSplitCapacity())) {
+                    // for each split, pick the node with the smallest number of assignments
+                    Node chosen = nodeSelector.selectNode(pendingSplit.getSplit());
+                    Queue<PendingSplit> pendingSplits = pendingSplitsByNode.get(chosen);
+                    if (pendingSplits == null) {
+                        pendingSplits = new ArrayDeque<>();
+                        pendingSplitsByNode.put(chosen, pendingSplits);
+                    }
+                    pendingSplits.add(pendingSplit);
+                    pendingSplitCount++;
+                }
+                if (pendingSplitCount == 0 && enumerationFinished && enumerator.isEmpty()) {
+                    return;
+                }
 
-            // if we have sub stages...
-            if (!subStages.isEmpty()) {
-                // before we block, we need to create all possible output buffers on the sub stages, or they can deadlock
-                // waiting for the "noMoreBuffers" call
-                nodeSelector.lockDownNodes();
-                for (Node node : Sets.difference(new HashSet<>(nodeSelector.allNodes()), tasks.keySet())) {
-                    scheduleTask(nextTaskId, node, null);
+                if (assignSplits(nextTaskId) > 0) {
+                    continue;
                 }
 
-                // tell sub stages there will be no more output buffers
-                for (StageExecutionNode subStage : subStages.values()) {
-                    subStage.noMoreOutputBuffers();
+                if ((pendingSplitCount > 0 || !enumerator.isEmpty()) && !subStages.isEmpty()) {
+                    // before we block, we need to create all possible output buffers on the sub stages, or they can deadlock
+                    // waiting for the "noMoreBuffers" call
+                    nodeSelector.lockDownNodes();
+                    for (Node node : Sets.difference(new HashSet<>(nodeSelector.allNodes()), tasks.keySet())) {
+                        scheduleTask(nextTaskId, node, null);
+                    }
+
+                    // tell sub stages there will be no more output buffers
+                    for (StageExecutionNode subStage : subStages.values()) {
+                        subStage.noMoreOutputBuffers();
+                    }
                 }
+
+                // wait for more splits or for tasks to make room for more splits
+                waitForStateChange(version);
+
+                addNewExchangesAndBuffers(false);
             }
+        }
+        finally {
+            enumeration.cancel(true);
+            pendingSplitsByNode.clear();
+            pendingSplitCount = 0;
+        }
+    }
 
-            synchronized (this) {
-                // otherwise wait for some tasks to complete
-                try {
-                    // todo this adds latency: replace this wait with an event listener
-                    TimeUnit.SECONDS.timedWait(this, 1);
+    /**
+     * Returns the number of splits the nodes have room for, including the splits queued for a
+     * node but not yet sent to its task.
+     */
+    private int getFreeSplitCapacity()
+    {
+        List<Node> nodes = nodeSelector.allNodes();
+        Preconditions.checkState(!nodes.isEmpty(), "No nodes available to run query");
+
+        int queuedSplits = pendingSplitCount;
+        for (RemoteTask task : tasks.values()) {
+            queuedSplits += task.getQueuedSplits();
+        }
+        return Math.max(0, nodes.size() * maxPendingSplitsPerNode - queuedSplits);
+    }
+
+    /**
+     * Sends the splits queued for each node to its task, up to {@code maxPendingSplitsPerNode}
+     * queued splits per task, in a single batch per node.
+     *
+     * @return the number of splits assigned
+     */
+    private int assignSplits(AtomicInteger nextTaskId)
+    {
+        int assignedSplits = 0;
+        Iterator<Entry<Node, Queue<PendingSplit>>> iterator = pendingSplitsByNode.entrySet().iterator();
+        while (iterator.hasNext()) {
+            // if query has been canceled, exit cleanly; query will never run regardless
+            if (getState().isDone()) {
+                break;
+            }
+
+            Entry<Node, Queue<PendingSplit>> entry = iterator.next();
+            Node node = entry.getKey();
+            Queue<PendingSplit> pendingSplits = entry.getValue();
+
+            RemoteTask task = tasks.get(node);
+            if (task == null) {
+                PendingSplit pendingSplit = pendingSplits.poll();
+                pendingSplitCount--;
+                assignedSplits++;
+
+                long scheduleTaskStart = System.nanoTime();
+                task = scheduleTask(nextTaskId, node, pendingSplit.getSplit());
+                scheduleTaskDistribution.add(System.nanoTime() - scheduleTaskStart);
+                addSplitDistribution.add(pendingSplit.getAge());
+            }
+
+            // if the node has too many splits already, leave the splits for later
+            int batchSize = Math.min(pendingSplits.size(), maxPendingSplitsPerNode - task.getQueuedSplits());
+            if (batchSize > 0) {
+                List<PendingSplit> batch = new ArrayList<>(batchSize);
+                ImmutableList.Builder<Split> splits = ImmutableList.builder();
+                for (int i = 0; i < batchSize; i++) {
+                    PendingSplit pendingSplit = pendingSplits.poll();
+                    batch.add(pendingSplit);
+                    splits.add(pendingSplit.getSplit());
                 }
-                catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw Throwables.propagate(e);
+                pendingSplitCount -= batchSize;
+                assignedSplits += batchSize;
+
+                task.addSplits(splits.build());
+
+                // record how long each split waited from enumeration to assignment
+                for (PendingSplit pendingSplit : batch) {
+                    addSplitDistribution.add(pendingSplit.getAge());
                 }
             }
 
-            addNewExchangesAndBuffers(false);
+            if (pendingSplits.isEmpty()) {
+                iterator.remove();
+            }
+        }
+        return assignedSplits;
+    }
+
+    private synchronized long getStateChangeVersion()
+    {
+        return stateChangeVersion;
+    }
+
+    private synchronized void signalStateChange()
+    {
+        stateChangeVersion++;
+        this.notifyAll();
+    }
+
+    private synchronized void waitForStateChange(long version)
+    {
+        try {
+            // tasks, sub stages, the split enumerator and the stage state all signal changes
+            while (stateChangeVersion == version && !getState().isDone()) {
+                this.wait();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private synchronized void waitForStateChange(long version, long deadline)
+    {
+        try {
+            while (stateChangeVersion == version && !getState().isDone()) {
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    return;
+                }
+                NANOSECONDS.timedWait(this, remainingNanos);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
         }
     }
 
@@ -596,6 +819,12 @@ public class SqlStageExecution
         // record this task
         tasks.put(node, task);
 
+        // tell the parent about the new task, which reads from the tasks of the sub stages
+        for (StateChangeListener<TaskInfo> stateChangeListener : taskStateChangeListeners) {
+            task.addStateChangeListener(stateChangeListener);
+            stateChangeListener.stateChanged(task.getTaskInfo());
+        }
+
         // update in case task finished before listener was registered
         doUpdateState();
 
@@ -668,8 +897,8 @@ public class SqlStageExecution
             }
 
             try {
-                // todo this adds latency: replace this wait with an event listener
-                TimeUnit.SECONDS.timedWait(this, 1);
+                // new output buffers, new sub stage tasks and sub stage state changes all wake up this thread
+                this.wait();
             }
             catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -698,6 +927,7 @@ public class SqlStageExecution
         try (SetThreadName setThreadName = new SetThreadName("Stage-%s", stageId)) {
             synchronized (this) {
                 // wake up worker thread waiting for state changes
+                stateChangeVersion++;
                 this.notifyAll();
 
                 StageState currentState = stageState.get();
@@ -784,6 +1014,97 @@ public class SqlStageExecution
                 .toString();
     }
 
+    /**
+     * Enumerates the splits of a data source, which can be slow for large tables, while the splits
+     * already enumerated are being scheduled.
+     */
+    private class SplitEnumerator
+            implements Runnable
+    {
+        private final DataSource dataSource;
+        private final LinkedBlockingQueue<PendingSplit> splits = new LinkedBlockingQueue<>(MAX_ENUMERATED_SPLITS);
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private SplitEnumerator(DataSource dataSource)
+        {
+            this.dataSource = dataSource;
+        }
+
+        @Override
+        public void run()
+        {
+            try (SetThreadName setThreadName = new SetThreadName("Stage-%s-splits", stageId)) {
+                long getSplitStart = System.nanoTime();
+                for (Split split : dataSource.getSplits()) {
+                    getSplitDistribution.add(System.nanoTime() - getSplitStart);
+
+                    splits.put(new PendingSplit(split));
+                    signalStateChange();
+
+                    getSplitStart = System.nanoTime();
+                }
+            }
+            catch (InterruptedException e) {
+                // scheduling was stopped
+                Thread.currentThread().interrupt();
+            }
+            catch (Throwable e) {
+                failure.set(e);
+            }
+            finally {
+                finished.set(true);
+                signalStateChange();
+            }
+        }
+
+        public boolean isFinished()
+        {
+            return finished.get();
+        }
+
+        public boolean isEmpty()
+        {
+            return splits.isEmpty();
+        }
+
+        /**
+         * Takes at most the specified number of enumerated splits.  Splits that are not taken
+         * hold back the enumeration once the queue is full.
+         */
+        public List<PendingSplit> take(int maxSplits)
+        {
+            Throwable cause = failure.get();
+            if (cause != null) {
+                throw Throwables.propagate(cause);
+            }
+            List<PendingSplit> pendingSplits = new ArrayList<>();
+            splits.drainTo(pendingSplits, maxSplits);
+            return pendingSplits;
+        }
+    }
+
+    private static class PendingSplit
+    {
+        private final Split split;
+        private final long enumeratedNanos = System.nanoTime();
+
+        private PendingSplit(Split split)
+        {
+            this.split = split;
+        }
+
+        public Split getSplit()
+        {
+            return split;
+        }
+
+        public long getAge()
+        {
+            return System.nanoTime() - enumeratedNanos;
+        }
+    }
+
     public static Function<RemoteTask, TaskInfo> taskInfoGetter()
     {
         return new Function<RemoteTask, TaskInfo>()
@@ -831,6 +1152,8 @@ interface StageExecutionNode
 
     void addStateChangeListener(StateChangeListener<StageInfo> stateChangeListener);
 
+    void addTaskStateChangeListener(StateChangeListener<TaskInfo> stateChangeListener);
+
     void cancelStage(StageId stageId);
 
     void cancel(boolean force);
@@ -20,9 +20,12 @@ import com.facebook.presto.client.FailureInfo;
 import com.facebook.presto.event.query.QueryMonitor;
 import com.facebook.presto.execution.StateMachine.StateChangeListener;
 import com.facebook.presto.execution.TaskExecutor.TaskHandle;
+import com.facebook.presto.memory.MemoryPool;
 import com.facebook.presto.operator.Driver;
 import com.facebook.presto.operator.DriverContext;
 import com.facebook.presto.operator.DriverFactory;
+import com.facebook.presto.operator.OutputFactory;
+import com.facebook.presto.operator.PartitionedOutputOperator.PartitionedOutputFactory;
 import com.facebook.presto.operator.PipelineContext;
 import com.facebook.presto.operator.TaskContext;
 import com.facebook.presto.operator.TaskOutputOperator.TaskOutputFactory;
@@ -30,11 +33,14 @@ import com.facebook.presto.sql.analyzer.Session;
 import com.facebook.presto.sql.planner.LocalExecutionPlanner;
 import com.facebook.presto.sql.planner.LocalExecutionPlanner.LocalExecutionPlan;
 import com.facebook.presto.sql.planner.PlanFragment;
+import com.facebook.presto.sql.planner.PlanFragment.OutputPartitioning;
+import com.facebook.presto.sql.planner.Symbol;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.util.SetThreadName;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Objects;
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -47,6 +53,7 @@ import org.joda.time.DateTime;
 
 import javax.annotation.concurrent.GuardedBy;
 
+import java.io.File;
 import java.lang.ref.WeakReference;
 import java.net.URI;
 import java.util.ArrayList;
@@ -119,7 +126,9 @@ public class SqlTaskExecution
             DataSize maxTaskMemoryUsage,
             DataSize operatorPreAllocatedMemory,
             QueryMonitor queryMonitor,
-            boolean cpuTimerEnabled)
+            boolean cpuTimerEnabled,
+            Optional<File> spillPath,
+            MemoryPool memoryPool)
     {
         SqlTaskExecution task = new SqlTaskExecution(session,
                 taskId,
@@ -132,7 +141,9 @@ public class SqlTaskExecution
                 operatorPreAllocatedMemory,
                 queryMonitor,
                 notificationExecutor,
-                cpuTimerEnabled
+                cpuTimerEnabled,
+                spillPath,
+                memoryPool
         );
 
         try (SetThreadName setThreadName = new SetThreadName("Task-%s", taskId)) {
@@ -152,7 +163,9 @@ public class SqlTaskExecution
             DataSize operatorPreAllocatedMemory,
             QueryMonitor queryMonitor,
             Executor notificationExecutor,
-            boolean cpuTimerEnabled)
+            boolean cpuTimerEnabled,
+            Optional<File> spillPath,
+            MemoryPool memoryPool)
     {
         try (SetThreadName setThreadName = new SetThreadName("Task-%s", taskId)) {
             this.taskId = checkNotNull(taskId, "taskId is null");
@@ -178,15 +191,17 @@ public class SqlTaskExecution
                     session,
                     checkNotNull(maxTaskMemoryUsage, "maxTaskMemoryUsage is null"),
                     checkNotNull(operatorPreAllocatedMemory, "operatorPreAllocatedMemory is null"),
-                    cpuTimerEnabled);
+                    cpuTimerEnabled,
+                    checkNotNull(spillPath, "spillPath is null"),
+                    checkNotNull(memoryPool, "memoryPool is null"));
 
-            this.sharedBuffer = new SharedBuffer(checkNotNull(maxBufferSize, "maxBufferSize is null"));
+            this.sharedBuffer = new SharedBuffer(checkNotNull(maxBufferSize, "maxBufferSize is null"), fragment.getOutputPartitioning() == OutputPartitioning.HASH);
 
             this.queryMonitor = checkNotNull(queryMonitor, "queryMonitor is null");
 
             taskHandle = taskExecutor.addTask(taskId);
 
-            LocalExecutionPlan localExecutionPlan = planner.plan(session, fragment.getRoot(), fragment.getSymbols(), new TaskOutputFactory(sharedBuffer));
+            LocalExecutionPlan localExecutionPlan = planner.plan(session, fragment.getRoot(), fragment.getSymbols(), createOutputFactory(fragment, sharedBuffer));
             List<DriverFactory> driverFactories = localExecutionPlan.getDriverFactories();
 
             // index driver factories
@@ -198,8 +213,10 @@ public class SqlTaskExecution
                 }
                 else {
                     PipelineContext pipelineContext = taskContext.addPipelineContext(driverFactory.isInputDriver(), driverFactory.isOutputDriver());
-                    Driver driver = driverFactory.createDriver(pipelineContext.addDriverContext());
-                    unpartitionedDrivers.add(driver);
+                    for (int i = 0; i < driverFactory.getDriverInstances(); i++) {
+                        Driver driver = driverFactory.createDriver(pipelineContext.addDriverContext());
+                        unpartitionedDrivers.add(driver);
+                    }
                 }
             }
             this.unpartitionedDrivers = ImmutableList.copyOf(unpartitionedDrivers);
@@ -219,6 +236,19 @@ public class SqlTaskExecution
         }
     }
 
+    private static OutputFactory createOutputFactory(PlanFragment fragment, SharedBuffer sharedBuffer)
+    {
+        if (fragment.getOutputPartitioning() == OutputPartitioning.HASH) {
+            List<Symbol> outputSymbols = fragment.getRoot().getOutputSymbols();
+            ImmutableList.Builder<Integer> partitionChannels = ImmutableList.builder();
+            for (Symbol symbol : fragment.getPartitionBy()) {
+                partitionChannels.add(outputSymbols.indexOf(symbol));
+            }
+            return new PartitionedOutputFactory(sharedBuffer, partitionChannels.build());
+        }
+        return new TaskOutputFactory(sharedBuffer);
+    }
+
     //
     // This code starts registers a callback with access to this class, and this
     // call back is access from another thread, so this code can not be placed in the constructor
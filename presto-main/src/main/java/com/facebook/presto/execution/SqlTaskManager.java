@@ -18,11 +18,13 @@ import com.facebook.presto.TaskSource;
 import com.facebook.presto.client.FailureInfo;
 import com.facebook.presto.event.query.QueryMonitor;
 import com.facebook.presto.execution.SharedBuffer.QueueState;
+import com.facebook.presto.memory.MemoryPool;
 import com.facebook.presto.operator.TaskContext;
 import com.facebook.presto.sql.analyzer.Session;
 import com.facebook.presto.sql.planner.LocalExecutionPlanner;
 import com.facebook.presto.sql.planner.PlanFragment;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -41,6 +43,7 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
+import java.io.File;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.List;
@@ -77,10 +80,12 @@ public class SqlTaskManager
     private final LocationFactory locationFactory;
     private final QueryMonitor queryMonitor;
     private final DataSize maxTaskMemoryUsage;
+    private final MemoryPool memoryPool;
     private final DataSize operatorPreAllocatedMemory;
     private final Duration infoCacheTime;
     private final Duration clientTimeout;
     private final boolean cpuTimerEnabled;
+    private final Optional<File> spillPath;
 
     private final ConcurrentMap<TaskId, TaskInfo> taskInfos = new ConcurrentHashMap<>();
     private final ConcurrentMap<TaskId, TaskExecution> tasks = new ConcurrentHashMap<>();
@@ -103,12 +108,14 @@ public class SqlTaskManager
             LocationFactory locationFactory,
             TaskExecutor taskExecutor,
             QueryMonitor queryMonitor,
+            MemoryPool memoryPool,
             TaskManagerConfig config)
     {
         this.planner = checkNotNull(planner, "planner is null");
         this.locationFactory = checkNotNull(locationFactory, "locationFactory is null");
         this.taskExecutor = checkNotNull(taskExecutor, "taskExecutor is null");
         this.queryMonitor = checkNotNull(queryMonitor, "queryMonitor is null");
+        this.memoryPool = checkNotNull(memoryPool, "memoryPool is null");
 
         checkNotNull(config, "config is null");
         this.maxBufferSize = config.getSinkMaxBufferSize();
@@ -117,6 +124,7 @@ public class SqlTaskManager
         this.infoCacheTime = config.getInfoMaxAge();
         this.clientTimeout = config.getClientTimeout();
         this.cpuTimerEnabled = config.isTaskCpuTimerEnabled();
+        this.spillPath = config.isSpillEnabled() ? Optional.of(config.getSpillPath()) : Optional.<File>absent();
 
         taskNotificationExecutor = Executors.newCachedThreadPool(threadsNamed("task-notification-%d"));
         taskNotificationExecutorMBean = new ThreadPoolExecutorMBean((ThreadPoolExecutor) taskNotificationExecutor);
@@ -307,7 +315,9 @@ public class SqlTaskManager
                         maxTaskMemoryUsage,
                         operatorPreAllocatedMemory,
                         queryMonitor,
-                        cpuTimerEnabled
+                        cpuTimerEnabled,
+                        spillPath,
+                        memoryPool
                 );
                 tasks.put(taskId, taskExecution);
             }
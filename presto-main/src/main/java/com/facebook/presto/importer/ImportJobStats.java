@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.importer;
+
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Throughput of the runs of a periodic import job.  The rates are those of the last successful run.
+ */
+@ThreadSafe
+public class ImportJobStats
+{
+    private long runs;
+    private long importedRows;
+    private long processedBytes;
+
+    private long lastImportedRows;
+    private long lastProcessedBytes;
+    private Duration lastRunTime = new Duration(0, TimeUnit.MILLISECONDS);
+
+    public synchronized void recordRun(long importedRows, long processedBytes, Duration runTime)
+    {
+        checkNotNull(runTime, "runTime is null");
+
+        this.runs++;
+        this.importedRows += importedRows;
+        this.processedBytes += processedBytes;
+
+        this.lastImportedRows = importedRows;
+        this.lastProcessedBytes = processedBytes;
+        this.lastRunTime = runTime;
+    }
+
+    @Managed
+    public synchronized long getRuns()
+    {
+        return runs;
+    }
+
+    @Managed
+    public synchronized long getImportedRows()
+    {
+        return importedRows;
+    }
+
+    @Managed
+    public synchronized long getProcessedBytes()
+    {
+        return processedBytes;
+    }
+
+    @Managed
+    public synchronized long getLastImportedRows()
+    {
+        return lastImportedRows;
+    }
+
+    @Managed
+    public synchronized long getLastProcessedBytes()
+    {
+        return lastProcessedBytes;
+    }
+
+    @Managed
+    public synchronized String getLastRunTime()
+    {
+        return lastRunTime.toString();
+    }
+
+    @Managed
+    public synchronized double getRowsPerSecond()
+    {
+        return perSecond(lastImportedRows);
+    }
+
+    @Managed
+    public synchronized double getBytesPerSecond()
+    {
+        return perSecond(lastProcessedBytes);
+    }
+
+    private double perSecond(long value)
+    {
+        double seconds = lastRunTime.getValue(TimeUnit.SECONDS);
+        if (seconds <= 0) {
+            return 0;
+        }
+        return value / seconds;
+    }
+}
@@ -15,10 +15,12 @@ package com.facebook.presto.importer;
 
 import com.facebook.presto.importer.PeriodicImportRunnable.PeriodicImportRunnableFactory;
 import io.airlift.log.Logger;
+import org.weakref.jmx.MBeanExporter;
 
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import javax.management.ObjectName;
 
 import java.util.Random;
 import java.util.concurrent.ScheduledExecutorService;
@@ -30,6 +32,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import static com.facebook.presto.util.Threads.daemonThreadsNamed;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 @Singleton
 public class JobStateFactory
@@ -38,12 +41,14 @@ public class JobStateFactory
 
     private final ScheduledExecutorService importExecutorService;
     private final PeriodicImportRunnableFactory periodicImportRunnableFactory;
+    private final MBeanExporter mbeanExporter;
 
     @Inject
-    public JobStateFactory(PeriodicImportConfig config, PeriodicImportRunnableFactory periodicImportRunnableFactory)
+    public JobStateFactory(PeriodicImportConfig config, PeriodicImportRunnableFactory periodicImportRunnableFactory, MBeanExporter mbeanExporter)
     {
         this.importExecutorService = new ScheduledThreadPoolExecutor(config.getThreadCount(), daemonThreadsNamed("import-%s"));
         this.periodicImportRunnableFactory = periodicImportRunnableFactory;
+        this.mbeanExporter = checkNotNull(mbeanExporter, "mbeanExporter is null");
     }
 
     public JobState forImportJob(PersistentPeriodicImportJob importJob)
@@ -63,6 +68,7 @@ public class JobStateFactory
         private final AtomicReference<ScheduledFuture<?>> futureHolder = new AtomicReference<>();
         private final AtomicLong lastRun = new AtomicLong(-1L);
         private final Random random = new Random();
+        private final ImportJobStats stats = new ImportJobStats();
 
         private JobState(PersistentPeriodicImportJob job)
         {
@@ -80,6 +86,13 @@ public class JobStateFactory
                     return;
                 }
                 log.info("Scheduled Job for %d, initial delay is %dms", job.getJobId(), initialDelay);
+
+                try {
+                    mbeanExporter.export(getObjectName(job), stats);
+                }
+                catch (RuntimeException e) {
+                    log.warn(e, "Error exporting stats for Job %d", job.getJobId());
+                }
             }
         }
 
@@ -89,6 +102,13 @@ public class JobStateFactory
             if (jobFuture != null) {
                 jobFuture.cancel(mayInterruptIfRunning);
                 log.info("Cancelled Job for %d", job.getJobId());
+
+                try {
+                    mbeanExporter.unexport(getObjectName(job));
+                }
+                catch (RuntimeException e) {
+                    log.warn(e, "Error unexporting stats for Job %d", job.getJobId());
+                }
             }
         }
 
@@ -107,5 +127,15 @@ public class JobStateFactory
         {
             return job;
         }
+
+        public ImportJobStats getStats()
+        {
+            return stats;
+        }
+    }
+
+    private static String getObjectName(PersistentPeriodicImportJob job)
+    {
+        return "com.facebook.presto.importer:type=ImportJob,name=" + ObjectName.quote(String.valueOf(job.getJobId()));
     }
 }
@@ -19,22 +19,18 @@ import com.facebook.presto.client.StatementClient;
 import com.facebook.presto.importer.JobStateFactory.JobState;
 import com.facebook.presto.metadata.NodeManager;
 import com.facebook.presto.metadata.QualifiedTableName;
-import com.google.common.base.Function;
-import com.google.common.collect.AbstractIterator;
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import io.airlift.http.client.AsyncHttpClient;
 import io.airlift.json.JsonCodec;
 import io.airlift.log.Logger;
+import io.airlift.units.Duration;
 
 import javax.inject.Inject;
 
 import java.net.URI;
-import java.util.Iterator;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Iterators.concat;
-import static com.google.common.collect.Iterators.transform;
 import static java.lang.String.format;
 
 public class PeriodicImportRunnable
@@ -69,12 +65,32 @@ public class PeriodicImportRunnable
         String sql = String.format("REFRESH MATERIALIZED VIEW %s", dstTable.getTableName());
 
         ClientSession session = new ClientSession(serverUri(), "periodic-import", "periodic-import", dstTable.getCatalogName(), dstTable.getSchemaName(), false);
+        long start = System.nanoTime();
         StatementClient client = new StatementClient(httpClient, queryResultsCodec, session, sql);
 
-        // don't delete this line, it is what actually pulls the data from the query...
-        List<List<Object>> result = ImmutableList.copyOf(flatten(new ResultsPageIterator(client)));
+        // the refresh is written to the destination table by the workers, so the
+        // only row returned is the number of imported rows
+        long importedRows = 0;
+        while (client.isValid()) {
+            Iterable<List<Object>> data = client.current().getData();
+            if (data != null) {
+                for (List<Object> row : data) {
+                    importedRows += ((Number) Iterables.getOnlyElement(row)).longValue();
+                }
+            }
+            client.advance();
+        }
 
-        log.debug("Query: %s, Result: %s", sql, result);
+        QueryResults results = client.finalResults();
+        if (client.isFailed()) {
+            throw new IllegalStateException(failureMessage(results));
+        }
+
+        Duration runTime = Duration.nanosSince(start);
+        long processedBytes = results.getStats().getProcessedBytes();
+        jobState.getStats().recordRun(importedRows, processedBytes, runTime);
+
+        log.debug("Query: %s, imported %s rows (%s bytes processed) in %s", sql, importedRows, processedBytes, runTime);
     }
 
     public static final class PeriodicImportRunnableFactory
@@ -113,47 +129,6 @@ public class PeriodicImportRunnable
         return nodeManager.getCurrentNode().getHttpUri();
     }
 
-    private static <T> Iterator<T> flatten(Iterator<Iterable<T>> iterator)
-    {
-        return concat(transform(iterator, new Function<Iterable<T>, Iterator<T>>()
-        {
-            @Override
-            public Iterator<T> apply(Iterable<T> input)
-            {
-                return input.iterator();
-            }
-        }));
-    }
-
-    private static class ResultsPageIterator
-            extends AbstractIterator<Iterable<List<Object>>>
-    {
-        private final StatementClient client;
-
-        private ResultsPageIterator(StatementClient client)
-        {
-            this.client = checkNotNull(client, "client is null");
-        }
-
-        @Override
-        protected Iterable<List<Object>> computeNext()
-        {
-            while (client.isValid()) {
-                Iterable<List<Object>> data = client.current().getData();
-                client.advance();
-                if (data != null) {
-                    return data;
-                }
-            }
-
-            if (client.isFailed()) {
-                throw new IllegalStateException(failureMessage(client.finalResults()));
-            }
-
-            return endOfData();
-        }
-    }
-
     private static String failureMessage(QueryResults results)
     {
         return format("Query failed (#%s): %s", results.getId(), results.getError().getMessage());
@@ -0,0 +1,270 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.facebook.presto.execution.QueryId;
+import com.facebook.presto.metadata.Node;
+import com.facebook.presto.metadata.NodeManager;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import io.airlift.http.client.AsyncHttpClient;
+import io.airlift.http.client.FullJsonResponseHandler.JsonResponse;
+import io.airlift.http.client.Request;
+import io.airlift.json.JsonCodec;
+import io.airlift.log.Logger;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.facebook.presto.util.Threads.daemonThreadsNamed;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.airlift.http.client.FullJsonResponseHandler.createFullJsonResponseHandler;
+import static io.airlift.http.client.HttpUriBuilder.uriBuilderFrom;
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+
+/**
+ * Coordinator view of the memory pools of all nodes.  The pools are fetched from the
+ * nodes periodically and combined into the memory reserved by each query in the cluster,
+ * which is used to pick the queries exceeding the memory limits.
+ */
+@ThreadSafe
+public class ClusterMemoryManager
+{
+    private static final Logger log = Logger.get(ClusterMemoryManager.class);
+
+    private final NodeManager nodeManager;
+    private final AsyncHttpClient httpClient;
+    private final JsonCodec<MemoryPoolInfo> memoryPoolInfoCodec;
+
+    private final DataSize maxQueryMemory;
+    private final boolean killOnOutOfMemory;
+    private final Duration updateInterval;
+
+    private final ScheduledExecutorService executor = newSingleThreadScheduledExecutor(daemonThreadsNamed("cluster-memory-manager"));
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    // memory pools by node id
+    private final ConcurrentMap<String, MemoryPoolInfo> nodeMemoryPools = new ConcurrentHashMap<>();
+
+    @Inject
+    public ClusterMemoryManager(
+            NodeManager nodeManager,
+            @ForClusterMemoryManager AsyncHttpClient httpClient,
+            JsonCodec<MemoryPoolInfo> memoryPoolInfoCodec,
+            MemoryManagerConfig config)
+    {
+        this.nodeManager = checkNotNull(nodeManager, "nodeManager is null");
+        this.httpClient = checkNotNull(httpClient, "httpClient is null");
+        this.memoryPoolInfoCodec = checkNotNull(memoryPoolInfoCodec, "memoryPoolInfoCodec is null");
+
+        checkNotNull(config, "config is null");
+        this.maxQueryMemory = config.getMaxQueryMemory();
+        this.killOnOutOfMemory = config.isKillOnOutOfMemory();
+        this.updateInterval = config.getUpdateInterval();
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        if (started.compareAndSet(false, true)) {
+            executor.scheduleWithFixedDelay(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        updateNodeMemoryPools();
+                    }
+                    catch (Throwable e) {
+                        // ignore to avoid getting unscheduled
+                        log.warn(e, "Error updating node memory pools");
+                    }
+                }
+            }, 0, updateInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        executor.shutdownNow();
+    }
+
+    public Map<String, MemoryPoolInfo> getNodeMemoryPools()
+    {
+        return ImmutableMap.copyOf(nodeMemoryPools);
+    }
+
+    /**
+     * Memory reserved by each query summed over all nodes.
+     */
+    public Map<QueryId, Long> getQueryMemoryReservations()
+    {
+        Map<QueryId, Long> queryReservations = new HashMap<>();
+        for (MemoryPoolInfo pool : nodeMemoryPools.values()) {
+            for (Entry<QueryId, Long> entry : pool.getQueryReservations().entrySet()) {
+                Long reservation = queryReservations.get(entry.getKey());
+                queryReservations.put(entry.getKey(), (reservation == null ? 0 : reservation) + entry.getValue());
+            }
+        }
+        return ImmutableMap.copyOf(queryReservations);
+    }
+
+    /**
+     * Picks the running queries that must be killed to enforce the memory limits: every
+     * query reserving more than {@code query.max-memory} in the cluster, and the query
+     * with the largest reservation on each node whose pool is exhausted.
+     */
+    public Map<QueryId, ExceededMemoryLimitException> getQueriesToKill(Set<QueryId> runningQueries)
+    {
+        checkNotNull(runningQueries, "runningQueries is null");
+
+        Map<QueryId, ExceededMemoryLimitException> queriesToKill = new HashMap<>();
+        for (Entry<QueryId, Long> entry : getQueryMemoryReservations().entrySet()) {
+            if (runningQueries.contains(entry.getKey()) && entry.getValue() > maxQueryMemory.toBytes()) {
+                queriesToKill.put(entry.getKey(), ExceededMemoryLimitException.exceededQueryLimit(entry.getKey(), maxQueryMemory));
+            }
+        }
+
+        if (!killOnOutOfMemory) {
+            return queriesToKill;
+        }
+
+        for (Entry<String, MemoryPoolInfo> entry : getNodeMemoryPools().entrySet()) {
+            MemoryPoolInfo pool = entry.getValue();
+            if (pool.getReservedBytes() <= pool.getMaxBytes()) {
+                continue;
+            }
+
+            // memory of a killed query is only freed once its tasks are cleaned up, so
+            // wait for that before picking another query on this node
+            Set<QueryId> queriesOnNode = new HashSet<>(pool.getQueryReservations().keySet());
+            if (!runningQueries.containsAll(queriesOnNode) || !Collections.disjoint(queriesOnNode, queriesToKill.keySet())) {
+                continue;
+            }
+
+            QueryId largestQuery = null;
+            long largestReservation = 0;
+            for (Entry<QueryId, Long> queryReservation : pool.getQueryReservations().entrySet()) {
+                if (largestQuery == null || queryReservation.getValue() > largestReservation) {
+                    largestQuery = queryReservation.getKey();
+                    largestReservation = queryReservation.getValue();
+                }
+            }
+            if (largestQuery != null) {
+                queriesToKill.put(largestQuery, ExceededMemoryLimitException.exceededNodeLimit(largestQuery, entry.getKey()));
+            }
+        }
+        return queriesToKill;
+    }
+
+    @Managed
+    public long getClusterMaxBytes()
+    {
+        long maxBytes = 0;
+        for (MemoryPoolInfo pool : nodeMemoryPools.values()) {
+            maxBytes += pool.getMaxBytes();
+        }
+        return maxBytes;
+    }
+
+    @Managed
+    public long getClusterReservedBytes()
+    {
+        long reservedBytes = 0;
+        for (MemoryPoolInfo pool : nodeMemoryPools.values()) {
+            reservedBytes += pool.getReservedBytes();
+        }
+        return reservedBytes;
+    }
+
+    @Managed
+    public int getOutOfMemoryNodes()
+    {
+        int nodes = 0;
+        for (MemoryPoolInfo pool : nodeMemoryPools.values()) {
+            if (pool.getReservedBytes() > pool.getMaxBytes()) {
+                nodes++;
+            }
+        }
+        return nodes;
+    }
+
+    @VisibleForTesting
+    void updateNodeMemoryPool(String nodeId, MemoryPoolInfo memoryPoolInfo)
+    {
+        nodeMemoryPools.put(nodeId, memoryPoolInfo);
+    }
+
+    private void updateNodeMemoryPools()
+    {
+        Set<Node> activeNodes = nodeManager.getAllNodes().getActiveNodes();
+
+        // forget the pools of nodes that are gone
+        Set<String> activeNodeIds = new HashSet<>();
+        for (Node node : activeNodes) {
+            activeNodeIds.add(node.getNodeIdentifier());
+        }
+        nodeMemoryPools.keySet().retainAll(activeNodeIds);
+
+        for (Node node : activeNodes) {
+            final String nodeId = node.getNodeIdentifier();
+            Request request = prepareGet()
+                    .setUri(uriBuilderFrom(node.getHttpUri()).appendPath("/v1/memory").build())
+                    .build();
+
+            Futures.addCallback(httpClient.executeAsync(request, createFullJsonResponseHandler(memoryPoolInfoCodec)), new FutureCallback<JsonResponse<MemoryPoolInfo>>()
+            {
+                @Override
+                public void onSuccess(JsonResponse<MemoryPoolInfo> response)
+                {
+                    if (response.getStatusCode() == 200 && response.hasValue()) {
+                        nodeMemoryPools.put(nodeId, response.getValue());
+                    }
+                    else {
+                        log.debug("Error fetching memory pool of node %s: %s %s", nodeId, response.getStatusCode(), response.getStatusMessage());
+                        nodeMemoryPools.remove(nodeId);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable t)
+                {
+                    log.debug(t, "Error fetching memory pool of node %s", nodeId);
+                    nodeMemoryPools.remove(nodeId);
+                }
+            }, executor);
+        }
+    }
+}
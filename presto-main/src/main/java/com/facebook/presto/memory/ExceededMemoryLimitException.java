@@ -0,0 +1,36 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.facebook.presto.execution.QueryId;
+import io.airlift.units.DataSize;
+
+public class ExceededMemoryLimitException
+        extends RuntimeException
+{
+    public ExceededMemoryLimitException(String message)
+    {
+        super(message);
+    }
+
+    public static ExceededMemoryLimitException exceededQueryLimit(QueryId queryId, DataSize maxMemory)
+    {
+        return new ExceededMemoryLimitException(String.format("Query %s exceeded max memory size of %s", queryId, maxMemory));
+    }
+
+    public static ExceededMemoryLimitException exceededNodeLimit(QueryId queryId, String nodeId)
+    {
+        return new ExceededMemoryLimitException(String.format("Query %s was killed because node %s ran out of memory", queryId, nodeId));
+    }
+}
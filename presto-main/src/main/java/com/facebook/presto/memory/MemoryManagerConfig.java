@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import io.airlift.units.MinDuration;
+
+import javax.validation.constraints.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+
+public class MemoryManagerConfig
+{
+    private DataSize maxQueryMemory = new DataSize(20, GIGABYTE);
+    private DataSize maxNodeMemory = new DataSize(1, GIGABYTE);
+    private boolean killOnOutOfMemory;
+    private Duration updateInterval = new Duration(1, TimeUnit.SECONDS);
+
+    @NotNull
+    public DataSize getMaxQueryMemory()
+    {
+        return maxQueryMemory;
+    }
+
+    @Config("query.max-memory")
+    @ConfigDescription("Maximum memory a query may reserve across all nodes of the cluster")
+    public MemoryManagerConfig setMaxQueryMemory(DataSize maxQueryMemory)
+    {
+        this.maxQueryMemory = maxQueryMemory;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMaxNodeMemory()
+    {
+        return maxNodeMemory;
+    }
+
+    @Config("memory.max-node-memory")
+    @ConfigDescription("Size of the memory pool shared by all tasks on a node")
+    public MemoryManagerConfig setMaxNodeMemory(DataSize maxNodeMemory)
+    {
+        this.maxNodeMemory = maxNodeMemory;
+        return this;
+    }
+
+    public boolean isKillOnOutOfMemory()
+    {
+        return killOnOutOfMemory;
+    }
+
+    @Config("memory.kill-on-out-of-memory")
+    @ConfigDescription("Kill the query with the largest reservation on a node whose memory pool is exhausted")
+    public MemoryManagerConfig setKillOnOutOfMemory(boolean killOnOutOfMemory)
+    {
+        this.killOnOutOfMemory = killOnOutOfMemory;
+        return this;
+    }
+
+    @MinDuration("1ms")
+    @NotNull
+    public Duration getUpdateInterval()
+    {
+        return updateInterval;
+    }
+
+    @Config("memory.update-interval")
+    public MemoryManagerConfig setUpdateInterval(Duration updateInterval)
+    {
+        this.updateInterval = updateInterval;
+        return this;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.facebook.presto.execution.QueryId;
+import io.airlift.units.DataSize;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Memory reserved by the tasks of each query on this node.  Reservations are limited
+ * per task by the task context, and the pool itself may be overcommitted: the
+ * coordinator reads the pools of all nodes and kills queries to free memory on a
+ * node whose pool is exhausted.
+ */
+@ThreadSafe
+public class MemoryPool
+{
+    private final long maxBytes;
+
+    @GuardedBy("this")
+    private long reservedBytes;
+    @GuardedBy("this")
+    private final Map<QueryId, Long> queryReservations = new HashMap<>();
+
+    @Inject
+    public MemoryPool(MemoryManagerConfig config)
+    {
+        this(checkNotNull(config, "config is null").getMaxNodeMemory());
+    }
+
+    public MemoryPool(DataSize maxSize)
+    {
+        this.maxBytes = checkNotNull(maxSize, "maxSize is null").toBytes();
+    }
+
+    public synchronized void reserve(QueryId queryId, long bytes)
+    {
+        checkNotNull(queryId, "queryId is null");
+        checkArgument(bytes >= 0, "bytes is negative");
+
+        if (bytes == 0) {
+            return;
+        }
+        reservedBytes += bytes;
+        Long queryReservation = queryReservations.get(queryId);
+        queryReservations.put(queryId, (queryReservation == null ? 0 : queryReservation) + bytes);
+    }
+
+    public synchronized void free(QueryId queryId, long bytes)
+    {
+        checkNotNull(queryId, "queryId is null");
+        checkArgument(bytes >= 0, "bytes is negative");
+
+        if (bytes == 0) {
+            return;
+        }
+        Long queryReservation = queryReservations.get(queryId);
+        checkArgument(queryReservation != null && queryReservation >= bytes, "Query %s freed more memory than it reserved", queryId);
+
+        reservedBytes -= bytes;
+        if (queryReservation == bytes) {
+            queryReservations.remove(queryId);
+        }
+        else {
+            queryReservations.put(queryId, queryReservation - bytes);
+        }
+    }
+
+    public synchronized MemoryPoolInfo getInfo()
+    {
+        return new MemoryPoolInfo(maxBytes, reservedBytes, queryReservations);
+    }
+
+    @Managed
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    @Managed
+    public synchronized long getReservedBytes()
+    {
+        return reservedBytes;
+    }
+
+    @Managed
+    public synchronized long getFreeBytes()
+    {
+        return maxBytes - reservedBytes;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return getInfo().toString();
+    }
+}
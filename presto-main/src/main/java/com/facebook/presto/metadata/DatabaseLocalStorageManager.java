@@ -16,22 +16,18 @@ package com.facebook.presto.metadata;
 import com.facebook.presto.block.Block;
 import com.facebook.presto.block.BlockIterable;
 import com.facebook.presto.block.BlockUtils;
-import com.facebook.presto.execution.TaskId;
-import com.facebook.presto.operator.AlignmentOperator;
-import com.facebook.presto.operator.OperatorContext;
 import com.facebook.presto.operator.Page;
-import com.facebook.presto.operator.TaskContext;
 import com.facebook.presto.serde.BlocksFileEncoding;
 import com.facebook.presto.serde.BlocksFileReader;
 import com.facebook.presto.serde.BlocksFileStats;
 import com.facebook.presto.spi.ColumnHandle;
-import com.facebook.presto.sql.analyzer.Session;
 import com.facebook.presto.util.KeyBoundedExecutor;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -39,8 +35,10 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.inject.Inject;
 import io.airlift.concurrent.ThreadPoolExecutorMBean;
+import io.airlift.log.Logger;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 import org.skife.jdbi.v2.Handle;
@@ -54,10 +52,16 @@ import javax.annotation.PreDestroy;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.facebook.presto.util.Threads.threadsNamed;
 import static com.google.common.base.Preconditions.checkArgument;
@@ -65,16 +69,16 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.String.format;
 import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.delete;
 import static java.util.concurrent.Executors.newFixedThreadPool;
 
 public class DatabaseLocalStorageManager
         implements LocalStorageManager
 {
-    private static final boolean ENABLE_OPTIMIZATION = Boolean.valueOf("false");
+    private static final Logger log = Logger.get(DatabaseLocalStorageManager.class);
 
     private static final BlocksFileEncoding DEFAULT_ENCODING = BlocksFileEncoding.SNAPPY;
 
-    private static final int RUN_LENGTH_AVERAGE_CUTOFF = 3;
     private static final int DICTIONARY_CARDINALITY_CUTOFF = 1000;
 
     private final ExecutorService executor;
@@ -85,6 +89,10 @@ public class DatabaseLocalStorageManager
     private final File baseStorageDir;
     private final File baseStagingDir;
     private final StorageManagerDao dao;
+    private final boolean optimizeEncodings;
+
+    private final AtomicLong stagedColumnBytes = new AtomicLong();
+    private final AtomicLong encodedColumnBytes = new AtomicLong();
 
     private final LoadingCache<File, Slice> mappedFileCache = CacheBuilder.newBuilder().build(new CacheLoader<File, Slice>()
     {
@@ -112,6 +120,7 @@ public class DatabaseLocalStorageManager
         this.baseStagingDir = createDirectory(new File(baseDataDir, "staging"));
         this.dbi = checkNotNull(dbi, "dbi is null");
         this.dao = dbi.onDemand(StorageManagerDao.class);
+        this.optimizeEncodings = config.isOptimizeEncodings();
 
         this.executor = newFixedThreadPool(config.getTasksPerNode(), threadsNamed("local-storage-manager-%s"));
         this.executorMBean = new ThreadPoolExecutorMBean((ThreadPoolExecutor) executor);
@@ -133,6 +142,18 @@ public class DatabaseLocalStorageManager
         return executorMBean;
     }
 
+    @Managed(description = "Size of the staged files of re-encoded columns")
+    public long getStagedColumnBytes()
+    {
+        return stagedColumnBytes.get();
+    }
+
+    @Managed(description = "Size of the re-encoded column files")
+    public long getEncodedColumnBytes()
+    {
+        return encodedColumnBytes.get();
+    }
+
     @Override
     public ColumnFileHandle createStagingFileHandles(long shardId, List<? extends ColumnHandle> columnHandles)
             throws IOException
@@ -174,78 +195,127 @@ public class DatabaseLocalStorageManager
         long shardId = columnFileHandle.getShardId();
         File shardPath = getShardPath(baseStorageDir, shardId);
 
-        ImmutableList.Builder<BlockIterable> sourcesBuilder = ImmutableList.builder();
         ColumnFileHandle.Builder builder = ColumnFileHandle.builder(shardId);
+        List<Future<?>> encodingJobs = new ArrayList<>();
+        List<File> targetFiles = new ArrayList<>();
+        AtomicBoolean aborted = new AtomicBoolean();
+
+        try {
+            for (Map.Entry<ColumnHandle, File> entry : columnFileHandle.getFiles().entrySet()) {
+                File file = entry.getValue();
+                ColumnHandle columnHandle = entry.getKey();
+
+                if (file.exists()) {
+                    Slice slice = mappedFileCache.getUnchecked(file.getAbsoluteFile());
+                    checkState(file.length() == slice.length(), "File %s, length %s was mapped to Slice length %s", file.getAbsolutePath(), file.length(), slice.length());
+                    // Compute optimal encoding from stats
+                    BlocksFileReader blocks = BlocksFileReader.readBlocks(slice);
+                    BlocksFileEncoding encoding = optimizeEncodings ? chooseEncoding(blocks.getStats()) : DEFAULT_ENCODING;
+
+                    File outputFile = getColumnFile(shardPath, columnHandle, encoding);
+                    Files.createParentDirs(outputFile);
+                    builder.addColumn(columnHandle, outputFile);
+                    targetFiles.add(outputFile);
 
-        for (Map.Entry<ColumnHandle, File> entry : columnFileHandle.getFiles().entrySet()) {
-            File file = entry.getValue();
-            ColumnHandle columnHandle = entry.getKey();
-
-            if (file.exists()) {
-                Slice slice = mappedFileCache.getUnchecked(file.getAbsoluteFile());
-                checkState(file.length() == slice.length(), "File %s, length %s was mapped to Slice length %s", file.getAbsolutePath(), file.length(), slice.length());
-                // Compute optimal encoding from stats
-                BlocksFileReader blocks = BlocksFileReader.readBlocks(slice);
-                BlocksFileStats stats = blocks.getStats();
-                boolean rleEncode = stats.getAvgRunLength() > RUN_LENGTH_AVERAGE_CUTOFF;
-                boolean dicEncode = stats.getUniqueCount() < DICTIONARY_CARDINALITY_CUTOFF;
-
-                BlocksFileEncoding encoding = DEFAULT_ENCODING;
-
-                if (ENABLE_OPTIMIZATION) {
-                    if (dicEncode && rleEncode) {
-                        encoding = BlocksFileEncoding.DIC_RLE;
-                    }
-                    else if (dicEncode) {
-                        encoding = BlocksFileEncoding.DIC_RAW;
+                    if (encoding == DEFAULT_ENCODING) {
+                        // Optimization: source is already in the default encoding, so just move.
+                        mappedFileCache.invalidate(file.getAbsoluteFile());
+                        Files.move(file, outputFile);
                     }
-                    else if (rleEncode) {
-                        encoding = BlocksFileEncoding.RLE;
+                    else {
+                        // columns are independent files, so they are encoded in parallel
+                        encodingJobs.add(executor.submit(new EncodingJob(shardId, columnHandle, file, blocks, outputFile, encoding, aborted)));
                     }
                 }
-
-                File outputFile = getColumnFile(shardPath, columnHandle, encoding);
-                Files.createParentDirs(outputFile);
-
-                if (encoding == DEFAULT_ENCODING) {
-                    // Optimization: source is already raw, so just move.
-                    Files.move(file, outputFile);
-                    // still register the file with the builder so that it can
-                    // be committed correctly.
-                    builder.addColumn(columnHandle, outputFile);
-                }
                 else {
-                    // source builder and output builder move in parallel if the
-                    // column gets written
-                    sourcesBuilder.add(blocks);
-                    builder.addColumn(columnHandle, outputFile, encoding);
+                    // fake file
+                    File outputFile = getColumnFile(shardPath, columnHandle, DEFAULT_ENCODING);
+                    builder.addColumn(columnHandle, outputFile);
                 }
             }
-            else {
-                // fake file
-                File outputFile = getColumnFile(shardPath, columnHandle, DEFAULT_ENCODING);
-                builder.addColumn(columnHandle, outputFile);
-            }
+
+            waitForEncodingJobs(encodingJobs, aborted);
+        }
+        catch (IOException | RuntimeException e) {
+            // make sure no job is writing anymore, then remove both the partially encoded and the staged files of the shard
+            aborted.set(true);
+            awaitEncodingJobs(encodingJobs);
+            deleteFiles(targetFiles);
+            deleteFiles(columnFileHandle.getFiles().values());
+            deleteStagingDirectory(columnFileHandle);
+            throw e;
         }
 
-        List<BlockIterable> sources = sourcesBuilder.build();
         ColumnFileHandle targetFileHandle = builder.build();
+        targetFileHandle.commit();
 
-        if (!sources.isEmpty()) {
-            // Throw out any stats generated by the optimization setp
-            Session session = new Session("user", "source", "catalog", "schema", "address", "agent");
-            OperatorContext operatorContext = new TaskContext(new TaskId("query", "stage", "task"), executor, session)
-                    .addPipelineContext(true, true)
-                    .addDriverContext()
-                    .addOperatorContext(0, "OptimizeEncodings");
+        return targetFileHandle;
+    }
 
-            AlignmentOperator source = new AlignmentOperator(operatorContext, sources);
-            importData(source, targetFileHandle);
+    /**
+     * Choose the encoding of a column from the stats of the staged file.  Low cardinality columns are
+     * dictionary encoded.  The blocks of values or dictionary ids are then each stored as runs, snappy
+     * compressed or uncompressed, whichever fits the block best.
+     */
+    @VisibleForTesting
+    static BlocksFileEncoding chooseEncoding(BlocksFileStats stats)
+    {
+        if (stats.getUniqueCount() < DICTIONARY_CARDINALITY_CUTOFF) {
+            return BlocksFileEncoding.DIC_ADAPTIVE;
         }
+        // without repeated adjacent values no block can be stored as runs, and the staged file is already compressed
+        if (stats.getRunsCount() >= stats.getRowCount()) {
+            return DEFAULT_ENCODING;
+        }
+        return BlocksFileEncoding.ADAPTIVE;
+    }
 
-        targetFileHandle.commit();
+    /**
+     * Wait for all encoding jobs to finish.  After the first failure the jobs that have not
+     * started yet are skipped, but running jobs are still waited for, because cancelling a
+     * future does not stop a job that is already writing its target file.
+     */
+    private static void waitForEncodingJobs(List<Future<?>> encodingJobs, AtomicBoolean aborted)
+            throws IOException
+    {
+        Throwable failure = null;
+        for (Future<?> encodingJob : encodingJobs) {
+            try {
+                Uninterruptibles.getUninterruptibly(encodingJob);
+            }
+            catch (ExecutionException e) {
+                aborted.set(true);
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure != null) {
+            Throwables.propagateIfInstanceOf(failure, IOException.class);
+            throw Throwables.propagate(failure);
+        }
+    }
 
-        return targetFileHandle;
+    private static void awaitEncodingJobs(List<Future<?>> encodingJobs)
+    {
+        for (Future<?> encodingJob : encodingJobs) {
+            try {
+                Uninterruptibles.getUninterruptibly(encodingJob);
+            }
+            catch (ExecutionException ignored) {
+                // the first failure is already being reported
+            }
+        }
+    }
+
+    private void deleteFiles(Iterable<File> files)
+    {
+        for (File file : files) {
+            mappedFileCache.invalidate(file.getAbsoluteFile());
+            if (file.exists() && !file.delete()) {
+                log.warn("Could not delete file %s", file.getAbsolutePath());
+            }
+        }
     }
 
     @SuppressWarnings("ResultOfMethodCallIgnored")
@@ -258,17 +328,6 @@ public class DatabaseLocalStorageManager
         }
     }
 
-    private void importData(AlignmentOperator source, ColumnFileHandle fileHandle)
-    {
-        while (!source.isFinished()) {
-            Page page = source.getOutput();
-            if (page != null) {
-                fileHandle.append(page);
-            }
-            checkState(source.isBlocked().isDone(), "Alignment operator is blocked");
-        }
-    }
-
     /**
      * Generate a file system path for a shard id. This creates a four level deep, two digit directory
      * where the least significant digits are the first level, the next significant digits are the second
@@ -345,6 +404,25 @@ public class DatabaseLocalStorageManager
         return convertFilesToBlocks(ImmutableList.of(file));
     }
 
+    @Override
+    public ShardColumnStats getColumnStats(long shardId, ColumnHandle columnHandle)
+    {
+        checkNotNull(columnHandle);
+        checkState(columnHandle instanceof NativeColumnHandle, "Can only load stats from a native column");
+        long columnId = ((NativeColumnHandle) columnHandle).getColumnId();
+
+        checkState(shardExists(shardId), "shard %s has not yet been imported", shardId);
+        String filename = dao.getColumnFilename(shardId, columnId);
+        File file = new File(getShardPath(baseStorageDir, shardId), filename);
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        Slice slice = mappedFileCache.getUnchecked(file.getAbsoluteFile());
+        return ShardColumnStats.forBlocksFileStats(columnId, BlocksFileReader.readBlocks(slice).getStats());
+    }
+
     private BlockIterable convertFilesToBlocks(Iterable<File> files)
     {
         checkArgument(files.iterator().hasNext(), "no files in stream");
@@ -387,6 +465,58 @@ public class DatabaseLocalStorageManager
         return dir;
     }
 
+    private class EncodingJob
+            implements Callable<Void>
+    {
+        private final long shardId;
+        private final ColumnHandle columnHandle;
+        private final File sourceFile;
+        private final BlocksFileReader source;
+        private final File targetFile;
+        private final BlocksFileEncoding encoding;
+        private final AtomicBoolean aborted;
+
+        private EncodingJob(long shardId, ColumnHandle columnHandle, File sourceFile, BlocksFileReader source, File targetFile, BlocksFileEncoding encoding, AtomicBoolean aborted)
+        {
+            this.shardId = shardId;
+            this.columnHandle = columnHandle;
+            this.sourceFile = sourceFile;
+            this.source = source;
+            this.targetFile = targetFile;
+            this.encoding = encoding;
+            this.aborted = aborted;
+        }
+
+        @Override
+        public Void call()
+                throws IOException
+        {
+            if (aborted.get()) {
+                // another column of the shard failed, so the shard is discarded anyway
+                return null;
+            }
+
+            ColumnFileHandle fileHandle = ColumnFileHandle.builder(shardId)
+                    .addColumn(columnHandle, targetFile, encoding)
+                    .build();
+            for (Block block : source) {
+                fileHandle.append(new Page(block));
+            }
+            fileHandle.commit();
+
+            long stagedBytes = sourceFile.length();
+            long encodedBytes = targetFile.length();
+            stagedColumnBytes.addAndGet(stagedBytes);
+            encodedColumnBytes.addAndGet(encodedBytes);
+            log.debug("Encoded shard %s column %s as %s: %s bytes staged, %s bytes encoded (%.2fx)",
+                    shardId, columnHandle, encoding.getName(), stagedBytes, encodedBytes, (double) stagedBytes / Math.max(encodedBytes, 1));
+
+            mappedFileCache.invalidate(sourceFile.getAbsoluteFile());
+            delete(sourceFile.toPath());
+            return null;
+        }
+    }
+
     private class DropJob
             implements Runnable
     {
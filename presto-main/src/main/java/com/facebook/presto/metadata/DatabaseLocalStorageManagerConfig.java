@@ -25,6 +25,7 @@ public class DatabaseLocalStorageManagerConfig
 {
     private File dataDirectory = new File("var/data");
     private int tasksPerNode = 32;
+    private boolean optimizeEncodings = true;
 
     @NotNull
     public File getDataDirectory()
@@ -53,4 +54,17 @@ public class DatabaseLocalStorageManagerConfig
         this.tasksPerNode = tasksPerNode;
         return this;
     }
+
+    public boolean isOptimizeEncodings()
+    {
+        return optimizeEncodings;
+    }
+
+    @Config("storage-manager.optimize-encodings")
+    @ConfigDescription("Re-encode imported columns using dictionary, run length and compressed blocks")
+    public DatabaseLocalStorageManagerConfig setOptimizeEncodings(boolean optimizeEncodings)
+    {
+        this.optimizeEncodings = optimizeEncodings;
+        return this;
+    }
 }
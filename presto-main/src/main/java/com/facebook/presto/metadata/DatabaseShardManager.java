@@ -18,6 +18,7 @@ import com.facebook.presto.spi.PartitionKey;
 import com.facebook.presto.spi.TableHandle;
 import com.facebook.presto.split.NativePartitionKey;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -81,10 +82,11 @@ public class DatabaseShardManager
     }
 
     @Override
-    public void commitPartition(TableHandle tableHandle, final String partition, final List<? extends PartitionKey> partitionKeys, final Map<Long, String> shards)
+    public void commitPartition(TableHandle tableHandle, final String partition, final Optional<String> partitionVersion, final List<? extends PartitionKey> partitionKeys, final Map<Long, String> shards)
     {
         checkNotNull(tableHandle, "tableHandle is null");
         checkNotNull(partition, "partition is null");
+        checkNotNull(partitionVersion, "partitionVersion is null");
         checkNotNull(partitionKeys, "partitionKeys is null");
         checkNotNull(shards, "shards is null");
 
@@ -97,7 +99,14 @@ public class DatabaseShardManager
             protected void execute(Handle handle, TransactionStatus status)
             {
                 ShardManagerDao dao = handle.attach(ShardManagerDao.class);
+
+                // the shards of a replaced partition become orphans, and are removed by the shard cleaner
+                dropPartition(dao, tableId, partition);
+
                 long partitionId = dao.insertPartition(tableId, partition);
+                if (partitionVersion.isPresent()) {
+                    dao.insertPartitionVersion(tableId, partition, partitionVersion.get());
+                }
 
                 for (PartitionKey partitionKey : partitionKeys) {
                     dao.insertPartitionKey(tableId, partition, partitionKey.getName(), partitionKey.getType().toString(), partitionKey.getValue());
@@ -120,6 +129,38 @@ public class DatabaseShardManager
         dao.dropShardNode(shardId, nodeIdentifier);
     }
 
+    @Override
+    public void commitShardColumnStats(final long shardId, final List<ShardColumnStats> columnStats)
+    {
+        checkNotNull(columnStats, "columnStats is null");
+
+        dbi.inTransaction(new VoidTransactionCallback()
+        {
+            @Override
+            protected void execute(Handle handle, TransactionStatus status)
+            {
+                ShardManagerDao dao = handle.attach(ShardManagerDao.class);
+                for (ShardColumnStats stats : columnStats) {
+                    dao.insertShardColumnStats(shardId, stats.getColumnId(), stats.getMinValue(), stats.getMaxValue(), stats.getNullCount(), stats.getRowCount());
+                }
+            }
+        });
+    }
+
+    @Override
+    public Multimap<Long, ShardColumnStats> getShardColumnStats(TableHandle tableHandle)
+    {
+        checkNotNull(tableHandle, "tableHandle is null");
+        checkState(tableHandle instanceof NativeTableHandle, "can only get shard column stats for native tables");
+        long tableId = ((NativeTableHandle) tableHandle).getTableId();
+
+        ImmutableMultimap.Builder<Long, ShardColumnStats> builder = ImmutableMultimap.builder();
+        for (Map.Entry<Long, ShardColumnStats> entry : dao.getShardColumnStats(tableId)) {
+            builder.put(entry);
+        }
+        return builder.build();
+    }
+
     @Override
     public void dropShard(final long shardId)
     {
@@ -130,6 +171,7 @@ public class DatabaseShardManager
             {
                 ShardManagerDao dao = handle.attach(ShardManagerDao.class);
                 dao.deleteShardFromPartitionShards(shardId);
+                dao.deleteShardColumnStats(shardId);
                 dao.deleteShard(shardId);
             }
         });
@@ -144,6 +186,20 @@ public class DatabaseShardManager
         return dao.getPartitions(tableId);
     }
 
+    @Override
+    public Map<String, String> getPartitionVersions(TableHandle tableHandle)
+    {
+        checkNotNull(tableHandle, "tableHandle is null");
+        checkState(tableHandle instanceof NativeTableHandle, "can only get partition versions for native tables");
+        long tableId = ((NativeTableHandle) tableHandle).getTableId();
+
+        ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+        for (Map.Entry<String, String> entry : dao.getPartitionVersions(tableId)) {
+            builder.put(entry);
+        }
+        return builder.build();
+    }
+
     @Override
     public Multimap<String, ? extends PartitionKey> getAllPartitionKeys(TableHandle tableHandle)
     {
@@ -219,17 +275,22 @@ public class DatabaseShardManager
             protected void execute(Handle handle, TransactionStatus status)
                     throws Exception
             {
-                ShardManagerDao dao = handle.attach(ShardManagerDao.class);
-                List<Long> shardIds = dao.getAllShards(tableId, partitionName);
-                for (Long shardId : shardIds) {
-                    dao.deleteShardFromPartitionShards(shardId);
-                }
-                dao.dropPartitionKeys(tableId, partitionName);
-                dao.dropPartition(tableId, partitionName);
+                dropPartition(handle.attach(ShardManagerDao.class), tableId, partitionName);
             }
         });
     }
 
+    private static void dropPartition(ShardManagerDao dao, long tableId, String partitionName)
+    {
+        List<Long> shardIds = dao.getAllShards(tableId, partitionName);
+        for (Long shardId : shardIds) {
+            dao.deleteShardFromPartitionShards(shardId);
+        }
+        dao.dropPartitionKeys(tableId, partitionName);
+        dao.dropPartitionVersion(tableId, partitionName);
+        dao.dropPartition(tableId, partitionName);
+    }
+
     @Override
     public Iterable<Long> getOrphanedShardIds(Optional<String> nodeIdentifier)
     {
@@ -245,6 +306,7 @@ public class DatabaseShardManager
     public void dropOrphanedPartitions()
     {
         dao.dropAllOrphanedPartitions();
+        dao.dropAllOrphanedPartitionVersions();
     }
 
     private long getOrCreateNodeId(final String nodeIdentifier)
@@ -16,6 +16,8 @@ package com.facebook.presto.metadata;
 import com.facebook.presto.block.BlockIterable;
 import com.facebook.presto.spi.ColumnHandle;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 import java.util.List;
 
@@ -23,6 +25,12 @@ public interface LocalStorageManager
 {
     BlockIterable getBlocks(long shardId, ColumnHandle columnHandle);
 
+    /**
+     * Returns the stats of a column in an imported shard, or null if the shard has no data for the column.
+     */
+    @Nullable
+    ShardColumnStats getColumnStats(long shardId, ColumnHandle columnHandle);
+
     boolean shardExists(long shardId);
 
     void dropShard(long shardId);
@@ -18,6 +18,7 @@ import com.facebook.presto.spi.ColumnMetadata;
 import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.TableHandle;
+import com.facebook.presto.spi.TableStatistics;
 import com.facebook.presto.sql.analyzer.Type;
 import com.facebook.presto.sql.tree.QualifiedName;
 import com.google.common.base.Optional;
@@ -56,6 +57,14 @@ public interface Metadata
     @NotNull
     TableMetadata getTableMetadata(TableHandle tableHandle);
 
+    /**
+     * Return the estimated statistics for the specified table handle.
+     *
+     * @throws RuntimeException if table handle is no longer valid
+     */
+    @NotNull
+    TableStatistics getTableStatistics(TableHandle tableHandle);
+
     /**
      * Get the names that match the specified table prefix (never null).
      */
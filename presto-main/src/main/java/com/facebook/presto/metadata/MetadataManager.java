@@ -20,6 +20,7 @@ import com.facebook.presto.spi.ConnectorMetadata;
 import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.TableHandle;
+import com.facebook.presto.spi.TableStatistics;
 import com.facebook.presto.sql.analyzer.Type;
 import com.facebook.presto.sql.tree.QualifiedName;
 import com.google.common.base.Optional;
@@ -131,6 +132,12 @@ public class MetadataManager
         return new TableMetadata(getConnectorId(tableHandle), tableMetadata);
     }
 
+    @Override
+    public TableStatistics getTableStatistics(TableHandle tableHandle)
+    {
+        return lookupConnectorFor(tableHandle).getMetadata().getTableStatistics(tableHandle);
+    }
+
     @Override
     public Map<String, ColumnHandle> getColumnHandles(TableHandle tableHandle)
     {
@@ -0,0 +1,250 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.metadata;
+
+import com.facebook.presto.serde.BlocksFileStats;
+import com.facebook.presto.tuple.Tuple;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Objects;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+import javax.annotation.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+/**
+ * The zone map of a column in a shard: the null count and the range of the non-null values.
+ * The minimum and maximum are stored as strings, and a null minimum or maximum means the
+ * range is unbounded on that side.
+ */
+public class ShardColumnStats
+{
+    // matches the width of the value columns in the shard_column_stats table
+    static final int MAX_VALUE_LENGTH = 255;
+
+    private final long columnId;
+    private final String minValue;
+    private final String maxValue;
+    private final long nullCount;
+    private final long rowCount;
+
+    public static ShardColumnStats forMap(Map<String, Object> map)
+    {
+        return new ShardColumnStats(
+                ((Number) map.get("columnId")).longValue(),
+                (String) map.get("minValue"),
+                (String) map.get("maxValue"),
+                ((Number) map.get("nullCount")).longValue(),
+                ((Number) map.get("rowCount")).longValue());
+    }
+
+    public static ShardColumnStats forBlocksFileStats(long columnId, BlocksFileStats stats)
+    {
+        String minValue = toString(stats.getMin());
+        String maxValue = toString(stats.getMax());
+
+        // a prefix is still a lower bound, but not an upper bound
+        if (minValue != null && minValue.length() > MAX_VALUE_LENGTH) {
+            int length = MAX_VALUE_LENGTH;
+            if (Character.isHighSurrogate(minValue.charAt(length - 1))) {
+                length--;
+            }
+            minValue = minValue.substring(0, length);
+        }
+        if (maxValue != null && maxValue.length() > MAX_VALUE_LENGTH) {
+            maxValue = null;
+        }
+        return new ShardColumnStats(columnId, minValue, maxValue, stats.getNullCount(), stats.getRowCount());
+    }
+
+    @Nullable
+    private static String toString(@Nullable Tuple tuple)
+    {
+        if (tuple == null) {
+            return null;
+        }
+        Object value = tuple.toValues().get(0);
+        return (value == null) ? null : value.toString();
+    }
+
+    @JsonCreator
+    public ShardColumnStats(
+            @JsonProperty("columnId") long columnId,
+            @JsonProperty("minValue") @Nullable String minValue,
+            @JsonProperty("maxValue") @Nullable String maxValue,
+            @JsonProperty("nullCount") long nullCount,
+            @JsonProperty("rowCount") long rowCount)
+    {
+        this.columnId = columnId;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.nullCount = nullCount;
+        this.rowCount = rowCount;
+    }
+
+    @JsonProperty
+    public long getColumnId()
+    {
+        return columnId;
+    }
+
+    @Nullable
+    @JsonProperty
+    public String getMinValue()
+    {
+        return minValue;
+    }
+
+    @Nullable
+    @JsonProperty
+    public String getMaxValue()
+    {
+        return maxValue;
+    }
+
+    @JsonProperty
+    public long getNullCount()
+    {
+        return nullCount;
+    }
+
+    @JsonProperty
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    /**
+     * Checks if the column can contain the value in this shard.  Returns true if the value is of a type
+     * that can not be compared with the stored range, or the stored range can not be parsed.
+     */
+    public boolean mayContain(Object value)
+    {
+        if (rowCount > 0 && nullCount == rowCount) {
+            return false;
+        }
+
+        if (value instanceof Long) {
+            Long min = parseLong(minValue);
+            Long max = parseLong(maxValue);
+            long longValue = (Long) value;
+            return (min == null || min <= longValue) && (max == null || longValue <= max);
+        }
+        if (value instanceof Double) {
+            Double min = parseDouble(minValue);
+            Double max = parseDouble(maxValue);
+            double doubleValue = (Double) value;
+            // negated so that NaN never prunes
+            return !((min != null && doubleValue < min) || (max != null && doubleValue > max));
+        }
+        if (value instanceof Boolean) {
+            boolean booleanValue = (Boolean) value;
+            return (minValue == null || !minValue.equals("true") || booleanValue) &&
+                    (maxValue == null || !maxValue.equals("false") || !booleanValue);
+        }
+        if (value instanceof String) {
+            // strings compare by their UTF-8 bytes, like the slices they are stored as
+            Slice slice = Slices.copiedBuffer((String) value, UTF_8);
+            return (minValue == null || Slices.copiedBuffer(minValue, UTF_8).compareTo(slice) <= 0) &&
+                    (maxValue == null || slice.compareTo(Slices.copiedBuffer(maxValue, UTF_8)) <= 0);
+        }
+        return true;
+    }
+
+    @Nullable
+    private static Long parseLong(@Nullable String value)
+    {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value);
+        }
+        catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Double parseDouble(@Nullable String value)
+    {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.valueOf(value);
+        }
+        catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hashCode(columnId, minValue, maxValue, nullCount, rowCount);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final ShardColumnStats other = (ShardColumnStats) obj;
+        return Objects.equal(this.columnId, other.columnId) &&
+                Objects.equal(this.minValue, other.minValue) &&
+                Objects.equal(this.maxValue, other.maxValue) &&
+                Objects.equal(this.nullCount, other.nullCount) &&
+                Objects.equal(this.rowCount, other.rowCount);
+    }
+
+    @Override
+    public String toString()
+    {
+        return Objects.toStringHelper(this)
+                .add("columnId", columnId)
+                .add("minValue", minValue)
+                .add("maxValue", maxValue)
+                .add("nullCount", nullCount)
+                .add("rowCount", rowCount)
+                .toString();
+    }
+
+    public static class Mapper
+            implements ResultSetMapper<ShardColumnStats>
+    {
+        @Override
+        public ShardColumnStats map(int index, ResultSet r, StatementContext ctx)
+                throws SQLException
+        {
+            return new ShardColumnStats(r.getLong("column_id"),
+                    r.getString("min_value"),
+                    r.getString("max_value"),
+                    r.getLong("null_count"),
+                    r.getLong("row_count"));
+        }
+    }
+}
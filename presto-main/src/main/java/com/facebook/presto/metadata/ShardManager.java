@@ -37,6 +37,18 @@ public interface ShardManager
      */
     void commitShard(long shardId, String nodeIdentifier);
 
+    /**
+     * Record the column stats of a shard, which are used to prune the shard from scans.
+     */
+    void commitShardColumnStats(long shardId, List<ShardColumnStats> columnStats);
+
+    /**
+     * Get the column stats of all committed shards in a table.
+     *
+     * @return mapping of shard ID to the stats of its columns
+     */
+    Multimap<Long, ShardColumnStats> getShardColumnStats(TableHandle tableHandle);
+
     /**
      * Remove a shard from a node. When this method returns successfully, the shard will be no longer retrieved
      * from that node.
@@ -49,9 +61,11 @@ public interface ShardManager
     void dropShard(long shardId);
 
     /**
-     * Commit a partition for a table.
+     * Commit a partition for a table, replacing the partition if it was already committed.
+     *
+     * @param partitionVersion version of the source partition the shards were imported from, if known
      */
-    void commitPartition(TableHandle tableHandle, String partition, List<? extends PartitionKey> partitionKeys, Map<Long, String> shards);
+    void commitPartition(TableHandle tableHandle, String partition, Optional<String> partitionVersion, List<? extends PartitionKey> partitionKeys, Map<Long, String> shards);
 
     /**
      * Get the names of all partitions that have been successfully imported.
@@ -60,6 +74,13 @@ public interface ShardManager
      */
     Set<TablePartition> getPartitions(TableHandle tableHandle);
 
+    /**
+     * Get the source partition versions of the partitions that were committed with a version.
+     *
+     * @return mapping of partition name to version
+     */
+    Map<String, String> getPartitionVersions(TableHandle tableHandle);
+
     /**
      * Get all partition keys by Partition for a given table handle.
      */
@@ -14,18 +14,24 @@
 package com.facebook.presto.metadata;
 
 import com.facebook.presto.split.NativePartitionKey;
+import com.google.common.collect.Maps;
 import io.airlift.log.Logger;
 import io.airlift.units.Duration;
+import org.skife.jdbi.v2.StatementContext;
 import org.skife.jdbi.v2.exceptions.UnableToObtainConnectionException;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.GetGeneratedKeys;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
 import org.skife.jdbi.v2.sqlobject.customizers.Mapper;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
 
 import javax.annotation.Nullable;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -82,6 +88,26 @@ public interface ShardManagerDao
             ")")
     void createPartitionShards();
 
+    @SqlUpdate("CREATE TABLE IF NOT EXISTS shard_column_stats (\n" +
+            "  shard_id BIGINT NOT NULL,\n" +
+            "  column_id BIGINT NOT NULL,\n" +
+            "  min_value VARCHAR(255),\n" +
+            "  max_value VARCHAR(255),\n" +
+            "  null_count BIGINT NOT NULL,\n" +
+            "  row_count BIGINT NOT NULL,\n" +
+            "  PRIMARY KEY (shard_id, column_id),\n" +
+            "  FOREIGN KEY (shard_id) REFERENCES shards (shard_id)\n" +
+            ")")
+    void createShardColumnStats();
+
+    @SqlUpdate("CREATE TABLE IF NOT EXISTS partition_versions (\n" +
+            "  table_id BIGINT NOT NULL,\n" +
+            "  partition_name VARCHAR(255) NOT NULL,\n" +
+            "  partition_version VARCHAR(255) NOT NULL,\n" +
+            "  PRIMARY KEY (table_id, partition_name)\n" +
+            ")")
+    void createPartitionVersions();
+
     @SqlUpdate("INSERT INTO nodes (node_identifier) VALUES (:nodeIdentifier)")
     void insertNode(@Bind("nodeIdentifier") String nodeIdentifier);
 
@@ -122,6 +148,23 @@ public interface ShardManagerDao
             @Bind("tableId") long tableId,
             @Bind("partitionId") long partitionId);
 
+    @SqlUpdate("INSERT INTO shard_column_stats (shard_id, column_id, min_value, max_value, null_count, row_count)\n" +
+            "VALUES (:shardId, :columnId, :minValue, :maxValue, :nullCount, :rowCount)\n")
+    void insertShardColumnStats(
+            @Bind("shardId") long shardId,
+            @Bind("columnId") long columnId,
+            @Nullable @Bind("minValue") String minValue,
+            @Nullable @Bind("maxValue") String maxValue,
+            @Bind("nullCount") long nullCount,
+            @Bind("rowCount") long rowCount);
+
+    @SqlUpdate("INSERT INTO partition_versions (table_id, partition_name, partition_version)\n" +
+            "VALUES (:tableId, :partitionName, :partitionVersion)\n")
+    void insertPartitionVersion(
+            @Bind("tableId") long tableId,
+            @Bind("partitionName") String partitionName,
+            @Bind("partitionVersion") String partitionVersion);
+
     @SqlUpdate("UPDATE shards SET committed = TRUE WHERE shard_id = :shardId")
     void commitShard(@Bind("shardId") long shardId);
 
@@ -170,6 +213,20 @@ public interface ShardManagerDao
     @Mapper(ShardNode.Mapper.class)
     List<ShardNode> getAllShardNodes(@Bind("tableId") long tableId, @Bind("partitionName") String partitionName);
 
+    @SqlQuery("SELECT s.shard_id, cs.column_id, cs.min_value, cs.max_value, cs.null_count, cs.row_count\n" +
+            "FROM shard_column_stats cs\n" +
+            "JOIN shards s ON (cs.shard_id = s.shard_id)\n" +
+            "WHERE s.committed IS TRUE\n" +
+            "  AND s.table_id = :tableId\n")
+    @Mapper(ShardColumnStatsMapper.class)
+    List<Map.Entry<Long, ShardColumnStats>> getShardColumnStats(@Bind("tableId") long tableId);
+
+    @SqlQuery("SELECT partition_name, partition_version\n" +
+            "FROM partition_versions\n" +
+            "WHERE table_id = :tableId\n")
+    @Mapper(PartitionVersionMapper.class)
+    List<Map.Entry<String, String>> getPartitionVersions(@Bind("tableId") long tableId);
+
     @SqlQuery("SELECT node_identifier FROM nodes")
     List<String> getAllNodesInUse();
 
@@ -188,6 +245,10 @@ public interface ShardManagerDao
             "WHERE shard_id = :shardId\n")
     void deleteShardFromPartitionShards(@Bind("shardId") long shardId);
 
+    @SqlUpdate("DELETE FROM shard_column_stats\n" +
+            "WHERE shard_id = :shardId\n")
+    void deleteShardColumnStats(@Bind("shardId") long shardId);
+
     @SqlUpdate("DELETE FROM shards\n" +
             "  WHERE shard_id = :shardId\n")
     void deleteShard(@Bind("shardId") long shardId);
@@ -207,6 +268,11 @@ public interface ShardManagerDao
             "  AND partition_name = :partitionName\n")
     void dropPartitionKeys(@Bind("tableId") long tableId, @Bind("partitionName") String partitionName);
 
+    @SqlUpdate("DELETE FROM partition_versions\n" +
+            "WHERE table_id = :tableId\n" +
+            "  AND partition_name = :partitionName\n")
+    void dropPartitionVersion(@Bind("tableId") long tableId, @Bind("partitionName") String partitionName);
+
     @SqlQuery("SELECT s.shard_id FROM shards s\n" +
             " LEFT JOIN shard_nodes sn ON (s.shard_id = sn.shard_id)\n" +
             " LEFT JOIN nodes n ON (sn.node_id = n.node_id)\n" +
@@ -226,6 +292,34 @@ public interface ShardManagerDao
             "  AND partition_id NOT IN (SELECT partition_id FROM partition_shards)\n")
     void dropAllOrphanedPartitions();
 
+    @SqlUpdate("DELETE FROM partition_versions\n" +
+            "  WHERE table_id NOT IN (SELECT table_id FROM tables)\n")
+    void dropAllOrphanedPartitionVersions();
+
+    public static class ShardColumnStatsMapper
+            implements ResultSetMapper<Map.Entry<Long, ShardColumnStats>>
+    {
+        private final ShardColumnStats.Mapper statsMapper = new ShardColumnStats.Mapper();
+
+        @Override
+        public Map.Entry<Long, ShardColumnStats> map(int index, ResultSet r, StatementContext ctx)
+                throws SQLException
+        {
+            return Maps.immutableEntry(r.getLong("shard_id"), statsMapper.map(index, r, ctx));
+        }
+    }
+
+    public static class PartitionVersionMapper
+            implements ResultSetMapper<Map.Entry<String, String>>
+    {
+        @Override
+        public Map.Entry<String, String> map(int index, ResultSet r, StatementContext ctx)
+                throws SQLException
+        {
+            return Maps.immutableEntry(r.getString("partition_name"), r.getString("partition_version"));
+        }
+    }
+
     public static class Utils
     {
         public static final Logger log = Logger.get(ShardManagerDao.class);
@@ -254,6 +348,8 @@ public interface ShardManagerDao
             dao.createTablePartitions();
             dao.createPartitionKeys();
             dao.createPartitionShards();
+            dao.createShardColumnStats();
+            dao.createPartitionVersions();
         }
     }
 }
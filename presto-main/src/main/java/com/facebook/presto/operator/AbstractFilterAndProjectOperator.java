@@ -30,6 +30,7 @@ public abstract class AbstractFilterAndProjectOperator
     private final List<TupleInfo> tupleInfos;
 
     private final PageBuilder pageBuilder;
+    private int[] selectedPositions = new int[0];
     private boolean finishing;
 
     public AbstractFilterAndProjectOperator(OperatorContext operatorContext, Iterable<TupleInfo> tupleInfos)
@@ -41,6 +42,28 @@ public abstract class AbstractFilterAndProjectOperator
 
     protected abstract void filterAndProjectRowOriented(Block[] blocks, PageBuilder pageBuilder);
 
+    /**
+     * Filters the page and appends the projections of the selected positions to the page builder.
+     * By default the page is processed one row at a time, but generated operators override this to
+     * first build a vector of the positions selected by the filter, and then compute each projection
+     * over only those positions.
+     */
+    protected void filterAndProjectPage(Block[] blocks, PageBuilder pageBuilder)
+    {
+        filterAndProjectRowOriented(blocks, pageBuilder);
+    }
+
+    /**
+     * Returns a buffer for the selected positions of a page, which is reused across pages.
+     */
+    protected final int[] getSelectedPositions(int positionCount)
+    {
+        if (selectedPositions.length < positionCount) {
+            selectedPositions = new int[positionCount];
+        }
+        return selectedPositions;
+    }
+
     @Override
     public OperatorContext getOperatorContext()
     {
@@ -85,7 +108,7 @@ public abstract class AbstractFilterAndProjectOperator
         checkState(!pageBuilder.isFull(), "Page buffer is full");
 
         Block[] blocks = page.getBlocks();
-        filterAndProjectRowOriented(blocks, pageBuilder);
+        filterAndProjectPage(blocks, pageBuilder);
     }
 
     @Override
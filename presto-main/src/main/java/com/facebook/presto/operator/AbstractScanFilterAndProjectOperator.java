@@ -43,6 +43,7 @@ public abstract class AbstractScanFilterAndProjectOperator
     private final List<TupleInfo> tupleInfos;
     private final List<ColumnHandle> columns;
     private final PageBuilder pageBuilder;
+    private int[] selectedPositions = new int[0];
 
     @GuardedBy("this")
     private RecordCursor cursor;
@@ -74,6 +75,28 @@ public abstract class AbstractScanFilterAndProjectOperator
 
     protected abstract int filterAndProjectRowOriented(RecordCursor cursor, PageBuilder pageBuilder);
 
+    /**
+     * Filters the page and appends the projections of the selected positions to the page builder.
+     * By default the page is processed one row at a time, but generated operators override this to
+     * first build a vector of the positions selected by the filter, and then compute each projection
+     * over only those positions.
+     */
+    protected void filterAndProjectPage(Block[] blocks, PageBuilder pageBuilder)
+    {
+        filterAndProjectRowOriented(blocks, pageBuilder);
+    }
+
+    /**
+     * Returns a buffer for the selected positions of a page, which is reused across pages.
+     */
+    protected final int[] getSelectedPositions(int positionCount)
+    {
+        if (selectedPositions.length < positionCount) {
+            selectedPositions = new int[positionCount];
+        }
+        return selectedPositions;
+    }
+
     @Override
     public OperatorContext getOperatorContext()
     {
@@ -187,7 +210,7 @@ public abstract class AbstractScanFilterAndProjectOperator
             else {
                 Page output = operator.getOutput();
                 if (output != null) {
-                    filterAndProjectRowOriented(output.getBlocks(), pageBuilder);
+                    filterAndProjectPage(output.getBlocks(), pageBuilder);
                 }
             }
         }
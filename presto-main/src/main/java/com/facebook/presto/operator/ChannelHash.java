@@ -15,165 +15,315 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.block.BlockCursor;
 import com.facebook.presto.tuple.TupleInfo;
+import com.google.common.collect.ImmutableList;
 import io.airlift.slice.Slice;
-import io.airlift.units.DataSize;
-import io.airlift.units.DataSize.Unit;
-import it.unimi.dsi.fastutil.ints.IntArrayList;
-import it.unimi.dsi.fastutil.longs.Long2IntMap;
-import it.unimi.dsi.fastutil.longs.Long2IntOpenCustomHashMap;
-import it.unimi.dsi.fastutil.longs.LongHash;
-import it.unimi.dsi.fastutil.longs.LongHash.Strategy;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
 
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 
+import static com.facebook.presto.operator.FixedWidthKeys.getKey;
+import static com.facebook.presto.operator.FixedWidthKeys.hashKey;
+import static com.facebook.presto.operator.FixedWidthKeys.isFixedWidthKey;
 import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
 import static com.facebook.presto.operator.SyntheticAddress.decodeSliceOffset;
-import static com.facebook.presto.operator.SyntheticAddress.encodeSyntheticAddress;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 import static io.airlift.slice.SizeOf.sizeOf;
+import static it.unimi.dsi.fastutil.HashCommon.arraySize;
+import static it.unimi.dsi.fastutil.HashCommon.murmurHash3;
 
-public class ChannelHash
+@ThreadSafe
+public final class ChannelHash
 {
     //
-    // This class is effectively a Multimap<KeyAddress,Position>.
+    // This class is effectively an immutable Multimap<Key,Position>.
+    //
+    // The key fields are read directly from the hash channels of the pages index by the hash strategy.
     //
-    // The key address is a SyntheticAddress and the position is the position of the key withing the
-    // channel index.
+    // The multimap itself is formed out of open addressing hash tables and a position chaining array.
+    // The hash tables contain the last position of each key, and the remaining positions with the same
+    // key are located using the position links array.  The tables are split into a power of two number
+    // of partitions using the low bits of the key hash, so the partitions can be built by different
+    // threads without any coordination: every position belongs to exactly one partition, so the writes
+    // to the shared position links are disjoint.
     //
-    // The multimap itself is formed out of a regular map and position chaining array.  To perform a
-    // lookup, the "lookup" slice is set in the hash, and a synthetic address within the "lookup" slice
-    // is created. The "lookup" slice is given index -1 as to not conflict with any slices
-    // in the channel index.  Then first position is retrieved from the main address to position map.
-    // If a position was found, the remaining value positions are located using the position links array.
+    // Lookups compare the key cursors directly against the positions in the index, so no state is
+    // kept for a lookup and a single instance is shared by all probe threads.
+    //
+    // When the key is a single fixed width field, the key of every position is copied into a long
+    // array, and the keys are hashed and compared as longs instead of through the hash strategy.
+    // Positions with a null key are left out of the tables, since null keys never match in a join.
     //
 
-    private static final int LOOKUP_SLICE_INDEX = 0xFF_FF_FF_FF;
+    private static final float FILL_RATIO = 0.75f;
 
-    private final SliceHashStrategy hashStrategy;
-    private final AddressToPositionMap addressToPositionMap;
-    private final IntArrayList positionLinks;
+    private final MultiChannelHashStrategy hashStrategy;
+    @Nullable
+    private final long[] positionKeys;
+    private final int[] positionHashes;
+    private final int[] positionLinks;
+    private final int partitionMask;
+    private final int partitionBits;
+    private final int[][] partitions;
 
-    public ChannelHash(ChannelIndex channelIndex, OperatorContext operatorContext)
+    private ChannelHash(MultiChannelHashStrategy hashStrategy, @Nullable long[] positionKeys, int[] positionHashes, int[] positionLinks, int[][] partitions)
     {
-        hashStrategy = new SliceHashStrategy(channelIndex.getTupleInfo(), channelIndex.getSlices().elements());
-        addressToPositionMap = new AddressToPositionMap(channelIndex.getPositionCount(), hashStrategy);
-        addressToPositionMap.defaultReturnValue(-1);
-        positionLinks = new IntArrayList(new int[channelIndex.getValueAddresses().size()]);
-        Arrays.fill(positionLinks.elements(), -1);
-        for (int position = 0; position < channelIndex.getValueAddresses().size(); position++) {
-            operatorContext.setMemoryReservation(getEstimatedSize());
-            long sliceAddress = channelIndex.getValueAddresses().elements()[position];
-            int oldPosition = addressToPositionMap.put(sliceAddress, position);
-            if (oldPosition >= 0) {
-                // link the new position to the old position
-                positionLinks.set(position, oldPosition);
-            }
-        }
+        this.hashStrategy = hashStrategy;
+        this.positionKeys = positionKeys;
+        this.positionHashes = positionHashes;
+        this.positionLinks = positionLinks;
+        this.partitions = partitions;
+        this.partitionMask = partitions.length - 1;
+        this.partitionBits = Integer.numberOfTrailingZeros(partitions.length);
     }
 
-    public ChannelHash(ChannelHash hash)
+    public int get(BlockCursor[] cursors)
     {
-        // hash strategy can not be shared across threads, but everything else can
-        this.hashStrategy = new SliceHashStrategy(hash.hashStrategy.tupleInfo, hash.hashStrategy.slices);
-        this.addressToPositionMap = new AddressToPositionMap(hash.addressToPositionMap, hashStrategy);
-        addressToPositionMap.defaultReturnValue(-1);
-        this.positionLinks = hash.positionLinks;
-    }
+        if (positionKeys != null) {
+            return getFixedWidthKey(getKey(cursors[0]));
+        }
 
-    private long getEstimatedSize()
-    {
-        long addressToPositionSize = addressToPositionMap.getEstimatedSize().toBytes();
-        long positionLinksSize = sizeOf(positionLinks.elements());
-        return addressToPositionSize + positionLinksSize;
+        int hash = murmurHash3(hashStrategy.hashCursors(cursors));
+        int[] table = partitions[hash & partitionMask];
+        int mask = table.length - 1;
+
+        int slot = (hash >>> partitionBits) & mask;
+        while (table[slot] != -1) {
+            int position = table[slot];
+            if (positionHashes[position] == hash && hashStrategy.positionEqualsCursors(position, cursors)) {
+                return position;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
     }
 
-    public void setLookupSlice(Slice lookupSlice)
+    private int getFixedWidthKey(long key)
     {
-        hashStrategy.setLookupSlice(lookupSlice);
+        int hash = hashKey(key);
+        int[] table = partitions[hash & partitionMask];
+        int mask = table.length - 1;
+
+        int slot = (hash >>> partitionBits) & mask;
+        while (table[slot] != -1) {
+            int position = table[slot];
+            if (positionKeys[position] == key) {
+                return position;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
     }
 
-    public int get(BlockCursor cursor)
+    public int getNextPosition(int currentPosition)
     {
-        int position = addressToPositionMap.get(encodeSyntheticAddress(LOOKUP_SLICE_INDEX, cursor.getRawOffset()));
-        return position;
+        return positionLinks[currentPosition];
     }
 
-    public int getNextPosition(int currentPosition)
+    /**
+     * Computes the hash of the key at every position of the pages index.
+     */
+    public static int[] hashPositions(PagesIndex pagesIndex, List<Integer> hashChannels)
     {
-        return positionLinks.getInt(currentPosition);
+        if (isFixedWidthKey(getKeyTupleInfos(pagesIndex, hashChannels))) {
+            long[] positionKeys = getPositionKeys(pagesIndex.getIndex(hashChannels.get(0)), new BitSet());
+            int[] positionHashes = new int[positionKeys.length];
+            for (int position = 0; position < positionHashes.length; position++) {
+                positionHashes[position] = hashKey(positionKeys[position]);
+            }
+            return positionHashes;
+        }
+
+        MultiChannelHashStrategy hashStrategy = new MultiChannelHashStrategy(pagesIndex, hashChannels);
+        int[] positionHashes = new int[pagesIndex.getPositionCount()];
+        for (int position = 0; position < positionHashes.length; position++) {
+            positionHashes[position] = murmurHash3(hashStrategy.hashCode(position));
+        }
+        return positionHashes;
     }
 
-    public static class SliceHashStrategy
-            implements Strategy
+    /**
+     * Builds a {@link ChannelHash} one partition at a time.  Each partition may be built by a different
+     * thread, but the hash may only be created after all partitions have been built, and the builder
+     * must be safely published to the thread that creates the hash.
+     */
+    public static class Builder
     {
-        private final TupleInfo tupleInfo;
-        private final Slice[] slices;
-        private Slice lookupSlice;
+        private final MultiChannelHashStrategy hashStrategy;
+        @Nullable
+        private final long[] positionKeys;
+        private final BitSet nullPositions = new BitSet();
+        private final int[] positionHashes;
+        private final int[] positionLinks;
+        private final int[][] partitions;
 
-        public SliceHashStrategy(TupleInfo tupleInfo, Slice[] slices)
+        public Builder(PagesIndex pagesIndex, List<Integer> hashChannels, int[] positionHashes, int partitionCount)
         {
-            this.tupleInfo = tupleInfo;
-            this.slices = slices;
+            checkNotNull(pagesIndex, "pagesIndex is null");
+            checkNotNull(hashChannels, "hashChannels is null");
+            checkNotNull(positionHashes, "positionHashes is null");
+            checkArgument(positionHashes.length == pagesIndex.getPositionCount(), "positionHashes does not match the position count of the pages index");
+            checkArgument(partitionCount > 0 && Integer.bitCount(partitionCount) == 1, "partitionCount must be a power of two");
+
+            this.hashStrategy = new MultiChannelHashStrategy(pagesIndex, hashChannels);
+            if (isFixedWidthKey(getKeyTupleInfos(pagesIndex, hashChannels))) {
+                this.positionKeys = getPositionKeys(pagesIndex.getIndex(hashChannels.get(0)), nullPositions);
+            }
+            else {
+                this.positionKeys = null;
+            }
+            this.positionHashes = positionHashes;
+            this.positionLinks = new int[positionHashes.length];
+            Arrays.fill(positionLinks, -1);
+            this.partitions = new int[partitionCount][];
         }
 
-        public void setLookupSlice(Slice lookupSlice)
+        public int getPartitionCount()
         {
-            this.lookupSlice = lookupSlice;
+            return partitions.length;
         }
 
-        @Override
-        public int hashCode(long sliceAddress)
+        /**
+         * Returns the estimated size of the data shared by all partitions.
+         */
+        public long getEstimatedSize()
         {
-            Slice slice = getSliceForSyntheticAddress(sliceAddress);
-            int offset = (int) sliceAddress;
-            int length = tupleInfo.size(slice, offset);
-            int hashCode = slice.hashCode(offset, length);
-            return hashCode;
+            long size = sizeOf(positionHashes) + sizeOf(positionLinks);
+            if (positionKeys != null) {
+                size += sizeOf(positionKeys) + nullPositions.size() / 8;
+            }
+            return size;
         }
 
-        @Override
-        public boolean equals(long leftSliceAddress, long rightSliceAddress)
+        /**
+         * Builds the hash table for the specified partition, and returns the estimated size of the table.
+         */
+        public long buildPartition(int partition)
         {
-            Slice leftSlice = getSliceForSyntheticAddress(leftSliceAddress);
-            int leftOffset = decodeSliceOffset(leftSliceAddress);
-            int leftLength = tupleInfo.size(leftSlice, leftOffset);
+            checkElementIndex(partition, partitions.length, "partition");
+            checkState(partitions[partition] == null, "Partition %s is already built", partition);
 
-            Slice rightSlice = getSliceForSyntheticAddress(rightSliceAddress);
-            int rightOffset = decodeSliceOffset(rightSliceAddress);
-            int rightLength = tupleInfo.size(rightSlice, rightOffset);
+            int partitionMask = partitions.length - 1;
+            int partitionBits = Integer.numberOfTrailingZeros(partitions.length);
 
-            return leftSlice.equals(leftOffset, leftLength, rightSlice, rightOffset, rightLength);
+            int positionCount = 0;
+            for (int hash : positionHashes) {
+                if ((hash & partitionMask) == partition) {
+                    positionCount++;
+                }
+            }
+
+            if (positionKeys != null) {
+                int[] table = buildFixedWidthKeyPartition(partition, positionCount);
+                partitions[partition] = table;
+                return sizeOf(table);
+            }
+
+            int[] table = new int[arraySize(positionCount, FILL_RATIO)];
+            Arrays.fill(table, -1);
+            int mask = table.length - 1;
+
+            for (int position = 0; position < positionHashes.length; position++) {
+                int hash = positionHashes[position];
+                if ((hash & partitionMask) != partition) {
+                    continue;
+                }
+
+                int slot = (hash >>> partitionBits) & mask;
+                while (table[slot] != -1) {
+                    int oldPosition = table[slot];
+                    if (positionHashes[oldPosition] == hash && hashStrategy.equals(oldPosition, position)) {
+                        // link the new position to the old position
+                        positionLinks[position] = oldPosition;
+                        break;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = position;
+            }
+
+            partitions[partition] = table;
+            return sizeOf(table);
         }
 
-        private Slice getSliceForSyntheticAddress(long sliceAddress)
+        private int[] buildFixedWidthKeyPartition(int partition, int positionCount)
         {
-            int sliceIndex = decodeSliceIndex(sliceAddress);
-            Slice slice;
-            if (sliceIndex == LOOKUP_SLICE_INDEX) {
-                slice = lookupSlice;
+            int partitionMask = partitions.length - 1;
+            int partitionBits = Integer.numberOfTrailingZeros(partitions.length);
+
+            int[] table = new int[arraySize(positionCount, FILL_RATIO)];
+            Arrays.fill(table, -1);
+            int mask = table.length - 1;
+
+            for (int position = 0; position < positionHashes.length; position++) {
+                int hash = positionHashes[position];
+                if ((hash & partitionMask) != partition || nullPositions.get(position)) {
+                    continue;
+                }
+
+                long key = positionKeys[position];
+                int slot = (hash >>> partitionBits) & mask;
+                while (table[slot] != -1) {
+                    int oldPosition = table[slot];
+                    if (positionKeys[oldPosition] == key) {
+                        // link the new position to the old position
+                        positionLinks[position] = oldPosition;
+                        break;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = position;
             }
-            else {
-                slice = slices[sliceIndex];
+            return table;
+        }
+
+        public ChannelHash build()
+        {
+            for (int partition = 0; partition < partitions.length; partition++) {
+                checkState(partitions[partition] != null, "Partition %s has not been built", partition);
             }
-            return slice;
+            return new ChannelHash(hashStrategy, positionKeys, positionHashes, positionLinks, partitions.clone());
         }
     }
 
-    private static class AddressToPositionMap
-            extends Long2IntOpenCustomHashMap
+    private static List<TupleInfo> getKeyTupleInfos(PagesIndex pagesIndex, List<Integer> hashChannels)
     {
-        private AddressToPositionMap(int expected, LongHash.Strategy strategy)
-        {
-            super(expected, strategy);
+        ImmutableList.Builder<TupleInfo> tupleInfos = ImmutableList.builder();
+        for (int channel : hashChannels) {
+            tupleInfos.add(pagesIndex.getTupleInfo(channel));
         }
+        return tupleInfos.build();
+    }
 
-        private AddressToPositionMap(Long2IntMap m, LongHash.Strategy strategy)
-        {
-            super(m, strategy);
-        }
+    /**
+     * Copies the fixed width key of every position of the channel index, and marks the positions with a null key.
+     */
+    private static long[] getPositionKeys(ChannelIndex index, BitSet nullPositions)
+    {
+        TupleInfo tupleInfo = index.getTupleInfo();
+        ObjectArrayList<Slice> slices = index.getSlices();
+        LongArrayList valueAddresses = index.getValueAddresses();
 
-        public DataSize getEstimatedSize()
-        {
-            return new DataSize(sizeOf(this.key) + sizeOf(this.value) + sizeOf(this.used), Unit.BYTE);
+        long[] positionKeys = new long[valueAddresses.size()];
+        for (int position = 0; position < positionKeys.length; position++) {
+            long address = valueAddresses.getLong(position);
+            Slice slice = slices.get(decodeSliceIndex(address));
+            int offset = decodeSliceOffset(address);
+            if (tupleInfo.isNull(slice, offset, 0)) {
+                nullPositions.set(position);
+            }
+            else {
+                positionKeys[position] = getKey(tupleInfo, slice, offset);
+            }
         }
+        return positionKeys;
     }
 }
@@ -121,6 +121,26 @@ public class ChannelIndex
         }
     }
 
+    /**
+     * Appends the positions of the specified index to the end of this index.  The slices are shared
+     * with the other index, so they are not included in the estimated size of this index.
+     */
+    public void addIndex(ChannelIndex other)
+    {
+        Preconditions.checkArgument(tupleInfo.equals(other.tupleInfo), "other index has a different tuple info");
+        positionCount += other.positionCount;
+
+        int sliceIndexOffset = slices.size();
+        slices.addAll(other.slices);
+        slicesMemorySize += other.slicesMemorySize;
+
+        LongListIterator addresses = other.valueAddresses.iterator();
+        while (addresses.hasNext()) {
+            long sliceAddress = addresses.nextLong();
+            valueAddresses.add(encodeSyntheticAddress(sliceIndexOffset + decodeSliceIndex(sliceAddress), decodeSliceOffset(sliceAddress)));
+        }
+    }
+
     public void appendTo(int position, BlockBuilder output)
     {
         // get slice an offset for the position
@@ -18,12 +18,19 @@ import com.facebook.presto.block.BlockBuilder;
 import com.facebook.presto.block.BlockCursor;
 import com.facebook.presto.block.uncompressed.UncompressedBlock;
 import com.facebook.presto.tuple.TupleInfo;
+import com.google.common.collect.ImmutableList;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 import io.airlift.units.DataSize;
 import it.unimi.dsi.fastutil.longs.LongHash;
 import it.unimi.dsi.fastutil.longs.LongOpenCustomHashSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 
+import javax.annotation.Nullable;
+
+import static com.facebook.presto.block.BlockUtils.toUncompressedBlock;
+import static com.facebook.presto.operator.FixedWidthKeys.getKey;
+import static com.facebook.presto.operator.FixedWidthKeys.isFixedWidthKey;
 import static com.facebook.presto.operator.SliceHashStrategy.LOOKUP_SLICE_INDEX;
 import static com.facebook.presto.operator.SyntheticAddress.encodeSyntheticAddress;
 import static com.google.common.base.Preconditions.checkArgument;
@@ -32,24 +39,45 @@ import static com.google.common.base.Preconditions.checkState;
 import static io.airlift.slice.SizeOf.sizeOf;
 import static io.airlift.units.DataSize.Unit.BYTE;
 
+/**
+ * Set of the values of a single field channel.  Values of a fixed width type are stored in a set
+ * of longs, and all other values are copied to slices and stored as synthetic addresses in a set
+ * that compares the raw bytes of the values.
+ */
 public class ChannelSet
 {
+    // set when the values are not fixed width
+    @Nullable
     private final SliceHashStrategy strategy;
+    @Nullable
     private final AddressValueSet addressValueSet;
+
+    // set when the values are fixed width, and shared by all copies since lookups do not modify the set
+    @Nullable
+    private final LongValueSet longValueSet;
+
     private final boolean containsNull;
 
     public ChannelSet(ChannelSet channelSet)
     {
         checkNotNull(channelSet, "channelSet is null");
-        this.strategy = new SliceHashStrategy(channelSet.strategy);
-        this.addressValueSet = new AddressValueSet(channelSet.addressValueSet, strategy);
+        if (channelSet.longValueSet != null) {
+            this.strategy = null;
+            this.addressValueSet = null;
+        }
+        else {
+            this.strategy = new SliceHashStrategy(channelSet.strategy);
+            this.addressValueSet = new AddressValueSet(channelSet.addressValueSet, strategy);
+        }
+        this.longValueSet = channelSet.longValueSet;
         this.containsNull = channelSet.containsNull;
     }
 
-    private ChannelSet(SliceHashStrategy strategy, AddressValueSet addressValueSet, boolean containsNull)
+    private ChannelSet(@Nullable SliceHashStrategy strategy, @Nullable AddressValueSet addressValueSet, @Nullable LongValueSet longValueSet, boolean containsNull)
     {
         this.strategy = strategy;
         this.addressValueSet = addressValueSet;
+        this.longValueSet = longValueSet;
         this.containsNull = containsNull;
     }
 
@@ -60,21 +88,35 @@ public class ChannelSet
 
     public void setLookupSlice(Slice lookupSlice)
     {
-        strategy.setLookupSlice(lookupSlice);
+        if (strategy != null) {
+            strategy.setLookupSlice(lookupSlice);
+        }
     }
 
+    /**
+     * Checks if the non-null value at the current position of the cursor is in this set.
+     */
     public boolean contains(BlockCursor cursor)
     {
+        if (longValueSet != null) {
+            return longValueSet.contains(getKey(cursor));
+        }
         return addressValueSet.contains(SyntheticAddress.encodeSyntheticAddress(LOOKUP_SLICE_INDEX, cursor.getRawOffset()));
     }
 
     public int size()
     {
+        if (longValueSet != null) {
+            return longValueSet.size();
+        }
         return addressValueSet.size();
     }
 
     public DataSize getEstimatedSize()
     {
+        if (longValueSet != null) {
+            return longValueSet.getEstimatedSize();
+        }
         return new DataSize(addressValueSet.getEstimatedSize().toBytes() + strategy.getEstimatedSize().toBytes(), BYTE);
     }
 
@@ -97,10 +139,25 @@ public class ChannelSet
         }
     }
 
+    private static class LongValueSet
+            extends LongOpenHashSet
+    {
+        private LongValueSet(int expected)
+        {
+            super(expected);
+        }
+
+        public DataSize getEstimatedSize()
+        {
+            return new DataSize(sizeOf(this.key) + sizeOf(this.used), BYTE);
+        }
+    }
+
     public static class ChannelSetBuilder
     {
         private final SliceHashStrategy strategy;
         private final AddressValueSet addressValueSet;
+        private final LongValueSet longValueSet;
         private final OperatorContext operatorContext;
         private final TupleInfo tupleInfo;
 
@@ -117,6 +174,14 @@ public class ChannelSet
             checkArgument(tupleInfo.getFieldCount() == 1, "ChannelSet only supports single field set building channels");
             // Supporting multi-field channel sets (e.g. tuples) is much more difficult because of null handling, and hence is not supported by this class.
 
+            if (isFixedWidthKey(ImmutableList.of(tupleInfo))) {
+                strategy = null;
+                addressValueSet = null;
+                longValueSet = new LongValueSet(expectedPositions);
+                return;
+            }
+            longValueSet = null;
+
             // Construct the set from the source
             strategy = new SliceHashStrategy(tupleInfo);
             addressValueSet = new AddressValueSet(expectedPositions, strategy);
@@ -127,12 +192,26 @@ public class ChannelSet
             blockBuilder = new BlockBuilder(tupleInfo, slice.length(), slice.getOutput());
         }
 
-        public void addBlock(Block sourceBlock)
+        public void addBlock(Block block)
         {
             operatorContext.setMemoryReservation(getEstimatedSize());
 
+            if (longValueSet != null) {
+                BlockCursor cursor = block.cursor();
+                while (cursor.advanceNextPosition()) {
+                    if (cursor.isNull(0)) {
+                        containsNull = true;
+                    }
+                    else {
+                        longValueSet.add(getKey(cursor));
+                    }
+                }
+                return;
+            }
+
+            UncompressedBlock sourceBlock = toUncompressedBlock(block);
             BlockCursor sourceCursor = sourceBlock.cursor();
-            Slice sourceSlice = ((UncompressedBlock) sourceBlock).getSlice();
+            Slice sourceSlice = sourceBlock.getSlice();
             strategy.setLookupSlice(sourceSlice);
 
             for (int position = 0; position < sourceBlock.getPositionCount(); position++) {
@@ -160,12 +239,15 @@ public class ChannelSet
 
         public long getEstimatedSize()
         {
+            if (longValueSet != null) {
+                return longValueSet.getEstimatedSize().toBytes();
+            }
             return addressValueSet.getEstimatedSize().toBytes() + strategy.getEstimatedSize().toBytes();
         }
 
         public ChannelSet build()
         {
-            return new ChannelSet(strategy, addressValueSet, containsNull);
+            return new ChannelSet(strategy, addressValueSet, longValueSet, containsNull);
         }
     }
 }
@@ -0,0 +1,205 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockCursor;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.facebook.presto.tuple.TupleInfo;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Passes pages through unchanged while collecting the distinct values of the
+ * specified channels.  When the input is finished, the values are reported to
+ * the coordinator as a {@link DistinctValuesResult}.  Channels with more than
+ * the maximum number of distinct values are reported as unknown.
+ */
+public class CollectDistinctValuesOperator
+        implements Operator
+{
+    public static class CollectDistinctValuesOperatorFactory
+            implements OperatorFactory
+    {
+        private final int operatorId;
+        private final PlanNodeId sourceId;
+        private final List<TupleInfo> tupleInfos;
+        private final List<Integer> channels;
+        private final int maxDistinctValues;
+        private boolean closed;
+
+        public CollectDistinctValuesOperatorFactory(int operatorId, PlanNodeId sourceId, List<TupleInfo> tupleInfos, List<Integer> channels, int maxDistinctValues)
+        {
+            this.operatorId = operatorId;
+            this.sourceId = checkNotNull(sourceId, "sourceId is null");
+            this.tupleInfos = ImmutableList.copyOf(checkNotNull(tupleInfos, "tupleInfos is null"));
+            this.channels = ImmutableList.copyOf(checkNotNull(channels, "channels is null"));
+            checkArgument(maxDistinctValues > 0, "maxDistinctValues must be greater than zero");
+            this.maxDistinctValues = maxDistinctValues;
+        }
+
+        @Override
+        public List<TupleInfo> getTupleInfos()
+        {
+            return tupleInfos;
+        }
+
+        @Override
+        public Operator createOperator(DriverContext driverContext)
+        {
+            checkState(!closed, "Factory is already closed");
+            OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, CollectDistinctValuesOperator.class.getSimpleName());
+            return new CollectDistinctValuesOperator(operatorContext, sourceId, tupleInfos, channels, maxDistinctValues);
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+    }
+
+    private final OperatorContext operatorContext;
+    private final PlanNodeId sourceId;
+    private final List<TupleInfo> tupleInfos;
+    private final int[] channels;
+    private final int maxDistinctValues;
+
+    // the distinct values of each channel, or null once a channel has too many values
+    private final List<Set<Object>> values;
+
+    private Page nextPage;
+    private boolean finishing;
+
+    public CollectDistinctValuesOperator(OperatorContext operatorContext, PlanNodeId sourceId, List<TupleInfo> tupleInfos, List<Integer> channels, int maxDistinctValues)
+    {
+        this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
+        this.sourceId = checkNotNull(sourceId, "sourceId is null");
+        this.tupleInfos = checkNotNull(tupleInfos, "tupleInfos is null");
+        checkNotNull(channels, "channels is null");
+        checkArgument(maxDistinctValues > 0, "maxDistinctValues must be greater than zero");
+
+        this.channels = new int[channels.size()];
+        this.values = new ArrayList<>(channels.size());
+        for (int i = 0; i < channels.size(); i++) {
+            this.channels[i] = channels.get(i);
+            this.values.add(new HashSet<>());
+        }
+        this.maxDistinctValues = maxDistinctValues;
+    }
+
+    @Override
+    public OperatorContext getOperatorContext()
+    {
+        return operatorContext;
+    }
+
+    @Override
+    public List<TupleInfo> getTupleInfos()
+    {
+        return tupleInfos;
+    }
+
+    @Override
+    public void finish()
+    {
+        if (finishing) {
+            return;
+        }
+        finishing = true;
+        operatorContext.addOutputItems(sourceId, ImmutableSet.of(new DistinctValuesResult(values)));
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return finishing && nextPage == null;
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        return NOT_BLOCKED;
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        return !finishing && nextPage == null;
+    }
+
+    @Override
+    public void addInput(Page page)
+    {
+        checkNotNull(page, "page is null");
+        checkState(needsInput(), "Operator can not take input at this time");
+
+        for (int i = 0; i < channels.length; i++) {
+            Set<Object> channelValues = values.get(i);
+            if (channelValues == null) {
+                continue;
+            }
+
+            Block block = page.getBlock(channels[i]);
+            TupleInfo.Type type = block.getTupleInfo().getTypes().get(0);
+            BlockCursor cursor = block.cursor();
+            while (cursor.advanceNextPosition()) {
+                if (cursor.isNull(0)) {
+                    // null keys never match in a join
+                    continue;
+                }
+                channelValues.add(getValue(type, cursor));
+                if (channelValues.size() > maxDistinctValues) {
+                    values.set(i, null);
+                    break;
+                }
+            }
+        }
+        nextPage = page;
+    }
+
+    @Override
+    public Page getOutput()
+    {
+        Page page = nextPage;
+        nextPage = null;
+        return page;
+    }
+
+    private static Object getValue(TupleInfo.Type type, BlockCursor cursor)
+    {
+        switch (type) {
+            case BOOLEAN:
+                return cursor.getBoolean(0);
+            case FIXED_INT_64:
+                return cursor.getLong(0);
+            case DOUBLE:
+                return cursor.getDouble(0);
+            case VARIABLE_BINARY:
+                return cursor.getSlice(0).toStringUtf8();
+            default:
+                throw new IllegalArgumentException("Unsupported type " + type);
+        }
+    }
+}
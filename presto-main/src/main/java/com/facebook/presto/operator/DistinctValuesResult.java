@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The distinct values of one or more channels seen by a worker.  A null entry
+ * means the channel had too many distinct values to be reported.
+ */
+public class DistinctValuesResult
+{
+    private final List<Set<Object>> values;
+
+    @SuppressWarnings("unchecked")
+    public static DistinctValuesResult forMap(Map<String, Object> map)
+    {
+        return new DistinctValuesResult((List<Collection<Object>>) map.get("values"));
+    }
+
+    @JsonCreator
+    public DistinctValuesResult(@JsonProperty("values") List<? extends Collection<Object>> values)
+    {
+        checkNotNull(values, "values is null");
+
+        List<Set<Object>> copy = new ArrayList<>(values.size());
+        for (Collection<Object> channelValues : values) {
+            copy.add(channelValues == null ? null : ImmutableSet.copyOf(channelValues));
+        }
+        this.values = Collections.unmodifiableList(copy);
+    }
+
+    @JsonProperty
+    public List<Set<Object>> getValues()
+    {
+        return values;
+    }
+
+    @Nullable
+    public Set<Object> getValues(int channel)
+    {
+        return values.get(channel);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hashCode(values);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        DistinctValuesResult other = (DistinctValuesResult) obj;
+        return Objects.equal(this.values, other.values);
+    }
+
+    @Override
+    public String toString()
+    {
+        return Objects.toStringHelper(this)
+                .add("values", values)
+                .toString();
+    }
+}
@@ -17,6 +17,7 @@ import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.sql.analyzer.Session;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.base.Function;
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import io.airlift.stats.CounterStat;
@@ -24,6 +25,7 @@ import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 import org.joda.time.DateTime;
 
+import java.io.File;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -138,6 +140,11 @@ public class DriverContext
         return pipelineContext.getMaxMemorySize();
     }
 
+    public Optional<File> getSpillPath()
+    {
+        return pipelineContext.getSpillPath();
+    }
+
     public boolean reserveMemory(long bytes)
     {
         boolean result = pipelineContext.reserveMemory(bytes);
@@ -147,6 +154,12 @@ public class DriverContext
         return result;
     }
 
+    public void freeMemory(long bytes)
+    {
+        pipelineContext.freeMemory(bytes);
+        memoryReservation.getAndAdd(-bytes);
+    }
+
     public boolean isCpuTimerEnabled()
     {
         return pipelineContext.isCpuTimerEnabled();
@@ -30,6 +30,7 @@ public class DriverFactory
 {
     private final boolean inputDriver;
     private final boolean outputDriver;
+    private final int driverInstances;
     private final List<OperatorFactory> operatorFactories;
     private final Set<PlanNodeId> sourceIds;
     private boolean closed;
@@ -47,8 +48,19 @@ public class DriverFactory
 
     public DriverFactory(boolean inputDriver, boolean outputDriver, List<OperatorFactory> operatorFactories)
     {
+        this(inputDriver, outputDriver, 1, operatorFactories);
+    }
+
+    /**
+     * @param driverInstances the number of drivers to create for this pipeline when it does not
+     * process the partitioned source of the task
+     */
+    public DriverFactory(boolean inputDriver, boolean outputDriver, int driverInstances, List<OperatorFactory> operatorFactories)
+    {
+        checkArgument(driverInstances > 0, "driverInstances must be at least 1");
         this.inputDriver = inputDriver;
         this.outputDriver = outputDriver;
+        this.driverInstances = driverInstances;
         this.operatorFactories = ImmutableList.copyOf(checkNotNull(operatorFactories, "operatorFactories is null"));
         checkArgument(!operatorFactories.isEmpty(), "There must be at least one operator");
 
@@ -72,6 +84,11 @@ public class DriverFactory
         return outputDriver;
     }
 
+    public int getDriverInstances()
+    {
+        return driverInstances;
+    }
+
     public Set<PlanNodeId> getSourceIds()
     {
         return sourceIds;
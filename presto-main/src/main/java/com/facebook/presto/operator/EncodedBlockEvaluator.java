@@ -0,0 +1,180 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockBuilder;
+import com.facebook.presto.block.BlockCursor;
+import com.facebook.presto.block.dictionary.Dictionary;
+import com.facebook.presto.block.dictionary.DictionaryEncodedBlock;
+import com.facebook.presto.block.rle.RunLengthEncodedBlock;
+import com.facebook.presto.tuple.TupleInfo;
+import com.facebook.presto.tuple.TupleReadable;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Evaluates filters and projections that read a single channel.  A run length encoded block is
+ * evaluated once for the whole run, and a dictionary encoded block once for each dictionary entry
+ * used by the block, and the results are then mapped back to the positions of the block.  Other
+ * blocks are evaluated one position at a time.
+ */
+public final class EncodedBlockEvaluator
+{
+    private static final byte NOT_EVALUATED = 0;
+    private static final byte SELECTED = 1;
+    private static final byte REJECTED = 2;
+
+    private EncodedBlockEvaluator()
+    {
+    }
+
+    /**
+     * The single channel filter and projections of a generated filter and project operator.
+     */
+    public interface ChannelFunctions
+    {
+        boolean filterValue(TupleReadable value);
+
+        void projectValue(int projection, TupleReadable value, BlockBuilder output);
+    }
+
+    /**
+     * Checks if the block is evaluated once per run or dictionary entry instead of once per position.
+     */
+    public static boolean isEncoded(Block block)
+    {
+        return block instanceof RunLengthEncodedBlock || isSmallDictionary(block);
+    }
+
+    /**
+     * Records the positions of the block selected by the filter, and returns the number of selected positions.
+     */
+    public static int filter(ChannelFunctions functions, Block block, int[] selectedPositions)
+    {
+        int positionCount = block.getPositionCount();
+
+        if (block instanceof RunLengthEncodedBlock) {
+            if (!functions.filterValue(((RunLengthEncodedBlock) block).getValue())) {
+                return 0;
+            }
+            for (int position = 0; position < positionCount; position++) {
+                selectedPositions[position] = position;
+            }
+            return positionCount;
+        }
+
+        int selectedCount = 0;
+        if (isSmallDictionary(block)) {
+            DictionaryEncodedBlock dictionaryBlock = (DictionaryEncodedBlock) block;
+            Dictionary dictionary = dictionaryBlock.getDictionary();
+
+            // entries are evaluated the first time they are used
+            byte[] results = new byte[dictionary.size()];
+            BlockCursor ids = dictionaryBlock.getIdBlock().cursor();
+            for (int position = 0; position < positionCount; position++) {
+                checkState(ids.advanceNextPosition());
+                int id = (int) ids.getLong(0);
+                if (results[id] == NOT_EVALUATED) {
+                    results[id] = functions.filterValue(dictionary.getTuple(id)) ? SELECTED : REJECTED;
+                }
+                if (results[id] == SELECTED) {
+                    selectedPositions[selectedCount++] = position;
+                }
+            }
+            return selectedCount;
+        }
+
+        BlockCursor cursor = block.cursor();
+        for (int position = 0; position < positionCount; position++) {
+            checkState(cursor.advanceNextPosition());
+            if (functions.filterValue(cursor)) {
+                selectedPositions[selectedCount++] = position;
+            }
+        }
+        return selectedCount;
+    }
+
+    /**
+     * Appends the projection of each selected position of the block to the output.
+     */
+    public static void project(ChannelFunctions functions, int projection, Block block, int[] selectedPositions, int selectedCount, BlockBuilder output)
+    {
+        if (selectedCount == 0) {
+            return;
+        }
+
+        if (block instanceof RunLengthEncodedBlock) {
+            BlockBuilder values = createValuesBuilder(output.getTupleInfo());
+            functions.projectValue(projection, ((RunLengthEncodedBlock) block).getValue(), values);
+
+            Slice value = values.build().getSlice();
+            for (int index = 0; index < selectedCount; index++) {
+                output.appendTuple(value, 0, value.length());
+            }
+            return;
+        }
+
+        if (isSmallDictionary(block)) {
+            DictionaryEncodedBlock dictionaryBlock = (DictionaryEncodedBlock) block;
+            Dictionary dictionary = dictionaryBlock.getDictionary();
+
+            // project each used entry once, and record the offset of the result
+            BlockBuilder values = createValuesBuilder(output.getTupleInfo());
+            int[] valueOffsets = new int[dictionary.size()];
+            Arrays.fill(valueOffsets, -1);
+            int[] ids = new int[selectedCount];
+            BlockCursor idCursor = dictionaryBlock.getIdBlock().cursor();
+            for (int index = 0; index < selectedCount; index++) {
+                checkState(idCursor.advanceToPosition(selectedPositions[index]));
+                int id = (int) idCursor.getLong(0);
+                if (valueOffsets[id] < 0) {
+                    valueOffsets[id] = values.size();
+                    functions.projectValue(projection, dictionary.getTuple(id), values);
+                }
+                ids[index] = id;
+            }
+
+            Slice slice = values.build().getSlice();
+            for (int index = 0; index < selectedCount; index++) {
+                output.appendTuple(slice, valueOffsets[ids[index]]);
+            }
+            return;
+        }
+
+        BlockCursor cursor = block.cursor();
+        for (int index = 0; index < selectedCount; index++) {
+            checkState(cursor.advanceToPosition(selectedPositions[index]));
+            functions.projectValue(projection, cursor, output);
+        }
+    }
+
+    /**
+     * Entries are only evaluated separately when the dictionary is not larger than the block, so
+     * a page never does more work than it would position at a time.
+     */
+    private static boolean isSmallDictionary(Block block)
+    {
+        return block instanceof DictionaryEncodedBlock && ((DictionaryEncodedBlock) block).getDictionary().size() <= block.getPositionCount();
+    }
+
+    private static BlockBuilder createValuesBuilder(TupleInfo tupleInfo)
+    {
+        return new BlockBuilder(tupleInfo, Integer.MAX_VALUE, new DynamicSliceOutput(64));
+    }
+}
@@ -14,6 +14,7 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.operator.HttpPageBufferClient.ClientCallback;
+import com.facebook.presto.serde.PagesCompression;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import com.google.common.io.Closeables;
@@ -56,6 +57,7 @@ public class ExchangeClient
     private final long maxBufferedBytes;
     private final DataSize maxResponseSize;
     private final int concurrentRequestMultiplier;
+    private final PagesCompression requestedCompression;
     private final AsyncHttpClient httpClient;
     private final Executor executor;
 
@@ -90,10 +92,21 @@ public class ExchangeClient
             int concurrentRequestMultiplier,
             AsyncHttpClient httpClient,
             Executor executor)
+    {
+        this(maxBufferedBytes, maxResponseSize, concurrentRequestMultiplier, PagesCompression.NONE, httpClient, executor);
+    }
+
+    public ExchangeClient(DataSize maxBufferedBytes,
+            DataSize maxResponseSize,
+            int concurrentRequestMultiplier,
+            PagesCompression requestedCompression,
+            AsyncHttpClient httpClient,
+            Executor executor)
     {
         this.maxBufferedBytes = maxBufferedBytes.toBytes();
         this.maxResponseSize = maxResponseSize;
         this.concurrentRequestMultiplier = concurrentRequestMultiplier;
+        this.requestedCompression = checkNotNull(requestedCompression, "requestedCompression is null");
         this.httpClient = httpClient;
         this.executor = checkNotSameThreadExecutor(executor, "executor");
     }
@@ -105,11 +118,16 @@ public class ExchangeClient
             bufferedPages--;
         }
 
+        long compressedBytesReceived = 0;
+        long uncompressedBytesReceived = 0;
         ImmutableList.Builder<PageBufferClientStatus> exchangeStatus = ImmutableList.builder();
         for (HttpPageBufferClient client : allClients.values()) {
-            exchangeStatus.add(client.getStatus());
+            PageBufferClientStatus status = client.getStatus();
+            compressedBytesReceived += status.getCompressedBytesReceived();
+            uncompressedBytesReceived += status.getUncompressedBytesReceived();
+            exchangeStatus.add(status);
         }
-        return new ExchangeClientStatus(bufferBytes, averageBytesPerRequest, bufferedPages, exchangeStatus.build());
+        return new ExchangeClientStatus(bufferBytes, averageBytesPerRequest, bufferedPages, compressedBytesReceived, uncompressedBytesReceived, exchangeStatus.build());
     }
 
     public synchronized void addLocation(URI location)
@@ -234,7 +252,7 @@ public class ExchangeClient
         // add clients for new locations
         for (URI location : locations) {
             if (!allClients.containsKey(location)) {
-                HttpPageBufferClient client = new HttpPageBufferClient(httpClient, maxResponseSize, location, new ExchangeClientCallback(), executor);
+                HttpPageBufferClient client = new HttpPageBufferClient(httpClient, maxResponseSize, location, new ExchangeClientCallback(), requestedCompression, executor);
                 allClients.put(location, client);
                 queuedClients.add(client);
             }
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.serde.PagesCompression;
 import com.google.common.base.Supplier;
 import io.airlift.http.client.AsyncHttpClient;
 import io.airlift.units.DataSize;
@@ -30,6 +31,7 @@ public class ExchangeClientFactory
 {
     private final DataSize maxBufferedBytes;
     private final int concurrentRequestMultiplier;
+    private final PagesCompression requestedCompression;
     private final AsyncHttpClient httpClient;
     private final DataSize maxResponseSize;
     private final Executor executor;
@@ -40,6 +42,7 @@ public class ExchangeClientFactory
         this(config.getExchangeMaxBufferSize(),
                 new DataSize(10, Unit.MEGABYTE),
                 config.getExchangeConcurrentRequestMultiplier(),
+                config.isExchangeCompressionEnabled() ? PagesCompression.SNAPPY : PagesCompression.NONE,
                 httpClient,
                 executor);
     }
@@ -47,11 +50,13 @@ public class ExchangeClientFactory
     public ExchangeClientFactory(DataSize maxBufferedBytes,
             DataSize maxResponseSize,
             int concurrentRequestMultiplier,
+            PagesCompression requestedCompression,
             AsyncHttpClient httpClient,
             Executor executor)
     {
         this.maxBufferedBytes = checkNotNull(maxBufferedBytes, "maxBufferedBytes is null");
         this.concurrentRequestMultiplier = concurrentRequestMultiplier;
+        this.requestedCompression = checkNotNull(requestedCompression, "requestedCompression is null");
         this.httpClient = checkNotNull(httpClient, "httpClient is null");
         this.maxResponseSize = checkNotNull(maxResponseSize, "maxResponseSize is null");
         this.executor = checkNotNull(executor, "executor is null");
@@ -64,6 +69,6 @@ public class ExchangeClientFactory
     @Override
     public ExchangeClient get()
     {
-        return new ExchangeClient(maxBufferedBytes, maxResponseSize, concurrentRequestMultiplier, httpClient, executor);
+        return new ExchangeClient(maxBufferedBytes, maxResponseSize, concurrentRequestMultiplier, requestedCompression, httpClient, executor);
     }
 }
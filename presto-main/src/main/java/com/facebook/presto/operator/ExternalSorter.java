@@ -0,0 +1,276 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockBuilder;
+import com.facebook.presto.block.BlockCursor;
+import com.facebook.presto.operator.PagesIndex.MultiSliceFieldOrderedTupleComparator;
+import com.facebook.presto.tuple.TupleInfo;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Sorts pages in a {@link PagesIndex}.  When the memory reservation of the operator can not grow
+ * to cover the index and the task has a spill path, the index is sorted and written to a spill
+ * file as a sorted run, and a new index is started.  Once all pages are added, the sorted runs
+ * are read back with a k-way merge that only holds the current page of each run in memory.
+ */
+@NotThreadSafe
+public class ExternalSorter
+        implements Closeable
+{
+    private final OperatorContext operatorContext;
+    private final List<TupleInfo> tupleInfos;
+    private final int expectedPositions;
+    private final int orderByChannel;
+    private final int[] sortFields;
+    private final boolean[] sortOrder;
+    private final Optional<File> spillPath;
+
+    private final List<SpillFile> runs = new ArrayList<>();
+    private PagesIndex pagesIndex;
+    private MergedRuns mergedRuns;
+    private boolean finished;
+
+    public ExternalSorter(
+            OperatorContext operatorContext,
+            List<TupleInfo> tupleInfos,
+            int expectedPositions,
+            int orderByChannel,
+            int[] sortFields,
+            boolean[] sortOrder)
+    {
+        this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
+        this.tupleInfos = ImmutableList.copyOf(checkNotNull(tupleInfos, "tupleInfos is null"));
+        this.expectedPositions = expectedPositions;
+        this.orderByChannel = orderByChannel;
+        this.sortFields = checkNotNull(sortFields, "sortFields is null").clone();
+        this.sortOrder = checkNotNull(sortOrder, "sortOrder is null").clone();
+        this.spillPath = operatorContext.getSpillPath();
+
+        this.pagesIndex = new PagesIndex(tupleInfos, expectedPositions, operatorContext);
+    }
+
+    public void addPage(Page page)
+    {
+        checkState(!finished, "Sorter is already finished");
+        checkNotNull(page, "page is null");
+
+        if (!pagesIndex.tryAddPage(page)) {
+            checkState(spillPath.isPresent(), "Task exceeded max memory size of %s", operatorContext.getMaxMemorySize());
+
+            // start over with an empty index, the memory already reserved will be reused
+            spill();
+        }
+    }
+
+    /**
+     * Sorts the added pages.  If nothing was spilled, the sorted pages are in {@link #getSortedIndex},
+     * otherwise they must be read with {@link #getMergedRuns}.
+     */
+    public void finish()
+    {
+        if (finished) {
+            return;
+        }
+        finished = true;
+
+        if (runs.isEmpty()) {
+            pagesIndex.sort(orderByChannel, sortFields, sortOrder);
+            return;
+        }
+
+        if (pagesIndex.getPositionCount() > 0) {
+            spill();
+        }
+        pagesIndex = null;
+        mergedRuns = new MergedRuns(runs);
+    }
+
+    public boolean isSpilled()
+    {
+        return !runs.isEmpty();
+    }
+
+    public PagesIndex getSortedIndex()
+    {
+        checkState(finished, "Sorter is not finished");
+        checkState(!isSpilled(), "Pages were spilled to disk");
+        return pagesIndex;
+    }
+
+    public MergedRuns getMergedRuns()
+    {
+        checkState(finished, "Sorter is not finished");
+        checkState(isSpilled(), "Pages were not spilled to disk");
+        return mergedRuns;
+    }
+
+    @Override
+    public void close()
+    {
+        for (SpillFile run : runs) {
+            run.close();
+        }
+    }
+
+    /**
+     * Sorts the current index and writes it to a new spill file.
+     */
+    private void spill()
+    {
+        pagesIndex.sort(orderByChannel, sortFields, sortOrder);
+
+        SpillFile spillFile = new SpillFile(spillPath.get());
+        runs.add(spillFile);
+
+        PageBuilder pageBuilder = new PageBuilder(tupleInfos);
+        for (int position = 0; position < pagesIndex.getPositionCount(); position++) {
+            for (int channel = 0; channel < tupleInfos.size(); channel++) {
+                pagesIndex.appendTupleTo(channel, position, pageBuilder.getBlockBuilder(channel));
+            }
+            if (pageBuilder.isFull()) {
+                operatorContext.recordSpill(spillFile.append(pageBuilder.build()));
+                pageBuilder.reset();
+            }
+        }
+        if (!pageBuilder.isEmpty()) {
+            operatorContext.recordSpill(spillFile.append(pageBuilder.build()));
+        }
+
+        pagesIndex = new PagesIndex(tupleInfos, expectedPositions, operatorContext);
+    }
+
+    /**
+     * Cursor over the positions of all sorted runs in sort order.
+     */
+    public class MergedRuns
+    {
+        private final PriorityQueue<RunCursor> queue;
+        private RunCursor current;
+
+        private MergedRuns(List<SpillFile> runs)
+        {
+            MultiSliceFieldOrderedTupleComparator comparator = new MultiSliceFieldOrderedTupleComparator(sortFields, sortOrder, tupleInfos.get(orderByChannel));
+
+            queue = new PriorityQueue<>(runs.size());
+            for (int i = 0; i < runs.size(); i++) {
+                RunCursor cursor = new RunCursor(i, runs.get(i).read(), orderByChannel, comparator);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+        }
+
+        public boolean advanceNextPosition()
+        {
+            if (current != null && current.advance()) {
+                queue.add(current);
+            }
+            current = queue.poll();
+            if (current == null) {
+                // all runs are consumed, so the spill files are no longer needed
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        public Slice getRawSlice(int channel)
+        {
+            checkState(current != null, "Cursor is not positioned");
+            return current.getCursors()[channel].getRawSlice();
+        }
+
+        public int getRawOffset(int channel)
+        {
+            checkState(current != null, "Cursor is not positioned");
+            return current.getCursors()[channel].getRawOffset();
+        }
+
+        public void appendTupleTo(int channel, BlockBuilder blockBuilder)
+        {
+            checkState(current != null, "Cursor is not positioned");
+            current.getCursors()[channel].appendTupleTo(blockBuilder);
+        }
+    }
+
+    private static class RunCursor
+            implements Comparable<RunCursor>
+    {
+        private final int run;
+        private final Iterator<Page> pages;
+        private final int orderByChannel;
+        private final MultiSliceFieldOrderedTupleComparator comparator;
+        private BlockCursor[] cursors;
+
+        private RunCursor(int run, Iterator<Page> pages, int orderByChannel, MultiSliceFieldOrderedTupleComparator comparator)
+        {
+            this.run = run;
+            this.pages = pages;
+            this.orderByChannel = orderByChannel;
+            this.comparator = comparator;
+        }
+
+        public BlockCursor[] getCursors()
+        {
+            return cursors;
+        }
+
+        public boolean advance()
+        {
+            while (cursors == null || !cursors[0].advanceNextPosition()) {
+                if (!pages.hasNext()) {
+                    return false;
+                }
+                Block[] blocks = pages.next().getBlocks();
+                cursors = new BlockCursor[blocks.length];
+                for (int i = 0; i < blocks.length; i++) {
+                    cursors[i] = blocks[i].cursor();
+                }
+            }
+            for (int i = 1; i < cursors.length; i++) {
+                checkState(cursors[i].advanceNextPosition());
+            }
+            return true;
+        }
+
+        @Override
+        public int compareTo(RunCursor other)
+        {
+            BlockCursor cursor = cursors[orderByChannel];
+            BlockCursor otherCursor = other.cursors[orderByChannel];
+            int comparison = comparator.compare(cursor.getRawSlice(), cursor.getRawOffset(), otherCursor.getRawSlice(), otherCursor.getRawOffset());
+            if (comparison != 0) {
+                return comparison;
+            }
+            // keep equal positions in the order of the runs they were spilled in
+            return Integer.compare(run, other.run);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.block.BlockCursor;
+import com.facebook.presto.tuple.TupleInfo;
+import io.airlift.slice.Slice;
+
+import java.util.List;
+
+import static it.unimi.dsi.fastutil.HashCommon.murmurHash3;
+
+/**
+ * Helpers for hash tables keyed by a single fixed width field.  Such keys are stored in the
+ * tables as a {@code long}, so they can be hashed and compared without decoding synthetic
+ * addresses or comparing the raw bytes of the tuples.  Null keys can not be represented as
+ * a {@code long} and must be handled separately by the tables.
+ */
+public final class FixedWidthKeys
+{
+    private FixedWidthKeys()
+    {
+    }
+
+    /**
+     * Checks if the key formed by the specified channels is a single fixed width field.
+     */
+    public static boolean isFixedWidthKey(List<TupleInfo> keyTupleInfos)
+    {
+        if (keyTupleInfos.size() != 1 || keyTupleInfos.get(0).getFieldCount() != 1) {
+            return false;
+        }
+        switch (keyTupleInfos.get(0).getTypes().get(0)) {
+            case FIXED_INT_64:
+            case DOUBLE:
+            case BOOLEAN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public static long getKey(BlockCursor cursor)
+    {
+        switch (cursor.getTupleInfo().getTypes().get(0)) {
+            case FIXED_INT_64:
+                return cursor.getLong(0);
+            case DOUBLE:
+                return Double.doubleToLongBits(cursor.getDouble(0));
+            case BOOLEAN:
+                return cursor.getBoolean(0) ? 1 : 0;
+            default:
+                throw new IllegalArgumentException("Not a fixed width key: " + cursor.getTupleInfo());
+        }
+    }
+
+    public static long getKey(TupleInfo tupleInfo, Slice slice, int offset)
+    {
+        switch (tupleInfo.getTypes().get(0)) {
+            case FIXED_INT_64:
+                return tupleInfo.getLong(slice, offset, 0);
+            case DOUBLE:
+                return Double.doubleToLongBits(tupleInfo.getDouble(slice, offset, 0));
+            case BOOLEAN:
+                return tupleInfo.getBoolean(slice, offset, 0) ? 1 : 0;
+            default:
+                throw new IllegalArgumentException("Not a fixed width key: " + tupleInfo);
+        }
+    }
+
+    public static int hashKey(long key)
+    {
+        long hash = murmurHash3(key);
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -16,6 +16,10 @@ package com.facebook.presto.operator;
 import com.facebook.presto.block.Block;
 import com.facebook.presto.block.BlockBuilder;
 import com.facebook.presto.block.BlockCursor;
+import com.facebook.presto.block.dictionary.Dictionary;
+import com.facebook.presto.block.dictionary.DictionaryEncodedBlock;
+import com.facebook.presto.block.dictionary.DictionaryEncodedBlockCursor;
+import com.facebook.presto.block.rle.RunLengthEncodedBlock;
 import com.facebook.presto.block.uncompressed.UncompressedBlock;
 import com.facebook.presto.operator.aggregation.AggregationFunction;
 import com.facebook.presto.operator.aggregation.FixedWidthAggregationFunction;
@@ -24,37 +28,48 @@ import com.facebook.presto.sql.planner.plan.AggregationNode.Step;
 import com.facebook.presto.sql.tree.Input;
 import com.facebook.presto.tuple.TupleInfo;
 import com.google.common.base.Function;
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.slice.SizeOf;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
-import it.unimi.dsi.fastutil.longs.Long2IntOpenCustomHashMap;
-import it.unimi.dsi.fastutil.longs.LongHash.Strategy;
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenCustomHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 
+import java.io.Closeable;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
 
-import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
-import static com.facebook.presto.operator.SyntheticAddress.decodeSliceOffset;
+import static com.facebook.presto.operator.FixedWidthKeys.getKey;
+import static com.facebook.presto.operator.FixedWidthKeys.isFixedWidthKey;
+import static com.facebook.presto.operator.MultiChannelHashStrategy.LOOKUP_POSITION;
 import static com.facebook.presto.operator.SyntheticAddress.encodeSyntheticAddress;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 public class HashAggregationOperator
-        implements Operator
+        implements Operator, Closeable
 {
     public static class HashAggregationOperatorFactory
             implements OperatorFactory
     {
         private final int operatorId;
-        private final TupleInfo groupByTupleInfo;
-        private final int groupByChannel;
+        private final List<TupleInfo> groupByTupleInfos;
+        private final List<Integer> groupByChannels;
         private final Step step;
         private final List<AggregationFunctionDefinition> functionDefinitions;
         private final int expectedGroups;
@@ -63,20 +78,20 @@ public class HashAggregationOperator
 
         public HashAggregationOperatorFactory(
                 int operatorId,
-                TupleInfo groupByTupleInfo,
-                int groupByChannel,
+                List<TupleInfo> groupByTupleInfos,
+                List<Integer> groupByChannels,
                 Step step,
                 List<AggregationFunctionDefinition> functionDefinitions,
                 int expectedGroups)
         {
             this.operatorId = operatorId;
-            this.groupByTupleInfo = groupByTupleInfo;
-            this.groupByChannel = groupByChannel;
+            this.groupByTupleInfos = ImmutableList.copyOf(checkNotNull(groupByTupleInfos, "groupByTupleInfos is null"));
+            this.groupByChannels = ImmutableList.copyOf(checkNotNull(groupByChannels, "groupByChannels is null"));
             this.step = step;
             this.functionDefinitions = functionDefinitions;
             this.expectedGroups = expectedGroups;
 
-            this.tupleInfos = toTupleInfos(groupByTupleInfo, step, functionDefinitions);
+            this.tupleInfos = toTupleInfos(groupByTupleInfos, step, functionDefinitions);
         }
 
         @Override
@@ -93,8 +108,8 @@ public class HashAggregationOperator
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, HashAggregationOperator.class.getSimpleName());
             return new HashAggregationOperator(
                     operatorContext,
-                    groupByTupleInfo,
-                    groupByChannel,
+                    groupByTupleInfos,
+                    groupByChannels,
                     step,
                     functionDefinitions,
                     expectedGroups
@@ -108,44 +123,48 @@ public class HashAggregationOperator
         }
     }
 
-    private static final int LOOKUP_SLICE_INDEX = 0xFF_FF_FF_FF;
-
     private final OperatorContext operatorContext;
-    private final TupleInfo groupByTupleInfo;
-    private final int groupByChannel;
+    private final List<TupleInfo> groupByTupleInfos;
+    private final List<Integer> groupByChannels;
     private final Step step;
     private final List<AggregationFunctionDefinition> functionDefinitions;
     private final int expectedGroups;
 
     private final List<TupleInfo> tupleInfos;
     private final HashMemoryManager memoryManager;
+    private final Optional<File> spillPath;
 
     private GroupByHashAggregationBuilder aggregationBuilder;
     private Iterator<Page> outputIterator;
+    private List<SpillFile> spillFiles;
     private boolean finishing;
 
     public HashAggregationOperator(
             OperatorContext operatorContext,
-            TupleInfo groupByTupleInfo,
-            int groupByChannel,
+            List<TupleInfo> groupByTupleInfos,
+            List<Integer> groupByChannels,
             Step step,
             List<AggregationFunctionDefinition> functionDefinitions,
             int expectedGroups)
     {
         this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
-        Preconditions.checkArgument(groupByChannel >= 0, "groupByChannel is negative");
+        Preconditions.checkNotNull(groupByTupleInfos, "groupByTupleInfos is null");
+        Preconditions.checkNotNull(groupByChannels, "groupByChannels is null");
+        Preconditions.checkArgument(!groupByChannels.isEmpty(), "groupByChannels is empty");
+        Preconditions.checkArgument(groupByTupleInfos.size() == groupByChannels.size(), "groupByTupleInfos and groupByChannels do not match");
         Preconditions.checkNotNull(step, "step is null");
         Preconditions.checkNotNull(functionDefinitions, "functionDefinitions is null");
         Preconditions.checkNotNull(operatorContext, "operatorContext is null");
 
-        this.groupByTupleInfo = groupByTupleInfo;
-        this.groupByChannel = groupByChannel;
+        this.groupByTupleInfos = ImmutableList.copyOf(groupByTupleInfos);
+        this.groupByChannels = ImmutableList.copyOf(groupByChannels);
         this.functionDefinitions = ImmutableList.copyOf(functionDefinitions);
         this.step = step;
         this.expectedGroups = expectedGroups;
         this.memoryManager = new HashMemoryManager(operatorContext);
+        this.spillPath = operatorContext.getSpillPath();
 
-        this.tupleInfos = toTupleInfos(groupByTupleInfo, step, functionDefinitions);
+        this.tupleInfos = toTupleInfos(groupByTupleInfos, step, functionDefinitions);
     }
 
     @Override
@@ -169,7 +188,7 @@ public class HashAggregationOperator
     @Override
     public boolean isFinished()
     {
-        return finishing && aggregationBuilder == null && (outputIterator == null || !outputIterator.hasNext());
+        return finishing && aggregationBuilder == null && spillFiles == null && (outputIterator == null || !outputIterator.hasNext());
     }
 
     @Override
@@ -194,8 +213,8 @@ public class HashAggregationOperator
                     functionDefinitions,
                     step,
                     expectedGroups,
-                    groupByChannel,
-                    groupByTupleInfo,
+                    groupByChannels,
+                    groupByTupleInfos,
                     memoryManager);
 
             // assume initial aggregationBuilder is not full
@@ -210,6 +229,17 @@ public class HashAggregationOperator
     public Page getOutput()
     {
         if (outputIterator == null || !outputIterator.hasNext()) {
+            // groups were spilled, so once all input is consumed merge the spilled runs
+            if (finishing && spillFiles != null) {
+                if (aggregationBuilder != null) {
+                    spill(aggregationBuilder);
+                    aggregationBuilder = null;
+                }
+                outputIterator = new SpilledRunsMerger(spillFiles);
+                spillFiles = null;
+                return outputIterator.hasNext() ? outputIterator.next() : null;
+            }
+
             // no data
             if (aggregationBuilder == null) {
                 return null;
@@ -220,8 +250,16 @@ public class HashAggregationOperator
                 return null;
             }
 
-            // Only partial aggregation can flush early. Also, check that we are not flushing tiny bits at a time
-            checkState(finishing || step == Step.PARTIAL, "Task exceeded max memory size of %s", memoryManager.getMaxMemorySize());
+            // Partial aggregation flushes its groups early.  Final and single aggregation cannot output
+            // a group until all input is seen, so a full builder is sorted and spilled to disk instead.
+            if (!finishing && step != Step.PARTIAL) {
+                checkState(spillPath.isPresent(), "Task exceeded max memory size of %s", memoryManager.getMaxMemorySize());
+
+                // start over with an empty builder, the memory already reserved will be reused
+                spill(aggregationBuilder);
+                aggregationBuilder = null;
+                return null;
+            }
 
             outputIterator = aggregationBuilder.build();
             aggregationBuilder = null;
@@ -234,10 +272,233 @@ public class HashAggregationOperator
         return outputIterator.next();
     }
 
-    private static List<TupleInfo> toTupleInfos(TupleInfo groupByTupleInfo, Step step, List<AggregationFunctionDefinition> functionDefinitions)
+    @Override
+    public void close()
+    {
+        if (spillFiles != null) {
+            for (SpillFile spillFile : spillFiles) {
+                spillFile.close();
+            }
+            spillFiles = null;
+        }
+        if (outputIterator instanceof SpilledRunsMerger) {
+            ((SpilledRunsMerger) outputIterator).close();
+        }
+    }
+
+    /**
+     * Writes the intermediate state of all groups in the builder to a new spill file, ordered by the group by key.
+     */
+    private void spill(GroupByHashAggregationBuilder builder)
+    {
+        if (spillFiles == null) {
+            spillFiles = new ArrayList<>();
+        }
+
+        SpillFile spillFile = new SpillFile(spillPath.get());
+        spillFiles.add(spillFile);
+
+        Iterator<Page> pages = builder.buildSortedIntermediate();
+        while (pages.hasNext()) {
+            operatorContext.recordSpill(spillFile.append(pages.next()));
+        }
+    }
+
+    /**
+     * Merges the spilled runs, combining the intermediate values of groups with equal keys.  Since each
+     * run is sorted by the group by key, only the current page of each run and the groups of the page
+     * being produced are held in memory.
+     */
+    private class SpilledRunsMerger
+            extends AbstractIterator<Page>
+            implements Closeable
+    {
+        private final List<SpillFile> runs;
+        private final PriorityQueue<RunCursor> queue;
+        private final List<AggregationFunctionDefinition> mergeFunctionDefinitions;
+
+        private SpilledRunsMerger(List<SpillFile> runs)
+        {
+            this.runs = ImmutableList.copyOf(runs);
+
+            this.queue = new PriorityQueue<>(Math.max(runs.size(), 1));
+            for (SpillFile run : runs) {
+                RunCursor cursor = new RunCursor(groupByTupleInfos, run.read());
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+
+            // spilled pages contain the group by channels followed by one intermediate channel per function
+            ImmutableList.Builder<AggregationFunctionDefinition> builder = ImmutableList.builder();
+            for (int i = 0; i < functionDefinitions.size(); i++) {
+                builder.add(AggregationFunctionDefinition.aggregation(functionDefinitions.get(i).getFunction(), new Input(groupByTupleInfos.size() + i, 0)));
+            }
+            this.mergeFunctionDefinitions = builder.build();
+        }
+
+        @Override
+        protected Page computeNext()
+        {
+            if (queue.isEmpty()) {
+                close();
+                return endOfData();
+            }
+
+            // only single and final aggregations spill, and a final aggregation over the intermediate values produces their output
+            List<Aggregator> aggregators = new ArrayList<>();
+            for (AggregationFunctionDefinition functionDefinition : mergeFunctionDefinitions) {
+                aggregators.add(createAggregator(functionDefinition, Step.FINAL, expectedGroups));
+            }
+
+            BlockBuilder[] groupByBlockBuilders = new BlockBuilder[groupByTupleInfos.size()];
+            for (int channel = 0; channel < groupByBlockBuilders.length; channel++) {
+                groupByBlockBuilders[channel] = new BlockBuilder(groupByTupleInfos.get(channel));
+            }
+            Slice[] currentKey = null;
+            int groupId = -1;
+            while (!queue.isEmpty()) {
+                RunCursor run = queue.peek();
+                if (currentKey == null || !run.keyEquals(currentKey)) {
+                    if (isAnyFull(groupByBlockBuilders)) {
+                        break;
+                    }
+                    currentKey = run.copyKey();
+                    for (int channel = 0; channel < groupByBlockBuilders.length; channel++) {
+                        groupByBlockBuilders[channel].appendTuple(currentKey[channel], 0, currentKey[channel].length());
+                    }
+                    groupId++;
+                    for (Aggregator aggregator : aggregators) {
+                        aggregator.initialize(groupId);
+                    }
+                }
+
+                queue.remove();
+                for (Aggregator aggregator : aggregators) {
+                    aggregator.addValue(run.getCursors(), groupId);
+                }
+                if (run.advance()) {
+                    queue.add(run);
+                }
+            }
+
+            Block[] blocks = new Block[groupByBlockBuilders.length + aggregators.size()];
+            for (int channel = 0; channel < groupByBlockBuilders.length; channel++) {
+                blocks[channel] = groupByBlockBuilders[channel].build();
+            }
+            for (int i = 0; i < aggregators.size(); i++) {
+                Aggregator aggregator = aggregators.get(i);
+                BlockBuilder blockBuilder = new BlockBuilder(aggregator.getTupleInfo());
+                for (int position = 0; position <= groupId; position++) {
+                    aggregator.evaluate(position, blockBuilder);
+                }
+                blocks[groupByBlockBuilders.length + i] = blockBuilder.build();
+            }
+            return new Page(blocks);
+        }
+
+        private boolean isAnyFull(BlockBuilder[] blockBuilders)
+        {
+            for (BlockBuilder blockBuilder : blockBuilders) {
+                if (blockBuilder.isFull()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void close()
+        {
+            for (SpillFile run : runs) {
+                run.close();
+            }
+        }
+    }
+
+    private static class RunCursor
+            implements Comparable<RunCursor>
+    {
+        private final List<TupleInfo> groupByTupleInfos;
+        private final Iterator<Page> pages;
+        private BlockCursor[] cursors;
+
+        private RunCursor(List<TupleInfo> groupByTupleInfos, Iterator<Page> pages)
+        {
+            this.groupByTupleInfos = groupByTupleInfos;
+            this.pages = pages;
+        }
+
+        public BlockCursor[] getCursors()
+        {
+            return cursors;
+        }
+
+        public boolean advance()
+        {
+            while (cursors == null || !cursors[0].advanceNextPosition()) {
+                if (!pages.hasNext()) {
+                    return false;
+                }
+                Block[] blocks = pages.next().getBlocks();
+                cursors = new BlockCursor[blocks.length];
+                for (int i = 0; i < blocks.length; i++) {
+                    cursors[i] = blocks[i].cursor();
+                }
+            }
+            for (int i = 1; i < cursors.length; i++) {
+                checkState(cursors[i].advanceNextPosition());
+            }
+            return true;
+        }
+
+        public boolean keyEquals(Slice[] key)
+        {
+            for (int channel = 0; channel < key.length; channel++) {
+                Slice slice = cursors[channel].getRawSlice();
+                int offset = cursors[channel].getRawOffset();
+                if (!slice.equals(offset, groupByTupleInfos.get(channel).size(slice, offset), key[channel], 0, key[channel].length())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public Slice[] copyKey()
+        {
+            Slice[] key = new Slice[groupByTupleInfos.size()];
+            for (int channel = 0; channel < key.length; channel++) {
+                Slice slice = cursors[channel].getRawSlice();
+                int offset = cursors[channel].getRawOffset();
+                int length = groupByTupleInfos.get(channel).size(slice, offset);
+                key[channel] = Slices.allocate(length);
+                key[channel].setBytes(0, slice, offset, length);
+            }
+            return key;
+        }
+
+        @Override
+        public int compareTo(RunCursor other)
+        {
+            for (int channel = 0; channel < groupByTupleInfos.size(); channel++) {
+                TupleInfo tupleInfo = groupByTupleInfos.get(channel);
+                Slice slice = cursors[channel].getRawSlice();
+                int offset = cursors[channel].getRawOffset();
+                Slice otherSlice = other.cursors[channel].getRawSlice();
+                int otherOffset = other.cursors[channel].getRawOffset();
+                int comparison = slice.compareTo(offset, tupleInfo.size(slice, offset), otherSlice, otherOffset, tupleInfo.size(otherSlice, otherOffset));
+                if (comparison != 0) {
+                    return comparison;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private static List<TupleInfo> toTupleInfos(List<TupleInfo> groupByTupleInfos, Step step, List<AggregationFunctionDefinition> functionDefinitions)
     {
         ImmutableList.Builder<TupleInfo> tupleInfos = ImmutableList.builder();
-        tupleInfos.add(groupByTupleInfo);
+        tupleInfos.addAll(groupByTupleInfos);
         for (AggregationFunctionDefinition functionDefinition : functionDefinitions) {
             if (step != Step.PARTIAL) {
                 tupleInfos.add(functionDefinition.getFunction().getFinalTupleInfo());
@@ -252,26 +513,43 @@ public class HashAggregationOperator
     private static class GroupByHashAggregationBuilder
     {
         private final List<Aggregator> aggregates;
-        private final SliceHashStrategy hashStrategy;
-        private final Long2IntOpenCustomHashMap addressToGroupId;
-        private final List<UncompressedBlock> groupByBlocks = new ArrayList<>();
-        private final int groupByChannel;
-        private final TupleInfo groupByTupleInfo;
+        private final MultiChannelHashStrategy hashStrategy;
+        private final Int2IntOpenCustomHashMap groupIds;
+        private final int[] groupByChannels;
+
+        // group ids of a single fixed width group by key are looked up by the key value instead
+        private final Long2IntOpenHashMap fixedWidthGroupIds;
+        private int nullGroupId = -1;
+
+        // group ids of a single dictionary encoded group by key are looked up by the dictionary id,
+        // for as long as the pages use the same dictionary
+        private Dictionary dictionary;
+        private int[] dictionaryGroupIds;
+
+        private final List<TupleInfo> groupByTupleInfos;
         private final HashMemoryManager memoryManager;
 
-        private BlockBuilder blockBuilder;
+        // group by keys are copied into new blocks, one set of blocks per group by channel, and the blocks
+        // of each channel are started at the same time so that blocks of all channels have the same positions
+        private final List<UncompressedBlock[]> groupByBlocks = new ArrayList<>();
+        private final List<ObjectArrayList<Slice>> groupBySlices;
+        private final List<LongArrayList> groupByAddresses;
+        private final BlockBuilder[] blockBuilders;
+        private final BlockCursor[] groupByCursors;
+
+        private long slicesMemorySize;
         private int nextGroupId;
 
         private GroupByHashAggregationBuilder(
                 List<AggregationFunctionDefinition> functionDefinitions,
                 Step step,
                 int expectedGroups,
-                int groupByChannel,
-                TupleInfo groupByTupleInfo,
+                List<Integer> groupByChannels,
+                List<TupleInfo> groupByTupleInfos,
                 HashMemoryManager memoryManager)
         {
-            this.groupByChannel = groupByChannel;
-            this.groupByTupleInfo = groupByTupleInfo;
+            this.groupByChannels = Ints.toArray(groupByChannels);
+            this.groupByTupleInfos = groupByTupleInfos;
             this.memoryManager = memoryManager;
 
             // wrapper each function with an aggregator
@@ -281,30 +559,60 @@ public class HashAggregationOperator
             }
             aggregates = builder.build();
 
-            // create hash table
-            hashStrategy = new SliceHashStrategy(groupByTupleInfo);
-            addressToGroupId = new Long2IntOpenCustomHashMap(expectedGroups, hashStrategy);
-
-            // initialize hash table
-            addressToGroupId.defaultReturnValue(-1);
-            Slice slice = Slices.allocate((int) BlockBuilder.DEFAULT_MAX_BLOCK_SIZE.toBytes());
-            hashStrategy.addSlice(slice);
+            // create group by key storage
+            ImmutableList.Builder<ObjectArrayList<Slice>> slices = ImmutableList.builder();
+            ImmutableList.Builder<LongArrayList> addresses = ImmutableList.builder();
+            for (int channel = 0; channel < this.groupByChannels.length; channel++) {
+                slices.add(ObjectArrayList.wrap(new Slice[1024], 0));
+                addresses.add(new LongArrayList(expectedGroups));
+            }
+            groupBySlices = slices.build();
+            groupByAddresses = addresses.build();
+            blockBuilders = new BlockBuilder[this.groupByChannels.length];
+            groupByCursors = new BlockCursor[this.groupByChannels.length];
+            startNewBlocks(0);
 
-            // Group by keys are packed into new blocks
-            blockBuilder = new BlockBuilder(groupByTupleInfo, slice.length(), slice.getOutput());
+            // create hash table
+            hashStrategy = new MultiChannelHashStrategy(groupByTupleInfos, groupBySlices, groupByAddresses);
+            if (isFixedWidthKey(groupByTupleInfos)) {
+                groupIds = null;
+                fixedWidthGroupIds = new Long2IntOpenHashMap(expectedGroups);
+                fixedWidthGroupIds.defaultReturnValue(-1);
+            }
+            else {
+                groupIds = new Int2IntOpenCustomHashMap(expectedGroups, hashStrategy);
+                groupIds.defaultReturnValue(-1);
+                fixedWidthGroupIds = null;
+            }
         }
 
         private void processPage(Page page)
         {
-            // open cursors
             Block[] blocks = page.getBlocks();
+            if (isRunLengthEncodedKey(blocks)) {
+                processRun(page);
+                return;
+            }
+
+            // open cursors
             BlockCursor[] cursors = new BlockCursor[blocks.length];
             for (int i = 0; i < blocks.length; i++) {
                 cursors[i] = blocks[i].cursor();
             }
+            for (int i = 0; i < groupByChannels.length; i++) {
+                groupByCursors[i] = cursors[groupByChannels[i]];
+            }
 
-            Slice groupBySlice = ((UncompressedBlock) blocks[groupByChannel]).getSlice();
-            hashStrategy.setLookupSlice(groupBySlice);
+            DictionaryEncodedBlockCursor dictionaryCursor = null;
+            if (groupByChannels.length == 1 && blocks[groupByChannels[0]] instanceof DictionaryEncodedBlock) {
+                Dictionary dictionary = ((DictionaryEncodedBlock) blocks[groupByChannels[0]]).getDictionary();
+                if (dictionary != this.dictionary) {
+                    this.dictionary = dictionary;
+                    dictionaryGroupIds = new int[dictionary.size()];
+                    Arrays.fill(dictionaryGroupIds, -1);
+                }
+                dictionaryCursor = (DictionaryEncodedBlockCursor) groupByCursors[0];
+            }
 
             // process row at a time
             int rows = page.getPositionCount();
@@ -313,7 +621,13 @@ public class HashAggregationOperator
                     checkState(cursor.advanceNextPosition());
                 }
 
-                int groupId = putIfAbsent(groupBySlice, cursors);
+                int groupId;
+                if (dictionaryCursor != null) {
+                    groupId = putDictionaryKeyIfAbsent(dictionaryCursor);
+                }
+                else {
+                    groupId = putIfAbsent();
+                }
 
                 // process the row
                 processRow(cursors, groupId);
@@ -325,34 +639,116 @@ public class HashAggregationOperator
             }
         }
 
-        private int putIfAbsent(Slice groupBySlice, BlockCursor[] cursors)
+        private boolean isRunLengthEncodedKey(Block[] blocks)
+        {
+            for (int channel : groupByChannels) {
+                if (!(blocks[channel] instanceof RunLengthEncodedBlock)) {
+                    return false;
+                }
+            }
+            return groupByChannels.length > 0;
+        }
+
+        /**
+         * All positions of a page with a run length encoded key are in the same group, so the group is
+         * looked up once, and the aggregates add the whole page at once.
+         */
+        private void processRun(Page page)
+        {
+            for (int i = 0; i < groupByChannels.length; i++) {
+                groupByCursors[i] = page.getBlock(groupByChannels[i]).cursor();
+                checkState(groupByCursors[i].advanceNextPosition());
+            }
+
+            int groupId = putIfAbsent();
+            for (Aggregator aggregate : aggregates) {
+                aggregate.addValues(page, groupId);
+            }
+        }
+
+        private int putDictionaryKeyIfAbsent(DictionaryEncodedBlockCursor cursor)
+        {
+            int dictionaryKey = cursor.getDictionaryKey();
+            int groupId = dictionaryGroupIds[dictionaryKey];
+            if (groupId < 0) {
+                // dictionary cursors have no raw values, so the entry is hashed from the dictionary itself
+                BlockCursor entryCursor = new UncompressedBlock(1, dictionary.getTupleInfo(), dictionary.getTupleSlice(dictionaryKey)).cursor();
+                checkState(entryCursor.advanceNextPosition());
+                groupByCursors[0] = entryCursor;
+                groupId = putIfAbsent();
+                groupByCursors[0] = cursor;
+                dictionaryGroupIds[dictionaryKey] = groupId;
+            }
+            return groupId;
+        }
+
+        private int putIfAbsent()
         {
+            if (fixedWidthGroupIds != null) {
+                return putFixedWidthKeyIfAbsent();
+            }
+
             // lookup the group id (row number of the key)
-            int rawOffset = cursors[groupByChannel].getRawOffset();
-            int groupId = addressToGroupId.get(encodeSyntheticAddress(LOOKUP_SLICE_INDEX, rawOffset));
+            hashStrategy.setLookupPosition(groupByCursors);
+            int groupId = groupIds.get(LOOKUP_POSITION);
             if (groupId < 0) {
-                groupId = addNewGroup(groupBySlice, rawOffset);
+                groupId = addNewGroup();
             }
             return groupId;
         }
 
-        private int addNewGroup(Slice groupBySlice, int rawOffset)
+        private int putFixedWidthKeyIfAbsent()
         {
-            // copy group by tuple (key) to hash
-            int length = groupByTupleInfo.size(groupBySlice, rawOffset);
-            if (blockBuilder.writableBytes() < length) {
-                UncompressedBlock block = blockBuilder.build();
-                groupByBlocks.add(block);
-                Slice slice = Slices.allocate(Math.max((int) BlockBuilder.DEFAULT_MAX_BLOCK_SIZE.toBytes(), length));
-                blockBuilder = new BlockBuilder(groupByTupleInfo, slice.length(), slice.getOutput());
-                hashStrategy.addSlice(slice);
+            BlockCursor cursor = groupByCursors[0];
+            if (cursor.isNull(0)) {
+                if (nullGroupId < 0) {
+                    nullGroupId = addNewGroup();
+                }
+                return nullGroupId;
+            }
+
+            long key = getKey(cursor);
+            int groupId = fixedWidthGroupIds.get(key);
+            if (groupId < 0) {
+                groupId = addNewGroup();
+                fixedWidthGroupIds.put(key, groupId);
+            }
+            return groupId;
+        }
+
+        private int addNewGroup()
+        {
+            // start new blocks for all channels if the key does not fit in the current blocks
+            int maxLength = 0;
+            boolean fits = true;
+            for (int channel = 0; channel < groupByCursors.length; channel++) {
+                int length = groupByTupleInfos.get(channel).size(groupByCursors[channel].getRawSlice(), groupByCursors[channel].getRawOffset());
+                maxLength = Math.max(maxLength, length);
+                fits &= blockBuilders[channel].writableBytes() >= length;
+            }
+            if (!fits) {
+                UncompressedBlock[] blocks = new UncompressedBlock[blockBuilders.length];
+                for (int channel = 0; channel < blockBuilders.length; channel++) {
+                    blocks[channel] = blockBuilders[channel].build();
+                }
+                groupByBlocks.add(blocks);
+                startNewBlocks(maxLength);
+            }
+
+            // copy group by tuples (key) to the blocks
+            for (int channel = 0; channel < groupByCursors.length; channel++) {
+                Slice slice = groupByCursors[channel].getRawSlice();
+                int rawOffset = groupByCursors[channel].getRawOffset();
+                int groupByValueRawOffset = blockBuilders[channel].size();
+                blockBuilders[channel].appendTuple(slice, rawOffset, groupByTupleInfos.get(channel).size(slice, rawOffset));
+                groupByAddresses.get(channel).add(encodeSyntheticAddress(groupByBlocks.size(), groupByValueRawOffset));
             }
-            int groupByValueRawOffset = blockBuilder.size();
-            blockBuilder.appendTuple(groupBySlice, rawOffset, length);
 
             // record group id in hash
             int groupId = nextGroupId++;
-            addressToGroupId.put(encodeSyntheticAddress(groupByBlocks.size(), groupByValueRawOffset), groupId);
+            if (groupIds != null) {
+                groupIds.put(groupId, groupId);
+            }
 
             // initialize the aggregates
             initializeRow(groupId);
@@ -360,6 +756,16 @@ public class HashAggregationOperator
             return groupId;
         }
 
+        private void startNewBlocks(int minLength)
+        {
+            for (int channel = 0; channel < blockBuilders.length; channel++) {
+                Slice slice = Slices.allocate(Math.max((int) BlockBuilder.DEFAULT_MAX_BLOCK_SIZE.toBytes(), minLength));
+                groupBySlices.get(channel).add(slice);
+                slicesMemorySize += slice.length();
+                blockBuilders[channel] = new BlockBuilder(groupByTupleInfos.get(channel), slice.length(), slice.getOutput());
+            }
+        }
+
         private void initializeRow(int groupId)
         {
             for (Aggregator aggregate : aggregates) {
@@ -376,40 +782,49 @@ public class HashAggregationOperator
 
         public boolean isFull()
         {
-            long memorySize = hashStrategy.getEstimatedSize();
+            long memorySize = slicesMemorySize;
+            for (LongArrayList addresses : groupByAddresses) {
+                memorySize += SizeOf.sizeOf(addresses.elements());
+            }
             for (Aggregator aggregate : aggregates) {
                 memorySize += aggregate.getEstimatedSize();
             }
+            if (dictionaryGroupIds != null) {
+                memorySize += SizeOf.sizeOf(dictionaryGroupIds);
+            }
             return memoryManager.canUse(memorySize);
         }
 
         public Iterator<Page> build()
         {
-            // add the last block if it is not empty
-            if (!blockBuilder.isEmpty()) {
-                UncompressedBlock block = blockBuilder.build();
-                groupByBlocks.add(block);
+            // add the last blocks if they are not empty
+            if (!blockBuilders[0].isEmpty()) {
+                UncompressedBlock[] blocks = new UncompressedBlock[blockBuilders.length];
+                for (int channel = 0; channel < blockBuilders.length; channel++) {
+                    blocks[channel] = blockBuilders[channel].build();
+                }
+                groupByBlocks.add(blocks);
             }
 
-            return Iterators.transform(groupByBlocks.iterator(), new Function<UncompressedBlock, Page>()
+            return Iterators.transform(groupByBlocks.iterator(), new Function<UncompressedBlock[], Page>()
             {
                 private int currentPosition = 0;
 
                 @Override
-                public Page apply(UncompressedBlock groupByBlock)
+                public Page apply(UncompressedBlock[] groupByBlocks)
                 {
                     // build  the page channel at at time
-                    Block[] blocks = new Block[aggregates.size() + 1];
-                    blocks[0] = groupByBlock;
-                    int pagePositionCount = groupByBlock.getPositionCount();
-                    for (int channel = 1; channel < aggregates.size() + 1; channel++) {
-                        Aggregator aggregator = aggregates.get(channel - 1);
+                    Block[] blocks = new Block[groupByBlocks.length + aggregates.size()];
+                    System.arraycopy(groupByBlocks, 0, blocks, 0, groupByBlocks.length);
+                    int pagePositionCount = groupByBlocks[0].getPositionCount();
+                    for (int i = 0; i < aggregates.size(); i++) {
+                        Aggregator aggregator = aggregates.get(i);
                         // todo there is no need to eval for intermediates since buffer is already in block form
                         BlockBuilder blockBuilder = new BlockBuilder(aggregator.getTupleInfo());
                         for (int position = 0; position < pagePositionCount; position++) {
                             aggregator.evaluate(currentPosition + position, blockBuilder);
                         }
-                        blocks[channel] = blockBuilder.build();
+                        blocks[groupByBlocks.length + i] = blockBuilder.build();
                     }
 
                     Page page = new Page(blocks);
@@ -418,6 +833,60 @@ public class HashAggregationOperator
                 }
             });
         }
+
+        /**
+         * Builds pages containing the group by channels and the intermediate value of each aggregate, ordered
+         * by the raw bytes of the group by channels.
+         */
+        public Iterator<Page> buildSortedIntermediate()
+        {
+            final int[] groupIds = new int[nextGroupId];
+            for (int groupId = 0; groupId < groupIds.length; groupId++) {
+                groupIds[groupId] = groupId;
+            }
+            IntArrays.quickSort(groupIds, 0, groupIds.length, new AbstractIntComparator()
+            {
+                @Override
+                public int compare(int leftGroupId, int rightGroupId)
+                {
+                    return hashStrategy.compare(leftGroupId, rightGroupId);
+                }
+            });
+
+            ImmutableList.Builder<TupleInfo> tupleInfos = ImmutableList.builder();
+            tupleInfos.addAll(groupByTupleInfos);
+            for (Aggregator aggregate : aggregates) {
+                tupleInfos.add(aggregate.getIntermediateTupleInfo());
+            }
+            final PageBuilder pageBuilder = new PageBuilder(tupleInfos.build());
+            final int groupByChannelCount = groupByTupleInfos.size();
+
+            return new AbstractIterator<Page>()
+            {
+                private int position;
+
+                @Override
+                protected Page computeNext()
+                {
+                    if (position >= groupIds.length) {
+                        return endOfData();
+                    }
+
+                    pageBuilder.reset();
+                    while (position < groupIds.length && !pageBuilder.isFull()) {
+                        int groupId = groupIds[position];
+                        for (int channel = 0; channel < groupByChannelCount; channel++) {
+                            hashStrategy.appendTupleTo(channel, groupId, pageBuilder.getBlockBuilder(channel));
+                        }
+                        for (int i = 0; i < aggregates.size(); i++) {
+                            aggregates.get(i).evaluateIntermediate(groupId, pageBuilder.getBlockBuilder(groupByChannelCount + i));
+                        }
+                        position++;
+                    }
+                    return pageBuilder.build();
+                }
+            };
+        }
     }
 
     public static class HashMemoryManager
@@ -478,11 +947,20 @@ public class HashAggregationOperator
 
         TupleInfo getTupleInfo();
 
+        TupleInfo getIntermediateTupleInfo();
+
         void initialize(int position);
 
         void addValue(BlockCursor[] cursors, int position);
 
+        /**
+         * Adds every position of the page to the aggregate at the specified position.
+         */
+        void addValues(Page page, int position);
+
         void evaluate(int position, BlockBuilder output);
+
+        void evaluateIntermediate(int position, BlockBuilder output);
     }
 
     private static class FixedWidthAggregator
@@ -526,6 +1004,12 @@ public class HashAggregationOperator
             }
         }
 
+        @Override
+        public TupleInfo getIntermediateTupleInfo()
+        {
+            return function.getIntermediateTupleInfo();
+        }
+
         @Override
         public void initialize(int position)
         {
@@ -572,6 +1056,34 @@ public class HashAggregationOperator
             }
         }
 
+        @Override
+        public void addValues(Page page, int position)
+        {
+            Block block = null;
+            int field = -1;
+            if (input != null) {
+                block = page.getBlock(input.getChannel());
+                field = input.getField();
+            }
+
+            int globalOffset = position * fixedWidthSize;
+
+            int sliceIndex = globalOffset / sliceSize;
+            Slice slice = slices.get(sliceIndex);
+            int sliceOffset = globalOffset - (sliceIndex * sliceSize);
+
+            // if this is a final aggregation, the input is an intermediate value
+            if (step == Step.FINAL) {
+                BlockCursor cursor = block.cursor();
+                while (cursor.advanceNextPosition()) {
+                    function.addIntermediate(cursor, field, slice, sliceOffset);
+                }
+            }
+            else {
+                function.addInput(page.getPositionCount(), block, field, slice, sliceOffset);
+            }
+        }
+
         @Override
         public void evaluate(int position, BlockBuilder output)
         {
@@ -589,6 +1101,18 @@ public class HashAggregationOperator
                 function.evaluateFinal(slice, sliceOffset, output);
             }
         }
+
+        @Override
+        public void evaluateIntermediate(int position, BlockBuilder output)
+        {
+            int offset = position * fixedWidthSize;
+
+            int sliceIndex = offset / sliceSize;
+            Slice slice = slices.get(sliceIndex);
+            int sliceOffset = offset - (sliceIndex * sliceSize);
+
+            function.evaluateIntermediate(slice, sliceOffset, output);
+        }
     }
 
     private static class VariableWidthAggregator<T>
@@ -636,6 +1160,12 @@ public class HashAggregationOperator
             }
         }
 
+        @Override
+        public TupleInfo getIntermediateTupleInfo()
+        {
+            return function.getIntermediateTupleInfo();
+        }
+
         @Override
         public void initialize(int position)
         {
@@ -673,6 +1203,26 @@ public class HashAggregationOperator
             totalElementSizeInBytes += newSize - oldSize;
         }
 
+        @Override
+        public void addValues(Page page, int position)
+        {
+            BlockCursor[] cursors = new BlockCursor[page.getChannelCount()];
+            for (Input input : inputs) {
+                if (cursors[input.getChannel()] == null) {
+                    cursors[input.getChannel()] = page.getBlock(input.getChannel()).cursor();
+                }
+            }
+
+            for (int i = 0; i < page.getPositionCount(); i++) {
+                for (BlockCursor cursor : cursors) {
+                    if (cursor != null) {
+                        checkState(cursor.advanceNextPosition());
+                    }
+                }
+                addValue(cursors, position);
+            }
+        }
+
         @Override
         public void evaluate(int position, BlockBuilder output)
         {
@@ -685,73 +1235,11 @@ public class HashAggregationOperator
                 function.evaluateFinal(value, output);
             }
         }
-    }
-
-    public static class SliceHashStrategy
-            implements Strategy
-    {
-        private final TupleInfo tupleInfo;
-        private final List<Slice> slices;
-        private Slice lookupSlice;
-        private long memorySize;
-
-        public SliceHashStrategy(TupleInfo tupleInfo)
-        {
-            this.tupleInfo = tupleInfo;
-            this.slices = ObjectArrayList.wrap(new Slice[1024], 0);
-        }
-
-        public long getEstimatedSize()
-        {
-            return memorySize;
-        }
-
-        public void setLookupSlice(Slice lookupSlice)
-        {
-            this.lookupSlice = lookupSlice;
-        }
-
-        public void addSlice(Slice slice)
-        {
-            memorySize += slice.length();
-            slices.add(slice);
-        }
-
-        @Override
-        public int hashCode(long sliceAddress)
-        {
-            Slice slice = getSliceForSyntheticAddress(sliceAddress);
-            int offset = (int) sliceAddress;
-            int length = tupleInfo.size(slice, offset);
-            int hashCode = slice.hashCode(offset, length);
-            return hashCode;
-        }
 
         @Override
-        public boolean equals(long leftSliceAddress, long rightSliceAddress)
+        public void evaluateIntermediate(int position, BlockBuilder output)
         {
-            Slice leftSlice = getSliceForSyntheticAddress(leftSliceAddress);
-            int leftOffset = decodeSliceOffset(leftSliceAddress);
-            int leftLength = tupleInfo.size(leftSlice, leftOffset);
-
-            Slice rightSlice = getSliceForSyntheticAddress(rightSliceAddress);
-            int rightOffset = decodeSliceOffset(rightSliceAddress);
-            int rightLength = tupleInfo.size(rightSlice, rightOffset);
-
-            return leftSlice.equals(leftOffset, leftLength, rightSlice, rightOffset, rightLength);
-        }
-
-        private Slice getSliceForSyntheticAddress(long sliceAddress)
-        {
-            int sliceIndex = decodeSliceIndex(sliceAddress);
-            Slice slice;
-            if (sliceIndex == LOOKUP_SLICE_INDEX) {
-                slice = lookupSlice;
-            }
-            else {
-                slice = slices.get(sliceIndex);
-            }
-            return slice;
+            function.evaluateIntermediate(intermediateValues.get(position), output);
         }
     }
 }
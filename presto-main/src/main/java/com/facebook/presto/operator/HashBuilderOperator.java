@@ -14,17 +14,19 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.tuple.TupleInfo;
-import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
-import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import static com.facebook.presto.util.MoreFutures.tryGetUnchecked;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
@@ -32,14 +34,35 @@ import static com.google.common.base.Preconditions.checkState;
 public class HashBuilderOperator
         implements Operator
 {
+    /**
+     * Collects the pages indexes of all the build operators, merges them into a single index, and
+     * publishes the hash once every operator has built its partition of the hash table.  The hash is
+     * immutable, so the same instance is shared by all probe operators.
+     */
+    @ThreadSafe
     public static class HashSupplier
     {
         private final List<TupleInfo> tupleInfos;
-        private final SettableFuture<HashData> hashFuture = SettableFuture.create();
-
-        public HashSupplier(List<TupleInfo> tupleInfos)
+        private final List<Integer> hashChannels;
+        private final int partitionCount;
+        private final SettableFuture<ChannelHash.Builder> builderFuture = SettableFuture.create();
+        private final SettableFuture<SourceHash> hashFuture = SettableFuture.create();
+
+        @GuardedBy("this")
+        private final List<PagesIndex> pagesIndexes = new ArrayList<>();
+        @GuardedBy("this")
+        private final List<int[]> positionHashes = new ArrayList<>();
+        @GuardedBy("this")
+        private PagesIndex mergedPagesIndex;
+        @GuardedBy("this")
+        private int partitionsBuilt;
+
+        public HashSupplier(List<TupleInfo> tupleInfos, List<Integer> hashChannels, int partitionCount)
         {
             this.tupleInfos = ImmutableList.copyOf(checkNotNull(tupleInfos, "tupleInfos is null"));
+            this.hashChannels = ImmutableList.copyOf(checkNotNull(hashChannels, "hashChannels is null"));
+            checkArgument(partitionCount > 0 && Integer.bitCount(partitionCount) == 1, "partitionCount must be a power of two");
+            this.partitionCount = partitionCount;
         }
 
         public List<TupleInfo> getTupleInfos()
@@ -47,38 +70,74 @@ public class HashBuilderOperator
             return tupleInfos;
         }
 
+        public int getPartitionCount()
+        {
+            return partitionCount;
+        }
+
         public ListenableFuture<SourceHash> getSourceHash()
         {
-            return Futures.transform(hashFuture, new Function<HashData, SourceHash>()
-            {
-                @Override
-                public SourceHash apply(HashData hashData)
-                {
-                    return new SourceHash(new ChannelHash(hashData.channelHash), hashData.pagesIndex);
-                }
-            });
+            return hashFuture;
         }
 
-        void setHash(ChannelHash channelHash, PagesIndex pagesIndex)
+        /**
+         * Adds the pages index of a build operator, and returns the partition of the hash the operator
+         * must build.  The last index added is merged with all other indexes.
+         */
+        synchronized int addPagesIndex(PagesIndex pagesIndex, int[] hashes)
         {
-            HashData hashData = new HashData(
-                    checkNotNull(channelHash, "channelHash is null"),
-                    checkNotNull(pagesIndex, "pagesIndex is null"));
+            checkNotNull(pagesIndex, "pagesIndex is null");
+            checkNotNull(hashes, "hashes is null");
+            checkState(pagesIndexes.size() < partitionCount, "All pages indexes have already been added");
+
+            int partition = pagesIndexes.size();
+            pagesIndexes.add(pagesIndex);
+            positionHashes.add(hashes);
+
+            if (pagesIndexes.size() == partitionCount) {
+                // merge into the last index, which takes over the memory reservations of the other operators
+                mergedPagesIndex = pagesIndex;
+                int[] mergedHashes = hashes;
+                if (partitionCount > 1) {
+                    mergedHashes = new int[totalPositionCount()];
+                    System.arraycopy(hashes, 0, mergedHashes, 0, hashes.length);
+                    int offset = hashes.length;
+                    for (int i = 0; i < partition; i++) {
+                        mergedPagesIndex.addIndex(pagesIndexes.get(i));
+                        int[] otherHashes = positionHashes.get(i);
+                        System.arraycopy(otherHashes, 0, mergedHashes, offset, otherHashes.length);
+                        offset += otherHashes.length;
+                    }
+                }
+                pagesIndexes.clear();
+                positionHashes.clear();
+
+                builderFuture.set(new ChannelHash.Builder(mergedPagesIndex, hashChannels, mergedHashes, partitionCount));
+            }
+            return partition;
+        }
 
-            boolean wasSet = hashFuture.set(hashData);
-            checkState(wasSet, "Hash already set");
+        ListenableFuture<ChannelHash.Builder> getBuilder()
+        {
+            return builderFuture;
         }
 
-        private static class HashData
+        synchronized void partitionBuilt(ChannelHash.Builder builder)
         {
-            private final ChannelHash channelHash;
-            private final PagesIndex pagesIndex;
+            partitionsBuilt++;
+            if (partitionsBuilt == partitionCount) {
+                boolean wasSet = hashFuture.set(new SourceHash(builder.build(), mergedPagesIndex));
+                checkState(wasSet, "Hash already set");
+            }
+        }
 
-            private HashData(ChannelHash channelHash, PagesIndex pagesIndex)
-            {
-                this.channelHash = channelHash;
-                this.pagesIndex = pagesIndex;
+        private int totalPositionCount()
+        {
+            int positionCount = 0;
+            for (PagesIndex pagesIndex : pagesIndexes) {
+                positionCount += pagesIndex.getPositionCount();
             }
+            return positionCount;
         }
     }
 
@@ -87,20 +146,37 @@ public class HashBuilderOperator
     {
         private final int operatorId;
         private final HashSupplier hashSupplier;
-        private final int hashChannel;
+        private final List<Integer> hashChannels;
         private final int expectedPositions;
+        private int operatorCount;
         private boolean closed;
 
         public HashBuilderOperatorFactory(
                 int operatorId,
                 List<TupleInfo> tupleInfos,
-                int hashChannel,
+                List<Integer> hashChannels,
                 int expectedPositions)
+        {
+            this(operatorId, tupleInfos, hashChannels, expectedPositions, 1);
+        }
+
+        /**
+         * Creates a factory for {@code partitionCount} build operators which together build a single
+         * hash.  Exactly {@code partitionCount} operators must be created, and they must be run
+         * concurrently since each operator waits for all the others to finish their input before
+         * building its partition of the hash table.
+         */
+        public HashBuilderOperatorFactory(
+                int operatorId,
+                List<TupleInfo> tupleInfos,
+                List<Integer> hashChannels,
+                int expectedPositions,
+                int partitionCount)
         {
             this.operatorId = operatorId;
-            this.hashSupplier = new HashSupplier(checkNotNull(tupleInfos, "tupleInfos is null"));
-            Preconditions.checkArgument(hashChannel >= 0, "hashChannel is negative");
-            this.hashChannel = hashChannel;
+            Preconditions.checkArgument(!hashChannels.isEmpty(), "hashChannels is empty");
+            this.hashSupplier = new HashSupplier(checkNotNull(tupleInfos, "tupleInfos is null"), hashChannels, partitionCount);
+            this.hashChannels = ImmutableList.copyOf(checkNotNull(hashChannels, "hashChannels is null"));
             this.expectedPositions = checkNotNull(expectedPositions, "expectedPositions is null");
         }
 
@@ -119,11 +195,13 @@ public class HashBuilderOperator
         public Operator createOperator(DriverContext driverContext)
         {
             checkState(!closed, "Factory is already closed");
+            checkState(operatorCount < hashSupplier.getPartitionCount(), "All %s build operators have already been created", hashSupplier.getPartitionCount());
+            operatorCount++;
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, HashBuilderOperator.class.getSimpleName());
             return new HashBuilderOperator(
                     operatorContext,
                     hashSupplier,
-                    hashChannel,
+                    hashChannels,
                     expectedPositions);
         }
 
@@ -136,21 +214,22 @@ public class HashBuilderOperator
 
     private final OperatorContext operatorContext;
     private final HashSupplier hashSupplier;
-    private final int hashChannel;
+    private final List<Integer> hashChannels;
 
     private final PagesIndex pagesIndex;
 
+    private int partition = -1;
     private boolean finished;
 
     public HashBuilderOperator(
             OperatorContext operatorContext,
             HashSupplier hashSupplier,
-            int hashChannel,
+            List<Integer> hashChannels,
             int expectedPositions)
     {
         this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
         this.hashSupplier = checkNotNull(hashSupplier, "hashSupplier is null");
-        this.hashChannel = hashChannel;
+        this.hashChannels = ImmutableList.copyOf(checkNotNull(hashChannels, "hashChannels is null"));
         this.pagesIndex = new PagesIndex(hashSupplier.getTupleInfos(), expectedPositions, operatorContext);
     }
 
@@ -173,8 +252,28 @@ public class HashBuilderOperator
             return;
         }
 
-        ChannelHash channelHash = new ChannelHash(pagesIndex.getIndex(hashChannel), operatorContext);
-        hashSupplier.setHash(channelHash, pagesIndex);
+        if (partition < 0) {
+            // hash the local positions before waiting for the other build operators
+            int[] positionHashes = ChannelHash.hashPositions(pagesIndex, hashChannels);
+            operatorContext.setMemoryReservation(pagesIndex.getEstimatedSize().toBytes() + positionHashes.length * 4L);
+            partition = hashSupplier.addPagesIndex(pagesIndex, positionHashes);
+        }
+
+        ChannelHash.Builder builder = tryGetUnchecked(hashSupplier.getBuilder());
+        if (builder == null) {
+            return;
+        }
+
+        long partitionSize = builder.buildPartition(partition);
+        if (partition == builder.getPartitionCount() - 1) {
+            operatorContext.setMemoryReservation(pagesIndex.getEstimatedSize().toBytes() + builder.getEstimatedSize() + partitionSize);
+        }
+        else {
+            // the pages of this operator were merged into the index of the last build operator, which accounts for them
+            operatorContext.setMemoryReservation(partitionSize);
+        }
+
+        hashSupplier.partitionBuilt(builder);
         finished = true;
     }
 
@@ -187,20 +286,24 @@ public class HashBuilderOperator
     @Override
     public ListenableFuture<?> isBlocked()
     {
-        return NOT_BLOCKED;
+        if (partition < 0 || finished) {
+            return NOT_BLOCKED;
+        }
+        ListenableFuture<ChannelHash.Builder> builder = hashSupplier.getBuilder();
+        return builder.isDone() ? NOT_BLOCKED : builder;
     }
 
     @Override
     public boolean needsInput()
     {
-        return !finished;
+        return partition < 0;
     }
 
     @Override
     public void addInput(Page page)
     {
         checkNotNull(page, "page is null");
-        checkState(!isFinished(), "Operator is already finished");
+        checkState(needsInput(), "Operator is already finishing");
 
         pagesIndex.addPage(page);
         operatorContext.recordGeneratedOutput(page.getDataSize(), page.getPositionCount());
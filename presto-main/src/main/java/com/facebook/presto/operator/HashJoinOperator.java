@@ -14,11 +14,11 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.block.BlockCursor;
-import com.facebook.presto.block.uncompressed.UncompressedBlock;
 import com.facebook.presto.operator.HashBuilderOperator.HashSupplier;
 import com.facebook.presto.tuple.TupleInfo;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.util.List;
@@ -30,14 +30,14 @@ import static com.google.common.base.Preconditions.checkState;
 public class HashJoinOperator
         implements Operator
 {
-    public static HashJoinOperatorFactory innerJoin(int operatorId, HashSupplier hashSupplier, List<TupleInfo> probeTupleInfos, int probeJoinChannel)
+    public static HashJoinOperatorFactory innerJoin(int operatorId, HashSupplier hashSupplier, List<TupleInfo> probeTupleInfos, List<Integer> probeJoinChannels)
     {
-        return new HashJoinOperatorFactory(operatorId, hashSupplier, probeTupleInfos, probeJoinChannel, false);
+        return new HashJoinOperatorFactory(operatorId, hashSupplier, probeTupleInfos, probeJoinChannels, false);
     }
 
-    public static HashJoinOperatorFactory outerJoin(int operatorId, HashSupplier hashSupplier, List<TupleInfo> probeTupleInfos, int probeJoinChannel)
+    public static HashJoinOperatorFactory outerJoin(int operatorId, HashSupplier hashSupplier, List<TupleInfo> probeTupleInfos, List<Integer> probeJoinChannels)
     {
-        return new HashJoinOperatorFactory(operatorId, hashSupplier, probeTupleInfos, probeJoinChannel, true);
+        return new HashJoinOperatorFactory(operatorId, hashSupplier, probeTupleInfos, probeJoinChannels, true);
     }
 
     public static class HashJoinOperatorFactory
@@ -46,17 +46,17 @@ public class HashJoinOperator
         private final int operatorId;
         private final HashSupplier hashSupplier;
         private final List<TupleInfo> probeTupleInfos;
-        private final int probeJoinChannel;
+        private final List<Integer> probeJoinChannels;
         private final boolean enableOuterJoin;
         private final List<TupleInfo> tupleInfos;
         private boolean closed;
 
-        public HashJoinOperatorFactory(int operatorId, HashSupplier hashSupplier, List<TupleInfo> probeTupleInfos, int probeJoinChannel, boolean enableOuterJoin)
+        public HashJoinOperatorFactory(int operatorId, HashSupplier hashSupplier, List<TupleInfo> probeTupleInfos, List<Integer> probeJoinChannels, boolean enableOuterJoin)
         {
             this.operatorId = operatorId;
             this.hashSupplier = hashSupplier;
             this.probeTupleInfos = probeTupleInfos;
-            this.probeJoinChannel = probeJoinChannel;
+            this.probeJoinChannels = probeJoinChannels;
             this.enableOuterJoin = enableOuterJoin;
 
             this.tupleInfos = ImmutableList.<TupleInfo>builder()
@@ -76,7 +76,7 @@ public class HashJoinOperator
         {
             checkState(!closed, "Factory is already closed");
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, HashJoinOperator.class.getSimpleName());
-            return new HashJoinOperator(operatorContext, hashSupplier, probeTupleInfos, probeJoinChannel, enableOuterJoin);
+            return new HashJoinOperator(operatorContext, hashSupplier, probeTupleInfos, probeJoinChannels, enableOuterJoin);
         }
 
         @Override
@@ -89,12 +89,12 @@ public class HashJoinOperator
     private final ListenableFuture<SourceHash> sourceHashFuture;
 
     private final OperatorContext operatorContext;
-    private final int probeJoinChannel;
-    private final int probeJoinChannelFieldCount;
+    private final int[] probeJoinChannels;
     private final boolean enableOuterJoin;
     private final List<TupleInfo> tupleInfos;
 
     private final BlockCursor[] cursors;
+    private final BlockCursor[] probeJoinCursors;
 
     private final PageBuilder pageBuilder;
 
@@ -102,18 +102,18 @@ public class HashJoinOperator
     private boolean finishing;
     private int joinPosition = -1;
 
-    public HashJoinOperator(OperatorContext operatorContext, HashSupplier hashSupplier, List<TupleInfo> probeTupleInfos, int probeJoinChannel, boolean enableOuterJoin)
+    public HashJoinOperator(OperatorContext operatorContext, HashSupplier hashSupplier, List<TupleInfo> probeTupleInfos, List<Integer> probeJoinChannels, boolean enableOuterJoin)
     {
         this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
 
         // todo pass in desired projection
         checkNotNull(hashSupplier, "hashSupplier is null");
         checkNotNull(probeTupleInfos, "probeTupleInfos is null");
-        Preconditions.checkArgument(probeJoinChannel >= 0, "probeJoinChannel is negative");
+        checkNotNull(probeJoinChannels, "probeJoinChannels is null");
+        Preconditions.checkArgument(!probeJoinChannels.isEmpty(), "probeJoinChannels is empty");
 
         this.sourceHashFuture = hashSupplier.getSourceHash();
-        this.probeJoinChannel = probeJoinChannel;
-        this.probeJoinChannelFieldCount = probeTupleInfos.get(probeJoinChannel).getFieldCount();
+        this.probeJoinChannels = Ints.toArray(probeJoinChannels);
         this.enableOuterJoin = enableOuterJoin;
 
         this.tupleInfos = ImmutableList.<TupleInfo>builder()
@@ -123,6 +123,7 @@ public class HashJoinOperator
         this.pageBuilder = new PageBuilder(tupleInfos);
 
         this.cursors = new BlockCursor[probeTupleInfos.size()];
+        this.probeJoinCursors = new BlockCursor[this.probeJoinChannels.length];
     }
 
     @Override
@@ -155,6 +156,9 @@ public class HashJoinOperator
             for (int i = 0; i < cursors.length; i++) {
                 cursors[i] = null;
             }
+            for (int i = 0; i < probeJoinCursors.length; i++) {
+                probeJoinCursors[i] = null;
+            }
             pageBuilder.reset();
         }
         return finished;
@@ -191,10 +195,9 @@ public class HashJoinOperator
         for (int i = 0; i < page.getChannelCount(); i++) {
             cursors[i] = page.getBlock(i).cursor();
         }
-
-        // set hashing strategy to use probe block
-        UncompressedBlock probeJoinBlock = (UncompressedBlock) page.getBlock(probeJoinChannel);
-        hash.setProbeSlice(probeJoinBlock.getSlice());
+        for (int i = 0; i < probeJoinChannels.length; i++) {
+            probeJoinCursors[i] = cursors[probeJoinChannels[i]];
+        }
 
         // initialize to invalid join position to force output code to advance the cursors
         joinPosition = -1;
@@ -259,12 +262,12 @@ public class HashJoinOperator
         }
 
         // update join position
-        if (tupleContainsNull(cursors[probeJoinChannel])) {
+        if (currentProbeKeyContainsNull()) {
             // Null values will never match in an equijoin, so just omit them from the probe side
             joinPosition = -1;
         }
         else {
-            joinPosition = hash.getJoinPosition(cursors[probeJoinChannel]);
+            joinPosition = hash.getJoinPosition(probeJoinCursors);
         }
 
         return true;
@@ -307,17 +310,23 @@ public class HashJoinOperator
             for (int i = 0; i < cursors.length; i++) {
                 cursors[i] = null;
             }
+            for (int i = 0; i < probeJoinCursors.length; i++) {
+                probeJoinCursors[i] = null;
+            }
         }
 
         return advanced;
     }
 
-    private boolean tupleContainsNull(BlockCursor cursor)
+    private boolean currentProbeKeyContainsNull()
     {
-        boolean containsNull = false;
-        for (int i = 0; i < probeJoinChannelFieldCount; i++) {
-            containsNull |= cursor.isNull(i);
+        for (BlockCursor cursor : probeJoinCursors) {
+            for (int i = 0; i < cursor.getTupleInfo().getFieldCount(); i++) {
+                if (cursor.isNull(i)) {
+                    return true;
+                }
+            }
         }
-        return containsNull;
+        return false;
     }
 }
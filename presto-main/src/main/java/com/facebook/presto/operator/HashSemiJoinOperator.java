@@ -25,6 +25,7 @@ import io.airlift.slice.Slices;
 
 import java.util.List;
 
+import static com.facebook.presto.block.BlockUtils.toUncompressedBlock;
 import static com.facebook.presto.util.MoreFutures.tryGetUnchecked;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -159,7 +160,7 @@ public class HashSemiJoinOperator
         checkState(outputPage == null, "Operator still has pending output");
 
         // update hashing strategy to use probe block
-        UncompressedBlock probeJoinBlock = (UncompressedBlock) page.getBlock(probeJoinChannel);
+        UncompressedBlock probeJoinBlock = toUncompressedBlock(page.getBlock(probeJoinChannel));
         channelSet.setLookupSlice(probeJoinBlock.getSlice());
 
         // create the block builder for the new boolean column
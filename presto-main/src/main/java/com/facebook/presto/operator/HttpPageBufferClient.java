@@ -13,10 +13,11 @@
  */
 package com.facebook.presto.operator;
 
-import com.facebook.presto.serde.PagesSerde;
+import com.facebook.presto.serde.PagesCompression;
 import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.CountingInputStream;
 import com.google.common.net.MediaType;
 import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.FutureCallback;
@@ -43,9 +44,11 @@ import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.facebook.presto.PrestoMediaTypes.PRESTO_PAGES_TYPE;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_MAX_SIZE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_COMPRESSION;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_SEQUENCE_ID;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
@@ -81,6 +84,7 @@ public class HttpPageBufferClient
     private final DataSize maxResponseSize;
     private final URI location;
     private final ClientCallback clientCallback;
+    private final PagesCompression requestedCompression;
     @GuardedBy("this")
     private boolean closed;
     @GuardedBy("this")
@@ -91,16 +95,29 @@ public class HttpPageBufferClient
     private long sequenceId;
 
     private final AtomicInteger pagesReceived = new AtomicInteger();
+    private final AtomicLong compressedBytesReceived = new AtomicLong();
+    private final AtomicLong uncompressedBytesReceived = new AtomicLong();
 
     private final AtomicInteger requestsScheduled = new AtomicInteger();
     private final AtomicInteger requestsCompleted = new AtomicInteger();
 
     public HttpPageBufferClient(AsyncHttpClient httpClient, DataSize maxResponseSize, URI location, ClientCallback clientCallback, Executor executor)
+    {
+        this(httpClient, maxResponseSize, location, clientCallback, PagesCompression.NONE, executor);
+    }
+
+    public HttpPageBufferClient(AsyncHttpClient httpClient,
+            DataSize maxResponseSize,
+            URI location,
+            ClientCallback clientCallback,
+            PagesCompression requestedCompression,
+            Executor executor)
     {
         this.httpClient = checkNotNull(httpClient, "httpClient is null");
         this.maxResponseSize = checkNotNull(maxResponseSize, "maxResponseSize is null");
         this.location = checkNotNull(location, "location is null");
         this.clientCallback = checkNotNull(clientCallback, "clientCallback is null");
+        this.requestedCompression = checkNotNull(requestedCompression, "requestedCompression is null");
         this.executor = checkNotNull(executor, "executor is null");
     }
 
@@ -120,7 +137,15 @@ public class HttpPageBufferClient
         if (future != null) {
             httpRequestState = future.getState();
         }
-        return new PageBufferClientStatus(location, state, lastUpdate, pagesReceived.get(), requestsScheduled.get(), requestsCompleted.get(), httpRequestState);
+        return new PageBufferClientStatus(location,
+                state,
+                lastUpdate,
+                pagesReceived.get(),
+                compressedBytesReceived.get(),
+                uncompressedBytesReceived.get(),
+                requestsScheduled.get(),
+                requestsCompleted.get(),
+                httpRequestState);
     }
 
     public synchronized boolean isRunning()
@@ -170,9 +195,13 @@ public class HttpPageBufferClient
         }
 
         final URI uri = HttpUriBuilder.uriBuilderFrom(location).appendPath(String.valueOf(sequenceId)).build();
-        future = httpClient.executeAsync(prepareGet()
+        Request.Builder request = prepareGet()
                 .setHeader(PRESTO_MAX_SIZE, maxResponseSize.toString())
-                .setUri(uri).build(), new PageResponseHandler());
+                .setUri(uri);
+        if (requestedCompression != PagesCompression.NONE) {
+            request.setHeader(PRESTO_PAGE_COMPRESSION, requestedCompression.name());
+        }
+        future = httpClient.executeAsync(request.build(), new PageResponseHandler());
 
         Futures.addCallback(future, new FutureCallback<PagesResponse>()
         {
@@ -184,6 +213,8 @@ public class HttpPageBufferClient
                 }
 
                 requestsCompleted.incrementAndGet();
+                compressedBytesReceived.addAndGet(result.getCompressedBytes());
+                uncompressedBytesReceived.addAndGet(result.getUncompressedBytes());
 
                 List<Page> pages;
                 synchronized (HttpPageBufferClient.this) {
@@ -325,8 +356,16 @@ public class HttpPageBufferClient
             }
 
             try {
-                InputStreamSliceInput sliceInput = new InputStreamSliceInput(response.getInputStream());
-                return PagesResponse.createPagesResponse(startingSequenceId, ImmutableList.copyOf(PagesSerde.readPages(sliceInput)));
+                // pages are decoded as the response is received
+                CountingInputStream input = new CountingInputStream(response.getInputStream());
+                PagesCompression compression = PagesCompression.fromHeader(response.getHeader(PRESTO_PAGE_COMPRESSION));
+                List<Page> pages = ImmutableList.copyOf(compression.readPages(new InputStreamSliceInput(input)));
+
+                long uncompressedBytes = 0;
+                for (Page page : pages) {
+                    uncompressedBytes += page.getDataSize().toBytes();
+                }
+                return PagesResponse.createPagesResponse(startingSequenceId, pages, input.getCount(), uncompressedBytes);
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -338,28 +377,37 @@ public class HttpPageBufferClient
     {
         public static PagesResponse createPagesResponse(long startingSequenceId, Iterable<Page> pages)
         {
-            return new PagesResponse(startingSequenceId, pages, false);
+            return new PagesResponse(startingSequenceId, pages, false, 0, 0);
+        }
+
+        public static PagesResponse createPagesResponse(long startingSequenceId, Iterable<Page> pages, long compressedBytes, long uncompressedBytes)
+        {
+            return new PagesResponse(startingSequenceId, pages, false, compressedBytes, uncompressedBytes);
         }
 
         public static PagesResponse createEmptyPagesResponse(long startingSequenceId)
         {
-            return new PagesResponse(startingSequenceId, ImmutableList.<Page>of(), false);
+            return new PagesResponse(startingSequenceId, ImmutableList.<Page>of(), false, 0, 0);
         }
 
         public static PagesResponse createClosedResponse(long startingSequenceId)
         {
-            return new PagesResponse(startingSequenceId, ImmutableList.<Page>of(), true);
+            return new PagesResponse(startingSequenceId, ImmutableList.<Page>of(), true, 0, 0);
         }
 
         private final long startingSequenceId;
         private final List<Page> pages;
         private final boolean clientClosed;
+        private final long compressedBytes;
+        private final long uncompressedBytes;
 
-        public PagesResponse(long startingSequenceId, Iterable<Page> pages, boolean clientClosed)
+        public PagesResponse(long startingSequenceId, Iterable<Page> pages, boolean clientClosed, long compressedBytes, long uncompressedBytes)
         {
             this.startingSequenceId = startingSequenceId;
             this.pages = ImmutableList.copyOf(pages);
             this.clientClosed = clientClosed;
+            this.compressedBytes = compressedBytes;
+            this.uncompressedBytes = uncompressedBytes;
         }
 
         public List<Page> getPages(long sequenceId)
@@ -387,6 +435,22 @@ public class HttpPageBufferClient
             return clientClosed;
         }
 
+        /**
+         * Size of the response as received, which is the compressed size if the response was compressed.
+         */
+        public long getCompressedBytes()
+        {
+            return compressedBytes;
+        }
+
+        /**
+         * Size of the pages in the response after decompression.
+         */
+        public long getUncompressedBytes()
+        {
+            return uncompressedBytes;
+        }
+
         @Override
         public String toString()
         {
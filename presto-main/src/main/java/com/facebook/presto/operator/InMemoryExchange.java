@@ -84,6 +84,7 @@ public class InMemoryExchange
     {
         if (noMoreSinkFactories && sinkFactories == 0 && sinks == 0) {
             finishing = true;
+            notifyBlockedCallers();
         }
     }
 
@@ -0,0 +1,239 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.block.BlockBuilder;
+import com.facebook.presto.block.BlockCursor;
+import com.facebook.presto.tuple.TupleInfo;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import it.unimi.dsi.fastutil.ints.IntHash;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import java.util.List;
+
+import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
+import static com.facebook.presto.operator.SyntheticAddress.decodeSliceOffset;
+import static com.facebook.presto.sql.gen.TupleCompiler.compileHashStrategy;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Hash strategy for keys that are spread over several channels.  A key is identified by its position,
+ * and for each channel the position is mapped to a synthetic address within the slices of the channel.
+ * <p/>
+ * To perform a lookup, the key cursors are set in the strategy with {@link #setLookupPosition} and
+ * the {@link #LOOKUP_POSITION} is used as the key.  Since lookup state is stored in the strategy, a
+ * strategy can not be shared across threads, but the underlying data can via the copy constructor.
+ * Alternatively, {@link #hashCursors} and {@link #positionEqualsCursors} compare directly against
+ * the key cursors, and do not use the lookup state.
+ */
+public class MultiChannelHashStrategy
+        implements IntHash.Strategy
+{
+    public static final int LOOKUP_POSITION = -1;
+
+    private final TupleInfo[] tupleInfos;
+    private final TupleHashStrategy[] hashStrategies;
+    private final ObjectArrayList<Slice>[] slices;
+    private final LongArrayList[] valueAddresses;
+
+    private final Slice[] lookupSlices;
+    private final int[] lookupOffsets;
+
+    public MultiChannelHashStrategy(PagesIndex pagesIndex, List<Integer> hashChannels)
+    {
+        this(toTupleInfos(pagesIndex, hashChannels), toSlices(pagesIndex, hashChannels), toValueAddresses(pagesIndex, hashChannels));
+    }
+
+    @SuppressWarnings("unchecked")
+    public MultiChannelHashStrategy(List<TupleInfo> tupleInfos, List<ObjectArrayList<Slice>> slices, List<LongArrayList> valueAddresses)
+    {
+        checkNotNull(tupleInfos, "tupleInfos is null");
+        checkNotNull(slices, "slices is null");
+        checkNotNull(valueAddresses, "valueAddresses is null");
+        checkArgument(!tupleInfos.isEmpty(), "tupleInfos is empty");
+        checkArgument(tupleInfos.size() == slices.size() && tupleInfos.size() == valueAddresses.size(), "channel counts do not match");
+
+        this.tupleInfos = tupleInfos.toArray(new TupleInfo[tupleInfos.size()]);
+        this.hashStrategies = new TupleHashStrategy[this.tupleInfos.length];
+        for (int channel = 0; channel < this.tupleInfos.length; channel++) {
+            hashStrategies[channel] = compileHashStrategy(this.tupleInfos[channel]);
+        }
+        this.slices = slices.toArray(new ObjectArrayList[slices.size()]);
+        this.valueAddresses = valueAddresses.toArray(new LongArrayList[valueAddresses.size()]);
+
+        this.lookupSlices = new Slice[this.tupleInfos.length];
+        this.lookupOffsets = new int[this.tupleInfos.length];
+    }
+
+    public MultiChannelHashStrategy(MultiChannelHashStrategy strategy)
+    {
+        checkNotNull(strategy, "strategy is null");
+        this.tupleInfos = strategy.tupleInfos;
+        this.hashStrategies = strategy.hashStrategies;
+        this.slices = strategy.slices;
+        this.valueAddresses = strategy.valueAddresses;
+
+        this.lookupSlices = new Slice[tupleInfos.length];
+        this.lookupOffsets = new int[tupleInfos.length];
+    }
+
+    public int getChannelCount()
+    {
+        return tupleInfos.length;
+    }
+
+    /**
+     * Sets the key at the current position of the cursors (one per channel) as the lookup key.
+     */
+    public void setLookupPosition(BlockCursor[] cursors)
+    {
+        for (int channel = 0; channel < tupleInfos.length; channel++) {
+            lookupSlices[channel] = cursors[channel].getRawSlice();
+            lookupOffsets[channel] = cursors[channel].getRawOffset();
+        }
+    }
+
+    /**
+     * Computes the hash of the key at the current position of the cursors.  The result is the same
+     * as {@link #hashCode(int)} of a position containing an equal key.
+     */
+    public int hashCursors(BlockCursor[] cursors)
+    {
+        int result = 0;
+        for (int channel = 0; channel < tupleInfos.length; channel++) {
+            result = 31 * result + hashStrategies[channel].hashCode(cursors[channel].getRawSlice(), cursors[channel].getRawOffset());
+        }
+        return result;
+    }
+
+    /**
+     * Checks if the key at the specified position is equal to the key at the current position of the cursors.
+     */
+    public boolean positionEqualsCursors(int position, BlockCursor[] cursors)
+    {
+        for (int channel = 0; channel < tupleInfos.length; channel++) {
+            Slice leftSlice = getSlice(channel, position);
+            int leftOffset = getOffset(channel, position);
+
+            if (!hashStrategies[channel].equals(leftSlice, leftOffset, cursors[channel].getRawSlice(), cursors[channel].getRawOffset())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode(int position)
+    {
+        int result = 0;
+        for (int channel = 0; channel < tupleInfos.length; channel++) {
+            result = 31 * result + hashStrategies[channel].hashCode(getSlice(channel, position), getOffset(channel, position));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(int leftPosition, int rightPosition)
+    {
+        for (int channel = 0; channel < tupleInfos.length; channel++) {
+            Slice leftSlice = getSlice(channel, leftPosition);
+            int leftOffset = getOffset(channel, leftPosition);
+
+            Slice rightSlice = getSlice(channel, rightPosition);
+            int rightOffset = getOffset(channel, rightPosition);
+
+            if (!hashStrategies[channel].equals(leftSlice, leftOffset, rightSlice, rightOffset)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares the raw bytes of the keys channel by channel.
+     */
+    public int compare(int leftPosition, int rightPosition)
+    {
+        for (int channel = 0; channel < tupleInfos.length; channel++) {
+            TupleInfo tupleInfo = tupleInfos[channel];
+
+            Slice leftSlice = getSlice(channel, leftPosition);
+            int leftOffset = getOffset(channel, leftPosition);
+            int leftLength = tupleInfo.size(leftSlice, leftOffset);
+
+            Slice rightSlice = getSlice(channel, rightPosition);
+            int rightOffset = getOffset(channel, rightPosition);
+            int rightLength = tupleInfo.size(rightSlice, rightOffset);
+
+            int comparison = leftSlice.compareTo(leftOffset, leftLength, rightSlice, rightOffset, rightLength);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    public void appendTupleTo(int channel, int position, BlockBuilder blockBuilder)
+    {
+        Slice slice = getSlice(channel, position);
+        int offset = getOffset(channel, position);
+        blockBuilder.appendTuple(slice, offset, tupleInfos[channel].size(slice, offset));
+    }
+
+    private Slice getSlice(int channel, int position)
+    {
+        if (position == LOOKUP_POSITION) {
+            return lookupSlices[channel];
+        }
+        return slices[channel].get(decodeSliceIndex(valueAddresses[channel].getLong(position)));
+    }
+
+    private int getOffset(int channel, int position)
+    {
+        if (position == LOOKUP_POSITION) {
+            return lookupOffsets[channel];
+        }
+        return decodeSliceOffset(valueAddresses[channel].getLong(position));
+    }
+
+    private static List<TupleInfo> toTupleInfos(PagesIndex pagesIndex, List<Integer> hashChannels)
+    {
+        ImmutableList.Builder<TupleInfo> builder = ImmutableList.builder();
+        for (int channel : hashChannels) {
+            builder.add(pagesIndex.getTupleInfo(channel));
+        }
+        return builder.build();
+    }
+
+    private static List<ObjectArrayList<Slice>> toSlices(PagesIndex pagesIndex, List<Integer> hashChannels)
+    {
+        ImmutableList.Builder<ObjectArrayList<Slice>> builder = ImmutableList.builder();
+        for (int channel : hashChannels) {
+            builder.add(pagesIndex.getIndex(channel).getSlices());
+        }
+        return builder.build();
+    }
+
+    private static List<LongArrayList> toValueAddresses(PagesIndex pagesIndex, List<Integer> hashChannels)
+    {
+        ImmutableList.Builder<LongArrayList> builder = ImmutableList.builder();
+        for (int channel : hashChannels) {
+            builder.add(pagesIndex.getIndex(channel).getValueAddresses());
+        }
+        return builder.build();
+    }
+}
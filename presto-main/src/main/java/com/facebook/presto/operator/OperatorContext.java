@@ -16,6 +16,7 @@ package com.facebook.presto.operator;
 import com.facebook.presto.sql.analyzer.Session;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.base.Function;
+import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.stats.CounterStat;
@@ -24,6 +25,7 @@ import io.airlift.units.Duration;
 
 import javax.annotation.concurrent.ThreadSafe;
 
+import java.io.File;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadMXBean;
 import java.util.Set;
@@ -74,6 +76,8 @@ public class OperatorContext
 
     private final AtomicLong memoryReservation = new AtomicLong();
 
+    private final AtomicLong spilledDataSize = new AtomicLong();
+
     private final AtomicReference<Supplier<Object>> infoSupplier = new AtomicReference<>();
 
     public OperatorContext(int operatorId, String operatorType, DriverContext driverContext, Executor executor)
@@ -183,6 +187,17 @@ public class OperatorContext
         return driverContext.getOperatorPreAllocatedMemory();
     }
 
+    public Optional<File> getSpillPath()
+    {
+        return driverContext.getSpillPath();
+    }
+
+    public void recordSpill(long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        spilledDataSize.getAndAdd(bytes);
+    }
+
     public boolean reserveMemory(long bytes)
     {
         boolean result = driverContext.reserveMemory(bytes);
@@ -192,7 +207,28 @@ public class OperatorContext
         return result;
     }
 
+    /**
+     * Releases the whole memory reservation of this operator.  This is only for memory that is
+     * now accounted to another operator, since the memory of an operator is otherwise kept
+     * until the task finishes.
+     */
+    public synchronized void freeMemoryReservation()
+    {
+        driverContext.freeMemory(memoryReservation.getAndSet(0));
+    }
+
     public synchronized long setMemoryReservation(long newMemoryReservation)
+    {
+        checkState(trySetMemoryReservation(newMemoryReservation), "Task exceeded max memory size of %s", getMaxMemorySize());
+        return newMemoryReservation;
+    }
+
+    /**
+     * Grows the memory reservation of this operator to the specified size.
+     *
+     * @return false if the task does not have enough memory left, in which case the reservation is unchanged
+     */
+    public synchronized boolean trySetMemoryReservation(long newMemoryReservation)
     {
         checkArgument(newMemoryReservation >= 0, "newMemoryReservation is negative");
 
@@ -200,10 +236,9 @@ public class OperatorContext
 
         // currently, operator memory is not be released
         if (delta > 0) {
-            checkState(reserveMemory(delta), "Task exceeded max memory size of %s", getMaxMemorySize());
+            return reserveMemory(delta);
         }
-
-        return newMemoryReservation;
+        return true;
     }
 
     public void setInfoSupplier(Supplier<Object> infoSupplier)
@@ -272,6 +307,7 @@ public class OperatorContext
                 new Duration(finishUserNanos.get(), NANOSECONDS).convertToMostSuccinctTimeUnit(),
 
                 new DataSize(memoryReservation.get(), BYTE).convertToMostSuccinctDataSize(),
+                new DataSize(spilledDataSize.get(), BYTE).convertToMostSuccinctDataSize(),
                 info);
     }
 
@@ -13,18 +13,20 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.operator.ExternalSorter.MergedRuns;
 import com.facebook.presto.tuple.TupleInfo;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ListenableFuture;
 import it.unimi.dsi.fastutil.booleans.BooleanArrays;
 
+import java.io.Closeable;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 public class OrderByOperator
-        implements Operator
+        implements Operator, Closeable
 {
     public static class InMemoryOrderByOperatorFactory
             implements OperatorFactory
@@ -113,15 +115,14 @@ public class OrderByOperator
     }
 
     private final OperatorContext operatorContext;
-    private final int orderByChannel;
-    private final int[] sortFields;
-    private final boolean[] sortOrder;
     private final int[] outputChannels;
     private final List<TupleInfo> tupleInfos;
 
-    private final PagesIndex pageIndex;
+    private final ExternalSorter sorter;
 
     private final PageBuilder pageBuilder;
+    private PagesIndex pageIndex;
+    private MergedRuns mergedRuns;
     private int currentPosition;
 
     private State state = State.NEEDS_INPUT;
@@ -136,13 +137,10 @@ public class OrderByOperator
             boolean[] sortOrder)
     {
         this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
-        this.orderByChannel = orderByChannel;
         this.outputChannels = checkNotNull(outputChannels, "outputChannels is null");
         this.tupleInfos = toTupleInfos(sourceTupleInfos, outputChannels);
-        this.sortFields = checkNotNull(sortFields, "sortFields is null");
-        this.sortOrder = checkNotNull(sortOrder, "sortOrder is null");
 
-        this.pageIndex = new PagesIndex(sourceTupleInfos, expectedPositions, operatorContext);
+        this.sorter = new ExternalSorter(operatorContext, sourceTupleInfos, expectedPositions, orderByChannel, sortFields, sortOrder);
 
         this.pageBuilder = new PageBuilder(this.tupleInfos);
     }
@@ -165,8 +163,14 @@ public class OrderByOperator
         if (state == State.NEEDS_INPUT) {
             state = State.HAS_OUTPUT;
 
-            // sort the index
-            pageIndex.sort(orderByChannel, sortFields, sortOrder);
+            // sort the index, or merge the runs if the input was spilled
+            sorter.finish();
+            if (sorter.isSpilled()) {
+                mergedRuns = sorter.getMergedRuns();
+            }
+            else {
+                pageIndex = sorter.getSortedIndex();
+            }
         }
     }
 
@@ -194,7 +198,7 @@ public class OrderByOperator
         checkState(state == State.NEEDS_INPUT, "Operator is already finishing");
         checkNotNull(page, "page is null");
 
-        pageIndex.addPage(page);
+        sorter.addPage(page);
     }
 
     @Override
@@ -204,6 +208,10 @@ public class OrderByOperator
             return null;
         }
 
+        if (mergedRuns != null) {
+            return getMergedOutput();
+        }
+
         if (currentPosition >= pageIndex.getPositionCount()) {
             state = State.FINISHED;
             return null;
@@ -228,6 +236,28 @@ public class OrderByOperator
         return page;
     }
 
+    private Page getMergedOutput()
+    {
+        pageBuilder.reset();
+        while (!pageBuilder.isFull() && mergedRuns.advanceNextPosition()) {
+            for (int i = 0; i < outputChannels.length; i++) {
+                mergedRuns.appendTupleTo(outputChannels[i], pageBuilder.getBlockBuilder(i));
+            }
+        }
+
+        if (pageBuilder.isEmpty()) {
+            state = State.FINISHED;
+            return null;
+        }
+        return pageBuilder.build();
+    }
+
+    @Override
+    public void close()
+    {
+        sorter.close();
+    }
+
     private static boolean[] defaultSortOrder(List<TupleInfo> sourceTupleInfos, int orderByChannel)
     {
         TupleInfo orderByTupleInfo = sourceTupleInfos.get(orderByChannel);
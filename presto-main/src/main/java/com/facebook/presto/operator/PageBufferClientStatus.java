@@ -27,6 +27,8 @@ public class PageBufferClientStatus
     private final String state;
     private final DateTime lastUpdate;
     private final int pagesReceived;
+    private final long compressedBytesReceived;
+    private final long uncompressedBytesReceived;
     private final int requestsScheduled;
     private final int requestsCompleted;
     private final String httpRequestState;
@@ -36,6 +38,8 @@ public class PageBufferClientStatus
             @JsonProperty("state") String state,
             @JsonProperty("lastUpdate") DateTime lastUpdate,
             @JsonProperty("pagesReceived") int pagesReceived,
+            @JsonProperty("compressedBytesReceived") long compressedBytesReceived,
+            @JsonProperty("uncompressedBytesReceived") long uncompressedBytesReceived,
             @JsonProperty("requestsScheduled") int requestsScheduled,
             @JsonProperty("requestsCompleted") int requestsCompleted,
             @JsonProperty("httpRequestState") String httpRequestState)
@@ -44,6 +48,8 @@ public class PageBufferClientStatus
         this.state = state;
         this.lastUpdate = lastUpdate;
         this.pagesReceived = pagesReceived;
+        this.compressedBytesReceived = compressedBytesReceived;
+        this.uncompressedBytesReceived = uncompressedBytesReceived;
         this.requestsScheduled = requestsScheduled;
         this.requestsCompleted = requestsCompleted;
         this.httpRequestState = httpRequestState;
@@ -73,6 +79,18 @@ public class PageBufferClientStatus
         return pagesReceived;
     }
 
+    @JsonProperty
+    public long getCompressedBytesReceived()
+    {
+        return compressedBytesReceived;
+    }
+
+    @JsonProperty
+    public long getUncompressedBytesReceived()
+    {
+        return uncompressedBytesReceived;
+    }
+
     @JsonProperty
     public int getRequestsScheduled()
     {
@@ -99,6 +117,8 @@ public class PageBufferClientStatus
                 .add("state", state)
                 .add("lastUpdate", lastUpdate)
                 .add("pagesReceived", pagesReceived)
+                .add("compressedBytesReceived", compressedBytesReceived)
+                .add("uncompressedBytesReceived", uncompressedBytesReceived)
                 .add("httpRequestState", httpRequestState)
                 .toString();
     }
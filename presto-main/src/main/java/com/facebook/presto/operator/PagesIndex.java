@@ -17,7 +17,6 @@ import com.facebook.presto.block.Block;
 import com.facebook.presto.block.BlockBuilder;
 import com.facebook.presto.block.uncompressed.UncompressedBlock;
 import com.facebook.presto.tuple.TupleInfo;
-import com.facebook.presto.tuple.TupleInfo.Type;
 import io.airlift.slice.Slice;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
@@ -27,6 +26,10 @@ import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
 
 import java.util.List;
 
+import static com.facebook.presto.block.BlockUtils.toUncompressedBlock;
+import static com.facebook.presto.sql.gen.TupleCompiler.compileComparator;
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * PagesIndex a low-level data structure which contains the address of every value position of every channel.
  * This data structure is not general purpose and is designed for a few specific uses:
@@ -67,13 +70,46 @@ public class PagesIndex
     }
 
     public void addPage(Page page)
+    {
+        indexPage(page);
+        estimatedSize = operatorContext.setMemoryReservation(calculateEstimatedSize());
+    }
+
+    /**
+     * Adds the page like {@link #addPage}, but returns false instead of failing when the memory
+     * reservation of the operator can not grow to cover the index.  The page is added either way,
+     * so the caller is expected to release the index, for example by spilling it to disk.
+     */
+    public boolean tryAddPage(Page page)
+    {
+        indexPage(page);
+        estimatedSize = calculateEstimatedSize();
+        return operatorContext.trySetMemoryReservation(estimatedSize);
+    }
+
+    private void indexPage(Page page)
     {
         positionCount += page.getPositionCount();
         Block[] blocks = page.getBlocks();
         for (int channel = 0; channel < indexes.length; channel++) {
-            indexes[channel].indexBlock((UncompressedBlock) blocks[channel]);
+            indexes[channel].indexBlock(toUncompressedBlock(blocks[channel]));
         }
+    }
 
+    /**
+     * Appends the positions of the specified index to the end of this index.  The memory of the
+     * other index is accounted to this index from then on, so the whole memory reservation of
+     * the operator of the other index is released.
+     */
+    public void addIndex(PagesIndex other)
+    {
+        checkArgument(tupleInfos.equals(other.tupleInfos), "other index has different tuple infos");
+        positionCount += other.positionCount;
+        for (int channel = 0; channel < indexes.length; channel++) {
+            indexes[channel].addIndex(other.indexes[channel]);
+        }
+
+        other.operatorContext.freeMemoryReservation();
         estimatedSize = operatorContext.setMemoryReservation(calculateEstimatedSize());
     }
 
@@ -124,27 +160,28 @@ public class PagesIndex
     public static class MultiSliceFieldOrderedTupleComparator
             extends AbstractIntComparator
     {
-        private final TupleInfo tupleInfo;
+        private final TupleComparator comparator;
         private final long[] sliceAddresses;
         private final Slice[] slices;
-        private final Type[] types;
-        private final int[] sortFields;
-        private final boolean[] sortOrder;
 
         public MultiSliceFieldOrderedTupleComparator(int[] sortFields, boolean[] sortOrder, ChannelIndex index)
         {
             this(sortFields, sortOrder, index.getTupleInfo(), index.getValueAddresses().elements(), index.getSlices().elements());
         }
 
+        /**
+         * Creates a comparator that can only compare tuples with {@link #compare(Slice, int, Slice, int)}.
+         */
+        public MultiSliceFieldOrderedTupleComparator(int[] sortFields, boolean[] sortOrder, TupleInfo tupleInfo)
+        {
+            this(sortFields, sortOrder, tupleInfo, new long[0]);
+        }
+
         public MultiSliceFieldOrderedTupleComparator(int[] sortFields, boolean[] sortOrder, TupleInfo tupleInfo, long[] sliceAddresses, Slice... slices)
         {
-            this.sortFields = sortFields;
-            this.sortOrder = sortOrder;
-            this.tupleInfo = tupleInfo;
+            this.comparator = compileComparator(tupleInfo, sortFields, sortOrder);
             this.sliceAddresses = sliceAddresses;
             this.slices = slices;
-            List<Type> types = tupleInfo.getTypes();
-            this.types = types.toArray(new Type[types.size()]);
         }
 
         @Override
@@ -158,40 +195,12 @@ public class PagesIndex
             Slice rightSlice = slices[((int) (rightSliceAddress >> 32))];
             int rightOffset = (int) rightSliceAddress;
 
-            for (int i = 0; i < sortFields.length; i++) {
-                int field = sortFields[i];
-                Type type = types[field];
-
-                // todo add support for nulls first, nulls last
-                int comparison;
-                switch (type) {
-                    case BOOLEAN:
-                        comparison = Boolean.compare(
-                                tupleInfo.getBoolean(leftSlice, leftOffset, field),
-                                tupleInfo.getBoolean(rightSlice, rightOffset, field));
-                        break;
-                    case FIXED_INT_64:
-                        comparison = Long.compare(
-                                tupleInfo.getLong(leftSlice, leftOffset, field),
-                                tupleInfo.getLong(rightSlice, rightOffset, field));
-                        break;
-                    case DOUBLE:
-                        comparison = Double.compare(
-                                tupleInfo.getDouble(leftSlice, leftOffset, field),
-                                tupleInfo.getDouble(rightSlice, rightOffset, field));
-                        break;
-                    case VARIABLE_BINARY:
-                        comparison = tupleInfo.getSlice(leftSlice, leftOffset, field)
-                                .compareTo(tupleInfo.getSlice(rightSlice, rightOffset, field));
-                        break;
-                    default:
-                        throw new AssertionError("unimplemented type: " + type);
-                }
-                if (comparison != 0) {
-                    return sortOrder[i] ? comparison : -comparison;
-                }
-            }
-            return 0;
+            return comparator.compare(leftSlice, leftOffset, rightSlice, rightOffset);
+        }
+
+        public int compare(Slice leftSlice, int leftOffset, Slice rightSlice, int rightOffset)
+        {
+            return comparator.compare(leftSlice, leftOffset, rightSlice, rightOffset);
         }
     }
 }
@@ -0,0 +1,266 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockCursor;
+import com.facebook.presto.execution.SharedBuffer;
+import com.facebook.presto.tuple.TupleInfo;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.slice.Slice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Sends each row of the input to one partition of a partitioned {@link SharedBuffer},
+ * chosen by the hash of the partition channels.  The operator is blocked until the
+ * number of partitions is known.  Rows are collected into a page per partition, which
+ * is only sent when it is full or the operator finishes.
+ */
+public class PartitionedOutputOperator
+        implements Operator
+{
+    public static class PartitionedOutputFactory
+            implements OutputFactory
+    {
+        private final SharedBuffer sharedBuffer;
+        private final List<Integer> partitionChannels;
+
+        public PartitionedOutputFactory(SharedBuffer sharedBuffer, List<Integer> partitionChannels)
+        {
+            this.sharedBuffer = checkNotNull(sharedBuffer, "sharedBuffer is null");
+            this.partitionChannels = ImmutableList.copyOf(checkNotNull(partitionChannels, "partitionChannels is null"));
+            checkArgument(sharedBuffer.isPartitioned(), "sharedBuffer is not partitioned");
+            checkArgument(!partitionChannels.isEmpty(), "partitionChannels is empty");
+        }
+
+        @Override
+        public OperatorFactory createOutputOperator(int operatorId, List<TupleInfo> sourceTupleInfo)
+        {
+            return new PartitionedOutputOperatorFactory(operatorId, sourceTupleInfo, sharedBuffer, partitionChannels);
+        }
+    }
+
+    public static class PartitionedOutputOperatorFactory
+            implements OperatorFactory
+    {
+        private final int operatorId;
+        private final List<TupleInfo> sourceTupleInfos;
+        private final SharedBuffer sharedBuffer;
+        private final List<Integer> partitionChannels;
+
+        public PartitionedOutputOperatorFactory(int operatorId, List<TupleInfo> sourceTupleInfos, SharedBuffer sharedBuffer, List<Integer> partitionChannels)
+        {
+            this.operatorId = operatorId;
+            this.sourceTupleInfos = ImmutableList.copyOf(checkNotNull(sourceTupleInfos, "sourceTupleInfos is null"));
+            this.sharedBuffer = checkNotNull(sharedBuffer, "sharedBuffer is null");
+            this.partitionChannels = ImmutableList.copyOf(checkNotNull(partitionChannels, "partitionChannels is null"));
+        }
+
+        @Override
+        public List<TupleInfo> getTupleInfos()
+        {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public Operator createOperator(DriverContext driverContext)
+        {
+            OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, PartitionedOutputOperator.class.getSimpleName());
+            return new PartitionedOutputOperator(operatorContext, sourceTupleInfos, sharedBuffer, partitionChannels);
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+    private final OperatorContext operatorContext;
+    private final List<TupleInfo> sourceTupleInfos;
+    private final SharedBuffer sharedBuffer;
+    private final int[] partitionChannels;
+    private PageBuilder[] pageBuilders;
+    private ListenableFuture<?> blocked = NOT_BLOCKED;
+    private boolean finished;
+
+    public PartitionedOutputOperator(OperatorContext operatorContext, List<TupleInfo> sourceTupleInfos, SharedBuffer sharedBuffer, List<Integer> partitionChannels)
+    {
+        this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
+        this.sourceTupleInfos = ImmutableList.copyOf(checkNotNull(sourceTupleInfos, "sourceTupleInfos is null"));
+        this.sharedBuffer = checkNotNull(sharedBuffer, "sharedBuffer is null");
+        this.partitionChannels = Ints.toArray(checkNotNull(partitionChannels, "partitionChannels is null"));
+
+        // rows can not be routed until the consumers are known
+        ListenableFuture<?> noMoreQueuesFuture = sharedBuffer.getNoMoreQueuesFuture();
+        if (!noMoreQueuesFuture.isDone()) {
+            blocked = noMoreQueuesFuture;
+        }
+    }
+
+    @Override
+    public OperatorContext getOperatorContext()
+    {
+        return operatorContext;
+    }
+
+    @Override
+    public List<TupleInfo> getTupleInfos()
+    {
+        return ImmutableList.of();
+    }
+
+    @Override
+    public void finish()
+    {
+        if (finished) {
+            return;
+        }
+        finished = true;
+
+        if (pageBuilders == null) {
+            return;
+        }
+
+        List<ListenableFuture<?>> futures = new ArrayList<>();
+        if (blocked != NOT_BLOCKED) {
+            futures.add(blocked);
+        }
+        for (int partition = 0; partition < pageBuilders.length; partition++) {
+            PageBuilder pageBuilder = pageBuilders[partition];
+            if (pageBuilder != null && !pageBuilder.isEmpty()) {
+                enqueue(partition, pageBuilder, futures);
+            }
+        }
+
+        // the operator is finished once the last pages are accepted by the buffer
+        if (!futures.isEmpty()) {
+            blocked = Futures.allAsList(futures);
+        }
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        if (blocked != NOT_BLOCKED && blocked.isDone()) {
+            blocked = NOT_BLOCKED;
+        }
+
+        return finished && blocked == NOT_BLOCKED;
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        if (blocked != NOT_BLOCKED && blocked.isDone()) {
+            blocked = NOT_BLOCKED;
+        }
+        return blocked;
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        if (blocked != NOT_BLOCKED && blocked.isDone()) {
+            blocked = NOT_BLOCKED;
+        }
+        return !finished && blocked == NOT_BLOCKED;
+    }
+
+    @Override
+    public void addInput(Page page)
+    {
+        checkNotNull(page, "page is null");
+        checkState(blocked == NOT_BLOCKED, "output is already blocked");
+
+        int partitionCount = sharedBuffer.getPartitionCount();
+        if (partitionCount == 0) {
+            // buffer was destroyed before any consumer was added
+            return;
+        }
+
+        if (pageBuilders == null) {
+            pageBuilders = new PageBuilder[partitionCount];
+        }
+
+        Block[] blocks = page.getBlocks();
+        BlockCursor[] cursors = new BlockCursor[blocks.length];
+        for (int channel = 0; channel < blocks.length; channel++) {
+            cursors[channel] = blocks[channel].cursor();
+        }
+
+        List<ListenableFuture<?>> futures = new ArrayList<>();
+        for (int position = 0; position < page.getPositionCount(); position++) {
+            for (BlockCursor cursor : cursors) {
+                checkState(cursor.advanceNextPosition());
+            }
+
+            int partition = getPartition(cursors, partitionCount);
+            PageBuilder pageBuilder = pageBuilders[partition];
+            if (pageBuilder == null) {
+                pageBuilder = new PageBuilder(sourceTupleInfos);
+                pageBuilders[partition] = pageBuilder;
+            }
+
+            for (int channel = 0; channel < cursors.length; channel++) {
+                cursors[channel].appendTupleTo(pageBuilder.getBlockBuilder(channel));
+            }
+            pageBuilder.declarePosition();
+
+            if (pageBuilder.isFull()) {
+                enqueue(partition, pageBuilder, futures);
+            }
+        }
+
+        if (!futures.isEmpty()) {
+            blocked = Futures.allAsList(futures);
+        }
+        operatorContext.recordGeneratedOutput(page.getDataSize(), page.getPositionCount());
+    }
+
+    private void enqueue(int partition, PageBuilder pageBuilder, List<ListenableFuture<?>> futures)
+    {
+        ListenableFuture<?> future = sharedBuffer.enqueue(partition, pageBuilder.build());
+        if (!future.isDone()) {
+            futures.add(future);
+        }
+        pageBuilder.reset();
+    }
+
+    private int getPartition(BlockCursor[] cursors, int partitionCount)
+    {
+        int hashCode = 0;
+        for (int channel : partitionChannels) {
+            BlockCursor cursor = cursors[channel];
+            Slice slice = cursor.getRawSlice();
+            int offset = cursor.getRawOffset();
+            hashCode = 31 * hashCode + slice.hashCode(offset, cursor.getTupleInfo().size(slice, offset));
+        }
+        return (hashCode & Integer.MAX_VALUE) % partitionCount;
+    }
+
+    @Override
+    public Page getOutput()
+    {
+        return null;
+    }
+}
@@ -17,6 +17,7 @@ import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.sql.analyzer.Session;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.base.Function;
+import com.google.common.base.Optional;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
@@ -27,6 +28,7 @@ import io.airlift.units.Duration;
 
 import javax.annotation.concurrent.ThreadSafe;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
@@ -190,6 +192,11 @@ public class PipelineContext
         return taskContext.getOperatorPreAllocatedMemory();
     }
 
+    public Optional<File> getSpillPath()
+    {
+        return taskContext.getSpillPath();
+    }
+
     public synchronized boolean reserveMemory(long bytes)
     {
         boolean result = taskContext.reserveMemory(bytes);
@@ -199,6 +206,12 @@ public class PipelineContext
         return result;
     }
 
+    public synchronized void freeMemory(long bytes)
+    {
+        taskContext.freeMemory(bytes);
+        memoryReservation.getAndAdd(-bytes);
+    }
+
     public boolean isCpuTimerEnabled()
     {
         return taskContext.isCpuTimerEnabled();
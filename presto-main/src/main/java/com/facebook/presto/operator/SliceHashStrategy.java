@@ -23,6 +23,7 @@ import java.util.List;
 
 import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
 import static com.facebook.presto.operator.SyntheticAddress.decodeSliceOffset;
+import static com.facebook.presto.sql.gen.TupleCompiler.compileHashStrategy;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class SliceHashStrategy
@@ -35,21 +36,21 @@ public class SliceHashStrategy
     // with any other slices that are stored in this strategy.
     public static final int LOOKUP_SLICE_INDEX = 0xFF_FF_FF_FF;
 
-    private final TupleInfo tupleInfo;
+    private final TupleHashStrategy hashStrategy;
     private final List<Slice> slices;
     private Slice lookupSlice;
     private long memorySize;
 
     public SliceHashStrategy(TupleInfo tupleInfo)
     {
-        this.tupleInfo = checkNotNull(tupleInfo, "tupleInfo is null");
+        this.hashStrategy = compileHashStrategy(checkNotNull(tupleInfo, "tupleInfo is null"));
         this.slices = ObjectArrayList.wrap(new Slice[1024], 0);
     }
 
     public SliceHashStrategy(SliceHashStrategy strategy)
     {
         checkNotNull(strategy, "strategy is null");
-        this.tupleInfo = strategy.tupleInfo;
+        this.hashStrategy = strategy.hashStrategy;
         this.slices = strategy.slices;
     }
 
@@ -80,24 +81,17 @@ public class SliceHashStrategy
     @Override
     public int hashCode(long sliceAddress)
     {
-        Slice slice = getSliceForSyntheticAddress(sliceAddress);
-        int offset = (int) sliceAddress;
-        int length = tupleInfo.size(slice, offset);
-        return slice.hashCode(offset, length);
+        return hashStrategy.hashCode(getSliceForSyntheticAddress(sliceAddress), decodeSliceOffset(sliceAddress));
     }
 
     @Override
     public boolean equals(long leftSliceAddress, long rightSliceAddress)
     {
-        Slice leftSlice = getSliceForSyntheticAddress(leftSliceAddress);
-        int leftOffset = decodeSliceOffset(leftSliceAddress);
-        int leftLength = tupleInfo.size(leftSlice, leftOffset);
-
-        Slice rightSlice = getSliceForSyntheticAddress(rightSliceAddress);
-        int rightOffset = decodeSliceOffset(rightSliceAddress);
-        int rightLength = tupleInfo.size(rightSlice, rightOffset);
-
-        return leftSlice.equals(leftOffset, leftLength, rightSlice, rightOffset, rightLength);
+        return hashStrategy.equals(
+                getSliceForSyntheticAddress(leftSliceAddress),
+                decodeSliceOffset(leftSliceAddress),
+                getSliceForSyntheticAddress(rightSliceAddress),
+                decodeSliceOffset(rightSliceAddress));
     }
 
     private Slice getSliceForSyntheticAddress(long sliceAddress)
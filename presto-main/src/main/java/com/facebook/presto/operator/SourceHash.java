@@ -15,7 +15,6 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.block.BlockBuilder;
 import com.facebook.presto.block.BlockCursor;
-import io.airlift.slice.Slice;
 
 public class SourceHash
 {
@@ -35,14 +34,9 @@ public class SourceHash
         return channelCount;
     }
 
-    public void setProbeSlice(Slice slice)
+    public int getJoinPosition(BlockCursor[] hashCursors)
     {
-        channelHash.setLookupSlice(slice);
-    }
-
-    public int getJoinPosition(BlockCursor cursor)
-    {
-        return channelHash.get(cursor);
+        return channelHash.get(hashCursors);
     }
 
     public int getNextJoinPosition(int joinPosition)
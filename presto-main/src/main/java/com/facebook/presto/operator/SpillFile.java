@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.serde.PagesSerde;
+import com.facebook.presto.serde.PagesWriter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Iterators;
+import com.google.common.io.Closeables;
+import com.google.common.io.CountingOutputStream;
+import io.airlift.slice.InputStreamSliceInput;
+import io.airlift.slice.OutputStreamSliceOutput;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A run of pages spilled to a local file using the {@link PagesSerde} format.
+ * Pages are appended until the file is read back, after which the file is
+ * read only.  The file is deleted when this object is closed.
+ */
+@NotThreadSafe
+public class SpillFile
+        implements Closeable
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final CountingOutputStream countingOutputStream;
+    private final OutputStreamSliceOutput sliceOutput;
+    private final PagesWriter pagesWriter;
+
+    private boolean writing = true;
+    private InputStream inputStream;
+
+    public SpillFile(File spillPath)
+    {
+        checkNotNull(spillPath, "spillPath is null");
+        try {
+            if (!spillPath.isDirectory() && !spillPath.mkdirs() && !spillPath.isDirectory()) {
+                throw new IOException("Could not create spill directory " + spillPath);
+            }
+            file = File.createTempFile("spill", ".pages", spillPath);
+            countingOutputStream = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+            sliceOutput = new OutputStreamSliceOutput(countingOutputStream);
+            pagesWriter = PagesSerde.createPagesWriter(sliceOutput);
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * Appends the page to this file and returns the number of bytes written.
+     */
+    public long append(Page page)
+    {
+        checkNotNull(page, "page is null");
+        checkState(writing, "Spill file has already been read");
+
+        long start = countingOutputStream.getCount();
+        pagesWriter.append(page);
+        return countingOutputStream.getCount() - start;
+    }
+
+    public long getSizeInBytes()
+    {
+        return countingOutputStream.getCount();
+    }
+
+    /**
+     * Finishes writing and returns the pages in this file in the order they were appended.
+     */
+    public Iterator<Page> read()
+    {
+        checkState(writing, "Spill file has already been read");
+        writing = false;
+        try {
+            sliceOutput.close();
+            if (countingOutputStream.getCount() == 0) {
+                return Iterators.emptyIterator();
+            }
+            inputStream = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+            return PagesSerde.readPages(new InputStreamSliceInput(inputStream));
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (writing) {
+            writing = false;
+            Closeables.closeQuietly(sliceOutput);
+        }
+        Closeables.closeQuietly(inputStream);
+        file.delete();
+    }
+}
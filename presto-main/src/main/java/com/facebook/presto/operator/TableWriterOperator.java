@@ -17,6 +17,7 @@ import com.facebook.presto.block.Block;
 import com.facebook.presto.block.BlockBuilder;
 import com.facebook.presto.metadata.ColumnFileHandle;
 import com.facebook.presto.metadata.LocalStorageManager;
+import com.facebook.presto.metadata.ShardColumnStats;
 import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.Split;
 import com.facebook.presto.split.NativeSplit;
@@ -227,7 +228,16 @@ public class TableWriterOperator
                 throw Throwables.propagate(e);
             }
 
-            operatorContext.addOutputItems(sourceId, ImmutableSet.of(new TableWriterResult(input.get().getShardId(), nodeIdentifier)));
+            long shardId = input.get().getShardId();
+            ImmutableList.Builder<ShardColumnStats> columnStats = ImmutableList.builder();
+            for (ColumnHandle columnHandle : columnHandles) {
+                ShardColumnStats stats = storageManager.getColumnStats(shardId, columnHandle);
+                if (stats != null) {
+                    columnStats.add(stats);
+                }
+            }
+
+            operatorContext.addOutputItems(sourceId, ImmutableSet.of(new TableWriterResult(shardId, nodeIdentifier, columnStats.build())));
         }
 
         Block block = new BlockBuilder(SINGLE_LONG).append(rowCount).build();
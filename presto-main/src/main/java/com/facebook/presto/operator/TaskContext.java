@@ -17,9 +17,11 @@ import com.facebook.presto.execution.StateMachine.StateChangeListener;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.execution.TaskState;
 import com.facebook.presto.execution.TaskStateMachine;
+import com.facebook.presto.memory.MemoryPool;
 import com.facebook.presto.sql.analyzer.Session;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.base.Function;
+import com.google.common.base.Optional;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimaps;
@@ -29,8 +31,10 @@ import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 import org.joda.time.DateTime;
 
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
+import java.io.File;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -57,8 +61,12 @@ public class TaskContext
 
     private final long maxMemory;
     private final DataSize operatorPreAllocatedMemory;
+    private final Optional<File> spillPath;
+    private final MemoryPool memoryPool;
 
     private final AtomicLong memoryReservation = new AtomicLong();
+    @GuardedBy("this")
+    private boolean memoryPoolReservationFreed;
 
     private final DateTime createdTime = DateTime.now();
     private final long createNanos = System.nanoTime();
@@ -96,12 +104,37 @@ public class TaskContext
     }
 
     public TaskContext(TaskStateMachine taskStateMachine, Executor executor, Session session, DataSize maxMemory, DataSize operatorPreAllocatedMemory, boolean cpuTimerEnabled)
+    {
+        this(taskStateMachine, executor, session, maxMemory, operatorPreAllocatedMemory, cpuTimerEnabled, Optional.<File>absent());
+    }
+
+    public TaskContext(TaskStateMachine taskStateMachine,
+            Executor executor,
+            Session session,
+            DataSize maxMemory,
+            DataSize operatorPreAllocatedMemory,
+            boolean cpuTimerEnabled,
+            Optional<File> spillPath)
+    {
+        this(taskStateMachine, executor, session, maxMemory, operatorPreAllocatedMemory, cpuTimerEnabled, spillPath, new MemoryPool(maxMemory));
+    }
+
+    public TaskContext(TaskStateMachine taskStateMachine,
+            Executor executor,
+            Session session,
+            DataSize maxMemory,
+            DataSize operatorPreAllocatedMemory,
+            boolean cpuTimerEnabled,
+            Optional<File> spillPath,
+            MemoryPool memoryPool)
     {
         this.taskStateMachine = checkNotNull(taskStateMachine, "taskStateMachine is null");
         this.executor = checkNotNull(executor, "executor is null");
         this.session = session;
         this.maxMemory = checkNotNull(maxMemory, "maxMemory is null").toBytes();
         this.operatorPreAllocatedMemory = checkNotNull(operatorPreAllocatedMemory, "operatorPreAllocatedMemory is null");
+        this.spillPath = checkNotNull(spillPath, "spillPath is null");
+        this.memoryPool = checkNotNull(memoryPool, "memoryPool is null");
 
         taskStateMachine.addStateChangeListener(new StateChangeListener<TaskState>()
         {
@@ -111,6 +144,7 @@ public class TaskContext
                 if (newValue.isDone()) {
                     executionEndTime.set(DateTime.now());
                     endNanos.set(System.nanoTime());
+                    freeMemoryPoolReservation();
                 }
             }
         });
@@ -169,6 +203,14 @@ public class TaskContext
         return operatorPreAllocatedMemory;
     }
 
+    /**
+     * Directory operators may spill to when they exceed the memory limit, or absent if spilling is disabled.
+     */
+    public Optional<File> getSpillPath()
+    {
+        return spillPath;
+    }
+
     public synchronized boolean reserveMemory(long bytes)
     {
         checkArgument(bytes >= 0, "bytes is negative");
@@ -177,9 +219,31 @@ public class TaskContext
             return false;
         }
         memoryReservation.getAndAdd(bytes);
+        if (!memoryPoolReservationFreed) {
+            memoryPool.reserve(getTaskId().getQueryId(), bytes);
+        }
         return true;
     }
 
+    public synchronized void freeMemory(long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        checkArgument(bytes <= memoryReservation.get(), "tried to free more memory than is reserved");
+
+        memoryReservation.getAndAdd(-bytes);
+        if (!memoryPoolReservationFreed) {
+            memoryPool.free(getTaskId().getQueryId(), bytes);
+        }
+    }
+
+    private synchronized void freeMemoryPoolReservation()
+    {
+        if (!memoryPoolReservationFreed) {
+            memoryPoolReservationFreed = true;
+            memoryPool.free(getTaskId().getQueryId(), memoryReservation.get());
+        }
+    }
+
     public boolean isCpuTimerEnabled()
     {
         return cpuTimerEnabled;
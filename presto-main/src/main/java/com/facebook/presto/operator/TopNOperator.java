@@ -15,25 +15,32 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.block.Block;
 import com.facebook.presto.block.BlockCursor;
-import com.facebook.presto.tuple.Tuple;
+import com.facebook.presto.block.uncompressed.UncompressedBlock;
 import com.facebook.presto.tuple.TupleInfo;
-import com.facebook.presto.tuple.TupleReadable;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Ordering;
 import com.google.common.util.concurrent.ListenableFuture;
-import io.airlift.units.DataSize;
+import io.airlift.slice.Slice;
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+import it.unimi.dsi.fastutil.ints.IntHeaps;
 
-import java.util.Comparator;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
-import java.util.PriorityQueue;
 
+import static com.facebook.presto.block.BlockUtils.toUncompressedBlock;
+import static com.facebook.presto.operator.SyntheticAddress.decodeSliceOffset;
+import static com.facebook.presto.sql.gen.TupleCompiler.compileComparator;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.slice.SizeOf.sizeOf;
 
 /**
  * Returns the top N rows from the source sorted according to the specified ordering in the keyChannelIndex channel.
+ * <p/>
+ * Rows that can enter the top N are projected when they are selected and are stored in channel indexes, and
+ * the current top N rows are tracked with a heap of row numbers.  Rows evicted from the heap are dropped when the
+ * indexes are compacted, so no objects are allocated per row.
  */
 public class TopNOperator
         implements Operator
@@ -45,7 +52,8 @@ public class TopNOperator
         private final int n;
         private final int keyChannelIndex;
         private final List<ProjectionFunction> projections;
-        private final Ordering<TupleReadable> ordering;
+        private final int[] sortFields;
+        private final boolean[] sortOrder;
         private final boolean partial;
         private final List<TupleInfo> tupleInfos;
         private boolean closed;
@@ -55,14 +63,16 @@ public class TopNOperator
                 int n,
                 int keyChannelIndex,
                 List<ProjectionFunction> projections,
-                Ordering<TupleReadable> ordering,
+                int[] sortFields,
+                boolean[] sortOrder,
                 boolean partial)
         {
             this.operatorId = operatorId;
             this.n = n;
             this.keyChannelIndex = keyChannelIndex;
             this.projections = projections;
-            this.ordering = ordering;
+            this.sortFields = sortFields;
+            this.sortOrder = sortOrder;
             this.partial = partial;
             this.tupleInfos = toTupleInfos(projections);
         }
@@ -83,7 +93,8 @@ public class TopNOperator
                     n,
                     keyChannelIndex,
                     projections,
-                    ordering,
+                    sortFields,
+                    sortOrder,
                     partial);
         }
 
@@ -94,14 +105,15 @@ public class TopNOperator
         }
     }
 
-    private static final int MAX_INITIAL_PRIORITY_QUEUE_SIZE = 10000;
-    private static final DataSize OVERHEAD_PER_TUPLE = new DataSize(100, DataSize.Unit.BYTE); // for estimating in-memory size. This is a completely arbitrary number
+    private static final int MAX_INITIAL_HEAP_SIZE = 10000;
+    private static final int MIN_COMPACTION_ROWS = 1024;
 
     private final OperatorContext operatorContext;
     private final int n;
     private final int keyChannelIndex;
     private final List<ProjectionFunction> projections;
-    private final Ordering<TupleReadable> ordering;
+    private final int[] sortFields;
+    private final boolean[] sortOrder;
     private final List<TupleInfo> tupleInfos;
     private final TopNMemoryManager memoryManager;
     private final boolean partial;
@@ -111,14 +123,17 @@ public class TopNOperator
     private TopNBuilder topNBuilder;
     private boolean finishing;
 
-    private Iterator<KeyAndTuples> outputIterator;
+    private TopNBuilder outputBuilder;
+    private int[] outputRows;
+    private int outputPosition;
 
     public TopNOperator(
             OperatorContext operatorContext,
             int n,
             int keyChannelIndex,
             List<ProjectionFunction> projections,
-            Ordering<TupleReadable> ordering,
+            int[] sortFields,
+            boolean[] sortOrder,
             boolean partial)
     {
         this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
@@ -132,8 +147,9 @@ public class TopNOperator
         this.projections = ImmutableList.copyOf(checkNotNull(projections, "projections is null"));
         checkArgument(!projections.isEmpty(), "projections is empty");
 
-        // the priority queue needs to sort in reverse order to be able to remove the least element in O(1)
-        this.ordering = checkNotNull(ordering, "ordering is null").reverse();
+        this.sortFields = checkNotNull(sortFields, "sortFields is null").clone();
+        this.sortOrder = checkNotNull(sortOrder, "sortOrder is null").clone();
+        checkArgument(sortFields.length == sortOrder.length, "sortFields size (%s) doesn't match sortOrder size (%s)", sortFields.length, sortOrder.length);
 
         this.partial = partial;
 
@@ -165,7 +181,7 @@ public class TopNOperator
     @Override
     public boolean isFinished()
     {
-        return finishing && topNBuilder == null && (outputIterator == null || !outputIterator.hasNext());
+        return finishing && topNBuilder == null && outputRows == null;
     }
 
     @Override
@@ -177,7 +193,7 @@ public class TopNOperator
     @Override
     public boolean needsInput()
     {
-        return !finishing && outputIterator == null && (topNBuilder == null || !topNBuilder.isFull());
+        return !finishing && outputRows == null && (topNBuilder == null || !topNBuilder.isFull());
     }
 
     @Override
@@ -189,7 +205,10 @@ public class TopNOperator
             topNBuilder = new TopNBuilder(
                     n,
                     keyChannelIndex,
-                    ordering,
+                    page.getBlock(keyChannelIndex).getTupleInfo(),
+                    projections,
+                    sortFields,
+                    sortOrder,
                     memoryManager);
         }
 
@@ -200,7 +219,7 @@ public class TopNOperator
     @Override
     public Page getOutput()
     {
-        if (outputIterator == null || !outputIterator.hasNext()) {
+        if (outputRows == null) {
             // no data
             if (topNBuilder == null) {
                 return null;
@@ -214,20 +233,27 @@ public class TopNOperator
             // Only partial aggregation can flush early. Also, check that we are not flushing tiny bits at a time
             checkState(finishing || partial, "Task exceeded max memory size of %s", memoryManager.getMaxMemorySize());
 
-            outputIterator = topNBuilder.build();
+            outputBuilder = topNBuilder;
+            outputRows = topNBuilder.build();
+            outputPosition = 0;
             topNBuilder = null;
         }
 
         pageBuilder.reset();
-        while (!pageBuilder.isFull() && outputIterator.hasNext()) {
-            KeyAndTuples next = outputIterator.next();
-            for (int i = 0; i < projections.size(); i++) {
-                projections.get(i).project(next.getTuples(), pageBuilder.getBlockBuilder(i));
-            }
+        while (!pageBuilder.isFull() && outputPosition < outputRows.length) {
+            outputBuilder.appendRowTo(outputRows[outputPosition], pageBuilder);
+            outputPosition++;
+        }
+
+        if (outputPosition == outputRows.length) {
+            outputBuilder = null;
+            outputRows = null;
         }
 
-        Page page = pageBuilder.build();
-        return page;
+        if (pageBuilder.isEmpty()) {
+            return null;
+        }
+        return pageBuilder.build();
     }
 
     private static List<TupleInfo> toTupleInfos(List<ProjectionFunction> projections)
@@ -243,99 +269,210 @@ public class TopNOperator
     {
         private final int n;
         private final int keyChannelIndex;
-        private final Ordering<TupleReadable> ordering;
+        private final List<ProjectionFunction> projections;
+        private final TupleComparator comparator;
         private final TopNMemoryManager memoryManager;
-        private final PriorityQueue<KeyAndTuples> globalCandidates;
+
+        // the projected channels, followed by the key channel
+        private final List<TupleInfo> rowTupleInfos;
+        private final int keyChannel;
+        private final PageBuilder rowPageBuilder;
+        private ChannelIndex[] rowIndexes;
+        private int rowCount;
+
+        // max heap of the rows in the current top n, so the root is the row to evict first
+        private int[] heap;
+        private int heapSize;
+        private final IntComparator heapComparator;
+
+        // keys of the page being processed, and a max heap of the best positions in the page
+        private Slice pageKeySlice;
+        private int[] pageKeyOffsets = new int[0];
+        private int[] pageCandidates = new int[0];
+        private final IntComparator pageCandidateComparator;
 
         private long memorySize;
 
-        private TopNBuilder(int n, int keyChannelIndex, Ordering<TupleReadable> ordering, TopNMemoryManager memoryManager)
+        private TopNBuilder(
+                int n,
+                int keyChannelIndex,
+                TupleInfo keyTupleInfo,
+                List<ProjectionFunction> projections,
+                int[] sortFields,
+                boolean[] sortOrder,
+                TopNMemoryManager memoryManager)
         {
             this.n = n;
             this.keyChannelIndex = keyChannelIndex;
-            this.ordering = ordering;
+            this.projections = projections;
+            this.comparator = compileComparator(keyTupleInfo, sortFields, sortOrder);
             this.memoryManager = memoryManager;
-            this.globalCandidates = new PriorityQueue<>(Math.min(n, MAX_INITIAL_PRIORITY_QUEUE_SIZE), KeyAndTuples.keyComparator(ordering));
+
+            this.rowTupleInfos = ImmutableList.<TupleInfo>builder()
+                    .addAll(toTupleInfos(projections))
+                    .add(keyTupleInfo)
+                    .build();
+            this.keyChannel = projections.size();
+            this.rowPageBuilder = new PageBuilder(rowTupleInfos);
+            this.rowIndexes = createRowIndexes(rowTupleInfos, Math.min(n, MAX_INITIAL_HEAP_SIZE));
+
+            this.heap = new int[Math.min(n, MAX_INITIAL_HEAP_SIZE)];
+            this.heapComparator = new AbstractIntComparator()
+            {
+                @Override
+                public int compare(int leftRow, int rightRow)
+                {
+                    return compareRows(rightRow, leftRow);
+                }
+            };
+            this.pageCandidateComparator = new AbstractIntComparator()
+            {
+                @Override
+                public int compare(int leftPosition, int rightPosition)
+                {
+                    return comparator.compare(pageKeySlice, pageKeyOffsets[rightPosition], pageKeySlice, pageKeyOffsets[leftPosition]);
+                }
+            };
         }
 
         public void processPage(Page page)
         {
-            Iterable<KeyAndPosition> keyAndPositions = computePageCandidatePositions(globalCandidates, page);
-            long sizeDelta = mergeWithGlobalCandidates(globalCandidates, page, keyAndPositions);
-            memorySize += sizeDelta;
+            int candidateCount = selectPageCandidates(toUncompressedBlock(page.getBlock(keyChannelIndex)));
+            if (candidateCount > 0) {
+                // read the candidates in position order so the cursors only move forward
+                Arrays.sort(pageCandidates, 0, candidateCount);
+                addRows(page, candidateCount);
+            }
+            pageKeySlice = null;
+
+            if (rowCount - heapSize > Math.max(heapSize, MIN_COMPACTION_ROWS)) {
+                compact();
+            }
+            memorySize = calculateEstimatedSize();
         }
 
-        private long mergeWithGlobalCandidates(PriorityQueue<KeyAndTuples> globalCandidates, Page page, Iterable<KeyAndPosition> pageValueAndPositions)
+        /**
+         * Selects the positions in the page that would enter the current top n.  At most n positions are
+         * selected, and they are stored unordered at the start of {@link #pageCandidates}.
+         */
+        private int selectPageCandidates(UncompressedBlock keyBlock)
         {
-            long sizeDelta = 0;
+            int positionCount = keyBlock.getPositionCount();
+            if (pageKeyOffsets.length < positionCount) {
+                pageKeyOffsets = new int[positionCount];
+            }
+            if (pageCandidates.length < Math.min(n, positionCount)) {
+                pageCandidates = new int[Math.min(n, positionCount)];
+            }
+
+            pageKeySlice = keyBlock.getSlice();
+            BlockCursor cursor = keyBlock.cursor();
+            for (int position = 0; position < positionCount; position++) {
+                checkState(cursor.advanceNextPosition());
+                pageKeyOffsets[position] = cursor.getRawOffset();
+            }
+
+            int candidateCount = 0;
+            for (int position = 0; position < positionCount; position++) {
+                // only consider rows that sort before the worst row in the current top n
+                if (heapSize == n && compareKeyToRow(pageKeySlice, pageKeyOffsets[position], heap[0]) >= 0) {
+                    continue;
+                }
 
-            // Sort by positions so that we can advance through the values via cursors
-            List<KeyAndPosition> positionSorted = Ordering.from(KeyAndPosition.positionComparator()).sortedCopy(pageValueAndPositions);
+                if (candidateCount < n) {
+                    pageCandidates[candidateCount] = position;
+                    candidateCount++;
+                    IntHeaps.upHeap(pageCandidates, candidateCount, candidateCount - 1, pageCandidateComparator);
+                }
+                else if (pageCandidateComparator.compare(pageCandidates[0], position) < 0) {
+                    pageCandidates[0] = position;
+                    IntHeaps.downHeap(pageCandidates, candidateCount, 0, pageCandidateComparator);
+                }
+            }
+            return candidateCount;
+        }
 
+        private void addRows(Page page, int candidateCount)
+        {
             Block[] blocks = page.getBlocks();
             BlockCursor[] cursors = new BlockCursor[blocks.length];
-            for (int i = 0; i < blocks.length; i++) {
-                cursors[i] = blocks[i].cursor();
+            for (int channel = 0; channel < blocks.length; channel++) {
+                cursors[channel] = blocks[channel].cursor();
             }
-            for (KeyAndPosition keyAndPosition : positionSorted) {
+
+            rowPageBuilder.reset();
+            for (int i = 0; i < candidateCount; i++) {
                 for (BlockCursor cursor : cursors) {
-                    checkState(cursor.advanceToPosition(keyAndPosition.getPosition()));
+                    checkState(cursor.advanceToPosition(pageCandidates[i]));
                 }
-                if (globalCandidates.size() < n) {
-                    Tuple[] tuples = getTuples(keyAndPosition, cursors);
-                    for (Tuple tuple : tuples) {
-                        sizeDelta += tuple.size();
-                    }
-                    sizeDelta += OVERHEAD_PER_TUPLE.toBytes();
-                    globalCandidates.add(new KeyAndTuples(keyAndPosition.getKey(), tuples));
+                for (int channel = 0; channel < projections.size(); channel++) {
+                    projections.get(channel).project(cursors, rowPageBuilder.getBlockBuilder(channel));
                 }
-                else if (ordering.compare(keyAndPosition.getKey(), globalCandidates.peek().getKey()) > 0) {
-                    KeyAndTuples previous = globalCandidates.remove();
-                    for (Tuple tuple : previous.getTuples()) {
-                        sizeDelta -= tuple.size();
-                    }
+                cursors[keyChannelIndex].appendTupleTo(rowPageBuilder.getBlockBuilder(keyChannel));
 
-                    Tuple[] tuples = getTuples(keyAndPosition, cursors);
-                    globalCandidates.add(new KeyAndTuples(keyAndPosition.getKey(), tuples));
-                    for (Tuple tuple : tuples) {
-                        sizeDelta += tuple.size();
-                    }
-                    sizeDelta += keyAndPosition.getKey().size();
+                if (rowPageBuilder.isFull()) {
+                    flushRows();
                 }
             }
-
-            return sizeDelta;
+            flushRows();
         }
 
-        private Iterable<KeyAndPosition> computePageCandidatePositions(PriorityQueue<KeyAndTuples> globalCandidates, Page page)
+        /**
+         * Moves the rows in the row page builder to the row indexes, and offers them to the heap.
+         */
+        private void flushRows()
         {
-            PriorityQueue<KeyAndPosition> pageCandidates = new PriorityQueue<>(Math.min(n, MAX_INITIAL_PRIORITY_QUEUE_SIZE), KeyAndPosition.keyComparator(ordering));
-            KeyAndTuples smallestGlobalCandidate = globalCandidates.peek(); // This can be null if globalCandidates is empty
-            BlockCursor cursor = page.getBlock(keyChannelIndex).cursor();
-            while (cursor.advanceNextPosition()) {
-                // Only consider value if it would be a candidate when compared against the current global candidates
-                if (globalCandidates.size() < n || ordering.compare(cursor, smallestGlobalCandidate.getKey()) > 0) {
-                    if (pageCandidates.size() < n) {
-                        pageCandidates.add(new KeyAndPosition(cursor.getTuple(), cursor.getPosition()));
-                    }
-                    else if (ordering.compare(cursor, pageCandidates.peek().getKey()) > 0) {
-                        pageCandidates.remove();
-                        pageCandidates.add(new KeyAndPosition(cursor.getTuple(), cursor.getPosition()));
+            if (rowPageBuilder.isEmpty()) {
+                return;
+            }
+            int firstRow = rowCount;
+            indexRows(rowIndexes, rowPageBuilder.build());
+            rowPageBuilder.reset();
+            rowCount = rowIndexes[0].getPositionCount();
+
+            for (int row = firstRow; row < rowCount; row++) {
+                if (heapSize < n) {
+                    if (heapSize == heap.length) {
+                        heap = Arrays.copyOf(heap, (int) Math.min((long) n, heap.length * 2L));
                     }
+                    heap[heapSize] = row;
+                    heapSize++;
+                    IntHeaps.upHeap(heap, heapSize, heapSize - 1, heapComparator);
+                }
+                else if (compareRows(row, heap[0]) < 0) {
+                    // the evicted row stays in the row indexes until they are compacted
+                    heap[0] = row;
+                    IntHeaps.downHeap(heap, heapSize, 0, heapComparator);
                 }
             }
-            return pageCandidates;
         }
 
-        private Tuple[] getTuples(KeyAndPosition keyAndPosition, BlockCursor[] cursors)
+        /**
+         * Copies the rows in the heap to new row indexes, which drops the evicted rows.  The
+         * rows are copied in heap order, so the heap only needs to be renumbered.
+         */
+        private void compact()
         {
-            // TODO: pre-project columns to minimize storage in global candidate set
-            Tuple[] tuples = new Tuple[cursors.length];
-            for (int channel = 0; channel < cursors.length; channel++) {
-                // Optimization since key channel already has a materialized Tuple
-                tuples[channel] = (channel == keyChannelIndex) ? keyAndPosition.getKey() : cursors[channel].getTuple();
+            ChannelIndex[] oldRowIndexes = rowIndexes;
+            rowIndexes = createRowIndexes(rowTupleInfos, heapSize);
+
+            rowPageBuilder.reset();
+            for (int i = 0; i < heapSize; i++) {
+                for (int channel = 0; channel < oldRowIndexes.length; channel++) {
+                    oldRowIndexes[channel].appendTo(heap[i], rowPageBuilder.getBlockBuilder(channel));
+                }
+                heap[i] = i;
+
+                if (rowPageBuilder.isFull()) {
+                    indexRows(rowIndexes, rowPageBuilder.build());
+                    rowPageBuilder.reset();
+                }
             }
-            return tuples;
+            if (!rowPageBuilder.isEmpty()) {
+                indexRows(rowIndexes, rowPageBuilder.build());
+                rowPageBuilder.reset();
+            }
+            rowCount = heapSize;
         }
 
         private boolean isFull()
@@ -343,13 +480,74 @@ public class TopNOperator
             return memoryManager.canUse(memorySize);
         }
 
-        public Iterator<KeyAndTuples> build()
+        /**
+         * Removes all rows from the heap, and returns them in sort order.
+         */
+        public int[] build()
+        {
+            int[] rows = new int[heapSize];
+            while (heapSize > 0) {
+                // the root of the heap is the last row in sort order
+                rows[heapSize - 1] = heap[0];
+                heapSize--;
+                heap[0] = heap[heapSize];
+                if (heapSize > 0) {
+                    IntHeaps.downHeap(heap, heapSize, 0, heapComparator);
+                }
+            }
+            return rows;
+        }
+
+        public void appendRowTo(int row, PageBuilder pageBuilder)
+        {
+            for (int channel = 0; channel < projections.size(); channel++) {
+                rowIndexes[channel].appendTo(row, pageBuilder.getBlockBuilder(channel));
+            }
+        }
+
+        private int compareRows(int leftRow, int rightRow)
+        {
+            ChannelIndex keyIndex = rowIndexes[keyChannel];
+            long leftAddress = keyIndex.getValueAddresses().getLong(leftRow);
+            long rightAddress = keyIndex.getValueAddresses().getLong(rightRow);
+            return comparator.compare(
+                    keyIndex.getSliceForSyntheticAddress(leftAddress),
+                    decodeSliceOffset(leftAddress),
+                    keyIndex.getSliceForSyntheticAddress(rightAddress),
+                    decodeSliceOffset(rightAddress));
+        }
+
+        private int compareKeyToRow(Slice keySlice, int keyOffset, int row)
+        {
+            ChannelIndex keyIndex = rowIndexes[keyChannel];
+            long address = keyIndex.getValueAddresses().getLong(row);
+            return comparator.compare(keySlice, keyOffset, keyIndex.getSliceForSyntheticAddress(address), decodeSliceOffset(address));
+        }
+
+        private long calculateEstimatedSize()
+        {
+            long size = sizeOf(heap) + sizeOf(pageKeyOffsets) + sizeOf(pageCandidates);
+            for (ChannelIndex rowIndex : rowIndexes) {
+                size += rowIndex.getEstimatedSize().toBytes();
+            }
+            return size;
+        }
+
+        private static ChannelIndex[] createRowIndexes(List<TupleInfo> tupleInfos, int expectedPositions)
+        {
+            ChannelIndex[] indexes = new ChannelIndex[tupleInfos.size()];
+            for (int channel = 0; channel < indexes.length; channel++) {
+                indexes[channel] = new ChannelIndex(expectedPositions, tupleInfos.get(channel));
+            }
+            return indexes;
+        }
+
+        private static void indexRows(ChannelIndex[] indexes, Page page)
         {
-            ImmutableList.Builder<KeyAndTuples> minSortedGlobalCandidates = ImmutableList.builder();
-            while (!globalCandidates.isEmpty()) {
-                minSortedGlobalCandidates.add(globalCandidates.remove());
+            Block[] blocks = page.getBlocks();
+            for (int channel = 0; channel < indexes.length; channel++) {
+                indexes[channel].indexBlock(toUncompressedBlock(blocks[channel]));
             }
-            return minSortedGlobalCandidates.build().reverse().iterator();
         }
     }
 
@@ -387,84 +585,4 @@ public class TopNOperator
             return operatorContext.getMaxMemorySize();
         }
     }
-
-    private static class KeyAndPosition
-    {
-        private final Tuple key;
-        private final int position;
-
-        private KeyAndPosition(Tuple key, int position)
-        {
-            this.key = key;
-            this.position = position;
-        }
-
-        public Tuple getKey()
-        {
-            return key;
-        }
-
-        public int getPosition()
-        {
-            return position;
-        }
-
-        public static Comparator<KeyAndPosition> keyComparator(final Comparator<TupleReadable> tupleReadableComparator)
-        {
-            return new Comparator<KeyAndPosition>()
-            {
-                @Override
-                public int compare(KeyAndPosition o1, KeyAndPosition o2)
-                {
-                    return tupleReadableComparator.compare(o1.getKey(), o2.getKey());
-                }
-            };
-        }
-
-        public static Comparator<KeyAndPosition> positionComparator()
-        {
-            return new Comparator<KeyAndPosition>()
-            {
-                @Override
-                public int compare(KeyAndPosition o1, KeyAndPosition o2)
-                {
-                    return Long.compare(o1.getPosition(), o2.getPosition());
-                }
-            };
-        }
-    }
-
-    private static class KeyAndTuples
-    {
-        private final Tuple key;
-        private final Tuple[] tuples;
-
-        private KeyAndTuples(Tuple key, Tuple[] tuples)
-        {
-            this.key = key;
-            this.tuples = tuples;
-        }
-
-        public Tuple getKey()
-        {
-            return key;
-        }
-
-        public Tuple[] getTuples()
-        {
-            return tuples;
-        }
-
-        public static Comparator<KeyAndTuples> keyComparator(final Comparator<TupleReadable> tupleReadableComparator)
-        {
-            return new Comparator<KeyAndTuples>()
-            {
-                @Override
-                public int compare(KeyAndTuples o1, KeyAndTuples o2)
-                {
-                    return tupleReadableComparator.compare(o1.getKey(), o2.getKey());
-                }
-            };
-        }
-    }
 }
@@ -0,0 +1,28 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import io.airlift.slice.Slice;
+
+/**
+ * Hashes and compares the raw bytes of tuples with a single tuple info.  Two tuples are
+ * equal if their bytes, including the null flags, are equal.  Implementations are
+ * generated for each tuple info by {@link com.facebook.presto.sql.gen.TupleCompiler}.
+ */
+public interface TupleHashStrategy
+{
+    int hashCode(Slice slice, int offset);
+
+    boolean equals(Slice leftSlice, int leftOffset, Slice rightSlice, int rightOffset);
+}
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.operator.ExternalSorter.MergedRuns;
 import com.facebook.presto.operator.PagesIndex.MultiSliceFieldOrderedTupleComparator;
 import com.facebook.presto.operator.window.WindowFunction;
 import com.facebook.presto.tuple.TupleInfo;
@@ -20,8 +21,10 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Booleans;
 import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.slice.Slice;
 import it.unimi.dsi.fastutil.ints.IntComparator;
 
+import java.io.Closeable;
 import java.util.Arrays;
 import java.util.List;
 
@@ -29,7 +32,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 public class WindowOperator
-        implements Operator
+        implements Operator, Closeable
 {
     public static class InMemoryWindowOperatorFactory
             implements OperatorFactory
@@ -109,18 +112,27 @@ public class WindowOperator
     }
 
     private final OperatorContext operatorContext;
+    private final List<TupleInfo> sourceTupleInfos;
     private final int orderingChannel;
     private final int[] outputChannels;
     private final List<WindowFunction> windowFunctions;
     private final int[] partitionFields;
+    private final boolean[] partitionOrder;
     private final int[] sortFields;
     private final boolean[] sortOrder;
+    private final int expectedPositions;
     private final List<TupleInfo> tupleInfos;
 
-    private final PagesIndex pageIndex;
+    private final ExternalSorter sorter;
 
     private final PageBuilder pageBuilder;
 
+    private PagesIndex pageIndex;
+
+    // set when the input was spilled, in which case the partitions are loaded from the merged runs a few at a time
+    private MergedRuns mergedRuns;
+    private boolean mergedRunsHasPosition;
+
     private State state = State.NEEDS_INPUT;
 
     private int currentPosition;
@@ -144,16 +156,25 @@ public class WindowOperator
             int expectedPositions)
     {
         this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
+        this.sourceTupleInfos = ImmutableList.copyOf(checkNotNull(sourceTupleInfos, "sourceTupleInfos is null"));
         this.orderingChannel = orderingChannel;
         this.outputChannels = checkNotNull(outputChannels, "outputChannels is null").clone();
         this.windowFunctions = checkNotNull(windowFunctions, "windowFunctions is null");
         this.partitionFields = checkNotNull(partitionFields, "partitionFields is null").clone();
         this.sortFields = checkNotNull(sortFields, "sortFields is null").clone();
         this.sortOrder = checkNotNull(sortOrder, "sortOrder is null").clone();
+        this.expectedPositions = expectedPositions;
 
         this.tupleInfos = toTupleInfos(sourceTupleInfos, outputChannels, windowFunctions);
 
-        this.pageIndex = new PagesIndex(sourceTupleInfos, expectedPositions, operatorContext);
+        this.partitionOrder = new boolean[partitionFields.length];
+        Arrays.fill(partitionOrder, true);
+
+        // sort by partition fields, then sort fields
+        int[] orderFields = Ints.concat(partitionFields, sortFields);
+        boolean[] ordering = Booleans.concat(partitionOrder, sortOrder);
+
+        this.sorter = new ExternalSorter(operatorContext, sourceTupleInfos, expectedPositions, orderingChannel, orderFields, ordering);
         this.pageBuilder = new PageBuilder(this.tupleInfos);
     }
 
@@ -175,24 +196,83 @@ public class WindowOperator
         if (state == State.NEEDS_INPUT) {
             state = State.HAS_OUTPUT;
 
-            // sort by partition fields, then sort fields
-            int[] orderFields = Ints.concat(partitionFields, sortFields);
+            // sort the index, or merge the runs if the input was spilled
+            sorter.finish();
+            if (sorter.isSpilled()) {
+                mergedRuns = sorter.getMergedRuns();
+                mergedRunsHasPosition = mergedRuns.advanceNextPosition();
+                pageIndex = new PagesIndex(sourceTupleInfos, expectedPositions, operatorContext);
+            }
+            else {
+                setPageIndex(sorter.getSortedIndex());
+            }
+        }
+    }
+
+    private void setPageIndex(PagesIndex pageIndex)
+    {
+        this.pageIndex = pageIndex;
+        currentPosition = 0;
+        partitionEnd = 0;
+        peerGroupEnd = 0;
+
+        // create partition comparator
+        ChannelIndex index = pageIndex.getIndex(orderingChannel);
+        partitionComparator = new MultiSliceFieldOrderedTupleComparator(partitionFields, partitionOrder, index);
+
+        // create order comparator
+        index = pageIndex.getIndex(orderingChannel);
+        orderComparator = new MultiSliceFieldOrderedTupleComparator(sortFields, sortOrder, index);
+    }
 
-            boolean[] partitionOrder = new boolean[partitionFields.length];
-            Arrays.fill(partitionOrder, true);
-            boolean[] ordering = Booleans.concat(partitionOrder, sortOrder);
+    /**
+     * Loads the next partitions from the merged runs into a new index.  Whole partitions are loaded
+     * until the index has at least the expected number of positions, so a single partition must
+     * still fit in the memory of the task.
+     *
+     * @return false if there are no more partitions
+     */
+    private boolean loadNextPartitions()
+    {
+        if (mergedRuns == null || !mergedRunsHasPosition) {
+            return false;
+        }
 
-            // sort the index
-            pageIndex.sort(orderingChannel, orderFields, ordering);
+        MultiSliceFieldOrderedTupleComparator comparator = new MultiSliceFieldOrderedTupleComparator(partitionFields, partitionOrder, sourceTupleInfos.get(orderingChannel));
+        PagesIndex index = new PagesIndex(sourceTupleInfos, expectedPositions, operatorContext);
+        PageBuilder partitionPageBuilder = new PageBuilder(sourceTupleInfos);
+        int positionCount = 0;
+        Slice partitionSlice = null;
+        int partitionOffset = 0;
+        while (mergedRunsHasPosition) {
+            Slice slice = mergedRuns.getRawSlice(orderingChannel);
+            int offset = mergedRuns.getRawOffset(orderingChannel);
+
+            // only stop at the start of a new partition
+            boolean newPartition = partitionSlice == null || comparator.compare(partitionSlice, partitionOffset, slice, offset) != 0;
+            if (newPartition && positionCount >= expectedPositions) {
+                break;
+            }
+            partitionSlice = slice;
+            partitionOffset = offset;
 
-            // create partition comparator
-            ChannelIndex index = pageIndex.getIndex(orderingChannel);
-            partitionComparator = new MultiSliceFieldOrderedTupleComparator(partitionFields, partitionOrder, index);
+            for (int channel = 0; channel < sourceTupleInfos.size(); channel++) {
+                mergedRuns.appendTupleTo(channel, partitionPageBuilder.getBlockBuilder(channel));
+            }
+            positionCount++;
+            if (partitionPageBuilder.isFull()) {
+                index.addPage(partitionPageBuilder.build());
+                partitionPageBuilder.reset();
+            }
 
-            // create order comparator
-            index = pageIndex.getIndex(orderingChannel);
-            orderComparator = new MultiSliceFieldOrderedTupleComparator(sortFields, sortOrder, index);
+            mergedRunsHasPosition = mergedRuns.advanceNextPosition();
+        }
+        if (!partitionPageBuilder.isEmpty()) {
+            index.addPage(partitionPageBuilder.build());
         }
+
+        setPageIndex(index);
+        return true;
     }
 
     @Override
@@ -219,7 +299,7 @@ public class WindowOperator
         checkState(state == State.NEEDS_INPUT, "Operator is already finishing");
         checkNotNull(page, "page is null");
 
-        pageIndex.addPage(page);
+        sorter.addPage(page);
     }
 
     @Override
@@ -229,7 +309,7 @@ public class WindowOperator
             return null;
         }
 
-        if (currentPosition >= pageIndex.getPositionCount()) {
+        if (currentPosition >= pageIndex.getPositionCount() && !loadNextPartitions()) {
             state = State.FINISHED;
             return null;
         }
@@ -291,6 +371,12 @@ public class WindowOperator
         return page;
     }
 
+    @Override
+    public void close()
+    {
+        sorter.close();
+    }
+
     private static List<TupleInfo> toTupleInfos(List<TupleInfo> sourceTupleInfos, int[] outputChannels, List<WindowFunction> windowFunctions)
     {
         ImmutableList.Builder<TupleInfo> tupleInfosBuilder = ImmutableList.builder();
@@ -48,6 +48,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
 /**
  * Extracts values from JSON
  * <p/>
+ * The SQL functions extract with a {@link JsonPathScanner}, which works directly on the bytes of
+ * the document.  The {@link JsonExtractor} chain extracts the same values with a streaming parser.
+ * <p/>
  * Supports the following JSON path primitives:
  * <pre>
  *    $ : Root object
@@ -150,21 +153,19 @@ public final class JsonExtract
         return extract(JSON_CACHE, jsonInput, jsonPath);
     }
 
-    public static Slice extract(ThreadLocalCache<Slice, JsonExtractor> cache, @Nullable Slice jsonInput, Slice jsonPath)
-            throws IOException
+    public static Slice extract(ThreadLocalCache<Slice, JsonPathScanner> cache, @Nullable Slice jsonInput, Slice jsonPath)
     {
         checkNotNull(jsonPath, "jsonPath is null");
         if (jsonInput == null) {
             return null;
         }
 
-        try {
-            return extractInternal(jsonInput, cache.get(jsonPath));
-        }
-        catch (JsonParseException e) {
-            // Return null if we failed to parse something
-            return null;
-        }
+        return cache.get(jsonPath).extract(jsonInput);
+    }
+
+    public static Slice extract(Slice jsonInput, JsonPathScanner jsonPathScanner)
+    {
+        return jsonPathScanner.extract(jsonInput);
     }
 
     public static Slice extract(Slice jsonInput, JsonExtractor jsonExtractor)
@@ -194,7 +195,7 @@ public final class JsonExtract
         }
     }
 
-    private static Iterable<String> tokenizePath(String path)
+    static Iterable<String> tokenizePath(String path)
     {
         checkArgument(EXPECTED_PATH.matcher(path).matches(), "Invalid/unsupported JSON path: '%s'", path);
         // This performs the following transformation:
@@ -380,7 +381,7 @@ public final class JsonExtract
     }
 
     public static class JsonExtractCache
-            extends ThreadLocalCache<Slice, JsonExtractor>
+            extends ThreadLocalCache<Slice, JsonPathScanner>
     {
         private final boolean isScalarValue;
 
@@ -391,9 +392,9 @@ public final class JsonExtract
         }
 
         @Override
-        protected JsonExtractor load(Slice jsonPath)
+        protected JsonPathScanner load(Slice jsonPath)
         {
-            return generateExtractor(jsonPath.toString(Charsets.UTF_8), isScalarValue);
+            return new JsonPathScanner(jsonPath.toString(Charsets.UTF_8), isScalarValue);
         }
     }
 }
@@ -16,7 +16,6 @@ package com.facebook.presto.operator.scalar;
 import com.facebook.presto.byteCode.ByteCodeNode;
 import com.facebook.presto.byteCode.instruction.Constant;
 import com.facebook.presto.operator.scalar.JsonExtract.JsonExtractCache;
-import com.facebook.presto.operator.scalar.JsonExtract.JsonExtractor;
 import com.facebook.presto.sql.gen.DefaultFunctionBinder;
 import com.facebook.presto.sql.gen.FunctionBinder;
 import com.facebook.presto.sql.gen.FunctionBinding;
@@ -39,7 +38,6 @@ import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.List;
 
-import static com.facebook.presto.operator.scalar.JsonExtract.generateExtractor;
 import static com.fasterxml.jackson.core.JsonFactory.Feature.CANONICALIZE_FIELD_NAMES;
 import static com.fasterxml.jackson.core.JsonParser.NumberType;
 import static com.fasterxml.jackson.core.JsonToken.END_ARRAY;
@@ -66,28 +64,7 @@ public final class JsonFunctions
     @ScalarFunction
     public static Long jsonArrayLength(Slice json)
     {
-        try (JsonParser parser = JSON_FACTORY.createJsonParser(json.getInput())) {
-            if (parser.nextToken() != START_ARRAY) {
-                return null;
-            }
-
-            long length = 0;
-            while (true) {
-                JsonToken token = parser.nextToken();
-                if (token == null) {
-                    return null;
-                }
-                if (token == END_ARRAY) {
-                    return length;
-                }
-                parser.skipChildren();
-
-                length++;
-            }
-        }
-        catch (IOException e) {
-            return null;
-        }
+        return JsonPathScanner.arrayLength(json);
     }
 
     @Nullable
@@ -247,7 +224,7 @@ public final class JsonFunctions
 
         static {
             try {
-                constantJsonExtract = lookup().findStatic(JsonExtract.class, "extract", methodType(Slice.class, Slice.class, JsonExtractor.class));
+                constantJsonExtract = lookup().findStatic(JsonExtract.class, "extract", methodType(Slice.class, Slice.class, JsonPathScanner.class));
                 dynamicJsonExtract = lookup().findStatic(JsonExtract.class, "extract", methodType(Slice.class, ThreadLocalCache.class, Slice.class, Slice.class));
             }
             catch (ReflectiveOperationException e) {
@@ -265,19 +242,19 @@ public final class JsonFunctions
                 Slice patternSlice = (Slice) ((Constant) patternNode.getNode()).getValue();
                 String pattern = patternSlice.toString(Charsets.UTF_8);
 
-                JsonExtractor jsonExtractor;
+                JsonPathScanner jsonPathScanner;
                 switch (name) {
                     case JSON_EXTRACT_SCALAR_FUNCTION_NAME:
-                        jsonExtractor = generateExtractor(pattern, true);
+                        jsonPathScanner = new JsonPathScanner(pattern, true);
                         break;
                     case JSON_EXTRACT_FUNCTION_NAME:
-                        jsonExtractor = generateExtractor(pattern, false);
+                        jsonPathScanner = new JsonPathScanner(pattern, false);
                         break;
                     default:
                         throw new IllegalArgumentException("Unsupported method " + name);
                 }
 
-                methodHandle = MethodHandles.insertArguments(constantJsonExtract, 1, jsonExtractor);
+                methodHandle = MethodHandles.insertArguments(constantJsonExtract, 1, jsonPathScanner);
 
                 // remove the pattern argument
                 arguments = new ArrayList<>(arguments);
@@ -285,7 +262,7 @@ public final class JsonFunctions
                 arguments = ImmutableList.copyOf(arguments);
             }
             else {
-                ThreadLocalCache<Slice, JsonExtractor> cache;
+                ThreadLocalCache<Slice, JsonPathScanner> cache;
                 switch (name) {
                     case JSON_EXTRACT_SCALAR_FUNCTION_NAME:
                         cache = new JsonExtractCache(20, true);
@@ -0,0 +1,527 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.scalar;
+
+import com.facebook.presto.operator.scalar.JsonExtract.JsonValueJsonExtractor;
+import com.google.common.base.Objects;
+import com.google.common.base.Throwables;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.facebook.presto.operator.scalar.JsonExtract.tokenizePath;
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Extracts the value at a JSON path by scanning the UTF-8 bytes of the document.
+ * <p/>
+ * Only the values along the path are looked at: the scanner steps over the fields and array elements
+ * it does not need by matching brackets and quotes, without tokenizing them.  Scalar values and
+ * strings without escapes are returned as views of the input, so most extractions do not copy or
+ * allocate anything but the result slice.  Like the {@link JsonExtract.JsonExtractor} chain, a
+ * document that is malformed along the path produces null, but malformed values that are skipped
+ * are not detected.
+ */
+public final class JsonPathScanner
+{
+    private static final int NOT_FOUND = -1;
+
+    private final String path;
+    private final boolean scalarValue;
+
+    // for each step of the path, the field name to look up, or null to look up an array element
+    private final byte[][] fieldNames;
+    private final int[] indexes;
+
+    public JsonPathScanner(String path, boolean scalarValue)
+    {
+        this.path = checkNotNull(path, "path is null");
+        this.scalarValue = scalarValue;
+
+        Iterator<String> iterator = tokenizePath(path).iterator();
+        checkArgument(iterator.hasNext() && iterator.next().equals("$"), "JSON path must begin with root: '$'");
+
+        List<String> filters = new ArrayList<>();
+        while (iterator.hasNext()) {
+            filters.add(iterator.next());
+        }
+        fieldNames = new byte[filters.size()][];
+        indexes = new int[filters.size()];
+        for (int i = 0; i < filters.size(); i++) {
+            String filter = filters.get(i);
+            if (filter.startsWith("[")) {
+                indexes[i] = Integer.parseInt(filter.substring(1).trim());
+                checkArgument(indexes[i] >= 0, "index must be greater than or equal to zero: %s", indexes[i]);
+            }
+            else {
+                fieldNames[i] = filter.getBytes(UTF_8);
+            }
+        }
+    }
+
+    /**
+     * Returns the value at the path, or null if the path does not exist or the document is malformed.
+     */
+    @Nullable
+    public Slice extract(Slice json)
+    {
+        int position = skipWhitespace(json, 0);
+        for (int step = 0; step < fieldNames.length && position != NOT_FOUND; step++) {
+            if (fieldNames[step] != null) {
+                position = findField(json, position, fieldNames[step]);
+            }
+            else {
+                position = findElement(json, position, indexes[step]);
+            }
+        }
+        if (position == NOT_FOUND || position >= json.length()) {
+            return null;
+        }
+
+        if (scalarValue) {
+            return scalarValue(json, position);
+        }
+        return jsonValue(json, position);
+    }
+
+    /**
+     * Returns the number of elements of the array, or null if the document is not an array.
+     */
+    @Nullable
+    public static Long arrayLength(Slice json)
+    {
+        int position = skipWhitespace(json, 0);
+        if (position >= json.length() || json.getByte(position) != '[') {
+            return null;
+        }
+
+        position = skipWhitespace(json, position + 1);
+        if (position < json.length() && json.getByte(position) == ']') {
+            return 0L;
+        }
+
+        long length = 0;
+        while (true) {
+            position = skipValue(json, position);
+            if (position == NOT_FOUND) {
+                return null;
+            }
+            length++;
+
+            position = skipWhitespace(json, position);
+            if (position >= json.length()) {
+                return null;
+            }
+            byte separator = json.getByte(position);
+            if (separator == ']') {
+                return length;
+            }
+            if (separator != ',') {
+                return null;
+            }
+            position = skipWhitespace(json, position + 1);
+        }
+    }
+
+    @Nullable
+    private static Slice scalarValue(Slice json, int position)
+    {
+        byte first = json.getByte(position);
+        if (first == '"') {
+            int end = skipString(json, position);
+            if (end == NOT_FOUND) {
+                return null;
+            }
+            if (isSimpleString(json, position + 1, end - 1)) {
+                return json.slice(position + 1, end - position - 2);
+            }
+            String value = unescape(json, position + 1, end - 1);
+            return value == null ? null : Slices.copiedBuffer(value, UTF_8);
+        }
+        if (first == '{' || first == '[') {
+            return null;
+        }
+
+        int end = skipLiteral(json, position);
+        if (end == NOT_FOUND || isNull(json, position, end)) {
+            return null;
+        }
+        return json.slice(position, end - position);
+    }
+
+    @Nullable
+    private static Slice jsonValue(Slice json, int position)
+    {
+        byte first = json.getByte(position);
+        int end = skipValue(json, position);
+        if (end == NOT_FOUND) {
+            return null;
+        }
+
+        // values that serialize to their own text are returned as is
+        if (first == '"' && isSimpleString(json, position + 1, end - 1)) {
+            return json.slice(position, end - position);
+        }
+        if (first != '"' && first != '{' && first != '[' && isCanonicalLiteral(json, position, end)) {
+            return json.slice(position, end - position);
+        }
+
+        // everything else is normalized the same way as the parser based extractor
+        Slice value = json.slice(position, end - position);
+        try {
+            return JsonExtract.extract(value, new JsonValueJsonExtractor());
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * Returns the position of the value of the field, or NOT_FOUND if the object does not have the field.
+     */
+    private static int findField(Slice json, int position, byte[] fieldName)
+    {
+        if (position >= json.length() || json.getByte(position) != '{') {
+            return NOT_FOUND;
+        }
+
+        position = skipWhitespace(json, position + 1);
+        if (position < json.length() && json.getByte(position) == '}') {
+            return NOT_FOUND;
+        }
+
+        while (true) {
+            if (position >= json.length() || json.getByte(position) != '"') {
+                return NOT_FOUND;
+            }
+            int nameEnd = skipString(json, position);
+            if (nameEnd == NOT_FOUND) {
+                return NOT_FOUND;
+            }
+            boolean matches = fieldNameEquals(json, position + 1, nameEnd - 1, fieldName);
+
+            position = skipWhitespace(json, nameEnd);
+            if (position >= json.length() || json.getByte(position) != ':') {
+                return NOT_FOUND;
+            }
+            position = skipWhitespace(json, position + 1);
+            if (matches) {
+                return position;
+            }
+
+            position = skipValue(json, position);
+            if (position == NOT_FOUND) {
+                return NOT_FOUND;
+            }
+            position = skipWhitespace(json, position);
+            if (position >= json.length() || json.getByte(position) != ',') {
+                // end of the object, or malformed
+                return NOT_FOUND;
+            }
+            position = skipWhitespace(json, position + 1);
+        }
+    }
+
+    /**
+     * Returns the position of the element of the array, or NOT_FOUND if the array is too short.
+     */
+    private static int findElement(Slice json, int position, int index)
+    {
+        if (position >= json.length() || json.getByte(position) != '[') {
+            return NOT_FOUND;
+        }
+
+        position = skipWhitespace(json, position + 1);
+        if (position < json.length() && json.getByte(position) == ']') {
+            return NOT_FOUND;
+        }
+
+        for (int currentIndex = 0; currentIndex < index; currentIndex++) {
+            position = skipValue(json, position);
+            if (position == NOT_FOUND) {
+                return NOT_FOUND;
+            }
+            position = skipWhitespace(json, position);
+            if (position >= json.length() || json.getByte(position) != ',') {
+                return NOT_FOUND;
+            }
+            position = skipWhitespace(json, position + 1);
+        }
+        return position;
+    }
+
+    /**
+     * Returns the position after the value starting at the position, or NOT_FOUND if the value is truncated.
+     */
+    private static int skipValue(Slice json, int position)
+    {
+        if (position >= json.length()) {
+            return NOT_FOUND;
+        }
+
+        byte first = json.getByte(position);
+        if (first == '"') {
+            return skipString(json, position);
+        }
+        if (first != '{' && first != '[') {
+            return skipLiteral(json, position);
+        }
+
+        // nested values only need their brackets matched, ignoring the contents of strings
+        int depth = 0;
+        while (position < json.length()) {
+            byte value = json.getByte(position);
+            if (value == '"') {
+                position = skipString(json, position);
+                if (position == NOT_FOUND) {
+                    return NOT_FOUND;
+                }
+                continue;
+            }
+            if (value == '{' || value == '[') {
+                depth++;
+            }
+            else if (value == '}' || value == ']') {
+                depth--;
+                if (depth == 0) {
+                    return position + 1;
+                }
+            }
+            position++;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Returns the position after the closing quote of the string starting at the position.
+     */
+    private static int skipString(Slice json, int position)
+    {
+        position++;
+        while (position < json.length()) {
+            byte value = json.getByte(position);
+            if (value == '"') {
+                return position + 1;
+            }
+            position += (value == '\\') ? 2 : 1;
+        }
+        return NOT_FOUND;
+    }
+
+    private static int skipLiteral(Slice json, int position)
+    {
+        int start = position;
+        while (position < json.length()) {
+            byte value = json.getByte(position);
+            if (value == ',' || value == '}' || value == ']' || isWhitespace(value)) {
+                break;
+            }
+            if (!isLiteralCharacter(value)) {
+                return NOT_FOUND;
+            }
+            position++;
+        }
+        if (position == start) {
+            return NOT_FOUND;
+        }
+
+        byte first = json.getByte(start);
+        if (first == 't' || first == 'f' || first == 'n') {
+            if (!(equalsAscii(json, start, position, "true") || equalsAscii(json, start, position, "false") || isNull(json, start, position))) {
+                return NOT_FOUND;
+            }
+        }
+        else if (first != '-' && (first < '0' || first > '9')) {
+            return NOT_FOUND;
+        }
+        return position;
+    }
+
+    private static boolean isLiteralCharacter(byte value)
+    {
+        return (value >= '0' && value <= '9') || (value >= 'a' && value <= 'z') || value == '-' || value == '+' || value == '.' || value == 'E';
+    }
+
+    /**
+     * Checks if the literal is written the same way by a JSON generator: the keywords, and
+     * integers without a redundant sign or leading zero.
+     */
+    private static boolean isCanonicalLiteral(Slice json, int start, int end)
+    {
+        byte first = json.getByte(start);
+        if (first == 't' || first == 'f' || first == 'n') {
+            return true;
+        }
+
+        int position = start;
+        if (first == '-') {
+            position++;
+        }
+        if (position == end || (json.getByte(position) == '0' && (end - position > 1 || position > start))) {
+            return false;
+        }
+        for (; position < end; position++) {
+            byte value = json.getByte(position);
+            if (value < '0' || value > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNull(Slice json, int start, int end)
+    {
+        return equalsAscii(json, start, end, "null");
+    }
+
+    private static boolean equalsAscii(Slice json, int start, int end, String expected)
+    {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (json.getByte(start + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the string contents between the quotes do not contain escapes or control characters.
+     */
+    private static boolean isSimpleString(Slice json, int start, int end)
+    {
+        for (int position = start; position < end; position++) {
+            byte value = json.getByte(position);
+            if (value == '\\' || (value >= 0 && value < 0x20)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean fieldNameEquals(Slice json, int start, int end, byte[] fieldName)
+    {
+        if (isSimpleString(json, start, end)) {
+            if (end - start != fieldName.length) {
+                return false;
+            }
+            for (int i = 0; i < fieldName.length; i++) {
+                if (json.getByte(start + i) != fieldName[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        String name = unescape(json, start, end);
+        return name != null && name.equals(new String(fieldName, UTF_8));
+    }
+
+    /**
+     * Decodes the contents of a string with escapes, or returns null if an escape is malformed.
+     */
+    @Nullable
+    private static String unescape(Slice json, int start, int end)
+    {
+        StringBuilder builder = new StringBuilder(end - start);
+        int position = start;
+        while (position < end) {
+            int next = position;
+            while (next < end && json.getByte(next) != '\\') {
+                next++;
+            }
+            builder.append(json.slice(position, next - position).toString(UTF_8));
+            if (next == end) {
+                break;
+            }
+
+            if (next + 1 >= end) {
+                return null;
+            }
+            byte escaped = json.getByte(next + 1);
+            position = next + 2;
+            switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    builder.append((char) escaped);
+                    break;
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > end) {
+                        return null;
+                    }
+                    int character = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(json.getByte(position + i), 16);
+                        if (digit < 0) {
+                            return null;
+                        }
+                        character = (character << 4) | digit;
+                    }
+                    builder.append((char) character);
+                    position += 4;
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static int skipWhitespace(Slice json, int position)
+    {
+        while (position < json.length() && isWhitespace(json.getByte(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean isWhitespace(byte value)
+    {
+        return value == ' ' || value == '\t' || value == '\n' || value == '\r';
+    }
+
+    @Override
+    public String toString()
+    {
+        return Objects.toStringHelper(this)
+                .add("path", path)
+                .add("scalarValue", scalarValue)
+                .toString();
+    }
+}
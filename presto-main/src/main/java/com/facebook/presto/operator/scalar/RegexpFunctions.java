@@ -24,8 +24,16 @@ import com.facebook.presto.util.ThreadLocalCache;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
+import io.airlift.slice.DynamicSliceOutput;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
+import org.jcodings.specific.UTF8Encoding;
+import org.joni.Matcher;
+import org.joni.Option;
+import org.joni.Regex;
+import org.joni.Region;
+import org.joni.Syntax;
+import org.joni.exception.JOniException;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -33,10 +41,12 @@ import javax.annotation.Nullable;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+import static com.facebook.presto.util.Utf8Slices.indexOf;
+import static com.facebook.presto.util.Utf8Slices.isValidUtf8;
+import static com.facebook.presto.util.Utf8Slices.lengthOfCodePoint;
 import static java.lang.invoke.MethodHandles.lookup;
 import static java.lang.invoke.MethodType.methodType;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -45,6 +55,11 @@ public final class RegexpFunctions
 {
     private static final PatternCache CACHE = new PatternCache(100);
 
+    private static final String META_CHARACTERS = "\\^$.|?*+()[]{}";
+
+    // address of the first byte of an array backed slice, used to find where a slice starts in its array
+    private static final long BYTE_ARRAY_BASE_ADDRESS = Slices.wrappedBuffer(new byte[1]).getAddress();
+
     private RegexpFunctions()
     {
     }
@@ -61,9 +76,15 @@ public final class RegexpFunctions
         return regexpLike(source, patternCache.get(pattern));
     }
 
-    public static boolean regexpLike(Slice source, Pattern pattern)
+    public static boolean regexpLike(Slice source, Regex pattern)
+    {
+        Utf8Range range = toUtf8Range(source);
+        return range.matcher(pattern).search(range.getBegin(), range.getEnd(), Option.NONE) != -1;
+    }
+
+    public static boolean regexpLikeLiteral(Slice source, byte[] literal)
     {
-        return pattern.matcher(source.toString(UTF_8)).find();
+        return indexOf(source, 0, source.length(), literal) >= 0;
     }
 
     @Description("removes substrings matching a regular expression")
@@ -85,11 +106,83 @@ public final class RegexpFunctions
         return regexpReplace(source, patternCache.get(pattern), replacement);
     }
 
-    public static Slice regexpReplace(Slice source, Pattern pattern, Slice replacement)
+    public static Slice regexpReplace(Slice source, Regex pattern, Slice replacement)
     {
-        Matcher matcher = pattern.matcher(source.toString(UTF_8));
-        String replaced = matcher.replaceAll(replacement.toString(UTF_8));
-        return Slices.copiedBuffer(replaced, UTF_8);
+        Utf8Range range = toUtf8Range(source);
+        byte[] bytes = range.getBytes();
+        byte[] replacementBytes = replacement.getBytes();
+        Matcher matcher = range.matcher(pattern);
+
+        DynamicSliceOutput output = new DynamicSliceOutput(range.getLength());
+        int appended = range.getBegin();
+        int position = range.getBegin();
+        while (position <= range.getEnd()) {
+            int begin = matcher.search(position, range.getEnd(), Option.NONE);
+            if (begin == -1) {
+                break;
+            }
+            int end = matcher.getEnd();
+
+            output.writeBytes(bytes, appended, begin - appended);
+            appendReplacement(output, bytes, matcher, pattern.numberOfCaptures(), replacementBytes);
+            appended = end;
+
+            // an empty match is followed by a search starting at the next character, like java.util.regex
+            position = end;
+            if (begin == end) {
+                position += end < range.getEnd() ? lengthOfCodePoint(bytes[end]) : 1;
+            }
+        }
+        output.writeBytes(bytes, appended, range.getEnd() - appended);
+        return output.slice();
+    }
+
+    /**
+     * Appends the replacement for the current match, where {@code $n} refers to group n and a
+     * backslash escapes the following character, as in {@link java.util.regex.Matcher#appendReplacement}.
+     */
+    private static void appendReplacement(DynamicSliceOutput output, byte[] source, Matcher matcher, int groupCount, byte[] replacement)
+    {
+        int index = 0;
+        while (index < replacement.length) {
+            byte value = replacement[index];
+            if (value == '\\') {
+                index++;
+                if (index == replacement.length) {
+                    throw new IllegalArgumentException("character to be escaped is missing");
+                }
+                output.writeByte(replacement[index]);
+                index++;
+            }
+            else if (value == '$') {
+                index++;
+                if (index == replacement.length || !isDigit(replacement[index])) {
+                    throw new IllegalArgumentException("illegal group reference");
+                }
+                int group = replacement[index] - '0';
+                index++;
+                // use as many digits as still form a valid group number
+                while (index < replacement.length && isDigit(replacement[index])) {
+                    int nextGroup = group * 10 + (replacement[index] - '0');
+                    if (nextGroup > groupCount) {
+                        break;
+                    }
+                    group = nextGroup;
+                    index++;
+                }
+                if (group > groupCount) {
+                    throw new IllegalArgumentException("No group " + group);
+                }
+                int begin = getGroupBegin(matcher, group);
+                if (begin >= 0) {
+                    output.writeBytes(source, begin, getGroupEnd(matcher, group) - begin);
+                }
+            }
+            else {
+                output.writeByte(value);
+                index++;
+            }
+        }
     }
 
     @Nullable
@@ -115,23 +208,100 @@ public final class RegexpFunctions
     }
 
     @Nullable
-    public static Slice regexpExtract(Slice source, Pattern pattern, long group)
+    public static Slice regexpExtract(Slice source, Regex pattern, long group)
     {
-        Matcher matcher = pattern.matcher(source.toString(UTF_8));
-        if ((group < 0) || (group > matcher.groupCount())) {
+        if ((group < 0) || (group > pattern.numberOfCaptures())) {
             throw new IllegalArgumentException("invalid group count");
         }
-        if (!matcher.find()) {
+        Utf8Range range = toUtf8Range(source);
+        Matcher matcher = range.matcher(pattern);
+        if (matcher.search(range.getBegin(), range.getEnd(), Option.NONE) == -1) {
+            return null;
+        }
+        int begin = getGroupBegin(matcher, Ints.checkedCast(group));
+        if (begin < 0) {
+            // the group did not participate in the match
             return null;
         }
-        String extracted = matcher.group(Ints.checkedCast(group));
-        return Slices.copiedBuffer(extracted, UTF_8);
+        // copy the group, so the result does not hold on to the memory of the source
+        return Slices.wrappedBuffer(Arrays.copyOfRange(range.getBytes(), begin, getGroupEnd(matcher, Ints.checkedCast(group))));
+    }
+
+    private static int getGroupBegin(Matcher matcher, int group)
+    {
+        Region region = matcher.getRegion();
+        if (region == null) {
+            // patterns without groups do not record a region
+            return matcher.getBegin();
+        }
+        return region.beg[group];
+    }
+
+    private static int getGroupEnd(Matcher matcher, int group)
+    {
+        Region region = matcher.getRegion();
+        if (region == null) {
+            return matcher.getEnd();
+        }
+        return region.end[group];
+    }
+
+    /**
+     * Returns the bytes joni matches for the value.  A value backed by a byte array is matched in place.
+     * Joni does not handle invalid UTF-8, so values with invalid sequences are re-encoded with replacement
+     * characters.  Values are only decoded from their first non-ASCII byte on to check this.
+     */
+    private static Utf8Range toUtf8Range(Slice source)
+    {
+        if (!isValidUtf8(source)) {
+            byte[] bytes = source.toString(UTF_8).getBytes(UTF_8);
+            return new Utf8Range(bytes, 0, bytes.length);
+        }
+
+        Object base = source.getBase();
+        if (base instanceof byte[]) {
+            int begin = Ints.checkedCast(source.getAddress() - BYTE_ARRAY_BASE_ADDRESS);
+            return new Utf8Range((byte[]) base, begin, begin + source.length());
+        }
+        byte[] bytes = source.getBytes();
+        return new Utf8Range(bytes, 0, bytes.length);
+    }
+
+    private static boolean isDigit(byte value)
+    {
+        return value >= '0' && value <= '9';
+    }
+
+    private static Regex compile(Slice pattern)
+    {
+        byte[] bytes = pattern.getBytes();
+        try {
+            return new Regex(bytes, 0, bytes.length, Option.NONE, UTF8Encoding.INSTANCE, Syntax.Java);
+        }
+        catch (JOniException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Checks if the pattern only matches itself, so it can be searched for as a substring.
+     */
+    private static boolean isLiteral(Slice pattern)
+    {
+        String patternString = pattern.toString(UTF_8);
+        for (int i = 0; i < patternString.length(); i++) {
+            if (META_CHARACTERS.indexOf(patternString.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return isValidUtf8(pattern);
     }
 
     public static class RegexFunctionBinder
             implements FunctionBinder
     {
         private static final MethodHandle constantRegexpLike;
+        private static final MethodHandle literalRegexpLike;
         private static final MethodHandle dynamicRegexpLike;
         private static final MethodHandle constantRegexpReplace;
         private static final MethodHandle dynamicRegexpReplace;
@@ -140,11 +310,12 @@ public final class RegexpFunctions
 
         static {
             try {
-                constantRegexpLike = lookup().findStatic(RegexpFunctions.class, "regexpLike", methodType(boolean.class, Slice.class, Pattern.class));
+                constantRegexpLike = lookup().findStatic(RegexpFunctions.class, "regexpLike", methodType(boolean.class, Slice.class, Regex.class));
+                literalRegexpLike = lookup().findStatic(RegexpFunctions.class, "regexpLikeLiteral", methodType(boolean.class, Slice.class, byte[].class));
                 dynamicRegexpLike = lookup().findStatic(RegexpFunctions.class, "regexpLike", methodType(boolean.class, PatternCache.class, Slice.class, Slice.class));
-                constantRegexpReplace = lookup().findStatic(RegexpFunctions.class, "regexpReplace", methodType(Slice.class, Slice.class, Pattern.class, Slice.class));
+                constantRegexpReplace = lookup().findStatic(RegexpFunctions.class, "regexpReplace", methodType(Slice.class, Slice.class, Regex.class, Slice.class));
                 dynamicRegexpReplace = lookup().findStatic(RegexpFunctions.class, "regexpReplace", methodType(Slice.class, PatternCache.class, Slice.class, Slice.class, Slice.class));
-                constantRegexpExtract = lookup().findStatic(RegexpFunctions.class, "regexpExtract", methodType(Slice.class, Slice.class, Pattern.class, long.class));
+                constantRegexpExtract = lookup().findStatic(RegexpFunctions.class, "regexpExtract", methodType(Slice.class, Slice.class, Regex.class, long.class));
                 dynamicRegexpExtract = lookup().findStatic(RegexpFunctions.class, "regexpExtract", methodType(Slice.class, PatternCache.class, Slice.class, Slice.class, long.class));
             }
             catch (ReflectiveOperationException e) {
@@ -158,18 +329,31 @@ public final class RegexpFunctions
             boolean nullable = false;
             TypedByteCodeNode patternNode = arguments.get(1);
             if (patternNode.getNode() instanceof Constant) {
+                Slice patternSlice = (Slice) ((Constant) patternNode.getNode()).getValue();
+
+                Object pattern;
                 switch (name) {
                     case "regexp_like":
-                        methodHandle = constantRegexpLike;
+                        if (isLiteral(patternSlice)) {
+                            // a pattern without meta characters is a substring search
+                            methodHandle = literalRegexpLike;
+                            pattern = patternSlice.getBytes();
+                        }
+                        else {
+                            methodHandle = constantRegexpLike;
+                            pattern = compile(patternSlice);
+                        }
                         break;
                     case "regexp_replace":
                         methodHandle = constantRegexpReplace;
+                        pattern = compile(patternSlice);
                         if (arguments.size() == 2) {
                             methodHandle = MethodHandles.insertArguments(methodHandle, 2, Slices.EMPTY_SLICE);
                         }
                         break;
                     case "regexp_extract":
                         methodHandle = constantRegexpExtract;
+                        pattern = compile(patternSlice);
                         nullable = true;
                         if (arguments.size() == 2) {
                             methodHandle = MethodHandles.insertArguments(methodHandle, 2, 0L);
@@ -179,10 +363,6 @@ public final class RegexpFunctions
                         throw new IllegalArgumentException("Unsupported method " + name);
                 }
 
-                Slice patternSlice = (Slice) ((Constant) patternNode.getNode()).getValue();
-
-                Pattern pattern = Pattern.compile(patternSlice.toString(UTF_8));
-
                 methodHandle = MethodHandles.insertArguments(methodHandle, 1, pattern);
 
                 // remove the pattern argument
@@ -219,8 +399,50 @@ public final class RegexpFunctions
         }
     }
 
+    /**
+     * A range of a byte array holding well formed UTF-8.  Match positions are offsets in the array.
+     */
+    private static final class Utf8Range
+    {
+        private final byte[] bytes;
+        private final int begin;
+        private final int end;
+
+        private Utf8Range(byte[] bytes, int begin, int end)
+        {
+            this.bytes = bytes;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        public byte[] getBytes()
+        {
+            return bytes;
+        }
+
+        public int getBegin()
+        {
+            return begin;
+        }
+
+        public int getEnd()
+        {
+            return end;
+        }
+
+        public int getLength()
+        {
+            return end - begin;
+        }
+
+        public Matcher matcher(Regex pattern)
+        {
+            return pattern.matcher(bytes, begin, end);
+        }
+    }
+
     public static class PatternCache
-            extends ThreadLocalCache<Slice, Pattern>
+            extends ThreadLocalCache<Slice, Regex>
     {
         public PatternCache(int maxSizePerThread)
         {
@@ -229,9 +451,9 @@ public final class RegexpFunctions
 
         @Nonnull
         @Override
-        protected Pattern load(Slice patternSlice)
+        protected Regex load(Slice patternSlice)
         {
-            return Pattern.compile(patternSlice.toString(UTF_8));
+            return compile(patternSlice);
         }
     }
 }
@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.serde;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.rle.RunLengthEncodedBlock;
+import com.facebook.presto.block.snappy.SnappyBlock;
+import com.facebook.presto.tuple.TupleInfo;
+import com.google.common.base.Preconditions;
+import io.airlift.slice.SliceInput;
+import io.airlift.slice.SliceOutput;
+
+/**
+ * Encoding where each block is stored with its own encoding, which is written as a
+ * tag before the block.  Blocks are either run length encoded, snappy compressed or
+ * uncompressed.
+ */
+public class AdaptiveBlockEncoding
+        implements BlockEncoding
+{
+    private static final byte UNCOMPRESSED = 0;
+    private static final byte RUN_LENGTH = 1;
+    private static final byte SNAPPY = 2;
+
+    private final TupleInfo tupleInfo;
+    private final UncompressedBlockEncoding uncompressedEncoding;
+    private final RunLengthBlockEncoding runLengthEncoding;
+    private final SnappyBlockEncoding snappyEncoding;
+
+    public AdaptiveBlockEncoding(TupleInfo tupleInfo)
+    {
+        Preconditions.checkNotNull(tupleInfo, "tupleInfo is null");
+        this.tupleInfo = tupleInfo;
+        this.uncompressedEncoding = new UncompressedBlockEncoding(tupleInfo);
+        this.runLengthEncoding = new RunLengthBlockEncoding(tupleInfo);
+        this.snappyEncoding = new SnappyBlockEncoding(tupleInfo);
+    }
+
+    public AdaptiveBlockEncoding(SliceInput input)
+    {
+        this(TupleInfoSerde.readTupleInfo(Preconditions.checkNotNull(input, "input is null")));
+    }
+
+    @Override
+    public TupleInfo getTupleInfo()
+    {
+        return tupleInfo;
+    }
+
+    @Override
+    public void writeBlock(SliceOutput sliceOutput, Block block)
+    {
+        Preconditions.checkArgument(block.getTupleInfo().equals(tupleInfo), "Invalid tuple info");
+
+        if (block instanceof RunLengthEncodedBlock) {
+            sliceOutput.writeByte(RUN_LENGTH);
+            runLengthEncoding.writeBlock(sliceOutput, block);
+        }
+        else if (block instanceof SnappyBlock) {
+            sliceOutput.writeByte(SNAPPY);
+            snappyEncoding.writeBlock(sliceOutput, block);
+        }
+        else {
+            sliceOutput.writeByte(UNCOMPRESSED);
+            uncompressedEncoding.writeBlock(sliceOutput, block);
+        }
+    }
+
+    @Override
+    public Block readBlock(SliceInput sliceInput)
+    {
+        byte encoding = sliceInput.readByte();
+        switch (encoding) {
+            case UNCOMPRESSED:
+                return uncompressedEncoding.readBlock(sliceInput);
+            case RUN_LENGTH:
+                return runLengthEncoding.readBlock(sliceInput);
+            case SNAPPY:
+                return snappyEncoding.readBlock(sliceInput);
+            default:
+                throw new IllegalArgumentException("unknown block encoding " + encoding);
+        }
+    }
+
+    public static void serialize(SliceOutput output, AdaptiveBlockEncoding encoding)
+    {
+        TupleInfoSerde.writeTupleInfo(output, encoding.tupleInfo);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.serde;
+
+import com.facebook.presto.block.rle.RunLengthEncodedBlock;
+import com.facebook.presto.block.snappy.SnappyBlock;
+import com.facebook.presto.block.uncompressed.UncompressedBlock;
+import com.facebook.presto.tuple.Tuple;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+import io.airlift.slice.SliceOutput;
+import io.airlift.slice.Slices;
+import io.airlift.units.DataSize;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.iq80.snappy.Snappy;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
+
+/**
+ * Writes an {@link AdaptiveBlockEncoding}.  Tuples are buffered into blocks, and each block
+ * is written as runs if its runs are long enough and that is not larger than the uncompressed
+ * block, since runs are also cheaper to scan.  Otherwise the block is snappy compressed if that saves enough space to
+ * be worth decompressing, and written uncompressed if not.
+ */
+public class AdaptiveEncoder
+        implements Encoder
+{
+    private static final int MAX_BLOCK_SIZE = (int) new DataSize(64, KILOBYTE).toBytes();
+
+    // every run is read as its own block, so short runs are not worth the per block overhead
+    private static final int RUN_LENGTH_AVERAGE_CUTOFF = 3;
+
+    // snappy blocks must be smaller than this fraction of the uncompressed block
+    private static final double MIN_COMPRESSION_RATIO = 0.8;
+
+    // the tag, the length and the position count
+    private static final int BLOCK_HEADER_SIZE = 1 + SIZE_OF_INT + SIZE_OF_INT;
+
+    private final SliceOutput sliceOutput;
+    private final DynamicSliceOutput buffer = new DynamicSliceOutput(MAX_BLOCK_SIZE);
+
+    // the start offset of each run in the buffer, and the number of tuples in the run
+    private final IntArrayList runOffsets = new IntArrayList();
+    private final IntArrayList runLengths = new IntArrayList();
+
+    private AdaptiveBlockEncoding encoding;
+    private boolean finished;
+    private int tupleCount;
+    private Tuple lastTuple;
+
+    public AdaptiveEncoder(SliceOutput sliceOutput)
+    {
+        this.sliceOutput = checkNotNull(sliceOutput, "sliceOutput is null");
+    }
+
+    @Override
+    public Encoder append(Iterable<Tuple> tuples)
+    {
+        checkNotNull(tuples, "tuples is null");
+        checkState(!finished, "already finished");
+
+        for (Tuple tuple : tuples) {
+            if (encoding == null) {
+                encoding = new AdaptiveBlockEncoding(tuple.getTupleInfo());
+            }
+
+            if (lastTuple != null && tuple.equals(lastTuple)) {
+                int run = runLengths.size() - 1;
+                runLengths.set(run, runLengths.getInt(run) + 1);
+            }
+            else {
+                runOffsets.add(buffer.size());
+                runLengths.add(1);
+                lastTuple = tuple;
+            }
+            tuple.writeTo(buffer);
+            tupleCount++;
+
+            if (buffer.size() >= MAX_BLOCK_SIZE) {
+                flushBlock();
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public BlockEncoding finish()
+    {
+        checkState(encoding != null, "nothing appended");
+        checkState(!finished, "already finished");
+        finished = true;
+
+        flushBlock();
+
+        return encoding;
+    }
+
+    private void flushBlock()
+    {
+        if (tupleCount == 0) {
+            return;
+        }
+
+        Slice slice = buffer.slice();
+        int uncompressedSize = BLOCK_HEADER_SIZE + slice.length();
+
+        if (tupleCount > runOffsets.size() * RUN_LENGTH_AVERAGE_CUTOFF && runLengthSize(slice) <= uncompressedSize) {
+            writeRuns(slice);
+        }
+        else {
+            byte[] compressedBytes = new byte[Snappy.maxCompressedLength(slice.length())];
+            int compressedLength = Snappy.compress(slice.getBytes(), 0, slice.length(), compressedBytes, 0);
+            if (BLOCK_HEADER_SIZE + compressedLength < uncompressedSize * MIN_COMPRESSION_RATIO) {
+                Slice compressedSlice = Slices.wrappedBuffer(Arrays.copyOf(compressedBytes, compressedLength));
+                encoding.writeBlock(sliceOutput, new SnappyBlock(tupleCount, encoding.getTupleInfo(), compressedSlice));
+            }
+            else {
+                encoding.writeBlock(sliceOutput, new UncompressedBlock(tupleCount, encoding.getTupleInfo(), slice));
+            }
+        }
+
+        buffer.reset();
+        runOffsets.clear();
+        runLengths.clear();
+        tupleCount = 0;
+        // the next block starts a new run
+        lastTuple = null;
+    }
+
+    private int runLengthSize(Slice slice)
+    {
+        int size = 0;
+        for (int run = 0; run < runOffsets.size(); run++) {
+            size += BLOCK_HEADER_SIZE + runTupleLength(slice, run);
+        }
+        return size;
+    }
+
+    private void writeRuns(Slice slice)
+    {
+        for (int run = 0; run < runOffsets.size(); run++) {
+            Tuple tuple = new Tuple(slice.slice(runOffsets.getInt(run), runTupleLength(slice, run)), encoding.getTupleInfo());
+            encoding.writeBlock(sliceOutput, new RunLengthEncodedBlock(tuple, runLengths.getInt(run)));
+        }
+    }
+
+    private int runTupleLength(Slice slice, int run)
+    {
+        int offset = runOffsets.getInt(run);
+        int end = (run + 1 < runOffsets.size()) ? runOffsets.getInt(run + 1) : slice.length();
+        // the run holds runLength copies of the same tuple
+        return (end - offset) / runLengths.getInt(run);
+    }
+}
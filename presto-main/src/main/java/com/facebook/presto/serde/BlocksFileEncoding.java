@@ -51,6 +51,22 @@ public enum BlocksFileEncoding
                     return new DictionaryEncoder(new RunLengthEncoder(sliceOutput));
                 }
             },
+    ADAPTIVE("adaptive")
+            {
+                @Override
+                public Encoder createBlocksWriter(SliceOutput sliceOutput)
+                {
+                    return new AdaptiveEncoder(sliceOutput);
+                }
+            },
+    DIC_ADAPTIVE("dic-adaptive")
+            {
+                @Override
+                public Encoder createBlocksWriter(SliceOutput sliceOutput)
+                {
+                    return new DictionaryEncoder(new AdaptiveEncoder(sliceOutput));
+                }
+            },
     SNAPPY("snappy")
             {
                 @Override
@@ -58,6 +74,14 @@ public enum BlocksFileEncoding
                 {
                     return new SnappyEncoder(sliceOutput);
                 }
+            },
+    COLUMNAR("columnar")
+            {
+                @Override
+                public Encoder createBlocksWriter(SliceOutput sliceOutput)
+                {
+                    return new ColumnarEncoder(sliceOutput);
+                }
             };
 
     private final String name;
@@ -13,23 +13,44 @@
  */
 package com.facebook.presto.serde;
 
+import com.facebook.presto.tuple.Tuple;
+import com.facebook.presto.tuple.TupleInfo;
 import io.airlift.slice.Slice;
 import io.airlift.slice.SliceInput;
 import io.airlift.slice.SliceOutput;
 
+import javax.annotation.Nullable;
+
+/**
+ * Statistics of the values of a blocks file.  Besides the run statistics used to pick an encoding,
+ * the stats record the null count and the minimum and maximum non-null value, which are used to
+ * prune shards that can not contain a value.  The minimum and maximum are null if the file only
+ * contains nulls, or was written before they were recorded.
+ */
 public class BlocksFileStats
 {
     private final long rowCount;
     private final long runsCount;
     private final long avgRunLength;
     private final int uniqueCount;
+    private final long nullCount;
+    private final Tuple min;
+    private final Tuple max;
 
     public BlocksFileStats(long rowCount, long runsCount, long avgRunLength, int uniqueCount)
+    {
+        this(rowCount, runsCount, avgRunLength, uniqueCount, 0, null, null);
+    }
+
+    public BlocksFileStats(long rowCount, long runsCount, long avgRunLength, int uniqueCount, long nullCount, @Nullable Tuple min, @Nullable Tuple max)
     {
         this.rowCount = rowCount;
         this.runsCount = runsCount;
         this.avgRunLength = avgRunLength;
         this.uniqueCount = uniqueCount;
+        this.nullCount = nullCount;
+        this.min = min;
+        this.max = max;
     }
 
     public static void serialize(BlocksFileStats stats, SliceOutput sliceOutput)
@@ -39,21 +60,54 @@ public class BlocksFileStats
                 .appendLong(stats.getRunsCount())
                 .appendLong(stats.getAvgRunLength())
                 .appendInt(stats.getUniqueCount());
+
+        // value stats are appended, so files written without them can still be read
+        sliceOutput.appendLong(stats.getNullCount());
+        serializeTuple(stats.getMin(), sliceOutput);
+        serializeTuple(stats.getMax(), sliceOutput);
     }
 
-    public static BlocksFileStats deserialize(Slice slice)
+    private static void serializeTuple(@Nullable Tuple tuple, SliceOutput sliceOutput)
+    {
+        if (tuple == null) {
+            sliceOutput.appendInt(-1);
+            return;
+        }
+        Slice tupleSlice = tuple.getTupleSlice();
+        sliceOutput.appendInt(tupleSlice.length());
+        sliceOutput.writeBytes(tupleSlice);
+    }
+
+    public static BlocksFileStats deserialize(Slice slice, TupleInfo tupleInfo)
     {
         SliceInput input = slice.getInput();
-        return deserialize(input);
+        return deserialize(input, tupleInfo);
     }
 
-    public static BlocksFileStats deserialize(SliceInput input)
+    public static BlocksFileStats deserialize(SliceInput input, TupleInfo tupleInfo)
     {
         long rowCount = input.readLong();
         long runsCount = input.readLong();
         long avgRunLength = input.readLong();
         int uniqueCount = input.readInt();
-        return new BlocksFileStats(rowCount, runsCount, avgRunLength, uniqueCount);
+        if (!input.isReadable()) {
+            return new BlocksFileStats(rowCount, runsCount, avgRunLength, uniqueCount);
+        }
+
+        long nullCount = input.readLong();
+        Tuple min = deserializeTuple(input, tupleInfo);
+        Tuple max = deserializeTuple(input, tupleInfo);
+        return new BlocksFileStats(rowCount, runsCount, avgRunLength, uniqueCount, nullCount, min, max);
+    }
+
+    @Nullable
+    private static Tuple deserializeTuple(SliceInput input, TupleInfo tupleInfo)
+    {
+        int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        return new Tuple(input.readSlice(length), tupleInfo);
     }
 
     public long getRowCount()
@@ -75,4 +129,21 @@ public class BlocksFileStats
     {
         return uniqueCount;
     }
+
+    public long getNullCount()
+    {
+        return nullCount;
+    }
+
+    @Nullable
+    public Tuple getMin()
+    {
+        return min;
+    }
+
+    @Nullable
+    public Tuple getMax()
+    {
+        return max;
+    }
 }
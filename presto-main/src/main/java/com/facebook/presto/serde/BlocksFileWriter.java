@@ -22,6 +22,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.io.OutputSupplier;
 import io.airlift.slice.OutputStreamSliceOutput;
 import io.airlift.slice.SliceOutput;
+import io.airlift.slice.Slices;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -138,7 +139,10 @@ public class BlocksFileWriter
 
         private long rowCount;
         private long runsCount;
+        private long nullCount;
         private Tuple lastTuple;
+        private Tuple min;
+        private Tuple max;
         private final Set<Tuple> set = new HashSet<>(MAX_UNIQUE_COUNT);
 
         public void process(Iterable<Tuple> tuples)
@@ -151,6 +155,7 @@ public class BlocksFileWriter
                     if (set.size() < MAX_UNIQUE_COUNT) {
                         set.add(lastTuple);
                     }
+                    updateRange(tuple);
                 }
                 else if (!tuple.equals(lastTuple)) {
                     runsCount++;
@@ -158,15 +163,55 @@ public class BlocksFileWriter
                     if (set.size() < MAX_UNIQUE_COUNT) {
                         set.add(lastTuple);
                     }
+                    updateRange(tuple);
+                }
+                if (tuple.getTupleInfo().getFieldCount() == 1 && tuple.isNull(0)) {
+                    nullCount++;
                 }
                 rowCount++;
             }
         }
 
+        private void updateRange(Tuple tuple)
+        {
+            // only single column files are ranged, and the range only changes at the start of a run
+            if (tuple.getTupleInfo().getFieldCount() != 1 || tuple.isNull(0)) {
+                return;
+            }
+            if (min == null || compare(tuple, min) < 0) {
+                min = copyOf(tuple);
+            }
+            if (max == null || compare(tuple, max) > 0) {
+                max = copyOf(tuple);
+            }
+        }
+
+        private static int compare(Tuple left, Tuple right)
+        {
+            switch (left.getTupleInfo().getTypes().get(0)) {
+                case BOOLEAN:
+                    return Boolean.compare(left.getBoolean(0), right.getBoolean(0));
+                case FIXED_INT_64:
+                    return Long.compare(left.getLong(0), right.getLong(0));
+                case DOUBLE:
+                    return Double.compare(left.getDouble(0), right.getDouble(0));
+                case VARIABLE_BINARY:
+                    return left.getSlice(0).compareTo(right.getSlice(0));
+                default:
+                    throw new AssertionError("unimplemented type: " + left.getTupleInfo().getTypes().get(0));
+            }
+        }
+
+        private static Tuple copyOf(Tuple tuple)
+        {
+            // tuples may be views of a much larger block
+            return new Tuple(Slices.wrappedBuffer(tuple.getTupleSlice().getBytes()), tuple.getTupleInfo());
+        }
+
         public BlocksFileStats build()
         {
             // TODO: expose a way to indicate whether the unique count is EXACT or APPROXIMATE
-            return new BlocksFileStats(rowCount, runsCount + 1, rowCount / (runsCount + 1), (set.size() == MAX_UNIQUE_COUNT) ? Integer.MAX_VALUE : set.size());
+            return new BlocksFileStats(rowCount, runsCount + 1, rowCount / (runsCount + 1), (set.size() == MAX_UNIQUE_COUNT) ? Integer.MAX_VALUE : set.size(), nullCount, min, max);
         }
     }
 }
@@ -0,0 +1,164 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.serde;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockCursor;
+import com.facebook.presto.block.columnar.BooleanArrayBlock;
+import com.facebook.presto.block.columnar.DoubleArrayBlock;
+import com.facebook.presto.block.columnar.LongArrayBlock;
+import com.facebook.presto.block.columnar.SliceArrayBlock;
+import com.facebook.presto.tuple.TupleInfo;
+import com.facebook.presto.tuple.TupleInfo.Type;
+import com.google.common.base.Preconditions;
+import io.airlift.slice.Slice;
+import io.airlift.slice.SliceInput;
+import io.airlift.slice.SliceOutput;
+
+/**
+ * Encoding for single field blocks that stores the nulls followed by the values of the block,
+ * and reads them back into a type-specialized block from {@code com.facebook.presto.block.columnar}.
+ * Any block of the matching tuple info can be written with this encoding.
+ */
+public class ColumnarBlockEncoding
+        implements BlockEncoding
+{
+    private final TupleInfo tupleInfo;
+
+    public ColumnarBlockEncoding(TupleInfo tupleInfo)
+    {
+        Preconditions.checkNotNull(tupleInfo, "tupleInfo is null");
+        Preconditions.checkArgument(tupleInfo.getFieldCount() == 1, "Columnar encoding only supports single field tuples: %s", tupleInfo);
+        this.tupleInfo = tupleInfo;
+    }
+
+    public ColumnarBlockEncoding(SliceInput input)
+    {
+        this(TupleInfoSerde.readTupleInfo(Preconditions.checkNotNull(input, "input is null")));
+    }
+
+    @Override
+    public TupleInfo getTupleInfo()
+    {
+        return tupleInfo;
+    }
+
+    @Override
+    public void writeBlock(SliceOutput sliceOutput, Block block)
+    {
+        Preconditions.checkArgument(block.getTupleInfo().equals(tupleInfo), "Invalid tuple info");
+
+        int positionCount = block.getPositionCount();
+        sliceOutput.appendInt(positionCount);
+
+        BlockCursor cursor = block.cursor();
+        while (cursor.advanceNextPosition()) {
+            sliceOutput.writeByte(cursor.isNull(0) ? 1 : 0);
+        }
+
+        cursor = block.cursor();
+        switch (getType()) {
+            case BOOLEAN:
+                while (cursor.advanceNextPosition()) {
+                    sliceOutput.writeByte(!cursor.isNull(0) && cursor.getBoolean(0) ? 1 : 0);
+                }
+                break;
+            case FIXED_INT_64:
+                while (cursor.advanceNextPosition()) {
+                    sliceOutput.appendLong(cursor.isNull(0) ? 0 : cursor.getLong(0));
+                }
+                break;
+            case DOUBLE:
+                while (cursor.advanceNextPosition()) {
+                    sliceOutput.appendDouble(cursor.isNull(0) ? 0 : cursor.getDouble(0));
+                }
+                break;
+            case VARIABLE_BINARY:
+                // offsets are written first, so the reader can size the data
+                int offset = 0;
+                sliceOutput.appendInt(offset);
+                while (cursor.advanceNextPosition()) {
+                    if (!cursor.isNull(0)) {
+                        offset += cursor.getSlice(0).length();
+                    }
+                    sliceOutput.appendInt(offset);
+                }
+
+                cursor = block.cursor();
+                while (cursor.advanceNextPosition()) {
+                    if (!cursor.isNull(0)) {
+                        sliceOutput.writeBytes(cursor.getSlice(0));
+                    }
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unsupported type " + getType());
+        }
+    }
+
+    @Override
+    public Block readBlock(SliceInput sliceInput)
+    {
+        int positionCount = sliceInput.readInt();
+
+        boolean[] nulls = new boolean[positionCount];
+        for (int position = 0; position < positionCount; position++) {
+            nulls[position] = sliceInput.readByte() != 0;
+        }
+
+        switch (getType()) {
+            case BOOLEAN: {
+                boolean[] values = new boolean[positionCount];
+                for (int position = 0; position < positionCount; position++) {
+                    values[position] = sliceInput.readByte() != 0;
+                }
+                return new BooleanArrayBlock(values, nulls);
+            }
+            case FIXED_INT_64: {
+                long[] values = new long[positionCount];
+                for (int position = 0; position < positionCount; position++) {
+                    values[position] = sliceInput.readLong();
+                }
+                return new LongArrayBlock(values, nulls);
+            }
+            case DOUBLE: {
+                double[] values = new double[positionCount];
+                for (int position = 0; position < positionCount; position++) {
+                    values[position] = sliceInput.readDouble();
+                }
+                return new DoubleArrayBlock(values, nulls);
+            }
+            case VARIABLE_BINARY: {
+                int[] offsets = new int[positionCount + 1];
+                for (int position = 0; position <= positionCount; position++) {
+                    offsets[position] = sliceInput.readInt();
+                }
+                Slice data = sliceInput.readSlice(offsets[positionCount]);
+                return new SliceArrayBlock(data, offsets, nulls);
+            }
+            default:
+                throw new IllegalStateException("Unsupported type " + getType());
+        }
+    }
+
+    private Type getType()
+    {
+        return tupleInfo.getTypes().get(0);
+    }
+
+    public static void serialize(SliceOutput output, ColumnarBlockEncoding encoding)
+    {
+        TupleInfoSerde.writeTupleInfo(output, encoding.tupleInfo);
+    }
+}
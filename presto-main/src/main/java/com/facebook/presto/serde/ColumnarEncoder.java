@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.serde;
+
+import com.facebook.presto.block.BlockBuilder;
+import com.facebook.presto.tuple.Tuple;
+import com.google.common.base.Preconditions;
+import io.airlift.slice.SliceOutput;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+public class ColumnarEncoder
+        implements Encoder
+{
+    private final SliceOutput sliceOutput;
+
+    private ColumnarBlockEncoding encoding;
+    private BlockBuilder blockBuilder;
+    private boolean finished;
+
+    public ColumnarEncoder(SliceOutput sliceOutput)
+    {
+        this.sliceOutput = checkNotNull(sliceOutput, "sliceOutput is null");
+    }
+
+    @Override
+    public Encoder append(Iterable<Tuple> tuples)
+    {
+        Preconditions.checkNotNull(tuples, "tuples is null");
+        checkState(!finished, "already finished");
+
+        for (Tuple tuple : tuples) {
+            if (encoding == null) {
+                encoding = new ColumnarBlockEncoding(tuple.getTupleInfo());
+                blockBuilder = new BlockBuilder(tuple.getTupleInfo());
+            }
+            blockBuilder.append(tuple);
+
+            if (blockBuilder.isFull()) {
+                writeBlock();
+            }
+        }
+
+        return this;
+    }
+
+    @Override
+    public BlockEncoding finish()
+    {
+        checkState(encoding != null, "nothing appended");
+        checkState(!finished, "already finished");
+        finished = true;
+
+        if (!blockBuilder.isEmpty()) {
+            writeBlock();
+        }
+        return encoding;
+    }
+
+    private void writeBlock()
+    {
+        encoding.writeBlock(sliceOutput, blockBuilder.build());
+        blockBuilder = new BlockBuilder(encoding.getTupleInfo());
+    }
+}
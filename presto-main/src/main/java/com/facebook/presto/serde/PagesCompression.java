@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.serde;
+
+import com.facebook.presto.operator.Page;
+import com.google.common.collect.AbstractIterator;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.SliceInput;
+import io.airlift.slice.SliceOutput;
+import io.airlift.slice.Slices;
+import org.iq80.snappy.Snappy;
+
+import javax.annotation.Nullable;
+
+import java.util.Iterator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Compression of the serialized pages exchanged between tasks.  The reader asks for a compression
+ * with the {@code X-Presto-Page-Compression} request header, and the writer echoes the compression
+ * it used in the response header.  A writer that does not know the requested compression sends
+ * the pages uncompressed.
+ */
+public enum PagesCompression
+{
+    NONE
+            {
+                @Override
+                public void writePages(SliceOutput sliceOutput, Iterable<Page> pages)
+                {
+                    PagesSerde.writePages(sliceOutput, pages);
+                }
+
+                @Override
+                public Iterator<Page> readPages(SliceInput sliceInput)
+                {
+                    return PagesSerde.readPages(sliceInput);
+                }
+            },
+    /**
+     * Each page is compressed on its own and written as the compressed length followed by the
+     * compressed bytes, so pages are compressed and decompressed one at a time as the stream is
+     * written and read.  The block encodings are only written before the first page.
+     */
+    SNAPPY
+            {
+                @Override
+                public void writePages(SliceOutput sliceOutput, Iterable<Page> pages)
+                {
+                    DynamicSliceOutput uncompressedOutput = new DynamicSliceOutput(64 * 1024);
+                    PagesWriter pagesWriter = PagesSerde.createPagesWriter(uncompressedOutput);
+                    byte[] uncompressed = new byte[0];
+                    byte[] compressed = new byte[0];
+                    for (Page page : pages) {
+                        uncompressedOutput.reset();
+                        pagesWriter.append(page);
+
+                        int uncompressedLength = uncompressedOutput.size();
+                        if (uncompressed.length < uncompressedLength) {
+                            uncompressed = new byte[uncompressedLength];
+                        }
+                        uncompressedOutput.slice().getBytes(0, uncompressed, 0, uncompressedLength);
+
+                        int maxCompressedLength = Snappy.maxCompressedLength(uncompressedLength);
+                        if (compressed.length < maxCompressedLength) {
+                            compressed = new byte[maxCompressedLength];
+                        }
+                        int compressedLength = Snappy.compress(uncompressed, 0, uncompressedLength, compressed, 0);
+
+                        sliceOutput.writeInt(compressedLength);
+                        sliceOutput.writeBytes(compressed, 0, compressedLength);
+                    }
+                }
+
+                @Override
+                public Iterator<Page> readPages(final SliceInput sliceInput)
+                {
+                    checkNotNull(sliceInput, "sliceInput is null");
+                    return new AbstractIterator<Page>()
+                    {
+                        private BlockEncoding[] blockEncodings;
+                        private byte[] compressed = new byte[0];
+
+                        @Override
+                        protected Page computeNext()
+                        {
+                            if (!sliceInput.isReadable()) {
+                                return endOfData();
+                            }
+
+                            int compressedLength = sliceInput.readInt();
+                            if (compressed.length < compressedLength) {
+                                compressed = new byte[compressedLength];
+                            }
+                            sliceInput.readBytes(compressed, 0, compressedLength);
+
+                            // the page is a view into the uncompressed bytes, so they can not be reused
+                            byte[] uncompressed = new byte[Snappy.getUncompressedLength(compressed, 0)];
+                            Snappy.uncompress(compressed, 0, compressedLength, uncompressed, 0);
+
+                            SliceInput pageInput = Slices.wrappedBuffer(uncompressed).getInput();
+                            if (blockEncodings == null) {
+                                blockEncodings = PagesSerde.readBlockEncodings(pageInput);
+                            }
+                            return PagesSerde.readPage(pageInput, blockEncodings);
+                        }
+                    };
+                }
+            };
+
+    /**
+     * Writes the pages compressed with this compression.
+     */
+    public abstract void writePages(SliceOutput sliceOutput, Iterable<Page> pages);
+
+    /**
+     * Reads the pages written with this compression.  Pages are decoded from the input as the
+     * iterator advances, so the input may be a stream that has not been fully received.
+     */
+    public abstract Iterator<Page> readPages(SliceInput sliceInput);
+
+    public static PagesCompression fromHeader(@Nullable String value)
+    {
+        if (value == null) {
+            return NONE;
+        }
+        for (PagesCompression compression : values()) {
+            if (compression.name().equalsIgnoreCase(value.trim())) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+}
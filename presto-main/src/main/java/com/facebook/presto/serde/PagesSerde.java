@@ -24,6 +24,7 @@ import io.airlift.slice.SliceOutput;
 
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Arrays.asList;
@@ -69,6 +70,40 @@ public final class PagesSerde
         };
     }
 
+    /**
+     * Creates a writer that writes every page with the specified encodings instead of the
+     * encodings of the blocks.  The encodings are written immediately.
+     */
+    public static PagesWriter createPagesWriter(final SliceOutput sliceOutput, List<BlockEncoding> encodings)
+    {
+        checkNotNull(sliceOutput, "sliceOutput is null");
+        checkNotNull(encodings, "encodings is null");
+
+        final BlockEncoding[] blockEncodings = encodings.toArray(new BlockEncoding[encodings.size()]);
+        sliceOutput.writeInt(blockEncodings.length);
+        for (BlockEncoding blockEncoding : blockEncodings) {
+            BlockEncodings.writeBlockEncoding(sliceOutput, blockEncoding);
+        }
+
+        return new PagesWriter()
+        {
+            @Override
+            public PagesWriter append(Page page)
+            {
+                Preconditions.checkNotNull(page, "page is null");
+                Preconditions.checkArgument(page.getChannelCount() == blockEncodings.length, "Expected %s channels, but page has %s", blockEncodings.length, page.getChannelCount());
+
+                sliceOutput.writeInt(page.getPositionCount());
+                Block[] blocks = page.getBlocks();
+                for (int i = 0; i < blocks.length; i++) {
+                    blockEncodings[i].writeBlock(sliceOutput, blocks[i]);
+                }
+
+                return this;
+            }
+        };
+    }
+
     public static void writePages(SliceOutput sliceOutput, Page... pages)
     {
         writePages(sliceOutput, asList(pages).iterator());
@@ -112,6 +147,27 @@ public final class PagesSerde
         return new PagesReader(sliceInput);
     }
 
+    static BlockEncoding[] readBlockEncodings(SliceInput sliceInput)
+    {
+        int channelCount = sliceInput.readInt();
+
+        BlockEncoding[] blockEncodings = new BlockEncoding[channelCount];
+        for (int i = 0; i < blockEncodings.length; i++) {
+            blockEncodings[i] = BlockEncodings.readBlockEncoding(sliceInput);
+        }
+        return blockEncodings;
+    }
+
+    static Page readPage(SliceInput sliceInput, BlockEncoding[] blockEncodings)
+    {
+        int positions = sliceInput.readInt();
+        Block[] blocks = new Block[blockEncodings.length];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = blockEncodings[i].readBlock(sliceInput);
+        }
+        return new Page(positions, blocks);
+    }
+
     private static class PagesReader
             extends AbstractIterator<Page>
     {
@@ -121,13 +177,7 @@ public final class PagesSerde
         public PagesReader(SliceInput sliceInput)
         {
             this.sliceInput = sliceInput;
-
-            int channelCount = sliceInput.readInt();
-
-            blockEncodings = new BlockEncoding[channelCount];
-            for (int i = 0; i < blockEncodings.length; i++) {
-                blockEncodings[i] = BlockEncodings.readBlockEncoding(sliceInput);
-            }
+            this.blockEncodings = readBlockEncodings(sliceInput);
         }
 
         @Override
@@ -136,14 +186,7 @@ public final class PagesSerde
             if (!sliceInput.isReadable()) {
                 return endOfData();
             }
-
-            int positions = sliceInput.readInt();
-            Block[] blocks = new Block[blockEncodings.length];
-            for (int i = 0; i < blocks.length; i++) {
-                blocks[i] = blockEncodings[i].readBlock(sliceInput);
-            }
-            Page page = new Page(positions, blocks);
-            return page;
+            return readPage(sliceInput, blockEncodings);
         }
     }
 }
@@ -21,6 +21,8 @@ import io.airlift.slice.Slice;
 import io.airlift.slice.SliceInput;
 import io.airlift.slice.SliceOutput;
 
+import static com.facebook.presto.block.BlockUtils.toUncompressedBlock;
+
 public class UncompressedBlockEncoding
         implements BlockEncoding
 {
@@ -47,8 +49,8 @@ public class UncompressedBlockEncoding
     @Override
     public void writeBlock(SliceOutput sliceOutput, Block block)
     {
-        UncompressedBlock uncompressedBlock = (UncompressedBlock) block;
         Preconditions.checkArgument(block.getTupleInfo().equals(tupleInfo), "Invalid tuple info");
+        UncompressedBlock uncompressedBlock = toUncompressedBlock(block);
         writeUncompressedBlock(sliceOutput,
                 uncompressedBlock.getPositionCount(),
                 uncompressedBlock.getSlice());
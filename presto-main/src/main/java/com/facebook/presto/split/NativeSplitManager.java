@@ -14,9 +14,11 @@
 package com.facebook.presto.split;
 
 import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.metadata.NativeColumnHandle;
 import com.facebook.presto.metadata.NativeTableHandle;
 import com.facebook.presto.metadata.Node;
 import com.facebook.presto.metadata.NodeManager;
+import com.facebook.presto.metadata.ShardColumnStats;
 import com.facebook.presto.metadata.ShardManager;
 import com.facebook.presto.metadata.TableMetadata;
 import com.facebook.presto.metadata.TablePartition;
@@ -32,6 +34,7 @@ import com.google.common.base.Objects;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
 import io.airlift.log.Logger;
@@ -105,7 +108,7 @@ public class NativeSplitManager
 
         log.debug("Partition key retrieval, native table %s (%d keys): %dms", tableHandle, allPartitionKeys.size(), partitionTimer.elapsed(TimeUnit.MILLISECONDS));
 
-        List<Partition> partitions = ImmutableList.copyOf(Collections2.transform(tablePartitions, new PartitionFunction(columnHandles, allPartitionKeys)));
+        List<Partition> partitions = ImmutableList.copyOf(Collections2.transform(tablePartitions, new PartitionFunction(columnHandles, allPartitionKeys, bindings)));
 
         log.debug("Partition generation, native table %s (%d partitions): %dms", tableHandle, partitions.size(), partitionTimer.elapsed(TimeUnit.MILLISECONDS));
 
@@ -129,6 +132,16 @@ public class NativeSplitManager
 
         Multimap<Long, Entry<Long, String>> partitionShardNodes = shardManager.getCommittedPartitionShardNodes(tableHandle);
 
+        // only load the shard stats if there is a partition to prune shards of
+        Multimap<Long, ShardColumnStats> shardColumnStats = ImmutableMultimap.of();
+        for (Partition partition : partitions) {
+            if (partition instanceof NativePartition && !((NativePartition) partition).getBindings().isEmpty()) {
+                shardColumnStats = shardManager.getShardColumnStats(tableHandle);
+                break;
+            }
+        }
+        int prunedShards = 0;
+
         for (Partition partition : partitions) {
             checkArgument(partition instanceof NativePartition, "Partition must be a native partition");
             NativePartition nativePartition = (NativePartition) partition;
@@ -139,6 +152,10 @@ public class NativeSplitManager
             }
 
             for (Map.Entry<Long, Collection<String>> entry : shardNodes.build().asMap().entrySet()) {
+                if (!mayContain(shardColumnStats.get(entry.getKey()), nativePartition.getBindings())) {
+                    prunedShards++;
+                    continue;
+                }
                 List<HostAddress> addresses = getAddressesForNodes(nodesById, entry.getValue());
                 checkState(addresses.size() > 0, "no host for shard %s found", entry.getKey());
                 Split split = new NativeSplit(entry.getKey(), addresses);
@@ -146,7 +163,7 @@ public class NativeSplitManager
             }
         }
 
-        log.debug("Split retrieval for %d partitions (%d splits): %dms", partitions.size(), splits.size(), splitTimer.elapsed(TimeUnit.MILLISECONDS));
+        log.debug("Split retrieval for %d partitions (%d splits, %d pruned shards): %dms", partitions.size(), splits.size(), prunedShards, splitTimer.elapsed(TimeUnit.MILLISECONDS));
 
         // the query engine assumes that splits are returned in a somewhat random fashion. The native split manager,
         // because it loads the data from a db table will return the splits somewhat ordered by node id so only a sub
@@ -156,6 +173,34 @@ public class NativeSplitManager
         return ImmutableList.copyOf(splits);
     }
 
+    @Override
+    public Map<String, String> getPartitionVersions(TableHandle table, List<Partition> partitions)
+    {
+        return ImmutableMap.of();
+    }
+
+    /**
+     * Checks if a shard may contain rows matching the bindings, using the column stats of the shard.
+     * Shards without stats for a bound column are never pruned.
+     */
+    private static boolean mayContain(Collection<ShardColumnStats> columnStats, Map<ColumnHandle, Object> bindings)
+    {
+        if (columnStats.isEmpty()) {
+            return true;
+        }
+        for (ShardColumnStats stats : columnStats) {
+            for (Map.Entry<ColumnHandle, Object> binding : bindings.entrySet()) {
+                ColumnHandle columnHandle = binding.getKey();
+                if (columnHandle instanceof NativeColumnHandle &&
+                        ((NativeColumnHandle) columnHandle).getColumnId() == stats.getColumnId() &&
+                        !stats.mayContain(binding.getValue())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     private static List<HostAddress> getAddressesForNodes(Map<String, Node> nodeMap, Iterable<String> nodeIdentifiers)
     {
         return ImmutableList.copyOf(transform(transform(nodeIdentifiers, forMap(nodeMap)), hostAndPortGetter()));
@@ -166,11 +211,13 @@ public class NativeSplitManager
     {
         private final long partitionId;
         private Map<ColumnHandle, Object> keys;
+        private final Map<ColumnHandle, Object> bindings;
 
-        public NativePartition(long partitionId, Map<ColumnHandle, Object> keys)
+        public NativePartition(long partitionId, Map<ColumnHandle, Object> keys, Map<ColumnHandle, Object> bindings)
         {
             this.partitionId = partitionId;
             this.keys = keys;
+            this.bindings = checkNotNull(bindings, "bindings is null");
         }
 
         @Override
@@ -190,6 +237,14 @@ public class NativeSplitManager
             return keys;
         }
 
+        /**
+         * The values the query binds columns to, used to prune shards of the partition.
+         */
+        public Map<ColumnHandle, Object> getBindings()
+        {
+            return bindings;
+        }
+
         @Override
         public int hashCode()
         {
@@ -216,6 +271,7 @@ public class NativeSplitManager
             return Objects.toStringHelper(this)
                     .add("partitionId", partitionId)
                     .add("keys", keys)
+                    .add("bindings", bindings)
                     .toString();
         }
     }
@@ -32,12 +32,15 @@ public class PartitionFunction
 {
     private final Map<String, ColumnHandle> columnHandles;
     private final Multimap<String, ? extends PartitionKey> allPartitionKeys;
+    private final Map<ColumnHandle, Object> bindings;
 
     PartitionFunction(Map<String, ColumnHandle> columnHandles,
-            Multimap<String, ? extends PartitionKey> allPartitionKeys)
+            Multimap<String, ? extends PartitionKey> allPartitionKeys,
+            Map<ColumnHandle, Object> bindings)
     {
         this.columnHandles = checkNotNull(columnHandles, "columnHandles is null");
         this.allPartitionKeys = checkNotNull(allPartitionKeys, "allPartitionKeys is null");
+        this.bindings = ImmutableMap.copyOf(checkNotNull(bindings, "bindings is null"));
     }
 
     @Override
@@ -82,6 +85,6 @@ public class PartitionFunction
             }
         }
 
-        return new NativePartition(tablePartition.getPartitionId(), builder.build());
+        return new NativePartition(tablePartition.getPartitionId(), builder.build(), bindings);
     }
 }
@@ -18,6 +18,7 @@ import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ConnectorSplitManager;
 import com.facebook.presto.spi.Partition;
+import com.facebook.presto.spi.Split;
 import com.facebook.presto.spi.TableHandle;
 import com.facebook.presto.sql.analyzer.Session;
 import com.facebook.presto.sql.planner.ExpressionInterpreter;
@@ -35,6 +36,7 @@ import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import io.airlift.log.Logger;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -75,6 +77,40 @@ public class SplitManager
         return new DataSource(connectorId, connectorSplitManager.getPartitionSplits(handle, partitions));
     }
 
+    /**
+     * Gets the splits of the table, pruning the partitions with the specified schedule time predicate when the
+     * splits are iterated.  This allows the predicate to use information that is not available when the query
+     * is planned, such as values produced by another stage of the query.
+     */
+    public DataSource getSplits(Session session,
+            final TableHandle handle,
+            Expression predicate,
+            Expression upstreamHint,
+            Predicate<Partition> partitionPredicate,
+            final Predicate<Partition> scheduleTimePartitionPredicate,
+            Map<Symbol, ColumnHandle> mappings)
+    {
+        checkNotNull(scheduleTimePartitionPredicate, "scheduleTimePartitionPredicate is null");
+
+        final List<Partition> partitions = getPartitions(session, handle, and(predicate, upstreamHint), partitionPredicate, mappings);
+
+        final ConnectorSplitManager connectorSplitManager = getConnectorSplitManager(handle);
+
+        String connectorId = connectorSplitManager.getConnectorId();
+        return new DataSource(connectorId, new Iterable<Split>()
+        {
+            @Override
+            public Iterator<Split> iterator()
+            {
+                List<Partition> remainingPartitions = ImmutableList.copyOf(filter(partitions, scheduleTimePartitionPredicate));
+
+                log.debug("Schedule time partition filter, table %s (%d of %d partitions)", handle, remainingPartitions.size(), partitions.size());
+
+                return connectorSplitManager.getPartitionSplits(handle, remainingPartitions).iterator();
+            }
+        });
+    }
+
     private List<Partition> getPartitions(Session session,
             TableHandle table,
             Expression predicate,
@@ -126,6 +162,17 @@ public class SplitManager
         return getConnectorSplitManager(table).getPartitions(table, bindings.or(ImmutableMap.<ColumnHandle, Object>of()));
     }
 
+    /**
+     * Gets the versions of the specified partitions, keyed by partition id.  Partitions with an unknown
+     * version are not included.
+     */
+    public Map<String, String> getPartitionVersions(TableHandle table, List<Partition> partitions)
+    {
+        checkNotNull(table, "table is null");
+        checkNotNull(partitions, "partitions is null");
+        return getConnectorSplitManager(table).getPartitionVersions(table, partitions);
+    }
+
     private List<Partition> prunePartitions(Session session, List<Partition> partitions, Expression predicate, Map<ColumnHandle, Symbol> columnToSymbol)
     {
         ImmutableList.Builder<Partition> partitionBuilder = ImmutableList.builder();
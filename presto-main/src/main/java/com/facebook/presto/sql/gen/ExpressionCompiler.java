@@ -36,6 +36,8 @@ import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.operator.AbstractFilterAndProjectOperator;
 import com.facebook.presto.operator.AbstractScanFilterAndProjectOperator;
 import com.facebook.presto.operator.DriverContext;
+import com.facebook.presto.operator.EncodedBlockEvaluator;
+import com.facebook.presto.operator.EncodedBlockEvaluator.ChannelFunctions;
 import com.facebook.presto.operator.Operator;
 import com.facebook.presto.operator.OperatorContext;
 import com.facebook.presto.operator.OperatorFactory;
@@ -47,9 +49,12 @@ import com.facebook.presto.spi.RecordCursor;
 import com.facebook.presto.split.DataStreamProvider;
 import com.facebook.presto.sql.analyzer.Session;
 import com.facebook.presto.sql.analyzer.Type;
+import com.facebook.presto.sql.planner.DeterminismEvaluator;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.facebook.presto.sql.tree.DefaultExpressionTraversalVisitor;
 import com.facebook.presto.sql.tree.Expression;
 import com.facebook.presto.sql.tree.Input;
+import com.facebook.presto.sql.tree.InputReference;
 import com.facebook.presto.tuple.TupleInfo;
 import com.facebook.presto.tuple.TupleReadable;
 import com.google.common.annotations.VisibleForTesting;
@@ -60,6 +65,8 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
 import com.google.common.io.Files;
 import io.airlift.log.Logger;
@@ -85,6 +92,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -94,6 +102,7 @@ import static com.facebook.presto.byteCode.Access.PUBLIC;
 import static com.facebook.presto.byteCode.Access.STATIC;
 import static com.facebook.presto.byteCode.Access.a;
 import static com.facebook.presto.byteCode.NamedParameterDefinition.arg;
+import static com.facebook.presto.byteCode.OpCodes.ISUB;
 import static com.facebook.presto.byteCode.OpCodes.NOP;
 import static com.facebook.presto.byteCode.ParameterizedType.type;
 import static com.facebook.presto.byteCode.ParameterizedType.typeFromPathName;
@@ -231,7 +240,8 @@ public class ExpressionCompiler
         ClassDefinition classDefinition = new ClassDefinition(new CompilerContext(bootstrapMethod),
                 a(PUBLIC, FINAL),
                 typeFromPathName("FilterAndProjectOperator_" + CLASS_ID.incrementAndGet()),
-                type(AbstractFilterAndProjectOperator.class));
+                type(AbstractFilterAndProjectOperator.class),
+                type(ChannelFunctions.class));
 
         // declare fields
         FieldDefinition sessionField = classDefinition.declareField(a(PRIVATE, FINAL), "session", Session.class);
@@ -255,6 +265,8 @@ public class ExpressionCompiler
                 .ret();
 
         generateFilterAndProjectRowOriented(classDefinition, projections, inputTypes);
+        generateFilterAndProjectPageMethod(classDefinition, filter, projections, inputTypes);
+        generateChannelFunctions(classDefinition, filter, projections, inputTypes);
 
         //
         // filter method
@@ -358,7 +370,8 @@ public class ExpressionCompiler
         ClassDefinition classDefinition = new ClassDefinition(new CompilerContext(bootstrapMethod),
                 a(PUBLIC, FINAL),
                 typeFromPathName("ScanFilterAndProjectOperator_" + CLASS_ID.incrementAndGet()),
-                type(AbstractScanFilterAndProjectOperator.class));
+                type(AbstractScanFilterAndProjectOperator.class),
+                type(ChannelFunctions.class));
 
         // declare fields
         FieldDefinition sessionField = classDefinition.declareField(a(PRIVATE, FINAL), "session", Session.class);
@@ -388,6 +401,8 @@ public class ExpressionCompiler
                 .ret();
 
         generateFilterAndProjectRowOriented(classDefinition, projections, inputTypes);
+        generateFilterAndProjectPageMethod(classDefinition, filter, projections, inputTypes);
+        generateChannelFunctions(classDefinition, filter, projections, inputTypes);
         generateFilterAndProjectCursorMethod(classDefinition, projections);
 
         //
@@ -561,6 +576,357 @@ public class ExpressionCompiler
         filterAndProjectMethod.getBody().ret();
     }
 
+    private void generateFilterAndProjectPageMethod(ClassDefinition classDefinition,
+            Expression filter,
+            List<Expression> projections,
+            Map<Input, Type> inputTypes)
+    {
+        MethodDefinition filterAndProjectMethod = classDefinition.declareMethod(new CompilerContext(bootstrapMethod),
+                a(PUBLIC),
+                "filterAndProjectPage",
+                type(void.class),
+                arg("blocks", com.facebook.presto.block.Block[].class),
+                arg("pageBuilder", PageBuilder.class));
+
+        CompilerContext compilerContext = filterAndProjectMethod.getCompilerContext();
+        Block body = filterAndProjectMethod.getBody();
+
+        LocalVariableDefinition positionVariable = compilerContext.declareVariable(int.class, "position");
+        LocalVariableDefinition indexVariable = compilerContext.declareVariable(int.class, "index");
+
+        LocalVariableDefinition rowsVariable = compilerContext.declareVariable(int.class, "rows");
+        body.comment("int rows = blocks[0].getPositionCount();")
+                .getVariable("blocks")
+                .push(0)
+                .getObjectArrayElement()
+                .invokeInterface(com.facebook.presto.block.Block.class, "getPositionCount", int.class)
+                .putVariable(rowsVariable);
+
+        LocalVariableDefinition selectedPositionsVariable = compilerContext.declareVariable(int[].class, "selectedPositions");
+        body.comment("int[] selectedPositions = getSelectedPositions(rows);")
+                .pushThis()
+                .getVariable(rowsVariable)
+                .invokeVirtual(classDefinition.getType(), "getSelectedPositions", type(int[].class), type(int.class))
+                .putVariable(selectedPositionsVariable);
+
+        LocalVariableDefinition selectedCountVariable = compilerContext.declareVariable(int.class, "selectedCount");
+        body.comment("int selectedCount = 0;")
+                .putVariable(selectedCountVariable, 0);
+
+        int channels = Ordering.natural().max(transform(inputTypes.keySet(), Input.channelGetter())) + 1;
+        List<LocalVariableDefinition> cursorVariables = new ArrayList<>();
+        for (int i = 0; i < channels; i++) {
+            cursorVariables.add(compilerContext.declareVariable(BlockCursor.class, "cursor_" + i));
+        }
+
+        //
+        // filter: only the channels used by the filter are read, and the selected positions are recorded
+        //
+        Set<Integer> filterChannels = extractInputChannels(filter);
+        Block filterBody = new Block(compilerContext);
+        createCursors(filterBody, filterChannels, cursorVariables);
+
+        Block filterLoopBody = new Block(compilerContext);
+        for (int channel : filterChannels) {
+            filterLoopBody
+                    .comment("checkState(%s.advanceNextPosition());", cursorVariables.get(channel).getName())
+                    .getVariable(cursorVariables.get(channel))
+                    .invokeInterface(BlockCursor.class, "advanceNextPosition", boolean.class)
+                    .invokeStatic(Preconditions.class, "checkState", void.class, boolean.class);
+        }
+
+        Block condition = new Block(compilerContext);
+        condition.pushThis();
+        pushCursors(condition, filterChannels, cursorVariables);
+        condition.invokeVirtual(classDefinition.getType(), "filter", type(boolean.class), nCopies(channels, type(TupleReadable.class)));
+
+        filterLoopBody.append(new IfStatementBuilder(compilerContext)
+                .comment("if (filter(cursors...)")
+                .condition(condition)
+                .ifTrue(new Block(compilerContext)
+                        .comment("selectedPositions[selectedCount++] = position;")
+                        .getVariable(selectedPositionsVariable)
+                        .getVariable(selectedCountVariable)
+                        .getVariable(positionVariable)
+                        .putIntArrayElement()
+                        .incrementVariable(selectedCountVariable, (byte) 1))
+                .build());
+
+        filterBody.append(forLoopBuilder(compilerContext)
+                .comment("for (position = 0; position < rows; position++)")
+                .initialize(new Block(compilerContext).putVariable(positionVariable, 0))
+                .condition(new Block(compilerContext)
+                        .getVariable(positionVariable)
+                        .getVariable(rowsVariable)
+                        .invokeStatic(Operations.class, "lessThan", boolean.class, int.class, int.class))
+                .update(new Block(compilerContext).incrementVariable(positionVariable, (byte) 1))
+                .body(filterLoopBody)
+                .build());
+
+        if (isSingleChannel(filter)) {
+            // an encoded channel is filtered once per run or dictionary entry
+            int channel = Iterables.getOnlyElement(filterChannels);
+            body.append(new IfStatementBuilder(compilerContext)
+                    .comment("if (EncodedBlockEvaluator.isEncoded(blocks[%s]))", channel)
+                    .condition(new Block(compilerContext)
+                            .getVariable("blocks")
+                            .push(channel)
+                            .getObjectArrayElement()
+                            .invokeStatic(EncodedBlockEvaluator.class, "isEncoded", boolean.class, com.facebook.presto.block.Block.class))
+                    .ifTrue(new Block(compilerContext)
+                            .comment("selectedCount = EncodedBlockEvaluator.filter(this, blocks[%s], selectedPositions);", channel)
+                            .pushThis()
+                            .getVariable("blocks")
+                            .push(channel)
+                            .getObjectArrayElement()
+                            .getVariable(selectedPositionsVariable)
+                            .invokeStatic(EncodedBlockEvaluator.class, "filter", int.class, ChannelFunctions.class, com.facebook.presto.block.Block.class, int[].class)
+                            .putVariable(selectedCountVariable))
+                    .ifFalse(filterBody)
+                    .build());
+        }
+        else {
+            body.append(filterBody);
+        }
+
+        //
+        // projections: each projection is computed for all selected positions before moving to the next
+        //
+        if (projections.isEmpty()) {
+            body.append(forLoopBuilder(compilerContext)
+                    .comment("for (index = 0; index < selectedCount; index++)")
+                    .initialize(new Block(compilerContext).putVariable(indexVariable, 0))
+                    .condition(new Block(compilerContext)
+                            .getVariable(indexVariable)
+                            .getVariable(selectedCountVariable)
+                            .invokeStatic(Operations.class, "lessThan", boolean.class, int.class, int.class))
+                    .update(new Block(compilerContext).incrementVariable(indexVariable, (byte) 1))
+                    .body(new Block(compilerContext)
+                            .comment("pageBuilder.declarePosition()")
+                            .getVariable("pageBuilder")
+                            .invokeVirtual(PageBuilder.class, "declarePosition", void.class))
+                    .build());
+        }
+
+        for (int projectionIndex = 0; projectionIndex < projections.size(); projectionIndex++) {
+            Set<Integer> projectionChannels = extractInputChannels(projections.get(projectionIndex));
+            Block projectionBody = new Block(compilerContext);
+            createCursors(projectionBody, projectionChannels, cursorVariables);
+
+            Block projectLoopBody = new Block(compilerContext)
+                    .comment("position = selectedPositions[index];")
+                    .getVariable(selectedPositionsVariable)
+                    .getVariable(indexVariable)
+                    .getIntArrayElement()
+                    .putVariable(positionVariable);
+
+            for (int channel : projectionChannels) {
+                projectLoopBody
+                        .comment("checkState(%s.advanceToPosition(position));", cursorVariables.get(channel).getName())
+                        .getVariable(cursorVariables.get(channel))
+                        .getVariable(positionVariable)
+                        .invokeInterface(BlockCursor.class, "advanceToPosition", boolean.class, int.class)
+                        .invokeStatic(Preconditions.class, "checkState", void.class, boolean.class);
+            }
+
+            projectLoopBody.comment("project_%s(cursors..., pageBuilder.getBlockBuilder(%s))", projectionIndex, projectionIndex);
+            projectLoopBody.pushThis();
+            pushCursors(projectLoopBody, projectionChannels, cursorVariables);
+            projectLoopBody.getVariable("pageBuilder")
+                    .push(projectionIndex)
+                    .invokeVirtual(PageBuilder.class, "getBlockBuilder", BlockBuilder.class, int.class);
+            projectLoopBody.invokeVirtual(classDefinition.getType(),
+                    "project_" + projectionIndex,
+                    type(void.class),
+                    ImmutableList.<ParameterizedType>builder().addAll(nCopies(channels, type(TupleReadable.class))).add(type(BlockBuilder.class)).build());
+
+            projectionBody.append(forLoopBuilder(compilerContext)
+                    .comment("for (index = 0; index < selectedCount; index++)")
+                    .initialize(new Block(compilerContext).putVariable(indexVariable, 0))
+                    .condition(new Block(compilerContext)
+                            .getVariable(indexVariable)
+                            .getVariable(selectedCountVariable)
+                            .invokeStatic(Operations.class, "lessThan", boolean.class, int.class, int.class))
+                    .update(new Block(compilerContext).incrementVariable(indexVariable, (byte) 1))
+                    .body(projectLoopBody)
+                    .build());
+
+            if (isSingleChannel(projections.get(projectionIndex))) {
+                // an encoded channel is projected once per run or dictionary entry
+                int channel = Iterables.getOnlyElement(projectionChannels);
+                body.append(new IfStatementBuilder(compilerContext)
+                        .comment("if (EncodedBlockEvaluator.isEncoded(blocks[%s]))", channel)
+                        .condition(new Block(compilerContext)
+                                .getVariable("blocks")
+                                .push(channel)
+                                .getObjectArrayElement()
+                                .invokeStatic(EncodedBlockEvaluator.class, "isEncoded", boolean.class, com.facebook.presto.block.Block.class))
+                        .ifTrue(new Block(compilerContext)
+                                .comment("EncodedBlockEvaluator.project(this, %s, blocks[%s], selectedPositions, selectedCount, pageBuilder.getBlockBuilder(%s));", projectionIndex, channel, projectionIndex)
+                                .pushThis()
+                                .push(projectionIndex)
+                                .getVariable("blocks")
+                                .push(channel)
+                                .getObjectArrayElement()
+                                .getVariable(selectedPositionsVariable)
+                                .getVariable(selectedCountVariable)
+                                .getVariable("pageBuilder")
+                                .push(projectionIndex)
+                                .invokeVirtual(PageBuilder.class, "getBlockBuilder", BlockBuilder.class, int.class)
+                                .invokeStatic(EncodedBlockEvaluator.class,
+                                        "project",
+                                        void.class,
+                                        ChannelFunctions.class,
+                                        int.class,
+                                        com.facebook.presto.block.Block.class,
+                                        int[].class,
+                                        int.class,
+                                        BlockBuilder.class))
+                        .ifFalse(projectionBody)
+                        .build());
+            }
+            else {
+                body.append(projectionBody);
+            }
+        }
+
+        body.ret();
+    }
+
+    private static void createCursors(Block block, Set<Integer> channels, List<LocalVariableDefinition> cursorVariables)
+    {
+        for (int channel : channels) {
+            LocalVariableDefinition cursorVariable = cursorVariables.get(channel);
+            block.comment("%s = blocks[%s].cursor();", cursorVariable.getName(), channel)
+                    .getVariable("blocks")
+                    .push(channel)
+                    .getObjectArrayElement()
+                    .invokeInterface(com.facebook.presto.block.Block.class, "cursor", BlockCursor.class)
+                    .putVariable(cursorVariable);
+        }
+    }
+
+    /**
+     * Pushes the cursor of every channel, or null for channels that are not used by the expression.
+     */
+    private static void pushCursors(Block block, Set<Integer> usedChannels, List<LocalVariableDefinition> cursorVariables)
+    {
+        for (int channel = 0; channel < cursorVariables.size(); channel++) {
+            if (usedChannels.contains(channel)) {
+                block.getVariable(cursorVariables.get(channel));
+            }
+            else {
+                block.pushNull();
+            }
+        }
+    }
+
+    private static Set<Integer> extractInputChannels(Expression expression)
+    {
+        final ImmutableSortedSet.Builder<Integer> channels = ImmutableSortedSet.naturalOrder();
+        new DefaultExpressionTraversalVisitor<Void, Void>()
+        {
+            @Override
+            public Void visitInputReference(InputReference node, Void context)
+            {
+                channels.add(node.getInput().getChannel());
+                return null;
+            }
+        }.process(expression, null);
+        return channels.build();
+    }
+
+    /**
+     * Expressions that read a single channel, and always return the same result for the same value, can be
+     * evaluated once per run or dictionary entry of an encoded block.
+     */
+    private static boolean isSingleChannel(Expression expression)
+    {
+        return extractInputChannels(expression).size() == 1 && DeterminismEvaluator.isDeterministic(expression);
+    }
+
+    /**
+     * Generates the {@link ChannelFunctions} used by {@link EncodedBlockEvaluator}.  Each function calls the
+     * filter or projection with the value for the single channel it reads, and null for all other channels.
+     */
+    private void generateChannelFunctions(ClassDefinition classDefinition,
+            Expression filter,
+            List<Expression> projections,
+            Map<Input, Type> inputTypes)
+    {
+        int channels = Ordering.natural().max(transform(inputTypes.keySet(), Input.channelGetter())) + 1;
+
+        Block filterBody = classDefinition.declareMethod(new CompilerContext(bootstrapMethod),
+                a(PUBLIC),
+                "filterValue",
+                type(boolean.class),
+                arg("value", TupleReadable.class))
+                .getBody();
+        if (isSingleChannel(filter)) {
+            filterBody.comment("return filter(value);")
+                    .pushThis();
+            pushValue(filterBody, Iterables.getOnlyElement(extractInputChannels(filter)), channels);
+            filterBody.invokeVirtual(classDefinition.getType(), "filter", type(boolean.class), nCopies(channels, type(TupleReadable.class)))
+                    .retBoolean();
+        }
+        else {
+            throwUnsupportedOperation(filterBody);
+        }
+
+        Block projectBody = classDefinition.declareMethod(new CompilerContext(bootstrapMethod),
+                a(PUBLIC),
+                "projectValue",
+                type(void.class),
+                arg("projection", int.class),
+                arg("value", TupleReadable.class),
+                arg("output", BlockBuilder.class))
+                .getBody();
+        for (int projectionIndex = 0; projectionIndex < projections.size(); projectionIndex++) {
+            Expression projection = projections.get(projectionIndex);
+            if (!isSingleChannel(projection)) {
+                continue;
+            }
+
+            LabelNode nextProjection = new LabelNode("nextProjection");
+            projectBody.comment("if (projection == %s) { project_%s(value, output); return; }", projectionIndex, projectionIndex)
+                    .getVariable("projection")
+                    .push(projectionIndex)
+                    .append(ISUB)
+                    .ifNotZeroGoto(nextProjection)
+                    .pushThis();
+            pushValue(projectBody, Iterables.getOnlyElement(extractInputChannels(projection)), channels);
+            projectBody.getVariable("output")
+                    .invokeVirtual(classDefinition.getType(),
+                            "project_" + projectionIndex,
+                            type(void.class),
+                            ImmutableList.<ParameterizedType>builder().addAll(nCopies(channels, type(TupleReadable.class))).add(type(BlockBuilder.class)).build())
+                    .ret()
+                    .visitLabel(nextProjection);
+        }
+        throwUnsupportedOperation(projectBody);
+    }
+
+    private static void pushValue(Block block, int valueChannel, int channels)
+    {
+        for (int channel = 0; channel < channels; channel++) {
+            if (channel == valueChannel) {
+                block.getVariable("value");
+            }
+            else {
+                block.pushNull();
+            }
+        }
+    }
+
+    private static void throwUnsupportedOperation(Block block)
+    {
+        block.comment("throw new UnsupportedOperationException();")
+                .newObject(UnsupportedOperationException.class)
+                .dup()
+                .invokeConstructor(UnsupportedOperationException.class)
+                .throwObject();
+    }
+
     private void generateFilterAndProjectCursorMethod(ClassDefinition classDefinition, List<Expression> projections)
     {
         MethodDefinition filterAndProjectMethod = classDefinition.declareMethod(new CompilerContext(bootstrapMethod),
@@ -827,7 +1193,7 @@ public class ExpressionCompiler
         return parameters.build();
     }
 
-    private static <T> Class<? extends T> defineClass(ClassDefinition classDefinition, Class<T> superType, DynamicClassLoader classLoader)
+    static <T> Class<? extends T> defineClass(ClassDefinition classDefinition, Class<T> superType, DynamicClassLoader classLoader)
     {
         Class<?> clazz = defineClasses(ImmutableList.of(classDefinition), classLoader).values().iterator().next();
         return clazz.asSubclass(superType);
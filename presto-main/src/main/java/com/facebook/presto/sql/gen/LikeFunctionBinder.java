@@ -15,12 +15,12 @@ package com.facebook.presto.sql.gen;
 
 import com.facebook.presto.byteCode.ByteCodeNode;
 import com.facebook.presto.byteCode.instruction.Constant;
+import com.facebook.presto.sql.planner.LikeMatcher;
 import com.facebook.presto.sql.planner.LikeUtils;
 import com.facebook.presto.sql.planner.LikeUtils.LikePatternCache;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import io.airlift.slice.Slice;
-import org.joni.Regex;
 
 import java.lang.invoke.CallSite;
 import java.lang.invoke.ConstantCallSite;
@@ -39,7 +39,7 @@ public class LikeFunctionBinder
 
     static {
         try {
-            constantPattern = lookup().findStatic(LikeUtils.class, "regexMatches", methodType(boolean.class, Regex.class, Slice.class));
+            constantPattern = lookup().findVirtual(LikeMatcher.class, "matches", methodType(boolean.class, Slice.class));
             dynamicPattern = lookup().findStatic(LikeUtils.class, "dynamicLike", methodType(boolean.class, LikePatternCache.class, Slice.class, Slice.class, Slice.class));
         }
         catch (ReflectiveOperationException e) {
@@ -64,9 +64,9 @@ public class LikeFunctionBinder
                 escapeSlice = (Slice) ((Constant) escapeNode.getNode()).getValue();
             }
 
-            Regex regex = LikeUtils.likeToPattern(pattern, escapeSlice);
+            LikeMatcher matcher = LikeUtils.likeToMatcher(pattern, escapeSlice);
 
-            methodHandle = constantPattern.bindTo(regex);
+            methodHandle = constantPattern.bindTo(matcher);
             arguments = ImmutableList.of(valueNode);
         }
         else {
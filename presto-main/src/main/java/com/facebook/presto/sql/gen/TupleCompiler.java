@@ -0,0 +1,597 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.presto.byteCode.Block;
+import com.facebook.presto.byteCode.ClassDefinition;
+import com.facebook.presto.byteCode.CompilerContext;
+import com.facebook.presto.byteCode.DynamicClassLoader;
+import com.facebook.presto.byteCode.FieldDefinition;
+import com.facebook.presto.byteCode.MethodDefinition;
+import com.facebook.presto.byteCode.instruction.LabelNode;
+import com.facebook.presto.operator.TupleComparator;
+import com.facebook.presto.operator.TupleHashStrategy;
+import com.facebook.presto.tuple.TupleInfo;
+import com.facebook.presto.tuple.TupleInfo.Type;
+import com.facebook.presto.tuple.TupleReadable;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Booleans;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import io.airlift.slice.Slice;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.facebook.presto.byteCode.Access.FINAL;
+import static com.facebook.presto.byteCode.Access.PRIVATE;
+import static com.facebook.presto.byteCode.Access.PUBLIC;
+import static com.facebook.presto.byteCode.Access.a;
+import static com.facebook.presto.byteCode.NamedParameterDefinition.arg;
+import static com.facebook.presto.byteCode.OpCodes.IADD;
+import static com.facebook.presto.byteCode.OpCodes.IMUL;
+import static com.facebook.presto.byteCode.OpCodes.INEG;
+import static com.facebook.presto.byteCode.OpCodes.ISUB;
+import static com.facebook.presto.byteCode.OpCodes.LCMP;
+import static com.facebook.presto.byteCode.ParameterizedType.type;
+import static com.facebook.presto.byteCode.ParameterizedType.typeFromPathName;
+import static com.facebook.presto.sql.gen.ExpressionCompiler.defineClass;
+import static com.google.common.base.Objects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
+
+/**
+ * Generates hash strategies and comparators specialized for a tuple info and sort order.  The
+ * generated code reads each field at its fixed offset with the accessor for its type, instead of
+ * looking up the type of every field on every call.  The generated classes are stateless, so
+ * one instance is cached for each tuple info and sort order, the same way compiled expressions
+ * are cached by the {@link ExpressionCompiler}.
+ */
+public final class TupleCompiler
+{
+    private static final AtomicLong CLASS_ID = new AtomicLong();
+
+    private static final LoadingCache<TupleInfo, TupleHashStrategy> hashStrategies = CacheBuilder.newBuilder().maximumSize(1000).build(
+            new CacheLoader<TupleInfo, TupleHashStrategy>()
+            {
+                @Override
+                public TupleHashStrategy load(TupleInfo tupleInfo)
+                        throws Exception
+                {
+                    return internalCompileHashStrategy(tupleInfo);
+                }
+            });
+
+    private static final LoadingCache<ComparatorCacheKey, TupleComparator> comparators = CacheBuilder.newBuilder().maximumSize(1000).build(
+            new CacheLoader<ComparatorCacheKey, TupleComparator>()
+            {
+                @Override
+                public TupleComparator load(ComparatorCacheKey key)
+                        throws Exception
+                {
+                    return internalCompileComparator(key.getTupleInfo(), key.getSortFields(), key.getSortOrder());
+                }
+            });
+
+    private static final LoadingCache<ComparatorCacheKey, Comparator<TupleReadable>> tupleReadableComparators = CacheBuilder.newBuilder().maximumSize(1000).build(
+            new CacheLoader<ComparatorCacheKey, Comparator<TupleReadable>>()
+            {
+                @Override
+                public Comparator<TupleReadable> load(ComparatorCacheKey key)
+                        throws Exception
+                {
+                    return internalCompileTupleReadableComparator(key.getTupleInfo(), key.getSortFields(), key.getSortOrder());
+                }
+            });
+
+    private TupleCompiler()
+    {
+    }
+
+    public static TupleHashStrategy compileHashStrategy(TupleInfo tupleInfo)
+    {
+        return hashStrategies.getUnchecked(checkNotNull(tupleInfo, "tupleInfo is null"));
+    }
+
+    /**
+     * Compiles a comparator for tuples stored in slices.  A sort order of true means ascending.
+     */
+    public static TupleComparator compileComparator(TupleInfo tupleInfo, int[] sortFields, boolean[] sortOrder)
+    {
+        return comparators.getUnchecked(new ComparatorCacheKey(tupleInfo, Ints.asList(sortFields), Booleans.asList(sortOrder)));
+    }
+
+    /**
+     * Compiles a comparator for tuple readables with the specified tuple info.  A sort order of true means ascending.
+     */
+    public static Comparator<TupleReadable> compileTupleReadableComparator(TupleInfo tupleInfo, List<Integer> sortFields, List<Boolean> sortOrder)
+    {
+        return tupleReadableComparators.getUnchecked(new ComparatorCacheKey(tupleInfo, sortFields, sortOrder));
+    }
+
+    @VisibleForTesting
+    static TupleHashStrategy internalCompileHashStrategy(TupleInfo tupleInfo)
+    {
+        ClassDefinition classDefinition = new ClassDefinition(new CompilerContext(null),
+                a(PUBLIC, FINAL),
+                typeFromPathName("TupleHashStrategy_" + CLASS_ID.incrementAndGet()),
+                type(Object.class),
+                type(TupleHashStrategy.class));
+
+        classDefinition.declareConstructor(new CompilerContext(null), a(PUBLIC))
+                .getBody()
+                .comment("super();")
+                .pushThis()
+                .invokeConstructor(Object.class)
+                .ret();
+
+        if (tupleInfo.getFixedSize() == -1) {
+            generateVariableSizeHashCodeMethod(classDefinition, tupleInfo);
+            generateVariableSizeEqualsMethod(classDefinition, tupleInfo);
+        }
+        else {
+            generateFixedSizeHashCodeMethod(classDefinition, tupleInfo);
+            generateFixedSizeEqualsMethod(classDefinition, tupleInfo);
+        }
+        generateToStringMethod(classDefinition, toStringHelper(classDefinition.getType().getJavaClassName())
+                .add("tupleInfo", tupleInfo)
+                .toString());
+
+        Class<? extends TupleHashStrategy> hashStrategyClass = defineClass(classDefinition, TupleHashStrategy.class, createClassLoader());
+        try {
+            return hashStrategyClass.newInstance();
+        }
+        catch (ReflectiveOperationException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static void generateFixedSizeHashCodeMethod(ClassDefinition classDefinition, TupleInfo tupleInfo)
+    {
+        CompilerContext context = new CompilerContext(null);
+        Block body = classDefinition.declareMethod(context,
+                a(PUBLIC),
+                "hashCode",
+                type(int.class),
+                arg("slice", Slice.class),
+                arg("offset", int.class))
+                .getBody();
+
+        // hash the tuple one long at a time, followed by the remaining bytes
+        int size = tupleInfo.getFixedSize();
+        body.comment("int result = 0;")
+                .push(0);
+
+        int position = 0;
+        for (; position + SIZE_OF_LONG <= size; position += SIZE_OF_LONG) {
+            body.comment("result = 31 * result + Longs.hashCode(slice.getLong(offset + %s));", position)
+                    .push(31)
+                    .append(IMUL)
+                    .append(pushAddress(context, "slice", "offset", position))
+                    .invokeVirtual(Slice.class, "getLong", long.class, int.class)
+                    .invokeStatic(Longs.class, "hashCode", int.class, long.class)
+                    .append(IADD);
+        }
+        for (; position < size; position++) {
+            body.comment("result = 31 * result + slice.getByte(offset + %s);", position)
+                    .push(31)
+                    .append(IMUL)
+                    .append(pushAddress(context, "slice", "offset", position))
+                    .invokeVirtual(Slice.class, "getByte", byte.class, int.class)
+                    .append(IADD);
+        }
+
+        body.retInt();
+    }
+
+    private static void generateFixedSizeEqualsMethod(ClassDefinition classDefinition, TupleInfo tupleInfo)
+    {
+        CompilerContext context = new CompilerContext(null);
+        Block body = classDefinition.declareMethod(context,
+                a(PUBLIC),
+                "equals",
+                type(boolean.class),
+                arg("leftSlice", Slice.class),
+                arg("leftOffset", int.class),
+                arg("rightSlice", Slice.class),
+                arg("rightOffset", int.class))
+                .getBody();
+
+        LabelNode notEqual = new LabelNode("notEqual");
+
+        // compare the tuples one long at a time, followed by the remaining bytes
+        int size = tupleInfo.getFixedSize();
+        int position = 0;
+        for (; position + SIZE_OF_LONG <= size; position += SIZE_OF_LONG) {
+            body.comment("if (leftSlice.getLong(leftOffset + %s) != rightSlice.getLong(rightOffset + %<s)) return false;", position)
+                    .append(pushAddress(context, "leftSlice", "leftOffset", position))
+                    .invokeVirtual(Slice.class, "getLong", long.class, int.class)
+                    .append(pushAddress(context, "rightSlice", "rightOffset", position))
+                    .invokeVirtual(Slice.class, "getLong", long.class, int.class)
+                    .append(LCMP)
+                    .ifNotZeroGoto(notEqual);
+        }
+        for (; position < size; position++) {
+            body.comment("if (leftSlice.getByte(leftOffset + %s) != rightSlice.getByte(rightOffset + %<s)) return false;", position)
+                    .append(pushAddress(context, "leftSlice", "leftOffset", position))
+                    .invokeVirtual(Slice.class, "getByte", byte.class, int.class)
+                    .append(pushAddress(context, "rightSlice", "rightOffset", position))
+                    .invokeVirtual(Slice.class, "getByte", byte.class, int.class)
+                    .append(ISUB)
+                    .ifNotZeroGoto(notEqual);
+        }
+
+        body.push(true)
+                .retBoolean()
+                .visitLabel(notEqual)
+                .push(false)
+                .retBoolean();
+    }
+
+    private static void generateVariableSizeHashCodeMethod(ClassDefinition classDefinition, TupleInfo tupleInfo)
+    {
+        CompilerContext context = new CompilerContext(null);
+        classDefinition.declareMethod(context,
+                a(PUBLIC),
+                "hashCode",
+                type(int.class),
+                arg("slice", Slice.class),
+                arg("offset", int.class))
+                .getBody()
+                .comment("return slice.hashCode(offset, slice.getInt(offset + %s));", tupleInfo.getTupleSizeOffset())
+                .getVariable("slice")
+                .getVariable("offset")
+                .append(pushAddress(context, "slice", "offset", tupleInfo.getTupleSizeOffset()))
+                .invokeVirtual(Slice.class, "getInt", int.class, int.class)
+                .invokeVirtual(Slice.class, "hashCode", int.class, int.class, int.class)
+                .retInt();
+    }
+
+    private static void generateVariableSizeEqualsMethod(ClassDefinition classDefinition, TupleInfo tupleInfo)
+    {
+        CompilerContext context = new CompilerContext(null);
+        MethodDefinition equalsMethod = classDefinition.declareMethod(context,
+                a(PUBLIC),
+                "equals",
+                type(boolean.class),
+                arg("leftSlice", Slice.class),
+                arg("leftOffset", int.class),
+                arg("rightSlice", Slice.class),
+                arg("rightOffset", int.class));
+        context.declareVariable(int.class, "size");
+
+        LabelNode notEqual = new LabelNode("notEqual");
+        int tupleSizeOffset = tupleInfo.getTupleSizeOffset();
+        equalsMethod.getBody()
+                .comment("int size = leftSlice.getInt(leftOffset + %s);", tupleSizeOffset)
+                .append(pushAddress(context, "leftSlice", "leftOffset", tupleSizeOffset))
+                .invokeVirtual(Slice.class, "getInt", int.class, int.class)
+                .putVariable("size")
+                .comment("if (size != rightSlice.getInt(rightOffset + %s)) return false;", tupleSizeOffset)
+                .getVariable("size")
+                .append(pushAddress(context, "rightSlice", "rightOffset", tupleSizeOffset))
+                .invokeVirtual(Slice.class, "getInt", int.class, int.class)
+                .append(ISUB)
+                .ifNotZeroGoto(notEqual)
+                .comment("return leftSlice.equals(leftOffset, size, rightSlice, rightOffset, size);")
+                .getVariable("leftSlice")
+                .getVariable("leftOffset")
+                .getVariable("size")
+                .getVariable("rightSlice")
+                .getVariable("rightOffset")
+                .getVariable("size")
+                .invokeVirtual(Slice.class, "equals", boolean.class, int.class, int.class, Slice.class, int.class, int.class)
+                .retBoolean()
+                .visitLabel(notEqual)
+                .push(false)
+                .retBoolean();
+    }
+
+    @VisibleForTesting
+    static TupleComparator internalCompileComparator(TupleInfo tupleInfo, List<Integer> sortFields, List<Boolean> sortOrder)
+    {
+        ClassDefinition classDefinition = new ClassDefinition(new CompilerContext(null),
+                a(PUBLIC, FINAL),
+                typeFromPathName("TupleComparator_" + CLASS_ID.incrementAndGet()),
+                type(Object.class),
+                type(TupleComparator.class));
+
+        // the tuple info is only used to read variable length fields
+        FieldDefinition tupleInfoField = classDefinition.declareField(a(PRIVATE, FINAL), "tupleInfo", TupleInfo.class);
+        classDefinition.declareConstructor(new CompilerContext(null),
+                a(PUBLIC),
+                arg("tupleInfo", TupleInfo.class))
+                .getBody()
+                .comment("super();")
+                .pushThis()
+                .invokeConstructor(Object.class)
+                .comment("this.tupleInfo = tupleInfo;")
+                .pushThis()
+                .getVariable("tupleInfo")
+                .putField(tupleInfoField)
+                .ret();
+
+        CompilerContext context = new CompilerContext(null);
+        MethodDefinition compareMethod = classDefinition.declareMethod(context,
+                a(PUBLIC),
+                "compare",
+                type(int.class),
+                arg("leftSlice", Slice.class),
+                arg("leftOffset", int.class),
+                arg("rightSlice", Slice.class),
+                arg("rightOffset", int.class));
+        context.declareVariable(int.class, "comparison");
+
+        Block body = compareMethod.getBody();
+        for (int i = 0; i < sortFields.size(); i++) {
+            int field = sortFields.get(i);
+            Type type = tupleInfo.getTypes().get(field);
+
+            // todo add support for nulls first, nulls last
+            body.comment("comparison = compare field %s (%s);", field, type);
+            switch (type) {
+                case BOOLEAN:
+                    // booleans are stored as a zero or one byte
+                    body.append(pushAddress(context, "leftSlice", "leftOffset", tupleInfo.getFixedFieldOffset(field)))
+                            .invokeVirtual(Slice.class, "getByte", byte.class, int.class)
+                            .append(pushAddress(context, "rightSlice", "rightOffset", tupleInfo.getFixedFieldOffset(field)))
+                            .invokeVirtual(Slice.class, "getByte", byte.class, int.class)
+                            .invokeStatic(Integer.class, "compare", int.class, int.class, int.class);
+                    break;
+                case FIXED_INT_64:
+                    body.append(pushAddress(context, "leftSlice", "leftOffset", tupleInfo.getFixedFieldOffset(field)))
+                            .invokeVirtual(Slice.class, "getLong", long.class, int.class)
+                            .append(pushAddress(context, "rightSlice", "rightOffset", tupleInfo.getFixedFieldOffset(field)))
+                            .invokeVirtual(Slice.class, "getLong", long.class, int.class)
+                            .invokeStatic(Long.class, "compare", int.class, long.class, long.class);
+                    break;
+                case DOUBLE:
+                    body.append(pushAddress(context, "leftSlice", "leftOffset", tupleInfo.getFixedFieldOffset(field)))
+                            .invokeVirtual(Slice.class, "getDouble", double.class, int.class)
+                            .append(pushAddress(context, "rightSlice", "rightOffset", tupleInfo.getFixedFieldOffset(field)))
+                            .invokeVirtual(Slice.class, "getDouble", double.class, int.class)
+                            .invokeStatic(Double.class, "compare", int.class, double.class, double.class);
+                    break;
+                case VARIABLE_BINARY:
+                    body.pushThis()
+                            .getField(tupleInfoField)
+                            .getVariable("leftSlice")
+                            .getVariable("leftOffset")
+                            .push(field)
+                            .invokeVirtual(TupleInfo.class, "getSlice", Slice.class, Slice.class, int.class, int.class)
+                            .pushThis()
+                            .getField(tupleInfoField)
+                            .getVariable("rightSlice")
+                            .getVariable("rightOffset")
+                            .push(field)
+                            .invokeVirtual(TupleInfo.class, "getSlice", Slice.class, Slice.class, int.class, int.class)
+                            .invokeVirtual(Slice.class, "compareTo", int.class, Slice.class);
+                    break;
+                default:
+                    throw new AssertionError("unimplemented type: " + type);
+            }
+            appendReturnIfNotZero(body, sortOrder.get(i));
+        }
+        body.push(0)
+                .retInt();
+
+        generateToStringMethod(classDefinition, toStringHelper(classDefinition.getType().getJavaClassName())
+                .add("tupleInfo", tupleInfo)
+                .add("sortFields", sortFields)
+                .add("sortOrder", sortOrder)
+                .toString());
+
+        Class<? extends TupleComparator> comparatorClass = defineClass(classDefinition, TupleComparator.class, createClassLoader());
+        try {
+            return comparatorClass.getConstructor(TupleInfo.class).newInstance(tupleInfo);
+        }
+        catch (ReflectiveOperationException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    @VisibleForTesting
+    @SuppressWarnings("unchecked")
+    static Comparator<TupleReadable> internalCompileTupleReadableComparator(TupleInfo tupleInfo, List<Integer> sortFields, List<Boolean> sortOrder)
+    {
+        ClassDefinition classDefinition = new ClassDefinition(new CompilerContext(null),
+                a(PUBLIC, FINAL),
+                typeFromPathName("TupleReadableComparator_" + CLASS_ID.incrementAndGet()),
+                type(Object.class),
+                type(Comparator.class));
+
+        classDefinition.declareConstructor(new CompilerContext(null), a(PUBLIC))
+                .getBody()
+                .comment("super();")
+                .pushThis()
+                .invokeConstructor(Object.class)
+                .ret();
+
+        CompilerContext context = new CompilerContext(null);
+        MethodDefinition compareMethod = classDefinition.declareMethod(context,
+                a(PUBLIC),
+                "compare",
+                type(int.class),
+                arg("left", Object.class),
+                arg("right", Object.class));
+        context.declareVariable(int.class, "comparison");
+
+        Block body = compareMethod.getBody();
+        for (int i = 0; i < sortFields.size(); i++) {
+            int field = sortFields.get(i);
+            Type type = tupleInfo.getTypes().get(field);
+
+            Class<?> javaType;
+            String getter;
+            switch (type) {
+                case BOOLEAN:
+                    javaType = boolean.class;
+                    getter = "getBoolean";
+                    break;
+                case FIXED_INT_64:
+                    javaType = long.class;
+                    getter = "getLong";
+                    break;
+                case DOUBLE:
+                    javaType = double.class;
+                    getter = "getDouble";
+                    break;
+                case VARIABLE_BINARY:
+                    javaType = Slice.class;
+                    getter = "getSlice";
+                    break;
+                default:
+                    throw new AssertionError("unimplemented type: " + type);
+            }
+
+            body.comment("comparison = compare(((TupleReadable) left).%s(%s), ((TupleReadable) right).%<s(%<s));", getter, field)
+                    .getVariable("left")
+                    .checkCast(TupleReadable.class)
+                    .push(field)
+                    .invokeInterface(TupleReadable.class, getter, javaType, int.class)
+                    .getVariable("right")
+                    .checkCast(TupleReadable.class)
+                    .push(field)
+                    .invokeInterface(TupleReadable.class, getter, javaType, int.class);
+
+            if (javaType == boolean.class) {
+                body.invokeStatic(Boolean.class, "compare", int.class, boolean.class, boolean.class);
+            }
+            else if (javaType == long.class) {
+                body.invokeStatic(Long.class, "compare", int.class, long.class, long.class);
+            }
+            else if (javaType == double.class) {
+                body.invokeStatic(Double.class, "compare", int.class, double.class, double.class);
+            }
+            else {
+                body.invokeVirtual(Slice.class, "compareTo", int.class, Slice.class);
+            }
+            appendReturnIfNotZero(body, sortOrder.get(i));
+        }
+        body.push(0)
+                .retInt();
+
+        generateToStringMethod(classDefinition, toStringHelper(classDefinition.getType().getJavaClassName())
+                .add("tupleInfo", tupleInfo)
+                .add("sortFields", sortFields)
+                .add("sortOrder", sortOrder)
+                .toString());
+
+        Class<? extends Comparator> comparatorClass = defineClass(classDefinition, Comparator.class, createClassLoader());
+        try {
+            return (Comparator<TupleReadable>) comparatorClass.newInstance();
+        }
+        catch (ReflectiveOperationException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * Stores the int comparison on the top of the stack, and returns it if it is not zero.
+     */
+    private static void appendReturnIfNotZero(Block body, boolean ascending)
+    {
+        LabelNode equal = new LabelNode("equal");
+        body.putVariable("comparison")
+                .getVariable("comparison")
+                .ifZeroGoto(equal)
+                .getVariable("comparison");
+        if (!ascending) {
+            body.append(INEG);
+        }
+        body.retInt()
+                .visitLabel(equal);
+    }
+
+    private static Block pushAddress(CompilerContext context, String slice, String offset, int position)
+    {
+        return new Block(context)
+                .getVariable(slice)
+                .getVariable(offset)
+                .push(position)
+                .append(IADD);
+    }
+
+    private static void generateToStringMethod(ClassDefinition classDefinition, String value)
+    {
+        classDefinition.declareMethod(new CompilerContext(null), a(PUBLIC), "toString", type(String.class))
+                .getBody()
+                .push(value)
+                .retObject();
+    }
+
+    private static DynamicClassLoader createClassLoader()
+    {
+        return new DynamicClassLoader(TupleCompiler.class.getClassLoader());
+    }
+
+    private static final class ComparatorCacheKey
+    {
+        private final TupleInfo tupleInfo;
+        private final List<Integer> sortFields;
+        private final List<Boolean> sortOrder;
+
+        private ComparatorCacheKey(TupleInfo tupleInfo, List<Integer> sortFields, List<Boolean> sortOrder)
+        {
+            this.tupleInfo = checkNotNull(tupleInfo, "tupleInfo is null");
+            this.sortFields = ImmutableList.copyOf(checkNotNull(sortFields, "sortFields is null"));
+            this.sortOrder = ImmutableList.copyOf(checkNotNull(sortOrder, "sortOrder is null"));
+            checkArgument(this.sortFields.size() == this.sortOrder.size(), "sortFields size (%s) doesn't match sortOrder size (%s)", sortFields.size(), sortOrder.size());
+        }
+
+        private TupleInfo getTupleInfo()
+        {
+            return tupleInfo;
+        }
+
+        private List<Integer> getSortFields()
+        {
+            return sortFields;
+        }
+
+        private List<Boolean> getSortOrder()
+        {
+            return sortOrder;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hashCode(tupleInfo, sortFields, sortOrder);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            ComparatorCacheKey other = (ComparatorCacheKey) obj;
+            return Objects.equal(this.tupleInfo, other.tupleInfo) &&
+                    Objects.equal(this.sortFields, other.sortFields) &&
+                    Objects.equal(this.sortOrder, other.sortOrder);
+        }
+    }
+}
@@ -15,8 +15,10 @@ package com.facebook.presto.sql.planner;
 
 import com.facebook.presto.execution.DataSource;
 import com.facebook.presto.metadata.ShardManager;
+import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.Partition;
 import com.facebook.presto.spi.Split;
+import com.facebook.presto.spi.TableHandle;
 import com.facebook.presto.split.SplitManager;
 import com.facebook.presto.sql.analyzer.Session;
 import com.facebook.presto.sql.planner.plan.AggregationNode;
@@ -25,6 +27,7 @@ import com.facebook.presto.sql.planner.plan.FilterNode;
 import com.facebook.presto.sql.planner.plan.JoinNode;
 import com.facebook.presto.sql.planner.plan.LimitNode;
 import com.facebook.presto.sql.planner.plan.OutputNode;
+import com.facebook.presto.sql.planner.plan.PlanFragmentId;
 import com.facebook.presto.sql.planner.plan.PlanNode;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.sql.planner.plan.PlanVisitor;
@@ -41,18 +44,23 @@ import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterables.getOnlyElement;
 
 public class DistributedExecutionPlanner
 {
@@ -76,30 +84,147 @@ public class DistributedExecutionPlanner
     }
 
     public StageExecutionPlan plan(SubPlan root, Predicate<Partition> tableWriterPartitionPredicate)
+    {
+        return plan(root, tableWriterPartitionPredicate, ImmutableList.<DynamicPartitionFilter>of());
+    }
+
+    /**
+     * @param sinkFilters the filters of the parent stage that read the output of the sink of this fragment
+     */
+    private StageExecutionPlan plan(SubPlan root, Predicate<Partition> tableWriterPartitionPredicate, List<DynamicPartitionFilter> sinkFilters)
     {
         PlanFragment currentFragment = root.getFragment();
 
+        // the values of the join keys reported by the sub stages are used to prune the partitions of this fragment
+        ListMultimap<PlanNodeId, DynamicPartitionFilter> dynamicPartitionFilters = createDynamicPartitionFilters(root);
+
         // get splits for this fragment, this is lazy so split assignments aren't actually calculated here
-        Visitor visitor = new Visitor();
+        Visitor visitor = new Visitor(dynamicPartitionFilters, sinkFilters);
         NodeSplits nodeSplits = currentFragment.getRoot().accept(visitor, tableWriterPartitionPredicate);
 
         // create child stages
         ImmutableList.Builder<StageExecutionPlan> dependencies = ImmutableList.builder();
         for (SubPlan childPlan : root.getChildren()) {
-            dependencies.add(plan(childPlan, tableWriterPartitionPredicate));
+            List<DynamicPartitionFilter> childSinkFilters = new ArrayList<>();
+            for (DynamicPartitionFilter filter : dynamicPartitionFilters.values()) {
+                if (filter.getSourceFragmentId().equals(childPlan.getFragment().getId())) {
+                    childSinkFilters.add(filter);
+                }
+            }
+            dependencies.add(plan(childPlan, tableWriterPartitionPredicate, childSinkFilters));
         }
 
         return new StageExecutionPlan(currentFragment,
                 nodeSplits.dataSource,
                 dependencies.build(),
-                visitor.getOutputReceivers());
+                visitor.getOutputReceivers(),
+                ImmutableList.copyOf(dynamicPartitionFilters.values()));
+    }
+
+    private static ListMultimap<PlanNodeId, DynamicPartitionFilter> createDynamicPartitionFilters(SubPlan root)
+    {
+        ImmutableListMultimap.Builder<PlanNodeId, DynamicPartitionFilter> filters = ImmutableListMultimap.builder();
+
+        Map<PlanFragmentId, SinkNode> sinks = new HashMap<>();
+        for (SubPlan childPlan : root.getChildren()) {
+            PlanNode childRoot = childPlan.getFragment().getRoot();
+            if (childRoot instanceof SinkNode && !((SinkNode) childRoot).getDistinctValueSymbols().isEmpty()) {
+                sinks.put(childPlan.getFragment().getId(), (SinkNode) childRoot);
+            }
+        }
+        if (sinks.isEmpty()) {
+            return filters.build();
+        }
+
+        List<JoinNode> joins = new ArrayList<>();
+        Map<Symbol, TableScanNode> scans = new HashMap<>();
+        collectJoinsAndScans(root.getFragment().getRoot(), joins, scans);
+
+        for (JoinNode join : joins) {
+            if (join.getType() != JoinNode.Type.INNER || !(join.getRight() instanceof ExchangeNode)) {
+                continue;
+            }
+            PlanFragmentId sourceFragmentId = getOnlyElement(((ExchangeNode) join.getRight()).getSourceFragmentIds());
+            SinkNode sink = sinks.get(sourceFragmentId);
+            if (sink == null) {
+                continue;
+            }
+
+            // map the probe side column of each join key to the build side key, grouped by the table scan producing the column
+            Map<TableScanNode, Map<ColumnHandle, Integer>> columns = new HashMap<>();
+            for (JoinNode.EquiJoinClause clause : join.getCriteria()) {
+                int index = sink.getDistinctValueSymbols().indexOf(clause.getRight());
+                TableScanNode scan = scans.get(clause.getLeft());
+                if (index < 0 || scan == null) {
+                    continue;
+                }
+                if (!columns.containsKey(scan)) {
+                    columns.put(scan, new HashMap<ColumnHandle, Integer>());
+                }
+                columns.get(scan).put(scan.getAssignments().get(clause.getLeft()), index);
+            }
+
+            for (Map.Entry<TableScanNode, Map<ColumnHandle, Integer>> entry : columns.entrySet()) {
+                filters.put(entry.getKey().getId(), new DynamicPartitionFilter(sourceFragmentId, sink.getId(), entry.getValue()));
+            }
+        }
+        return filters.build();
+    }
+
+    private static void collectJoinsAndScans(PlanNode node, List<JoinNode> joins, Map<Symbol, TableScanNode> scans)
+    {
+        if (node instanceof JoinNode) {
+            joins.add((JoinNode) node);
+        }
+        else if (node instanceof TableScanNode) {
+            for (Symbol symbol : ((TableScanNode) node).getAssignments().keySet()) {
+                scans.put(symbol, (TableScanNode) node);
+            }
+        }
+        for (PlanNode source : node.getSources()) {
+            collectJoinsAndScans(source, joins, scans);
+        }
+    }
+
+    /**
+     * Gets the partition versions of the table read by a table writer, which are used to import
+     * the source partitions that changed since they were imported.
+     */
+    private Map<String, String> getSourcePartitionVersions(PlanNode source)
+    {
+        List<TableScanNode> scans = new ArrayList<>();
+        collectScans(source, scans);
+        if (scans.size() != 1) {
+            return ImmutableMap.of();
+        }
+
+        TableHandle table = getOnlyElement(scans).getTable();
+        return splitManager.getPartitionVersions(table, splitManager.getPartitions(table, Optional.<Map<ColumnHandle, Object>>absent()));
+    }
+
+    private static void collectScans(PlanNode node, List<TableScanNode> scans)
+    {
+        if (node instanceof TableScanNode) {
+            scans.add((TableScanNode) node);
+        }
+        for (PlanNode source : node.getSources()) {
+            collectScans(source, scans);
+        }
     }
 
     private final class Visitor
             extends PlanVisitor<Predicate<Partition>, NodeSplits>
     {
+        private final ListMultimap<PlanNodeId, DynamicPartitionFilter> dynamicPartitionFilters;
+        private final List<DynamicPartitionFilter> sinkFilters;
         private final Map<PlanNodeId, OutputReceiver> outputReceivers = new HashMap<>();
 
+        private Visitor(ListMultimap<PlanNodeId, DynamicPartitionFilter> dynamicPartitionFilters, List<DynamicPartitionFilter> sinkFilters)
+        {
+            this.dynamicPartitionFilters = dynamicPartitionFilters;
+            this.sinkFilters = ImmutableList.copyOf(sinkFilters);
+        }
+
         public Map<PlanNodeId, OutputReceiver> getOutputReceivers()
         {
             return ImmutableMap.copyOf(outputReceivers);
@@ -108,6 +233,20 @@ public class DistributedExecutionPlanner
         @Override
         public NodeSplits visitTableScan(TableScanNode node, Predicate<Partition> tableWriterPartitionPredicate)
         {
+            List<DynamicPartitionFilter> filters = dynamicPartitionFilters.get(node.getId());
+            if (!filters.isEmpty()) {
+                // partitions are filtered when the splits are enumerated, after the filter values have been collected
+                DataSource dataSource = splitManager.getSplits(session,
+                        node.getTable(),
+                        node.getPartitionPredicate(),
+                        node.getUpstreamPredicateHint(),
+                        tableWriterPartitionPredicate,
+                        Predicates.<Partition>and(filters),
+                        node.getAssignments());
+
+                return new NodeSplits(node.getId(), dataSource);
+            }
+
             // get dataSource for table
             DataSource dataSource = splitManager.getSplits(session,
                     node.getTable(),
@@ -226,13 +365,23 @@ public class DistributedExecutionPlanner
         @Override
         public NodeSplits visitSink(SinkNode node, Predicate<Partition> tableWriterPartitionPredicate)
         {
+            if (!sinkFilters.isEmpty()) {
+                // the filters read the values from the outputs in the task infos, so the output is only acknowledged here
+                outputReceivers.put(node.getId(), new OutputReceiver()
+                {
+                    @Override
+                    public void updateOutput(Object value)
+                    {
+                    }
+                });
+            }
             return node.getSource().accept(this, tableWriterPartitionPredicate);
         }
 
         @Override
         public NodeSplits visitTableWriter(final TableWriterNode node, Predicate<Partition> tableWriterPartitionPredicate)
         {
-            TableWriter tableWriter = new TableWriter(node, shardManager);
+            TableWriter tableWriter = new TableWriter(node, shardManager, getSourcePartitionVersions(node.getSource()));
 
             // get source splits
             NodeSplits nodeSplits = node.getSource().accept(this, tableWriter.getPartitionPredicate());
@@ -43,14 +43,19 @@ import com.facebook.presto.sql.tree.QualifiedNameReference;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static com.facebook.presto.sql.planner.plan.AggregationNode.Step.FINAL;
 import static com.facebook.presto.sql.planner.plan.AggregationNode.Step.PARTIAL;
 import static com.facebook.presto.sql.planner.plan.AggregationNode.Step.SINGLE;
+import static com.facebook.presto.sql.planner.plan.JoinNode.EquiJoinClause.leftGetter;
+import static com.facebook.presto.sql.planner.plan.JoinNode.EquiJoinClause.rightGetter;
 
 /**
  * Splits a logical plan into fragments that can be shipped and executed on distributed nodes
@@ -59,11 +64,31 @@ public class DistributedLogicalPlanner
 {
     private final Metadata metadata;
     private final PlanNodeIdAllocator idAllocator;
+    private final boolean distributedJoinsEnabled;
+    private final boolean dynamicPartitionPruningEnabled;
 
     public DistributedLogicalPlanner(Metadata metadata, PlanNodeIdAllocator idAllocator)
+    {
+        this(metadata, idAllocator, false);
+    }
+
+    public DistributedLogicalPlanner(Metadata metadata, PlanNodeIdAllocator idAllocator, boolean distributedJoinsEnabled)
+    {
+        this(metadata, idAllocator, distributedJoinsEnabled, false);
+    }
+
+    /**
+     * @param distributedJoinsEnabled if true, joins between two partitioned sources repartition both sides
+     * on the join keys instead of replicating the right side to every task
+     * @param dynamicPartitionPruningEnabled if true, the right side of a replicated inner join reports the
+     * distinct values of the join keys, so the partitions of the left side table can be pruned
+     */
+    public DistributedLogicalPlanner(Metadata metadata, PlanNodeIdAllocator idAllocator, boolean distributedJoinsEnabled, boolean dynamicPartitionPruningEnabled)
     {
         this.metadata = metadata;
         this.idAllocator = idAllocator;
+        this.distributedJoinsEnabled = distributedJoinsEnabled;
+        this.dynamicPartitionPruningEnabled = dynamicPartitionPruningEnabled;
     }
 
     public SubPlan createSubplans(Plan plan, boolean createSingleNodePlan)
@@ -316,11 +341,15 @@ public class DistributedLogicalPlanner
             SubPlanBuilder left = node.getLeft().accept(this, context);
             SubPlanBuilder right = node.getRight().accept(this, context);
 
+            if (distributedJoinsEnabled && !node.getCriteria().isEmpty() && left.isPartitioned() && right.isPartitioned()) {
+                return addPartitionedJoin(node, left, right);
+            }
+
             if (left.isPartitioned() || right.isPartitioned()) {
                 switch (node.getType()) {
                     case INNER:
                     case LEFT:
-                        right.setRoot(new SinkNode(idAllocator.getNextId(), right.getRoot(), right.getRoot().getOutputSymbols()));
+                        right.setRoot(new SinkNode(idAllocator.getNextId(), right.getRoot(), right.getRoot().getOutputSymbols(), getDistinctValueSymbols(node, left)));
                         left.setRoot(new JoinNode(node.getId(),
                                 node.getType(),
                                 left.getRoot(),
@@ -351,6 +380,66 @@ public class DistributedLogicalPlanner
             }
         }
 
+        /**
+         * Returns the right side join keys that are compared to a column of a table scanned by the left side fragment.
+         */
+        private List<Symbol> getDistinctValueSymbols(JoinNode node, SubPlanBuilder left)
+        {
+            if (!dynamicPartitionPruningEnabled || node.getType() != JoinNode.Type.INNER || !left.isPartitioned()) {
+                return ImmutableList.of();
+            }
+
+            Set<Symbol> scannedSymbols = new HashSet<>();
+            addScannedSymbols(left.getRoot(), scannedSymbols);
+
+            ImmutableList.Builder<Symbol> symbols = ImmutableList.builder();
+            for (JoinNode.EquiJoinClause clause : node.getCriteria()) {
+                if (scannedSymbols.contains(clause.getLeft())) {
+                    symbols.add(clause.getRight());
+                }
+            }
+            return symbols.build();
+        }
+
+        private void addScannedSymbols(PlanNode node, Set<Symbol> scannedSymbols)
+        {
+            if (node instanceof TableScanNode) {
+                scannedSymbols.addAll(((TableScanNode) node).getAssignments().keySet());
+            }
+            for (PlanNode source : node.getSources()) {
+                addScannedSymbols(source, scannedSymbols);
+            }
+        }
+
+        private SubPlanBuilder addPartitionedJoin(JoinNode node, SubPlanBuilder left, SubPlanBuilder right)
+        {
+            switch (node.getType()) {
+                case INNER:
+                case LEFT:
+                case RIGHT:
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Unsupported join type: " + node.getType());
+            }
+
+            // repartition both sides on the join keys, so matching rows of both sides meet in the same task
+            left.setRoot(new SinkNode(idAllocator.getNextId(), left.getRoot(), left.getRoot().getOutputSymbols()))
+                    .setHashOutputPartitioning(Lists.transform(node.getCriteria(), leftGetter()));
+            right.setRoot(new SinkNode(idAllocator.getNextId(), right.getRoot(), right.getRoot().getOutputSymbols()))
+                    .setHashOutputPartitioning(Lists.transform(node.getCriteria(), rightGetter()));
+
+            JoinNode join = new JoinNode(node.getId(),
+                    node.getType(),
+                    new ExchangeNode(idAllocator.getNextId(), left.getId(), left.getRoot().getOutputSymbols()),
+                    new ExchangeNode(idAllocator.getNextId(), right.getId(), right.getRoot().getOutputSymbols()),
+                    node.getCriteria());
+
+            return newSubPlan(join)
+                    .setFixedDistribution()
+                    .addChild(left.build())
+                    .addChild(right.build());
+        }
+
         @Override
         public SubPlanBuilder visitSemiJoin(SemiJoinNode node, Void context)
         {
@@ -0,0 +1,240 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner;
+
+import com.facebook.presto.execution.StageInfo;
+import com.facebook.presto.execution.StageState;
+import com.facebook.presto.execution.TaskInfo;
+import com.facebook.presto.execution.TaskState;
+import com.facebook.presto.operator.DistinctValuesResult;
+import com.facebook.presto.operator.TaskStats;
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.Partition;
+import com.facebook.presto.sql.planner.plan.PlanFragmentId;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Prunes the partitions of the probe side of a join using the distinct join key values
+ * of the build side.  The build side fragment reports the values of the keys from its
+ * sink (see {@link com.facebook.presto.sql.planner.plan.SinkNode#getDistinctValueSymbols()})
+ * as outputs of its tasks, and the stage scheduling the probe side waits for the values
+ * before enumerating splits.
+ * <p/>
+ * Until the values are known, or if they can not be collected, all partitions are accepted.
+ */
+@ThreadSafe
+public class DynamicPartitionFilter
+        implements Predicate<Partition>
+{
+    private final PlanFragmentId sourceFragmentId;
+    private final PlanNodeId sinkId;
+    private final Map<ColumnHandle, Integer> columns;
+    private final int channelCount;
+
+    private final AtomicReference<Map<ColumnHandle, Set<Object>>> values = new AtomicReference<>();
+
+    /**
+     * @param columns the probe side columns, mapped to the index of the build side key in the distinct value symbols of the sink
+     */
+    public DynamicPartitionFilter(PlanFragmentId sourceFragmentId, PlanNodeId sinkId, Map<ColumnHandle, Integer> columns)
+    {
+        this.sourceFragmentId = checkNotNull(sourceFragmentId, "sourceFragmentId is null");
+        this.sinkId = checkNotNull(sinkId, "sinkId is null");
+        this.columns = ImmutableMap.copyOf(checkNotNull(columns, "columns is null"));
+        checkArgument(!columns.isEmpty(), "columns is empty");
+        this.channelCount = Collections.max(columns.values()) + 1;
+    }
+
+    public PlanFragmentId getSourceFragmentId()
+    {
+        return sourceFragmentId;
+    }
+
+    public PlanNodeId getSinkId()
+    {
+        return sinkId;
+    }
+
+    public Map<ColumnHandle, Integer> getColumns()
+    {
+        return columns;
+    }
+
+    /**
+     * Checks if the tasks of the source stage have reported all values.  Returns true if
+     * there is no reason to wait any longer, either because all values have been
+     * received or because the source stage failed.
+     * <p/>
+     * The values are read from the outputs in the same task infos as the task states, so
+     * they are complete whenever the task infos show that the input of the tasks is finished.
+     */
+    public boolean update(StageInfo sourceStage)
+    {
+        checkNotNull(sourceStage, "sourceStage is null");
+
+        StageState state = sourceStage.getState();
+        if (state == StageState.PLANNED || state == StageState.SCHEDULING) {
+            // more tasks may be created
+            return false;
+        }
+        if (state.isDone() && state != StageState.FINISHED) {
+            return true;
+        }
+
+        PlanNodeId partitionedSource = sourceStage.getPlan().getPartitionedSource();
+        for (TaskInfo taskInfo : sourceStage.getTasks()) {
+            TaskState taskState = taskInfo.getState();
+            if (taskState.isDone() && taskState != TaskState.FINISHED) {
+                return true;
+            }
+            if (taskState != TaskState.FINISHED && !isInputFinished(taskInfo, partitionedSource)) {
+                return false;
+            }
+        }
+
+        // the union of the values of all tasks, a null entry means too many values
+        List<Set<Object>> taskValues = new ArrayList<>(channelCount);
+        for (int i = 0; i < channelCount; i++) {
+            taskValues.add(new HashSet<>());
+        }
+        for (TaskInfo taskInfo : sourceStage.getTasks()) {
+            Set<?> results = taskInfo.getOutputs().get(sinkId);
+            if (results != null) {
+                for (Object result : results) {
+                    addValues(taskValues, toDistinctValuesResult(result));
+                }
+            }
+        }
+
+        ImmutableMap.Builder<ColumnHandle, Set<Object>> builder = ImmutableMap.builder();
+        for (Map.Entry<ColumnHandle, Integer> entry : columns.entrySet()) {
+            Set<Object> columnValues = taskValues.get(entry.getValue());
+            if (columnValues != null) {
+                builder.put(entry.getKey(), ImmutableSet.copyOf(columnValues));
+            }
+        }
+        values.set(builder.build());
+        return true;
+    }
+
+    /**
+     * Returns the collected values of each column, or null if the values are not known.
+     */
+    @Nullable
+    public Map<ColumnHandle, Set<Object>> getValues()
+    {
+        return values.get();
+    }
+
+    @Override
+    public boolean apply(Partition partition)
+    {
+        Map<ColumnHandle, Set<Object>> values = this.values.get();
+        if (values == null) {
+            return true;
+        }
+
+        Map<ColumnHandle, Object> keys = partition.getKeys();
+        for (Map.Entry<ColumnHandle, Set<Object>> entry : values.entrySet()) {
+            if (!keys.containsKey(entry.getKey())) {
+                // not a partition key
+                continue;
+            }
+            Object key = keys.get(entry.getKey());
+            if (key == null || !entry.getValue().contains(normalize(key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return Objects.toStringHelper(this)
+                .add("sourceFragmentId", sourceFragmentId)
+                .add("sinkId", sinkId)
+                .add("columns", columns)
+                .toString();
+    }
+
+    private static boolean isInputFinished(TaskInfo taskInfo, PlanNodeId partitionedSource)
+    {
+        if (partitionedSource != null && !taskInfo.getNoMoreSplits().contains(partitionedSource)) {
+            return false;
+        }
+        // the values are reported when the drivers finish
+        TaskStats stats = taskInfo.getStats();
+        return stats.getTotalDrivers() > 0 && stats.getQueuedDrivers() == 0 && stats.getRunningDrivers() == 0;
+    }
+
+    private static void addValues(List<Set<Object>> taskValues, DistinctValuesResult result)
+    {
+        for (int i = 0; i < taskValues.size(); i++) {
+            Set<Object> channelValues = result.getValues(i);
+            if (channelValues == null) {
+                // too many values to be useful
+                taskValues.set(i, null);
+            }
+            else if (taskValues.get(i) != null) {
+                for (Object value : channelValues) {
+                    taskValues.get(i).add(normalize(value));
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static DistinctValuesResult toDistinctValuesResult(Object result)
+    {
+        if (result instanceof DistinctValuesResult) {
+            return (DistinctValuesResult) result;
+        }
+        // results from remote tasks are decoded as maps
+        return DistinctValuesResult.forMap((Map<String, Object>) result);
+    }
+
+    /**
+     * Values reported by the workers lose their exact type when they are encoded, so
+     * all integral numbers are compared as longs and floating point numbers as doubles.
+     */
+    private static Object normalize(Object value)
+    {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float) {
+            return ((Number) value).doubleValue();
+        }
+        return value;
+    }
+}
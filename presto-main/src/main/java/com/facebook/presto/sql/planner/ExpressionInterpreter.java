@@ -69,7 +69,6 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
-import org.joni.Regex;
 
 import javax.annotation.Nullable;
 import java.lang.invoke.MethodHandle;
@@ -94,7 +93,7 @@ public class ExpressionInterpreter
     private final Visitor visitor;
 
     // identity-based cache for LIKE expressions with constant pattern and escape char
-    private final IdentityHashMap<LikePredicate, Regex> LIKE_PATTERN_CACHE = new IdentityHashMap<>();
+    private final IdentityHashMap<LikePredicate, LikeMatcher> LIKE_PATTERN_CACHE = new IdentityHashMap<>();
     private final IdentityHashMap<InListExpression, Set<Object>> IN_LIST_CACHE = new IdentityHashMap<>();
 
     public static ExpressionInterpreter expressionInterpreter(Expression expression, Metadata metadata, Session session)
@@ -848,7 +847,7 @@ public class ExpressionInterpreter
                     node.getPattern() instanceof StringLiteral &&
                     (node.getEscape() instanceof StringLiteral || node.getEscape() == null)) {
                 // fast path when we know the pattern and escape are constant
-                return LikeUtils.regexMatches(getConstantPattern(node), (Slice) value);
+                return getConstantPattern(node).matches((Slice) value);
             }
 
             Object pattern = process(node.getPattern(), context);
@@ -869,9 +868,9 @@ public class ExpressionInterpreter
             if (value instanceof Slice &&
                     pattern instanceof Slice &&
                     (escape == null || escape instanceof Slice)) {
-                Regex regex = LikeUtils.likeToPattern((Slice) pattern, (Slice) escape);
+                LikeMatcher matcher = LikeUtils.likeToMatcher((Slice) pattern, (Slice) escape);
 
-                return LikeUtils.regexMatches(regex, (Slice) value);
+                return matcher.matches((Slice) value);
             }
 
             // if pattern is a constant without % or _ replace with a comparison
@@ -890,15 +889,15 @@ public class ExpressionInterpreter
             return new LikePredicate(toExpression(value), toExpression(pattern), optimizedEscape);
         }
 
-        private Regex getConstantPattern(LikePredicate node)
+        private LikeMatcher getConstantPattern(LikePredicate node)
         {
-            Regex result = LIKE_PATTERN_CACHE.get(node);
+            LikeMatcher result = LIKE_PATTERN_CACHE.get(node);
 
             if (result == null) {
                 StringLiteral pattern = (StringLiteral) node.getPattern();
                 StringLiteral escape = (StringLiteral) node.getEscape();
 
-                result = LikeUtils.likeToPattern(pattern.getSlice(), escape == null ? null : escape.getSlice());
+                result = LikeUtils.likeToMatcher(pattern.getSlice(), escape == null ? null : escape.getSlice());
 
                 LIKE_PATTERN_CACHE.put(node, result);
             }
@@ -0,0 +1,209 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner;
+
+import com.google.common.base.Objects;
+import com.google.common.primitives.Bytes;
+import io.airlift.slice.Slice;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.facebook.presto.util.Utf8Slices.equalsAt;
+import static com.facebook.presto.util.Utf8Slices.indexOf;
+import static com.facebook.presto.util.Utf8Slices.isContinuationByte;
+import static com.facebook.presto.util.Utf8Slices.lengthOfCodePoint;
+import static com.google.common.base.Charsets.UTF_8;
+
+/**
+ * Matches a LIKE pattern directly against the UTF-8 bytes of a value.
+ * <p/>
+ * The pattern is split on {@code %} into segments of literal bytes and {@code _} wildcards, which
+ * match a single code point.  The first segment must match at the start of the value, the last
+ * segment at the end, and the segments in between are searched for from left to right.  Searching
+ * for the leftmost match of each segment never rejects a value that matches, because a match further
+ * left leaves more room for the segments that follow.  Prefix, suffix and contains patterns are
+ * therefore a single comparison or substring search.
+ */
+public final class LikeMatcher
+{
+    private static final int ANY_CHARACTER = -1;
+
+    private final String pattern;
+
+    // each segment is a list of byte values, or ANY_CHARACTER for a single character wildcard
+    private final int[][] segments;
+
+    // the literal bytes at the start of each segment, used to search for the segment
+    private final byte[][] segmentPrefixes;
+
+    // the byte length of each segment, or -1 if the segment contains a wildcard
+    private final int[] segmentLengths;
+
+    public LikeMatcher(String pattern, char escapeChar, boolean shouldEscape)
+    {
+        this.pattern = pattern;
+
+        List<int[]> segments = new ArrayList<>();
+        IntArrayList segment = new IntArrayList();
+        StringBuilder literal = new StringBuilder();
+        boolean escaped = false;
+        for (char currentChar : pattern.toCharArray()) {
+            if (shouldEscape && !escaped && currentChar == escapeChar) {
+                escaped = true;
+                continue;
+            }
+
+            if (!escaped && currentChar == '%') {
+                appendLiteral(segment, literal);
+                // consecutive wildcards do not need a segment in between
+                if (!segment.isEmpty() || segments.isEmpty()) {
+                    segments.add(segment.toIntArray());
+                }
+                segment = new IntArrayList();
+            }
+            else if (!escaped && currentChar == '_') {
+                appendLiteral(segment, literal);
+                segment.add(ANY_CHARACTER);
+            }
+            else {
+                literal.append(currentChar);
+            }
+            escaped = false;
+        }
+        appendLiteral(segment, literal);
+        segments.add(segment.toIntArray());
+
+        this.segments = segments.toArray(new int[segments.size()][]);
+        this.segmentPrefixes = new byte[this.segments.length][];
+        this.segmentLengths = new int[this.segments.length];
+        for (int i = 0; i < this.segments.length; i++) {
+            List<Byte> prefix = new ArrayList<>();
+            int length = 0;
+            for (int value : this.segments[i]) {
+                if (value == ANY_CHARACTER) {
+                    length = -1;
+                    break;
+                }
+                prefix.add((byte) value);
+                length++;
+            }
+            segmentPrefixes[i] = Bytes.toArray(prefix);
+            segmentLengths[i] = length;
+        }
+    }
+
+    private static void appendLiteral(IntArrayList segment, StringBuilder literal)
+    {
+        for (byte value : literal.toString().getBytes(UTF_8)) {
+            segment.add(value & 0xFF);
+        }
+        literal.setLength(0);
+    }
+
+    public boolean matches(Slice value)
+    {
+        int length = value.length();
+
+        // without a % the only segment must match the whole value
+        if (segments.length == 1) {
+            return matchSegment(value, 0, length, 0) == length;
+        }
+
+        int position = matchSegment(value, 0, length, 0);
+        if (position < 0) {
+            return false;
+        }
+
+        int last = segments.length - 1;
+        for (int segment = 1; segment < last; segment++) {
+            position = findSegment(value, position, length, segment);
+            if (position < 0) {
+                return false;
+            }
+        }
+
+        // the last segment must end at the end of the value
+        if (segmentLengths[last] >= 0) {
+            int start = length - segmentLengths[last];
+            return start >= position && equalsAt(value, start, segmentPrefixes[last]);
+        }
+        for (int start = position; start <= length; start++) {
+            if ((start == length || !isContinuationByte(value.getByte(start))) && matchSegment(value, start, length, last) == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the end of the leftmost match of the segment at or after {@code from}, or -1 if there is none.
+     */
+    private int findSegment(Slice value, int from, int end, int segment)
+    {
+        byte[] prefix = segmentPrefixes[segment];
+        if (prefix.length > 0) {
+            for (int start = indexOf(value, from, end, prefix); start >= 0; start = indexOf(value, start + 1, end, prefix)) {
+                int matchEnd = matchSegment(value, start, end, segment);
+                if (matchEnd >= 0) {
+                    return matchEnd;
+                }
+            }
+            return -1;
+        }
+
+        // the segment starts with a wildcard, so try every character
+        for (int start = from; start < end; start++) {
+            if (!isContinuationByte(value.getByte(start))) {
+                int matchEnd = matchSegment(value, start, end, segment);
+                if (matchEnd >= 0) {
+                    return matchEnd;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the end of the match of the segment starting at {@code start}, or -1 if the segment does not match.
+     */
+    private int matchSegment(Slice value, int start, int end, int segment)
+    {
+        int position = start;
+        for (int expected : segments[segment]) {
+            if (position >= end) {
+                return -1;
+            }
+            if (expected == ANY_CHARACTER) {
+                position = Math.min(position + lengthOfCodePoint(value.getByte(position)), end);
+            }
+            else if ((value.getByte(position) & 0xFF) == expected) {
+                position++;
+            }
+            else {
+                return -1;
+            }
+        }
+        return position;
+    }
+
+    @Override
+    public String toString()
+    {
+        return Objects.toStringHelper(this)
+                .add("pattern", pattern)
+                .toString();
+    }
+}
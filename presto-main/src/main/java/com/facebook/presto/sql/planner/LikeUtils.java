@@ -52,8 +52,8 @@ public final class LikeUtils
     public static boolean dynamicLike(LikePatternCache callSiteCache, Slice value, Slice pattern, Slice escape)
     {
         LikeCacheKey key = new LikeCacheKey(pattern, escape);
-        Regex regex = callSiteCache.get(key);
-        return regexMatches(regex, value);
+        LikeMatcher matcher = callSiteCache.get(key);
+        return matcher.matches(value);
     }
 
     public static boolean regexMatches(Regex regex, Slice value)
@@ -97,6 +97,27 @@ public final class LikeUtils
         return !high;
     }
 
+    public static LikeMatcher likeToMatcher(Slice pattern, @Nullable Slice escapeSlice)
+    {
+        String patternString = pattern.toString(UTF_8);
+        if (escapeSlice != null) {
+            return likeToMatcher(patternString, getEscapeChar(escapeSlice));
+        }
+        else {
+            return likeToMatcher(patternString);
+        }
+    }
+
+    public static LikeMatcher likeToMatcher(String patternString, char escapeChar)
+    {
+        return new LikeMatcher(patternString, escapeChar, true);
+    }
+
+    public static LikeMatcher likeToMatcher(String patternString)
+    {
+        return new LikeMatcher(patternString, 'x', false);
+    }
+
     public static Regex likeToPattern(Slice pattern, @Nullable Slice escapeSlice)
     {
         String patternString = pattern.toString(UTF_8);
@@ -171,7 +192,7 @@ public final class LikeUtils
     }
 
     public static class LikePatternCache
-            extends ThreadLocalCache<LikeCacheKey, Regex>
+            extends ThreadLocalCache<LikeCacheKey, LikeMatcher>
     {
         public LikePatternCache(int maxSizePerThread)
         {
@@ -180,9 +201,9 @@ public final class LikeUtils
 
         @Nonnull
         @Override
-        protected Regex load(LikeCacheKey key)
+        protected LikeMatcher load(LikeCacheKey key)
         {
-            return likeToPattern(key.pattern, key.escape);
+            return likeToMatcher(key.pattern, key.escape);
         }
     }
 
@@ -13,11 +13,13 @@
  */
 package com.facebook.presto.sql.planner;
 
+import com.facebook.presto.execution.TaskManagerConfig;
 import com.facebook.presto.metadata.FunctionHandle;
 import com.facebook.presto.metadata.LocalStorageManager;
 import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.operator.AggregationFunctionDefinition;
 import com.facebook.presto.operator.AggregationOperator.AggregationOperatorFactory;
+import com.facebook.presto.operator.CollectDistinctValuesOperator.CollectDistinctValuesOperatorFactory;
 import com.facebook.presto.operator.DriverFactory;
 import com.facebook.presto.operator.ExchangeClient;
 import com.facebook.presto.operator.ExchangeOperator.ExchangeOperatorFactory;
@@ -77,9 +79,7 @@ import com.facebook.presto.sql.tree.FunctionCall;
 import com.facebook.presto.sql.tree.Input;
 import com.facebook.presto.sql.tree.QualifiedNameReference;
 import com.facebook.presto.sql.tree.SortItem;
-import com.facebook.presto.tuple.FieldOrderedTupleComparator;
 import com.facebook.presto.tuple.TupleInfo;
-import com.facebook.presto.tuple.TupleReadable;
 import com.facebook.presto.util.IterableTransformer;
 import com.facebook.presto.util.MoreFunctions;
 import com.google.common.base.Function;
@@ -121,6 +121,8 @@ public class LocalExecutionPlanner
 {
     private static final Logger log = Logger.get(LocalExecutionPlanner.class);
 
+    private static final int MAX_DISTINCT_VALUES = 10_000;
+
     private final NodeInfo nodeInfo;
     private final Metadata metadata;
 
@@ -128,6 +130,7 @@ public class LocalExecutionPlanner
     private final LocalStorageManager storageManager;
     private final Supplier<ExchangeClient> exchangeClientSupplier;
     private final ExpressionCompiler compiler;
+    private final int hashBuildConcurrency;
 
     @Inject
     public LocalExecutionPlanner(NodeInfo nodeInfo,
@@ -135,7 +138,8 @@ public class LocalExecutionPlanner
             DataStreamProvider dataStreamProvider,
             LocalStorageManager storageManager,
             Supplier<ExchangeClient> exchangeClientSupplier,
-            ExpressionCompiler compiler)
+            ExpressionCompiler compiler,
+            TaskManagerConfig taskManagerConfig)
     {
         this.nodeInfo = checkNotNull(nodeInfo, "nodeInfo is null");
         this.dataStreamProvider = dataStreamProvider;
@@ -143,6 +147,9 @@ public class LocalExecutionPlanner
         this.metadata = checkNotNull(metadata, "metadata is null");
         this.storageManager = checkNotNull(storageManager, "storageManager is null");
         this.compiler = checkNotNull(compiler, "compiler is null");
+        checkNotNull(taskManagerConfig, "taskManagerConfig is null");
+        // the hash table is partitioned by the low bits of the key hash
+        this.hashBuildConcurrency = Integer.highestOneBit(taskManagerConfig.getHashBuildConcurrency());
     }
 
     public LocalExecutionPlan plan(Session session,
@@ -381,14 +388,14 @@ public class LocalExecutionPlanner
 
             int orderByChannel = Iterables.getOnlyElement(getChannelSetForSymbols(orderBySymbols, source.getLayout()));
 
-            List<Integer> sortFields = new ArrayList<>();
-            List<SortItem.Ordering> sortOrders = new ArrayList<>();
-            for (Symbol symbol : orderBySymbols) {
-                sortFields.add(getFirst(source.getLayout().get(symbol)).getField());
-                sortOrders.add(node.getOrderings().get(symbol));
-            }
+            int[] sortFields = new int[orderBySymbols.size()];
+            boolean[] sortOrder = new boolean[orderBySymbols.size()];
+            for (int i = 0; i < sortFields.length; i++) {
+                Symbol symbol = orderBySymbols.get(i);
 
-            Ordering<TupleReadable> ordering = Ordering.from(new FieldOrderedTupleComparator(sortFields, sortOrders));
+                sortFields[i] = getFirst(source.getLayout().get(symbol)).getField();
+                sortOrder[i] = (node.getOrderings().get(symbol) == SortItem.Ordering.ASCENDING);
+            }
 
             IdentityProjectionInfo mappings = computeIdentityMapping(node.getOutputSymbols(), source.getLayout(), context.getTypes());
 
@@ -397,7 +404,8 @@ public class LocalExecutionPlanner
                     (int) node.getCount(),
                     orderByChannel,
                     mappings.getProjections(),
-                    ordering,
+                    sortFields,
+                    sortOrder,
                     node.isPartial());
 
             return new PhysicalOperation(operator, mappings.getOutputLayout(), source);
@@ -709,32 +717,64 @@ public class LocalExecutionPlanner
                 List<Symbol> buildSymbols,
                 LocalExecutionPlanContext context)
         {
-            // Plan probe and introduce a projection to put all fields from the probe side into a single channel if necessary
+            // Plan probe and introduce a projection to put each join field from the probe side in a channel by itself if necessary
             PhysicalOperation probeSource = probeNode.accept(this, context);
-            probeSource = packIfNecessary(probeSymbols, probeSource, context.getTypes(), context);
+            probeSource = unpackIfNecessary(probeSymbols, probeSource, context.getTypes(), context);
 
             // do the same on the build side
             LocalExecutionPlanContext buildContext = context.createSubContext();
             PhysicalOperation buildSource = buildNode.accept(this, buildContext);
-            buildSource = packIfNecessary(buildSymbols, buildSource, buildContext.getTypes(), buildContext);
-
-            int probeChannel = Iterables.getOnlyElement(getChannelSetForSymbols(probeSymbols, probeSource.getLayout()));
-            int buildChannel = Iterables.getOnlyElement(getChannelSetForSymbols(buildSymbols, buildSource.getLayout()));
-
-            HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(
-                    buildContext.getNextOperatorId(),
-                    buildSource.getTupleInfos(),
-                    buildChannel,
-                    100_000);
-            HashSupplier hashSupplier = hashBuilderOperatorFactory.getHashSupplier();
-            DriverFactory buildDriverFactory = new DriverFactory(
-                    buildContext.isInputDriver(),
-                    false,
-                    ImmutableList.<OperatorFactory>builder()
-                            .addAll(buildSource.getOperatorFactories())
-                            .add(hashBuilderOperatorFactory)
-                            .build());
-            context.addDriverFactory(buildDriverFactory);
+            buildSource = unpackIfNecessary(buildSymbols, buildSource, buildContext.getTypes(), buildContext);
+
+            List<Integer> probeChannels = getChannelsForSymbols(probeSymbols, probeSource.getLayout());
+            List<Integer> buildChannels = getChannelsForSymbols(buildSymbols, buildSource.getLayout());
+
+            HashSupplier hashSupplier;
+            if (hashBuildConcurrency == 1) {
+                HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(
+                        buildContext.getNextOperatorId(),
+                        buildSource.getTupleInfos(),
+                        buildChannels,
+                        100_000);
+                hashSupplier = hashBuilderOperatorFactory.getHashSupplier();
+                DriverFactory buildDriverFactory = new DriverFactory(
+                        buildContext.isInputDriver(),
+                        false,
+                        ImmutableList.<OperatorFactory>builder()
+                                .addAll(buildSource.getOperatorFactories())
+                                .add(hashBuilderOperatorFactory)
+                                .build());
+                context.addDriverFactory(buildDriverFactory);
+            }
+            else {
+                // spread the build input over several drivers that each build a partition of the hash
+                InMemoryExchange inMemoryExchange = new InMemoryExchange(buildSource.getTupleInfos());
+                DriverFactory buildInputDriverFactory = new DriverFactory(
+                        buildContext.isInputDriver(),
+                        false,
+                        ImmutableList.<OperatorFactory>builder()
+                                .addAll(buildSource.getOperatorFactories())
+                                .add(inMemoryExchange.createSinkFactory(buildContext.getNextOperatorId()))
+                                .build());
+                context.addDriverFactory(buildInputDriverFactory);
+                inMemoryExchange.noMoreSinkFactories();
+
+                LocalExecutionPlanContext hashBuilderContext = context.createSubContext();
+                InMemoryExchangeSourceOperatorFactory exchangeSource = new InMemoryExchangeSourceOperatorFactory(hashBuilderContext.getNextOperatorId(), inMemoryExchange);
+                HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(
+                        hashBuilderContext.getNextOperatorId(),
+                        buildSource.getTupleInfos(),
+                        buildChannels,
+                        100_000 / hashBuildConcurrency,
+                        hashBuildConcurrency);
+                hashSupplier = hashBuilderOperatorFactory.getHashSupplier();
+                DriverFactory buildDriverFactory = new DriverFactory(
+                        false,
+                        false,
+                        hashBuildConcurrency,
+                        ImmutableList.of(exchangeSource, hashBuilderOperatorFactory));
+                context.addDriverFactory(buildDriverFactory);
+            }
 
             ImmutableMultimap.Builder<Symbol, Input> outputMappings = ImmutableMultimap.builder();
             outputMappings.putAll(probeSource.getLayout());
@@ -747,7 +787,7 @@ public class LocalExecutionPlanner
                 outputMappings.put(entry.getKey(), new Input(offset + input.getChannel(), input.getField()));
             }
 
-            OperatorFactory operator = createJoinOperator(node.getType(), hashSupplier, probeSource.getTupleInfos(), probeChannel, context);
+            OperatorFactory operator = createJoinOperator(node.getType(), hashSupplier, probeSource.getTupleInfos(), probeChannels, context);
             return new PhysicalOperation(operator, outputMappings.build(), probeSource);
         }
 
@@ -755,15 +795,15 @@ public class LocalExecutionPlanner
                 JoinNode.Type type,
                 HashSupplier hashSupplier,
                 List<TupleInfo> probeTupleInfos,
-                int probeJoinChannel,
+                List<Integer> probeJoinChannels,
                 LocalExecutionPlanContext context)
         {
             switch (type) {
                 case INNER:
-                    return HashJoinOperator.innerJoin(context.getNextOperatorId(), hashSupplier, probeTupleInfos, probeJoinChannel);
+                    return HashJoinOperator.innerJoin(context.getNextOperatorId(), hashSupplier, probeTupleInfos, probeJoinChannels);
                 case LEFT:
                 case RIGHT:
-                    return HashJoinOperator.outerJoin(context.getNextOperatorId(), hashSupplier, probeTupleInfos, probeJoinChannel);
+                    return HashJoinOperator.outerJoin(context.getNextOperatorId(), hashSupplier, probeTupleInfos, probeJoinChannels);
                 default:
                     throw new UnsupportedOperationException("Unsupported join type: " + type);
             }
@@ -772,14 +812,14 @@ public class LocalExecutionPlanner
         @Override
         public PhysicalOperation visitSemiJoin(SemiJoinNode node, LocalExecutionPlanContext context)
         {
-            // introduce a projection to put all fields from the probe side into a single channel if necessary
+            // introduce a projection to put the join field from the probe side in a channel by itself if necessary
             PhysicalOperation probeSource = node.getSource().accept(this, context);
-            probeSource = packIfNecessary(ImmutableList.of(node.getSourceJoinSymbol()), probeSource, context.getTypes(), context);
+            probeSource = unpackIfNecessary(ImmutableList.of(node.getSourceJoinSymbol()), probeSource, context.getTypes(), context);
 
             // do the same on the build side
             LocalExecutionPlanContext buildContext = context.createSubContext();
             PhysicalOperation buildSource = node.getFilteringSource().accept(this, buildContext);
-            buildSource = packIfNecessary(ImmutableList.of(node.getFilteringSourceJoinSymbol()), buildSource, buildContext.getTypes(), buildContext);
+            buildSource = unpackIfNecessary(ImmutableList.of(node.getFilteringSourceJoinSymbol()), buildSource, buildContext.getTypes(), buildContext);
 
             int probeChannel = Iterables.getOnlyElement(getChannelSetForSymbols(ImmutableList.of(node.getSourceJoinSymbol()), probeSource.getLayout()));
             int buildChannel = Iterables.getOnlyElement(getChannelSetForSymbols(ImmutableList.of(node.getFilteringSourceJoinSymbol()), buildSource.getLayout()));
@@ -828,7 +868,14 @@ public class LocalExecutionPlanner
                 OperatorFactory operatorFactory = new FilterAndProjectOperatorFactory(context.getNextOperatorId(), FilterFunctions.TRUE_FUNCTION, mappings.getProjections());
                 // NOTE: the generated output layout may not be completely accurate if the same field was projected as multiple inputs.
                 // However, this should not affect the operation of the sink.
-                return new PhysicalOperation(operatorFactory, mappings.getOutputLayout(), source);
+                source = new PhysicalOperation(operatorFactory, mappings.getOutputLayout(), source);
+            }
+
+            if (!node.getDistinctValueSymbols().isEmpty()) {
+                // report the distinct values of the join keys so the coordinator can prune the partitions of the other side
+                List<Integer> channels = getChannelsForSymbols(node.getDistinctValueSymbols(), source.getLayout());
+                OperatorFactory operatorFactory = new CollectDistinctValuesOperatorFactory(context.getNextOperatorId(), node.getId(), source.getTupleInfos(), channels, MAX_DISTINCT_VALUES);
+                source = new PhysicalOperation(operatorFactory, source.getLayout(), source);
             }
 
             return source;
@@ -963,8 +1010,8 @@ public class LocalExecutionPlanner
         {
             List<Symbol> groupBySymbols = node.getGroupBy();
 
-            // introduce a projection to put all group by fields from the source into a single channel if necessary
-            source = packIfNecessary(groupBySymbols, source, context.getTypes(), context);
+            // introduce a projection to put each group by field from the source in a channel by itself if necessary
+            source = unpackIfNecessary(groupBySymbols, source, context.getTypes(), context);
 
             List<Symbol> aggregationOutputSymbols = new ArrayList<>();
             List<AggregationFunctionDefinition> functionDefinitions = new ArrayList<>();
@@ -976,23 +1023,28 @@ public class LocalExecutionPlanner
             }
 
             ImmutableMultimap.Builder<Symbol, Input> outputMappings = ImmutableMultimap.builder();
-            // add group-by key fields. They all go in channel 0 in the same order produced by the source operator
+            // add group-by key fields, one per channel in the order of the group by clause
+            int channel = 0;
             for (Symbol symbol : groupBySymbols) {
-                outputMappings.put(symbol, new Input(0, getFirst(source.getLayout().get(symbol)).getField()));
+                outputMappings.put(symbol, new Input(channel, 0));
+                channel++;
             }
 
-            // aggregations go in remaining channels starting at 1, one per channel
-            int channel = 1;
+            // aggregations go in remaining channels, one per channel
             for (Symbol symbol : aggregationOutputSymbols) {
                 outputMappings.put(symbol, new Input(channel, 0));
                 channel++;
             }
 
-            Integer groupByChannel = Iterables.getOnlyElement(getChannelSetForSymbols(groupBySymbols, source.getLayout()));
+            List<Integer> groupByChannels = getChannelsForSymbols(groupBySymbols, source.getLayout());
+            ImmutableList.Builder<TupleInfo> groupByTupleInfos = ImmutableList.builder();
+            for (int groupByChannel : groupByChannels) {
+                groupByTupleInfos.add(source.getTupleInfos().get(groupByChannel));
+            }
             OperatorFactory operatorFactory = new HashAggregationOperatorFactory(
                     context.getNextOperatorId(),
-                    source.getTupleInfos().get(groupByChannel),
-                    groupByChannel,
+                    groupByTupleInfos.build(),
+                    groupByChannels,
                     node.getStep(),
                     functionDefinitions,
                     10_000);
@@ -1017,6 +1069,22 @@ public class LocalExecutionPlanner
         return new IdentityProjectionInfo(outputMappings.build(), projections);
     }
 
+    /**
+     * Inserts a projection that places every symbol in a channel by itself if any of the provided symbols
+     * shares a channel with other fields
+     */
+    private PhysicalOperation unpackIfNecessary(List<Symbol> symbols, PhysicalOperation source, Map<Symbol, Type> types, LocalExecutionPlanContext context)
+    {
+        for (int channel : getChannelsForSymbols(symbols, source.getLayout())) {
+            if (source.getTupleInfos().get(channel).getFieldCount() > 1) {
+                IdentityProjectionInfo mappings = computeIdentityMapping(ImmutableList.copyOf(source.getLayout().keySet()), source.getLayout(), types);
+                OperatorFactory operatorFactory = new FilterAndProjectOperatorFactory(context.getNextOperatorId(), FilterFunctions.TRUE_FUNCTION, mappings.getProjections());
+                return new PhysicalOperation(operatorFactory, mappings.getOutputLayout(), source);
+            }
+        }
+        return source;
+    }
+
     /**
      * Inserts a projection if the provided symbols are not in a single channel by themselves
      */
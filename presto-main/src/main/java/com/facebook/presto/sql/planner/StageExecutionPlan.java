@@ -40,13 +40,24 @@ public class StageExecutionPlan
     private final List<TupleInfo> tupleInfos;
     private final Optional<List<String>> fieldNames;
     private final Map<PlanNodeId, OutputReceiver> outputReceivers;
+    private final List<DynamicPartitionFilter> dynamicPartitionFilters;
 
     public StageExecutionPlan(PlanFragment fragment, Optional<DataSource> dataSource, List<StageExecutionPlan> subStages, Map<PlanNodeId, OutputReceiver> outputReceivers)
+    {
+        this(fragment, dataSource, subStages, outputReceivers, ImmutableList.<DynamicPartitionFilter>of());
+    }
+
+    public StageExecutionPlan(PlanFragment fragment,
+            Optional<DataSource> dataSource,
+            List<StageExecutionPlan> subStages,
+            Map<PlanNodeId, OutputReceiver> outputReceivers,
+            List<DynamicPartitionFilter> dynamicPartitionFilters)
     {
         this.fragment = checkNotNull(fragment, "fragment is null");
         this.dataSource = checkNotNull(dataSource, "dataSource is null");
         this.subStages = ImmutableList.copyOf(checkNotNull(subStages, "dependencies is null"));
         this.outputReceivers = ImmutableMap.copyOf(checkNotNull(outputReceivers, "outputReceivers is null"));
+        this.dynamicPartitionFilters = ImmutableList.copyOf(checkNotNull(dynamicPartitionFilters, "dynamicPartitionFilters is null"));
 
         tupleInfos = ImmutableList.copyOf(IterableTransformer.on(fragment.getRoot().getOutputSymbols())
                 .transform(Functions.forMap(fragment.getSymbols()))
@@ -96,6 +107,14 @@ public class StageExecutionPlan
         return outputReceivers;
     }
 
+    /**
+     * Filters on the partitions of the data source, which are populated with the values from a sub stage.
+     */
+    public List<DynamicPartitionFilter> getDynamicPartitionFilters()
+    {
+        return dynamicPartitionFilters;
+    }
+
     @Override
     public String toString()
     {
@@ -104,6 +123,7 @@ public class StageExecutionPlan
                 .add("dataSource", dataSource)
                 .add("subStages", subStages)
                 .add("outputReceivers", outputReceivers)
+                .add("dynamicPartitionFilters", dynamicPartitionFilters)
                 .toString();
     }
 }
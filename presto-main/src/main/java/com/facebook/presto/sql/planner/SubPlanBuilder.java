@@ -13,10 +13,13 @@
  */
 package com.facebook.presto.sql.planner;
 
+import com.facebook.presto.sql.planner.PlanFragment.OutputPartitioning;
+import com.facebook.presto.sql.planner.PlanFragment.PlanDistribution;
 import com.facebook.presto.sql.planner.plan.PlanFragmentId;
 import com.facebook.presto.sql.planner.plan.PlanNode;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
@@ -31,6 +34,9 @@ public class SubPlanBuilder
     private final PlanFragmentId id;
     private PlanNode root;
     private PlanNodeId partitionedSource;
+    private PlanDistribution distribution = PlanDistribution.NONE;
+    private OutputPartitioning outputPartitioning = OutputPartitioning.NONE;
+    private List<Symbol> partitionBy = ImmutableList.of();
     private List<SubPlan> children = new ArrayList<>();
 
     private final SymbolAllocator allocator;
@@ -65,7 +71,12 @@ public class SubPlanBuilder
 
     public boolean isPartitioned()
     {
-        return partitionedSource != null;
+        return distribution != PlanDistribution.NONE;
+    }
+
+    public PlanDistribution getDistribution()
+    {
+        return distribution;
     }
 
     public PlanNodeId getPartitionedSource()
@@ -75,13 +86,38 @@ public class SubPlanBuilder
 
     public SubPlanBuilder setPartitionedSource(PlanNodeId partitionedSource)
     {
+        Preconditions.checkNotNull(partitionedSource, "partitionedSource is null");
         this.partitionedSource = partitionedSource;
+        this.distribution = PlanDistribution.SOURCE;
         return this;
     }
 
     public SubPlanBuilder setUnpartitionedSource()
     {
         this.partitionedSource = null;
+        this.distribution = PlanDistribution.NONE;
+        return this;
+    }
+
+    /**
+     * The fragment runs in a fixed number of tasks, each reading one hash partition of its exchanges.
+     */
+    public SubPlanBuilder setFixedDistribution()
+    {
+        this.partitionedSource = null;
+        this.distribution = PlanDistribution.FIXED;
+        return this;
+    }
+
+    /**
+     * The output of the fragment is partitioned across the consuming tasks by the hash of the specified symbols.
+     */
+    public SubPlanBuilder setHashOutputPartitioning(List<Symbol> partitionBy)
+    {
+        Preconditions.checkNotNull(partitionBy, "partitionBy is null");
+        Preconditions.checkArgument(!partitionBy.isEmpty(), "partitionBy is empty");
+        this.outputPartitioning = OutputPartitioning.HASH;
+        this.partitionBy = ImmutableList.copyOf(partitionBy);
         return this;
     }
 
@@ -106,7 +142,13 @@ public class SubPlanBuilder
     {
         Set<Symbol> dependencies = SymbolExtractor.extract(root);
 
-        PlanFragment fragment = new PlanFragment(id, partitionedSource, Maps.filterKeys(allocator.getTypes(), in(dependencies)), root);
+        PlanFragment fragment = new PlanFragment(id,
+                partitionedSource,
+                Maps.filterKeys(allocator.getTypes(), in(dependencies)),
+                root,
+                distribution,
+                outputPartitioning,
+                partitionBy);
 
         return new SubPlan(fragment, children);
     }
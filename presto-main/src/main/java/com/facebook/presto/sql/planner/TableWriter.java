@@ -25,6 +25,7 @@ import com.facebook.presto.split.NativeSplit;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.sql.planner.plan.TableWriterNode;
 import com.google.common.base.Objects;
+import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
@@ -50,6 +51,10 @@ public class TableWriter
     private final TableWriterNode tableWriterNode;
     private final ShardManager shardManager;
 
+    // The versions of the source partitions, and the source versions the imported partitions were written from.
+    private final Map<String, String> sourcePartitionVersions;
+    private final Map<String, String> importedPartitionVersions;
+
     // Which shards are part of which partition
     private final Map<String, PartitionInfo> openPartitions = new ConcurrentHashMap<>();
     private final Map<String, PartitionInfo> finishedPartitions = new ConcurrentHashMap<>();
@@ -69,10 +74,13 @@ public class TableWriter
     private final Set<String> remainingPartitions = Sets.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
     TableWriter(TableWriterNode tableWriterNode,
-            ShardManager shardManager)
+            ShardManager shardManager,
+            Map<String, String> sourcePartitionVersions)
     {
         this.tableWriterNode = checkNotNull(tableWriterNode, "tableWriterNode is null");
         this.shardManager = checkNotNull(shardManager, "shardManager is null");
+        this.sourcePartitionVersions = ImmutableMap.copyOf(checkNotNull(sourcePartitionVersions, "sourcePartitionVersions is null"));
+        this.importedPartitionVersions = shardManager.getPartitionVersions(tableWriterNode.getTable());
 
         this.remainingPartitions.addAll(transform(shardManager.getPartitions(tableWriterNode.getTable()), partitionNameGetter()));
     }
@@ -90,6 +98,11 @@ public class TableWriter
                 checkState(oldValue == null || oldValue.equals(tableWriterResult.getNodeIdentifier()),
                         "Seen a different node committing a shard (%s vs %s)", oldValue, tableWriterResult.getNodeIdentifier());
 
+                // shards without stats are never pruned, so the stats may be recorded after the partition is committed
+                if (oldValue == null && !tableWriterResult.getColumnStats().isEmpty()) {
+                    shardManager.commitShardColumnStats(tableWriterResult.getShardId(), tableWriterResult.getColumnStats());
+                }
+
                 for (Map.Entry<String, PartitionInfo> entry : finishedPartitions.entrySet()) {
                     if (!partitionsDone.contains(entry.getKey())) {
                         considerCommittingPartition(entry.getKey(), entry.getValue());
@@ -112,7 +125,8 @@ public class TableWriter
             for (Long shardId : shardIds) {
                 builder.put(shardId, shardsDone.get(shardId));
             }
-            shardManager.commitPartition(tableWriterNode.getTable(), partitionName, partitionInfo.getPartitionKeys(), builder.build());
+            Optional<String> partitionVersion = Optional.fromNullable(sourcePartitionVersions.get(partitionName));
+            shardManager.commitPartition(tableWriterNode.getTable(), partitionName, partitionVersion, partitionInfo.getPartitionKeys(), builder.build());
             checkState(shardsInFlight.addAndGet(-shardIds.size()) >= 0, "shards in flight crashed into the ground");
             partitionsDone.add(partitionName);
         }
@@ -184,8 +198,15 @@ public class TableWriter
         {
             public boolean apply(Partition input)
             {
-                remainingPartitions.remove(input.getPartitionId());
-                return !allPartitions.contains(input.getPartitionId());
+                String partition = input.getPartitionId();
+                remainingPartitions.remove(partition);
+                if (!allPartitions.contains(partition)) {
+                    return true;
+                }
+
+                // import the partition again if the source changed since it was imported
+                String sourceVersion = sourcePartitionVersions.get(partition);
+                return sourceVersion != null && !sourceVersion.equals(importedPartitionVersions.get(partition));
             }
         };
     }
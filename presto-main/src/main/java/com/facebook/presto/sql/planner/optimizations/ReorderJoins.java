@@ -0,0 +1,357 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner.optimizations;
+
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.spi.TableStatistics;
+import com.facebook.presto.sql.analyzer.Session;
+import com.facebook.presto.sql.analyzer.Type;
+import com.facebook.presto.sql.planner.PlanNodeIdAllocator;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.planner.SymbolAllocator;
+import com.facebook.presto.sql.planner.plan.AggregationNode;
+import com.facebook.presto.sql.planner.plan.FilterNode;
+import com.facebook.presto.sql.planner.plan.JoinNode;
+import com.facebook.presto.sql.planner.plan.LimitNode;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.PlanNodeRewriter;
+import com.facebook.presto.sql.planner.plan.PlanRewriter;
+import com.facebook.presto.sql.planner.plan.PlanVisitor;
+import com.facebook.presto.sql.planner.plan.ProjectNode;
+import com.facebook.presto.sql.planner.plan.TableScanNode;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.QualifiedNameReference;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reorders trees of inner joins using the row counts reported by the connectors.  The largest
+ * input is used as the probe side, and the remaining inputs are joined to it smallest first,
+ * so every hash table is built from the smallest input that can be joined at that point.
+ * <p/>
+ * Joins are only reordered when the row count of every input can be estimated, and the
+ * inputs are connected by equi-join criteria (no cross joins are introduced).
+ */
+public class ReorderJoins
+        extends PlanOptimizer
+{
+    // fraction of rows assumed to pass a filter, since there are no column statistics to estimate selectivity
+    private static final double FILTER_SELECTIVITY = 0.5;
+
+    private final Metadata metadata;
+
+    public ReorderJoins(Metadata metadata)
+    {
+        this.metadata = checkNotNull(metadata, "metadata is null");
+    }
+
+    @Override
+    public PlanNode optimize(PlanNode plan, Session session, Map<Symbol, Type> types, SymbolAllocator symbolAllocator, PlanNodeIdAllocator idAllocator)
+    {
+        checkNotNull(plan, "plan is null");
+        checkNotNull(session, "session is null");
+        checkNotNull(types, "types is null");
+        checkNotNull(symbolAllocator, "symbolAllocator is null");
+        checkNotNull(idAllocator, "idAllocator is null");
+
+        return PlanRewriter.rewriteWith(new Rewriter(new RowCountEstimator(metadata), idAllocator), plan);
+    }
+
+    private static class Rewriter
+            extends PlanNodeRewriter<Void>
+    {
+        private final RowCountEstimator estimator;
+        private final PlanNodeIdAllocator idAllocator;
+
+        private Rewriter(RowCountEstimator estimator, PlanNodeIdAllocator idAllocator)
+        {
+            this.estimator = checkNotNull(estimator, "estimator is null");
+            this.idAllocator = checkNotNull(idAllocator, "idAllocator is null");
+        }
+
+        @Override
+        public PlanNode rewriteJoin(JoinNode node, Void context, PlanRewriter<Void> planRewriter)
+        {
+            if (!isInnerEquiJoin(node)) {
+                return planRewriter.defaultRewrite(node, context);
+            }
+
+            List<PlanNode> sources = new ArrayList<>();
+            List<JoinNode.EquiJoinClause> criteria = new ArrayList<>();
+            flattenInnerJoins(node, sources, criteria);
+
+            // reorder the joins nested inside of the sources first
+            ImmutableList.Builder<PlanNode> builder = ImmutableList.builder();
+            for (PlanNode source : sources) {
+                builder.add(planRewriter.rewrite(source, context));
+            }
+            List<PlanNode> rewrittenSources = builder.build();
+
+            List<Integer> order = chooseJoinOrder(sources, criteria);
+            if (order == null) {
+                // keep the joins as written, but over the rewritten sources, so the sources are not rewritten twice
+                return replaceSources(node, rewrittenSources.iterator());
+            }
+
+            PlanNode result = buildJoinTree(rewrittenSources, order, criteria);
+
+            // restore the output layout of the original join
+            ImmutableMap.Builder<Symbol, Expression> outputs = ImmutableMap.builder();
+            for (Symbol symbol : node.getOutputSymbols()) {
+                outputs.put(symbol, new QualifiedNameReference(symbol.toQualifiedName()));
+            }
+            return new ProjectNode(idAllocator.getNextId(), result, outputs.build());
+        }
+
+        /**
+         * Returns the order in which the sources should be joined, or null if the
+         * sources should be joined as written.
+         */
+        private List<Integer> chooseJoinOrder(List<PlanNode> sources, List<JoinNode.EquiJoinClause> criteria)
+        {
+            double[] rowCounts = new double[sources.size()];
+            for (int i = 0; i < sources.size(); i++) {
+                rowCounts[i] = estimator.estimate(sources.get(i));
+                if (Double.isNaN(rowCounts[i])) {
+                    return null;
+                }
+            }
+
+            Map<Symbol, Integer> sourceBySymbol = getSourceBySymbol(sources);
+
+            // start with the largest source as the probe side
+            int probe = 0;
+            for (int i = 1; i < sources.size(); i++) {
+                if (rowCounts[i] > rowCounts[probe]) {
+                    probe = i;
+                }
+            }
+
+            List<Integer> order = new ArrayList<>();
+            boolean[] joined = new boolean[sources.size()];
+            order.add(probe);
+            joined[probe] = true;
+
+            // repeatedly build on the smallest source that is connected to the joined sources
+            while (order.size() < sources.size()) {
+                int build = -1;
+                for (JoinNode.EquiJoinClause clause : criteria) {
+                    int left = sourceBySymbol.get(clause.getLeft());
+                    int right = sourceBySymbol.get(clause.getRight());
+                    if (joined[left] == joined[right]) {
+                        continue;
+                    }
+                    int candidate = joined[left] ? right : left;
+                    if (build < 0 || rowCounts[candidate] < rowCounts[build]) {
+                        build = candidate;
+                    }
+                }
+                if (build < 0) {
+                    // the sources are not connected, so a join order would require a cross join
+                    return null;
+                }
+                order.add(build);
+                joined[build] = true;
+            }
+
+            for (int i = 0; i < order.size(); i++) {
+                if (order.get(i) != i) {
+                    return order;
+                }
+            }
+            return null;
+        }
+
+        private PlanNode buildJoinTree(List<PlanNode> sources, List<Integer> order, List<JoinNode.EquiJoinClause> criteria)
+        {
+            Map<Symbol, Integer> sourceBySymbol = getSourceBySymbol(sources);
+            boolean[] joined = new boolean[sources.size()];
+
+            int probe = order.get(0);
+            PlanNode result = sources.get(probe);
+            joined[probe] = true;
+
+            for (int build : order.subList(1, order.size())) {
+                ImmutableList.Builder<JoinNode.EquiJoinClause> clauses = ImmutableList.builder();
+                for (JoinNode.EquiJoinClause clause : criteria) {
+                    int left = sourceBySymbol.get(clause.getLeft());
+                    int right = sourceBySymbol.get(clause.getRight());
+                    if (joined[left] && right == build) {
+                        clauses.add(clause);
+                    }
+                    else if (joined[right] && left == build) {
+                        clauses.add(new JoinNode.EquiJoinClause(clause.getRight(), clause.getLeft()));
+                    }
+                }
+                result = new JoinNode(idAllocator.getNextId(), JoinNode.Type.INNER, result, sources.get(build), clauses.build());
+                joined[build] = true;
+            }
+            return result;
+        }
+
+        private static Map<Symbol, Integer> getSourceBySymbol(List<PlanNode> sources)
+        {
+            Map<Symbol, Integer> sourceBySymbol = new HashMap<>();
+            for (int i = 0; i < sources.size(); i++) {
+                for (Symbol symbol : sources.get(i).getOutputSymbols()) {
+                    sourceBySymbol.put(symbol, i);
+                }
+            }
+            return sourceBySymbol;
+        }
+
+        /**
+         * Collects the inputs and criteria of a tree of inner joins.  Identity projections between
+         * the joins only restrict the outputs, so they are removed and the tree is flattened through them.
+         */
+        private static void flattenInnerJoins(PlanNode node, List<PlanNode> sources, List<JoinNode.EquiJoinClause> criteria)
+        {
+            PlanNode source = skipIdentityProjections(node);
+            if (!isInnerEquiJoin(source)) {
+                sources.add(node);
+                return;
+            }
+
+            JoinNode join = (JoinNode) source;
+            flattenInnerJoins(join.getLeft(), sources, criteria);
+            flattenInnerJoins(join.getRight(), sources, criteria);
+            criteria.addAll(join.getCriteria());
+        }
+
+        /**
+         * Rebuilds a tree of inner joins as collected by {@link #flattenInnerJoins}, with each input replaced by the next of the given sources.
+         */
+        private static PlanNode replaceSources(PlanNode node, Iterator<PlanNode> sources)
+        {
+            if (!isInnerEquiJoin(skipIdentityProjections(node))) {
+                return sources.next();
+            }
+
+            if (node instanceof ProjectNode) {
+                ProjectNode project = (ProjectNode) node;
+                PlanNode source = replaceSources(project.getSource(), sources);
+                if (source == project.getSource()) {
+                    return project;
+                }
+                return new ProjectNode(project.getId(), source, project.getOutputMap());
+            }
+
+            JoinNode join = (JoinNode) node;
+            PlanNode left = replaceSources(join.getLeft(), sources);
+            PlanNode right = replaceSources(join.getRight(), sources);
+            if (left == join.getLeft() && right == join.getRight()) {
+                return join;
+            }
+            return new JoinNode(join.getId(), join.getType(), left, right, join.getCriteria());
+        }
+
+        private static boolean isInnerEquiJoin(PlanNode node)
+        {
+            return node instanceof JoinNode && ((JoinNode) node).getType() == JoinNode.Type.INNER && !((JoinNode) node).getCriteria().isEmpty();
+        }
+
+        private static PlanNode skipIdentityProjections(PlanNode node)
+        {
+            while (node instanceof ProjectNode && isIdentity((ProjectNode) node)) {
+                node = ((ProjectNode) node).getSource();
+            }
+            return node;
+        }
+
+        private static boolean isIdentity(ProjectNode node)
+        {
+            for (Map.Entry<Symbol, Expression> entry : node.getOutputMap().entrySet()) {
+                Expression expression = entry.getValue();
+                if (!(expression instanceof QualifiedNameReference && ((QualifiedNameReference) expression).getName().equals(entry.getKey().toQualifiedName()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Estimates the number of rows produced by a plan node, or NaN if the estimate is unknown.
+     */
+    private static class RowCountEstimator
+            extends PlanVisitor<Void, Double>
+    {
+        private final Metadata metadata;
+
+        private RowCountEstimator(Metadata metadata)
+        {
+            this.metadata = checkNotNull(metadata, "metadata is null");
+        }
+
+        public double estimate(PlanNode node)
+        {
+            return node.accept(this, null);
+        }
+
+        @Override
+        protected Double visitPlan(PlanNode node, Void context)
+        {
+            return Double.NaN;
+        }
+
+        @Override
+        public Double visitTableScan(TableScanNode node, Void context)
+        {
+            TableStatistics statistics = metadata.getTableStatistics(node.getTable());
+            if (!statistics.isRowCountKnown()) {
+                return Double.NaN;
+            }
+            return (double) statistics.getRowCount();
+        }
+
+        @Override
+        public Double visitFilter(FilterNode node, Void context)
+        {
+            return estimate(node.getSource()) * FILTER_SELECTIVITY;
+        }
+
+        @Override
+        public Double visitProject(ProjectNode node, Void context)
+        {
+            return estimate(node.getSource());
+        }
+
+        @Override
+        public Double visitLimit(LimitNode node, Void context)
+        {
+            double rowCount = estimate(node.getSource());
+            if (Double.isNaN(rowCount)) {
+                return (double) node.getCount();
+            }
+            return Math.min(rowCount, node.getCount());
+        }
+
+        @Override
+        public Double visitAggregation(AggregationNode node, Void context)
+        {
+            if (node.getGroupBy().isEmpty()) {
+                return 1.0;
+            }
+            return estimate(node.getSource());
+        }
+    }
+}
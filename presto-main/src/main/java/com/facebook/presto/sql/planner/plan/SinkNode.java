@@ -26,21 +26,31 @@ public class SinkNode
 {
     private final PlanNode source;
     private final List<Symbol> outputSymbols; // Expected output symbol layout
+    private final List<Symbol> distinctValueSymbols; // Symbols for which the distinct values are reported to the coordinator
+
+    public SinkNode(PlanNodeId id, PlanNode source, List<Symbol> outputSymbols)
+    {
+        this(id, source, outputSymbols, ImmutableList.<Symbol>of());
+    }
 
     @JsonCreator
     public SinkNode(@JsonProperty("id") PlanNodeId id,
             @JsonProperty("source") PlanNode source,
-            @JsonProperty("outputSymbols") List<Symbol> outputSymbols)
+            @JsonProperty("outputSymbols") List<Symbol> outputSymbols,
+            @JsonProperty("distinctValueSymbols") List<Symbol> distinctValueSymbols)
     {
         super(id);
 
         Preconditions.checkNotNull(source, "source is null");
         Preconditions.checkNotNull(outputSymbols, "outputSymbols is null");
+        Preconditions.checkNotNull(distinctValueSymbols, "distinctValueSymbols is null");
 
         this.source = source;
         this.outputSymbols = ImmutableList.copyOf(outputSymbols);
+        this.distinctValueSymbols = ImmutableList.copyOf(distinctValueSymbols);
 
         Preconditions.checkArgument(source.getOutputSymbols().containsAll(this.outputSymbols), "Source output needs to be able to produce all of the required outputSymbols");
+        Preconditions.checkArgument(this.outputSymbols.containsAll(this.distinctValueSymbols), "distinctValueSymbols must be a subset of the outputSymbols");
     }
 
     @JsonProperty("source")
@@ -62,6 +72,12 @@ public class SinkNode
         return outputSymbols;
     }
 
+    @JsonProperty("distinctValueSymbols")
+    public List<Symbol> getDistinctValueSymbols()
+    {
+        return distinctValueSymbols;
+    }
+
     public <C, R> R accept(PlanVisitor<C, R> visitor, C context)
     {
         return visitor.visitSink(this, context);
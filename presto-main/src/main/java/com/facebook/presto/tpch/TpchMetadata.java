@@ -17,11 +17,13 @@ import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.metadata.MetadataManager;
 import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ColumnMetadata;
+import com.facebook.presto.spi.ColumnStatistics;
 import com.facebook.presto.spi.ConnectorMetadata;
 import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.SchemaTablePrefix;
 import com.facebook.presto.spi.TableHandle;
+import com.facebook.presto.spi.TableStatistics;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
@@ -78,6 +80,10 @@ public class TpchMetadata
             .column("comment", STRING)
             .build();
 
+    // row counts at scale factor 1
+    public static final long TPCH_ORDERS_ROW_COUNT = 1_500_000;
+    public static final long TPCH_LINEITEM_ROW_COUNT = 6_001_215;
+
     public static Metadata createTpchMetadata()
     {
         MetadataManager metadataManager = new MetadataManager();
@@ -86,6 +92,7 @@ public class TpchMetadata
     }
 
     private final Map<String, ConnectorTableMetadata> tables;
+    private final Map<String, Long> tableRowCounts;
 
     @Inject
     public TpchMetadata()
@@ -93,6 +100,9 @@ public class TpchMetadata
         tables = ImmutableMap.of(
                 TPCH_ORDERS_NAME, TPCH_ORDERS_METADATA,
                 TPCH_LINEITEM_NAME, TPCH_LINEITEM_METADATA);
+        tableRowCounts = ImmutableMap.of(
+                TPCH_ORDERS_NAME, TPCH_ORDERS_ROW_COUNT,
+                TPCH_LINEITEM_NAME, TPCH_LINEITEM_ROW_COUNT);
     }
 
     @Override
@@ -126,6 +136,19 @@ public class TpchMetadata
         return tables.get(tableName);
     }
 
+    @Override
+    public TableStatistics getTableStatistics(TableHandle tableHandle)
+    {
+        checkNotNull(tableHandle, "tableHandle is null");
+        String tableName = getTableName(tableHandle);
+        checkArgument(tables.containsKey(tableName), "Table %s does not exist", tableHandle);
+        Long rowCount = tableRowCounts.get(tableName);
+        if (rowCount == null) {
+            return TableStatistics.unknown();
+        }
+        return new TableStatistics(rowCount, TableStatistics.UNKNOWN, ImmutableMap.<ColumnHandle, ColumnStatistics>of());
+    }
+
     @Override
     public Map<String, ColumnHandle> getColumnHandles(TableHandle tableHandle)
     {
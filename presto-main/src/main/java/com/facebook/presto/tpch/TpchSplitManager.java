@@ -91,6 +91,12 @@ public class TpchSplitManager
         return splits.build();
     }
 
+    @Override
+    public Map<String, String> getPartitionVersions(TableHandle table, List<Partition> partitions)
+    {
+        return ImmutableMap.of();
+    }
+
     public static class TpchPartition
             implements Partition
     {
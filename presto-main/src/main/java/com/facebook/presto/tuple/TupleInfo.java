@@ -522,6 +522,15 @@ public class TupleInfo
         return getOffset(types.size());
     }
 
+    /**
+     * Gets the offset of a fixed size field from the start of the tuple.
+     */
+    public int getFixedFieldOffset(int field)
+    {
+        checkArgument(types.get(field).isFixedSize(), "Field %s is not fixed size", field);
+        return offsets.get(field);
+    }
+
     private int getOffset(int field)
     {
         checkArgument(field != firstVariableLengthField, "Cannot get offset for first variable length field");
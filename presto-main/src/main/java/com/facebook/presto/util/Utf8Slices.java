@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.util;
+
+import io.airlift.slice.Slice;
+
+import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
+
+/**
+ * Helpers for matching strings directly on their UTF-8 encoded bytes, without decoding them.
+ */
+public final class Utf8Slices
+{
+    private static final long ONES = 0x0101_0101_0101_0101L;
+    private static final long HIGH_BITS = 0x8080_8080_8080_8080L;
+
+    private Utf8Slices()
+    {
+    }
+
+    /**
+     * Returns the offset of the first occurrence of the pattern in the value between {@code from}
+     * and {@code to}, or -1 if the pattern does not occur.  Like memchr, the value is scanned eight
+     * bytes at a time for the first byte of the pattern, and only candidate positions are compared.
+     */
+    public static int indexOf(Slice value, int from, int to, byte[] pattern)
+    {
+        if (pattern.length == 0) {
+            return from <= to ? from : -1;
+        }
+
+        byte first = pattern[0];
+        long firstBytes = (first & 0xFFL) * ONES;
+        int lastStart = to - pattern.length;
+        int position = from;
+        while (position <= lastStart) {
+            if (position + SIZE_OF_LONG <= to) {
+                // a byte of the word equals the first byte of the pattern if the xor has a zero byte
+                long word = value.getLong(position) ^ firstBytes;
+                if (((word - ONES) & ~word & HIGH_BITS) == 0) {
+                    position += SIZE_OF_LONG;
+                    continue;
+                }
+            }
+
+            if (value.getByte(position) == first && equalsAt(value, position, pattern)) {
+                return position;
+            }
+            position++;
+        }
+        return -1;
+    }
+
+    public static boolean equalsAt(Slice value, int offset, byte[] pattern)
+    {
+        if (offset < 0 || offset + pattern.length > value.length()) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length; i++) {
+            if (value.getByte(offset + i) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of bytes of the code point starting with the specified byte.  Bytes that
+     * can not start a code point are treated as a code point of their own.
+     */
+    public static int lengthOfCodePoint(byte leadByte)
+    {
+        int value = leadByte & 0xFF;
+        if (value < 0xC0) {
+            return 1;
+        }
+        if (value < 0xE0) {
+            return 2;
+        }
+        if (value < 0xF0) {
+            return 3;
+        }
+        if (value < 0xF8) {
+            return 4;
+        }
+        return 1;
+    }
+
+    public static boolean isContinuationByte(byte value)
+    {
+        return (value & 0xC0) == 0x80;
+    }
+
+    /**
+     * Checks if the value is well formed UTF-8.  ASCII text is skipped eight bytes at a time, so
+     * code points are only decoded from the first non-ASCII byte on.
+     */
+    public static boolean isValidUtf8(Slice value)
+    {
+        int length = value.length();
+        int position = 0;
+        while (position + SIZE_OF_LONG <= length && (value.getLong(position) & HIGH_BITS) == 0) {
+            position += SIZE_OF_LONG;
+        }
+
+        while (position < length) {
+            byte lead = value.getByte(position);
+            if (lead >= 0) {
+                position++;
+                continue;
+            }
+
+            int codePointLength = lengthOfCodePoint(lead);
+            if (codePointLength == 1 || position + codePointLength > length) {
+                return false;
+            }
+            for (int i = 1; i < codePointLength; i++) {
+                if (!isContinuationByte(value.getByte(position + i))) {
+                    return false;
+                }
+            }
+            position += codePointLength;
+        }
+        return true;
+    }
+}
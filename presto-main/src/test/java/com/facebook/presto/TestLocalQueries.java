@@ -53,10 +53,16 @@ public class TestLocalQueries
         return 1;
     }
 
+    protected int getHashBuildConcurrency()
+    {
+        return 1;
+    }
+
     @Override
     protected void setUpQueryFramework(String catalog, String schema)
     {
-        tpchLocalQueryRunner = createTpchLocalQueryRunner(new Session("user", "test", catalog, schema, null, null), getExecutor());
+        tpchLocalQueryRunner = createTpchLocalQueryRunner(new Session("user", "test", catalog, schema, null, null), getExecutor())
+                .setHashBuildConcurrency(getHashBuildConcurrency());
 
         // dump query plan to console (for debugging)
         // tpchLocalQueryRunner.textLogicalPlan();
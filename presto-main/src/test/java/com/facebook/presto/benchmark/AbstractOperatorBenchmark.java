@@ -88,6 +88,17 @@ public abstract class AbstractOperatorBenchmark
 
     protected abstract List<Driver> createDrivers(TaskContext taskContext);
 
+    protected TaskContext createTaskContext(ExecutorService executor, Session session)
+    {
+        return new TaskContext(
+                new TaskStateMachine(new TaskId("query", "stage", "task"), executor),
+                executor,
+                session,
+                new DataSize(256, MEGABYTE),
+                new DataSize(1, MEGABYTE),
+                false);
+    }
+
     protected void execute(TaskContext taskContext)
     {
         List<Driver> drivers = createDrivers(taskContext);
@@ -109,13 +120,7 @@ public abstract class AbstractOperatorBenchmark
     protected Map<String, Long> runOnce()
     {
         Session session = new Session("user", "source", "catalog", "schema", "address", "agent");
-        TaskContext taskContext = new TaskContext(
-                new TaskStateMachine(new TaskId("query", "stage", "task"), executor),
-                executor,
-                session,
-                new DataSize(256, MEGABYTE),
-                new DataSize(1, MEGABYTE),
-                false);
+        TaskContext taskContext = createTaskContext(executor, session);
 
         CpuTimer cpuTimer = new CpuTimer();
         execute(taskContext);
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.benchmark;
 
+import com.facebook.presto.serde.BlocksFileEncoding;
 import com.facebook.presto.tpch.TpchBlocksProvider;
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.Files;
@@ -40,16 +41,25 @@ public class BenchmarkSuite
                 // hand built benchmarks
                 new CountAggregationBenchmark(executor, tpchBlocksProvider),
                 new DoubleSumAggregationBenchmark(executor, tpchBlocksProvider),
+                new DoubleSumAggregationBenchmark(executor, tpchBlocksProvider, "double_sum_agg_columnar", BlocksFileEncoding.COLUMNAR),
                 new HashAggregationBenchmark(executor, tpchBlocksProvider),
+                new HashAggregationBenchmark(executor, tpchBlocksProvider, "hash_agg_bigint", "custkey"),
+                new HashAggregationSpillBenchmark(executor, tpchBlocksProvider),
                 new PredicateFilterBenchmark(executor, tpchBlocksProvider),
+                new CompiledPredicateFilterBenchmark(executor, tpchBlocksProvider),
                 new RawStreamingBenchmark(executor, tpchBlocksProvider),
                 new Top100Benchmark(executor, tpchBlocksProvider),
+                new Top100Benchmark(executor, tpchBlocksProvider, "top10000", 10_000),
                 new OrderByBenchmark(executor, tpchBlocksProvider),
+                new OrderBySpillBenchmark(executor, tpchBlocksProvider),
                 new HashBuildBenchmark(executor, tpchBlocksProvider),
+                new ParallelHashBuildBenchmark(executor, tpchBlocksProvider, 2),
+                new ParallelHashBuildBenchmark(executor, tpchBlocksProvider, 4),
                 new HashJoinBenchmark(executor, tpchBlocksProvider),
                 new HashBuildAndJoinBenchmark(executor, tpchBlocksProvider),
                 new HandTpchQuery1(executor, tpchBlocksProvider),
                 new HandTpchQuery6(executor, tpchBlocksProvider),
+                new HandTpchQuery6(executor, tpchBlocksProvider, "hand_tpch_query_6_columnar", BlocksFileEncoding.COLUMNAR),
 
                 // sql benchmarks
                 new GroupBySumWithArithmeticSqlBenchmark(executor, tpchBlocksProvider),
@@ -61,9 +71,11 @@ public class BenchmarkSuite
                 new RawStreamingSqlBenchmark(executor, tpchBlocksProvider),
                 new Top100SqlBenchmark(executor, tpchBlocksProvider),
                 new SqlHashJoinBenchmark(executor, tpchBlocksProvider),
+                new SqlMultiKeyHashJoinBenchmark(executor, tpchBlocksProvider),
                 new SqlJoinWithPredicateBenchmark(executor, tpchBlocksProvider),
                 new VarBinaryMaxAggregationSqlBenchmark(executor, tpchBlocksProvider),
                 new SqlDistinctMultipleFields(executor, tpchBlocksProvider),
+                new SqlOrderByMultipleFieldsBenchmark(executor, tpchBlocksProvider),
                 new SqlDistinctSingleField(executor, tpchBlocksProvider),
                 new SqlTpchQuery1(executor, tpchBlocksProvider),
                 new SqlTpchQuery6(executor, tpchBlocksProvider),
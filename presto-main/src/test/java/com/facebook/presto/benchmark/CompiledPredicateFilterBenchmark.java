@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.benchmark;
+
+import com.facebook.presto.block.BlockIterable;
+import com.facebook.presto.metadata.MetadataManager;
+import com.facebook.presto.operator.AlignmentOperator.AlignmentOperatorFactory;
+import com.facebook.presto.operator.OperatorFactory;
+import com.facebook.presto.serde.BlocksFileEncoding;
+import com.facebook.presto.sql.analyzer.Type;
+import com.facebook.presto.sql.gen.ExpressionCompiler;
+import com.facebook.presto.sql.tree.ComparisonExpression;
+import com.facebook.presto.sql.tree.DoubleLiteral;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.Input;
+import com.facebook.presto.sql.tree.InputReference;
+import com.facebook.presto.tpch.TpchBlocksProvider;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.util.Threads.daemonThreadsNamed;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+
+/**
+ * The filter of {@link PredicateFilterBenchmark}, compiled to a page-at-a-time operator.
+ */
+public class CompiledPredicateFilterBenchmark
+        extends AbstractSimpleOperatorBenchmark
+{
+    public CompiledPredicateFilterBenchmark(ExecutorService executor, TpchBlocksProvider tpchBlocksProvider)
+    {
+        super(executor, tpchBlocksProvider, "predicate_filter_compiled", 5, 50);
+    }
+
+    @Override
+    protected List<? extends OperatorFactory> createOperatorFactories()
+    {
+        BlockIterable blockIterable = getBlockIterable("orders", "totalprice", BlocksFileEncoding.RAW);
+        AlignmentOperatorFactory alignmentOperator = new AlignmentOperatorFactory(0, blockIterable);
+
+        Input input = new Input(0, 0);
+        Expression totalPrice = new InputReference(input);
+        OperatorFactory filterAndProjectOperator = new ExpressionCompiler(new MetadataManager()).compileFilterAndProjectOperator(
+                1,
+                new ComparisonExpression(ComparisonExpression.Type.GREATER_THAN_OR_EQUAL, totalPrice, new DoubleLiteral("50000.00")),
+                ImmutableList.of(totalPrice),
+                ImmutableMap.of(input, Type.DOUBLE));
+
+        return ImmutableList.of(alignmentOperator, filterAndProjectOperator);
+    }
+
+    public static void main(String[] args)
+    {
+        ExecutorService executor = newCachedThreadPool(daemonThreadsNamed("test"));
+        new CompiledPredicateFilterBenchmark(executor, DEFAULT_TPCH_BLOCKS_PROVIDER).runBenchmark(
+                new SimpleLineBenchmarkResultWriter(System.out)
+        );
+    }
+}
@@ -29,20 +29,29 @@ import java.util.concurrent.ExecutorService;
 import static com.facebook.presto.operator.AggregationFunctionDefinition.aggregation;
 import static com.facebook.presto.operator.aggregation.DoubleSumAggregation.DOUBLE_SUM;
 import static com.facebook.presto.util.Threads.daemonThreadsNamed;
+import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 
 public class DoubleSumAggregationBenchmark
         extends AbstractSimpleOperatorBenchmark
 {
+    private final BlocksFileEncoding encoding;
+
     public DoubleSumAggregationBenchmark(ExecutorService executor, TpchBlocksProvider tpchBlocksProvider)
     {
-        super(executor, tpchBlocksProvider, "double_sum_agg", 10, 100);
+        this(executor, tpchBlocksProvider, "double_sum_agg", BlocksFileEncoding.RAW);
+    }
+
+    public DoubleSumAggregationBenchmark(ExecutorService executor, TpchBlocksProvider tpchBlocksProvider, String benchmarkName, BlocksFileEncoding encoding)
+    {
+        super(executor, tpchBlocksProvider, benchmarkName, 10, 100);
+        this.encoding = checkNotNull(encoding, "encoding is null");
     }
 
     @Override
     protected List<? extends OperatorFactory> createOperatorFactories()
     {
-        BlockIterable blockIterable = getBlockIterable("orders", "totalprice", BlocksFileEncoding.RAW);
+        BlockIterable blockIterable = getBlockIterable("orders", "totalprice", encoding);
         AlignmentOperatorFactory alignmentOperator = new AlignmentOperatorFactory(0, blockIterable);
         AggregationOperatorFactory aggregationOperator = new AggregationOperatorFactory(1, Step.SINGLE, ImmutableList.of(aggregation(DOUBLE_SUM, new Input(0, 0))));
         return ImmutableList.of(alignmentOperator, aggregationOperator);
@@ -103,8 +103,8 @@ public class HandTpchQuery1
         TpchQuery1OperatorFactory tpchQuery1Operator = new TpchQuery1OperatorFactory(1);
         HashAggregationOperatorFactory aggregationOperator = new HashAggregationOperatorFactory(
                 2,
-                tpchQuery1Operator.getTupleInfos().get(0),
-                0,
+                ImmutableList.of(tpchQuery1Operator.getTupleInfos().get(0)),
+                ImmutableList.of(0),
                 Step.SINGLE,
                 ImmutableList.of(
                         aggregation(DOUBLE_SUM, new Input(1, 0)),
@@ -40,15 +40,24 @@ import static com.facebook.presto.operator.AggregationFunctionDefinition.aggrega
 import static com.facebook.presto.operator.aggregation.DoubleSumAggregation.DOUBLE_SUM;
 import static com.facebook.presto.util.Threads.daemonThreadsNamed;
 import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 
 public class HandTpchQuery6
         extends AbstractSimpleOperatorBenchmark
 {
+    private final BlocksFileEncoding encoding;
+
     public HandTpchQuery6(ExecutorService executor, TpchBlocksProvider tpchBlocksProvider)
     {
-        super(executor, tpchBlocksProvider, "hand_tpch_query_6", 10, 100);
+        this(executor, tpchBlocksProvider, "hand_tpch_query_6", BlocksFileEncoding.RAW);
+    }
+
+    public HandTpchQuery6(ExecutorService executor, TpchBlocksProvider tpchBlocksProvider, String benchmarkName, BlocksFileEncoding encoding)
+    {
+        super(executor, tpchBlocksProvider, benchmarkName, 10, 100);
+        this.encoding = checkNotNull(encoding, "encoding is null");
     }
 
     @Override
@@ -62,10 +71,10 @@ public class HandTpchQuery6
         //    and discount <= 0.07
         //    and quantity < 24;
 
-        BlockIterable extendedPrice = getBlockIterable("lineitem", "extendedprice", BlocksFileEncoding.RAW);
-        BlockIterable discount = getBlockIterable("lineitem", "discount", BlocksFileEncoding.RAW);
-        BlockIterable shipDate = getBlockIterable("lineitem", "shipdate", BlocksFileEncoding.RAW);
-        BlockIterable quantity = getBlockIterable("lineitem", "quantity", BlocksFileEncoding.RAW);
+        BlockIterable extendedPrice = getBlockIterable("lineitem", "extendedprice", encoding);
+        BlockIterable discount = getBlockIterable("lineitem", "discount", encoding);
+        BlockIterable shipDate = getBlockIterable("lineitem", "shipdate", encoding);
+        BlockIterable quantity = getBlockIterable("lineitem", "quantity", encoding);
 
         AlignmentOperatorFactory alignmentOperator = new AlignmentOperatorFactory(0, extendedPrice, discount, shipDate, quantity);
 
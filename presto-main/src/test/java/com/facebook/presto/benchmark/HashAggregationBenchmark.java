@@ -34,21 +34,34 @@ import static java.util.concurrent.Executors.newCachedThreadPool;
 public class HashAggregationBenchmark
         extends AbstractSimpleOperatorBenchmark
 {
+    private final String groupByColumn;
+
     public HashAggregationBenchmark(ExecutorService executor, TpchBlocksProvider tpchBlocksProvider)
     {
-        super(executor, tpchBlocksProvider, "hash_agg", 5, 25);
+        this(executor, tpchBlocksProvider, "hash_agg");
+    }
+
+    protected HashAggregationBenchmark(ExecutorService executor, TpchBlocksProvider tpchBlocksProvider, String benchmarkName)
+    {
+        this(executor, tpchBlocksProvider, benchmarkName, "orderstatus");
+    }
+
+    public HashAggregationBenchmark(ExecutorService executor, TpchBlocksProvider tpchBlocksProvider, String benchmarkName, String groupByColumn)
+    {
+        super(executor, tpchBlocksProvider, benchmarkName, 5, 25);
+        this.groupByColumn = groupByColumn;
     }
 
     @Override
     protected List<? extends OperatorFactory> createOperatorFactories()
     {
-        BlockIterable orderStatusBlockIterable = getBlockIterable("orders", "orderstatus", BlocksFileEncoding.RAW);
+        BlockIterable groupByBlockIterable = getBlockIterable("orders", groupByColumn, BlocksFileEncoding.RAW);
         BlockIterable totalPriceBlockIterable = getBlockIterable("orders", "totalprice", BlocksFileEncoding.RAW);
 
-        AlignmentOperatorFactory alignmentOperator = new AlignmentOperatorFactory(0, orderStatusBlockIterable, totalPriceBlockIterable);
+        AlignmentOperatorFactory alignmentOperator = new AlignmentOperatorFactory(0, groupByBlockIterable, totalPriceBlockIterable);
         HashAggregationOperatorFactory aggregationOperator = new HashAggregationOperatorFactory(1,
-                alignmentOperator.getTupleInfos().get(0),
-                0,
+                ImmutableList.of(alignmentOperator.getTupleInfos().get(0)),
+                ImmutableList.of(0),
                 Step.SINGLE,
                 ImmutableList.of(aggregation(DOUBLE_SUM, new Input(1, 0))),
                 100_000);
@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.benchmark;
+
+import com.facebook.presto.operator.scalar.JsonExtract;
+import com.facebook.presto.operator.scalar.JsonExtract.JsonExtractor;
+import com.facebook.presto.operator.scalar.JsonPathScanner;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static com.facebook.presto.operator.scalar.JsonExtract.generateExtractor;
+import static com.google.common.base.Charsets.UTF_8;
+
+/**
+ * Compares json_extract_scalar with the {@link JsonPathScanner} against the parser based
+ * {@link JsonExtractor} chain, on event like documents where the extracted field comes after
+ * a few nested values.
+ */
+public class JsonExtractBenchmark
+        extends AbstractBenchmark
+{
+    private static final int DOCUMENT_COUNT = 10_000;
+    private static final String PATH = "$.context.user.id";
+
+    private final boolean useScanner;
+    private final JsonPathScanner scanner = new JsonPathScanner(PATH, true);
+    private final JsonExtractor extractor = generateExtractor(PATH, true);
+    private List<Slice> documents;
+
+    public JsonExtractBenchmark(boolean useScanner)
+    {
+        super("json_extract_scalar_" + (useScanner ? "scanner" : "parser"), 10, 50);
+        this.useScanner = useScanner;
+    }
+
+    @Override
+    protected void setUp()
+    {
+        ImmutableList.Builder<Slice> documents = ImmutableList.builder();
+        for (int i = 0; i < DOCUMENT_COUNT; i++) {
+            String document = "{\"event\": \"page_view\", \"time\": " + (1_380_000_000L + i) + ", " +
+                    "\"headers\": {\"agent\": \"Mozilla/5.0 (X11; Linux x86_64)\", \"accept\": [\"text/html\", \"application/json\"]}, " +
+                    "\"tags\": [" + (i % 7) + ", " + (i % 11) + ", {\"name\": \"tag" + (i % 13) + "\"}], " +
+                    "\"context\": {\"session\": \"s" + i + "\", \"user\": {\"name\": \"user" + (i % 100) + "\", \"id\": " + (i % 1000) + "}}}";
+            documents.add(Slices.wrappedBuffer(document.getBytes(UTF_8)));
+        }
+        this.documents = documents.build();
+    }
+
+    @Override
+    protected Map<String, Long> runOnce()
+    {
+        long start = System.nanoTime();
+
+        long inputBytes = 0;
+        long outputBytes = 0;
+        for (Slice document : documents) {
+            inputBytes += document.length();
+            Slice value = extract(document);
+            if (value != null) {
+                outputBytes += value.length();
+            }
+        }
+
+        return ImmutableMap.<String, Long>builder()
+                .put("cpu_nanos", System.nanoTime() - start)
+                .put("input_rows", (long) documents.size())
+                .put("input_bytes", inputBytes)
+                .put("output_bytes", outputBytes)
+                .build();
+    }
+
+    private Slice extract(Slice document)
+    {
+        if (useScanner) {
+            return scanner.extract(document);
+        }
+        try {
+            return JsonExtract.extract(document, extractor);
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        new JsonExtractBenchmark(false).runBenchmark(new SimpleLineBenchmarkResultWriter(System.out));
+        new JsonExtractBenchmark(true).runBenchmark(new SimpleLineBenchmarkResultWriter(System.out));
+    }
+}
@@ -37,7 +37,12 @@ public class OrderByBenchmark
 
     public OrderByBenchmark(ExecutorService executor, TpchBlocksProvider tpchBlocksProvider)
     {
-        super(executor, tpchBlocksProvider, "in_memory_orderby_1.5M", 5, 10);
+        this(executor, tpchBlocksProvider, "in_memory_orderby_1.5M");
+    }
+
+    protected OrderByBenchmark(ExecutorService executor, TpchBlocksProvider tpchBlocksProvider, String benchmarkName)
+    {
+        super(executor, tpchBlocksProvider, benchmarkName, 5, 10);
     }
 
     @Override
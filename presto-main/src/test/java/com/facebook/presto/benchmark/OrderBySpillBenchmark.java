@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.benchmark;
+
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.execution.TaskStateMachine;
+import com.facebook.presto.operator.TaskContext;
+import com.facebook.presto.sql.analyzer.Session;
+import com.facebook.presto.tpch.TpchBlocksProvider;
+import com.google.common.base.Optional;
+import com.google.common.io.Files;
+import io.airlift.units.DataSize;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.util.Threads.daemonThreadsNamed;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+
+/**
+ * Runs the order by benchmark with a memory limit small enough that the
+ * sort must spill several sorted runs to disk and merge them.
+ */
+public class OrderBySpillBenchmark
+        extends OrderByBenchmark
+{
+    private final File spillPath;
+
+    public OrderBySpillBenchmark(ExecutorService executor, TpchBlocksProvider tpchBlocksProvider)
+    {
+        super(executor, tpchBlocksProvider, "orderby_spill_1.5M");
+        spillPath = Files.createTempDir();
+        spillPath.deleteOnExit();
+    }
+
+    @Override
+    protected TaskContext createTaskContext(ExecutorService executor, Session session)
+    {
+        return new TaskContext(
+                new TaskStateMachine(new TaskId("query", "stage", "task"), executor),
+                executor,
+                session,
+                new DataSize(16, MEGABYTE),
+                new DataSize(1, MEGABYTE),
+                false,
+                Optional.of(spillPath));
+    }
+
+    public static void main(String[] args)
+    {
+        ExecutorService executor = newCachedThreadPool(daemonThreadsNamed("test"));
+        new OrderBySpillBenchmark(executor, DEFAULT_TPCH_BLOCKS_PROVIDER).runBenchmark(
+                new SimpleLineBenchmarkResultWriter(System.out)
+        );
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.benchmark;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockBuilder;
+import com.facebook.presto.operator.Page;
+import com.facebook.presto.serde.BlocksFileEncoding;
+import com.facebook.presto.serde.BlocksFileReader;
+import com.facebook.presto.serde.PagesCompression;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.OutputSupplier;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static com.facebook.presto.serde.BlocksFileWriter.writeBlocks;
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_LONG;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Measures how fast pages of blocks in each {@link BlocksFileEncoding} are serialized and
+ * deserialized with each {@link PagesCompression} by the page transport between tasks.
+ * Input is the size of the pages and output is the size sent over the network.
+ */
+public class PagesSerdeBenchmark
+        extends AbstractBenchmark
+{
+    private static final int PAGE_COUNT = 100;
+    private static final int POSITIONS_PER_PAGE = 1024;
+
+    private final BlocksFileEncoding encoding;
+    private final PagesCompression compression;
+    private List<Page> pages;
+
+    public PagesSerdeBenchmark(BlocksFileEncoding encoding, PagesCompression compression)
+    {
+        super("pages_serde_" + encoding.getName() + "_" + compression.name().toLowerCase(), 10, 50);
+        this.encoding = checkNotNull(encoding, "encoding is null");
+        this.compression = checkNotNull(compression, "compression is null");
+    }
+
+    @Override
+    protected void setUp()
+    {
+        // low cardinality values in short runs, so every encoding has something to work with
+        BlockBuilder blockBuilder = new BlockBuilder(SINGLE_LONG);
+        for (int position = 0; position < POSITIONS_PER_PAGE; position++) {
+            blockBuilder.append((position / 4) % 64);
+        }
+        Block block = blockBuilder.build();
+
+        final DynamicSliceOutput blocksOutput = new DynamicSliceOutput(1024);
+        writeBlocks(encoding, new OutputSupplier<DynamicSliceOutput>()
+        {
+            @Override
+            public DynamicSliceOutput getOutput()
+            {
+                return blocksOutput;
+            }
+        }, block);
+
+        // some encodings split the values into several blocks, e.g. one per run, and all
+        // pages in a stream must share the dictionary, so the blocks are only read once
+        List<Block> encodedBlocks = ImmutableList.copyOf(BlocksFileReader.readBlocks(blocksOutput.slice()));
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
+        for (int i = 0; i < PAGE_COUNT; i++) {
+            for (Block encodedBlock : encodedBlocks) {
+                pages.add(new Page(encodedBlock));
+            }
+        }
+        this.pages = pages.build();
+    }
+
+    @Override
+    protected Map<String, Long> runOnce()
+    {
+        long inputPositions = 0;
+        long inputBytes = 0;
+        for (Page page : pages) {
+            inputPositions += page.getPositionCount();
+            inputBytes += page.getDataSize().toBytes();
+        }
+
+        long start = System.nanoTime();
+
+        DynamicSliceOutput sliceOutput = new DynamicSliceOutput(64 * 1024);
+        compression.writePages(sliceOutput, pages);
+        Slice data = sliceOutput.slice();
+
+        long positions = 0;
+        Iterator<Page> iterator = compression.readPages(data.getInput());
+        while (iterator.hasNext()) {
+            positions += iterator.next().getPositionCount();
+        }
+
+        return ImmutableMap.<String, Long>builder()
+                .put("cpu_nanos", System.nanoTime() - start)
+                .put("input_rows", inputPositions)
+                .put("input_bytes", inputBytes)
+                .put("output_rows", positions)
+                .put("output_bytes", (long) data.length())
+                .build();
+    }
+
+    public static void main(String[] args)
+    {
+        for (BlocksFileEncoding encoding : BlocksFileEncoding.values()) {
+            for (PagesCompression compression : PagesCompression.values()) {
+                new PagesSerdeBenchmark(encoding, compression).runBenchmark(
+                        new SimpleLineBenchmarkResultWriter(System.out)
+                );
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.benchmark;
+
+import com.facebook.presto.block.BlockIterable;
+import com.facebook.presto.operator.AlignmentOperator.AlignmentOperatorFactory;
+import com.facebook.presto.operator.Driver;
+import com.facebook.presto.operator.DriverFactory;
+import com.facebook.presto.operator.HashBuilderOperator.HashBuilderOperatorFactory;
+import com.facebook.presto.operator.InMemoryExchange;
+import com.facebook.presto.operator.InMemoryExchangeSourceOperator.InMemoryExchangeSourceOperatorFactory;
+import com.facebook.presto.operator.OperatorFactory;
+import com.facebook.presto.operator.PipelineContext;
+import com.facebook.presto.operator.TaskContext;
+import com.facebook.presto.serde.BlocksFileEncoding;
+import com.facebook.presto.tpch.TpchBlocksProvider;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.facebook.presto.util.Threads.daemonThreadsNamed;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+
+/**
+ * Builds the same hash as {@link HashBuildBenchmark}, but with the build spread over several
+ * drivers, each running in its own thread, so the build throughput can be compared by thread count.
+ */
+public class ParallelHashBuildBenchmark
+        extends AbstractOperatorBenchmark
+{
+    private final ExecutorService executor;
+    private final int buildConcurrency;
+
+    public ParallelHashBuildBenchmark(ExecutorService executor, TpchBlocksProvider tpchBlocksProvider, int buildConcurrency)
+    {
+        super(executor, tpchBlocksProvider, "hash_build_" + buildConcurrency + "_threads", 4, 5);
+        checkArgument(Integer.bitCount(buildConcurrency) == 1, "buildConcurrency must be a power of two");
+        this.executor = executor;
+        this.buildConcurrency = buildConcurrency;
+    }
+
+    @Override
+    protected List<Driver> createDrivers(TaskContext taskContext)
+    {
+        BlockIterable orderOrderKey = getBlockIterable("orders", "orderkey", BlocksFileEncoding.RAW);
+        BlockIterable totalPrice = getBlockIterable("orders", "totalprice", BlocksFileEncoding.RAW);
+
+        AlignmentOperatorFactory ordersTableScan = new AlignmentOperatorFactory(0, orderOrderKey, totalPrice);
+        InMemoryExchange exchange = new InMemoryExchange(ordersTableScan.getTupleInfos());
+        OperatorFactory exchangeSink = exchange.createSinkFactory(1);
+        exchange.noMoreSinkFactories();
+
+        DriverFactory tableScanDriverFactory = new DriverFactory(true, false, ordersTableScan, exchangeSink);
+        ImmutableList.Builder<Driver> drivers = ImmutableList.builder();
+        drivers.add(tableScanDriverFactory.createDriver(taskContext.addPipelineContext(true, false).addDriverContext()));
+        tableScanDriverFactory.close();
+
+        InMemoryExchangeSourceOperatorFactory exchangeSource = new InMemoryExchangeSourceOperatorFactory(0, exchange);
+        HashBuilderOperatorFactory hashBuilder = new HashBuilderOperatorFactory(1, ordersTableScan.getTupleInfos(), ImmutableList.of(0), 1_500_000 / buildConcurrency, buildConcurrency);
+        DriverFactory hashBuildDriverFactory = new DriverFactory(false, true, buildConcurrency, ImmutableList.<OperatorFactory>of(exchangeSource, hashBuilder));
+        PipelineContext pipelineContext = taskContext.addPipelineContext(false, true);
+        for (int i = 0; i < hashBuildDriverFactory.getDriverInstances(); i++) {
+            drivers.add(hashBuildDriverFactory.createDriver(pipelineContext.addDriverContext()));
+        }
+        hashBuildDriverFactory.close();
+
+        return drivers.build();
+    }
+
+    @Override
+    protected void execute(TaskContext taskContext)
+    {
+        // each driver gets a thread of its own
+        List<Future<?>> futures = new ArrayList<>();
+        for (final Driver driver : createDrivers(taskContext)) {
+            futures.add(executor.submit(new Callable<Void>()
+            {
+                @Override
+                public Void call()
+                        throws Exception
+                {
+                    while (!driver.isFinished()) {
+                        ListenableFuture<?> blocked = driver.process();
+                        blocked.get();
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        }
+        catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        ExecutorService executor = newCachedThreadPool(daemonThreadsNamed("test"));
+        for (int buildConcurrency : ImmutableList.of(1, 2, 4, 8)) {
+            new ParallelHashBuildBenchmark(executor, DEFAULT_TPCH_BLOCKS_PROVIDER, buildConcurrency).runBenchmark(
+                    new SimpleLineBenchmarkResultWriter(System.out)
+            );
+        }
+    }
+}
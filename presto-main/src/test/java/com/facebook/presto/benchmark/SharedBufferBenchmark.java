@@ -0,0 +1,167 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.benchmark;
+
+import com.facebook.presto.execution.BufferResult;
+import com.facebook.presto.execution.SharedBuffer;
+import com.facebook.presto.operator.Page;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.facebook.presto.operator.SequencePageBuilder.createSequencePage;
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_LONG;
+import static com.facebook.presto.util.Threads.daemonThreadsNamed;
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Measures the throughput of a {@link SharedBuffer} with several producer threads adding pages
+ * and a consumer thread polling each output queue, the way task output operators and remote
+ * exchange clients use the buffer.  The reported cpu time is the elapsed time of the run.
+ */
+public class SharedBufferBenchmark
+        extends AbstractBenchmark
+{
+    private static final int PAGES_PER_PRODUCER = 2_000;
+    private static final Page PAGE = createSequencePage(ImmutableList.of(SINGLE_LONG), 1024, 0);
+    private static final DataSize BUFFER_SIZE = new DataSize(8, MEGABYTE);
+    private static final DataSize MAX_RESPONSE_SIZE = new DataSize(1, MEGABYTE);
+    private static final Duration MAX_WAIT = new Duration(1, SECONDS);
+
+    private final ExecutorService executor;
+    private final boolean partitioned;
+    private final int producers;
+    private final int consumers;
+
+    public SharedBufferBenchmark(ExecutorService executor, boolean partitioned, int producers, int consumers)
+    {
+        super((partitioned ? "partitioned" : "broadcast") + "_buffer_" + producers + "_producers_" + consumers + "_consumers", 5, 10);
+        checkArgument(producers > 0, "producers must be at least 1");
+        checkArgument(consumers > 0, "consumers must be at least 1");
+        this.executor = executor;
+        this.partitioned = partitioned;
+        this.producers = producers;
+        this.consumers = consumers;
+    }
+
+    @Override
+    protected Map<String, Long> runOnce()
+    {
+        final SharedBuffer sharedBuffer = new SharedBuffer(BUFFER_SIZE, partitioned);
+        for (int consumer = 0; consumer < consumers; consumer++) {
+            sharedBuffer.addQueue(String.valueOf(consumer));
+        }
+        sharedBuffer.noMoreQueues();
+
+        long start = System.nanoTime();
+
+        List<Future<Long>> consumerFutures = new ArrayList<>();
+        for (int consumer = 0; consumer < consumers; consumer++) {
+            final String outputId = String.valueOf(consumer);
+            consumerFutures.add(executor.submit(new Callable<Long>()
+            {
+                @Override
+                public Long call()
+                        throws Exception
+                {
+                    long pages = 0;
+                    long sequenceId = 0;
+                    while (true) {
+                        BufferResult result = sharedBuffer.get(outputId, sequenceId, MAX_RESPONSE_SIZE, MAX_WAIT);
+                        if (result.isBufferClosed()) {
+                            return pages;
+                        }
+                        pages += result.size();
+                        sequenceId = result.getStartingSequenceId() + result.size();
+                    }
+                }
+            }));
+        }
+
+        List<Future<?>> producerFutures = new ArrayList<>();
+        for (int producer = 0; producer < producers; producer++) {
+            final int firstPartition = producer;
+            producerFutures.add(executor.submit(new Callable<Void>()
+            {
+                @Override
+                public Void call()
+                        throws Exception
+                {
+                    for (int i = 0; i < PAGES_PER_PRODUCER; i++) {
+                        if (partitioned) {
+                            sharedBuffer.enqueue((firstPartition + i) % consumers, PAGE).get();
+                        }
+                        else {
+                            sharedBuffer.enqueue(PAGE).get();
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        long outputPages = 0;
+        try {
+            for (Future<?> future : producerFutures) {
+                future.get();
+            }
+            sharedBuffer.finish();
+            for (Future<Long> future : consumerFutures) {
+                outputPages += future.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        }
+        catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        long inputPages = (long) producers * PAGES_PER_PRODUCER;
+        return ImmutableMap.<String, Long>builder()
+                .put("cpu_nanos", elapsedNanos)
+                .put("input_rows", inputPages * PAGE.getPositionCount())
+                .put("input_bytes", inputPages * PAGE.getDataSize().toBytes())
+                .put("output_rows", outputPages * PAGE.getPositionCount())
+                .put("output_bytes", outputPages * PAGE.getDataSize().toBytes())
+                .build();
+    }
+
+    public static void main(String[] args)
+    {
+        ExecutorService executor = newCachedThreadPool(daemonThreadsNamed("test"));
+        for (boolean partitioned : ImmutableList.of(false, true)) {
+            for (int consumers : ImmutableList.of(1, 4, 16)) {
+                new SharedBufferBenchmark(executor, partitioned, 4, consumers).runBenchmark(
+                        new SimpleLineBenchmarkResultWriter(System.out)
+                );
+            }
+        }
+    }
+}
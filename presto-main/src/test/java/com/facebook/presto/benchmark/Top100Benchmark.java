@@ -18,12 +18,9 @@ import com.facebook.presto.operator.AlignmentOperator.AlignmentOperatorFactory;
 import com.facebook.presto.operator.OperatorFactory;
 import com.facebook.presto.operator.TopNOperator.TopNOperatorFactory;
 import com.facebook.presto.serde.BlocksFileEncoding;
-import com.facebook.presto.sql.tree.SortItem;
 import com.facebook.presto.tpch.TpchBlocksProvider;
-import com.facebook.presto.tuple.FieldOrderedTupleComparator;
 import com.facebook.presto.tuple.TupleInfo.Type;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Ordering;
 
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -35,9 +32,17 @@ import static java.util.concurrent.Executors.newCachedThreadPool;
 public class Top100Benchmark
         extends AbstractSimpleOperatorBenchmark
 {
+    private final int n;
+
     public Top100Benchmark(ExecutorService executor, TpchBlocksProvider tpchBlocksProvider)
     {
-        super(executor, tpchBlocksProvider, "top100", 5, 50);
+        this(executor, tpchBlocksProvider, "top100", 100);
+    }
+
+    public Top100Benchmark(ExecutorService executor, TpchBlocksProvider tpchBlocksProvider, String benchmarkName, int n)
+    {
+        super(executor, tpchBlocksProvider, benchmarkName, 5, 50);
+        this.n = n;
     }
 
     @Override
@@ -47,10 +52,11 @@ public class Top100Benchmark
         AlignmentOperatorFactory alignmentOperator = new AlignmentOperatorFactory(0, blockIterable);
         TopNOperatorFactory topNOperator = new TopNOperatorFactory(
                 1,
-                100,
+                n,
                 0,
                 ImmutableList.of(singleColumn(Type.DOUBLE, 0, 0)),
-                Ordering.from(new FieldOrderedTupleComparator(ImmutableList.of(0), ImmutableList.of(SortItem.Ordering.DESCENDING))),
+                new int[] {0},
+                new boolean[] {false},
                 false);
         return ImmutableList.of(alignmentOperator, topNOperator);
     }
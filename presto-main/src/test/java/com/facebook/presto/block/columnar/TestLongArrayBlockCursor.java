@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.block.columnar;
+
+import com.facebook.presto.block.AbstractTestBlockCursor;
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockCursor;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.block.BlockAssertions.assertBlockEquals;
+import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
+import static com.facebook.presto.block.BlockUtils.toUncompressedBlock;
+import static io.airlift.testing.Assertions.assertInstanceOf;
+import static org.testng.Assert.assertEquals;
+
+public class TestLongArrayBlockCursor
+        extends AbstractTestBlockCursor
+{
+    @Override
+    protected Block createExpectedValues()
+    {
+        long[] values = {1111L, 1111L, 1111L, 2222L, 2222L, 2222L, 2222L, 2222L, 3333L, 3333L, 4444L};
+        return new LongArrayBlock(values, new boolean[values.length]);
+    }
+
+    @Test
+    public void testCursorType()
+    {
+        assertInstanceOf(createExpectedValues().cursor(), LongArrayBlockCursor.class);
+    }
+
+    @Test
+    public void testGetRegion()
+    {
+        Block block = createExpectedValues();
+
+        BlockCursor cursor = block.cursor();
+        cursor.advanceNextPosition();
+        Block region = cursor.getRegionAndAdvance(4);
+        assertInstanceOf(region, LongArrayBlock.class);
+        assertBlockEquals(region, createLongsBlock(1111L, 1111L, 2222L, 2222L));
+        assertEquals(cursor.getPosition(), 4);
+        assertEquals(cursor.getLong(0), 2222L);
+
+        region = block.getRegion(8, 3);
+        assertEquals(((LongArrayBlock) region).getLong(2), 4444L);
+        assertBlockEquals(region, createLongsBlock(3333L, 3333L, 4444L));
+    }
+
+    @Test
+    public void testToUncompressedBlock()
+    {
+        Block block = createExpectedValues();
+        assertBlockEquals(toUncompressedBlock(block), block);
+        assertBlockEquals(toUncompressedBlock(block.getRegion(3, 5)), createLongsBlock(2222L, 2222L, 2222L, 2222L, 2222L));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.block.columnar;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockCursor;
+import com.facebook.presto.block.uncompressed.AbstractTestSingleColumnBlockCursorWithNulls;
+import com.facebook.presto.tuple.Tuple;
+import io.airlift.slice.Slice;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestLongArrayBlockCursorWithNulls
+        extends AbstractTestSingleColumnBlockCursorWithNulls
+{
+    @Override
+    protected Block createExpectedValues()
+    {
+        long[] values = {0, 1111L, 0, 2222L, 0, 2222L, 0, 2222L, 0, 3333L, 0};
+        return new LongArrayBlock(values, alternatingNulls(values.length));
+    }
+
+    @Test
+    public void testRawTuples()
+    {
+        BlockCursor cursor = createTestCursor();
+        assertTrue(cursor.advanceNextPosition());
+        Slice rawSlice = cursor.getRawSlice();
+        do {
+            // the tuples of all positions share one slice
+            assertSame(cursor.getRawSlice(), rawSlice);
+            int rawOffset = cursor.getRawOffset();
+            Tuple tuple = new Tuple(rawSlice.slice(rawOffset, cursor.getTupleInfo().size(rawSlice, rawOffset)), cursor.getTupleInfo());
+            assertEquals(tuple, cursor.getTuple());
+        }
+        while (cursor.advanceNextPosition());
+    }
+
+    static boolean[] alternatingNulls(int positionCount)
+    {
+        boolean[] nulls = new boolean[positionCount];
+        for (int position = 0; position < positionCount; position += 2) {
+            nulls[position] = true;
+        }
+        return nulls;
+    }
+}
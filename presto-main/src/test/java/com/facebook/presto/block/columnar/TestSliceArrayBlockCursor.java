@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.block.columnar;
+
+import com.facebook.presto.block.AbstractTestBlockCursor;
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockCursor;
+import com.facebook.presto.tuple.Tuple;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+import org.testng.annotations.Test;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static io.airlift.testing.Assertions.assertInstanceOf;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestSliceArrayBlockCursor
+        extends AbstractTestBlockCursor
+{
+    @Override
+    protected Block createExpectedValues()
+    {
+        return createSliceArrayBlock("apple", "apple", "apple", "banana", "banana", "banana", "banana", "banana", "cherry", "cherry", "date");
+    }
+
+    @Test
+    public void testCursorType()
+    {
+        assertInstanceOf(createExpectedValues().cursor(), SliceArrayBlockCursor.class);
+    }
+
+    @Test
+    public void testRawTuples()
+    {
+        BlockCursor cursor = createTestCursor();
+        assertTrue(cursor.advanceNextPosition());
+        Slice rawSlice = cursor.getRawSlice();
+        do {
+            // the tuples of all positions share one slice
+            assertSame(cursor.getRawSlice(), rawSlice);
+            int rawOffset = cursor.getRawOffset();
+            Tuple tuple = new Tuple(rawSlice.slice(rawOffset, cursor.getTupleInfo().size(rawSlice, rawOffset)), cursor.getTupleInfo());
+            assertEquals(tuple, cursor.getTuple());
+        }
+        while (cursor.advanceNextPosition());
+    }
+
+    static SliceArrayBlock createSliceArrayBlock(String... values)
+    {
+        DynamicSliceOutput data = new DynamicSliceOutput(1024);
+        int[] offsets = new int[values.length + 1];
+        boolean[] nulls = new boolean[values.length];
+        for (int position = 0; position < values.length; position++) {
+            if (values[position] == null) {
+                nulls[position] = true;
+            }
+            else {
+                data.writeBytes(values[position].getBytes(UTF_8));
+            }
+            offsets[position + 1] = data.size();
+        }
+        return new SliceArrayBlock(data.slice(), offsets, nulls);
+    }
+}
@@ -31,7 +31,14 @@ public class TestQueryManagerConfig
                 .setMaxQueryHistory(100)
                 .setClientTimeout(new Duration(5, TimeUnit.MINUTES))
                 .setMaxPendingSplitsPerNode(100)
+                .setDistributedJoinsEnabled(false)
+                .setInitialHashPartitions(8)
+                .setDynamicPartitionPruningEnabled(false)
+                .setDynamicPartitionPruningMaxWait(new Duration(5, TimeUnit.SECONDS))
                 .setQueryManagerExecutorPoolSize(5)
+                .setMaxConcurrentQueries(1000)
+                .setMaxQueuedQueries(5000)
+                .setQueueConfigFile(null)
                 .setRemoteTaskMaxConsecutiveErrorCount(10)
                 .setRemoteTaskMinErrorDuration(new Duration(2, TimeUnit.MINUTES)));
     }
@@ -44,7 +51,14 @@ public class TestQueryManagerConfig
                 .put("query.max-age", "30s")
                 .put("query.max-history", "10")
                 .put("query.max-pending-splits-per-node", "33")
+                .put("query.distributed-joins-enabled", "true")
+                .put("query.initial-hash-partitions", "16")
+                .put("query.dynamic-partition-pruning-enabled", "true")
+                .put("query.dynamic-partition-pruning-max-wait", "1m")
                 .put("query.manager-executor-pool-size", "11")
+                .put("query.max-concurrent-queries", "10")
+                .put("query.max-queued-queries", "20")
+                .put("query.queue-config-file", "/etc/presto/queues.json")
                 .put("query.remote-task.max-consecutive-error-count", "300")
                 .put("query.remote-task.min-error-duration", "30s")
                 .build();
@@ -54,7 +68,14 @@ public class TestQueryManagerConfig
                 .setMaxQueryHistory(10)
                 .setClientTimeout(new Duration(10, TimeUnit.SECONDS))
                 .setMaxPendingSplitsPerNode(33)
+                .setDistributedJoinsEnabled(true)
+                .setInitialHashPartitions(16)
+                .setDynamicPartitionPruningEnabled(true)
+                .setDynamicPartitionPruningMaxWait(new Duration(1, TimeUnit.MINUTES))
                 .setQueryManagerExecutorPoolSize(11)
+                .setMaxConcurrentQueries(10)
+                .setMaxQueuedQueries(20)
+                .setQueueConfigFile("/etc/presto/queues.json")
                 .setRemoteTaskMaxConsecutiveErrorCount(300)
                 .setRemoteTaskMinErrorDuration(new Duration(30, TimeUnit.SECONDS));
 
@@ -0,0 +1,181 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.execution.StateMachine.StateChangeListener;
+import com.facebook.presto.sql.analyzer.Session;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.concurrent.Executor;
+
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestQueryQueue
+{
+    private static final Executor EXECUTOR = sameThreadExecutor();
+
+    @Test
+    public void testQueriesWaitForRunningQueries()
+    {
+        QueryQueue queue = new QueryQueue("test", 2, 10, null);
+
+        MockQueryExecution first = submit(queue, "first");
+        MockQueryExecution second = submit(queue, "second");
+        MockQueryExecution third = submit(queue, "third");
+
+        assertEquals(first.getState(), QueryState.PLANNING);
+        assertEquals(second.getState(), QueryState.PLANNING);
+        assertEquals(third.getState(), QueryState.QUEUED);
+        assertEquals(queue.getRunningQueries(), 2);
+        assertEquals(queue.getQueuedQueries(), 1);
+
+        first.finish();
+        assertEquals(third.getState(), QueryState.PLANNING);
+        assertEquals(queue.getRunningQueries(), 2);
+        assertEquals(queue.getQueuedQueries(), 0);
+        assertEquals(queue.getStartedQueries().getTotalCount(), 3);
+
+        second.finish();
+        third.finish();
+        assertEquals(queue.getRunningQueries(), 0);
+    }
+
+    @Test
+    public void testFullQueueRejectsQueries()
+    {
+        QueryQueue queue = new QueryQueue("test", 1, 1, null);
+
+        submit(queue, "running");
+        submit(queue, "queued");
+
+        MockQueryExecution rejected = new MockQueryExecution("rejected");
+        assertFalse(queue.submit(rejected, rejected.getStarter(), EXECUTOR));
+        assertEquals(rejected.getState(), QueryState.QUEUED);
+        assertEquals(queue.getRejectedQueries().getTotalCount(), 1);
+        assertEquals(queue.getQueuedQueries(), 1);
+    }
+
+    @Test
+    public void testCanceledQueryLeavesQueue()
+    {
+        QueryQueue queue = new QueryQueue("test", 1, 10, null);
+
+        MockQueryExecution running = submit(queue, "running");
+        MockQueryExecution canceled = submit(queue, "canceled");
+        MockQueryExecution queued = submit(queue, "queued");
+        assertEquals(queue.getQueuedQueries(), 2);
+
+        canceled.cancel();
+        assertEquals(queue.getQueuedQueries(), 1);
+
+        running.finish();
+        assertEquals(canceled.getState(), QueryState.CANCELED);
+        assertEquals(queued.getState(), QueryState.PLANNING);
+        assertEquals(queue.getStartedQueries().getTotalCount(), 2);
+    }
+
+    private static MockQueryExecution submit(QueryQueue queue, String queryId)
+    {
+        MockQueryExecution queryExecution = new MockQueryExecution(queryId);
+        assertTrue(queue.submit(queryExecution, queryExecution.getStarter(), EXECUTOR));
+        return queryExecution;
+    }
+
+    private static class MockQueryExecution
+            implements QueryExecution
+    {
+        private final QueryStateMachine stateMachine;
+
+        private MockQueryExecution(String queryId)
+        {
+            Session session = new Session("user", "test", Session.DEFAULT_CATALOG, Session.DEFAULT_SCHEMA, null, null);
+            stateMachine = new QueryStateMachine(new QueryId(queryId), "SELECT 1", session, URI.create("fake://fake-query"), EXECUTOR);
+        }
+
+        public QueryState getState()
+        {
+            return stateMachine.getQueryState();
+        }
+
+        public Runnable getStarter()
+        {
+            return new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    start();
+                }
+            };
+        }
+
+        public void finish()
+        {
+            stateMachine.finished();
+        }
+
+        @Override
+        public QueryInfo getQueryInfo()
+        {
+            return stateMachine.getQueryInfoWithoutDetails();
+        }
+
+        @Override
+        public Duration waitForStateChange(QueryState currentState, Duration maxWait)
+                throws InterruptedException
+        {
+            return stateMachine.waitForStateChange(currentState, maxWait);
+        }
+
+        @Override
+        public void start()
+        {
+            stateMachine.beginPlanning();
+        }
+
+        @Override
+        public void cancel()
+        {
+            stateMachine.cancel();
+        }
+
+        @Override
+        public void fail(Throwable cause)
+        {
+            stateMachine.fail(cause);
+        }
+
+        @Override
+        public void cancelStage(StageId stageId)
+        {
+        }
+
+        @Override
+        public void recordHeartbeat()
+        {
+            stateMachine.recordHeartbeat();
+        }
+
+        @Override
+        public void addStateChangeListener(StateChangeListener<QueryState> stateChangeListener)
+        {
+            stateMachine.addStateChangeListener(stateChangeListener);
+        }
+    }
+}
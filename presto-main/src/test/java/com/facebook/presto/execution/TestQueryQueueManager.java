@@ -0,0 +1,160 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.execution.QueryQueueManager.ManagerSpec;
+import com.facebook.presto.execution.QueryQueueManager.QueueSpec;
+import com.facebook.presto.execution.QueryQueueManager.RuleSpec;
+import com.facebook.presto.sql.analyzer.Session;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.json.JsonCodec;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.weakref.jmx.MBeanExporter;
+
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestQueryQueueManager
+{
+    private QueryQueueManager queueManager;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        ManagerSpec managerSpec = new ManagerSpec(
+                ImmutableMap.of(
+                        QueryQueueManager.GLOBAL_QUEUE_NAME, new QueueSpec(100, 1000, (DataSize) null),
+                        "dashboard", new QueueSpec(10, 100, (DataSize) null),
+                        "user.${USER}", new QueueSpec(5, 20, new DataSize(10, GIGABYTE))),
+                ImmutableList.of(
+                        new RuleSpec(null, "dashboard.*", "dashboard"),
+                        new RuleSpec("[a-z]+", null, "user.${USER}")));
+        queueManager = new QueryQueueManager(managerSpec, new MBeanExporter(ManagementFactory.getPlatformMBeanServer()));
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        queueManager.stop();
+    }
+
+    @Test
+    public void testQueueSelection()
+    {
+        QueryQueue dashboard = queueManager.getQueue(createSession("alice", "dashboard-refresh"));
+        assertEquals(dashboard.getName(), "dashboard");
+        assertEquals(dashboard.getMaxConcurrentQueries(), 10);
+        assertSame(queueManager.getQueue(createSession("bob", "dashboard-refresh")), dashboard);
+
+        QueryQueue alice = queueManager.getQueue(createSession("alice", "cli"));
+        assertEquals(alice.getName(), "user.alice");
+        assertEquals(alice.getMaxConcurrentQueries(), 5);
+        assertEquals(alice.getMaxQueuedQueries(), 20);
+        assertEquals(alice.getMaxMemory(), new DataSize(10, GIGABYTE));
+        assertSame(queueManager.getQueue(createSession("alice", null)), alice);
+
+        QueryQueue bob = queueManager.getQueue(createSession("bob", "cli"));
+        assertEquals(bob.getName(), "user.bob");
+
+        QueryQueue global = queueManager.getQueue(createSession("Carol", "cli"));
+        assertEquals(global.getName(), QueryQueueManager.GLOBAL_QUEUE_NAME);
+        assertEquals(global.getMaxConcurrentQueries(), 100);
+        assertNull(global.getMaxMemory());
+
+        assertEquals(queueManager.getQueues().size(), 4);
+    }
+
+    @Test
+    public void testIdleExpandedQueuesAreRemoved()
+            throws Exception
+    {
+        QueryQueue dashboard = queueManager.getQueue(createSession("alice", "dashboard-refresh"));
+        QueryQueue alice = queueManager.getQueue(createSession("alice", "cli"));
+        QueryQueue global = queueManager.getQueue(createSession("Carol", "cli"));
+        ObjectName aliceName = new ObjectName("com.facebook.presto.execution:type=QueryQueue,name=" + ObjectName.quote("user.alice"));
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(aliceName));
+
+        // recently used queues are kept
+        queueManager.removeIdleQueues(new Duration(1, TimeUnit.HOURS));
+        assertEquals(queueManager.getQueues().size(), 3);
+
+        // only the queue expanded from the user name is removed, the configured queues stay
+        queueManager.removeIdleQueues(new Duration(0, TimeUnit.MILLISECONDS));
+        assertEquals(ImmutableSet.copyOf(queueManager.getQueues()), ImmutableSet.of(dashboard, global));
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(aliceName));
+
+        // the next query of the user gets a new queue
+        QueryQueue newAlice = queueManager.getQueue(createSession("alice", "cli"));
+        assertNotSame(newAlice, alice);
+        assertEquals(newAlice.getName(), "user.alice");
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(aliceName));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRuleWithUndefinedQueue()
+    {
+        new QueryQueueManager(
+                new ManagerSpec(
+                        ImmutableMap.of(QueryQueueManager.GLOBAL_QUEUE_NAME, new QueueSpec(100, 1000, (DataSize) null)),
+                        ImmutableList.of(new RuleSpec("alice", null, "missing"))),
+                new MBeanExporter(ManagementFactory.getPlatformMBeanServer()));
+    }
+
+    @Test
+    public void testJsonSpec()
+    {
+        JsonCodec<ManagerSpec> codec = jsonCodec(ManagerSpec.class);
+        ManagerSpec managerSpec = codec.fromJson("" +
+                "{" +
+                "  \"queues\": {" +
+                "    \"global\": {\"maxConcurrent\": 100, \"maxQueued\": 1000}," +
+                "    \"user.${USER}\": {\"maxConcurrent\": 5, \"maxQueued\": 20, \"maxMemory\": \"10GB\"}" +
+                "  }," +
+                "  \"rules\": [{\"user\": \".*\", \"queue\": \"user.${USER}\"}]" +
+                "}");
+
+        QueueSpec userQueue = managerSpec.getQueues().get("user.${USER}");
+        assertEquals(userQueue.getMaxConcurrent(), 5);
+        assertEquals(userQueue.getMaxQueued(), 20);
+        assertEquals(userQueue.getMaxMemory(), new DataSize(10, GIGABYTE));
+        assertNull(managerSpec.getQueues().get("global").getMaxMemory());
+
+        RuleSpec rule = managerSpec.getRules().get(0);
+        assertEquals(rule.getUser(), ".*");
+        assertNull(rule.getSource());
+        assertEquals(rule.getQueue(), "user.${USER}");
+    }
+
+    private static Session createSession(String user, String source)
+    {
+        return new Session(user, source, Session.DEFAULT_CATALOG, Session.DEFAULT_SCHEMA, null, null);
+    }
+}
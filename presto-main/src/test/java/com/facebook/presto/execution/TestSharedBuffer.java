@@ -204,6 +204,48 @@ public class TestSharedBuffer
         assertBufferResultEquals(sharedBuffer.get("second", 14, sizeOfPages(10), NO_WAIT), emptyResults(14, true));
     }
 
+    @Test
+    public void testPartitioned()
+            throws Exception
+    {
+        SharedBuffer sharedBuffer = new SharedBuffer(sizeOfPages(3), true);
+        sharedBuffer.addQueue("second");
+        sharedBuffer.addQueue("first");
+
+        // partitions are not known until no more queues can be added
+        assertFalse(sharedBuffer.getNoMoreQueuesFuture().isDone());
+        sharedBuffer.noMoreQueues();
+        assertTrue(sharedBuffer.getNoMoreQueuesFuture().isDone());
+        assertEquals(sharedBuffer.getPartitionCount(), 2);
+
+        // partitions are assigned in queue id order
+        assertTrue(sharedBuffer.enqueue(0, createPage(0)).isDone());
+        assertTrue(sharedBuffer.enqueue(1, createPage(1)).isDone());
+        assertTrue(sharedBuffer.enqueue(0, createPage(2)).isDone());
+        assertQueueState(sharedBuffer, "first", 2, 0);
+        assertQueueState(sharedBuffer, "second", 1, 0);
+
+        // buffer is full
+        ListenableFuture<?> future = sharedBuffer.enqueue(1, createPage(3));
+        assertFalse(future.isDone());
+
+        assertBufferResultEquals(sharedBuffer.get("first", 0, sizeOfPages(10), NO_WAIT), bufferResult(0, createPage(0), createPage(2)));
+        assertBufferResultEquals(sharedBuffer.get("second", 0, sizeOfPages(10), NO_WAIT), bufferResult(0, createPage(1)));
+
+        // acknowledging pages of one partition frees space for the others
+        assertBufferResultEquals(sharedBuffer.get("first", 2, sizeOfPages(10), NO_WAIT), emptyResults(2, false));
+        assertQueueState(sharedBuffer, "first", 0, 2);
+        assertTrue(future.isDone());
+        assertBufferResultEquals(sharedBuffer.get("second", 1, sizeOfPages(10), NO_WAIT), bufferResult(1, createPage(3)));
+
+        sharedBuffer.finish();
+        assertBufferResultEquals(sharedBuffer.get("first", 2, sizeOfPages(10), NO_WAIT), emptyResults(2, true));
+        // second queue is closed once the last page is acknowledged
+        assertBufferResultEquals(sharedBuffer.get("second", 2, sizeOfPages(10), NO_WAIT), emptyResults(2, false));
+        assertBufferResultEquals(sharedBuffer.get("second", 2, sizeOfPages(10), NO_WAIT), emptyResults(2, true));
+        assertFinished(sharedBuffer);
+    }
+
     @Test
     public void testDuplicateRequests()
             throws Exception
@@ -101,6 +101,8 @@ public class TestSqlStageExecution
                     new NodeScheduler(nodeManager, new NodeSchedulerConfig()), new MockRemoteTaskFactory(executor),
                     SESSION,
                     1,
+                    8,
+                    new Duration(5, TimeUnit.SECONDS),
                     executor);
 
             stageExecution.addOutputBuffer("out");
@@ -152,6 +154,49 @@ public class TestSqlStageExecution
         }
     }
 
+    @Test
+    public void testSplitsScheduledInBatches()
+            throws Exception
+    {
+        ExecutorService executor = Executors.newCachedThreadPool(Threads.daemonThreadsNamed("test"));
+        SqlStageExecution stageExecution = null;
+        try {
+            MetadataManager metadata = new MetadataManager();
+            metadata.addInternalSchemaMetadata(MetadataManager.INTERNAL_CONNECTOR_ID, new DualMetadata());
+
+            StageExecutionPlan tableScanPlan = createTableScanPlan("test", metadata, 50);
+
+            InMemoryNodeManager nodeManager = new InMemoryNodeManager();
+            nodeManager.addNode("foo", new Node("other", URI.create("http://127.0.0.1:11"), NodeVersion.UNKNOWN));
+
+            stageExecution = new SqlStageExecution(new QueryId("query"),
+                    new MockLocationFactory(),
+                    tableScanPlan,
+                    new NodeScheduler(nodeManager, new NodeSchedulerConfig()), new MockRemoteTaskFactory(executor),
+                    SESSION,
+                    1000,
+                    8,
+                    new Duration(5, TimeUnit.SECONDS),
+                    executor);
+
+            stageExecution.addOutputBuffer("out");
+            stageExecution.noMoreOutputBuffers();
+
+            // all splits fit on the node, so scheduling must finish without waiting for the tasks
+            stageExecution.start().get(1, TimeUnit.SECONDS);
+
+            StageStats stageStats = stageExecution.getStageInfo().getStageStats();
+            assertEquals(stageStats.getGetSplitDistribution().getCount(), 50.0);
+            assertEquals(stageStats.getAddSplitDistribution().getCount(), 50.0);
+        }
+        finally {
+            if (stageExecution != null) {
+                stageExecution.cancel(false);
+            }
+            executor.shutdownNow();
+        }
+    }
+
     private StageExecutionPlan createJoinPlan(String planId, MetadataManager metadata)
     {
         // create table scan for build data with a single split, so it is only waiting on the no-more buffers call
@@ -285,10 +330,10 @@ public class TestSqlStageExecution
             }
 
             @Override
-            public void addSplit(Split split)
+            public synchronized void addSplits(List<Split> splits)
             {
-                checkNotNull(split, "split is null");
-                splits++;
+                checkNotNull(splits, "splits is null");
+                this.splits += splits.size();
             }
 
             @Override
@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.importer;
+
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+
+public class TestImportJobStats
+{
+    @Test
+    public void testRates()
+    {
+        ImportJobStats stats = new ImportJobStats();
+        stats.recordRun(1000, 4000, new Duration(2, SECONDS));
+
+        assertEquals(stats.getRowsPerSecond(), 500.0);
+        assertEquals(stats.getBytesPerSecond(), 2000.0);
+    }
+
+    @Test
+    public void testRatesAreOfLastRun()
+    {
+        ImportJobStats stats = new ImportJobStats();
+        stats.recordRun(1000, 4000, new Duration(2, SECONDS));
+        stats.recordRun(300, 600, new Duration(3, SECONDS));
+
+        assertEquals(stats.getRuns(), 2);
+        assertEquals(stats.getImportedRows(), 1300);
+        assertEquals(stats.getProcessedBytes(), 4600);
+        assertEquals(stats.getLastImportedRows(), 300);
+        assertEquals(stats.getLastProcessedBytes(), 600);
+        assertEquals(stats.getRowsPerSecond(), 100.0);
+        assertEquals(stats.getBytesPerSecond(), 200.0);
+    }
+
+    @Test
+    public void testNoRunTime()
+    {
+        ImportJobStats stats = new ImportJobStats();
+        assertEquals(stats.getRowsPerSecond(), 0.0);
+        assertEquals(stats.getBytesPerSecond(), 0.0);
+
+        stats.recordRun(10, 20, new Duration(0, MILLISECONDS));
+        assertEquals(stats.getRowsPerSecond(), 0.0);
+        assertEquals(stats.getBytesPerSecond(), 0.0);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.importer;
+
+import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.importer.JobStateFactory.JobState;
+import com.facebook.presto.importer.PeriodicImportRunnable.PeriodicImportRunnableFactory;
+import com.facebook.presto.metadata.InMemoryNodeManager;
+import com.facebook.presto.metadata.QualifiedTableName;
+import com.google.common.base.Function;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.testing.TestingHttpClient;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.weakref.jmx.MBeanExporter;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.util.Threads.daemonThreadsNamed;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestJobStateFactory
+{
+    private ExecutorService executor;
+    private JobStateFactory jobStateFactory;
+    private MBeanServer mbeanServer;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-%s"));
+        mbeanServer = ManagementFactory.getPlatformMBeanServer();
+
+        // the jobs are scheduled with an initial delay of at least ten seconds, so the runnable never talks to the client
+        PeriodicImportRunnableFactory runnableFactory = new PeriodicImportRunnableFactory(
+                new MockPeriodicImportManager(),
+                new InMemoryNodeManager(),
+                new TestingHttpClient(new Function<Request, Response>()
+                {
+                    @Override
+                    public Response apply(Request request)
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                }, executor),
+                jsonCodec(QueryResults.class));
+        jobStateFactory = new JobStateFactory(new PeriodicImportConfig(), runnableFactory, new MBeanExporter(mbeanServer));
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        if (jobStateFactory != null) {
+            jobStateFactory.shutdown();
+            jobStateFactory = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Test
+    public void testStatsExportedWhileScheduled()
+            throws Exception
+    {
+        JobState jobState = jobStateFactory.forImportJob(new PersistentPeriodicImportJob(42, new QualifiedTableName("src", "default", "orders"), new QualifiedTableName("dst", "default", "orders"), 3600));
+        ObjectName objectName = new ObjectName("com.facebook.presto.importer:type=ImportJob,name=" + ObjectName.quote("42"));
+
+        assertFalse(mbeanServer.isRegistered(objectName));
+
+        jobState.schedule();
+        assertTrue(mbeanServer.isRegistered(objectName));
+
+        // scheduling again does not export twice
+        jobState.schedule();
+        assertTrue(mbeanServer.isRegistered(objectName));
+
+        jobState.cancel(true);
+        assertFalse(mbeanServer.isRegistered(objectName));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.importer;
+
+import com.facebook.presto.client.Column;
+import com.facebook.presto.client.QueryError;
+import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.client.StatementStats;
+import com.facebook.presto.importer.JobStateFactory.JobState;
+import com.facebook.presto.importer.PeriodicImportRunnable.PeriodicImportRunnableFactory;
+import com.facebook.presto.metadata.InMemoryNodeManager;
+import com.facebook.presto.metadata.QualifiedTableName;
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import io.airlift.http.client.HttpStatus;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.testing.TestingHttpClient;
+import io.airlift.http.client.testing.TestingResponse;
+import io.airlift.json.JsonCodec;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.weakref.jmx.MBeanExporter;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.util.Threads.daemonThreadsNamed;
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestPeriodicImportRunnable
+{
+    private static final JsonCodec<QueryResults> QUERY_RESULTS_CODEC = jsonCodec(QueryResults.class);
+    private static final URI SERVER_URI = URI.create("http://localhost:8080");
+    private static final URI NEXT_URI = URI.create("http://localhost:8080/v1/statement/test/1");
+    private static final List<Column> COLUMNS = ImmutableList.of(new Column("rows", "bigint"));
+
+    private ExecutorService executor;
+    private JobStateFactory jobStateFactory;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-%s"));
+
+        // job states are only used to record stats, the runnables below are run directly
+        PeriodicImportRunnableFactory runnableFactory = new PeriodicImportRunnableFactory(
+                new MockPeriodicImportManager(),
+                new InMemoryNodeManager(SERVER_URI),
+                new TestingHttpClient(new QueryResultsProcessor(), executor),
+                QUERY_RESULTS_CODEC);
+        jobStateFactory = new JobStateFactory(new PeriodicImportConfig(), runnableFactory, new MBeanExporter(ManagementFactory.getPlatformMBeanServer()));
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        if (jobStateFactory != null) {
+            jobStateFactory.shutdown();
+            jobStateFactory = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Test
+    public void testImportedRowsAreSummed()
+    {
+        QueryResults first = queryResults(NEXT_URI, ImmutableList.<List<Object>>of(ImmutableList.<Object>of(3)), 0, null);
+        QueryResults last = queryResults(null, ImmutableList.<List<Object>>of(ImmutableList.<Object>of(4), ImmutableList.<Object>of(5)), 1234, null);
+        JobState jobState = createJobState();
+
+        createRunnable(jobState, first, last).doRun();
+
+        ImportJobStats stats = jobState.getStats();
+        assertEquals(stats.getRuns(), 1);
+        assertEquals(stats.getImportedRows(), 12);
+        assertEquals(stats.getLastImportedRows(), 12);
+        assertEquals(stats.getProcessedBytes(), 1234);
+    }
+
+    @Test
+    public void testFailurePropagates()
+    {
+        QueryResults failed = queryResults(null, null, 0, new QueryError("table is gone", null, 0, null, null));
+        JobState jobState = createJobState();
+
+        try {
+            createRunnable(jobState, failed).doRun();
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("table is gone"), e.getMessage());
+        }
+
+        // a failed run is not recorded
+        assertEquals(jobState.getStats().getRuns(), 0);
+    }
+
+    private JobState createJobState()
+    {
+        return jobStateFactory.forImportJob(new PersistentPeriodicImportJob(1, new QualifiedTableName("src", "default", "orders"), new QualifiedTableName("dst", "default", "orders"), 3600));
+    }
+
+    private PeriodicImportRunnable createRunnable(JobState jobState, QueryResults... responses)
+    {
+        return new PeriodicImportRunnable(
+                new MockPeriodicImportManager(),
+                jobState,
+                new InMemoryNodeManager(SERVER_URI),
+                new TestingHttpClient(new QueryResultsProcessor(responses), executor),
+                QUERY_RESULTS_CODEC);
+    }
+
+    private static QueryResults queryResults(URI nextUri, List<List<Object>> data, long processedBytes, QueryError error)
+    {
+        StatementStats stats = StatementStats.builder()
+                .setState(nextUri == null ? "FINISHED" : "RUNNING")
+                .setProcessedBytes(processedBytes)
+                .build();
+        return new QueryResults("test", URI.create("http://localhost:8080/v1/query/test"), null, nextUri, COLUMNS, data, stats, error);
+    }
+
+    /**
+     * Answers the statement request and each following request with the next of the given results.
+     */
+    private static class QueryResultsProcessor
+            implements Function<Request, Response>
+    {
+        private final List<QueryResults> responses;
+        private int next;
+
+        private QueryResultsProcessor(QueryResults... responses)
+        {
+            this.responses = ImmutableList.copyOf(responses);
+        }
+
+        @Override
+        public synchronized Response apply(Request request)
+        {
+            if (request.getMethod().equalsIgnoreCase("DELETE")) {
+                return new TestingResponse(HttpStatus.NO_CONTENT, ImmutableListMultimap.<String, String>of(), new byte[0]);
+            }
+            String json = QUERY_RESULTS_CODEC.toJson(responses.get(next++));
+            return new TestingResponse(HttpStatus.OK, ImmutableListMultimap.of(CONTENT_TYPE, "application/json"), json.getBytes(Charsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.facebook.presto.execution.QueryId;
+import com.facebook.presto.metadata.InMemoryNodeManager;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.testing.TestingHttpClient;
+import io.airlift.units.DataSize;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.util.Threads.daemonThreadsNamed;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestClusterMemoryManager
+{
+    private static final QueryId QUERY_A = new QueryId("a");
+    private static final QueryId QUERY_B = new QueryId("b");
+    private static final QueryId QUERY_C = new QueryId("c");
+
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-%s"));
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testQueryReservationsAreSummedOverNodes()
+    {
+        ClusterMemoryManager memoryManager = createMemoryManager(new MemoryManagerConfig());
+        memoryManager.updateNodeMemoryPool("node1", new MemoryPoolInfo(100, 50, ImmutableMap.of(QUERY_A, 20L, QUERY_B, 30L)));
+        memoryManager.updateNodeMemoryPool("node2", new MemoryPoolInfo(100, 40, ImmutableMap.of(QUERY_A, 40L)));
+
+        assertEquals(memoryManager.getQueryMemoryReservations(), ImmutableMap.of(QUERY_A, 60L, QUERY_B, 30L));
+        assertEquals(memoryManager.getClusterMaxBytes(), 200);
+        assertEquals(memoryManager.getClusterReservedBytes(), 90);
+        assertEquals(memoryManager.getOutOfMemoryNodes(), 0);
+    }
+
+    @Test
+    public void testKillQueryExceedingMaxMemory()
+    {
+        ClusterMemoryManager memoryManager = createMemoryManager(new MemoryManagerConfig().setMaxQueryMemory(new DataSize(50, BYTE)));
+        memoryManager.updateNodeMemoryPool("node1", new MemoryPoolInfo(100, 50, ImmutableMap.of(QUERY_A, 20L, QUERY_B, 30L)));
+        memoryManager.updateNodeMemoryPool("node2", new MemoryPoolInfo(100, 40, ImmutableMap.of(QUERY_A, 40L)));
+
+        assertEquals(memoryManager.getQueriesToKill(ImmutableSet.of(QUERY_A, QUERY_B)).keySet(), ImmutableSet.of(QUERY_A));
+
+        // finished queries are not killed again
+        assertTrue(memoryManager.getQueriesToKill(ImmutableSet.of(QUERY_B)).isEmpty());
+    }
+
+    @Test
+    public void testKillLargestQueryOnExhaustedNode()
+    {
+        ClusterMemoryManager memoryManager = createMemoryManager(new MemoryManagerConfig().setKillOnOutOfMemory(true));
+        memoryManager.updateNodeMemoryPool("node1", new MemoryPoolInfo(100, 120, ImmutableMap.of(QUERY_A, 20L, QUERY_B, 70L, QUERY_C, 30L)));
+        memoryManager.updateNodeMemoryPool("node2", new MemoryPoolInfo(100, 90, ImmutableMap.of(QUERY_A, 90L)));
+
+        Set<QueryId> runningQueries = ImmutableSet.of(QUERY_A, QUERY_B, QUERY_C);
+        Map<QueryId, ExceededMemoryLimitException> queriesToKill = memoryManager.getQueriesToKill(runningQueries);
+        assertEquals(queriesToKill.keySet(), ImmutableSet.of(QUERY_B));
+        assertEquals(memoryManager.getOutOfMemoryNodes(), 1);
+
+        // wait for the memory of the killed query to be freed before killing another query
+        assertTrue(memoryManager.getQueriesToKill(ImmutableSet.of(QUERY_A, QUERY_C)).isEmpty());
+
+        // the killer is disabled by default
+        memoryManager = createMemoryManager(new MemoryManagerConfig());
+        memoryManager.updateNodeMemoryPool("node1", new MemoryPoolInfo(100, 120, ImmutableMap.of(QUERY_A, 20L, QUERY_B, 70L, QUERY_C, 30L)));
+        assertTrue(memoryManager.getQueriesToKill(runningQueries).isEmpty());
+    }
+
+    private ClusterMemoryManager createMemoryManager(MemoryManagerConfig config)
+    {
+        TestingHttpClient httpClient = new TestingHttpClient(new Function<Request, Response>()
+        {
+            @Override
+            public Response apply(Request request)
+            {
+                throw new UnsupportedOperationException();
+            }
+        }, executor);
+        return new ClusterMemoryManager(new InMemoryNodeManager(), httpClient, jsonCodec(MemoryPoolInfo.class), config);
+    }
+}
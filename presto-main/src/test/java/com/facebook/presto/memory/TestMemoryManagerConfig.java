@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.configuration.testing.ConfigAssertions;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+
+public class TestMemoryManagerConfig
+{
+    @Test
+    public void testDefaults()
+    {
+        ConfigAssertions.assertRecordedDefaults(ConfigAssertions.recordDefaults(MemoryManagerConfig.class)
+                .setMaxQueryMemory(new DataSize(20, GIGABYTE))
+                .setMaxNodeMemory(new DataSize(1, GIGABYTE))
+                .setKillOnOutOfMemory(false)
+                .setUpdateInterval(new Duration(1, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    public void testExplicitPropertyMappings()
+    {
+        Map<String, String> properties = new ImmutableMap.Builder<String, String>()
+                .put("query.max-memory", "2GB")
+                .put("memory.max-node-memory", "512MB")
+                .put("memory.kill-on-out-of-memory", "true")
+                .put("memory.update-interval", "5s")
+                .build();
+
+        MemoryManagerConfig expected = new MemoryManagerConfig()
+                .setMaxQueryMemory(new DataSize(2, GIGABYTE))
+                .setMaxNodeMemory(new DataSize(512, MEGABYTE))
+                .setKillOnOutOfMemory(true)
+                .setUpdateInterval(new Duration(5, TimeUnit.SECONDS));
+
+        ConfigAssertions.assertFullMapping(properties, expected);
+    }
+}
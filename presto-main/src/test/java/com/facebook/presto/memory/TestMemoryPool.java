@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.facebook.presto.execution.QueryId;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
+import org.testng.annotations.Test;
+
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static org.testng.Assert.assertEquals;
+
+public class TestMemoryPool
+{
+    private static final QueryId QUERY_A = new QueryId("a");
+    private static final QueryId QUERY_B = new QueryId("b");
+
+    @Test
+    public void testReservations()
+    {
+        MemoryPool pool = new MemoryPool(new DataSize(100, BYTE));
+
+        pool.reserve(QUERY_A, 30);
+        pool.reserve(QUERY_B, 50);
+        pool.reserve(QUERY_A, 40);
+        assertEquals(pool.getReservedBytes(), 120);
+        assertEquals(pool.getFreeBytes(), -20);
+        assertEquals(pool.getInfo().getQueryReservations(), ImmutableMap.of(QUERY_A, 70L, QUERY_B, 50L));
+
+        pool.free(QUERY_A, 70);
+        pool.free(QUERY_B, 10);
+        MemoryPoolInfo info = pool.getInfo();
+        assertEquals(info.getMaxBytes(), 100);
+        assertEquals(info.getReservedBytes(), 40);
+        assertEquals(info.getQueryReservations(), ImmutableMap.of(QUERY_B, 40L));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testFreeMoreThanReserved()
+    {
+        MemoryPool pool = new MemoryPool(new DataSize(100, BYTE));
+        pool.reserve(QUERY_A, 10);
+        pool.free(QUERY_A, 20);
+    }
+}
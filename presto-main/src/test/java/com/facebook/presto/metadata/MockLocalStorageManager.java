@@ -58,6 +58,12 @@ public class MockLocalStorageManager
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public ShardColumnStats getColumnStats(long shardId, ColumnHandle columnHandle)
+    {
+        return null;
+    }
+
     @Override
     public boolean shardExists(long shardId)
     {
@@ -20,6 +20,8 @@ import com.facebook.presto.operator.Operator;
 import com.facebook.presto.operator.OperatorAssertion;
 import com.facebook.presto.operator.Page;
 import com.facebook.presto.operator.TaskContext;
+import com.facebook.presto.serde.BlocksFileEncoding;
+import com.facebook.presto.serde.BlocksFileStats;
 import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.sql.analyzer.Session;
 import com.facebook.presto.util.MaterializedResult;
@@ -141,6 +143,14 @@ public class TestDatabaseLocalStorageManager
         assertTrue(Iterables.isEmpty(storageManager.getBlocks(shardId, columnHandles.get(0))));
     }
 
+    @Test
+    public void testChooseEncoding()
+    {
+        assertEquals(DatabaseLocalStorageManager.chooseEncoding(new BlocksFileStats(1000, 1000, 1, 10)), BlocksFileEncoding.DIC_ADAPTIVE);
+        assertEquals(DatabaseLocalStorageManager.chooseEncoding(new BlocksFileStats(10_000, 100, 100, Integer.MAX_VALUE)), BlocksFileEncoding.ADAPTIVE);
+        assertEquals(DatabaseLocalStorageManager.chooseEncoding(new BlocksFileStats(10_000, 10_000, 1, Integer.MAX_VALUE)), BlocksFileEncoding.SNAPPY);
+    }
+
     @Test
     public void testShardPath()
     {
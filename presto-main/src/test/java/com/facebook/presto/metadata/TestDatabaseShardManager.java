@@ -15,8 +15,10 @@ package com.facebook.presto.metadata;
 
 import com.facebook.presto.spi.PartitionKey;
 import com.facebook.presto.spi.TableHandle;
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import com.google.common.io.Files;
 import io.airlift.testing.FileUtils;
@@ -74,8 +76,8 @@ public class TestDatabaseShardManager
         assertNotNull(shardNodes);
         assertEquals(shardNodes.size(), 0);
 
-        shardManager.commitPartition(tableHandle, "some-partition", ImmutableList.<PartitionKey>of(), ImmutableMap.of(shardId1, "some-node"));
-        shardManager.commitPartition(tableHandle, "some-other-partition", ImmutableList.<PartitionKey>of(), ImmutableMap.of(shardId2, "some-node"));
+        shardManager.commitPartition(tableHandle, "some-partition", Optional.<String>absent(), ImmutableList.<PartitionKey>of(), ImmutableMap.of(shardId1, "some-node"));
+        shardManager.commitPartition(tableHandle, "some-other-partition", Optional.<String>absent(), ImmutableList.<PartitionKey>of(), ImmutableMap.of(shardId2, "some-node"));
 
         shardNodes = shardManager.getCommittedShardNodesByTableId(tableHandle);
         assertNotNull(shardNodes);
@@ -95,4 +97,27 @@ public class TestDatabaseShardManager
         Collection<Entry<Long, String>> partitionShards = allShardNodes.get(partitionId);
         assertEquals(partitionShards.size(), 1);
     }
+
+    @Test
+    public void testReplacePartition()
+            throws Exception
+    {
+        TableHandle tableHandle = new NativeTableHandle("demo", "test", 1);
+        long shardId1 = shardManager.allocateShard(tableHandle);
+        long shardId2 = shardManager.allocateShard(tableHandle);
+
+        shardManager.commitPartition(tableHandle, "ds=1", Optional.of("v1"), ImmutableList.<PartitionKey>of(), ImmutableMap.of(shardId1, "some-node"));
+        assertEquals(shardManager.getPartitionVersions(tableHandle), ImmutableMap.of("ds=1", "v1"));
+
+        // committing the partition again replaces its shards and version
+        shardManager.commitPartition(tableHandle, "ds=1", Optional.of("v2"), ImmutableList.<PartitionKey>of(), ImmutableMap.of(shardId2, "some-node"));
+        assertEquals(shardManager.getPartitionVersions(tableHandle), ImmutableMap.of("ds=1", "v2"));
+        assertEquals(shardManager.getPartitions(tableHandle).size(), 1);
+        assertEquals(ImmutableSet.copyOf(shardManager.getShardNodes(1, "ds=1").keySet()), ImmutableSet.of(shardId2));
+        assertEquals(ImmutableList.copyOf(shardManager.getOrphanedShardIds(Optional.of("some-node"))), ImmutableList.of(shardId1));
+
+        shardManager.dropPartition(tableHandle, "ds=1");
+        assertEquals(shardManager.getPartitionVersions(tableHandle), ImmutableMap.of());
+        assertEquals(shardManager.getPartitions(tableHandle).size(), 0);
+    }
 }
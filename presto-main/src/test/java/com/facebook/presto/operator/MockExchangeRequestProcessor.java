@@ -14,7 +14,7 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.client.PrestoHeaders;
-import com.facebook.presto.serde.PagesSerde;
+import com.facebook.presto.serde.PagesCompression;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableListMultimap;
 import io.airlift.http.client.HttpStatus;
@@ -34,6 +34,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import static com.facebook.presto.PrestoMediaTypes.PRESTO_PAGES;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_COMPRESSION;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_SEQUENCE_ID;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
@@ -129,13 +130,15 @@ public class MockExchangeRequestProcessor
         // update sequence id
         sequenceIdByLocation.put(location, sequenceId + responsePages.size());
 
+        PagesCompression compression = PagesCompression.fromHeader(request.getHeader(PRESTO_PAGE_COMPRESSION));
         DynamicSliceOutput sliceOutput = new DynamicSliceOutput(64);
-        PagesSerde.writePages(sliceOutput, responsePages);
+        compression.writePages(sliceOutput, responsePages);
         byte[] bytes = sliceOutput.slice().getBytes();
         return new TestingResponse(HttpStatus.OK,
                 ImmutableListMultimap.of(
                         CONTENT_TYPE, PRESTO_PAGES,
-                        PRESTO_PAGE_SEQUENCE_ID, String.valueOf(sequenceId)
+                        PRESTO_PAGE_SEQUENCE_ID, String.valueOf(sequenceId),
+                        PRESTO_PAGE_COMPRESSION, compression.name()
                 ),
                 bytes);
     }
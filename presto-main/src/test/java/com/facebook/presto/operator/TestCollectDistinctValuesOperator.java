@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.operator.CollectDistinctValuesOperator.CollectDistinctValuesOperatorFactory;
+import com.facebook.presto.sql.analyzer.Session;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.facebook.presto.tuple.TupleInfo;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.operator.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_LONG;
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_VARBINARY;
+import static com.facebook.presto.util.Threads.daemonThreadsNamed;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+
+public class TestCollectDistinctValuesOperator
+{
+    private static final PlanNodeId SINK_ID = new PlanNodeId("sink");
+
+    private ExecutorService executor;
+    private TaskContext taskContext;
+    private DriverContext driverContext;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test"));
+        Session session = new Session("user", "source", "catalog", "schema", "address", "agent");
+        taskContext = new TaskContext(new TaskId("query", "stage", "task"), executor, session);
+        driverContext = taskContext
+                .addPipelineContext(true, true)
+                .addDriverContext();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testCollectDistinctValues()
+            throws Exception
+    {
+        List<Page> input = rowPagesBuilder(SINGLE_LONG, SINGLE_VARBINARY, SINGLE_LONG)
+                .row(1, "a", 10)
+                .row(2, "b", 10)
+                .pageBreak()
+                .row(1, null, 20)
+                .row(null, "a", 20)
+                .build();
+
+        List<TupleInfo> tupleInfos = ImmutableList.of(SINGLE_LONG, SINGLE_VARBINARY, SINGLE_LONG);
+        OperatorFactory operatorFactory = new CollectDistinctValuesOperatorFactory(0, SINK_ID, tupleInfos, ImmutableList.of(1, 0), 10);
+        Operator operator = operatorFactory.createOperator(driverContext);
+
+        // pages are passed through unchanged
+        OperatorAssertion.assertOperatorEquals(operator, input, input);
+
+        assertEquals(getReportedValues(), Arrays.<Set<Object>>asList(
+                ImmutableSet.<Object>of("a", "b"),
+                ImmutableSet.<Object>of(1L, 2L)));
+    }
+
+    @Test
+    public void testTooManyDistinctValues()
+            throws Exception
+    {
+        List<Page> input = rowPagesBuilder(SINGLE_LONG, SINGLE_LONG)
+                .addSequencePage(3, 0, 7)
+                .addSequencePage(3, 3, 7)
+                .build();
+
+        List<TupleInfo> tupleInfos = ImmutableList.of(SINGLE_LONG, SINGLE_LONG);
+        OperatorFactory operatorFactory = new CollectDistinctValuesOperatorFactory(0, SINK_ID, tupleInfos, ImmutableList.of(0, 1), 4);
+        Operator operator = operatorFactory.createOperator(driverContext);
+
+        OperatorAssertion.assertOperatorEquals(operator, input, input);
+
+        // the first channel has six distinct values, which is more than the maximum
+        assertEquals(getReportedValues(), Arrays.<Set<Object>>asList(
+                null,
+                ImmutableSet.<Object>of(7L, 8L, 9L)));
+    }
+
+    private List<Set<Object>> getReportedValues()
+    {
+        Set<?> outputs = taskContext.getOutputItems().get(SINK_ID);
+        assertEquals(outputs.size(), 1);
+        return ((DistinctValuesResult) outputs.iterator().next()).getValues();
+    }
+}
@@ -13,25 +13,44 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockBuilder;
+import com.facebook.presto.block.dictionary.Dictionary;
+import com.facebook.presto.block.dictionary.DictionaryEncodedBlock;
+import com.facebook.presto.block.rle.RunLengthEncodedBlock;
 import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.metadata.MetadataManager;
 import com.facebook.presto.operator.FilterAndProjectOperator.FilterAndProjectOperatorFactory;
 import com.facebook.presto.spi.RecordCursor;
 import com.facebook.presto.sql.analyzer.Session;
+import com.facebook.presto.sql.analyzer.Type;
+import com.facebook.presto.sql.gen.ExpressionCompiler;
+import com.facebook.presto.sql.tree.ComparisonExpression;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.Input;
+import com.facebook.presto.sql.tree.InputReference;
+import com.facebook.presto.sql.tree.LongLiteral;
+import com.facebook.presto.sql.tree.StringLiteral;
 import com.facebook.presto.tuple.TupleInfo;
 import com.facebook.presto.tuple.TupleReadable;
 import com.facebook.presto.util.MaterializedResult;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
 import static com.facebook.presto.operator.ProjectionFunctions.concat;
 import static com.facebook.presto.operator.ProjectionFunctions.singleColumn;
 import static com.facebook.presto.operator.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.sql.tree.ComparisonExpression.Type.EQUAL;
+import static com.facebook.presto.sql.tree.LogicalBinaryExpression.and;
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_DOUBLE;
 import static com.facebook.presto.tuple.TupleInfo.SINGLE_LONG;
 import static com.facebook.presto.tuple.TupleInfo.SINGLE_VARBINARY;
 import static com.facebook.presto.tuple.TupleInfo.Type.FIXED_INT_64;
@@ -39,6 +58,8 @@ import static com.facebook.presto.tuple.TupleInfo.Type.VARIABLE_BINARY;
 import static com.facebook.presto.util.MaterializedResult.resultBuilder;
 import static com.facebook.presto.util.Threads.daemonThreadsNamed;
 import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
 
 public class TestFilterAndProjectOperator
 {
@@ -106,4 +127,120 @@ public class TestFilterAndProjectOperator
 
         assertOperatorEquals(operator, input, expected);
     }
+
+    @Test
+    public void testCompiledFilterAndProject()
+            throws Exception
+    {
+        List<Page> input = rowPagesBuilder(SINGLE_VARBINARY, SINGLE_LONG, SINGLE_DOUBLE)
+                .addSequencePage(100, 0, 0, 0)
+                .addSequencePage(100, 100, 100, 100)
+                .build();
+
+        // the filter only reads channel 1, and the projections skip channel 2
+        Expression value = new InputReference(new Input(1, 0));
+        Expression filter = and(
+                new ComparisonExpression(ComparisonExpression.Type.GREATER_THAN_OR_EQUAL, value, new LongLiteral("95")),
+                new ComparisonExpression(ComparisonExpression.Type.LESS_THAN, value, new LongLiteral("105")));
+        List<Expression> projections = ImmutableList.of(value, new InputReference(new Input(0, 0)));
+
+        OperatorFactory operatorFactory = new ExpressionCompiler(new MetadataManager()).compileFilterAndProjectOperator(
+                0,
+                filter,
+                projections,
+                ImmutableMap.of(new Input(0, 0), Type.VARCHAR, new Input(1, 0), Type.BIGINT, new Input(2, 0), Type.DOUBLE));
+
+        Operator operator = operatorFactory.createOperator(driverContext);
+
+        MaterializedResult expected = resultBuilder(SINGLE_LONG, SINGLE_VARBINARY)
+                .row(95, "95")
+                .row(96, "96")
+                .row(97, "97")
+                .row(98, "98")
+                .row(99, "99")
+                .row(100, "100")
+                .row(101, "101")
+                .row(102, "102")
+                .row(103, "103")
+                .row(104, "104")
+                .build();
+
+        assertOperatorEquals(operator, input, expected);
+
+        // the generated operator processes whole pages
+        assertNotNull(operator.getClass().getDeclaredMethod("filterAndProjectPage", Block[].class, PageBuilder.class));
+    }
+
+    @Test
+    public void testAddInputProcessesPages()
+            throws Exception
+    {
+        final AtomicInteger pages = new AtomicInteger();
+        Operator operator = new AbstractFilterAndProjectOperator(driverContext.addOperatorContext(0, "test"), ImmutableList.of(SINGLE_LONG))
+        {
+            @Override
+            protected void filterAndProjectRowOriented(Block[] blocks, PageBuilder pageBuilder)
+            {
+                throw new AssertionError("page was processed one row at a time");
+            }
+
+            @Override
+            protected void filterAndProjectPage(Block[] blocks, PageBuilder pageBuilder)
+            {
+                pages.incrementAndGet();
+            }
+        };
+
+        for (Page page : rowPagesBuilder(SINGLE_LONG).addSequencePage(10, 0).addSequencePage(10, 10).build()) {
+            operator.addInput(page);
+        }
+        assertEquals(pages.get(), 2);
+    }
+
+    @Test
+    public void testCompiledFilterAndProjectEncodedBlocks()
+            throws Exception
+    {
+        Dictionary dictionary = new Dictionary(SINGLE_VARBINARY,
+                SINGLE_VARBINARY.builder().append("us").build().getTupleSlice(),
+                SINGLE_VARBINARY.builder().append("de").build().getTupleSlice());
+        Block ids = new BlockBuilder(SINGLE_LONG).append(0).append(1).append(0).append(0).append(1).build();
+
+        List<Page> input = ImmutableList.of(
+                new Page(new DictionaryEncodedBlock(dictionary, ids), longs(1, 2, 3, 4, 5)),
+                new Page(new RunLengthEncodedBlock(SINGLE_VARBINARY.builder().append("de").build(), 2), longs(6, 7)),
+                new Page(new RunLengthEncodedBlock(SINGLE_VARBINARY.builder().append("us").build(), 2), longs(8, 9)));
+
+        // the filter and the first projection only read the encoded channel
+        Expression country = new InputReference(new Input(0, 0));
+        Expression filter = new ComparisonExpression(EQUAL, country, new StringLiteral("us"));
+        List<Expression> projections = ImmutableList.of(country, new InputReference(new Input(1, 0)));
+
+        OperatorFactory operatorFactory = new ExpressionCompiler(new MetadataManager()).compileFilterAndProjectOperator(
+                0,
+                filter,
+                projections,
+                ImmutableMap.of(new Input(0, 0), Type.VARCHAR, new Input(1, 0), Type.BIGINT));
+
+        Operator operator = operatorFactory.createOperator(driverContext);
+
+        MaterializedResult expected = resultBuilder(SINGLE_VARBINARY, SINGLE_LONG)
+                .row("us", 1)
+                .row("us", 3)
+                .row("us", 4)
+                .row("us", 8)
+                .row("us", 9)
+                .build();
+
+        assertOperatorEquals(operator, input, expected);
+    }
+
+    private static Block longs(long... values)
+    {
+        BlockBuilder blockBuilder = new BlockBuilder(SINGLE_LONG);
+        for (long value : values) {
+            blockBuilder.append(value);
+        }
+        return blockBuilder.build();
+    }
 }
@@ -13,27 +13,36 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.block.Block;
 import com.facebook.presto.block.BlockBuilder;
+import com.facebook.presto.block.dictionary.Dictionary;
+import com.facebook.presto.block.dictionary.DictionaryEncodedBlock;
+import com.facebook.presto.block.rle.RunLengthEncodedBlock;
 import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.execution.TaskStateMachine;
 import com.facebook.presto.operator.HashAggregationOperator.HashAggregationOperatorFactory;
 import com.facebook.presto.sql.analyzer.Session;
 import com.facebook.presto.sql.planner.plan.AggregationNode.Step;
 import com.facebook.presto.sql.tree.Input;
 import com.facebook.presto.tuple.TupleInfo;
 import com.facebook.presto.util.MaterializedResult;
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 
 import static com.facebook.presto.block.BlockAssertions.COMPOSITE_SEQUENCE_TUPLE_INFO;
 import static com.facebook.presto.operator.AggregationFunctionDefinition.aggregation;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
+import static com.facebook.presto.operator.OperatorAssertion.toMaterializedResult;
 import static com.facebook.presto.operator.OperatorAssertion.toPages;
 import static com.facebook.presto.operator.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.operator.aggregation.CountAggregation.COUNT;
@@ -49,6 +58,8 @@ import static com.facebook.presto.tuple.TupleInfo.Type.FIXED_INT_64;
 import static com.facebook.presto.tuple.TupleInfo.Type.VARIABLE_BINARY;
 import static com.facebook.presto.util.MaterializedResult.resultBuilder;
 import static com.facebook.presto.util.Threads.daemonThreadsNamed;
+import static io.airlift.testing.Assertions.assertEqualsIgnoreOrder;
+import static io.airlift.testing.Assertions.assertGreaterThan;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static org.testng.Assert.assertEquals;
 
@@ -85,8 +96,8 @@ public class TestHashAggregationOperator
 
         HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
                 0,
-                SINGLE_VARBINARY,
-                1,
+                ImmutableList.of(SINGLE_VARBINARY),
+                ImmutableList.of(1),
                 Step.SINGLE,
                 ImmutableList.of(aggregation(COUNT, new Input(0, 0)),
                         aggregation(LONG_SUM, new Input(3, 0)),
@@ -116,6 +127,114 @@ public class TestHashAggregationOperator
         assertOperatorEquals(operator, input, expected);
     }
 
+    @Test
+    public void testFixedWidthGroupByKey()
+            throws Exception
+    {
+        List<Page> input = rowPagesBuilder(SINGLE_LONG, SINGLE_LONG)
+                .row(1, 10)
+                .row(null, 20)
+                .row(2, 30)
+                .pageBreak()
+                .row(1, 40)
+                .row(null, 50)
+                .row(0, 60)
+                .build();
+
+        HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
+                0,
+                ImmutableList.of(SINGLE_LONG),
+                ImmutableList.of(0),
+                Step.SINGLE,
+                ImmutableList.of(aggregation(COUNT, new Input(0, 0)),
+                        aggregation(LONG_SUM, new Input(1, 0))),
+                100_000);
+
+        Operator operator = operatorFactory.createOperator(driverContext);
+
+        // null keys form their own group, which is distinct from the zero key
+        MaterializedResult expected = resultBuilder(FIXED_INT_64, FIXED_INT_64, FIXED_INT_64)
+                .row(1, 2, 50)
+                .row(null, 2, 70)
+                .row(2, 1, 30)
+                .row(0, 1, 60)
+                .build();
+
+        MaterializedResult actual = toMaterializedResult(operator.getTupleInfos(), toPages(operator, input));
+        assertEqualsIgnoreOrder(actual.getMaterializedTuples(), expected.getMaterializedTuples());
+    }
+
+    @Test
+    public void testMultipleGroupByChannels()
+            throws Exception
+    {
+        List<Page> input = rowPagesBuilder(SINGLE_VARBINARY, SINGLE_LONG, SINGLE_LONG)
+                .addSequencePage(10, 0, 0, 100)
+                .addSequencePage(10, 0, 0, 100)
+                .addSequencePage(10, 0, 1, 200)
+                .build();
+
+        HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
+                0,
+                ImmutableList.of(SINGLE_VARBINARY, SINGLE_LONG),
+                ImmutableList.of(0, 1),
+                Step.SINGLE,
+                ImmutableList.of(aggregation(COUNT, new Input(0, 0)),
+                        aggregation(LONG_SUM, new Input(2, 0))),
+                100_000);
+
+        Operator operator = operatorFactory.createOperator(driverContext);
+
+        MaterializedResult.Builder expected = resultBuilder(VARIABLE_BINARY, FIXED_INT_64, FIXED_INT_64, FIXED_INT_64);
+        for (int i = 0; i < 10; i++) {
+            expected.row(String.valueOf(i), i, 2, 2 * (100 + i));
+        }
+        for (int i = 0; i < 10; i++) {
+            expected.row(String.valueOf(i), i + 1, 1, 200 + i);
+        }
+
+        assertOperatorEquals(operator, input, expected.build());
+    }
+
+    @Test
+    public void testEncodedGroupByKey()
+            throws Exception
+    {
+        Dictionary dictionary = new Dictionary(SINGLE_VARBINARY,
+                SINGLE_VARBINARY.builder().append("us").build().getTupleSlice(),
+                SINGLE_VARBINARY.builder().append("de").build().getTupleSlice());
+        Block ids = new BlockBuilder(SINGLE_LONG).append(0).append(1).append(0).build();
+        Block moreIds = new BlockBuilder(SINGLE_LONG).append(1).append(1).build();
+
+        List<Page> input = ImmutableList.of(
+                new Page(new DictionaryEncodedBlock(dictionary, ids), new BlockBuilder(SINGLE_LONG).append(1).append(2).append(3).build()),
+                new Page(new DictionaryEncodedBlock(dictionary, moreIds), new BlockBuilder(SINGLE_LONG).append(4).append(5).build()),
+                new Page(new RunLengthEncodedBlock(SINGLE_VARBINARY.builder().append("us").build(), 4), new RunLengthEncodedBlock(SINGLE_LONG.builder().append(10).build(), 4)),
+                new Page(new RunLengthEncodedBlock(SINGLE_VARBINARY.builder().append("fr").build(), 2), new BlockBuilder(SINGLE_LONG).append(6).appendNull().build()));
+
+        HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
+                0,
+                ImmutableList.of(SINGLE_VARBINARY),
+                ImmutableList.of(0),
+                Step.SINGLE,
+                ImmutableList.of(aggregation(COUNT, new Input(0, 0)),
+                        aggregation(COUNT_COLUMN, new Input(1, 0)),
+                        aggregation(LONG_SUM, new Input(1, 0)),
+                        aggregation(VAR_BINARY_MAX, new Input(0, 0))),
+                100_000);
+
+        Operator operator = operatorFactory.createOperator(driverContext);
+
+        MaterializedResult expected = resultBuilder(VARIABLE_BINARY, FIXED_INT_64, FIXED_INT_64, FIXED_INT_64, VARIABLE_BINARY)
+                .row("us", 6, 6, 44, "us")
+                .row("de", 3, 3, 11, "de")
+                .row("fr", 2, 1, 6, "fr")
+                .build();
+
+        MaterializedResult actual = toMaterializedResult(operator.getTupleInfos(), toPages(operator, input));
+        assertEqualsIgnoreOrder(actual.getMaterializedTuples(), expected.getMaterializedTuples());
+    }
+
     @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = "Task exceeded max memory size of 10B")
     public void testMemoryLimit()
     {
@@ -132,8 +251,8 @@ public class TestHashAggregationOperator
 
         HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
                 0,
-                SINGLE_VARBINARY,
-                1,
+                ImmutableList.of(SINGLE_VARBINARY),
+                ImmutableList.of(1),
                 Step.SINGLE,
                 ImmutableList.of(aggregation(COUNT, new Input(0, 0)),
                         aggregation(LONG_SUM, new Input(3, 0)),
@@ -146,6 +265,69 @@ public class TestHashAggregationOperator
         toPages(operator, input);
     }
 
+    @Test
+    public void testSpillToDisk()
+            throws Exception
+    {
+        List<Page> input = rowPagesBuilder(SINGLE_VARBINARY, SINGLE_VARBINARY, SINGLE_VARBINARY, SINGLE_LONG)
+                .addSequencePage(10, 100, 0, 100, 0)
+                .addSequencePage(10, 100, 0, 200, 0)
+                .addSequencePage(10, 100, 0, 300, 0)
+                .build();
+
+        File spillPath = Files.createTempDir();
+        try {
+            Session session = new Session("user", "source", "catalog", "schema", "address", "agent");
+            DriverContext driverContext = new TaskContext(
+                    new TaskStateMachine(new TaskId("query", "stage", "task"), executor),
+                    executor,
+                    session,
+                    new DataSize(10, Unit.BYTE),
+                    new DataSize(10, Unit.BYTE),
+                    true,
+                    Optional.of(spillPath))
+                    .addPipelineContext(true, true)
+                    .addDriverContext();
+
+            HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
+                    0,
+                    ImmutableList.of(SINGLE_VARBINARY),
+                    ImmutableList.of(1),
+                    Step.SINGLE,
+                    ImmutableList.of(aggregation(COUNT, new Input(0, 0)),
+                            aggregation(LONG_SUM, new Input(3, 0)),
+                            aggregation(LONG_AVERAGE, new Input(3, 0)),
+                            aggregation(VAR_BINARY_MAX, new Input(2, 0))),
+                    100_000);
+
+            HashAggregationOperator operator = (HashAggregationOperator) operatorFactory.createOperator(driverContext);
+
+            MaterializedResult expected = resultBuilder(VARIABLE_BINARY, FIXED_INT_64, FIXED_INT_64, DOUBLE, VARIABLE_BINARY)
+                    .row("0", 3, 0, 0.0, "300")
+                    .row("1", 3, 3, 1.0, "301")
+                    .row("2", 3, 6, 2.0, "302")
+                    .row("3", 3, 9, 3.0, "303")
+                    .row("4", 3, 12, 4.0, "304")
+                    .row("5", 3, 15, 5.0, "305")
+                    .row("6", 3, 18, 6.0, "306")
+                    .row("7", 3, 21, 7.0, "307")
+                    .row("8", 3, 24, 8.0, "308")
+                    .row("9", 3, 27, 9.0, "309")
+                    .build();
+
+            MaterializedResult actual = toMaterializedResult(operator.getTupleInfos(), toPages(operator, input));
+            assertEqualsIgnoreOrder(actual.getMaterializedTuples(), expected.getMaterializedTuples());
+            assertGreaterThan(operator.getOperatorContext().getOperatorStats().getSpilledDataSize().toBytes(), 0L);
+
+            // spill files are removed once they are merged
+            operator.close();
+            assertEquals(spillPath.list().length, 0);
+        }
+        finally {
+            spillPath.delete();
+        }
+    }
+
     @Test
     public void testMultiSliceAggregationOutput()
     {
@@ -158,8 +340,8 @@ public class TestHashAggregationOperator
 
         HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
                 0,
-                SINGLE_LONG,
-                1,
+                ImmutableList.of(SINGLE_LONG),
+                ImmutableList.of(1),
                 Step.SINGLE,
                 ImmutableList.of(aggregation(COUNT, new Input(0, 0)),
                         aggregation(LONG_AVERAGE, new Input(1, 0))),
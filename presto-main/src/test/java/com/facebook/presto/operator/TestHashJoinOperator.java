@@ -25,10 +25,14 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 
+import static com.facebook.presto.AbstractTestQueries.assertEqualsIgnoreOrder;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
+import static com.facebook.presto.operator.OperatorAssertion.toMaterializedResult;
+import static com.facebook.presto.operator.OperatorAssertion.toPages;
 import static com.facebook.presto.operator.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.tuple.TupleInfo.SINGLE_LONG;
 import static com.facebook.presto.tuple.TupleInfo.SINGLE_VARBINARY;
@@ -38,6 +42,8 @@ import static com.facebook.presto.util.MaterializedResult.resultBuilder;
 import static com.facebook.presto.util.Threads.daemonThreadsNamed;
 import static io.airlift.units.DataSize.Unit.BYTE;
 import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TestHashJoinOperator
 {
@@ -69,7 +75,7 @@ public class TestHashJoinOperator
         Operator buildOperator = new StaticOperator(operatorContext, rowPagesBuilder(SINGLE_VARBINARY, SINGLE_LONG, SINGLE_LONG)
                 .addSequencePage(10, 20, 30, 40)
                 .build());
-        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), 0, 100);
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), ImmutableList.of(0), 100);
         Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
@@ -85,7 +91,7 @@ public class TestHashJoinOperator
                 0,
                 hashBuilderOperatorFactory.getHashSupplier(),
                 ImmutableList.of(SINGLE_VARBINARY, SINGLE_LONG, SINGLE_LONG),
-                0);
+                ImmutableList.of(0));
 
         Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(true, true).addDriverContext());
 
@@ -106,6 +112,129 @@ public class TestHashJoinOperator
         assertOperatorEquals(joinOperator, probeInput, expected);
     }
 
+    @Test
+    public void testInnerJoinWithParallelBuild()
+            throws Exception
+    {
+        // build with two drivers, and keys 25 to 29 in both
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, ImmutableList.of(SINGLE_VARBINARY, SINGLE_LONG, SINGLE_LONG), ImmutableList.of(0), 100, 2);
+        List<Driver> buildDrivers = new ArrayList<>();
+        List<Operator> hashBuilderOperators = new ArrayList<>();
+        for (int start : ImmutableList.of(20, 25)) {
+            DriverContext driverContext = taskContext.addPipelineContext(true, true).addDriverContext();
+            OperatorContext operatorContext = driverContext.addOperatorContext(0, StaticOperator.class.getSimpleName());
+            Operator buildOperator = new StaticOperator(operatorContext, rowPagesBuilder(SINGLE_VARBINARY, SINGLE_LONG, SINGLE_LONG)
+                    .addSequencePage(10, start, start + 10, start + 20)
+                    .build());
+            Operator hashBuilderOperator = hashBuilderOperatorFactory.createOperator(driverContext);
+            hashBuilderOperators.add(hashBuilderOperator);
+            buildDrivers.add(new Driver(driverContext, buildOperator, hashBuilderOperator));
+        }
+
+        // the first driver must wait for the second one to finish its input
+        for (int i = 0; i < 10; i++) {
+            buildDrivers.get(0).process();
+        }
+        assertFalse(buildDrivers.get(0).isFinished());
+        long pagesReservation = getMemoryReservation(hashBuilderOperators.get(0));
+        while (!buildDrivers.get(0).isFinished() || !buildDrivers.get(1).isFinished()) {
+            for (Driver driver : buildDrivers) {
+                driver.process();
+            }
+        }
+
+        // the pages of the first operator are accounted to the second operator, which merged them
+        assertTrue(getMemoryReservation(hashBuilderOperators.get(0)) < pagesReservation);
+
+        // probe
+        List<Page> probeInput = rowPagesBuilder(SINGLE_VARBINARY, SINGLE_LONG, SINGLE_LONG)
+                .addSequencePage(1000, 0, 1000, 2000)
+                .build();
+        HashJoinOperatorFactory joinOperatorFactory = HashJoinOperator.innerJoin(
+                0,
+                hashBuilderOperatorFactory.getHashSupplier(),
+                ImmutableList.of(SINGLE_VARBINARY, SINGLE_LONG, SINGLE_LONG),
+                ImmutableList.of(0));
+
+        Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(true, true).addDriverContext());
+        MaterializedResult actual = toMaterializedResult(joinOperator.getTupleInfos(), toPages(joinOperator, probeInput));
+
+        // expected
+        MaterializedResult expected = resultBuilder(new TupleInfo(VARIABLE_BINARY, FIXED_INT_64, FIXED_INT_64, VARIABLE_BINARY, FIXED_INT_64, FIXED_INT_64))
+                .row("20", 1020, 2020, "20", 30, 40)
+                .row("21", 1021, 2021, "21", 31, 41)
+                .row("22", 1022, 2022, "22", 32, 42)
+                .row("23", 1023, 2023, "23", 33, 43)
+                .row("24", 1024, 2024, "24", 34, 44)
+                .row("25", 1025, 2025, "25", 35, 45)
+                .row("25", 1025, 2025, "25", 35, 45)
+                .row("26", 1026, 2026, "26", 36, 46)
+                .row("26", 1026, 2026, "26", 36, 46)
+                .row("27", 1027, 2027, "27", 37, 47)
+                .row("27", 1027, 2027, "27", 37, 47)
+                .row("28", 1028, 2028, "28", 38, 48)
+                .row("28", 1028, 2028, "28", 38, 48)
+                .row("29", 1029, 2029, "29", 39, 49)
+                .row("29", 1029, 2029, "29", 39, 49)
+                .row("30", 1030, 2030, "30", 40, 50)
+                .row("31", 1031, 2031, "31", 41, 51)
+                .row("32", 1032, 2032, "32", 42, 52)
+                .row("33", 1033, 2033, "33", 43, 53)
+                .row("34", 1034, 2034, "34", 44, 54)
+                .build();
+
+        assertEqualsIgnoreOrder(actual.getMaterializedTuples(), expected.getMaterializedTuples());
+    }
+
+    @Test
+    public void testInnerJoinWithMultipleJoinChannels()
+            throws Exception
+    {
+        DriverContext driverContext = taskContext.addPipelineContext(true, true).addDriverContext();
+
+        // build
+        OperatorContext operatorContext = driverContext.addOperatorContext(0, StaticOperator.class.getSimpleName());
+        Operator buildOperator = new StaticOperator(operatorContext, rowPagesBuilder(SINGLE_VARBINARY, SINGLE_LONG, SINGLE_LONG)
+                .addSequencePage(10, 20, 30, 40)
+                .build());
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), ImmutableList.of(0, 1), 100);
+        Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
+
+        Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
+        while (!driver.isFinished()) {
+            driver.process();
+        }
+
+        // probe: only the first page matches on both channels
+        List<Page> probeInput = rowPagesBuilder(SINGLE_VARBINARY, SINGLE_LONG, SINGLE_LONG)
+                .addSequencePage(1000, 0, 10, 2000)
+                .addSequencePage(10, 20, 0, 3000)
+                .build();
+        HashJoinOperatorFactory joinOperatorFactory = HashJoinOperator.innerJoin(
+                0,
+                hashBuilderOperatorFactory.getHashSupplier(),
+                ImmutableList.of(SINGLE_VARBINARY, SINGLE_LONG, SINGLE_LONG),
+                ImmutableList.of(0, 1));
+
+        Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(true, true).addDriverContext());
+
+        // expected
+        MaterializedResult expected = resultBuilder(new TupleInfo(VARIABLE_BINARY, FIXED_INT_64, FIXED_INT_64, VARIABLE_BINARY, FIXED_INT_64, FIXED_INT_64))
+                .row("20", 30, 2020, "20", 30, 40)
+                .row("21", 31, 2021, "21", 31, 41)
+                .row("22", 32, 2022, "22", 32, 42)
+                .row("23", 33, 2023, "23", 33, 43)
+                .row("24", 34, 2024, "24", 34, 44)
+                .row("25", 35, 2025, "25", 35, 45)
+                .row("26", 36, 2026, "26", 36, 46)
+                .row("27", 37, 2027, "27", 37, 47)
+                .row("28", 38, 2028, "28", 38, 48)
+                .row("29", 39, 2029, "29", 39, 49)
+                .build();
+
+        assertOperatorEquals(joinOperator, probeInput, expected);
+    }
+
     @Test
     public void testInnerJoinWithNullProbe()
             throws Exception
@@ -119,7 +248,7 @@ public class TestHashJoinOperator
                 .row("b")
                 .row("c")
                 .build());
-        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), 0, 100);
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), ImmutableList.of(0), 100);
         Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
@@ -139,7 +268,7 @@ public class TestHashJoinOperator
                 0,
                 hashBuilderOperatorFactory.getHashSupplier(),
                 ImmutableList.of(SINGLE_VARBINARY),
-                0);
+                ImmutableList.of(0));
         Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(true, true).addDriverContext());
 
         // expected
@@ -167,7 +296,7 @@ public class TestHashJoinOperator
                 .row("a")
                 .row("b")
                 .build());
-        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), 0, 100);
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), ImmutableList.of(0), 100);
         Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
@@ -185,7 +314,7 @@ public class TestHashJoinOperator
                 0,
                 hashBuilderOperatorFactory.getHashSupplier(),
                 ImmutableList.of(SINGLE_VARBINARY),
-                0);
+                ImmutableList.of(0));
         Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(true, true).addDriverContext());
 
         // expected
@@ -213,7 +342,7 @@ public class TestHashJoinOperator
                 .row("a")
                 .row("b")
                 .build());
-        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), 0, 100);
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), ImmutableList.of(0), 100);
         Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
@@ -232,7 +361,7 @@ public class TestHashJoinOperator
                 0,
                 hashBuilderOperatorFactory.getHashSupplier(),
                 ImmutableList.of(SINGLE_VARBINARY),
-                0);
+                ImmutableList.of(0));
         Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(true, true).addDriverContext());
 
         // expected
@@ -245,6 +374,56 @@ public class TestHashJoinOperator
         assertOperatorEquals(joinOperator, probeInput, expected);
     }
 
+    @Test
+    public void testInnerJoinWithFixedWidthKey()
+            throws Exception
+    {
+        DriverContext driverContext = taskContext.addPipelineContext(true, true).addDriverContext();
+
+        // build
+        OperatorContext operatorContext = driverContext.addOperatorContext(0, StaticOperator.class.getSimpleName());
+        Operator buildOperator = new StaticOperator(operatorContext, rowPagesBuilder(SINGLE_LONG, SINGLE_VARBINARY)
+                .row(0, "zero")
+                .row(null, "null")
+                .row(1, "one")
+                .pageBreak()
+                .row(1, "uno")
+                .row(null, "nil")
+                .row(2, "two")
+                .build());
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), ImmutableList.of(0), 100);
+        Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
+
+        Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
+        while (!driver.isFinished()) {
+            driver.process();
+        }
+
+        // probe
+        List<Page> probeInput = rowPagesBuilder(SINGLE_LONG)
+                .row(0)
+                .row(1)
+                .row((Long) null)
+                .row(3)
+                .build();
+        HashJoinOperatorFactory joinOperatorFactory = HashJoinOperator.innerJoin(
+                0,
+                hashBuilderOperatorFactory.getHashSupplier(),
+                ImmutableList.of(SINGLE_LONG),
+                ImmutableList.of(0));
+        Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(true, true).addDriverContext());
+        MaterializedResult actual = toMaterializedResult(joinOperator.getTupleInfos(), toPages(joinOperator, probeInput));
+
+        // expected, the null build keys must not match the zero probe key
+        MaterializedResult expected = resultBuilder(new TupleInfo(FIXED_INT_64, FIXED_INT_64, VARIABLE_BINARY))
+                .row(0, 0, "zero")
+                .row(1, 1, "one")
+                .row(1, 1, "uno")
+                .build();
+
+        assertEqualsIgnoreOrder(actual.getMaterializedTuples(), expected.getMaterializedTuples());
+    }
+
     @Test
     public void testProbeOuterJoin()
             throws Exception
@@ -257,7 +436,7 @@ public class TestHashJoinOperator
                 .addSequencePage(10, 20, 30, 40)
                 .build());
 
-        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), 0, 100);
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), ImmutableList.of(0), 100);
         Operator hashBuilderOperator = hashBuilderOperatorFactory.createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, hashBuilderOperator);
@@ -273,7 +452,7 @@ public class TestHashJoinOperator
                 0,
                 hashBuilderOperatorFactory.getHashSupplier(),
                 ImmutableList.of(SINGLE_VARBINARY, SINGLE_LONG, SINGLE_LONG),
-                0);
+                ImmutableList.of(0));
         Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(true, true).addDriverContext());
 
         // expected
@@ -312,7 +491,7 @@ public class TestHashJoinOperator
                 .row("b")
                 .row("c")
                 .build());
-        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), 0, 100);
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), ImmutableList.of(0), 100);
         Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
@@ -332,7 +511,7 @@ public class TestHashJoinOperator
                 0,
                 hashBuilderOperatorFactory.getHashSupplier(),
                 ImmutableList.of(SINGLE_VARBINARY),
-                0);
+                ImmutableList.of(0));
         Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(true, true).addDriverContext());
 
         // expected
@@ -362,7 +541,7 @@ public class TestHashJoinOperator
                 .row("a")
                 .row("b")
                 .build());
-        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), 0, 100);
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), ImmutableList.of(0), 100);
         Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
@@ -380,7 +559,7 @@ public class TestHashJoinOperator
                 0,
                 hashBuilderOperatorFactory.getHashSupplier(),
                 ImmutableList.of(SINGLE_VARBINARY),
-                0);
+                ImmutableList.of(0));
         Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(true, true).addDriverContext());
 
         // expected
@@ -409,7 +588,7 @@ public class TestHashJoinOperator
                 .row("a")
                 .row("b")
                 .build());
-        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), 0, 100);
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), ImmutableList.of(0), 100);
         Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
@@ -428,7 +607,7 @@ public class TestHashJoinOperator
                 0,
                 hashBuilderOperatorFactory.getHashSupplier(),
                 ImmutableList.of(SINGLE_VARBINARY),
-                0);
+                ImmutableList.of(0));
         Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(true, true).addDriverContext());
 
         // expected
@@ -457,11 +636,16 @@ public class TestHashJoinOperator
                 .addSequencePage(10, 20, 30, 40)
                 .build());
 
-        Operator hashBuilderOperator = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), 0, 1_500_000).createOperator(driverContext);
+        Operator hashBuilderOperator = new HashBuilderOperatorFactory(1, buildOperator.getTupleInfos(), ImmutableList.of(0), 1_500_000).createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, hashBuilderOperator);
         while (!driver.isFinished()) {
             driver.process();
         }
     }
+
+    private static long getMemoryReservation(Operator operator)
+    {
+        return operator.getOperatorContext().getOperatorStats().getMemoryReservation().toBytes();
+    }
 }
@@ -14,8 +14,10 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.operator.HttpPageBufferClient.ClientCallback;
+import com.facebook.presto.serde.PagesCompression;
 import com.google.common.base.Function;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import io.airlift.http.client.HttpStatus;
 import io.airlift.http.client.Request;
@@ -43,10 +45,13 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.facebook.presto.PrestoMediaTypes.PRESTO_PAGES;
+import static com.facebook.presto.operator.SequencePageBuilder.createSequencePage;
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_LONG;
 import static com.facebook.presto.util.Threads.daemonThreadsNamed;
 import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 public class TestHttpPageBufferClient
 {
@@ -138,6 +143,44 @@ public class TestHttpPageBufferClient
         assertStatus(client, location, "closed", 3, 4, 4, "queued");
     }
 
+    @Test
+    public void testCompression()
+            throws Exception
+    {
+        Page expectedPage = createSequencePage(ImmutableList.of(SINGLE_LONG), 1000, 0);
+
+        DataSize expectedMaxSize = new DataSize(11, Unit.MEGABYTE);
+        MockExchangeRequestProcessor processor = new MockExchangeRequestProcessor(expectedMaxSize);
+
+        CyclicBarrier requestComplete = new CyclicBarrier(2);
+
+        TestingClientCallback callback = new TestingClientCallback(requestComplete);
+
+        URI location = URI.create("http://localhost:8080");
+        HttpPageBufferClient client = new HttpPageBufferClient(new TestingHttpClient(processor, executor),
+                expectedMaxSize,
+                location,
+                callback,
+                PagesCompression.SNAPPY,
+                executor);
+
+        // fetch two pages and verify
+        processor.addPage(location, expectedPage);
+        processor.addPage(location, expectedPage);
+        client.scheduleRequest();
+        requestComplete.await(1, TimeUnit.SECONDS);
+
+        assertEquals(callback.getPages().size(), 2);
+        assertPageEquals(expectedPage, callback.getPages().get(0));
+        assertPageEquals(expectedPage, callback.getPages().get(1));
+        assertStatus(client, location, "queued", 2, 1, 1, "queued");
+
+        // sequential longs compress well
+        PageBufferClientStatus status = client.getStatus();
+        assertEquals(status.getUncompressedBytesReceived(), 2 * expectedPage.getDataSize().toBytes());
+        assertTrue(status.getCompressedBytesReceived() < status.getUncompressedBytesReceived());
+    }
+
     @Test
     public void testLifecycle()
             throws Exception
@@ -14,17 +14,21 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.execution.TaskStateMachine;
 import com.facebook.presto.operator.OrderByOperator.InMemoryOrderByOperatorFactory;
 import com.facebook.presto.sql.analyzer.Session;
 import com.facebook.presto.tuple.TupleInfo;
 import com.facebook.presto.util.MaterializedResult;
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 
@@ -38,7 +42,9 @@ import static com.facebook.presto.tuple.TupleInfo.Type.FIXED_INT_64;
 import static com.facebook.presto.tuple.TupleInfo.Type.VARIABLE_BINARY;
 import static com.facebook.presto.util.MaterializedResult.resultBuilder;
 import static com.facebook.presto.util.Threads.daemonThreadsNamed;
+import static io.airlift.testing.Assertions.assertGreaterThan;
 import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
 
 public class TestOrderByOperator
 {
@@ -185,4 +191,63 @@ public class TestOrderByOperator
 
         toPages(operator, input);
     }
+
+    @Test
+    public void testSpillToDisk()
+            throws Exception
+    {
+        List<TupleInfo> tupleInfos = ImmutableList.of(SINGLE_LONG, SINGLE_DOUBLE);
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(tupleInfos);
+        for (int i = 0; i < 4000; i++) {
+            if (i > 0 && i % 1000 == 0) {
+                rowPagesBuilder.pageBreak();
+            }
+            rowPagesBuilder.row(3999 - i, i * 0.5);
+        }
+        List<Page> input = rowPagesBuilder.build();
+
+        // only enough memory to sort a single page, so the sorted runs must be spilled
+        PagesIndex pagesIndex = new PagesIndex(tupleInfos, 1000, driverContext.addOperatorContext(1, "test"));
+        pagesIndex.addPage(input.get(0));
+        DataSize maxMemory = new DataSize(pagesIndex.getEstimatedSize().toBytes() * 3 / 2, Unit.BYTE);
+
+        File spillPath = Files.createTempDir();
+        try {
+            Session session = new Session("user", "source", "catalog", "schema", "address", "agent");
+            DriverContext driverContext = new TaskContext(
+                    new TaskStateMachine(new TaskId("query", "stage", "task"), executor),
+                    executor,
+                    session,
+                    maxMemory,
+                    new DataSize(10, Unit.BYTE),
+                    true,
+                    Optional.of(spillPath))
+                    .addPipelineContext(true, true)
+                    .addDriverContext();
+
+            InMemoryOrderByOperatorFactory operatorFactory = new InMemoryOrderByOperatorFactory(
+                    0,
+                    tupleInfos,
+                    0,
+                    new int[] {0, 1},
+                    1000);
+
+            OrderByOperator operator = (OrderByOperator) operatorFactory.createOperator(driverContext);
+
+            MaterializedResult.Builder expected = resultBuilder(FIXED_INT_64, DOUBLE);
+            for (int i = 0; i < 4000; i++) {
+                expected.row(i, (3999 - i) * 0.5);
+            }
+
+            assertOperatorEquals(operator, input, expected.build());
+            assertGreaterThan(operator.getOperatorContext().getOperatorStats().getSpilledDataSize().toBytes(), 0L);
+
+            // spill files are removed once they are merged
+            operator.close();
+            assertEquals(spillPath.list().length, 0);
+        }
+        finally {
+            spillPath.delete();
+        }
+    }
 }
@@ -16,12 +16,9 @@ package com.facebook.presto.operator;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.operator.TopNOperator.TopNOperatorFactory;
 import com.facebook.presto.sql.analyzer.Session;
-import com.facebook.presto.sql.tree.SortItem;
-import com.facebook.presto.tuple.FieldOrderedTupleComparator;
 import com.facebook.presto.tuple.TupleInfo;
 import com.facebook.presto.util.MaterializedResult;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Ordering;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -84,7 +81,8 @@ public class TestTopNOperator
                 2,
                 0,
                 ImmutableList.of(singleColumn(FIXED_INT_64, 0, 0), singleColumn(DOUBLE, 1, 0)),
-                Ordering.from(new FieldOrderedTupleComparator(ImmutableList.of(0), ImmutableList.of(SortItem.Ordering.DESCENDING))),
+                new int[] {0},
+                new boolean[] {false},
                 false);
 
         Operator operator = factory.createOperator(driverContext);
@@ -119,7 +117,8 @@ public class TestTopNOperator
                 3,
                 0,
                 ImmutableList.of(ProjectionFunctions.concat(singleColumn(VARIABLE_BINARY, 0, 0), singleColumn(FIXED_INT_64, 0, 1))),
-                Ordering.from(new FieldOrderedTupleComparator(ImmutableList.of(0, 1), ImmutableList.of(SortItem.Ordering.DESCENDING, SortItem.Ordering.DESCENDING))),
+                new int[] {0, 1},
+                new boolean[] {false, false},
                 false);
 
         Operator operator = operatorFactory.createOperator(driverContext);
@@ -155,7 +154,8 @@ public class TestTopNOperator
                 2,
                 0,
                 ImmutableList.of(singleColumn(FIXED_INT_64, 0, 0), singleColumn(DOUBLE, 1, 0)),
-                Ordering.from(new FieldOrderedTupleComparator(ImmutableList.of(0), ImmutableList.of(SortItem.Ordering.ASCENDING))),
+                new int[] {0},
+                new boolean[] {true},
                 false);
 
         Operator operator = operatorFactory.createOperator(driverContext);
@@ -167,4 +167,38 @@ public class TestTopNOperator
 
         assertOperatorEquals(operator, input, expected);
     }
+
+    @Test
+    public void testCompaction()
+            throws Exception
+    {
+        // every page has better rows than the previous one, so most stored rows are evicted
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(SINGLE_LONG, SINGLE_DOUBLE);
+        for (int value = 6000; value > 0; value--) {
+            rowPagesBuilder.row(value, value / 10.0);
+            if (value % 10 == 1) {
+                rowPagesBuilder.pageBreak();
+            }
+        }
+        List<Page> input = rowPagesBuilder.build();
+
+        TopNOperatorFactory operatorFactory = new TopNOperatorFactory(
+                0,
+                3,
+                0,
+                ImmutableList.of(singleColumn(DOUBLE, 1, 0), singleColumn(FIXED_INT_64, 0, 0)),
+                new int[] {0},
+                new boolean[] {true},
+                false);
+
+        Operator operator = operatorFactory.createOperator(driverContext);
+
+        MaterializedResult expected = resultBuilder(DOUBLE, FIXED_INT_64)
+                .row(0.1, 1)
+                .row(0.2, 2)
+                .row(0.3, 3)
+                .build();
+
+        assertOperatorEquals(operator, input, expected);
+    }
 }
@@ -14,19 +14,23 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.execution.TaskStateMachine;
 import com.facebook.presto.operator.WindowOperator.InMemoryWindowOperatorFactory;
 import com.facebook.presto.operator.window.RowNumberFunction;
 import com.facebook.presto.operator.window.WindowFunction;
 import com.facebook.presto.sql.analyzer.Session;
 import com.facebook.presto.tuple.TupleInfo;
 import com.facebook.presto.util.MaterializedResult;
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 
@@ -41,7 +45,9 @@ import static com.facebook.presto.tuple.TupleInfo.Type.FIXED_INT_64;
 import static com.facebook.presto.tuple.TupleInfo.Type.VARIABLE_BINARY;
 import static com.facebook.presto.util.MaterializedResult.resultBuilder;
 import static com.facebook.presto.util.Threads.daemonThreadsNamed;
+import static io.airlift.testing.Assertions.assertGreaterThan;
 import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
 
 public class TestWindowOperator
 {
@@ -217,6 +223,75 @@ public class TestWindowOperator
         toPages(operator, input);
     }
 
+    @Test
+    public void testSpillToDisk()
+            throws Exception
+    {
+        TupleInfo sourceTupleInfo = new TupleInfo(FIXED_INT_64, FIXED_INT_64);
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(sourceTupleInfo);
+        for (int i = 0; i < 4000; i++) {
+            if (i > 0 && i % 1000 == 0) {
+                rowPagesBuilder.pageBreak();
+            }
+            rowPagesBuilder.row(i % 40, 3999 - i);
+        }
+        List<Page> input = rowPagesBuilder.build();
+
+        // only enough memory to sort a single page, so the sorted runs must be spilled
+        PagesIndex pagesIndex = new PagesIndex(ImmutableList.of(sourceTupleInfo), 1000, driverContext.addOperatorContext(1, "test"));
+        pagesIndex.addPage(input.get(0));
+        DataSize maxMemory = new DataSize(pagesIndex.getEstimatedSize().toBytes() * 3 / 2, Unit.BYTE);
+
+        File spillPath = Files.createTempDir();
+        try {
+            Session session = new Session("user", "source", "catalog", "schema", "address", "agent");
+            DriverContext driverContext = new TaskContext(
+                    new TaskStateMachine(new TaskId("query", "stage", "task"), executor),
+                    executor,
+                    session,
+                    maxMemory,
+                    new DataSize(10, Unit.BYTE),
+                    true,
+                    Optional.of(spillPath))
+                    .addPipelineContext(true, true)
+                    .addDriverContext();
+
+            InMemoryWindowOperatorFactory operatorFactory = new InMemoryWindowOperatorFactory(
+                    0,
+                    ImmutableList.of(sourceTupleInfo),
+                    0,
+                    ints(0),
+                    ROW_NUMBER,
+                    ints(0),
+                    ints(1),
+                    bools(true),
+                    1000);
+
+            WindowOperator operator = (WindowOperator) operatorFactory.createOperator(driverContext);
+
+            MaterializedResult.Builder expected = resultBuilder(FIXED_INT_64, FIXED_INT_64, FIXED_INT_64);
+            for (int partition = 0; partition < 40; partition++) {
+                int rowNumber = 0;
+                for (int key = 0; key < 4000; key++) {
+                    if ((3999 - key) % 40 == partition) {
+                        rowNumber++;
+                        expected.row(partition, key, rowNumber);
+                    }
+                }
+            }
+
+            assertOperatorEquals(operator, input, expected.build());
+            assertGreaterThan(operator.getOperatorContext().getOperatorStats().getSpilledDataSize().toBytes(), 0L);
+
+            // spill files are removed once they are merged
+            operator.close();
+            assertEquals(spillPath.list().length, 0);
+        }
+        finally {
+            spillPath.delete();
+        }
+    }
+
     private static int[] ints(int... array)
     {
         return array;
@@ -15,9 +15,16 @@ package com.facebook.presto.operator.aggregation;
 
 import com.facebook.presto.block.Block;
 import com.facebook.presto.block.BlockBuilder;
+import com.facebook.presto.block.columnar.LongArrayBlock;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import org.testng.annotations.Test;
 
 import static com.facebook.presto.operator.aggregation.LongSumAggregation.LONG_SUM;
 import static com.facebook.presto.tuple.TupleInfo.SINGLE_LONG;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TestLongSumAggregation
         extends AbstractTestAggregationFunction
@@ -51,4 +58,20 @@ public class TestLongSumAggregation
         }
         return sum;
     }
+
+    @Test
+    public void testColumnarBlock()
+    {
+        Slice valueSlice = Slices.allocate(LONG_SUM.getFixedSize());
+        LONG_SUM.initialize(valueSlice, 0);
+
+        LongArrayBlock nullsBlock = new LongArrayBlock(new long[] {0, 0}, new boolean[] {true, true});
+        LONG_SUM.addInput(nullsBlock.getPositionCount(), nullsBlock, 0, valueSlice, 0);
+        assertTrue(SINGLE_LONG.isNull(valueSlice, 0, 0));
+
+        Block block = new LongArrayBlock(new long[] {100, 1, 2, 3, 4}, new boolean[] {false, false, true, false, false}).getRegion(1, 4);
+        LONG_SUM.addInput(block.getPositionCount(), block, 0, valueSlice, 0);
+        assertFalse(SINGLE_LONG.isNull(valueSlice, 0, 0));
+        assertEquals(SINGLE_LONG.getLong(valueSlice, 0, 0), 8L);
+    }
 }
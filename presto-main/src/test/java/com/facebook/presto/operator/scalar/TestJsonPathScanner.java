@@ -0,0 +1,143 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.scalar;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static com.facebook.presto.operator.scalar.JsonExtract.generateExtractor;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class TestJsonPathScanner
+{
+    private static final List<String> DOCUMENTS = ImmutableList.of(
+            "{}",
+            "[]",
+            "{\"fuu\": {\"bar\": 1}}",
+            "{\"fuu\": null, \"bar\": \"abc\"}",
+            "{\"fuu\": [\"\\u0001\", \"a\\\"b\", \"\\u540d\"]}",
+            "{\"fuu\": [0.1, -0, 1e3, 12, -7]}",
+            "{\"fuu\": [0, [100, 101], {\"bar\": {\"key\" : [\"value\"]}}, 2]}",
+            "{\"a\": \"}]\\\"[{\", \"fuu\": {\"bar\": [true, false, null]}}",
+            "{\"f\\u0075u\": 1}",
+            " [ 0 , 1 , 2 ] ",
+            "\"abc\"",
+            "123",
+            "null",
+            "{\"fuu\": [1, 2",
+            "{\"fuu\" 1}");
+
+    private static final List<String> PATHS = ImmutableList.of(
+            "$",
+            "$.fuu",
+            "$.bar",
+            "$.fuu.bar",
+            "$.fuu.bar[1]",
+            "$.fuu[0]",
+            "$.fuu[1]",
+            "$.fuu[2]",
+            "$.fuu[3]",
+            "$.fuu[4]",
+            "$.fuu[1][1]",
+            "$.fuu[2].bar.key[0]",
+            "$[0]",
+            "$[2]");
+
+    @Test
+    public void testFullScalarExtract()
+    {
+        assertEquals(doScalarExtract("{}", "$"), null);
+        assertEquals(doScalarExtract("{\"fuu\": {\"bar\": 1}}", "$.fuu"), null);
+        assertEquals(doScalarExtract("{\"fuu\": 1}", "$.fuu"), "1");
+        assertEquals(doScalarExtract("{\"fuu\": null}", "$.fuu"), null);
+        assertEquals(doScalarExtract("{\"fuu\": 1}", "$.bar"), null);
+        assertEquals(doScalarExtract("{\"fuu\": [\"\\u0001\"]}", "$.fuu[0]"), "\001");
+        assertEquals(doScalarExtract("{\"fuu\": 1, \"bar\": \"abc\"}", "$.bar"), "abc");
+        assertEquals(doScalarExtract("{\"fuu\": [0, [100, 101], 2]}", "$.fuu[1][1]"), "101");
+        assertEquals(doScalarExtract("{\"fuu\": [0, {\"bar\": {\"key\" : [\"value\"]}}, 2]}", "$.fuu[1].bar.key[0]"), "value");
+
+        // brackets and quotes inside skipped strings
+        assertEquals(doScalarExtract("{\"a\": \"}\\\"{\", \"fuu\": [\"]\", 2]}", "$.fuu[1]"), "2");
+    }
+
+    @Test
+    public void testFullJsonExtract()
+    {
+        assertEquals(doJsonExtract("{}", "$"), "{}");
+        assertEquals(doJsonExtract("{\"fuu\": {\"bar\": 1}}", "$.fuu"), "{\"bar\":1}");
+        assertEquals(doJsonExtract("{\"fuu\": null}", "$.fuu"), "null");
+        assertEquals(doJsonExtract("{\"fuu\": [\"\\u0001\"]}", "$.fuu[0]"), "\"\\u0001\"");
+        assertEquals(doJsonExtract("{\"fuu\": 1, \"bar\": \"abc\"}", "$.bar"), "\"abc\"");
+        assertEquals(doJsonExtract("{\"fuu\": [0, [100, 101], 2]}", "$.fuu[1]"), "[100,101]");
+    }
+
+    @Test
+    public void testResultIsView()
+    {
+        Slice json = toSlice("{\"fuu\": \"abc\", \"bar\": 42}");
+        Slice value = new JsonPathScanner("$.fuu", true).extract(json);
+        json.setByte(9, 'x');
+        assertEquals(value.toString(Charsets.UTF_8), "xbc");
+    }
+
+    @Test
+    public void testMatchesExtractorChain()
+            throws IOException
+    {
+        for (String document : DOCUMENTS) {
+            for (String path : PATHS) {
+                for (boolean scalarValue : new boolean[] {true, false}) {
+                    Slice expected = JsonExtract.extract(toSlice(document), generateExtractor(path, scalarValue));
+                    Slice actual = new JsonPathScanner(path, scalarValue).extract(toSlice(document));
+                    assertEquals(actual, expected, String.format("%s %s %s", document, path, scalarValue));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testArrayLength()
+    {
+        assertEquals(JsonPathScanner.arrayLength(toSlice("[]")), (Long) 0L);
+        assertEquals(JsonPathScanner.arrayLength(toSlice(" [ 1 ] ")), (Long) 1L);
+        assertEquals(JsonPathScanner.arrayLength(toSlice("[2, 4, {\"a\": [8, 9]}, [], [5], \"]\"]")), (Long) 6L);
+        assertNull(JsonPathScanner.arrayLength(toSlice("{}")));
+        assertNull(JsonPathScanner.arrayLength(toSlice("[1, 2")));
+        assertNull(JsonPathScanner.arrayLength(toSlice("[1,]")));
+    }
+
+    private static String doScalarExtract(String inputJson, String jsonPath)
+    {
+        Slice value = new JsonPathScanner(jsonPath, true).extract(toSlice(inputJson));
+        return (value == null) ? null : value.toString(Charsets.UTF_8);
+    }
+
+    private static String doJsonExtract(String inputJson, String jsonPath)
+    {
+        Slice value = new JsonPathScanner(jsonPath, false).extract(toSlice(inputJson));
+        return (value == null) ? null : value.toString(Charsets.UTF_8);
+    }
+
+    private static Slice toSlice(String json)
+    {
+        return Slices.wrappedBuffer(json.getBytes(Charsets.UTF_8));
+    }
+}
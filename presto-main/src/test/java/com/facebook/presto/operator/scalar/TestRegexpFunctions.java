@@ -13,9 +13,20 @@
  */
 package com.facebook.presto.operator.scalar;
 
+import com.facebook.presto.operator.scalar.RegexpFunctions.PatternCache;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
 import org.testng.annotations.Test;
 
 import static com.facebook.presto.operator.scalar.FunctionAssertions.assertFunction;
+import static com.facebook.presto.operator.scalar.FunctionAssertions.assertFunctionNull;
+import static com.facebook.presto.operator.scalar.RegexpFunctions.regexpExtract;
+import static com.facebook.presto.operator.scalar.RegexpFunctions.regexpLike;
+import static com.facebook.presto.operator.scalar.RegexpFunctions.regexpReplace;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TestRegexpFunctions
 {
@@ -31,6 +42,10 @@ public class TestRegexpFunctions
         assertFunction("REGEXP_LIKE('Hello', '^[a-z]+$')", false);
         assertFunction("REGEXP_LIKE('Hello', '^(?i)[a-z]+$')", true);
         assertFunction("REGEXP_LIKE('Hello', '^[a-zA-Z]+$')", true);
+
+        // literal patterns are matched with a substring search
+        assertFunction("REGEXP_LIKE('hello world', 'o w')", true);
+        assertFunction("REGEXP_LIKE('hello world', 'wow')", false);
     }
 
     @Test
@@ -45,6 +60,10 @@ public class TestRegexpFunctions
         assertFunction(
                 "REGEXP_REPLACE('call 555.123.4444 now', '(\\d{3})\\.(\\d{3}).(\\d{4})', '($1) $2-$3')",
                 "call (555) 123-4444 now");
+
+        assertFunction("REGEXP_REPLACE('abc', '')", "abc");
+        assertFunction("REGEXP_REPLACE('abc', '', '-')", "-a-b-c-");
+        assertFunction("REGEXP_REPLACE('a.b', '\\.', '\\$')", "a$b");
     }
 
     @Test
@@ -52,5 +71,80 @@ public class TestRegexpFunctions
     {
         assertFunction("REGEXP_EXTRACT('Hello world bye', '\\b[a-z]([a-z]*)')", "world");
         assertFunction("REGEXP_EXTRACT('Hello world bye', '\\b[a-z]([a-z]*)', 1)", "orld");
+        assertFunctionNull("REGEXP_EXTRACT('Hello world bye', 'x')");
+        assertFunctionNull("REGEXP_EXTRACT('Hello world bye', '(x)?bye', 1)");
+    }
+
+    @Test
+    public void testCharacterClasses()
+    {
+        assertFunction("REGEXP_LIKE('2013', '^\\d+$')", true);
+        assertFunction("REGEXP_LIKE('20l3', '^\\d+$')", false);
+        assertFunction("REGEXP_LIKE('a b', 'a\\sb')", true);
+        assertFunction("REGEXP_LIKE('a_1', '^\\w+$')", true);
+        assertFunction("REGEXP_LIKE('a-1', '^\\w+$')", false);
+        assertFunction("REGEXP_REPLACE('a1b2c3', '[^0-9]')", "123");
+        assertFunction("REGEXP_REPLACE('a1b2c3', '\\D', '.')", ".1.2.3");
+        assertFunction("REGEXP_EXTRACT('key=value', '([a-z]+)=([a-z]+)', 2)", "value");
+    }
+
+    @Test
+    public void testFlags()
+    {
+        assertFunction("REGEXP_LIKE('HELLO', 'hello')", false);
+        assertFunction("REGEXP_LIKE('HELLO', '(?i)hello')", true);
+        assertFunction("REGEXP_REPLACE('Hello hello', '(?i)h', 'j')", "jello jello");
+
+        // the dot does not match a line break, unless dotall is enabled
+        assertFunction("REGEXP_LIKE('a\nb', 'a.b')", false);
+        assertFunction("REGEXP_LIKE('a\nb', '(?s)a.b')", true);
+    }
+
+    @Test
+    public void testAnchors()
+    {
+        assertFunction("REGEXP_LIKE('abc', '^abc$')", true);
+        assertFunction("REGEXP_LIKE('xabc', '^abc')", false);
+        assertFunction("REGEXP_LIKE('abcx', 'abc$')", false);
+
+        // without multiline mode the anchors only match at the start and end of the value
+        assertFunction("REGEXP_LIKE('a\nb', '^b$')", false);
+        assertFunction("REGEXP_LIKE('a\nb', '(?m)^b$')", true);
+        assertFunction("REGEXP_REPLACE('one two', '^', '>')", ">one two");
+        assertFunction("REGEXP_REPLACE('one two', '$', '<')", "one two<");
+    }
+
+    @Test
+    public void testNonAsciiValues()
+    {
+        assertFunction("REGEXP_LIKE('\u00fcber', '^\u00fc')", true);
+        // the dot matches a code point, not a byte
+        assertFunction("REGEXP_LIKE('\u00fcber', '^.ber$')", true);
+        assertFunction("REGEXP_LIKE('\u00f6', '[\u00e4-\u00fc]')", true);
+        assertFunction("REGEXP_REPLACE('Stra\u00dfe 12', '[0-9]+', '#')", "Stra\u00dfe #");
+        assertFunction("REGEXP_REPLACE('a\u00e9b', '', '-')", "-a-\u00e9-b-");
+        assertFunction("REGEXP_EXTRACT('Stra\u00dfe 12', '[0-9]+')", "12");
+        assertFunction("REGEXP_EXTRACT('\u65e5\u672c\u8a9e', '\u672c(.)', 1)", "\u8a9e");
+    }
+
+    @Test
+    public void testSliceOfLargerValue()
+    {
+        PatternCache patternCache = new PatternCache(10);
+        Slice abc = Slices.copiedBuffer("xxabcxx", UTF_8).slice(2, 3);
+
+        // the match is limited to the bytes of the slice
+        assertTrue(regexpLike(patternCache, abc, Slices.copiedBuffer("^abc$", UTF_8)));
+        assertFalse(regexpLike(patternCache, abc, Slices.copiedBuffer("xa", UTF_8)));
+        assertEquals(regexpReplace(patternCache, abc, Slices.copiedBuffer("b", UTF_8), Slices.copiedBuffer("-", UTF_8)).toString(UTF_8), "a-c");
+        assertEquals(regexpExtract(patternCache, abc, Slices.copiedBuffer("c$", UTF_8), 0).toString(UTF_8), "c");
+    }
+
+    @Test
+    public void testInvalidUtf8()
+    {
+        // invalid sequences are matched as replacement characters
+        Slice value = Slices.wrappedBuffer(new byte[] {'a', (byte) 0xFF, 'b'});
+        assertTrue(regexpLike(new PatternCache(10), value, Slices.copiedBuffer("^a.b$", UTF_8)));
     }
 }
@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.serde;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.rle.RunLengthEncodedBlock;
+import com.facebook.presto.block.snappy.SnappyBlock;
+import com.facebook.presto.block.uncompressed.UncompressedBlock;
+import com.facebook.presto.tuple.Tuple;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.DynamicSliceOutput;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.facebook.presto.block.BlockAssertions.toValues;
+import static com.facebook.presto.tuple.Tuples.createTuple;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestAdaptiveBlockSerde
+{
+    @Test
+    public void testRoundTrip()
+    {
+        List<Tuple> tuples = new ArrayList<>();
+        // long runs are stored as runs
+        for (int i = 0; i < 10_000; i++) {
+            tuples.add(createTuple("run" + (i / 1000)));
+        }
+        // repetitive values without runs are compressed
+        for (int i = 0; i < 10_000; i++) {
+            tuples.add(createTuple("value" + (i % 10)));
+        }
+        // random values are stored uncompressed
+        Random random = new Random(0);
+        for (int i = 0; i < 10_000; i++) {
+            tuples.add(createTuple(random.nextLong()));
+        }
+
+        List<Block> blocks = roundTrip(tuples.subList(0, 20_000));
+        assertTrue(containsBlock(blocks, RunLengthEncodedBlock.class));
+        assertTrue(containsBlock(blocks, SnappyBlock.class));
+
+        blocks = roundTrip(tuples.subList(20_000, 30_000));
+        assertTrue(containsBlock(blocks, UncompressedBlock.class));
+    }
+
+    @Test
+    public void testShortRunsAreNotStoredAsRuns()
+    {
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            tuples.add(createTuple(i / 2));
+        }
+
+        List<Block> blocks = roundTrip(tuples);
+        assertFalse(containsBlock(blocks, RunLengthEncodedBlock.class));
+    }
+
+    private static List<Block> roundTrip(List<Tuple> tuples)
+    {
+        DynamicSliceOutput output = new DynamicSliceOutput(1024);
+        BlockEncoding encoding = BlocksFileEncoding.ADAPTIVE.createBlocksWriter(output)
+                .append(tuples)
+                .finish();
+
+        EncodedBlockIterable blocks = new EncodedBlockIterable(encoding, output.slice(), tuples.size());
+
+        List<List<Object>> expectedValues = new ArrayList<>();
+        for (Tuple tuple : tuples) {
+            expectedValues.add(tuple.toValues());
+        }
+        assertEquals(toValues(blocks), expectedValues);
+
+        return ImmutableList.copyOf(blocks);
+    }
+
+    private static boolean containsBlock(List<Block> blocks, Class<? extends Block> blockClass)
+    {
+        for (Block block : blocks) {
+            if (blockClass.isInstance(block)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
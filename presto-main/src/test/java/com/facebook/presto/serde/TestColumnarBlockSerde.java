@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.serde;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockAssertions;
+import com.facebook.presto.block.BlockBuilder;
+import com.facebook.presto.block.columnar.DoubleArrayBlock;
+import com.facebook.presto.block.columnar.LongArrayBlock;
+import com.facebook.presto.block.columnar.SliceArrayBlock;
+import com.facebook.presto.tuple.Tuple;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.DynamicSliceOutput;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.block.BlockAssertions.createDoublesBlock;
+import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_DOUBLE;
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_LONG;
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_VARBINARY;
+import static com.facebook.presto.tuple.Tuples.createTuple;
+import static io.airlift.testing.Assertions.assertInstanceOf;
+
+public class TestColumnarBlockSerde
+{
+    @Test
+    public void testRoundTrip()
+    {
+        assertRoundTrip(createLongsBlock(1L, null, 3L, Long.MAX_VALUE), LongArrayBlock.class);
+        assertRoundTrip(createDoublesBlock(null, 2.2, -3.3), DoubleArrayBlock.class);
+        assertRoundTrip(new BlockBuilder(SINGLE_VARBINARY)
+                .append("alice")
+                .appendNull()
+                .append("")
+                .append("dave")
+                .build(), SliceArrayBlock.class);
+    }
+
+    @Test
+    public void testRoundTripColumnarBlock()
+    {
+        Block block = new LongArrayBlock(new long[] {1, 2, 3, 4}, new boolean[] {false, true, false, false}).getRegion(1, 3);
+        DynamicSliceOutput sliceOutput = new DynamicSliceOutput(1024);
+        block.getEncoding().writeBlock(sliceOutput, block);
+        Block actualBlock = new ColumnarBlockEncoding(SINGLE_LONG).readBlock(sliceOutput.slice().getInput());
+        BlockAssertions.assertBlockEquals(actualBlock, createLongsBlock(null, 3L, 4L));
+    }
+
+    @Test
+    public void testCreateBlockWriter()
+    {
+        ImmutableList<Tuple> tuples = ImmutableList.of(createTuple(1.0), createTuple(2.0), createTuple(3.0));
+
+        DynamicSliceOutput sliceOutput = new DynamicSliceOutput(1024);
+        BlockEncoding blockEncoding = new ColumnarEncoder(sliceOutput).append(tuples).append(tuples).finish();
+        Block actualBlock = blockEncoding.readBlock(sliceOutput.slice().getInput());
+        assertInstanceOf(actualBlock, DoubleArrayBlock.class);
+        BlockAssertions.assertBlockEquals(actualBlock, new BlockBuilder(SINGLE_DOUBLE)
+                .append(1.0)
+                .append(2.0)
+                .append(3.0)
+                .append(1.0)
+                .append(2.0)
+                .append(3.0)
+                .build());
+    }
+
+    private static void assertRoundTrip(Block expectedBlock, Class<? extends Block> columnarBlockType)
+    {
+        DynamicSliceOutput sliceOutput = new DynamicSliceOutput(1024);
+        BlockEncoding blockEncoding = new ColumnarBlockEncoding(expectedBlock.getTupleInfo());
+        blockEncoding.writeBlock(sliceOutput, expectedBlock);
+        Block actualBlock = blockEncoding.readBlock(sliceOutput.slice().getInput());
+        assertInstanceOf(actualBlock, columnarBlockType);
+        BlockAssertions.assertBlockEquals(actualBlock, expectedBlock);
+    }
+}
@@ -18,9 +18,11 @@ import com.facebook.presto.metadata.DatabaseShardManager;
 import com.facebook.presto.metadata.InMemoryNodeManager;
 import com.facebook.presto.metadata.MetadataManager;
 import com.facebook.presto.metadata.MetadataUtil.TableMetadataBuilder;
+import com.facebook.presto.metadata.NativeColumnHandle;
 import com.facebook.presto.metadata.NativeMetadata;
 import com.facebook.presto.metadata.Node;
 import com.facebook.presto.metadata.NodeVersion;
+import com.facebook.presto.metadata.ShardColumnStats;
 import com.facebook.presto.metadata.ShardManager;
 import com.facebook.presto.metadata.TableMetadata;
 import com.facebook.presto.spi.ColumnHandle;
@@ -80,7 +82,9 @@ public class TestNativeSplitManager
     private File dataDir;
     private NativeSplitManager nativeSplitManager;
     private SplitManager splitManager;
+    private ShardManager shardManager;
     private TableHandle tableHandle;
+    private long[] shardIds;
     private ColumnHandle dsColumnHandle;
     private ColumnHandle fooColumnHandle;
     private Map<Symbol, ColumnHandle> symbols;
@@ -92,7 +96,7 @@ public class TestNativeSplitManager
         IDBI dbi = new DBI("jdbc:h2:mem:test" + System.nanoTime());
         dummyHandle = dbi.open();
         dataDir = Files.createTempDir();
-        ShardManager shardManager = new DatabaseShardManager(dbi);
+        shardManager = new DatabaseShardManager(dbi);
         InMemoryNodeManager nodeManager = new InMemoryNodeManager();
 
         String nodeName = UUID.randomUUID().toString();
@@ -111,10 +115,11 @@ public class TestNativeSplitManager
         long shardId3 = shardManager.allocateShard(tableHandle);
         long shardId4 = shardManager.allocateShard(tableHandle);
 
-        shardManager.commitPartition(tableHandle, "ds=1", ImmutableList.<PartitionKey>of(new NativePartitionKey("ds=1", "ds", ColumnType.STRING, "1")), ImmutableMap.of(shardId1, nodeName,
+        shardManager.commitPartition(tableHandle, "ds=1", Optional.<String>absent(), ImmutableList.<PartitionKey>of(new NativePartitionKey("ds=1", "ds", ColumnType.STRING, "1")), ImmutableMap.of(shardId1, nodeName,
                 shardId2, nodeName,
                 shardId3, nodeName));
-        shardManager.commitPartition(tableHandle, "ds=2", ImmutableList.<PartitionKey>of(new NativePartitionKey("ds=2", "ds", ColumnType.STRING, "2")), ImmutableMap.of(shardId4, nodeName));
+        shardManager.commitPartition(tableHandle, "ds=2", Optional.<String>absent(), ImmutableList.<PartitionKey>of(new NativePartitionKey("ds=2", "ds", ColumnType.STRING, "2")), ImmutableMap.of(shardId4, nodeName));
+        shardIds = new long[] {shardId1, shardId2, shardId3, shardId4};
 
         nativeSplitManager = new NativeSplitManager(nodeManager, shardManager, metadataManager);
         splitManager = new SplitManager(metadataManager, ImmutableSet.<ConnectorSplitManager>of(nativeSplitManager));
@@ -179,4 +184,24 @@ public class TestNativeSplitManager
         // all splits found
         assertEquals(splits.size(), 4);
     }
+
+    @Test
+    public void testPruneByColumnStats()
+    {
+        long fooColumnId = ((NativeColumnHandle) fooColumnHandle).getColumnId();
+        shardManager.commitShardColumnStats(shardIds[0], ImmutableList.of(new ShardColumnStats(fooColumnId, "a", "b", 0, 10)));
+        shardManager.commitShardColumnStats(shardIds[1], ImmutableList.of(new ShardColumnStats(fooColumnId, "bar", "baz", 2, 10)));
+        shardManager.commitShardColumnStats(shardIds[2], ImmutableList.of(new ShardColumnStats(fooColumnId, null, null, 10, 10)));
+
+        // foo=bar. Only the second shard and the shard without stats can contain this.
+        Expression matching = new ComparisonExpression(Type.EQUAL, new QualifiedNameReference(new QualifiedName("foo")), new StringLiteral("bar"));
+        DataSource dataSource = splitManager.getSplits(session, tableHandle, BooleanLiteral.TRUE_LITERAL, matching, Predicates.<Partition>alwaysTrue(), symbols);
+        List<Split> splits = ImmutableList.copyOf(dataSource.getSplits());
+        assertEquals(splits.size(), 2);
+
+        // without a predicate on the column nothing is pruned
+        dataSource = splitManager.getSplits(session, tableHandle, BooleanLiteral.TRUE_LITERAL, BooleanLiteral.TRUE_LITERAL, Predicates.<Partition>alwaysTrue(), symbols);
+        splits = ImmutableList.copyOf(dataSource.getSplits());
+        assertEquals(splits.size(), 4);
+    }
 }
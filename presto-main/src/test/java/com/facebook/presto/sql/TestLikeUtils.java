@@ -63,4 +63,61 @@ public class TestLikeUtils
         Regex regex = LikeUtils.likeToPattern("xxx%x_xabcxx", 'x');
         assertTrue(LikeUtils.regexMatches(regex, utf8Slice("x%_abcx")));
     }
+
+    @Test
+    public void testMatcher()
+    {
+        assertTrue(LikeUtils.likeToMatcher("abc").matches(utf8Slice("abc")));
+        assertFalse(LikeUtils.likeToMatcher("abc").matches(utf8Slice("abcd")));
+        assertTrue(LikeUtils.likeToMatcher("").matches(utf8Slice("")));
+        assertTrue(LikeUtils.likeToMatcher("%").matches(utf8Slice("")));
+        assertTrue(LikeUtils.likeToMatcher("%%").matches(utf8Slice("abc")));
+
+        assertTrue(LikeUtils.likeToMatcher("ab%").matches(utf8Slice("abc")));
+        assertFalse(LikeUtils.likeToMatcher("ab%").matches(utf8Slice("cab")));
+        assertTrue(LikeUtils.likeToMatcher("%bc").matches(utf8Slice("abc")));
+        assertFalse(LikeUtils.likeToMatcher("%bc").matches(utf8Slice("bcd")));
+        assertTrue(LikeUtils.likeToMatcher("%b%").matches(utf8Slice("abc")));
+        assertFalse(LikeUtils.likeToMatcher("%x%").matches(utf8Slice("abcdefghijk")));
+        assertTrue(LikeUtils.likeToMatcher("%jk%").matches(utf8Slice("abcdefghijk")));
+
+        // the prefix and suffix must not overlap
+        assertFalse(LikeUtils.likeToMatcher("ab%ba").matches(utf8Slice("aba")));
+        assertTrue(LikeUtils.likeToMatcher("a%b%b%a").matches(utf8Slice("abba")));
+        assertFalse(LikeUtils.likeToMatcher("a%b%b%a").matches(utf8Slice("aba")));
+
+        assertTrue(LikeUtils.likeToMatcher("a_c").matches(utf8Slice("abc")));
+        assertFalse(LikeUtils.likeToMatcher("a_c").matches(utf8Slice("ac")));
+        assertTrue(LikeUtils.likeToMatcher("%a_c").matches(utf8Slice("xxaac")));
+        assertTrue(LikeUtils.likeToMatcher("%_b_%").matches(utf8Slice("abc")));
+        assertFalse(LikeUtils.likeToMatcher("%_b_%").matches(utf8Slice("bc")));
+        assertTrue(LikeUtils.likeToMatcher("%\n%").matches(utf8Slice("line\nbreak")));
+        assertTrue(LikeUtils.likeToMatcher("line%break").matches(utf8Slice("line\nbreak")));
+    }
+
+    @Test
+    public void testMatcherUtf8()
+    {
+        // a single character wildcard matches a whole code point
+        assertTrue(LikeUtils.likeToMatcher("_\u8a89").matches(utf8Slice("\u540d\u8a89")));
+        assertTrue(LikeUtils.likeToMatcher("%_").matches(utf8Slice("\u540d")));
+        assertFalse(LikeUtils.likeToMatcher("__").matches(utf8Slice("\u540d")));
+        assertTrue(LikeUtils.likeToMatcher("%\u8a89%").matches(utf8Slice("x\u540d\u8a89x")));
+        assertFalse(LikeUtils.likeToMatcher("%\u540d\u8a89%").matches(utf8Slice("foo")));
+
+        Slice value = Slices.wrappedBuffer(new byte[] {'a', 'b', 'c', (byte) 0xFF, 'x', 'y'});
+        assertTrue(LikeUtils.likeToMatcher("%b%").matches(value));
+        assertTrue(LikeUtils.likeToMatcher("abc_xy").matches(value));
+    }
+
+    @Test
+    public void testMatcherEscape()
+    {
+        assertTrue(LikeUtils.likeToMatcher("\\\\abc\\%", '\\').matches(utf8Slice("\\abc%")));
+        assertFalse(LikeUtils.likeToMatcher("\\\\abc\\%", '\\').matches(utf8Slice("\\abcd")));
+        assertTrue(LikeUtils.likeToMatcher("xxx%x_xabcxx", 'x').matches(utf8Slice("x%_abcx")));
+        assertTrue(LikeUtils.likeToMatcher("\\abc\\/\\\\").matches(utf8Slice("\\abc\\/\\\\")));
+        assertTrue(LikeUtils.likeToMatcher(utf8Slice("a!%%"), utf8Slice("!")).matches(utf8Slice("a%b")));
+        assertFalse(LikeUtils.likeToMatcher(utf8Slice("a!%%"), utf8Slice("!")).matches(utf8Slice("ab")));
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.presto.operator.TupleComparator;
+import com.facebook.presto.operator.TupleHashStrategy;
+import com.facebook.presto.sql.tree.SortItem.Ordering;
+import com.facebook.presto.tuple.FieldOrderedTupleComparator;
+import com.facebook.presto.tuple.Tuple;
+import com.facebook.presto.tuple.TupleInfo;
+import com.facebook.presto.tuple.TupleReadable;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import org.testng.annotations.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static com.facebook.presto.sql.gen.TupleCompiler.compileComparator;
+import static com.facebook.presto.sql.gen.TupleCompiler.compileHashStrategy;
+import static com.facebook.presto.sql.gen.TupleCompiler.compileTupleReadableComparator;
+import static com.facebook.presto.tuple.TupleInfo.Type.BOOLEAN;
+import static com.facebook.presto.tuple.TupleInfo.Type.DOUBLE;
+import static com.facebook.presto.tuple.TupleInfo.Type.FIXED_INT_64;
+import static com.facebook.presto.tuple.TupleInfo.Type.VARIABLE_BINARY;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestTupleCompiler
+{
+    private static final TupleInfo FIXED_TUPLE_INFO = new TupleInfo(FIXED_INT_64, DOUBLE, BOOLEAN);
+    private static final TupleInfo VARIABLE_TUPLE_INFO = new TupleInfo(FIXED_INT_64, VARIABLE_BINARY, DOUBLE);
+
+    @Test
+    public void testFixedSizeHashStrategy()
+    {
+        TupleHashStrategy hashStrategy = compileHashStrategy(FIXED_TUPLE_INFO);
+        assertSame(compileHashStrategy(new TupleInfo(FIXED_INT_64, DOUBLE, BOOLEAN)), hashStrategy);
+
+        Slice value = FIXED_TUPLE_INFO.builder().append(42).append(1.5).append(true).build().getTupleSlice();
+        Slice sameValue = atOffset(FIXED_TUPLE_INFO.builder().append(42).append(1.5).append(true).build().getTupleSlice(), 3);
+        Slice otherBoolean = FIXED_TUPLE_INFO.builder().append(42).append(1.5).append(false).build().getTupleSlice();
+        Slice otherNull = FIXED_TUPLE_INFO.builder().append(42).append(1.5).appendNull().build().getTupleSlice();
+
+        assertEquals(hashStrategy.hashCode(sameValue, 3), hashStrategy.hashCode(value, 0));
+        assertTrue(hashStrategy.equals(value, 0, sameValue, 3));
+        assertFalse(hashStrategy.equals(value, 0, otherBoolean, 0));
+        assertFalse(hashStrategy.equals(otherBoolean, 0, otherNull, 0));
+    }
+
+    @Test
+    public void testVariableSizeHashStrategy()
+    {
+        TupleHashStrategy hashStrategy = compileHashStrategy(VARIABLE_TUPLE_INFO);
+
+        Slice value = VARIABLE_TUPLE_INFO.builder().append(1).append("apple").append(2.0).build().getTupleSlice();
+        Slice sameValue = atOffset(VARIABLE_TUPLE_INFO.builder().append(1).append("apple").append(2.0).build().getTupleSlice(), 5);
+        Slice otherString = VARIABLE_TUPLE_INFO.builder().append(1).append("apples").append(2.0).build().getTupleSlice();
+
+        assertEquals(hashStrategy.hashCode(sameValue, 5), hashStrategy.hashCode(value, 0));
+        assertTrue(hashStrategy.equals(value, 0, sameValue, 5));
+        assertFalse(hashStrategy.equals(value, 0, otherString, 0));
+    }
+
+    @Test
+    public void testComparator()
+    {
+        // order by the string ascending, then by the long descending
+        TupleComparator comparator = compileComparator(VARIABLE_TUPLE_INFO, new int[] {1, 0}, new boolean[] {true, false});
+        assertSame(compileComparator(VARIABLE_TUPLE_INFO, new int[] {1, 0}, new boolean[] {true, false}), comparator);
+
+        Slice apple1 = VARIABLE_TUPLE_INFO.builder().append(1).append("apple").append(9.0).build().getTupleSlice();
+        Slice apple2 = atOffset(VARIABLE_TUPLE_INFO.builder().append(2).append("apple").append(0.0).build().getTupleSlice(), 7);
+        Slice banana = VARIABLE_TUPLE_INFO.builder().append(0).append("banana").append(0.0).build().getTupleSlice();
+
+        assertTrue(comparator.compare(apple2, 7, apple1, 0) < 0);
+        assertTrue(comparator.compare(apple1, 0, apple2, 7) > 0);
+        assertTrue(comparator.compare(apple1, 0, banana, 0) < 0);
+        assertEquals(comparator.compare(apple1, 0, apple1, 0), 0);
+
+        TupleComparator fixedComparator = compileComparator(FIXED_TUPLE_INFO, new int[] {2, 1}, new boolean[] {false, true});
+        Slice trueLow = FIXED_TUPLE_INFO.builder().append(0).append(-1.0).append(true).build().getTupleSlice();
+        Slice trueHigh = FIXED_TUPLE_INFO.builder().append(0).append(1.0).append(true).build().getTupleSlice();
+        Slice falseLow = FIXED_TUPLE_INFO.builder().append(0).append(-1.0).append(false).build().getTupleSlice();
+
+        assertTrue(fixedComparator.compare(trueLow, 0, trueHigh, 0) < 0);
+        assertTrue(fixedComparator.compare(trueHigh, 0, falseLow, 0) < 0);
+    }
+
+    @Test
+    public void testTupleReadableComparator()
+    {
+        List<Integer> sortFields = ImmutableList.of(1, 0);
+        Comparator<TupleReadable> comparator = compileTupleReadableComparator(VARIABLE_TUPLE_INFO, sortFields, ImmutableList.of(false, true));
+        // the compiled comparator must order like the interpreted one
+        FieldOrderedTupleComparator expected = new FieldOrderedTupleComparator(sortFields, ImmutableList.of(Ordering.DESCENDING, Ordering.ASCENDING));
+
+        Tuple apple1 = VARIABLE_TUPLE_INFO.builder().append(1).append("apple").append(0.0).build();
+        Tuple apple2 = VARIABLE_TUPLE_INFO.builder().append(2).append("apple").append(0.0).build();
+        Tuple banana = VARIABLE_TUPLE_INFO.builder().append(0).append("banana").append(0.0).build();
+
+        assertTrue(comparator.compare(banana, apple1) < 0);
+        assertTrue(comparator.compare(apple1, apple2) < 0);
+        assertEquals(comparator.compare(apple2, apple2), 0);
+
+        List<Tuple> tuples = ImmutableList.of(apple1, apple2, banana);
+        for (Tuple left : tuples) {
+            for (Tuple right : tuples) {
+                assertEquals(Integer.signum(comparator.compare(left, right)), Integer.signum(expected.compare(left, right)));
+            }
+        }
+    }
+
+    private static Slice atOffset(Slice tuple, int offset)
+    {
+        Slice slice = Slices.allocate(offset + tuple.length());
+        slice.setBytes(offset, tuple);
+        return slice;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner.optimizations;
+
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.sql.analyzer.Session;
+import com.facebook.presto.sql.analyzer.Type;
+import com.facebook.presto.sql.planner.PlanNodeIdAllocator;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.planner.SymbolAllocator;
+import com.facebook.presto.sql.planner.plan.FilterNode;
+import com.facebook.presto.sql.planner.plan.JoinNode;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.ProjectNode;
+import com.facebook.presto.sql.planner.plan.SortNode;
+import com.facebook.presto.sql.planner.plan.TableScanNode;
+import com.facebook.presto.sql.tree.BooleanLiteral;
+import com.facebook.presto.sql.tree.ComparisonExpression;
+import com.facebook.presto.sql.tree.LongLiteral;
+import com.facebook.presto.sql.tree.QualifiedNameReference;
+import com.facebook.presto.sql.tree.SortItem;
+import com.facebook.presto.tpch.TpchColumnHandle;
+import com.facebook.presto.tpch.TpchTableHandle;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.spi.ColumnType.LONG;
+import static com.facebook.presto.tpch.TpchMetadata.TPCH_LINEITEM_NAME;
+import static com.facebook.presto.tpch.TpchMetadata.TPCH_ORDERS_NAME;
+import static com.facebook.presto.tpch.TpchMetadata.createTpchMetadata;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestReorderJoins
+{
+    private final PlanNodeIdAllocator idAllocator = new PlanNodeIdAllocator();
+    private final ReorderJoins optimizer = new ReorderJoins(createTpchMetadata());
+
+    @Test
+    public void testLargerInputIsProbeSide()
+    {
+        Symbol orderKey = new Symbol("o_orderkey");
+        Symbol lineOrderKey = new Symbol("l_orderkey");
+        TableScanNode orders = tableScan(TPCH_ORDERS_NAME, orderKey);
+        TableScanNode lineitem = tableScan(TPCH_LINEITEM_NAME, lineOrderKey);
+
+        JoinNode join = join(orders, lineitem, orderKey, lineOrderKey);
+        PlanNode result = optimize(join);
+
+        assertEquals(result.getOutputSymbols(), join.getOutputSymbols());
+        JoinNode reordered = getJoin(result);
+        assertSame(reordered.getLeft(), lineitem);
+        assertSame(reordered.getRight(), orders);
+        assertEquals(reordered.getCriteria().get(0).getLeft(), lineOrderKey);
+        assertEquals(reordered.getCriteria().get(0).getRight(), orderKey);
+    }
+
+    @Test
+    public void testSmallestConnectedInputIsBuiltFirst()
+    {
+        Symbol orderKey = new Symbol("o_orderkey");
+        Symbol filteredOrderKey = new Symbol("o2_orderkey");
+        Symbol lineOrderKey = new Symbol("l_orderkey");
+        TableScanNode orders = tableScan(TPCH_ORDERS_NAME, orderKey);
+        FilterNode filteredOrders = new FilterNode(idAllocator.getNextId(),
+                tableScan(TPCH_ORDERS_NAME, filteredOrderKey),
+                new ComparisonExpression(ComparisonExpression.Type.LESS_THAN, new QualifiedNameReference(filteredOrderKey.toQualifiedName()), new LongLiteral("100")));
+        TableScanNode lineitem = tableScan(TPCH_LINEITEM_NAME, lineOrderKey);
+
+        // lineitem is only connected to the unfiltered orders, so that must be built before the filtered orders
+        JoinNode join = join(join(filteredOrders, orders, filteredOrderKey, orderKey), lineitem, orderKey, lineOrderKey);
+        PlanNode result = optimize(join);
+
+        assertEquals(result.getOutputSymbols(), join.getOutputSymbols());
+        JoinNode top = getJoin(result);
+        assertSame(top.getRight(), filteredOrders);
+        JoinNode bottom = (JoinNode) top.getLeft();
+        assertSame(bottom.getLeft(), lineitem);
+        assertSame(bottom.getRight(), orders);
+    }
+
+    @Test
+    public void testBestOrderIsUnchanged()
+    {
+        Symbol orderKey = new Symbol("o_orderkey");
+        Symbol lineOrderKey = new Symbol("l_orderkey");
+
+        JoinNode join = join(tableScan(TPCH_LINEITEM_NAME, lineOrderKey), tableScan(TPCH_ORDERS_NAME, orderKey), lineOrderKey, orderKey);
+        assertSame(optimize(join), join);
+    }
+
+    @Test
+    public void testUnknownInputKeepsJoinOrder()
+    {
+        Symbol orderKey = new Symbol("o_orderkey");
+        Symbol lineOrderKey = new Symbol("l_orderkey");
+        Symbol sortedOrderKey = new Symbol("o2_orderkey");
+        Symbol sortedLineOrderKey = new Symbol("l2_orderkey");
+        TableScanNode sortedOrders = tableScan(TPCH_ORDERS_NAME, sortedOrderKey);
+        TableScanNode sortedLineitem = tableScan(TPCH_LINEITEM_NAME, sortedLineOrderKey);
+        TableScanNode lineitem = tableScan(TPCH_LINEITEM_NAME, lineOrderKey);
+
+        // the size of a sorted input is unknown, but the join below the sort is still reordered
+        SortNode sorted = new SortNode(idAllocator.getNextId(),
+                join(sortedOrders, sortedLineitem, sortedOrderKey, sortedLineOrderKey),
+                ImmutableList.of(sortedOrderKey),
+                ImmutableMap.of(sortedOrderKey, SortItem.Ordering.ASCENDING));
+        JoinNode join = join(sorted, lineitem, sortedOrderKey, lineOrderKey);
+        PlanNode result = optimize(join);
+
+        assertTrue(result instanceof JoinNode, "expected the join as written");
+        JoinNode top = (JoinNode) result;
+        assertEquals(top.getId(), join.getId());
+        assertEquals(top.getCriteria(), join.getCriteria());
+        assertSame(top.getRight(), lineitem);
+
+        JoinNode reordered = getJoin(((SortNode) top.getLeft()).getSource());
+        assertSame(reordered.getLeft(), sortedLineitem);
+        assertSame(reordered.getRight(), sortedOrders);
+    }
+
+    @Test
+    public void testOuterJoinIsUnchanged()
+    {
+        Symbol orderKey = new Symbol("o_orderkey");
+        Symbol lineOrderKey = new Symbol("l_orderkey");
+
+        JoinNode join = new JoinNode(idAllocator.getNextId(),
+                JoinNode.Type.LEFT,
+                tableScan(TPCH_ORDERS_NAME, orderKey),
+                tableScan(TPCH_LINEITEM_NAME, lineOrderKey),
+                ImmutableList.of(new JoinNode.EquiJoinClause(orderKey, lineOrderKey)));
+        assertSame(optimize(join), join);
+    }
+
+    private PlanNode optimize(PlanNode plan)
+    {
+        Session session = new Session("user", "test", "tpch", "default", null, null);
+        return optimizer.optimize(plan, session, ImmutableMap.<Symbol, Type>of(), new SymbolAllocator(), idAllocator);
+    }
+
+    private static JoinNode getJoin(PlanNode node)
+    {
+        assertTrue(node instanceof ProjectNode, "expected a projection restoring the output layout");
+        return (JoinNode) ((ProjectNode) node).getSource();
+    }
+
+    private JoinNode join(PlanNode left, PlanNode right, Symbol leftSymbol, Symbol rightSymbol)
+    {
+        return new JoinNode(idAllocator.getNextId(), JoinNode.Type.INNER, left, right, ImmutableList.of(new JoinNode.EquiJoinClause(leftSymbol, rightSymbol)));
+    }
+
+    private TableScanNode tableScan(String tableName, Symbol orderKey)
+    {
+        return new TableScanNode(idAllocator.getNextId(),
+                new TpchTableHandle(tableName),
+                ImmutableList.of(orderKey),
+                ImmutableMap.<Symbol, ColumnHandle>of(orderKey, new TpchColumnHandle("orderkey", 0, LONG)),
+                BooleanLiteral.TRUE_LITERAL,
+                BooleanLiteral.TRUE_LITERAL);
+    }
+}
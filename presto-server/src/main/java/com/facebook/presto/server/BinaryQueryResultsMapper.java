@@ -0,0 +1,174 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockBuilder;
+import com.facebook.presto.block.BlockCursor;
+import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.operator.Page;
+import com.facebook.presto.operator.ProjectionFunction;
+import com.facebook.presto.serde.BlockEncoding;
+import com.facebook.presto.serde.ColumnarBlockEncoding;
+import com.facebook.presto.serde.PagesSerde;
+import com.facebook.presto.serde.PagesWriter;
+import com.facebook.presto.server.StatementResource.ResultPages;
+import com.facebook.presto.server.StatementResource.StatementResults;
+import com.facebook.presto.tuple.TupleInfo;
+import com.facebook.presto.tuple.TupleReadable;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.PeekingIterator;
+import io.airlift.json.JsonCodec;
+import io.airlift.slice.OutputStreamSliceOutput;
+import io.airlift.slice.SliceOutput;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import static com.facebook.presto.client.BinaryQueryResults.PRESTO_BINARY_RESULTS;
+import static com.facebook.presto.operator.ProjectionFunctions.singleColumn;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterators.peekingIterator;
+
+/**
+ * Writes query results in the binary format read by {@link com.facebook.presto.client.BinaryQueryResults}.
+ * The data is written straight from the result pages with the columnar block encoding,
+ * so the rows are never converted to JSON.  The pages are streamed from the exchange
+ * as they are written, so they are never buffered as a whole in the server.
+ */
+@Provider
+@Produces(PRESTO_BINARY_RESULTS)
+public class BinaryQueryResultsMapper
+        implements MessageBodyWriter<StatementResults>
+{
+    private static final MediaType PRESTO_BINARY_RESULTS_TYPE = MediaType.valueOf(PRESTO_BINARY_RESULTS);
+
+    private final JsonCodec<QueryResults> queryResultsCodec;
+
+    @Inject
+    public BinaryQueryResultsMapper(JsonCodec<QueryResults> queryResultsCodec)
+    {
+        this.queryResultsCodec = checkNotNull(queryResultsCodec, "queryResultsCodec is null");
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+    {
+        return StatementResults.class.isAssignableFrom(type) && mediaType.isCompatible(PRESTO_BINARY_RESULTS_TYPE);
+    }
+
+    @Override
+    public long getSize(StatementResults results, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+    {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(StatementResults results,
+            Class<?> type,
+            Type genericType,
+            Annotation[] annotations,
+            MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders,
+            OutputStream output)
+            throws IOException, WebApplicationException
+    {
+        SliceOutput sliceOutput = new OutputStreamSliceOutput(output);
+        ResultPages resultPages = results.getResultPages();
+        writeQueryResults(sliceOutput, queryResultsCodec, results.getQueryResults(), resultPages == null ? null : resultPages.getPages());
+        sliceOutput.flush();
+    }
+
+    public static void writeQueryResults(SliceOutput sliceOutput, JsonCodec<QueryResults> queryResultsCodec, QueryResults results, @Nullable Iterable<Page> pages)
+    {
+        QueryResults header = new QueryResults(
+                results.getId(),
+                results.getInfoUri(),
+                results.getPartialCancelUri(),
+                results.getNextUri(),
+                results.getColumns(),
+                null,
+                results.getStats(),
+                results.getError());
+        byte[] headerBytes = queryResultsCodec.toJson(header).getBytes(Charsets.UTF_8);
+        sliceOutput.writeInt(headerBytes.length);
+        sliceOutput.writeBytes(headerBytes);
+
+        if (pages == null) {
+            return;
+        }
+        PeekingIterator<Page> iterator = peekingIterator(pages.iterator());
+        if (!iterator.hasNext()) {
+            return;
+        }
+
+        ImmutableList.Builder<BlockEncoding> encodings = ImmutableList.builder();
+        for (Block block : iterator.peek().getBlocks()) {
+            for (TupleInfo.Type fieldType : block.getTupleInfo().getTypes()) {
+                encodings.add(new ColumnarBlockEncoding(new TupleInfo(fieldType)));
+            }
+        }
+
+        PagesWriter pagesWriter = PagesSerde.createPagesWriter(sliceOutput, encodings.build());
+        while (iterator.hasNext()) {
+            pagesWriter.append(toColumnPage(iterator.next()));
+        }
+    }
+
+    /**
+     * Splits channels with several fields into a block per field, since the client expects a block per column.
+     */
+    private static Page toColumnPage(Page page)
+    {
+        boolean singleFieldChannels = true;
+        for (Block block : page.getBlocks()) {
+            singleFieldChannels &= block.getTupleInfo().getFieldCount() == 1;
+        }
+        if (singleFieldChannels) {
+            return page;
+        }
+
+        ImmutableList.Builder<Block> columns = ImmutableList.builder();
+        for (int channel = 0; channel < page.getChannelCount(); channel++) {
+            List<TupleInfo.Type> types = page.getBlock(channel).getTupleInfo().getTypes();
+            for (int field = 0; field < types.size(); field++) {
+                ProjectionFunction projection = singleColumn(types.get(field), channel, field);
+                BlockBuilder blockBuilder = new BlockBuilder(projection.getTupleInfo());
+
+                TupleReadable[] cursors = new TupleReadable[page.getChannelCount()];
+                BlockCursor cursor = page.getBlock(channel).cursor();
+                cursors[channel] = cursor;
+                while (cursor.advanceNextPosition()) {
+                    projection.project(cursors, blockBuilder);
+                }
+                columns.add(blockBuilder.build());
+            }
+        }
+        List<Block> blocks = columns.build();
+        return new Page(blocks.toArray(new Block[blocks.size()]));
+    }
+}
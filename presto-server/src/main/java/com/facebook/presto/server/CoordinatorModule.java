@@ -22,6 +22,7 @@ import com.facebook.presto.execution.QueryExecution;
 import com.facebook.presto.execution.QueryIdGenerator;
 import com.facebook.presto.execution.QueryManager;
 import com.facebook.presto.execution.QueryManagerConfig;
+import com.facebook.presto.execution.QueryQueueManager;
 import com.facebook.presto.execution.SqlQueryExecution;
 import com.facebook.presto.execution.SqlQueryManager;
 import com.facebook.presto.guice.AbstractConfigurationAwareModule;
@@ -32,6 +33,8 @@ import com.facebook.presto.importer.PeriodicImportConfig;
 import com.facebook.presto.importer.PeriodicImportController;
 import com.facebook.presto.importer.PeriodicImportManager;
 import com.facebook.presto.importer.PeriodicImportRunnable;
+import com.facebook.presto.memory.ClusterMemoryManager;
+import com.facebook.presto.memory.ForClusterMemoryManager;
 import com.facebook.presto.metadata.AliasDao;
 import com.facebook.presto.metadata.DatabaseShardManager;
 import com.facebook.presto.metadata.DiscoveryNodeManager;
@@ -95,6 +98,12 @@ public class CoordinatorModule
         binder.bind(QueryManager.class).to(SqlQueryManager.class).in(Scopes.SINGLETON);
         newExporter(binder).export(QueryManager.class).withGeneratedName();
         bindConfig(binder).to(QueryManagerConfig.class);
+        binder.bind(QueryQueueManager.class).in(Scopes.SINGLETON);
+
+        // cluster memory manager
+        binder.bind(ClusterMemoryManager.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(ClusterMemoryManager.class).withGeneratedName();
+        httpClientBinder(binder).bindAsyncHttpClient("memory-manager", ForClusterMemoryManager.class).withTracing();
 
         // native
         binder.bind(NativeSplitManager.class).in(Scopes.SINGLETON);
@@ -245,16 +245,18 @@ public class HttpRemoteTask
     }
 
     @Override
-    public synchronized void addSplit(Split split)
+    public synchronized void addSplits(List<Split> splits)
     {
         try (SetThreadName setThreadName = new SetThreadName("HttpRemoteTask-%s", taskId)) {
-            checkNotNull(split, "split is null");
+            checkNotNull(splits, "splits is null");
             checkState(!noMoreSplits, "noMoreSplits has already been set");
             checkState(planFragment.isPartitioned(), "Plan is not partitioned");
 
-            // only add pending split if not done
+            // only add pending splits if not done
             if (!getTaskInfo().getState().isDone()) {
-                pendingSplits.put(planFragment.getPartitionedSource(), new ScheduledSplit(nextSplitId.getAndIncrement(), split));
+                for (Split split : splits) {
+                    pendingSplits.put(planFragment.getPartitionedSource(), new ScheduledSplit(nextSplitId.getAndIncrement(), split));
+                }
                 needsUpdate.set(true);
             }
 
@@ -525,12 +527,8 @@ public class HttpRemoteTask
     private synchronized void requestSucceeded(TaskInfo newValue, List<TaskSource> sources)
     {
         try (SetThreadName setThreadName = new SetThreadName("HttpRemoteTask-%s", taskId)) {
-            updateTaskInfo(newValue);
-            lastSuccessfulRequest.set(System.nanoTime());
-            errorCount.set(0);
-            errorsSinceLastSuccess.clear();
-
-            // remove acknowledged splits, which frees memory
+            // remove acknowledged splits, which frees memory; this is done before the
+            // task info is updated, so listeners see the new number of queued splits
             for (TaskSource source : sources) {
                 PlanNodeId planNodeId = source.getPlanNodeId();
                 for (ScheduledSplit split : source.getSplits()) {
@@ -538,6 +536,11 @@ public class HttpRemoteTask
                 }
             }
 
+            updateTaskInfo(newValue);
+            lastSuccessfulRequest.set(System.nanoTime());
+            errorCount.set(0);
+            errorsSinceLastSuccess.clear();
+
             if (continuousTaskInfoFetcher == null) {
                 continuousTaskInfoFetcher = new ContinuousTaskInfoFetcher();
                 continuousTaskInfoFetcher.start();
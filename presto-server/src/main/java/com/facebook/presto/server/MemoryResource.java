@@ -0,0 +1,47 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server;
+
+import com.facebook.presto.memory.MemoryPool;
+import com.facebook.presto.memory.MemoryPoolInfo;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reports the memory pool of this node to the coordinator.
+ */
+@Path("/v1/memory")
+public class MemoryResource
+{
+    private final MemoryPool memoryPool;
+
+    @Inject
+    public MemoryResource(MemoryPool memoryPool)
+    {
+        this.memoryPool = checkNotNull(memoryPool, "memoryPool is null");
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public MemoryPoolInfo getMemoryPoolInfo()
+    {
+        return memoryPool.getInfo();
+    }
+}
@@ -14,7 +14,7 @@
 package com.facebook.presto.server;
 
 import com.facebook.presto.operator.Page;
-import com.facebook.presto.serde.PagesSerde;
+import com.facebook.presto.serde.PagesCompression;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.reflect.TypeToken;
@@ -38,6 +38,7 @@ import java.lang.reflect.Type;
 import java.util.List;
 
 import static com.facebook.presto.PrestoMediaTypes.PRESTO_PAGES;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_COMPRESSION;
 
 @Provider
 @Consumes(PRESTO_PAGES)
@@ -74,7 +75,8 @@ public class PagesMapper
             InputStream input)
             throws IOException, WebApplicationException
     {
-        return ImmutableList.copyOf(PagesSerde.readPages(new InputStreamSliceInput(input)));
+        PagesCompression compression = PagesCompression.fromHeader(httpHeaders.getFirst(PRESTO_PAGE_COMPRESSION));
+        return ImmutableList.copyOf(compression.readPages(new InputStreamSliceInput(input)));
     }
 
     @Override
@@ -101,6 +103,8 @@ public class PagesMapper
             OutputStream output)
             throws IOException, WebApplicationException
     {
-        PagesSerde.writePages(new OutputStreamSliceOutput(output), pages);
+        Object compressionHeader = httpHeaders.getFirst(PRESTO_PAGE_COMPRESSION);
+        PagesCompression compression = PagesCompression.fromHeader(compressionHeader == null ? null : compressionHeader.toString());
+        compression.writePages(new OutputStreamSliceOutput(output), pages);
     }
 }
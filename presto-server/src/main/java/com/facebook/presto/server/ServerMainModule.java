@@ -35,6 +35,9 @@ import com.facebook.presto.execution.TaskManagerConfig;
 import com.facebook.presto.failureDetector.FailureDetector;
 import com.facebook.presto.failureDetector.FailureDetectorModule;
 import com.facebook.presto.guice.AbstractConfigurationAwareModule;
+import com.facebook.presto.memory.MemoryManagerConfig;
+import com.facebook.presto.memory.MemoryPool;
+import com.facebook.presto.memory.MemoryPoolInfo;
 import com.facebook.presto.metadata.CatalogManager;
 import com.facebook.presto.metadata.CatalogManagerConfig;
 import com.facebook.presto.metadata.DatabaseLocalStorageManager;
@@ -135,6 +138,13 @@ public class ServerMainModule
         jsonCodecBinder(binder).bindJsonCodec(TaskInfo.class);
         binder.bind(PagesMapper.class).in(Scopes.SINGLETON);
 
+        // memory pool
+        bindConfig(binder).to(MemoryManagerConfig.class);
+        binder.bind(MemoryPool.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(MemoryPool.class).withGeneratedName();
+        binder.bind(MemoryResource.class).in(Scopes.SINGLETON);
+        jsonCodecBinder(binder).bindJsonCodec(MemoryPoolInfo.class);
+
         // exchange client
         binder.bind(new TypeLiteral<Supplier<ExchangeClient>>() {}).to(ExchangeClientFactory.class).in(Scopes.SINGLETON);
         httpClientBinder(binder).bindAsyncHttpClient("exchange", ForExchange.class).withTracing();
@@ -220,6 +230,7 @@ public class ServerMainModule
         jsonCodecBinder(binder).bindJsonCodec(TaskInfo.class);
         jsonCodecBinder(binder).bindJsonCodec(QueryResults.class);
         binder.bind(StatementResource.class).in(Scopes.SINGLETON);
+        binder.bind(BinaryQueryResultsMapper.class).in(Scopes.SINGLETON);
 
         // execute resource
         binder.bind(ExecuteResource.class).in(Scopes.SINGLETON);
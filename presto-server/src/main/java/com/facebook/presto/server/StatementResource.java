@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.server;
 
+import com.facebook.presto.block.BlockBuilder;
 import com.facebook.presto.block.BlockCursor;
 import com.facebook.presto.client.Column;
 import com.facebook.presto.client.FailureInfo;
@@ -35,6 +36,8 @@ import com.facebook.presto.sql.analyzer.Session;
 import com.facebook.presto.tuple.TupleInfo;
 import com.facebook.presto.tuple.TupleInfo.Type;
 import com.facebook.presto.util.IterableTransformer;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
@@ -42,6 +45,7 @@ import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
@@ -49,6 +53,7 @@ import io.airlift.log.Logger;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 
+import javax.annotation.Nullable;
 import javax.annotation.PreDestroy;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
@@ -83,6 +88,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static com.facebook.presto.client.BinaryQueryResults.PRESTO_BINARY_RESULTS;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_CATALOG;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_SCHEMA;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_SOURCE;
@@ -90,6 +96,7 @@ import static com.facebook.presto.client.PrestoHeaders.PRESTO_USER;
 import static com.facebook.presto.execution.QueryInfo.queryIdGetter;
 import static com.facebook.presto.execution.StageInfo.getAllStages;
 import static com.facebook.presto.execution.StageInfo.stageStateGetter;
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_VARBINARY;
 import static com.facebook.presto.util.Failures.toFailure;
 import static com.facebook.presto.util.Threads.threadsNamed;
 import static com.google.common.base.Preconditions.checkArgument;
@@ -132,7 +139,7 @@ public class StatementResource
     }
 
     @POST
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, PRESTO_BINARY_RESULTS})
     public Response createQuery(
             String statement,
             @HeaderParam(PRESTO_USER) String user,
@@ -172,7 +179,7 @@ public class StatementResource
 
     @GET
     @Path("{queryId}/{token}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, PRESTO_BINARY_RESULTS})
     public Response getQueryResults(
             @PathParam("queryId") QueryId queryId,
             @PathParam("token") long token,
@@ -214,7 +221,7 @@ public class StatementResource
         private final AtomicLong resultId = new AtomicLong();
 
         @GuardedBy("this")
-        private QueryResults lastResult;
+        private StatementResults lastResult;
 
         @GuardedBy("this")
         private String lastResultPath;
@@ -250,7 +257,7 @@ public class StatementResource
             return queryId;
         }
 
-        public synchronized QueryResults getResults(long token, UriInfo uriInfo, Duration maxWaitTime)
+        public synchronized StatementResults getResults(long token, UriInfo uriInfo, Duration maxWaitTime)
                 throws InterruptedException
         {
             // is the a repeated request for the last results?
@@ -266,7 +273,8 @@ public class StatementResource
             }
 
             // if this is not a request for the next results, return not found
-            if (lastResult.getNextUri() == null || !requestedPath.equals(lastResult.getNextUri().getPath())) {
+            URI nextUri = lastResult.getQueryResults().getNextUri();
+            if (nextUri == null || !requestedPath.equals(nextUri.getPath())) {
                 // unknown token
                 throw new WebApplicationException(Status.NOT_FOUND);
             }
@@ -274,10 +282,10 @@ public class StatementResource
             return getNextResults(uriInfo, maxWaitTime);
         }
 
-        public synchronized QueryResults getNextResults(UriInfo uriInfo, Duration maxWaitTime)
+        public synchronized StatementResults getNextResults(UriInfo uriInfo, Duration maxWaitTime)
                 throws InterruptedException
         {
-            Iterable<List<Object>> data = getData(maxWaitTime);
+            ResultPages data = getData(maxWaitTime);
 
             // get the query info before returning
             // force update if query manager is closed
@@ -305,7 +313,7 @@ public class StatementResource
                     //
                     // TODO: add support to the API for non-query statements.
                     columns = ImmutableList.of(new Column("result", "varchar"));
-                    data = ImmutableSet.<List<Object>>of(ImmutableList.<Object>of("true"));
+                    data = new ResultPages(ImmutableList.of(new Page(new BlockBuilder(SINGLE_VARBINARY).append("true").build())));
                 }
             }
 
@@ -328,16 +336,16 @@ public class StatementResource
 
             // cache the last results
             if (lastResult != null) {
-                lastResultPath = lastResult.getNextUri().getPath();
+                lastResultPath = lastResult.getQueryResults().getNextUri().getPath();
             }
             else {
                 lastResultPath = null;
             }
-            lastResult = queryResults;
-            return queryResults;
+            lastResult = new StatementResults(queryResults, data);
+            return lastResult;
         }
 
-        private synchronized Iterable<List<Object>> getData(Duration maxWait)
+        private synchronized ResultPages getData(Duration maxWait)
                 throws InterruptedException
         {
             // wait for query to start
@@ -358,26 +366,13 @@ public class StatementResource
 
             updateExchangeClient(queryInfo.getOutputStage());
 
-            ImmutableList.Builder<RowIterable> pages = ImmutableList.builder();
-            // wait up to max wait for data to arrive; then try to return at least DESIRED_RESULT_BYTES
-            int bytes = 0;
-            while (bytes < DESIRED_RESULT_BYTES) {
-                Page page = exchangeClient.getNextPage(maxWait);
-                if (page == null) {
-                    break;
-                }
-                bytes += page.getDataSize().toBytes();
-                pages.add(new RowIterable(page));
-
-                // only wait on first call
-                maxWait = new Duration(0, TimeUnit.MILLISECONDS);
-            }
-
-            if (bytes == 0) {
+            // wait for the first page here, so the next uri is decided with the exchange state after the
+            // wait, and the rest of the pages are read from the exchange client as the response is written
+            Page page = exchangeClient.getNextPage(maxWait);
+            if (page == null) {
                 return null;
             }
-
-            return Iterables.concat(pages.build());
+            return new ResultPages(page, exchangeClient);
         }
 
         private static boolean isQueryStarted(QueryInfo queryInfo)
@@ -595,23 +590,6 @@ public class StatementResource
             return new QueryError(failure.getMessage(), null, 0, failure.getErrorLocation(), failure);
         }
 
-        private static class RowIterable
-                implements Iterable<List<Object>>
-        {
-            private final Page page;
-
-            private RowIterable(Page page)
-            {
-                this.page = checkNotNull(page, "page is null");
-            }
-
-            @Override
-            public Iterator<List<Object>> iterator()
-            {
-                return new RowIterator(page);
-            }
-        }
-
         private static class RowIterator
                 extends AbstractIterator<List<Object>>
         {
@@ -646,6 +624,131 @@ public class StatementResource
         }
     }
 
+    /**
+     * Response entity of the statement resource.  The JSON format writes the query results, and the
+     * binary format writes the result pages, which can not be reached through the query results.
+     */
+    static class StatementResults
+    {
+        private final QueryResults queryResults;
+        private final ResultPages resultPages;
+
+        StatementResults(QueryResults queryResults, @Nullable ResultPages resultPages)
+        {
+            this.queryResults = checkNotNull(queryResults, "queryResults is null");
+            this.resultPages = resultPages;
+        }
+
+        @JsonValue
+        public QueryResults getQueryResults()
+        {
+            return queryResults;
+        }
+
+        @Nullable
+        public ResultPages getResultPages()
+        {
+            return resultPages;
+        }
+    }
+
+    /**
+     * Rows of the result pages.  The pages are kept, so the binary result
+     * format can write them without going through the rows.
+     */
+    static class ResultPages
+            implements Iterable<List<Object>>
+    {
+        private final ExchangeClient exchangeClient;
+
+        @GuardedBy("this")
+        private final List<Page> pages = new ArrayList<>();
+        @GuardedBy("this")
+        private long bytes;
+        @GuardedBy("this")
+        private boolean finished;
+
+        ResultPages(List<Page> pages)
+        {
+            this.exchangeClient = null;
+            this.pages.addAll(checkNotNull(pages, "pages is null"));
+            this.finished = true;
+        }
+
+        /**
+         * Reads the pages after the first page from the exchange client while they are iterated, without
+         * waiting, until DESIRED_RESULT_BYTES are read or no page is buffered.  The pages read are kept,
+         * so a repeated request for these results gets the same pages.
+         */
+        ResultPages(Page firstPage, ExchangeClient exchangeClient)
+        {
+            checkNotNull(firstPage, "firstPage is null");
+            this.exchangeClient = checkNotNull(exchangeClient, "exchangeClient is null");
+            this.pages.add(firstPage);
+            this.bytes = firstPage.getDataSize().toBytes();
+            this.finished = bytes >= DESIRED_RESULT_BYTES;
+        }
+
+        public Iterable<Page> getPages()
+        {
+            return new Iterable<Page>()
+            {
+                @Override
+                public Iterator<Page> iterator()
+                {
+                    return new AbstractIterator<Page>()
+                    {
+                        private int position;
+
+                        @Override
+                        protected Page computeNext()
+                        {
+                            Page page = getPage(position);
+                            if (page == null) {
+                                return endOfData();
+                            }
+                            position++;
+                            return page;
+                        }
+                    };
+                }
+            };
+        }
+
+        @Override
+        public Iterator<List<Object>> iterator()
+        {
+            return Iterators.concat(Iterators.transform(getPages().iterator(), new Function<Page, Iterator<List<Object>>>()
+            {
+                @Override
+                public Iterator<List<Object>> apply(Page page)
+                {
+                    return new Query.RowIterator(page);
+                }
+            }));
+        }
+
+        private synchronized Page getPage(int position)
+        {
+            if (position < pages.size()) {
+                return pages.get(position);
+            }
+            if (finished) {
+                return null;
+            }
+
+            Page page = exchangeClient.pollPage();
+            if (page == null) {
+                finished = true;
+                return null;
+            }
+            pages.add(page);
+            bytes += page.getDataSize().toBytes();
+            finished = bytes >= DESIRED_RESULT_BYTES;
+            return page;
+        }
+    }
+
     private static class PurgeQueriesRunnable
             implements Runnable
     {
@@ -21,6 +21,7 @@ import com.facebook.presto.execution.TaskInfo;
 import com.facebook.presto.execution.TaskManager;
 import com.facebook.presto.execution.TaskState;
 import com.facebook.presto.operator.Page;
+import com.facebook.presto.serde.PagesCompression;
 import com.google.common.reflect.TypeToken;
 import com.google.common.util.concurrent.RateLimiter;
 import io.airlift.log.Logger;
@@ -49,6 +50,7 @@ import java.util.NoSuchElementException;
 
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_CURRENT_STATE;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_MAX_WAIT;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_COMPRESSION;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_SEQUENCE_ID;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -146,12 +148,16 @@ public class TaskResource
     @Produces(PrestoMediaTypes.PRESTO_PAGES)
     public Response getResults(@PathParam("taskId") TaskId taskId,
             @PathParam("outputId") String outputId,
-            @PathParam("pageSequenceId") long pageSequenceId)
+            @PathParam("pageSequenceId") long pageSequenceId,
+            @HeaderParam(PRESTO_PAGE_COMPRESSION) String compressionHeader)
             throws InterruptedException
     {
         checkNotNull(taskId, "taskId is null");
         checkNotNull(outputId, "outputId is null");
 
+        // the pages are written by PagesMapper with the compression in the response header
+        PagesCompression compression = PagesCompression.fromHeader(compressionHeader);
+
         long remainingNanos = DEFAULT_MAX_WAIT_TIME.roundTo(NANOSECONDS);
         long start = System.nanoTime();
         long end = start + remainingNanos;
@@ -163,7 +169,10 @@ public class TaskResource
                 BufferResult result = taskManager.getTaskResults(taskId, outputId, pageSequenceId, DEFAULT_MAX_SIZE, new Duration(remainingNanos, NANOSECONDS));
                 if (!result.isEmpty()) {
                     GenericEntity<?> entity = new GenericEntity<>(result.getElements(), new TypeToken<List<Page>>() {}.getType());
-                    return Response.ok(entity).header(PRESTO_PAGE_SEQUENCE_ID, result.getStartingSequenceId()).build();
+                    return Response.ok(entity)
+                            .header(PRESTO_PAGE_SEQUENCE_ID, result.getStartingSequenceId())
+                            .header(PRESTO_PAGE_COMPRESSION, compression.name())
+                            .build();
                 }
                 else if (result.isBufferClosed()) {
                     return Response.status(Status.GONE).header(PRESTO_PAGE_SEQUENCE_ID, result.getStartingSequenceId()).build();
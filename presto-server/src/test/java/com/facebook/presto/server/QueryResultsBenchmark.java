@@ -0,0 +1,138 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server;
+
+import com.facebook.presto.benchmark.AbstractBenchmark;
+import com.facebook.presto.benchmark.SimpleLineBenchmarkResultWriter;
+import com.facebook.presto.block.BlockBuilder;
+import com.facebook.presto.client.BinaryQueryResults;
+import com.facebook.presto.client.Column;
+import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.client.StatementStats;
+import com.facebook.presto.operator.Page;
+import com.facebook.presto.server.StatementResource.ResultPages;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.json.JsonCodec;
+import io.airlift.slice.DynamicSliceOutput;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_DOUBLE;
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_LONG;
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_VARBINARY;
+import static io.airlift.json.JsonCodec.jsonCodec;
+
+/**
+ * Measures how fast the results of a statement are encoded by the server and decoded
+ * by the client in the JSON and the binary result formats.  Input is the rows sent
+ * and output is the size of the response.
+ */
+public class QueryResultsBenchmark
+        extends AbstractBenchmark
+{
+    private static final JsonCodec<QueryResults> QUERY_RESULTS_CODEC = jsonCodec(QueryResults.class);
+    private static final int PAGE_COUNT = 100;
+    private static final int POSITIONS_PER_PAGE = 1024;
+
+    private final boolean binary;
+    private ResultPages resultPages;
+    private QueryResults results;
+    private long rowCount;
+    private long dataSize;
+
+    public QueryResultsBenchmark(boolean binary)
+    {
+        super("query_results_" + (binary ? "binary" : "json"), 5, 20);
+        this.binary = binary;
+    }
+
+    @Override
+    protected void setUp()
+    {
+        BlockBuilder orderKeys = new BlockBuilder(SINGLE_LONG);
+        BlockBuilder prices = new BlockBuilder(SINGLE_DOUBLE);
+        BlockBuilder comments = new BlockBuilder(SINGLE_VARBINARY);
+        for (int position = 0; position < POSITIONS_PER_PAGE; position++) {
+            orderKeys.append(position);
+            prices.append(position * 1.25);
+            comments.append("comment " + position);
+        }
+        Page page = new Page(orderKeys.build(), prices.build(), comments.build());
+        dataSize = PAGE_COUNT * page.getDataSize().toBytes();
+
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
+        for (int i = 0; i < PAGE_COUNT; i++) {
+            pages.add(page);
+        }
+
+        List<Column> columns = ImmutableList.of(
+                new Column("orderkey", "bigint"),
+                new Column("price", "double"),
+                new Column("comment", "varchar"));
+
+        resultPages = new ResultPages(pages.build());
+        results = new QueryResults(
+                "query",
+                URI.create("http://localhost/v1/query/query"),
+                null,
+                URI.create("http://localhost/v1/statement/query/1"),
+                columns,
+                resultPages,
+                StatementStats.builder().setState("RUNNING").build(),
+                null);
+        rowCount = PAGE_COUNT * POSITIONS_PER_PAGE;
+    }
+
+    @Override
+    protected Map<String, Long> runOnce()
+    {
+        long start = System.nanoTime();
+
+        byte[] data;
+        QueryResults decoded;
+        if (binary) {
+            DynamicSliceOutput sliceOutput = new DynamicSliceOutput(1024 * 1024);
+            BinaryQueryResultsMapper.writeQueryResults(sliceOutput, QUERY_RESULTS_CODEC, results, resultPages.getPages());
+            data = sliceOutput.slice().getBytes();
+            decoded = BinaryQueryResults.readQueryResults(QUERY_RESULTS_CODEC, data);
+        }
+        else {
+            data = QUERY_RESULTS_CODEC.toJson(results).getBytes(Charsets.UTF_8);
+            decoded = QUERY_RESULTS_CODEC.fromJson(new String(data, Charsets.UTF_8));
+        }
+
+        long rows = 0;
+        for (List<Object> ignored : decoded.getData()) {
+            rows++;
+        }
+
+        return ImmutableMap.<String, Long>builder()
+                .put("cpu_nanos", System.nanoTime() - start)
+                .put("input_rows", rowCount)
+                .put("input_bytes", dataSize)
+                .put("output_rows", rows)
+                .put("output_bytes", (long) data.length)
+                .build();
+    }
+
+    public static void main(String[] args)
+    {
+        new QueryResultsBenchmark(false).runBenchmark(new SimpleLineBenchmarkResultWriter(System.out));
+        new QueryResultsBenchmark(true).runBenchmark(new SimpleLineBenchmarkResultWriter(System.out));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server;
+
+import com.facebook.presto.block.Block;
+import com.facebook.presto.block.BlockBuilder;
+import com.facebook.presto.client.BinaryQueryResults;
+import com.facebook.presto.client.Column;
+import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.client.StatementStats;
+import com.facebook.presto.operator.Page;
+import com.facebook.presto.server.StatementResource.ResultPages;
+import com.facebook.presto.server.StatementResource.StatementResults;
+import com.facebook.presto.tuple.TupleInfo;
+import com.google.common.collect.ImmutableList;
+import io.airlift.json.JsonCodec;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.facebook.presto.client.BinaryQueryResults.PRESTO_BINARY_RESULTS;
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_BOOLEAN;
+import static com.facebook.presto.tuple.TupleInfo.SINGLE_DOUBLE;
+import static com.facebook.presto.tuple.TupleInfo.Type.FIXED_INT_64;
+import static com.facebook.presto.tuple.TupleInfo.Type.VARIABLE_BINARY;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestBinaryQueryResultsMapper
+{
+    private static final JsonCodec<QueryResults> QUERY_RESULTS_CODEC = jsonCodec(QueryResults.class);
+
+    @Test
+    public void testRoundTrip()
+            throws Exception
+    {
+        TupleInfo longAndVarchar = new TupleInfo(FIXED_INT_64, VARIABLE_BINARY);
+        Block first = new BlockBuilder(longAndVarchar)
+                .append(longAndVarchar.builder().append(1).append("alice").build())
+                .append(longAndVarchar.builder().appendNull().append("bob").build())
+                .append(longAndVarchar.builder().append(3).appendNull().build())
+                .build();
+        Block second = new BlockBuilder(SINGLE_DOUBLE)
+                .append(1.5)
+                .appendNull()
+                .append(3.5)
+                .build();
+        Block third = new BlockBuilder(SINGLE_BOOLEAN)
+                .append(true)
+                .append(false)
+                .appendNull()
+                .build();
+        Page page = new Page(first, second, third);
+
+        List<Column> columns = ImmutableList.of(
+                new Column("a", "bigint"),
+                new Column("b", "varchar"),
+                new Column("c", "double"),
+                new Column("d", "boolean"));
+        QueryResults actual = roundTrip(createStatementResults(columns, new ResultPages(ImmutableList.of(page, page))));
+
+        assertEquals(actual.getId(), "query");
+        assertEquals(actual.getColumns().size(), columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            assertEquals(actual.getColumns().get(i).getName(), columns.get(i).getName());
+            assertEquals(actual.getColumns().get(i).getType(), columns.get(i).getType());
+        }
+        List<List<Object>> expectedRows = ImmutableList.of(
+                Arrays.<Object>asList(1L, "alice", 1.5, true),
+                Arrays.<Object>asList(null, "bob", null, false),
+                Arrays.<Object>asList(3L, null, 3.5, null),
+                Arrays.<Object>asList(1L, "alice", 1.5, true),
+                Arrays.<Object>asList(null, "bob", null, false),
+                Arrays.<Object>asList(3L, null, 3.5, null));
+        assertEquals(ImmutableList.copyOf(actual.getData()), expectedRows);
+    }
+
+    @Test
+    public void testNoPages()
+            throws Exception
+    {
+        List<Column> columns = ImmutableList.of(new Column("a", "bigint"));
+        QueryResults actual = roundTrip(createStatementResults(columns, new ResultPages(ImmutableList.<Page>of())));
+        assertEquals(actual.getColumns().size(), 1);
+        assertNull(actual.getData());
+    }
+
+    @Test
+    public void testNoData()
+            throws Exception
+    {
+        QueryResults actual = roundTrip(createStatementResults(null, null));
+        assertEquals(actual.getId(), "query");
+        assertNull(actual.getColumns());
+        assertNull(actual.getData());
+    }
+
+    private static StatementResults createStatementResults(List<Column> columns, ResultPages data)
+    {
+        QueryResults queryResults = new QueryResults(
+                "query",
+                URI.create("http://localhost/query"),
+                null,
+                URI.create("http://localhost/query/1"),
+                columns,
+                data,
+                StatementStats.builder().setState("RUNNING").build(),
+                null);
+        return new StatementResults(queryResults, data);
+    }
+
+    private static QueryResults roundTrip(StatementResults results)
+            throws IOException
+    {
+        BinaryQueryResultsMapper mapper = new BinaryQueryResultsMapper(QUERY_RESULTS_CODEC);
+        MediaType mediaType = MediaType.valueOf(PRESTO_BINARY_RESULTS);
+        assertTrue(mapper.isWriteable(StatementResults.class, StatementResults.class, new Annotation[0], mediaType));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        mapper.writeTo(results, StatementResults.class, StatementResults.class, new Annotation[0], mediaType, null, output);
+        return BinaryQueryResults.readQueryResults(QUERY_RESULTS_CODEC, output.toByteArray());
+    }
+}
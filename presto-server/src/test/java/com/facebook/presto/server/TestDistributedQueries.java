@@ -303,13 +303,19 @@ public class TestDistributedQueries
         };
     }
 
-    private static TestingPrestoServer createTestingPrestoServer(URI discoveryUri, boolean coordinator)
+    protected Map<String, String> getExtraProperties()
+    {
+        return ImmutableMap.of();
+    }
+
+    private TestingPrestoServer createTestingPrestoServer(URI discoveryUri, boolean coordinator)
             throws Exception
     {
         Map<String, String> properties = ImmutableMap.<String, String>builder()
                 .put("query.client.timeout", "10m")
                 .put("exchange.http-client.read-timeout", "1h")
                 .put("datasources", "native,tpch")
+                .putAll(getExtraProperties())
                 .build();
 
         return new TestingPrestoServer(coordinator, properties, ENVIRONMENT, discoveryUri);
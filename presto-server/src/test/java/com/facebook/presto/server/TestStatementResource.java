@@ -0,0 +1,159 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server;
+
+import com.facebook.presto.client.BinaryQueryResults;
+import com.facebook.presto.client.PrestoHeaders;
+import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.sql.analyzer.Session;
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import com.google.common.net.HttpHeaders;
+import io.airlift.http.client.ApacheHttpClient;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.HttpStatus;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.ResponseHandler;
+import io.airlift.json.JsonCodec;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.facebook.presto.client.BinaryQueryResults.PRESTO_BINARY_RESULTS;
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static io.airlift.http.client.Request.Builder.preparePost;
+import static io.airlift.http.client.StaticBodyGenerator.createStaticBodyGenerator;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+
+public class TestStatementResource
+{
+    private static final JsonCodec<QueryResults> QUERY_RESULTS_CODEC = jsonCodec(QueryResults.class);
+
+    private TestingPrestoServer server;
+    private HttpClient client;
+
+    @BeforeMethod
+    public void setup()
+            throws Exception
+    {
+        server = new TestingPrestoServer();
+        client = new ApacheHttpClient();
+    }
+
+    @SuppressWarnings("deprecation")
+    @AfterMethod
+    public void teardown()
+    {
+        Closeables.closeQuietly(server);
+        Closeables.closeQuietly(client);
+    }
+
+    @Test
+    public void testBinaryResults()
+            throws Exception
+    {
+        List<List<Object>> rows = executeQuery("SELECT 123 foo, 'abc' bar FROM dual", PRESTO_BINARY_RESULTS);
+        assertEquals(rows, ImmutableList.of(Arrays.<Object>asList(123L, "abc")));
+    }
+
+    @Test
+    public void testJsonResults()
+            throws Exception
+    {
+        List<List<Object>> rows = executeQuery("SELECT 123 foo, 'abc' bar FROM dual", "application/json");
+        assertEquals(rows, ImmutableList.of(Arrays.<Object>asList(123L, "abc")));
+    }
+
+    private List<List<Object>> executeQuery(String query, String mediaType)
+    {
+        Request request = preparePost()
+                .setUri(server.resolve("/v1/statement"))
+                .setHeader(HttpHeaders.ACCEPT, mediaType)
+                .setHeader(PrestoHeaders.PRESTO_USER, "test")
+                .setHeader(PrestoHeaders.PRESTO_CATALOG, Session.DEFAULT_CATALOG)
+                .setHeader(PrestoHeaders.PRESTO_SCHEMA, Session.DEFAULT_SCHEMA)
+                .setBodyGenerator(createStaticBodyGenerator(query, Charsets.UTF_8))
+                .build();
+
+        ImmutableList.Builder<List<Object>> rows = ImmutableList.builder();
+        while (true) {
+            QueryResults results = client.execute(request, new QueryResultsResponseHandler(mediaType));
+            assertNull(results.getError());
+            if (results.getData() != null) {
+                // results without rows leave out the data
+                assertFalse(Iterables.isEmpty(results.getData()));
+                rows.addAll(results.getData());
+            }
+
+            URI nextUri = results.getNextUri();
+            if (nextUri == null) {
+                return rows.build();
+            }
+            request = prepareGet()
+                    .setUri(nextUri)
+                    .setHeader(HttpHeaders.ACCEPT, mediaType)
+                    .build();
+        }
+    }
+
+    private static class QueryResultsResponseHandler
+            implements ResponseHandler<QueryResults, RuntimeException>
+    {
+        private final String mediaType;
+
+        private QueryResultsResponseHandler(String mediaType)
+        {
+            this.mediaType = mediaType;
+        }
+
+        @Override
+        public QueryResults handleException(Request request, Exception exception)
+        {
+            throw Throwables.propagate(exception);
+        }
+
+        @Override
+        public QueryResults handle(Request request, Response response)
+        {
+            assertEquals(response.getStatusCode(), HttpStatus.OK.code());
+            assertEquals(response.getHeader(HttpHeaders.CONTENT_TYPE), mediaType);
+
+            byte[] data;
+            try {
+                data = ByteStreams.toByteArray(response.getInputStream());
+            }
+            catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+
+            if (mediaType.equals(PRESTO_BINARY_RESULTS)) {
+                return BinaryQueryResults.readQueryResults(QUERY_RESULTS_CODEC, data);
+            }
+            return QUERY_RESULTS_CODEC.fromJson(new String(data, Charsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spi;
+
+import java.util.Objects;
+
+/**
+ * Estimated statistics of a table column.  The min and max values use the same Java types as the
+ * values of the column type ({@code Long}, {@code Double}, {@code String} or {@code Boolean}).
+ */
+public class ColumnStatistics
+{
+    public static final long UNKNOWN = -1;
+
+    private final long distinctValuesCount;
+    private final double nullsFraction;
+    private final Object min;
+    private final Object max;
+
+    /**
+     * @param distinctValuesCount the number of distinct non-null values, or {@link #UNKNOWN}
+     * @param nullsFraction the fraction of the rows that are null, or {@code NaN} if unknown
+     * @param min the smallest non-null value, or null if unknown
+     * @param max the largest non-null value, or null if unknown
+     */
+    public ColumnStatistics(long distinctValuesCount, double nullsFraction, Object min, Object max)
+    {
+        if (distinctValuesCount < 0 && distinctValuesCount != UNKNOWN) {
+            throw new IllegalArgumentException("distinctValuesCount is negative");
+        }
+        if (nullsFraction < 0 || nullsFraction > 1) {
+            throw new IllegalArgumentException("nullsFraction must be between 0 and 1");
+        }
+        this.distinctValuesCount = distinctValuesCount;
+        this.nullsFraction = nullsFraction;
+        this.min = min;
+        this.max = max;
+    }
+
+    public long getDistinctValuesCount()
+    {
+        return distinctValuesCount;
+    }
+
+    public boolean isDistinctValuesCountKnown()
+    {
+        return distinctValuesCount != UNKNOWN;
+    }
+
+    public double getNullsFraction()
+    {
+        return nullsFraction;
+    }
+
+    public Object getMin()
+    {
+        return min;
+    }
+
+    public Object getMax()
+    {
+        return max;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder("ColumnStatistics{");
+        sb.append("distinctValuesCount=").append(distinctValuesCount);
+        sb.append(", nullsFraction=").append(nullsFraction);
+        sb.append(", min=").append(min);
+        sb.append(", max=").append(max);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(distinctValuesCount, nullsFraction, min, max);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final ColumnStatistics other = (ColumnStatistics) obj;
+        return Objects.equals(this.distinctValuesCount, other.distinctValuesCount) &&
+                Objects.equals(this.nullsFraction, other.nullsFraction) &&
+                Objects.equals(this.min, other.min) &&
+                Objects.equals(this.max, other.max);
+    }
+}
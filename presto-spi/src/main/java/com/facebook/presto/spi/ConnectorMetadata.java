@@ -40,6 +40,14 @@ public interface ConnectorMetadata
      */
     ConnectorTableMetadata getTableMetadata(TableHandle table);
 
+    /**
+     * Returns the estimated statistics of the specified table, or {@link TableStatistics#unknown()}
+     * if the connector does not have statistics for the table.
+     *
+     * @throws RuntimeException if table handle is no longer valid
+     */
+    TableStatistics getTableStatistics(TableHandle tableHandle);
+
     /**
      * Get the names that match the specified table prefix (never null).
      */
@@ -25,4 +25,11 @@ public interface ConnectorSplitManager
     List<Partition> getPartitions(TableHandle table, Map<ColumnHandle, Object> bindings);
 
     Iterable<Split> getPartitionSplits(TableHandle table, List<Partition> partitions);
+
+    /**
+     * Returns a version for each of the specified partitions, keyed by partition id.  The version of a
+     * partition changes whenever the data of the partition changes.  Partitions with an unknown version
+     * are not included in the result.
+     */
+    Map<String, String> getPartitionVersions(TableHandle table, List<Partition> partitions);
 }
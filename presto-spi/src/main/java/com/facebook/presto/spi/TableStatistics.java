@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spi;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Estimated statistics of a table.  A connector that does not know a value reports it as unknown,
+ * so the engine must not rely on any of the values being available.
+ */
+public class TableStatistics
+{
+    public static final long UNKNOWN = -1;
+
+    private static final TableStatistics UNKNOWN_STATISTICS = new TableStatistics(UNKNOWN, UNKNOWN, Collections.<ColumnHandle, ColumnStatistics>emptyMap());
+
+    private final long rowCount;
+    private final long dataSize;
+    private final Map<ColumnHandle, ColumnStatistics> columnStatistics;
+
+    /**
+     * @param rowCount the number of rows in the table, or {@link #UNKNOWN}
+     * @param dataSize the size of the table data in bytes, or {@link #UNKNOWN}
+     * @param columnStatistics the statistics of the columns, which may not contain every column
+     */
+    public TableStatistics(long rowCount, long dataSize, Map<ColumnHandle, ColumnStatistics> columnStatistics)
+    {
+        if (rowCount < 0 && rowCount != UNKNOWN) {
+            throw new IllegalArgumentException("rowCount is negative");
+        }
+        if (dataSize < 0 && dataSize != UNKNOWN) {
+            throw new IllegalArgumentException("dataSize is negative");
+        }
+        if (columnStatistics == null) {
+            throw new NullPointerException("columnStatistics is null");
+        }
+        this.rowCount = rowCount;
+        this.dataSize = dataSize;
+        this.columnStatistics = Collections.unmodifiableMap(new LinkedHashMap<>(columnStatistics));
+    }
+
+    public static TableStatistics unknown()
+    {
+        return UNKNOWN_STATISTICS;
+    }
+
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    public boolean isRowCountKnown()
+    {
+        return rowCount != UNKNOWN;
+    }
+
+    public long getDataSize()
+    {
+        return dataSize;
+    }
+
+    public boolean isDataSizeKnown()
+    {
+        return dataSize != UNKNOWN;
+    }
+
+    public Map<ColumnHandle, ColumnStatistics> getColumnStatistics()
+    {
+        return columnStatistics;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder("TableStatistics{");
+        sb.append("rowCount=").append(rowCount);
+        sb.append(", dataSize=").append(dataSize);
+        sb.append(", columnStatistics=").append(columnStatistics);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(rowCount, dataSize, columnStatistics);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final TableStatistics other = (TableStatistics) obj;
+        return Objects.equals(this.rowCount, other.rowCount) &&
+                Objects.equals(this.dataSize, other.dataSize) &&
+                Objects.equals(this.columnStatistics, other.columnStatistics);
+    }
+}
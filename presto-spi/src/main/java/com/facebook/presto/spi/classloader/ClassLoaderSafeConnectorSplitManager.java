@@ -67,6 +67,14 @@ public final class ClassLoaderSafeConnectorSplitManager
         }
     }
 
+    @Override
+    public Map<String, String> getPartitionVersions(TableHandle table, List<Partition> partitions)
+    {
+        try (ThreadContextClassLoader threadContextClassLoader = new ThreadContextClassLoader(classLoader)) {
+            return delegate.getPartitionVersions(table, partitions);
+        }
+    }
+
     @Override
     public String toString()
     {